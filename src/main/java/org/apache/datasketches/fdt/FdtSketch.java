@@ -20,6 +20,7 @@
 package org.apache.datasketches.fdt;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
@@ -124,6 +125,17 @@ public final class FdtSketch extends ArrayOfStringsSketch {
     return proc.getGroupList(priKeyIndices, numStdDev, limit);
   }
 
+  /**
+   * Returns the ParallelPostProcessor that enables multiple queries against the sketch results,
+   * grouping the entries in parallel on the given pool.
+   * @param sep the separator character
+   * @param pool the pool to run on, or null to use the common pool
+   * @return the ParallelPostProcessor
+   */
+  public ParallelPostProcessor getParallelPostProcessor(final char sep, final ForkJoinPool pool) {
+    return new ParallelPostProcessor(this, sep, pool);
+  }
+
   /**
    * Returns the PostProcessor that enables multiple queries against the sketch results.
    * This assumes the default Group and the default separator character '|'.
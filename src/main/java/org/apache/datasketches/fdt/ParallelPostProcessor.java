@@ -0,0 +1,391 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.fdt;
+
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.thetacommon.BinomialBoundsN;
+import org.apache.datasketches.tuple.TupleSketchIterator;
+import org.apache.datasketches.tuple.strings.ArrayOfStringsSummary;
+
+/**
+ * This processes the contents of a FDT sketch to extract the primary keys with the most frequent
+ * unique combinations of the non-primary dimensions, the same as the {@link PostProcessor}, but is
+ * intended for large sketches and many queries.
+ *
+ * <p>On construction the dimension strings of the retained entries are dictionary-encoded, one
+ * dimension per task, into columns of int codes. Each query then groups segments of the entries on
+ * their int-coded primary keys in parallel, using primitive hash maps, selects the most frequent
+ * groups with a bounded heap, and only builds the primary key strings of the returned groups.
+ * The source sketch is not modified and may be updated after construction without affecting this
+ * processor.</p>
+ *
+ * <p>Groups of the same count are listed in the order their first entry is returned by the
+ * iterator of the sketch, so the result does not depend on the degree of parallelism.</p>
+ */
+public final class ParallelPostProcessor {
+
+  /**
+   * Number of entries grouped sequentially by a single task.
+   */
+  static final int SEGMENT_SIZE = 1 << 13;
+
+  private final char sep;
+  private final ForkJoinPool pool;
+  private final int numEntries;
+  private final boolean estimationMode;
+  private final boolean empty;
+  private final double theta;
+  private final int[][] codes; //codes[dimension][entry], -1 if the entry has no such dimension
+  private final String[][] dictionaries; //dictionaries[dimension][code]
+  private int groupCount;
+
+  /**
+   * Construct with a populated FdtSketch
+   * @param sketch the given sketch to query.
+   * @param sep the separator character
+   * @param pool the pool to run on, or null to use the common pool
+   */
+  public ParallelPostProcessor(final FdtSketch sketch, final char sep, final ForkJoinPool pool) {
+    Objects.requireNonNull(sketch, "sketch must be non-null");
+    this.sep = sep;
+    this.pool = pool != null ? pool : ForkJoinPool.commonPool();
+    numEntries = sketch.getRetainedEntries();
+    estimationMode = sketch.isEstimationMode();
+    empty = sketch.isEmpty();
+    theta = sketch.getTheta();
+
+    final String[][] tuples = new String[numEntries][];
+    final TupleSketchIterator<ArrayOfStringsSummary> it = sketch.iterator();
+    int numDims = 0;
+    int i = 0;
+    while (it.next()) {
+      tuples[i] = it.getSummary().getValue();
+      numDims = Math.max(numDims, tuples[i].length);
+      i++;
+    }
+    codes = new int[numDims][];
+    dictionaries = new String[numDims][];
+    final EncodeTask[] tasks = new EncodeTask[numDims];
+    for (int d = 0; d < numDims; d++) {
+      tasks[d] = new EncodeTask(tuples, d);
+    }
+    this.pool.invoke(new RecursiveAction() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+        invokeAll(tasks);
+      }
+    });
+  }
+
+  /**
+   * Returns the number of groups found by the last query.
+   * @return the number of groups found by the last query.
+   */
+  public int getGroupCount() {
+    return groupCount;
+  }
+
+  /**
+   * Return the most frequent Groups associated with Primary Keys based on the size of the groups.
+   * @param priKeyIndices the indices of the primary dimensions
+   * @param numStdDev the number of standard deviations for the error bounds, this value is an
+   * integer and must be one of 1, 2, or 3.
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @param limit the maximum number of rows to return. If &le; 0, all rows will be returned.
+   * @return the most frequent Groups associated with Primary Keys based on the size of the groups.
+   */
+  public List<Group> getGroupList(final int[] priKeyIndices, final int numStdDev, final int limit) {
+    Objects.requireNonNull(priKeyIndices, "priKeyIndices must be non-null");
+    if (numEntries == 0) {
+      groupCount = 0;
+      return new ArrayList<>();
+    }
+    final int[][] keyCodes = new int[priKeyIndices.length][];
+    for (int k = 0; k < priKeyIndices.length; k++) {
+      final int idx = priKeyIndices[k];
+      if (idx < 0 || idx >= codes.length) {
+        throw new SketchesArgumentException("Primary key index out of range: " + idx);
+      }
+      keyCodes[k] = codes[idx];
+      for (int i = 0; i < numEntries; i++) {
+        if (keyCodes[k][i] < 0) {
+          throw new SketchesArgumentException("Not all tuples have the dimension " + idx);
+        }
+      }
+    }
+
+    final GroupMap map = numEntries <= SEGMENT_SIZE
+        ? new GroupTask(keyCodes, 0, numEntries).compute()
+        : pool.invoke(new GroupTask(keyCodes, 0, numEntries));
+    groupCount = map.size;
+
+    final long[] selected = map.select(limit);
+    final List<Group> list = new ArrayList<>(selected.length);
+    for (final long entry : selected) {
+      final int count = Integer.MAX_VALUE - (int) (entry >>> 32);
+      final int row = (int) entry;
+      list.add(newGroup(getPrimaryKey(keyCodes, priKeyIndices, row), count, numStdDev));
+    }
+    return list;
+  }
+
+  private Group newGroup(final String priKey, final int count, final int numStdDev) {
+    final double est = estimationMode ? count / theta : count;
+    final double ub = estimationMode
+        ? BinomialBoundsN.getUpperBound(count, theta, numStdDev, empty) : count;
+    final double lb = estimationMode
+        ? BinomialBoundsN.getLowerBound(count, theta, numStdDev, empty) : count;
+    final double ub1 = estimationMode ? BinomialBoundsN.getUpperBound(count, theta, 1, empty) : count;
+    final double thresh = (double) count / numEntries;
+    final double rse = (ub1 / est) - 1.0;
+    return new Group().init(priKey, count, est, ub, lb, thresh, rse);
+  }
+
+  private String getPrimaryKey(final int[][] keyCodes, final int[] priKeyIndices, final int row) {
+    final StringBuilder sb = new StringBuilder();
+    for (int k = 0; k < keyCodes.length; k++) {
+      sb.append(dictionaries[priKeyIndices[k]][keyCodes[k][row]]);
+      if ((k + 1) < keyCodes.length) { sb.append(sep); }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Dictionary-encodes one dimension of all entries.
+   */
+  private final class EncodeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient String[][] tuples;
+    private final int dim;
+
+    EncodeTask(final String[][] tuples, final int dim) {
+      this.tuples = tuples;
+      this.dim = dim;
+    }
+
+    @Override
+    protected void compute() {
+      final int[] column = new int[tuples.length];
+      final Map<String, Integer> dict = new HashMap<>();
+      final List<String> values = new ArrayList<>();
+      for (int i = 0; i < tuples.length; i++) {
+        if (dim >= tuples[i].length) {
+          column[i] = -1;
+          continue;
+        }
+        final String value = tuples[i][dim];
+        Integer code = dict.get(value);
+        if (code == null) {
+          code = values.size();
+          dict.put(value, code);
+          values.add(value);
+        }
+        column[i] = code;
+      }
+      codes[dim] = column;
+      dictionaries[dim] = values.toArray(new String[0]);
+    }
+  }
+
+  /**
+   * Groups a range of entries, splitting it into segments of at most {@link #SEGMENT_SIZE}.
+   */
+  private static final class GroupTask extends RecursiveTask<GroupMap> {
+    private static final long serialVersionUID = 1L;
+    private final transient int[][] keyCodes;
+    private final int lo;
+    private final int hi;
+
+    GroupTask(final int[][] keyCodes, final int lo, final int hi) {
+      this.keyCodes = keyCodes;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    @Override
+    protected GroupMap compute() {
+      if ((hi - lo) <= SEGMENT_SIZE) {
+        final GroupMap map = new GroupMap(keyCodes, hi - lo);
+        for (int i = lo; i < hi; i++) {
+          map.add(i, 1);
+        }
+        return map;
+      }
+      final int mid = (lo + hi) >>> 1;
+      final GroupTask right = new GroupTask(keyCodes, mid, hi);
+      right.fork();
+      final GroupMap leftMap = new GroupTask(keyCodes, lo, mid).compute();
+      final GroupMap rightMap = right.join();
+      return leftMap.size >= rightMap.size ? leftMap.merge(rightMap) : rightMap.merge(leftMap);
+    }
+  }
+
+  /**
+   * Open addressing map from the int-coded primary key of an entry to the number of entries with
+   * the same primary key. A group is represented by its first entry.
+   */
+  private static final class GroupMap {
+    private static final double LOAD_FACTOR = 0.75;
+    private final int[][] keyCodes;
+    private int[] rows; //first entry of the group + 1, 0 if the slot is empty
+    private int[] hashes;
+    private int[] counts;
+    private int size;
+
+    GroupMap(final int[][] keyCodes, final int expectedGroups) {
+      this.keyCodes = keyCodes;
+      final int capacity = ceilingPowerOf2(Math.max(16, (int) (expectedGroups / LOAD_FACTOR) + 1));
+      rows = new int[capacity];
+      hashes = new int[capacity];
+      counts = new int[capacity];
+    }
+
+    void add(final int row, final int count) {
+      add(row, hash(row), count);
+    }
+
+    private void add(final int row, final int hash, final int count) {
+      final int mask = rows.length - 1;
+      int slot = hash & mask;
+      while (rows[slot] != 0) {
+        final int other = rows[slot] - 1;
+        if (hashes[slot] == hash && sameKey(row, other)) {
+          counts[slot] += count;
+          if (row < other) { rows[slot] = row + 1; }
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+      rows[slot] = row + 1;
+      hashes[slot] = hash;
+      counts[slot] = count;
+      if (++size > rows.length * LOAD_FACTOR) { resize(); }
+    }
+
+    GroupMap merge(final GroupMap that) {
+      for (int slot = 0; slot < that.rows.length; slot++) {
+        if (that.rows[slot] != 0) {
+          add(that.rows[slot] - 1, that.hashes[slot], that.counts[slot]);
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Returns the groups ordered by decreasing count and then by first entry, each packed as
+     * (MAX_VALUE - count) in the upper and the first entry in the lower half of a long, so that
+     * the natural order of the longs is the order of the groups.
+     * @param limit the maximum number of groups to return. If &le; 0, all groups are returned.
+     * @return the selected groups
+     */
+    long[] select(final int limit) {
+      if (limit <= 0 || limit >= size) {
+        final long[] all = new long[size];
+        int n = 0;
+        for (int slot = 0; slot < rows.length; slot++) {
+          if (rows[slot] != 0) { all[n++] = pack(slot); }
+        }
+        Arrays.sort(all);
+        return all;
+      }
+      // max-heap of the best groups so far, the worst of them at the root
+      final long[] heap = new long[limit];
+      int n = 0;
+      for (int slot = 0; slot < rows.length; slot++) {
+        if (rows[slot] == 0) { continue; }
+        final long entry = pack(slot);
+        if (n < limit) {
+          int i = n++;
+          while (i > 0 && heap[(i - 1) >>> 1] < entry) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+          }
+          heap[i] = entry;
+        } else if (entry < heap[0]) {
+          int i = 0;
+          while (true) {
+            int child = (2 * i) + 1;
+            if (child >= limit) { break; }
+            if (child + 1 < limit && heap[child + 1] > heap[child]) { child++; }
+            if (heap[child] <= entry) { break; }
+            heap[i] = heap[child];
+            i = child;
+          }
+          heap[i] = entry;
+        }
+      }
+      Arrays.sort(heap);
+      return heap;
+    }
+
+    private long pack(final int slot) {
+      return ((long) (Integer.MAX_VALUE - counts[slot]) << 32) | (rows[slot] - 1);
+    }
+
+    private int hash(final int row) {
+      int h = 0;
+      for (final int[] column : keyCodes) {
+        h = (h * 0x9E3779B9) + column[row];
+      }
+      h ^= h >>> 16;
+      h *= 0x85EBCA6B;
+      return h ^ (h >>> 13);
+    }
+
+    private boolean sameKey(final int row1, final int row2) {
+      for (final int[] column : keyCodes) {
+        if (column[row1] != column[row2]) { return false; }
+      }
+      return true;
+    }
+
+    private void resize() {
+      final int[] oldRows = rows;
+      final int[] oldHashes = hashes;
+      final int[] oldCounts = counts;
+      rows = new int[oldRows.length * 2];
+      hashes = new int[oldRows.length * 2];
+      counts = new int[oldRows.length * 2];
+      final int mask = rows.length - 1;
+      for (int i = 0; i < oldRows.length; i++) {
+        if (oldRows[i] == 0) { continue; }
+        int slot = oldHashes[i] & mask;
+        while (rows[slot] != 0) { slot = (slot + 1) & mask; }
+        rows[slot] = oldRows[i];
+        hashes[slot] = oldHashes[i];
+        counts[slot] = oldCounts[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+import static org.apache.datasketches.common.Util.exactLog2OfInt;
+import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.frequencies.LongsSketch.Row;
+
+/**
+ * A thread-safe frequent items sketch of <i>long</i> items that can be updated concurrently
+ * by many writing threads.
+ *
+ * <p>Updates are absorbed by a fixed number of striped local buffers, each of which is a small
+ * {@link LongsSketch}. A writing thread is mapped to a stripe by its thread ID, so threads
+ * rarely contend for the same stripe. When a stripe fills up it is folded into the shared
+ * {@link LongsSketch} by the writing thread, and then cleared for reuse. The local buffers are
+ * always folded <i>before</i> they would have to purge, so they never decrement any counters
+ * themselves.</p>
+ *
+ * <p>Queries are answered from a merged snapshot of the shared sketch. The snapshot is rebuilt
+ * lazily by the first query that follows a fold, so a burst of queries between folds shares a
+ * single snapshot. Items that are still held in the local buffers are not yet visible to
+ * queries. Call {@link #flush()} to fold all local buffers before a query that must reflect
+ * every update received so far, e.g., at the end of a stream.</p>
+ *
+ * <p><b>Error Guarantees</b></p>
+ *
+ * <p>Because the local buffers never purge, folding a buffer into the shared sketch is exactly
+ * equivalent to updating the shared sketch with the pre-aggregated (item, count) pairs held by
+ * the buffer. After a {@link #flush()} the snapshot therefore has the same guarantee as a
+ * single {@link LongsSketch} of the same <i>maxMapSize</i> that was updated sequentially with
+ * the same stream: for every item <i>(UB - LB) &le; W * epsilon</i>, where <i>W</i> is the total
+ * stream weight and <i>epsilon = 3.5 / maxMapSize</i>.</p>
+ *
+ * <p>Between flushes, the snapshot has this guarantee with respect to the portion of the stream
+ * that has been folded, and each local buffer may hold up to its capacity of unfolded distinct
+ * items. The lag between an update and its visibility is a matter of synchronization and not a
+ * true error; it disappears once all buffers are folded.</p>
+ */
+public final class ConcurrentLongsSketch {
+  private static final int DEFAULT_LG_BUFFER_MAP_SIZE = 7; //128, capacity of 96 items
+
+  private final int lgMaxMapSize;
+  private final LongsSketch shared;
+  private final LongsSketch[] stripes;
+  private final int stripeMask;
+  private long foldCount = 0; //guarded by shared
+  private long snapshotFoldCount = -1; //guarded by shared
+  private LongsSketch snapshot; //guarded by shared
+
+  /**
+   * Constructs this sketch with the given maxMapSize, a number of stripes equal to the next power
+   * of 2 of the number of available processors, and the default local buffer map size of 128.
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map of the shared sketch
+   * and must be a power of 2. See {@link LongsSketch#LongsSketch(int)}.
+   */
+  public ConcurrentLongsSketch(final int maxMapSize) {
+    this(maxMapSize, ceilingPowerOf2(Runtime.getRuntime().availableProcessors()),
+        1 << DEFAULT_LG_BUFFER_MAP_SIZE);
+  }
+
+  /**
+   * Constructs this sketch with the given parameters.
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map of the shared sketch
+   * and must be a power of 2. See {@link LongsSketch#LongsSketch(int)}.
+   * @param numStripes the number of local buffers, which must be a power of 2. This should be
+   * at least the number of concurrently writing threads.
+   * @param bufferMapSize the physical size of the hash map of each local buffer, which must be
+   * a power of 2 no larger than <i>maxMapSize</i>. Larger buffers amortize the cost of folding
+   * over more updates at the cost of more memory and a longer visibility lag.
+   */
+  public ConcurrentLongsSketch(final int maxMapSize, final int numStripes,
+      final int bufferMapSize) {
+    lgMaxMapSize = exactLog2OfInt(maxMapSize, "maxMapSize");
+    exactLog2OfInt(numStripes, "numStripes");
+    final int lgBufferMapSize = exactLog2OfInt(bufferMapSize, "bufferMapSize");
+    if (lgBufferMapSize > lgMaxMapSize) {
+      throw new SketchesArgumentException(
+          "bufferMapSize must not exceed maxMapSize: " + bufferMapSize + " > " + maxMapSize);
+    }
+    shared = new LongsSketch(lgMaxMapSize, LG_MIN_MAP_SIZE);
+    stripes = new LongsSketch[numStripes];
+    for (int i = 0; i < numStripes; i++) {
+      stripes[i] = new LongsSketch(lgBufferMapSize, lgBufferMapSize);
+    }
+    stripeMask = numStripes - 1;
+    snapshot = new LongsSketch(lgMaxMapSize, LG_MIN_MAP_SIZE);
+  }
+
+  /**
+   * Update this sketch with an item and a frequency count of one.
+   * @param item for which the frequency should be increased.
+   */
+  public void update(final long item) {
+    update(item, 1);
+  }
+
+  /**
+   * Update this sketch with an item and a positive frequency count (or weight).
+   * This method may be called concurrently by multiple threads.
+   * @param item for which the frequency should be increased.
+   * @param count the amount by which the frequency of the item should be increased.
+   * A count of zero is a no-op, and a negative count will throw an exception.
+   */
+  public void update(final long item, final long count) {
+    if (count == 0) { return; }
+    if (count < 0) {
+      throw new SketchesArgumentException("Count may not be negative");
+    }
+    final LongsSketch local = stripes[(int) Thread.currentThread().getId() & stripeMask];
+    synchronized (local) {
+      //fold before the local buffer would have to purge, so it never adds to the offset
+      if (local.getNumActiveItems() >= local.getMaximumMapCapacity()) {
+        fold(local);
+      }
+      local.update(item, count);
+    }
+  }
+
+  /**
+   * Folds all of the local buffers into the shared sketch. After this returns, queries reflect
+   * every update that completed before this call.
+   */
+  public void flush() {
+    for (int i = 0; i < stripes.length; i++) {
+      final LongsSketch local = stripes[i];
+      synchronized (local) {
+        fold(local);
+      }
+    }
+  }
+
+  /**
+   * Returns the most recent merged snapshot of the shared sketch. The returned sketch must be
+   * treated as read-only. It is replaced, not modified, when newer data is folded in.
+   * @return the most recent merged snapshot of the shared sketch.
+   */
+  public LongsSketch getSnapshot() {
+    synchronized (shared) {
+      if (snapshotFoldCount != foldCount) {
+        snapshot = shared.copy();
+        snapshotFoldCount = foldCount;
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Returns an array of Rows from the most recent merged snapshot.
+   * See {@link LongsSketch#getFrequentItems(long, ErrorType)}.
+   * @param threshold to include items in the result list
+   * @param errorType determines whether no false positives or no false negatives are
+   * desired.
+   * @return an array of frequent items
+   */
+  public Row[] getFrequentItems(final long threshold, final ErrorType errorType) {
+    return getSnapshot().getFrequentItems(threshold, errorType);
+  }
+
+  /**
+   * Returns an array of Rows from the most recent merged snapshot.
+   * See {@link LongsSketch#getFrequentItems(ErrorType)}.
+   * @param errorType determines whether no false positives or no false negatives are
+   * desired.
+   * @return an array of frequent items
+   */
+  public Row[] getFrequentItems(final ErrorType errorType) {
+    return getSnapshot().getFrequentItems(errorType);
+  }
+
+  /**
+   * Gets the estimate of the frequency of the given item from the most recent merged snapshot.
+   * @param item the given item
+   * @return the estimate of the frequency of the given item
+   */
+  public long getEstimate(final long item) {
+    return getSnapshot().getEstimate(item);
+  }
+
+  /**
+   * Gets the guaranteed lower bound frequency of the given item from the most recent merged
+   * snapshot.
+   * @param item the given item.
+   * @return the guaranteed lower bound frequency of the given item.
+   */
+  public long getLowerBound(final long item) {
+    return getSnapshot().getLowerBound(item);
+  }
+
+  /**
+   * Gets the guaranteed upper bound frequency of the given item from the most recent merged
+   * snapshot.
+   * @param item the given item
+   * @return the guaranteed upper bound frequency of the given item.
+   */
+  public long getUpperBound(final long item) {
+    return getSnapshot().getUpperBound(item);
+  }
+
+  /**
+   * @return An upper bound on the maximum error of getEstimate(item) for any item of the most
+   * recent merged snapshot.
+   */
+  public long getMaximumError() {
+    return getSnapshot().getMaximumError();
+  }
+
+  /**
+   * Returns the sum of the frequencies that have been folded into the shared sketch.
+   * @return the sum of the frequencies that have been folded into the shared sketch.
+   */
+  public long getStreamLength() {
+    return getSnapshot().getStreamLength();
+  }
+
+  /**
+   * Returns true if nothing has been folded into the shared sketch.
+   * @return true if nothing has been folded into the shared sketch.
+   */
+  public boolean isEmpty() {
+    return getSnapshot().isEmpty();
+  }
+
+  /**
+   * Returns a byte array representation of the shared sketch after folding all local buffers.
+   * The result can be read with {@link LongsSketch#getInstance(org.apache.datasketches.memory.Memory)}.
+   * @return a byte array representation of the shared sketch.
+   */
+  public byte[] toByteArray() {
+    flush();
+    return getSnapshot().toByteArray();
+  }
+
+  /**
+   * Resets this sketch and all of its local buffers to a virgin state.
+   */
+  public void reset() {
+    for (int i = 0; i < stripes.length; i++) {
+      final LongsSketch local = stripes[i];
+      synchronized (local) {
+        local.clear();
+      }
+    }
+    synchronized (shared) {
+      shared.reset();
+      foldCount++;
+    }
+  }
+
+  /**
+   * Returns a human readable summary of this sketch.
+   * @return a human readable summary of this sketch.
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("ConcurrentLongsSketch:").append(LS);
+    sb.append("  Num Stripes      : " + stripes.length).append(LS);
+    sb.append("  Buffer Capacity  : " + stripes[0].getMaximumMapCapacity()).append(LS);
+    sb.append(getSnapshot().toString());
+    return sb.toString();
+  }
+
+  /**
+   * Folds the given local buffer into the shared sketch and clears it.
+   * The caller must hold the lock of the local buffer.
+   * @param local the given local buffer
+   */
+  private void fold(final LongsSketch local) {
+    if (local.isEmpty()) { return; }
+    synchronized (shared) {
+      shared.merge(local);
+      foldCount++;
+    }
+    local.clear();
+  }
+
+}
@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.frequencies.PreambleUtil.EMPTY_FLAG_MASK;
+import static org.apache.datasketches.frequencies.PreambleUtil.OFFSET_LONG;
+import static org.apache.datasketches.frequencies.PreambleUtil.SER_VER;
+import static org.apache.datasketches.frequencies.PreambleUtil.STREAMLENGTH_LONG;
+import static org.apache.datasketches.frequencies.PreambleUtil.UPDATABLE_FLAG_MASK;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractFamilyID;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractFlags;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractLgCurMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractLgMaxMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractSerVer;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertFamilyID;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertFlags;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertLgCurMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertLgMaxMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertPreLongs;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertSerVer;
+import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
+import static org.apache.datasketches.frequencies.Util.SAMPLE_SIZE;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesReadOnlyException;
+import org.apache.datasketches.common.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * This class implements an off-heap, updatable LongsSketch using WritableMemory.
+ * The preamble fields, including the stream length and the offset, as well as the entire
+ * hash map live in the Memory, so every update and query is done in place.
+ *
+ * <p>Please refer to the documentation of {@link LongsSketch}.</p>
+ */
+final class DirectLongsSketch extends LongsSketch {
+  private static final int DATA_START = Family.FREQUENCY.getMaxPreLongs() << 3;
+  private final Memory mem;
+  private final WritableMemory wmem; //null if read only
+  private final int lgMaxMapSize;
+  private final int sampleSize;
+  private final DirectReversePurgeLongHashMap hashMap;
+
+  private DirectLongsSketch(final Memory mem, final WritableMemory wmem, final int lgMaxMapSize) {
+    this.mem = mem;
+    this.wmem = wmem;
+    this.lgMaxMapSize = lgMaxMapSize;
+    hashMap = new DirectReversePurgeLongHashMap(mem, wmem, DATA_START, 1 << lgMaxMapSize);
+    sampleSize = Math.min(SAMPLE_SIZE, hashMap.getCapacity());
+  }
+
+  static long getRequiredBytes(final int maxMapSize) {
+    return DATA_START + DirectReversePurgeLongHashMap.getRequiredBytes(maxMapSize);
+  }
+
+  /**
+   * Initializes the given WritableMemory with an empty updatable image.
+   * @param lgMaxMapSize Log2 of the physical size of the hash map
+   * @param dstMem the given destination WritableMemory
+   * @return a new direct instance of this sketch
+   */
+  static DirectLongsSketch newInstance(final int lgMaxMapSize, final WritableMemory dstMem) {
+    final int lgMax = Math.max(lgMaxMapSize, LG_MIN_MAP_SIZE);
+    checkCapacity(dstMem, lgMax);
+    long pre0 = 0L;
+    pre0 = insertPreLongs(Family.FREQUENCY.getMaxPreLongs(), pre0); //Byte 0
+    pre0 = insertSerVer(SER_VER, pre0);                             //Byte 1
+    pre0 = insertFamilyID(Family.FREQUENCY.getID(), pre0);          //Byte 2
+    pre0 = insertLgMaxMapSize(lgMax, pre0);                         //Byte 3
+    pre0 = insertLgCurMapSize(lgMax, pre0);                         //Byte 4
+    pre0 = insertFlags(UPDATABLE_FLAG_MASK, pre0);                  //Byte 5
+    dstMem.putLong(0, pre0);
+    final DirectLongsSketch sk = new DirectLongsSketch(dstMem, dstMem, lgMax);
+    sk.reset();
+    return sk;
+  }
+
+  /**
+   * Wraps the given Memory, which must contain an updatable image.
+   * @param srcMem the given Memory
+   * @param srcWmem the given Memory as a WritableMemory, or null if read only
+   * @return a direct instance of this sketch
+   */
+  static DirectLongsSketch wrapInstance(final Memory srcMem, final WritableMemory srcWmem) {
+    final long pre0 = PreambleUtil.checkPreambleSize(srcMem);
+    final int preLongs = extractPreLongs(pre0);
+    final int serVer = extractSerVer(pre0);
+    final int familyID = extractFamilyID(pre0);
+    final int lgMaxMapSize = extractLgMaxMapSize(pre0);
+    final int flags = extractFlags(pre0);
+    if ((flags & UPDATABLE_FLAG_MASK) == 0) {
+      throw new SketchesArgumentException(
+          "Memory does not contain an updatable image. Use LongsSketch.getInstance(Memory).");
+    }
+    if ((preLongs != Family.FREQUENCY.getMaxPreLongs()) || ((flags & EMPTY_FLAG_MASK) != 0)
+        || (extractLgCurMapSize(pre0) != lgMaxMapSize) || (lgMaxMapSize < LG_MIN_MAP_SIZE)) {
+      throw new SketchesArgumentException("Possible Corruption: Invalid updatable preamble.");
+    }
+    if (serVer != SER_VER) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: Ser Ver must be " + SER_VER + ": " + serVer);
+    }
+    Family.FREQUENCY.checkFamilyID(familyID);
+    checkCapacity(srcMem, lgMaxMapSize);
+    return new DirectLongsSketch(srcMem, srcWmem, lgMaxMapSize);
+  }
+
+  private static void checkCapacity(final Memory mem, final int lgMaxMapSize) {
+    final long required = getRequiredBytes(1 << lgMaxMapSize);
+    if (mem.getCapacity() < required) {
+      throw new SketchesArgumentException("Memory capacity is too small: "
+          + mem.getCapacity() + " < " + required);
+    }
+  }
+
+  @Override
+  public int getCurrentMapCapacity() {
+    return hashMap.getCapacity();
+  }
+
+  @Override
+  public long getEstimate(final long item) {
+    final long itemCount = hashMap.get(item);
+    return (itemCount > 0) ? itemCount + getMaximumError() : 0;
+  }
+
+  @Override
+  public long getLowerBound(final long item) {
+    return hashMap.get(item);
+  }
+
+  @Override
+  public long getMaximumError() {
+    return mem.getLong(OFFSET_LONG);
+  }
+
+  @Override
+  public int getMaximumMapCapacity() {
+    return hashMap.getCapacity();
+  }
+
+  @Override
+  public int getNumActiveItems() {
+    return hashMap.getNumActive();
+  }
+
+  @Override
+  public long getStreamLength() {
+    return mem.getLong(STREAMLENGTH_LONG);
+  }
+
+  @Override
+  public long getUpperBound(final long item) {
+    return hashMap.get(item) + getMaximumError();
+  }
+
+  @Override
+  public boolean isDirect() {
+    return true;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return wmem == null;
+  }
+
+  @Override
+  public LongsSketch merge(final LongsSketch other) {
+    if (other == null) { return this; }
+    if (other.isEmpty()) { return this; }
+    checkWritable();
+    if (other == this) { //iterating the own Memory while updating it is not safe
+      return merge(other.copy());
+    }
+    final long streamWt = getStreamLength() + other.getStreamLength(); //capture before merge
+
+    final ReversePurgeLongHashMap.Iterator iter = other.iterator();
+    while (iter.next()) { //this may add to offset during rebuilds
+      update(iter.getKey(), iter.getValue());
+    }
+    wmem.putLong(OFFSET_LONG, getMaximumError() + other.getMaximumError());
+    wmem.putLong(STREAMLENGTH_LONG, streamWt); //corrected streamWeight
+    return this;
+  }
+
+  @Override
+  public void reset() {
+    checkWritable();
+    hashMap.clear();
+    wmem.putLong(STREAMLENGTH_LONG, 0);
+    wmem.putLong(OFFSET_LONG, 0);
+  }
+
+  @Override
+  public String serializeToString() {
+    final StringBuilder sb = new StringBuilder();
+    final int flags = (getNumActiveItems() == 0) ? EMPTY_FLAG_MASK : 0;
+    sb.append(String.format("%d,%d,%d,%d,%d,%d,", SER_VER, Family.FREQUENCY.getID(),
+        lgMaxMapSize, flags, getStreamLength(), getMaximumError()));
+    sb.append(String.format("%d,%d,", getNumActiveItems(), hashMap.getLength()));
+    final long[] keys = hashMap.getActiveKeys();
+    final long[] values = hashMap.getActiveValues();
+    for (int i = 0; i < getNumActiveItems(); i++) {
+      sb.append(String.format("%d,%d,", keys[i], values[i]));
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public byte[] toByteArray() {
+    final boolean empty = isEmpty();
+    final int activeItems = getNumActiveItems();
+    final int preLongs = empty ? 1 : Family.FREQUENCY.getMaxPreLongs();
+    final byte[] outArr = new byte[getStorageBytes()];
+    final WritableMemory outMem = WritableMemory.writableWrap(outArr);
+
+    long pre0 = 0L;
+    pre0 = insertPreLongs(preLongs, pre0);                  //Byte 0
+    pre0 = insertSerVer(SER_VER, pre0);                     //Byte 1
+    pre0 = insertFamilyID(Family.FREQUENCY.getID(), pre0);  //Byte 2
+    pre0 = insertLgMaxMapSize(lgMaxMapSize, pre0);          //Byte 3
+    pre0 = insertLgCurMapSize(lgMaxMapSize, pre0);          //Byte 4
+    pre0 = empty ? insertFlags(EMPTY_FLAG_MASK, pre0) : insertFlags(0, pre0); //Byte 5
+    outMem.putLong(0, pre0);
+    if (!empty) {
+      //ActiveItems, StreamLength and Offset have the same layout in both forms
+      outMem.putLong(8, PreambleUtil.insertActiveItems(activeItems, 0));
+      outMem.putLong(STREAMLENGTH_LONG, getStreamLength());
+      outMem.putLong(OFFSET_LONG, getMaximumError());
+      final int preBytes = preLongs << 3;
+      outMem.putLongArray(preBytes, hashMap.getActiveValues(), 0, activeItems);
+      outMem.putLongArray(preBytes + (activeItems << 3), hashMap.getActiveKeys(), 0, activeItems);
+    }
+    return outArr;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("DirectFrequentLongsSketch:").append(LS);
+    sb.append("  Read Only        : " + isReadOnly()).append(LS);
+    sb.append("  Stream Length    : " + getStreamLength()).append(LS);
+    sb.append("  Max Error Offset : " + getMaximumError()).append(LS);
+    sb.append(hashMap.toString());
+    return sb.toString();
+  }
+
+  @Override
+  public void update(final long item, final long count) {
+    if (count == 0) { return; }
+    if (count < 0) {
+      throw new SketchesArgumentException("Count may not be negative");
+    }
+    checkWritable();
+    wmem.putLong(STREAMLENGTH_LONG, wmem.getLong(STREAMLENGTH_LONG) + count);
+    hashMap.adjustOrPutValue(item, count);
+
+    if (getNumActiveItems() > hashMap.getCapacity()) { //at tgt size, must purge
+      final long delta = hashMap.purge(sampleSize);
+      wmem.putLong(OFFSET_LONG, wmem.getLong(OFFSET_LONG) + delta);
+      if (getNumActiveItems() > getMaximumMapCapacity()) {
+        throw new SketchesStateException("Purge did not reduce active items.");
+      }
+    }
+  }
+
+  @Override
+  LongsSketch copy() {
+    return new LongsSketch(lgMaxMapSize, LG_MIN_MAP_SIZE).merge(this);
+  }
+
+  @Override
+  void clear() {
+    reset();
+  }
+
+  @Override
+  ReversePurgeLongHashMap.Iterator iterator() {
+    return hashMap.iterator();
+  }
+
+  private void checkWritable() {
+    if (wmem == null) {
+      throw new SketchesReadOnlyException("This sketch is read only.");
+    }
+  }
+
+}
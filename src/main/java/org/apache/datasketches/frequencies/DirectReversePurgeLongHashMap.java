@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.frequencies.PreambleUtil.ACTIVE_ITEMS_INT;
+import static org.apache.datasketches.frequencies.Util.hash;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.thetacommon.QuickSelect;
+
+/**
+ * The off-heap equivalent of the {@link ReversePurgeLongHashMap}. The keys, values and states
+ * arrays as well as the number of active keys live in the given Memory, in the layout of the
+ * updatable form of the LongsSketch described in {@link PreambleUtil}.
+ * The map never resizes, its length is always the maximum map size of the sketch.
+ */
+final class DirectReversePurgeLongHashMap {
+  private static final int DRIFT_LIMIT = 1024; //used only in stress testing
+  private final Memory mem;
+  private final WritableMemory wmem; //null if read only
+  private final int length;
+  private final int loadThreshold;
+  private final long keysOffset;
+  private final long valuesOffset;
+  private final long statesOffset;
+
+  /**
+   * Wraps the hash table region of the given Memory.
+   * @param mem the given Memory, which may be read only
+   * @param wmem the given WritableMemory, or null if the map is read only
+   * @param dataStart the byte offset of the start of the keys array
+   * @param mapSize the number of cells of the hash table, which must be a power of 2.
+   */
+  DirectReversePurgeLongHashMap(final Memory mem, final WritableMemory wmem, final long dataStart,
+      final int mapSize) {
+    this.mem = mem;
+    this.wmem = wmem;
+    length = mapSize;
+    loadThreshold = (int) (mapSize * ReversePurgeLongHashMap.getLoadFactor());
+    keysOffset = dataStart;
+    valuesOffset = keysOffset + ((long) mapSize << 3);
+    statesOffset = valuesOffset + ((long) mapSize << 3);
+  }
+
+  /**
+   * Returns the number of bytes required for the hash table region.
+   * @param mapSize the number of cells of the hash table
+   * @return the number of bytes required for the hash table region.
+   */
+  static long getRequiredBytes(final int mapSize) {
+    return (long) mapSize * (Long.BYTES + Long.BYTES + Short.BYTES);
+  }
+
+  /**
+   * Removes all keys from this map.
+   */
+  void clear() {
+    wmem.clear(statesOffset, (long) length << 1);
+    setNumActive(0);
+  }
+
+  boolean isActive(final int probe) {
+    return state(probe) > 0;
+  }
+
+  /**
+   * Gets the current value with the given key
+   * @param key the given key
+   * @return the positive value the key corresponds to or zero if the key is not found in the
+   * hash map.
+   */
+  long get(final long key) {
+    final int arrayMask = length - 1;
+    int probe = (int) hash(key) & arrayMask;
+    while (state(probe) > 0) {
+      if (key(probe) == key) { return value(probe); }
+      probe = (probe + 1) & arrayMask;
+    }
+    return 0;
+  }
+
+  /**
+   * Increments the value mapped to the key if the key is present in the map. Otherwise,
+   * the key is inserted with the adjustAmount.
+   *
+   * @param key the key of the value to increment
+   * @param adjustAmount the amount by which to increment the value
+   */
+  void adjustOrPutValue(final long key, final long adjustAmount) {
+    final int arrayMask = length - 1;
+    int probe = (int) hash(key) & arrayMask;
+    int drift = 1;
+    short state;
+    while (((state = state(probe)) != 0) && (key(probe) != key)) {
+      probe = (probe + 1) & arrayMask;
+      drift++;
+      //only used for theoretical analysis
+      assert (drift < DRIFT_LIMIT) : "drift: " + drift + " >= DRIFT_LIMIT";
+    }
+    if (state == 0) { //found empty slot
+      final int numActive = getNumActive();
+      assert (numActive <= loadThreshold)
+        : "numActive: " + numActive + " > loadThreshold : " + loadThreshold;
+      wmem.putLong(keysOffset + ((long) probe << 3), key);
+      wmem.putLong(valuesOffset + ((long) probe << 3), adjustAmount);
+      wmem.putShort(statesOffset + ((long) probe << 1), (short) drift);
+      setNumActive(numActive + 1);
+    } else { //found the key, adjust the value
+      final long valueAdr = valuesOffset + ((long) probe << 3);
+      wmem.putLong(valueAdr, wmem.getLong(valueAdr) + adjustAmount);
+    }
+  }
+
+  /**
+   * Processes the map and retains only keys with positive counts.
+   */
+  void keepOnlyPositiveCounts() {
+    int numActive = getNumActive();
+    // Starting from the back, find the first empty cell, which marks a boundary between clusters.
+    int firstProbe = length - 1;
+    while (state(firstProbe) > 0) {
+      firstProbe--;
+    }
+    //Work towards the front; delete any non-positive entries.
+    for (int probe = firstProbe; probe-- > 0; ) {
+      if ((state(probe) > 0) && (value(probe) <= 0)) {
+        hashDelete(probe);
+        numActive--;
+      }
+    }
+    //now work on the first cluster that was skipped.
+    for (int probe = length; probe-- > firstProbe;) {
+      if ((state(probe) > 0) && (value(probe) <= 0)) {
+        hashDelete(probe);
+        numActive--;
+      }
+    }
+    setNumActive(numActive);
+  }
+
+  /**
+   * @param adjustAmount value by which to shift all values.
+   */
+  void adjustAllValuesBy(final long adjustAmount) {
+    for (int i = length; i-- > 0; ) {
+      final long valueAdr = valuesOffset + ((long) i << 3);
+      wmem.putLong(valueAdr, wmem.getLong(valueAdr) + adjustAmount);
+    }
+  }
+
+  /**
+   * See {@link ReversePurgeLongHashMap#purge(int)}.
+   * @param sampleSize number of samples
+   * @return the median value
+   */
+  long purge(final int sampleSize) {
+    final int limit = Math.min(sampleSize, getNumActive());
+
+    int numSamples = 0;
+    int i = 0;
+    final long[] samples = new long[limit];
+
+    while (numSamples < limit) {
+      if (isActive(i)) {
+        samples[numSamples] = value(i);
+        numSamples++;
+      }
+      i++;
+    }
+
+    final long val = QuickSelect.select(samples, 0, numSamples - 1, limit / 2);
+    adjustAllValuesBy(-1 * val);
+    keepOnlyPositiveCounts();
+    return val;
+  }
+
+  /**
+   * @return an array containing the active keys in the hash map.
+   */
+  long[] getActiveKeys() {
+    final int numActive = getNumActive();
+    if (numActive == 0) { return null; }
+    final long[] returnedKeys = new long[numActive];
+    int j = 0;
+    for (int i = 0; i < length; i++) {
+      if (isActive(i)) {
+        returnedKeys[j++] = key(i);
+      }
+    }
+    assert (j == numActive) : "j: " + j + " != numActive: " + numActive;
+    return returnedKeys;
+  }
+
+  /**
+   * @return an array containing the values corresponding to the active keys in the hash map.
+   */
+  long[] getActiveValues() {
+    final int numActive = getNumActive();
+    if (numActive == 0) { return null; }
+    final long[] returnedValues = new long[numActive];
+    int j = 0;
+    for (int i = 0; i < length; i++) {
+      if (isActive(i)) {
+        returnedValues[j++] = value(i);
+      }
+    }
+    assert (j == numActive);
+    return returnedValues;
+  }
+
+  int getLength() {
+    return length;
+  }
+
+  int getCapacity() {
+    return loadThreshold;
+  }
+
+  int getNumActive() {
+    return mem.getInt(ACTIVE_ITEMS_INT);
+  }
+
+  @Override
+  public String toString() {
+    final String fmt  = "  %12d:%11d%20d %d";
+    final String hfmt = "  %12s:%11s%20s %s";
+    final StringBuilder sb = new StringBuilder();
+    sb.append("DirectReversePurgeLongHashMap:").append(LS);
+    sb.append(String.format(hfmt, "Index","States","Values","Keys")).append(LS);
+
+    for (int i = 0; i < length; i++) {
+      if (state(i) <= 0) { continue; }
+      sb.append(String.format(fmt, i, state(i), value(i), key(i))).append(LS);
+    }
+    return sb.toString();
+  }
+
+  ReversePurgeLongHashMap.Iterator iterator() {
+    return new DirectIterator();
+  }
+
+  private void setNumActive(final int numActive) {
+    wmem.putInt(ACTIVE_ITEMS_INT, numActive);
+  }
+
+  private short state(final int probe) {
+    return mem.getShort(statesOffset + ((long) probe << 1));
+  }
+
+  private long key(final int probe) {
+    return mem.getLong(keysOffset + ((long) probe << 3));
+  }
+
+  private long value(final int probe) {
+    return mem.getLong(valuesOffset + ((long) probe << 3));
+  }
+
+  private void hashDelete(int deleteProbe) {
+    // Looks ahead in the table to search for another item to move to this location.
+    // If none are found, the status is changed
+    wmem.putShort(statesOffset + ((long) deleteProbe << 1), (short) 0); //mark as empty
+    int drift = 1;
+    final int arrayMask = length - 1;
+    int probe = (deleteProbe + drift) & arrayMask; //map length must be a power of 2
+    // advance until you find a free location replacing locations as needed
+    short state;
+    while ((state = state(probe)) != 0) {
+      if (state > drift) {
+        // move current element
+        wmem.putLong(keysOffset + ((long) deleteProbe << 3), key(probe));
+        wmem.putLong(valuesOffset + ((long) deleteProbe << 3), value(probe));
+        wmem.putShort(statesOffset + ((long) deleteProbe << 1), (short) (state - drift));
+        // marking the current probe location as deleted
+        wmem.putShort(statesOffset + ((long) probe << 1), (short) 0);
+        drift = 0;
+        deleteProbe = probe;
+      }
+      probe = (probe + 1) & arrayMask;
+      drift++;
+      //only used for theoretical analysis
+      assert (drift < DRIFT_LIMIT) : "drift: " + drift + " >= DRIFT_LIMIT";
+    }
+  }
+
+  private final class DirectIterator extends ReversePurgeLongHashMap.Iterator {
+
+    DirectIterator() {
+      super(length, getNumActive());
+    }
+
+    @Override
+    boolean isActive(final int index) {
+      return state(index) > 0;
+    }
+
+    @Override
+    long getKey() {
+      return key(getIndex());
+    }
+
+    @Override
+    long getValue() {
+      return value(getIndex());
+    }
+  }
+
+}
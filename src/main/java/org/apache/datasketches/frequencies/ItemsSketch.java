@@ -41,6 +41,7 @@ import static org.apache.datasketches.frequencies.PreambleUtil.insertPreLongs;
 import static org.apache.datasketches.frequencies.PreambleUtil.insertSerVer;
 import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
 import static org.apache.datasketches.frequencies.Util.SAMPLE_SIZE;
+import static org.apache.datasketches.frequencies.Util.getBatchMapSize;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
@@ -604,6 +605,44 @@ public class ItemsSketch<T> {
     }
   }
 
+  /**
+   * Update this sketch with a batch of items and their positive frequency counts, given as
+   * parallel arrays.
+   *
+   * <p>Duplicate items within the batch are first combined in a small local hash map, so each
+   * distinct item costs only one probe of the sketch's map, and the number of purges depends
+   * only on the number of distinct items in the batch rather than on its length. The result is
+   * the same as updating the sketch with each distinct item and its summed count.</p>
+   *
+   * @param items the array of items. The items in the range [off, off + len) are used.
+   * The sketch uses hashCode() and equals() methods of the type T. Null items are ignored.
+   * @param counts the parallel array of counts. A count of zero is a no-op for its item,
+   * and a negative count will throw an exception before the sketch is modified.
+   * @param off the starting index in both arrays
+   * @param len the number of items and counts to use
+   */
+  public void update(final T[] items, final long[] counts, final int off, final int len) {
+    Objects.requireNonNull(items, "items must not be null");
+    Objects.requireNonNull(counts, "counts must not be null");
+    checkBounds(off, len, items.length);
+    checkBounds(off, len, counts.length);
+    final int end = off + len;
+    for (int i = off; i < end; i++) {
+      if (counts[i] < 0) {
+        throw new SketchesArgumentException("Count may not be negative");
+      }
+    }
+    if (len == 1) { update(items[off], counts[off]); return; }
+    final ReversePurgeItemHashMap<T> batchMap = new ReversePurgeItemHashMap<>(getBatchMapSize(len));
+    for (int i = off; i < end; i++) {
+      if ((items[i] != null) && (counts[i] > 0)) { batchMap.adjustOrPutValue(items[i], counts[i]); }
+    }
+    final ReversePurgeItemHashMap.Iterator<T> iter = batchMap.iterator();
+    while (iter.next()) {
+      update(iter.getKey(), iter.getValue());
+    }
+  }
+
   /**
    * Row class that defines the return values from a getFrequentItems query.
    * @param <T> type of item
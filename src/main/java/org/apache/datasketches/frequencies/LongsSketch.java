@@ -25,6 +25,7 @@ import static org.apache.datasketches.common.Util.exactLog2OfInt;
 import static org.apache.datasketches.common.Util.isPowerOf2;
 import static org.apache.datasketches.frequencies.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.frequencies.PreambleUtil.SER_VER;
+import static org.apache.datasketches.frequencies.PreambleUtil.UPDATABLE_FLAG_MASK;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractActiveItems;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractFamilyID;
 import static org.apache.datasketches.frequencies.PreambleUtil.extractFlags;
@@ -41,6 +42,7 @@ import static org.apache.datasketches.frequencies.PreambleUtil.insertPreLongs;
 import static org.apache.datasketches.frequencies.PreambleUtil.insertSerVer;
 import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
 import static org.apache.datasketches.frequencies.Util.SAMPLE_SIZE;
+import static org.apache.datasketches.frequencies.Util.getBatchMapSize;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -68,6 +70,9 @@ import org.apache.datasketches.memory.WritableMemory;
  * NO_FALSE_NEGATIVES error type.</li>
  * <li>Merge itself with another sketch object created from this class.</li>
  * <li>Serialize/Deserialize to/from a String or byte array.</li>
+ * <li>Be updated and queried in place in off-heap Memory, see
+ * {@link #newDirectInstance(int, WritableMemory)}, {@link #writableWrap(WritableMemory)} and
+ * {@link #wrap(Memory)}.</li>
  * </ul>
  *
  * <p><b>Space Usage</b></p>
@@ -84,6 +89,9 @@ import org.apache.datasketches.memory.WritableMemory;
  * this sketch will never exceed 18 * <i>maxMapSize</i> bytes, plus a small constant number of
  * additional bytes.</p>
  *
+ * <p>A direct sketch allocates the entire hash map of <i>maxMapSize</i> cells in its Memory at
+ * creation and requires 32 + 18 * <i>maxMapSize</i> bytes of Memory.</p>
+ *
  * <p><b>Maximum Capacity of the Sketch</b></p>
  *
  * <p>The LOAD_FACTOR for the hash map is internally set at 75%,
@@ -215,6 +223,65 @@ public class LongsSketch {
     sampleSize = Math.min(SAMPLE_SIZE, maxMapCap);
   }
 
+  /**
+   * Constructor used by the direct subclass, which keeps all of its state in Memory.
+   */
+  LongsSketch() { }
+
+  /**
+   * Create a new direct, updatable instance of this sketch in the given destination
+   * WritableMemory. The entire hash map of <i>maxMapSize</i> cells is allocated in the
+   * WritableMemory, which must have a capacity of at least
+   * {@link #getRequiredDirectBytes(int) getRequiredDirectBytes(maxMapSize)}.
+   * Any previous contents of the destination WritableMemory are overwritten.
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map managed by this
+   * sketch and must be a power of 2.
+   * @param dstMem the given destination WritableMemory object for use by the sketch
+   * @return a new direct instance of this sketch
+   */
+  public static LongsSketch newDirectInstance(final int maxMapSize, final WritableMemory dstMem) {
+    Objects.requireNonNull(dstMem, "Destination Memory must not be null.");
+    return DirectLongsSketch.newInstance(exactLog2OfInt(maxMapSize, "maxMapSize"), dstMem);
+  }
+
+  /**
+   * Wrap a sketch around the given source WritableMemory containing the updatable image of a
+   * direct sketch, which was created by {@link #newDirectInstance(int, WritableMemory)}.
+   * The sketch is updated in place, no data is copied to the heap.
+   *
+   * @param srcMem a WritableMemory that contains the updatable image of a direct sketch.
+   * @return a direct, updatable sketch that wraps the given WritableMemory.
+   */
+  public static LongsSketch writableWrap(final WritableMemory srcMem) {
+    Objects.requireNonNull(srcMem, "Source Memory must not be null.");
+    return DirectLongsSketch.wrapInstance(srcMem, srcMem.isReadOnly() ? null : srcMem);
+  }
+
+  /**
+   * Wrap a read-only sketch around the given source Memory containing the updatable image of a
+   * direct sketch. Queries are answered directly from the Memory, no data is copied to the heap.
+   * Use {@link #getInstance(Memory)} for the compact serialized form.
+   *
+   * @param srcMem a Memory that contains the updatable image of a direct sketch.
+   * @return a direct, read-only sketch that wraps the given Memory.
+   */
+  public static LongsSketch wrap(final Memory srcMem) {
+    Objects.requireNonNull(srcMem, "Source Memory must not be null.");
+    return DirectLongsSketch.wrapInstance(srcMem, null);
+  }
+
+  /**
+   * Returns the number of bytes required for a direct sketch with the given maxMapSize.
+   * This is <i>32 + 18 * maxMapSize</i>.
+   * @param maxMapSize the maximum map size of the sketch, which must be a power of 2.
+   * @return the number of bytes required for a direct sketch with the given maxMapSize.
+   */
+  public static long getRequiredDirectBytes(final int maxMapSize) {
+    exactLog2OfInt(maxMapSize, "maxMapSize");
+    return DirectLongsSketch.getRequiredBytes(maxMapSize);
+  }
+
   /**
    * Returns a sketch instance of this class from the given srcMem,
    * which must be a Memory representation of this sketch class.
@@ -251,6 +318,9 @@ public class LongsSketch {
       throw new SketchesArgumentException(
           "Possible Corruption: FamilyID must be " + actFamID + ": " + familyID);
     }
+    if ((extractFlags(pre0) & UPDATABLE_FLAG_MASK) != 0) { //the image of a direct sketch
+      return new LongsSketch(lgMaxMapSize, LG_MIN_MAP_SIZE).merge(wrap(srcMem));
+    }
     if (empty ^ preLongsEq1) {                          //Byte 5 and Byte 0
       throw new SketchesArgumentException(
           "Possible Corruption: (PreLongs == 1) ^ Empty == True.");
@@ -515,17 +585,33 @@ public class LongsSketch {
     if (other == null) { return this; }
     if (other.isEmpty()) { return this; }
 
-    final long streamWt = streamWeight + other.streamWeight; //capture before merge
+    final long streamWt = streamWeight + other.getStreamLength(); //capture before merge
 
-    final ReversePurgeLongHashMap.Iterator iter = other.hashMap.iterator();
+    final ReversePurgeLongHashMap.Iterator iter = other.iterator();
     while (iter.next()) { //this may add to offset during rebuilds
       this.update(iter.getKey(), iter.getValue());
     }
-    offset += other.offset;
+    offset += other.getMaximumError();
     streamWeight = streamWt; //corrected streamWeight
     return this;
   }
 
+  /**
+   * Returns true if this sketch keeps its data in Memory, i.e., off-heap.
+   * @return true if this sketch keeps its data in Memory.
+   */
+  public boolean isDirect() {
+    return false;
+  }
+
+  /**
+   * Returns true if this sketch is read only.
+   * @return true if this sketch is read only.
+   */
+  public boolean isReadOnly() {
+    return false;
+  }
+
   /**
    * Resets this sketch to a virgin state.
    */
@@ -536,6 +622,30 @@ public class LongsSketch {
     streamWeight = 0;
   }
 
+  /**
+   * Returns a deep copy of this sketch. This is faster than merging into an empty sketch as
+   * the internal hash map is copied without rehashing.
+   * @return a deep copy of this sketch.
+   */
+  LongsSketch copy() {
+    final LongsSketch sk = new LongsSketch(lgMaxMapSize, LG_MIN_MAP_SIZE);
+    sk.hashMap = hashMap.copy();
+    sk.curMapCap = hashMap.getCapacity();
+    sk.offset = offset;
+    sk.streamWeight = streamWeight;
+    return sk;
+  }
+
+  /**
+   * Resets this sketch to a virgin state, but retains the current size of the internal hash map.
+   * This avoids regrowing the map when the sketch is used as a reusable local buffer.
+   */
+  void clear() {
+    hashMap.clear();
+    offset = 0;
+    streamWeight = 0;
+  }
+
   //Serialization
 
   /**
@@ -674,6 +784,44 @@ public class LongsSketch {
     }
   }
 
+  /**
+   * Update this sketch with a batch of items and their positive frequency counts (or weights),
+   * given as parallel arrays.
+   *
+   * <p>Duplicate items within the batch are first combined in a small local hash map, so each
+   * distinct item costs only one probe of the sketch's map, and the number of purges depends
+   * only on the number of distinct items in the batch rather than on its length. The result is
+   * the same as updating the sketch with each distinct item and its summed count.</p>
+   *
+   * @param items the array of items. The items in the range [off, off + len) are used.
+   * @param counts the parallel array of counts. A count of zero is a no-op for its item,
+   * and a negative count will throw an exception before the sketch is modified.
+   * @param off the starting index in both arrays
+   * @param len the number of items and counts to use
+   */
+  public void update(final long[] items, final long[] counts, final int off, final int len) {
+    Objects.requireNonNull(items, "items must not be null");
+    Objects.requireNonNull(counts, "counts must not be null");
+    checkBounds(off, len, items.length);
+    checkBounds(off, len, counts.length);
+    final int end = off + len;
+    for (int i = off; i < end; i++) {
+      if (counts[i] < 0) {
+        throw new SketchesArgumentException("Count may not be negative");
+      }
+    }
+    if (len == 1) { update(items[off], counts[off]); return; }
+    final ReversePurgeLongHashMap batchMap =
+        new ReversePurgeLongHashMap(getBatchMapSize(len));
+    for (int i = off; i < end; i++) {
+      if (counts[i] > 0) { batchMap.adjustOrPutValue(items[i], counts[i]); }
+    }
+    final ReversePurgeLongHashMap.Iterator iter = batchMap.iterator();
+    while (iter.next()) {
+      update(iter.getKey(), iter.getValue());
+    }
+  }
+
   /**
    * Row class that defines the return values from a getFrequentItems query.
    */
@@ -771,9 +919,16 @@ public class LongsSketch {
 
   } // End of class Row
 
+  /**
+   * @return an iterator over the active items of this sketch.
+   */
+  ReversePurgeLongHashMap.Iterator iterator() {
+    return hashMap.iterator();
+  }
+
   Row[] sortItems(final long threshold, final ErrorType errorType) {
     final ArrayList<Row> rowList = new ArrayList<>();
-    final ReversePurgeLongHashMap.Iterator iter = hashMap.iterator();
+    final ReversePurgeLongHashMap.Iterator iter = iterator();
     if (errorType == ErrorType.NO_FALSE_NEGATIVES) {
       while (iter.next()) {
         final long est = getEstimate(iter.getKey());
@@ -63,6 +63,19 @@ import org.apache.datasketches.memory.Memory;
  *  5   ||----------start of values buffer, followed by keys buffer------------------------|
  * </pre>
  *
+ * <p>
+ * The updatable form of the LongsSketch used by the direct (off-heap) sketch always has 4 preamble
+ * longs, has the UPDATABLE flag set, never sets the EMPTY flag and LgCur always equals LgMax.
+ * The preamble is followed by the entire hash table of <i>mapSize = 2^LgMax</i> cells:
+ * </p>
+ *
+ * <pre>
+ *  Start Byte Adr   ||  Contents
+ *  32               ||  keys:   mapSize longs
+ *  32 + 8 * mapSize ||  values: mapSize longs
+ *  32 + 16* mapSize ||  states: mapSize shorts
+ * </pre>
+ *
  * @author Lee Rhodes
  */
 final class PreambleUtil {
@@ -86,6 +99,8 @@ final class PreambleUtil {
   // due to a mistake different bits were used in C++ and Java to indicate empty sketch
   // therefore both are set and checked for compatibility with historical binary format
   static final int EMPTY_FLAG_MASK = 5;
+  // the image is the updatable form of a direct sketch, not the compact serialized form
+  static final int UPDATABLE_FLAG_MASK = 8;
 
   // Specific values for this implementation
   static final int SER_VER = 1;
@@ -110,6 +125,7 @@ final class PreambleUtil {
 
     final String flagsStr = zeroPad(Integer.toBinaryString(flags), 8) + ", " + (flags);
     final boolean empty = (flags & EMPTY_FLAG_MASK) > 0;
+    final boolean updatable = (flags & UPDATABLE_FLAG_MASK) > 0;
     final int maxMapSize = 1 << lgMaxMapSize;
     final int curMapSize = 1 << lgCurMapSize;
     final int maxPreLongs = Family.FREQUENCY.getMaxPreLongs();
@@ -139,7 +155,8 @@ final class PreambleUtil {
       .append("Byte  3: MaxMapSize           : ").append(maxMapSize).append(LS)
       .append("Byte  4: CurMapSize           : ").append(curMapSize).append(LS)
       .append("Byte  5: Flags Field          : ").append(flagsStr).append(LS)
-      .append("  EMPTY                       : ").append(empty).append(LS);
+      .append("  EMPTY                       : ").append(empty).append(LS)
+      .append("  UPDATABLE                   : ").append(updatable).append(LS);
 
     if (preLongs == 1) {
       sb.append(" --ABSENT, ASSUMED:").append(LS);
@@ -150,8 +167,10 @@ final class PreambleUtil {
     }
 
     sb.append(  "Preamble Bytes                : ").append(preLongs * 8).append(LS);
-    sb.append(  "TOTAL Sketch Bytes            : ").append((preLongs + (activeItems * 2)) << 3)
-      .append(LS)
+    final long totalBytes = updatable
+        ? (preLongs << 3) + (18L * maxMapSize)
+        : (preLongs + (activeItems * 2)) << 3;
+    sb.append(  "TOTAL Sketch Bytes            : ").append(totalBytes).append(LS)
       .append("### END FREQUENCY SKETCH PREAMBLE SUMMARY").append(LS);
     return sb.toString();
   }
@@ -24,6 +24,8 @@ import static org.apache.datasketches.common.Util.exactLog2OfInt;
 import static org.apache.datasketches.common.Util.INVERSE_GOLDEN;
 import static org.apache.datasketches.frequencies.Util.hash;
 
+import java.util.Arrays;
+
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.thetacommon.QuickSelect;
 
@@ -235,6 +237,26 @@ class ReversePurgeLongHashMap {
     return returnedValues;
   }
 
+  /**
+   * @return a deep copy of this hash map with the same internal layout.
+   */
+  ReversePurgeLongHashMap copy() {
+    final ReversePurgeLongHashMap map = new ReversePurgeLongHashMap(keys.length);
+    System.arraycopy(keys, 0, map.keys, 0, keys.length);
+    System.arraycopy(values, 0, map.values, 0, values.length);
+    System.arraycopy(states, 0, map.states, 0, states.length);
+    map.numActive = numActive;
+    return map;
+  }
+
+  /**
+   * Removes all keys from this map while retaining the current length of the internal arrays.
+   */
+  void clear() {
+    Arrays.fill(states, (short) 0);
+    numActive = 0;
+  }
+
   // assume newSize is power of 2
   void resize(final int newSize) {
     final long[] oldKeys = keys;
@@ -384,12 +406,26 @@ class ReversePurgeLongHashMap {
     private int count_;
 
     Iterator(final long[] keys, final long[] values, final short[] states, final int numActive) {
+      this(keys, values, states, keys.length, numActive);
+    }
+
+    /**
+     * Constructor for subclasses that do not keep the map in arrays.
+     * @param length the length of the hash map, which must be a power of 2
+     * @param numActive the number of active keys in the hash map
+     */
+    Iterator(final int length, final int numActive) {
+      this(null, null, null, length, numActive);
+    }
+
+    private Iterator(final long[] keys, final long[] values, final short[] states,
+        final int length, final int numActive) {
       keys_ = keys;
       values_ = values;
       states_ = states;
       numActive_ = numActive;
-      stride_ = (int) (keys.length * INVERSE_GOLDEN) | 1;
-      mask_ = keys.length - 1;
+      stride_ = (int) (length * INVERSE_GOLDEN) | 1;
+      mask_ = length - 1;
       i_ = -stride_;
       count_ = 0;
     }
@@ -397,7 +433,7 @@ class ReversePurgeLongHashMap {
     boolean next() {
       i_ = (i_ + stride_) & mask_;
       while (count_ < numActive_) {
-        if (states_[i_] > 0) {
+        if (isActive(i_)) {
           count_++;
           return true;
         }
@@ -406,6 +442,14 @@ class ReversePurgeLongHashMap {
       return false;
     }
 
+    boolean isActive(final int index) {
+      return states_[index] > 0;
+    }
+
+    int getIndex() {
+      return i_;
+    }
+
     long getKey() {
       return keys_[i_];
     }
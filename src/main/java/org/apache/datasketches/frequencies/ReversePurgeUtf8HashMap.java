@@ -0,0 +1,495 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.datasketches.common.Util.INVERSE_GOLDEN;
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.exactLog2OfInt;
+
+import org.apache.datasketches.memory.XxHash;
+import org.apache.datasketches.thetacommon.QuickSelect;
+
+/**
+ * Implements a linear-probing based hash map of (UTF-8 key, value) pairs with the same
+ * "reverse" purge operation as {@link ReversePurgeLongHashMap}.
+ *
+ * <p>The key bytes are not stored as individual objects. They are appended to a single
+ * arena-backed byte slab and each cell of the map records the offset and length of its key in
+ * the slab, together with a precomputed 64-bit hash of the key. Probing compares the stored
+ * hashes first and only compares key bytes when the hashes match, so an update never calls
+ * <i>hashCode()</i> or <i>equals()</i> and never allocates, other than an occasional growth of
+ * the slab. The space left behind in the slab by purged keys is reclaimed by compaction
+ * whenever it exceeds the space of the live keys.</p>
+ */
+class ReversePurgeUtf8HashMap {
+  private static final double LOAD_FACTOR = 0.75;
+  private static final int DRIFT_LIMIT = 1024; //used only in stress testing
+  private static final long SEED = 9001L;
+  private static final int MIN_SLAB_BYTES = 256;
+  private int lgLength;
+  private int loadThreshold;
+  private long[] hashes;
+  private int[] keyOffsets;
+  private int[] keyLengths;
+  private long[] values;
+  private short[] states;
+  private int numActive = 0;
+  private byte[] slab;
+  private int slabUsed = 0;
+  private int slabLive = 0;
+
+  /**
+   * Constructor will create arrays of length mapSize, which must be a power of two.
+   *
+   * @param mapSize This determines the number of cells in the arrays underlying the
+   * HashMap implementation and must be a power of 2.
+   * The hash table will be expected to store LOAD_FACTOR * mapSize (key, value) pairs.
+   */
+  ReversePurgeUtf8HashMap(final int mapSize) {
+    lgLength = exactLog2OfInt(mapSize, "mapSize");
+    loadThreshold = (int) (mapSize * LOAD_FACTOR);
+    hashes = new long[mapSize];
+    keyOffsets = new int[mapSize];
+    keyLengths = new int[mapSize];
+    values = new long[mapSize];
+    states = new short[mapSize];
+    slab = new byte[Math.max(MIN_SLAB_BYTES, mapSize * 8)];
+  }
+
+  /**
+   * Returns the 64-bit hash of the given UTF-8 key bytes as used by this map.
+   * @param key the array containing the key bytes
+   * @param off the offset of the key bytes
+   * @param len the number of key bytes
+   * @return the 64-bit hash of the given key bytes
+   */
+  static long hash(final byte[] key, final int off, final int len) {
+    return XxHash.hashByteArr(key, off, len, SEED);
+  }
+
+  /**
+   * @param probe location in the hash table array
+   * @return true if the cell in the array contains an active key
+   */
+  boolean isActive(final int probe) {
+    return states[probe] > 0;
+  }
+
+  /**
+   * Gets the current value with the given key
+   * @param key the array containing the key bytes
+   * @param off the offset of the key bytes
+   * @param len the number of key bytes
+   * @param hash the hash of the key as computed by {@link #hash(byte[], int, int)}
+   * @return the positive value the key corresponds to or zero if the key is not found in the
+   * hash map.
+   */
+  long get(final byte[] key, final int off, final int len, final long hash) {
+    final int arrayMask = states.length - 1;
+    int probe = (int) hash & arrayMask;
+    while (states[probe] > 0) {
+      if (keyEquals(probe, key, off, len, hash)) { return values[probe]; }
+      probe = (probe + 1) & arrayMask;
+    }
+    return 0;
+  }
+
+  /**
+   * Increments the value mapped to the key if the key is present in the map. Otherwise,
+   * the key bytes are copied into the slab and the key is inserted with the adjustAmount.
+   *
+   * @param key the array containing the key bytes
+   * @param off the offset of the key bytes
+   * @param len the number of key bytes
+   * @param hash the hash of the key as computed by {@link #hash(byte[], int, int)}
+   * @param adjustAmount the amount by which to increment the value
+   */
+  void adjustOrPutValue(final byte[] key, final int off, final int len, final long hash,
+      final long adjustAmount) {
+    final int arrayMask = states.length - 1;
+    int probe = (int) hash & arrayMask;
+    int drift = 1;
+    while ((states[probe] != 0) && !keyEquals(probe, key, off, len, hash)) {
+      probe = (probe + 1) & arrayMask;
+      drift++;
+      //only used for theoretical analysis
+      assert (drift < DRIFT_LIMIT) : "drift: " + drift + " >= DRIFT_LIMIT";
+    }
+    //found either an empty slot or the key
+    if (states[probe] == 0) { //found empty slot
+      assert (numActive <= loadThreshold)
+        : "numActive: " + numActive + " > loadThreshold : " + loadThreshold;
+      ensureSlabSpace(len);
+      System.arraycopy(key, off, slab, slabUsed, len);
+      hashes[probe] = hash;
+      keyOffsets[probe] = slabUsed;
+      keyLengths[probe] = len;
+      values[probe] = adjustAmount;
+      states[probe] = (short) drift;
+      slabUsed += len;
+      slabLive += len;
+      numActive++;
+    } else { //found the key, adjust the value
+      values[probe] += adjustAmount;
+    }
+  }
+
+  /**
+   * Processes the map arrays and retains only keys with positive counts.
+   */
+  void keepOnlyPositiveCounts() {
+    // Starting from the back, find the first empty cell, which marks a boundary between clusters.
+    int firstProbe = states.length - 1;
+    while (states[firstProbe] > 0) {
+      firstProbe--;
+    }
+
+    //Work towards the front; delete any non-positive entries.
+    for (int probe = firstProbe; probe-- > 0; ) {
+      if ((states[probe] > 0) && (values[probe] <= 0)) {
+        hashDelete(probe);
+        numActive--;
+      }
+    }
+    //now work on the first cluster that was skipped.
+    for (int probe = states.length; probe-- > firstProbe;) {
+      if ((states[probe] > 0) && (values[probe] <= 0)) {
+        hashDelete(probe);
+        numActive--;
+      }
+    }
+    if ((slabUsed - slabLive) > slabLive) { compactSlab(slab.length); }
+  }
+
+  /**
+   * @param adjustAmount value by which to shift all values. Only keys corresponding to positive
+   * values are retained.
+   */
+  void adjustAllValuesBy(final long adjustAmount) {
+    for (int i = values.length; i-- > 0; ) {
+      values[i] += adjustAmount;
+    }
+  }
+
+  /**
+   * @return an array containing the values corresponding to the active keys in the hash map.
+   */
+  long[] getActiveValues() {
+    if (numActive == 0) { return null; }
+    final long[] returnedValues = new long[numActive];
+    int j = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (isActive(i)) {
+        returnedValues[j] = values[i];
+        j++;
+      }
+    }
+    assert (j == numActive);
+    return returnedValues;
+  }
+
+  /**
+   * @return the total number of UTF-8 bytes of the active keys.
+   */
+  int getActiveKeyBytes() {
+    return slabLive;
+  }
+
+  // assume newSize is power of 2
+  void resize(final int newSize) {
+    final long[] oldHashes = hashes;
+    final int[] oldOffsets = keyOffsets;
+    final int[] oldLengths = keyLengths;
+    final long[] oldValues = values;
+    final short[] oldStates = states;
+    hashes = new long[newSize];
+    keyOffsets = new int[newSize];
+    keyLengths = new int[newSize];
+    values = new long[newSize];
+    states = new short[newSize];
+    loadThreshold = (int) (newSize * LOAD_FACTOR);
+    lgLength = Integer.numberOfTrailingZeros(newSize);
+    final int arrayMask = newSize - 1;
+    //keys are unique, so each one goes to the first empty cell; the slab is left untouched
+    for (int i = 0; i < oldStates.length; i++) {
+      if (oldStates[i] > 0) {
+        int probe = (int) oldHashes[i] & arrayMask;
+        int drift = 1;
+        while (states[probe] != 0) {
+          probe = (probe + 1) & arrayMask;
+          drift++;
+        }
+        hashes[probe] = oldHashes[i];
+        keyOffsets[probe] = oldOffsets[i];
+        keyLengths[probe] = oldLengths[i];
+        values[probe] = oldValues[i];
+        states[probe] = (short) drift;
+      }
+    }
+  }
+
+  /**
+   * @return length of hash table internal arrays
+   */
+  int getLength() {
+    return states.length;
+  }
+
+  int getLgLength() {
+    return lgLength;
+  }
+
+  /**
+   * @return capacity of hash table internal arrays (i.e., max number of keys that can be stored)
+   */
+  int getCapacity() {
+    return loadThreshold;
+  }
+
+  /**
+   * @return number of populated keys
+   */
+  int getNumActive() {
+    return numActive;
+  }
+
+  /**
+   * Returns the hash table as a human readable string.
+   */
+  @Override
+  public String toString() {
+    final String fmt  = "  %12d:%11d%20d %s";
+    final String hfmt = "  %12s:%11s%20s %s";
+    final StringBuilder sb = new StringBuilder();
+    sb.append("ReversePurgeUtf8HashMap:").append(LS);
+    sb.append(String.format(hfmt, "Index","States","Values","Keys")).append(LS);
+
+    for (int i = 0; i < states.length; i++) {
+      if (states[i] <= 0) { continue; }
+      sb.append(String.format(fmt, i, states[i], values[i], getKeyString(i))).append(LS);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * @return the load factor of the hash table, i.e, the ratio between the capacity and the array
+   * length
+   */
+  static double getLoadFactor() {
+    return LOAD_FACTOR;
+  }
+
+  /**
+   * Estimates the median of the counters via sampling, decrements all counts by this estimate
+   * and throws out all counters that are no longer positive.
+   * See {@link ReversePurgeLongHashMap#purge(int)}.
+   * @param sampleSize number of samples
+   * @return the median value
+   */
+  long purge(final int sampleSize) {
+    final int limit = Math.min(sampleSize, getNumActive());
+
+    int numSamples = 0;
+    int i = 0;
+    final long[] samples = new long[limit];
+
+    while (numSamples < limit) {
+      if (isActive(i)) {
+        samples[numSamples] = values[i];
+        numSamples++;
+      }
+      i++;
+    }
+
+    final long val = QuickSelect.select(samples, 0, numSamples - 1, limit / 2);
+    adjustAllValuesBy(-1 * val);
+    keepOnlyPositiveCounts();
+    return val;
+  }
+
+  /**
+   * @param probe location of an active cell
+   * @return the value at the given location
+   */
+  long getValue(final int probe) {
+    return values[probe];
+  }
+
+  /**
+   * @param probe location of an active cell
+   * @return the offset in the slab of the key at the given location
+   */
+  int getKeyOffset(final int probe) {
+    return keyOffsets[probe];
+  }
+
+  /**
+   * @param probe location of an active cell
+   * @return the number of bytes of the key at the given location
+   */
+  int getKeyLength(final int probe) {
+    return keyLengths[probe];
+  }
+
+  /**
+   * @return the slab that holds the key bytes. This is only valid until the map is modified.
+   */
+  byte[] getSlab() {
+    return slab;
+  }
+
+  /**
+   * @param probe location of an active cell
+   * @return the key at the given location decoded as a String
+   */
+  String getKeyString(final int probe) {
+    return new String(slab, keyOffsets[probe], keyLengths[probe], UTF_8);
+  }
+
+  private boolean keyEquals(final int probe, final byte[] key, final int off, final int len,
+      final long hash) {
+    if ((hashes[probe] != hash) || (keyLengths[probe] != len)) { return false; }
+    final int kOff = keyOffsets[probe];
+    for (int i = 0; i < len; i++) {
+      if (slab[kOff + i] != key[off + i]) { return false; }
+    }
+    return true;
+  }
+
+  private void ensureSlabSpace(final int len) {
+    if ((slabUsed + len) <= slab.length) { return; }
+    final int required = slabLive + len;
+    int newLen = slab.length;
+    while (newLen < (2 * required)) { newLen *= 2; }
+    compactSlab(newLen);
+  }
+
+  /**
+   * Copies the live keys into a new slab of the given length, which drops the space of any
+   * deleted keys.
+   * @param newLen the length of the new slab
+   */
+  private void compactSlab(final int newLen) {
+    final byte[] newSlab = new byte[newLen];
+    int used = 0;
+    for (int i = 0; i < states.length; i++) {
+      if (states[i] > 0) {
+        final int len = keyLengths[i];
+        System.arraycopy(slab, keyOffsets[i], newSlab, used, len);
+        keyOffsets[i] = used;
+        used += len;
+      }
+    }
+    slab = newSlab;
+    slabUsed = used;
+    slabLive = used;
+  }
+
+  private void hashDelete(int deleteProbe) {
+    // Looks ahead in the table to search for another item to move to this location.
+    // If none are found, the status is changed
+    states[deleteProbe] = 0; //mark as empty
+    slabLive -= keyLengths[deleteProbe];
+    int drift = 1;
+    final int arrayMask = states.length - 1;
+    int probe = (deleteProbe + drift) & arrayMask; //map length must be a power of 2
+    // advance until you find a free location replacing locations as needed
+    while (states[probe] != 0) {
+      if (states[probe] > drift) {
+        // move current element
+        hashes[deleteProbe] = hashes[probe];
+        keyOffsets[deleteProbe] = keyOffsets[probe];
+        keyLengths[deleteProbe] = keyLengths[probe];
+        values[deleteProbe] = values[probe];
+        states[deleteProbe] = (short) (states[probe] - drift);
+        // marking the current probe location as deleted
+        states[probe] = 0;
+        drift = 0;
+        deleteProbe = probe;
+      }
+      probe = (probe + 1) & arrayMask;
+      drift++;
+      //only used for theoretical analysis
+      assert (drift < DRIFT_LIMIT) : "drift: " + drift + " >= DRIFT_LIMIT";
+    }
+  }
+
+  Iterator iterator() {
+    return new Iterator(this);
+  }
+
+  // This iterator uses strides based on golden ratio to avoid clustering during merge
+  static class Iterator {
+    private final ReversePurgeUtf8HashMap map_;
+    private final int stride_;
+    private final int mask_;
+    private int i_;
+    private int count_;
+
+    Iterator(final ReversePurgeUtf8HashMap map) {
+      map_ = map;
+      stride_ = (int) (map.states.length * INVERSE_GOLDEN) | 1;
+      mask_ = map.states.length - 1;
+      i_ = -stride_;
+      count_ = 0;
+    }
+
+    boolean next() {
+      i_ = (i_ + stride_) & mask_;
+      while (count_ < map_.numActive) {
+        if (map_.states[i_] > 0) {
+          count_++;
+          return true;
+        }
+        i_ = (i_ + stride_) & mask_;
+      }
+      return false;
+    }
+
+    /**
+     * @return the slab that holds the key bytes. This is only valid until the map is modified.
+     */
+    byte[] getSlab() {
+      return map_.slab;
+    }
+
+    int getKeyOffset() {
+      return map_.keyOffsets[i_];
+    }
+
+    int getKeyLength() {
+      return map_.keyLengths[i_];
+    }
+
+    long getHash() {
+      return map_.hashes[i_];
+    }
+
+    String getKeyString() {
+      return map_.getKeyString(i_);
+    }
+
+    long getValue() {
+      return map_.values[i_];
+    }
+  }
+
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.exactLog2OfInt;
+import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
+
+import java.util.ArrayDeque;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.frequencies.LongsSketch.Row;
+
+/**
+ * A frequent items sketch of <i>long</i> items over a sliding window of the most recent
+ * <i>numPanes</i> panes of a stream.
+ *
+ * <p>A pane is a contiguous portion of the stream, typically a fixed interval of time such as a
+ * minute. Updates always go to the current pane, which is a {@link LongsSketch}. Calling
+ * {@link #advance()} closes the current pane and opens a new one, and once the window holds
+ * <i>numPanes</i> panes the oldest one is evicted. A window of "the last 5 minutes" is obtained
+ * with a pane per minute, five panes, and a call to {@link #advance()} at every minute boundary.
+ * </p>
+ *
+ * <p>Misra-Gries counters cannot be subtracted, so the closed panes are maintained with the
+ * two-stacks technique for sliding window aggregation instead of subtracting evicted panes.
+ * Newly closed panes are merged into a running <i>back</i> aggregate. The <i>front</i> holds the
+ * older panes as a stack of suffix aggregates, where each entry is the merge of its pane and all
+ * newer panes in the front, so evicting the oldest pane is simply a pop. When the front runs
+ * empty the back panes are flipped into the front, which costs one merge per pane, and is
+ * amortized over the following <i>numPanes - 1</i> advances. As a result every advance costs
+ * amortized O(1) merges, and a query merges at most three sketches, the oldest front aggregate,
+ * the back aggregate and the current pane, independent of the number of panes. The merged result
+ * is cached until the next update or advance, so a burst of queries shares a single merge.</p>
+ *
+ * <p><b>Error Guarantees</b></p>
+ *
+ * <p>The result of a query has the same guarantee as a {@link LongsSketch} of the same
+ * <i>maxMapSize</i> obtained by merging the sketches of the panes in the window:
+ * for every item <i>(UB - LB) &le; W * epsilon</i>, where <i>W</i> is the total weight of the
+ * window and <i>epsilon = 3.5 / maxMapSize</i>. Items in evicted panes never contribute to the
+ * estimates or the bounds.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public final class SlidingWindowLongsSketch {
+  private final int lgMaxMapSize;
+  private final int numPanes;
+  private LongsSketch current;
+  private final ArrayDeque<LongsSketch> back; //closed panes newer than the front, oldest first
+  private LongsSketch backAggregate; //merge of all panes in back, null if back is empty
+  private final ArrayDeque<LongsSketch> front; //suffix aggregates, oldest pane at the head
+  private LongsSketch window; //cached result, null if stale
+
+  /**
+   * Constructs this sketch with the given maxMapSize and number of panes.
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map of every pane and
+   * aggregate and must be a power of 2. See {@link LongsSketch#LongsSketch(int)}.
+   * @param numPanes the number of panes in the window, including the current pane.
+   * It must be at least 1.
+   */
+  public SlidingWindowLongsSketch(final int maxMapSize, final int numPanes) {
+    lgMaxMapSize = Math.max(exactLog2OfInt(maxMapSize, "maxMapSize"), LG_MIN_MAP_SIZE);
+    if (numPanes < 1) {
+      throw new SketchesArgumentException("numPanes must be at least 1: " + numPanes);
+    }
+    this.numPanes = numPanes;
+    current = new LongsSketch(1 << lgMaxMapSize);
+    back = new ArrayDeque<>(numPanes);
+    front = new ArrayDeque<>(numPanes);
+  }
+
+  /**
+   * Update the current pane with an item and a frequency count of one.
+   * @param item for which the frequency should be increased.
+   */
+  public void update(final long item) {
+    update(item, 1);
+  }
+
+  /**
+   * Update the current pane with an item and a positive frequency count (or weight).
+   * @param item for which the frequency should be increased.
+   * @param count the amount by which the frequency of the item should be increased.
+   * A count of zero is a no-op, and a negative count will throw an exception.
+   */
+  public void update(final long item, final long count) {
+    current.update(item, count);
+    if (count != 0) { window = null; }
+  }
+
+  /**
+   * Update the current pane with a batch of items and their counts.
+   * See {@link LongsSketch#update(long[], long[], int, int)}.
+   * @param items the array of items
+   * @param counts the parallel array of counts
+   * @param off the starting index in both arrays
+   * @param len the number of items and counts to use
+   */
+  public void update(final long[] items, final long[] counts, final int off, final int len) {
+    current.update(items, counts, off, len);
+    window = null;
+  }
+
+  /**
+   * Closes the current pane and opens a new, empty one. If the window then holds more than
+   * <i>numPanes</i> panes, the oldest pane is evicted.
+   */
+  public void advance() {
+    if (numPanes > 1) {
+      back.addLast(current);
+      if (backAggregate == null) {
+        backAggregate = current.copy();
+      } else {
+        backAggregate.merge(current);
+      }
+      if ((front.size() + back.size()) > (numPanes - 1)) {
+        evictOldest();
+      }
+    }
+    current = new LongsSketch(1 << lgMaxMapSize);
+    window = null;
+  }
+
+  /**
+   * Returns the number of panes in the window, including the current pane.
+   * @return the number of panes in the window, including the current pane.
+   */
+  public int getNumPanes() {
+    return numPanes;
+  }
+
+  /**
+   * Returns the number of panes that currently hold data or have been closed, including the
+   * current pane. This is less than <i>numPanes</i> until the window has filled up.
+   * @return the number of panes currently in the window.
+   */
+  public int getNumActivePanes() {
+    return front.size() + back.size() + 1;
+  }
+
+  /**
+   * Returns a new LongsSketch of all panes in the current window, e.g., for serialization.
+   * @return a new LongsSketch of all panes in the current window.
+   */
+  public LongsSketch getWindowSketch() {
+    return window().copy();
+  }
+
+  /**
+   * Returns an array of Rows of the frequent items of the current window.
+   * See {@link LongsSketch#getFrequentItems(long, ErrorType)}.
+   * @param threshold to include items in the result list
+   * @param errorType determines whether no false positives or no false negatives are desired.
+   * @return an array of frequent items of the current window
+   */
+  public Row[] getFrequentItems(final long threshold, final ErrorType errorType) {
+    return window().getFrequentItems(threshold, errorType);
+  }
+
+  /**
+   * Returns an array of Rows of the frequent items of the current window, using the maximum
+   * error of the window as the threshold.
+   * See {@link LongsSketch#getFrequentItems(ErrorType)}.
+   * @param errorType determines whether no false positives or no false negatives are desired.
+   * @return an array of frequent items of the current window
+   */
+  public Row[] getFrequentItems(final ErrorType errorType) {
+    return window().getFrequentItems(errorType);
+  }
+
+  /**
+   * Gets the estimate of the frequency of the given item in the current window.
+   * @param item the given item
+   * @return the estimate of the frequency of the given item in the current window
+   */
+  public long getEstimate(final long item) {
+    return window().getEstimate(item);
+  }
+
+  /**
+   * Gets the guaranteed lower bound frequency of the given item in the current window.
+   * @param item the given item
+   * @return the guaranteed lower bound frequency of the given item in the current window.
+   */
+  public long getLowerBound(final long item) {
+    return window().getLowerBound(item);
+  }
+
+  /**
+   * Gets the guaranteed upper bound frequency of the given item in the current window.
+   * @param item the given item
+   * @return the guaranteed upper bound frequency of the given item in the current window.
+   */
+  public long getUpperBound(final long item) {
+    return window().getUpperBound(item);
+  }
+
+  /**
+   * Returns an upper bound on the maximum error of getEstimate(item) for any item in the
+   * current window.
+   * @return the maximum error of the current window
+   */
+  public long getMaximumError() {
+    return window().getMaximumError();
+  }
+
+  /**
+   * Returns the sum of the frequencies (weights or counts) in the current window.
+   * @return the sum of the frequencies in the current window
+   */
+  public long getStreamLength() {
+    return window().getStreamLength();
+  }
+
+  /**
+   * Returns true if the current window is empty.
+   * @return true if the current window is empty.
+   */
+  public boolean isEmpty() {
+    return window().isEmpty();
+  }
+
+  /**
+   * Resets this sketch to a virgin state with an empty window.
+   */
+  public void reset() {
+    current = new LongsSketch(1 << lgMaxMapSize);
+    back.clear();
+    backAggregate = null;
+    front.clear();
+    window = null;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("SlidingWindowLongsSketch:").append(LS);
+    sb.append("  Max Map Size     : " + (1 << lgMaxMapSize)).append(LS);
+    sb.append("  Panes            : " + numPanes).append(LS);
+    sb.append("  Active Panes     : " + getNumActivePanes()).append(LS);
+    sb.append("  Window Length    : " + getStreamLength()).append(LS);
+    sb.append("  Max Error Offset : " + getMaximumError()).append(LS);
+    return sb.toString();
+  }
+
+  private LongsSketch window() {
+    if (window == null) {
+      final LongsSketch oldest = front.peekFirst();
+      final LongsSketch sk = (oldest != null) ? oldest.copy() : current.copy();
+      if (backAggregate != null) { sk.merge(backAggregate); }
+      if (oldest != null) { sk.merge(current); }
+      window = sk;
+    }
+    return window;
+  }
+
+  private void evictOldest() {
+    if (front.isEmpty()) { flip(); }
+    front.removeFirst();
+  }
+
+  /**
+   * Moves all panes of the back into the front, replacing each pane with the merge of itself
+   * and all newer panes, so that the oldest pane ends up at the head of the front.
+   */
+  private void flip() {
+    LongsSketch suffix = null;
+    while (!back.isEmpty()) {
+      final LongsSketch pane = back.removeLast(); //newest first
+      if (suffix != null) { pane.merge(suffix); }
+      front.addFirst(pane);
+      suffix = pane;
+    }
+    backAggregate = null;
+  }
+}
@@ -0,0 +1,574 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.checkBounds;
+import static org.apache.datasketches.common.Util.exactLog2OfInt;
+import static org.apache.datasketches.frequencies.PreambleUtil.EMPTY_FLAG_MASK;
+import static org.apache.datasketches.frequencies.PreambleUtil.SER_VER;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractActiveItems;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractFamilyID;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractFlags;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractLgCurMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractLgMaxMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.frequencies.PreambleUtil.extractSerVer;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertActiveItems;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertFamilyID;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertFlags;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertLgCurMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertLgMaxMapSize;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertPreLongs;
+import static org.apache.datasketches.frequencies.PreambleUtil.insertSerVer;
+import static org.apache.datasketches.frequencies.Util.LG_MIN_MAP_SIZE;
+import static org.apache.datasketches.frequencies.Util.SAMPLE_SIZE;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesStateException;
+import org.apache.datasketches.frequencies.ItemsSketch.Row;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * <p>This sketch is a specialization of the {@link ItemsSketch} for <i>String</i> items that are
+ * given as UTF-8 encoded bytes. It has the same capabilities and the same error guarantees as the
+ * {@link ItemsSketch} and differs only in how the items are stored.</p>
+ *
+ * <p>Rather than retaining a <i>String</i> object for each item, the UTF-8 bytes of all retained
+ * items are copied into a single internal byte slab, and each counter of the internal hash map
+ * holds the location of its item in the slab together with a precomputed 64-bit hash of the
+ * item. As a result, updating this sketch with a <i>byte[]</i> item does not call
+ * <i>hashCode()</i> or <i>equals()</i>, does not chase a pointer per probe and does not allocate,
+ * other than an occasional growth of the slab. <i>String</i> objects are created only when
+ * the frequent items are queried.</p>
+ *
+ * <p>The serialized form of this sketch is identical to that of an <i>ItemsSketch&lt;String&gt;</i>
+ * serialized with the {@link org.apache.datasketches.common.ArrayOfStringsSerDe ArrayOfStringsSerDe},
+ * so the two are interchangeable. This sketch writes and reads the item bytes directly from its slab
+ * without decoding them into <i>String</i> objects.</p>
+ *
+ * <p><b>Space Usage</b></p>
+ *
+ * <p>The internal memory space usage of this sketch is 34 * <i>mapSize</i> bytes, plus the
+ * UTF-8 bytes of the retained items, plus a small constant number of additional bytes.</p>
+ *
+ * @see ItemsSketch
+ */
+public class StringsSketch {
+
+  private int lgMaxMapSize;
+  private int curMapCap; //the threshold to purge
+  private long offset;
+  private long streamWeight = 0;
+  private int sampleSize;
+  private ReversePurgeUtf8HashMap hashMap;
+
+  /**
+   * Construct this sketch with the parameter maxMapSize and the default initialMapSize (8).
+   *
+   * @param maxMapSize Determines the physical size of the internal hash map managed by this
+   * sketch and must be a power of 2. The maximum capacity of this internal hash map is
+   * 0.75 times * maxMapSize. Both the ultimate accuracy and size of this sketch are a
+   * function of maxMapSize.
+   */
+  public StringsSketch(final int maxMapSize) {
+    this(exactLog2OfInt(maxMapSize, "maxMapSize"), LG_MIN_MAP_SIZE);
+  }
+
+  /**
+   * Construct this sketch with parameter lgMapMapSize and lgCurMapSize. This internal
+   * constructor is used when deserializing the sketch.
+   *
+   * @param lgMaxMapSize Log2 of the physical size of the internal hash map managed by this
+   * sketch.
+   * @param lgCurMapSize Log2 of the starting (current) physical size of the internal hash
+   * map managed by this sketch.
+   */
+  StringsSketch(final int lgMaxMapSize, final int lgCurMapSize) {
+    this.lgMaxMapSize = Math.max(lgMaxMapSize, LG_MIN_MAP_SIZE);
+    final int lgCurMapSz = Math.max(lgCurMapSize, LG_MIN_MAP_SIZE);
+    hashMap = new ReversePurgeUtf8HashMap(1 << lgCurMapSz);
+    curMapCap = hashMap.getCapacity();
+    final int maxMapCap =
+        (int) ((1 << lgMaxMapSize) * ReversePurgeUtf8HashMap.getLoadFactor());
+    offset = 0;
+    sampleSize = Math.min(SAMPLE_SIZE, maxMapCap);
+  }
+
+  /**
+   * Returns a sketch instance of this class from the given srcMem, which must be a Memory
+   * representation of this sketch class or of an <i>ItemsSketch&lt;String&gt;</i> that was
+   * serialized with the <i>ArrayOfStringsSerDe</i>.
+   *
+   * @param srcMem a Memory representation of a sketch of this class.
+   * <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @return a sketch instance of this class.
+   */
+  public static StringsSketch getInstance(final Memory srcMem) {
+    Objects.requireNonNull(srcMem, "srcMem must not be null.");
+    final long pre0 = PreambleUtil.checkPreambleSize(srcMem); //make sure preamble will fit
+    final int maxPreLongs = Family.FREQUENCY.getMaxPreLongs();
+
+    final int preLongs = extractPreLongs(pre0);         //Byte 0
+    final int serVer = extractSerVer(pre0);             //Byte 1
+    final int familyID = extractFamilyID(pre0);         //Byte 2
+    final int lgMaxMapSize = extractLgMaxMapSize(pre0); //Byte 3
+    final int lgCurMapSize = extractLgCurMapSize(pre0); //Byte 4
+    final boolean empty = (extractFlags(pre0) & EMPTY_FLAG_MASK) != 0; //Byte 5
+
+    // Checks
+    final boolean preLongsEq1 = (preLongs == 1);        //Byte 0
+    final boolean preLongsEqMax = (preLongs == maxPreLongs);
+    if (!preLongsEq1 && !preLongsEqMax) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: PreLongs must be 1 or " + maxPreLongs + ": " + preLongs);
+    }
+    if (serVer != SER_VER) {                            //Byte 1
+      throw new SketchesArgumentException(
+          "Possible Corruption: Ser Ver must be " + SER_VER + ": " + serVer);
+    }
+    final int actFamID = Family.FREQUENCY.getID();      //Byte 2
+    if (familyID != actFamID) {
+      throw new SketchesArgumentException(
+          "Possible Corruption: FamilyID must be " + actFamID + ": " + familyID);
+    }
+    if (empty ^ preLongsEq1) {                          //Byte 5 and Byte 0
+      throw new SketchesArgumentException(
+          "Possible Corruption: (PreLongs == 1) ^ Empty == True.");
+    }
+
+    if (empty) {
+      return new StringsSketch(lgMaxMapSize, LG_MIN_MAP_SIZE);
+    }
+    //get full preamble
+    final long[] preArr = new long[preLongs];
+    srcMem.getLongArray(0, preArr, 0, preLongs);
+
+    final StringsSketch fss = new StringsSketch(lgMaxMapSize, lgCurMapSize);
+    fss.streamWeight = 0; //update after
+    fss.offset = preArr[3];
+
+    final int preBytes = preLongs << 3;
+    final int activeItems = extractActiveItems(preArr[1]);
+
+    //Get countArray
+    final long[] countArray = new long[activeItems];
+    final long memCap = srcMem.getCapacity();
+    checkBounds(0, preBytes + ((long) activeItems * Long.BYTES), memCap);
+    srcMem.getLongArray(preBytes, countArray, 0, activeItems);
+
+    //Read the items straight into the slab, one length-prefixed UTF-8 item at a time
+    long itemOffset = preBytes + ((long) Long.BYTES * activeItems);
+    byte[] buf = new byte[64];
+    for (int i = 0; i < activeItems; i++) {
+      checkBounds(itemOffset, Integer.BYTES, memCap);
+      final int len = srcMem.getInt(itemOffset);
+      itemOffset += Integer.BYTES;
+      checkBounds(itemOffset, len, memCap);
+      if (len > buf.length) { buf = new byte[Math.max(len, 2 * buf.length)]; }
+      srcMem.getByteArray(itemOffset, buf, 0, len);
+      itemOffset += len;
+      fss.update(buf, 0, len, countArray[i]);
+    }
+    fss.streamWeight = preArr[2]; //override streamWeight due to updating
+    return fss;
+  }
+
+  /**
+   * Returns the estimated <i>a priori</i> error given the maxMapSize for the sketch and the
+   * estimatedTotalStreamWeight.
+   * @param maxMapSize the planned map size to be used when constructing this sketch.
+   * @param estimatedTotalStreamWeight the estimated total stream weight.
+   * @return the estimated <i>a priori</i> error.
+   */
+  public static double getAprioriError(final int maxMapSize, final long estimatedTotalStreamWeight) {
+    return ItemsSketch.getAprioriError(maxMapSize, estimatedTotalStreamWeight);
+  }
+
+  /**
+   * Returns the current number of counters the sketch is configured to support.
+   *
+   * @return the current number of counters the sketch is configured to support.
+   */
+  public int getCurrentMapCapacity() {
+    return curMapCap;
+  }
+
+  /**
+   * Returns epsilon used to compute <i>a priori</i> error.
+   * This is just the value <i>3.5 / maxMapSize</i>.
+   * @param maxMapSize the planned map size to be used when constructing this sketch.
+   * @return epsilon used to compute <i>a priori</i> error.
+   */
+  public static double getEpsilon(final int maxMapSize) {
+    return ItemsSketch.getEpsilon(maxMapSize);
+  }
+
+  /**
+   * Gets the estimate of the frequency of the given item.
+   *
+   * @param item the given item
+   * @return the estimate of the frequency of the given item
+   */
+  public long getEstimate(final String item) {
+    if (item == null) { return 0; }
+    return getEstimate(item.getBytes(UTF_8));
+  }
+
+  /**
+   * Gets the estimate of the frequency of the given UTF-8 encoded item.
+   *
+   * @param utf8 the UTF-8 bytes of the given item
+   * @return the estimate of the frequency of the given item
+   */
+  public long getEstimate(final byte[] utf8) {
+    // If item is tracked:
+    // Estimate = itemCount + offset; Otherwise it is 0.
+    final long itemCount = getLowerBound(utf8);
+    return (itemCount > 0) ? itemCount + offset : 0;
+  }
+
+  /**
+   * Gets the guaranteed lower bound frequency of the given item, which can never be
+   * negative.
+   *
+   * @param item the given item.
+   * @return the guaranteed lower bound frequency of the given item. That is, a number which
+   * is guaranteed to be no larger than the real frequency.
+   */
+  public long getLowerBound(final String item) {
+    if (item == null) { return 0; }
+    return getLowerBound(item.getBytes(UTF_8));
+  }
+
+  /**
+   * Gets the guaranteed lower bound frequency of the given UTF-8 encoded item, which can never
+   * be negative.
+   *
+   * @param utf8 the UTF-8 bytes of the given item.
+   * @return the guaranteed lower bound frequency of the given item.
+   */
+  public long getLowerBound(final byte[] utf8) {
+    if (utf8 == null) { return 0; }
+    //LB = itemCount or 0
+    return hashMap.get(utf8, 0, utf8.length, ReversePurgeUtf8HashMap.hash(utf8, 0, utf8.length));
+  }
+
+  /**
+   * Gets the guaranteed upper bound frequency of the given item.
+   *
+   * @param item the given item
+   * @return the guaranteed upper bound frequency of the given item. That is, a number which
+   * is guaranteed to be no smaller than the real frequency.
+   */
+  public long getUpperBound(final String item) {
+    // UB = itemCount + offset
+    return getLowerBound(item) + offset;
+  }
+
+  /**
+   * Gets the guaranteed upper bound frequency of the given UTF-8 encoded item.
+   *
+   * @param utf8 the UTF-8 bytes of the given item
+   * @return the guaranteed upper bound frequency of the given item.
+   */
+  public long getUpperBound(final byte[] utf8) {
+    return getLowerBound(utf8) + offset;
+  }
+
+  /**
+   * Returns an array of Rows that include frequent items, estimates, upper and lower bounds
+   * given a threshold and an ErrorCondition. If the threshold is lower than getMaximumError(),
+   * then getMaximumError() will be used instead.
+   * See {@link ItemsSketch#getFrequentItems(long, ErrorType)}.
+   *
+   * @param threshold to include items in the result list
+   * @param errorType determines whether no false positives or no false negatives are
+   * desired.
+   * @return an array of frequent items
+   */
+  public Row<String>[] getFrequentItems(final long threshold, final ErrorType errorType) {
+    return sortItems(threshold > getMaximumError() ? threshold : getMaximumError(), errorType);
+  }
+
+  /**
+   * Returns an array of Rows that include frequent items, estimates, upper and lower bounds
+   * given an ErrorCondition and the default threshold.
+   * This is the same as getFrequentItems(getMaximumError(), errorType)
+   *
+   * @param errorType determines whether no false positives or no false negatives are
+   * desired.
+   * @return an array of frequent items
+   */
+  public Row<String>[] getFrequentItems(final ErrorType errorType) {
+    return sortItems(getMaximumError(), errorType);
+  }
+
+  /**
+   * @return An upper bound on the maximum error of getEstimate(item) for any item.
+   * This is equivalent to the maximum distance between the upper bound and the lower bound
+   * for any item.
+   */
+  public long getMaximumError() {
+    return offset;
+  }
+
+  /**
+   * Returns the maximum number of counters the sketch is configured to support.
+   *
+   * @return the maximum number of counters the sketch is configured to support.
+   */
+  public int getMaximumMapCapacity() {
+    return (int) ((1 << lgMaxMapSize) * ReversePurgeUtf8HashMap.getLoadFactor());
+  }
+
+  /**
+   * @return the number of active items in the sketch.
+   */
+  public int getNumActiveItems() {
+    return hashMap.getNumActive();
+  }
+
+  /**
+   * Returns the number of bytes required to store this sketch as an array of bytes.
+   *
+   * @return the number of bytes required to store this sketch as an array of bytes.
+   */
+  public int getStorageBytes() {
+    if (isEmpty()) { return 8; }
+    final int activeItems = getNumActiveItems();
+    return ((Family.FREQUENCY.getMaxPreLongs() + activeItems) << 3)
+        + (activeItems * Integer.BYTES) + hashMap.getActiveKeyBytes();
+  }
+
+  /**
+   * Returns the sum of the frequencies in the stream seen so far by the sketch
+   *
+   * @return the sum of the frequencies in the stream seen so far by the sketch
+   */
+  public long getStreamLength() {
+    return streamWeight;
+  }
+
+  /**
+   * Returns true if this sketch is empty
+   *
+   * @return true if this sketch is empty
+   */
+  public boolean isEmpty() {
+    return getNumActiveItems() == 0;
+  }
+
+  /**
+   * This function merges the other sketch into this one.
+   * The other sketch may be of a different size. The item bytes and hashes are taken
+   * directly from the other sketch, so no item is decoded or rehashed.
+   *
+   * @param other sketch of this class
+   * @return a sketch whose estimates are within the guarantees of the
+   * largest error tolerance of the two merged sketches.
+   */
+  public StringsSketch merge(final StringsSketch other) {
+    if (other == null) { return this; }
+    if (other.isEmpty()) { return this; }
+
+    final long streamWt = streamWeight + other.streamWeight; //capture before merge
+
+    final ReversePurgeUtf8HashMap.Iterator iter = other.hashMap.iterator();
+    while (iter.next()) { //this may add to offset during rebuilds
+      update(iter.getSlab(), iter.getKeyOffset(), iter.getKeyLength(), iter.getHash(),
+          iter.getValue());
+    }
+    offset += other.offset;
+    streamWeight = streamWt; //corrected streamWeight
+    return this;
+  }
+
+  /**
+   * Resets this sketch to a virgin state.
+   */
+  public void reset() {
+    hashMap = new ReversePurgeUtf8HashMap(1 << LG_MIN_MAP_SIZE);
+    curMapCap = hashMap.getCapacity();
+    offset = 0;
+    streamWeight = 0;
+  }
+
+  //Serialization
+
+  /**
+   * Returns a byte array representation of this sketch. This is the same format as
+   * <i>ItemsSketch&lt;String&gt;.toByteArray(new ArrayOfStringsSerDe())</i>.
+   * @return a byte array representation of this sketch
+   */
+  public byte[] toByteArray() {
+    final int preLongs;
+    final boolean empty = isEmpty();
+    final int activeItems = getNumActiveItems();
+    preLongs = empty ? 1 : Family.FREQUENCY.getMaxPreLongs();
+    final byte[] outArr = new byte[getStorageBytes()];
+    final WritableMemory mem = WritableMemory.writableWrap(outArr);
+
+    // build first preLong empty or not
+    long pre0 = 0L;
+    pre0 = insertPreLongs(preLongs, pre0);                  //Byte 0
+    pre0 = insertSerVer(SER_VER, pre0);                     //Byte 1
+    pre0 = insertFamilyID(Family.FREQUENCY.getID(), pre0);  //Byte 2
+    pre0 = insertLgMaxMapSize(lgMaxMapSize, pre0);          //Byte 3
+    pre0 = insertLgCurMapSize(hashMap.getLgLength(), pre0); //Byte 4
+    pre0 = empty ? insertFlags(EMPTY_FLAG_MASK, pre0) : insertFlags(0, pre0); //Byte 5
+
+    if (empty) {
+      mem.putLong(0, pre0);
+    } else {
+      final long pre = 0;
+      final long[] preArr = new long[preLongs];
+      preArr[0] = pre0;
+      preArr[1] = insertActiveItems(activeItems, pre);
+      preArr[2] = streamWeight;
+      preArr[3] = offset;
+      mem.putLongArray(0, preArr, 0, preLongs);
+      final int preBytes = preLongs << 3;
+      //values and items must be written in the same order
+      long valuesOffset = preBytes;
+      long itemOffset = preBytes + ((long) activeItems << 3);
+      for (int i = 0; i < hashMap.getLength(); i++) {
+        if (hashMap.isActive(i)) {
+          mem.putLong(valuesOffset, hashMap.getValue(i));
+          valuesOffset += Long.BYTES;
+          final int len = hashMap.getKeyLength(i);
+          mem.putInt(itemOffset, len);
+          itemOffset += Integer.BYTES;
+          mem.putByteArray(itemOffset, hashMap.getSlab(), hashMap.getKeyOffset(i), len);
+          itemOffset += len;
+        }
+      }
+    }
+    return outArr;
+  }
+
+  /**
+   * Returns a human readable summary of this sketch.
+   * @return a human readable summary of this sketch.
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("FrequentStringsSketch:").append(LS);
+    sb.append("  Stream Length    : " + streamWeight).append(LS);
+    sb.append("  Max Error Offset : " + offset).append(LS);
+    sb.append(hashMap.toString());
+    return sb.toString();
+  }
+
+  /**
+   * Update this sketch with an item and a frequency count of one.
+   * @param item for which the frequency should be increased.
+   */
+  public void update(final String item) {
+    update(item, 1);
+  }
+
+  /**
+   * Update this sketch with an item and a positive frequency count.
+   * The item is first encoded as UTF-8 bytes. To avoid this allocation use
+   * {@link #update(byte[], int, int, long)}.
+   * @param item for which the frequency should be increased.
+   * @param count the amount by which the frequency of the item should be increased.
+   * A count of zero is a no-op, and a negative count will throw an exception.
+   */
+  public void update(final String item, final long count) {
+    if (item == null) { return; }
+    final byte[] utf8 = item.getBytes(UTF_8);
+    update(utf8, 0, utf8.length, count);
+  }
+
+  /**
+   * Update this sketch with a UTF-8 encoded item and a frequency count of one.
+   * @param utf8 the UTF-8 bytes of the item for which the frequency should be increased.
+   */
+  public void update(final byte[] utf8) {
+    if (utf8 == null) { return; }
+    update(utf8, 0, utf8.length, 1);
+  }
+
+  /**
+   * Update this sketch with a UTF-8 encoded item and a positive frequency count.
+   * The item bytes are copied into the sketch only if the item is not already tracked,
+   * so the given array may be reused by the caller.
+   * @param utf8 the array that contains the UTF-8 bytes of the item.
+   * @param off the offset of the item bytes in the given array.
+   * @param len the number of bytes of the item.
+   * @param count the amount by which the frequency of the item should be increased.
+   * A count of zero is a no-op, and a negative count will throw an exception.
+   */
+  public void update(final byte[] utf8, final int off, final int len, final long count) {
+    if ((utf8 == null) || (count == 0)) { return; }
+    checkBounds(off, len, utf8.length);
+    update(utf8, off, len, ReversePurgeUtf8HashMap.hash(utf8, off, len), count);
+  }
+
+  private void update(final byte[] utf8, final int off, final int len, final long hash,
+      final long count) {
+    if (count == 0) { return; }
+    if (count < 0) {
+      throw new SketchesArgumentException("Count may not be negative");
+    }
+    streamWeight += count;
+    hashMap.adjustOrPutValue(utf8, off, len, hash, count);
+
+    if (getNumActiveItems() > curMapCap) { //over the threshold, we need to do something
+      if (hashMap.getLgLength() < lgMaxMapSize) { //below tgt size, we can grow
+        hashMap.resize(2 * hashMap.getLength());
+        curMapCap = hashMap.getCapacity();
+      } else { //At tgt size, must purge
+        offset += hashMap.purge(sampleSize);
+        if (getNumActiveItems() > getMaximumMapCapacity()) {
+          throw new SketchesStateException("Purge did not reduce active items.");
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  Row<String>[] sortItems(final long threshold, final ErrorType errorType) {
+    final ArrayList<Row<String>> rowList = new ArrayList<>();
+    final ReversePurgeUtf8HashMap.Iterator iter = hashMap.iterator();
+    final boolean noFalseNegatives = errorType == ErrorType.NO_FALSE_NEGATIVES;
+    while (iter.next()) {
+      final long lb = iter.getValue();
+      final long ub = lb + offset;
+      if ((noFalseNegatives ? ub : lb) >= threshold) {
+        rowList.add(new Row<>(iter.getKeyString(), ub, ub, lb));
+      }
+    }
+
+    // descending order
+    rowList.sort((r1, r2) -> r2.compareTo(r1));
+    return rowList.toArray((Row<String>[]) new Row<?>[0]);
+  }
+
+}
@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.frequencies;
 
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+
 final class Util {
 
   private Util() {}
@@ -51,4 +53,16 @@ final class Util {
     return key;
   }
 
+  /**
+   * Returns the size of a hash map that can hold the given number of distinct keys without
+   * exceeding its load threshold. This is used to size the local map that combines duplicate
+   * items of a batch update before they are applied to a sketch.
+   * @param numKeys the maximum number of distinct keys
+   * @return a power of 2 that is at least (1 &lt;&lt; LG_MIN_MAP_SIZE)
+   */
+  static int getBatchMapSize(final int numKeys) {
+    final int minSize = (int) Math.min((numKeys / 0.75) + 1, 1 << 30);
+    return Math.max(1 << LG_MIN_MAP_SIZE, ceilingPowerOf2(minSize));
+  }
+
 }
@@ -25,7 +25,10 @@ import static org.apache.datasketches.common.ByteArrayUtil.putDoubleLE;
 import static org.apache.datasketches.kll.KllSketch.SketchStructure.UPDATABLE;
 import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 import org.apache.datasketches.common.ArrayOfItemsSerDe;
@@ -48,6 +51,10 @@ import org.apache.datasketches.quantilescommon.QuantilesDoublesSketchIterator;
  */
 public abstract class KllDoublesSketch extends KllSketch implements QuantilesDoublesAPI {
   private DoublesSketchSortedView doublesSV = null;
+  //levels above level zero merged into sorted order with their item weights, null if stale.
+  //They only change on compaction, so a refresh of the sorted view after updates merges in level zero only.
+  private double[] upperQuantiles = null;
+  private long[] upperWeights = null;
   final static int ITEM_BYTES = Double.BYTES;
 
   KllDoublesSketch(
@@ -195,9 +202,7 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
     refreshSortedView();
     final int len = ranks.length;
     final double[] quantiles = new double[len];
-    for (int i = 0; i < len; i++) {
-      quantiles[i] = doublesSV.getQuantile(ranks[i], searchCrit);
-    }
+    doublesSV.getQuantiles(ranks, searchCrit, quantiles);
     return quantiles;
   }
 
@@ -254,9 +259,7 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
     refreshSortedView();
     final int len = quantiles.length;
     final double[] ranks = new double[len];
-    for (int i = 0; i < len; i++) {
-      ranks[i] = doublesSV.getRank(quantiles[i], searchCrit);
-    }
+    doublesSV.getRanks(quantiles, searchCrit, ranks);
     return ranks;
   }
 
@@ -274,6 +277,25 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
     if (othDblSk.isEmpty()) { return; }
     KllDoublesHelper.mergeDoubleImpl(this, othDblSk);
     doublesSV = null;
+    upperQuantiles = null;
+    upperWeights = null;
+  }
+
+  @Override
+  public final void mergeAll(final Collection<? extends KllSketch> others) {
+    if (readOnly || sketchStructure != UPDATABLE) { throw new SketchesArgumentException(TGT_IS_READ_ONLY_MSG); }
+    final List<KllDoublesSketch> othDblSks = new ArrayList<>(others.size());
+    for (final KllSketch other : others) {
+      if (this == other) { throw new SketchesArgumentException(SELF_MERGE_MSG); }
+      final KllDoublesSketch othDblSk = (KllDoublesSketch)other;
+      if ((othDblSk == null) || othDblSk.isEmpty()) { continue; }
+      othDblSks.add(othDblSk);
+    }
+    if (othDblSks.isEmpty()) { return; }
+    KllDoublesHelper.mergeAllDoubleImpl(this, othDblSks);
+    doublesSV = null;
+    upperQuantiles = null;
+    upperWeights = null;
   }
 
   /**
@@ -293,6 +315,8 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
     setMaxItem(Double.NaN);
     setDoubleItemsArray(new double[k]);
     doublesSV = null;
+    upperQuantiles = null;
+    upperWeights = null;
   }
 
   @Override
@@ -328,6 +352,8 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
     assert (freeSpace >= 0);
     if (freeSpace == 0) {
       KllDoublesHelper.compressWhileUpdatingSketch(dblSk);
+      dblSk.upperQuantiles = null;
+      dblSk.upperWeights = null;
       freeSpace = dblSk.levelsArr[0];
       assert (freeSpace > 0);
     }
@@ -414,6 +440,8 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
     while (count < length) {
       if (levelsArr[0] == 0) {
         KllDoublesHelper.compressWhileUpdatingSketch(this);
+        upperQuantiles = null;
+        upperWeights = null;
       }
       final int spaceNeeded = length - count;
       final int freeSpace = levelsArr[0];
@@ -559,7 +587,13 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
       final int numQuantiles = getNumRetained();
       quantiles = new double[numQuantiles];
       cumWeights = new long[numQuantiles];
-      populateFromSketch(srcQuantiles, srcLevels, srcNumLevels, numQuantiles);
+      if (hasMemory()) {
+        //the Memory may be changed by others, so the upper levels cannot be cached
+        populateFromSketch(srcQuantiles, srcLevels, srcNumLevels, numQuantiles);
+      } else {
+        if (upperQuantiles == null) { populateUpperLevels(srcQuantiles, srcLevels, srcNumLevels); }
+        mergeLevelZero(srcQuantiles, srcLevels[0], srcLevels[1]);
+      }
       return new DoublesSketchSortedView(
           quantiles, cumWeights, KllDoublesSketch.this);
     }
@@ -588,6 +622,65 @@ public abstract class KllDoublesSketch extends KllSketch implements QuantilesDou
       blockyTandemMergeSort(quantiles, cumWeights, myLevels, numLevels); //create unit weights
       KllHelper.convertToCumulative(cumWeights);
     }
+
+    /**
+     * Merges the levels above level zero into the sorted upperQuantiles with their item weights in upperWeights.
+     */
+    private void populateUpperLevels(final double[] srcQuantiles, final int[] srcLevels, final int srcNumLevels) {
+      final int offset = srcLevels[1];
+      final int numItems = srcLevels[srcNumLevels] - offset;
+      final double[] upperQ = new double[numItems];
+      final long[] upperW = new long[numItems];
+      final int[] myLevels = new int[srcNumLevels];
+      System.arraycopy(srcQuantiles, offset, upperQ, 0, numItems);
+      int dstLevel = 0;
+      long weight = 2;
+      for (int srcLevel = 1; srcLevel < srcNumLevels; srcLevel++) {
+        final int fromIndex = srcLevels[srcLevel] - offset;
+        final int toIndex = srcLevels[srcLevel + 1] - offset; // exclusive
+        if (fromIndex < toIndex) { // if equal, skip empty level
+          Arrays.fill(upperW, fromIndex, toIndex, weight);
+          myLevels[dstLevel] = fromIndex;
+          myLevels[dstLevel + 1] = toIndex;
+          dstLevel++;
+        }
+        weight *= 2;
+      }
+      if (dstLevel > 0) { blockyTandemMergeSort(upperQ, upperW, myLevels, dstLevel); }
+      upperQuantiles = upperQ;
+      upperWeights = upperW;
+    }
+
+    /**
+     * Merges the sorted level zero, which has unit weights, with the cached upper levels into the
+     * quantiles and cumulative weights of the sorted view.
+     */
+    private void mergeLevelZero(final double[] srcQuantiles, final int fromIndex, final int toIndex) {
+      final int numUpper = upperQuantiles.length;
+      int i = fromIndex;
+      int j = 0;
+      int k = 0;
+      long cumWeight = 0;
+      while ((i < toIndex) && (j < numUpper)) {
+        if (srcQuantiles[i] <= upperQuantiles[j]) {
+          quantiles[k] = srcQuantiles[i++];
+          cumWeight++;
+        } else {
+          quantiles[k] = upperQuantiles[j];
+          cumWeight += upperWeights[j++];
+        }
+        cumWeights[k++] = cumWeight;
+      }
+      while (i < toIndex) {
+        quantiles[k] = srcQuantiles[i++];
+        cumWeights[k++] = ++cumWeight;
+      }
+      while (j < numUpper) {
+        quantiles[k] = upperQuantiles[j];
+        cumWeight += upperWeights[j++];
+        cumWeights[k++] = cumWeight;
+      }
+    }
   } //End of class CreateSortedView
 
   private static void blockyTandemMergeSort(final double[] quantiles, final long[] weights,
@@ -26,6 +26,7 @@ import static org.apache.datasketches.common.Util.isOdd;
 import static org.apache.datasketches.kll.KllHelper.findLevelToCompact;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.datasketches.memory.WritableMemory;
@@ -237,6 +238,164 @@ final class KllFloatsHelper {
     assert KllHelper.sumTheSampleWeights(mySketch.getNumLevels(), mySketch.levelsArr) == mySketch.getN();
   }
 
+  //assumes readOnly = false and UPDATABLE, called from KllFloatsSketch::mergeAll
+  //others must be non-empty and must not include mySketch
+  static void mergeAllFloatImpl(final KllFloatsSketch mySketch, final List<KllFloatsSketch> others) {
+    if (others.isEmpty()) { return; }
+
+    //capture my key mutable fields before doing any merging
+    final boolean myEmpty = mySketch.isEmpty();
+    float minItem = myEmpty ? Float.NaN : mySketch.getMinItemInternal();
+    float maxItem = myEmpty ? Float.NaN : mySketch.getMaxItemInternal();
+    int minK = mySketch.getMinK();
+    long finalN = mySketch.getN();
+
+    //gather the levels and items of all sketches, starting with mine
+    final int numSketches = others.size() + 1;
+    final int[] numLevelsArr = new int[numSketches];
+    final int[][] levelsArrs = new int[numSketches][];
+    final float[][] itemsArrs = new float[numSketches][];
+    numLevelsArr[0] = mySketch.getNumLevels();
+    levelsArrs[0] = mySketch.levelsArr;
+    itemsArrs[0] = mySketch.getFloatItemsArray();
+    int provisionalNumLevels = numLevelsArr[0];
+    int tmpSpaceNeeded = mySketch.getNumRetained();
+    for (int s = 1; s < numSketches; s++) {
+      final KllFloatsSketch otherFltSk = others.get(s - 1);
+      finalN = Math.addExact(finalN, otherFltSk.getN());
+      if (otherFltSk.isEstimationMode()) { //otherwise the merge brings over exact items.
+        minK = min(minK, otherFltSk.getMinK());
+      }
+      final float otherMin = otherFltSk.getMinItemInternal();
+      final float otherMax = otherFltSk.getMaxItemInternal();
+      minItem = Float.isNaN(minItem) ? otherMin : min(minItem, otherMin);
+      maxItem = Float.isNaN(maxItem) ? otherMax : max(maxItem, otherMax);
+      if (otherFltSk.isCompactSingleItem()) {
+        numLevelsArr[s] = 1;
+        levelsArrs[s] = new int[] {0, 1};
+        itemsArrs[s] = new float[] {otherFltSk.getFloatSingleItem()};
+      } else {
+        numLevelsArr[s] = otherFltSk.getNumLevels();
+        levelsArrs[s] = otherFltSk.levelsArr;
+        itemsArrs[s] = otherFltSk.getFloatItemsArray(); //from Memory this copies only the items
+      }
+      provisionalNumLevels = max(provisionalNumLevels, numLevelsArr[s]);
+      tmpSpaceNeeded += levelsArrs[s][numLevelsArr[s]] - levelsArrs[s][0];
+    }
+
+    final float[] workbuf = new float[tmpSpaceNeeded];
+    final int ub = max(KllHelper.ubOnNumLevels(finalN), provisionalNumLevels);
+    final int[] worklevels = new int[ub + 2]; // ub+1 does not work
+    final int[] outlevels  = new int[ub + 2];
+
+    //Concatenate each level across all sketches. Level zero is left unsorted, as it will be
+    //sorted by the compression if it needs to be compacted. Each higher level is the
+    //concatenation of sorted runs, which are merged once per level.
+    final int[] runs = new int[numSketches + 1];
+    float[] scratch = null;
+    worklevels[0] = 0;
+    for (int lvl = 0; lvl < provisionalNumLevels; lvl++) {
+      int pos = worklevels[lvl];
+      int numRuns = 0;
+      for (int s = 0; s < numSketches; s++) {
+        final int pop = KllHelper.currentLevelSizeItems(lvl, numLevelsArr[s], levelsArrs[s]);
+        if (pop == 0) { continue; }
+        System.arraycopy(itemsArrs[s], levelsArrs[s][lvl], workbuf, pos, pop);
+        runs[numRuns++] = pos;
+        pos += pop;
+      }
+      worklevels[lvl + 1] = pos;
+      if ((lvl > 0) && (numRuns > 1)) {
+        runs[numRuns] = pos;
+        if (scratch == null) { scratch = new float[tmpSpaceNeeded]; }
+        mergeSortedFloatRuns(workbuf, runs, numRuns, scratch);
+      }
+    }
+
+    // notice that workbuf is being used as both the input and output
+    final int[] result = generalFloatsCompress(mySketch.getK(), mySketch.getM(), provisionalNumLevels,
+        workbuf, worklevels, workbuf, outlevels, false, KllSketch.random);
+    final int targetItemCount = result[1]; //was finalCapacity. Max size given k, m, numLevels
+    final int curItemCount = result[2]; //was finalPop
+
+    //THE NEW NUM LEVELS
+    final int myNewNumLevels = result[0];
+    assert myNewNumLevels <= ub; // ub may be much bigger
+
+    // THE NEW ITEMS ARRAY
+    final float[] myNewFloatItemsArr = new float[targetItemCount];
+    final int freeSpaceAtBottom = targetItemCount - curItemCount;
+
+    //shift the new items array create space at bottom
+    System.arraycopy(workbuf, outlevels[0], myNewFloatItemsArr, freeSpaceAtBottom, curItemCount);
+    final int theShift = freeSpaceAtBottom - outlevels[0];
+
+    //THE NEW LEVELS ARRAY
+    final int[] myNewLevelsArr = new int[max(levelsArrs[0].length, myNewNumLevels + 1)];
+    for (int lvl = 0; lvl < myNewNumLevels + 1; lvl++) { // includes the "extra" index
+      myNewLevelsArr[lvl] = outlevels[lvl] + theShift;
+    }
+
+    //MEMORY SPACE MANAGEMENT
+    if (mySketch.getWritableMemory() != null) {
+      final WritableMemory wmem =
+          KllHelper.memorySpaceMgmt(mySketch, myNewLevelsArr.length, myNewFloatItemsArr.length);
+      mySketch.setWritableMemory(wmem);
+    }
+
+    //Update Preamble:
+    mySketch.setN(finalN);
+    mySketch.setMinK(minK);
+    mySketch.setLevelZeroSorted(false);
+
+    //Update numLevels, levelsArray, items
+    mySketch.setNumLevels(myNewNumLevels);
+    mySketch.setLevelsArray(myNewLevelsArr);
+    mySketch.setFloatItemsArray(myNewFloatItemsArr);
+
+    //Update min, max items
+    mySketch.setMinItem(minItem);
+    mySketch.setMaxItem(maxItem);
+    assert KllHelper.sumTheSampleWeights(mySketch.getNumLevels(), mySketch.levelsArr) == mySketch.getN();
+  }
+
+  /**
+   * Merges adjacent sorted runs of the given buffer pairwise until a single sorted run remains.
+   * This takes O(n log(numRuns)) comparisons.
+   * @param buf the buffer that holds the runs. On return the region of the runs is sorted.
+   * @param runs the start of each run, followed by the end of the last run.
+   * This array is modified.
+   * @param numRuns the number of runs
+   * @param scratch a buffer at least as long as the end of the last run
+   */
+  private static void mergeSortedFloatRuns(final float[] buf, final int[] runs, int numRuns,
+      final float[] scratch) {
+    final int beg = runs[0];
+    final int end = runs[numRuns];
+    float[] src = buf;
+    float[] dst = scratch;
+    while (numRuns > 1) {
+      int outRuns = 0;
+      for (int r = 0; r < numRuns; r += 2) {
+        if ((r + 1) < numRuns) {
+          mergeSortedFloatArrays(
+              src, runs[r], runs[r + 1] - runs[r],
+              src, runs[r + 1], runs[r + 2] - runs[r + 1],
+              dst, runs[r]);
+        } else {
+          System.arraycopy(src, runs[r], dst, runs[r], runs[r + 1] - runs[r]);
+        }
+        runs[outRuns++] = runs[r];
+      }
+      runs[outRuns] = end;
+      numRuns = outRuns;
+      final float[] tmp = src;
+      src = dst;
+      dst = tmp;
+    }
+    if (src != buf) { System.arraycopy(src, beg, buf, beg, end - beg); }
+  }
+
   private static void mergeSortedFloatArrays(
       final float[] bufA, final int startA, final int lenA,
       final float[] bufB, final int startB, final int lenB,
@@ -42,6 +42,7 @@ import static org.apache.datasketches.kll.KllSketch.SketchStructure.UPDATABLE;
 import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
 import static org.apache.datasketches.kll.KllSketch.SketchType.FLOATS_SKETCH;
 import static org.apache.datasketches.kll.KllSketch.SketchType.ITEMS_SKETCH;
+import static org.apache.datasketches.kll.KllSketch.SketchType.LONGS_SKETCH;
 import static org.apache.datasketches.quantilescommon.QuantilesAPI.UNSUPPORTED_MSG;
 
 import java.nio.ByteOrder;
@@ -214,13 +215,13 @@ final class KllHelper {
   }
 
   /**
-   * This method is for direct Double and Float sketches only.
+   * This method is for direct Double, Float and Long sketches only.
    * Given k, m, n, and the sketch type, this computes (and optionally prints) the growth scheme for a sketch as it
    * grows large enough to accommodate a stream length of n items.
    * @param k the given user configured sketch parameter
    * @param m the given user configured sketch parameter
    * @param n the desired stream length
-   * @param sketchType the given sketch type: either DOUBLES_SKETCH or FLOATS_SKETCH.
+   * @param sketchType the given sketch type: DOUBLES_SKETCH, FLOATS_SKETCH or LONGS_SKETCH.
    * @param printGrowthScheme if true the entire growth scheme of the sketch will be printed.
    * @return GrowthStats with the final numItems of the growth scheme
    */
@@ -321,7 +322,7 @@ final class KllHelper {
   }
 
   /**
-   * This method is for direct Double and Float sketches only and does the following:
+   * This method is for direct Double, Float and Long sketches only and does the following:
    * <ul>
    * <li>Determines if the required sketch bytes will fit in the current Memory.
    * If so, it will stretch the positioning of the arrays to fit. Otherwise:
@@ -591,6 +592,11 @@ final class KllHelper {
     float minFloat = Float.NaN;
     float maxFloat = Float.NaN;
 
+    long[] myCurLongItemsArr = null;
+    long[] myNewLongItemsArr = null;
+    long minLong = Long.MAX_VALUE;
+    long maxLong = Long.MIN_VALUE;
+
     Object[] myCurItemsArr = null;
     Object[] myNewItemsArr = null;
     Object minItem = null;
@@ -612,6 +618,14 @@ final class KllHelper {
       //assert we are following a certain growth scheme
       assert myCurFloatItemsArr.length == myCurTotalItemsCapacity;
     }
+    else if (sketchType == LONGS_SKETCH) {
+      final KllLongsSketch lngSk = (KllLongsSketch) sketch;
+      myCurLongItemsArr = lngSk.getLongItemsArray();
+      minLong = lngSk.getMinItem();
+      maxLong = lngSk.getMaxItem();
+      //assert we are following a certain growth scheme
+      assert myCurLongItemsArr.length == myCurTotalItemsCapacity;
+    }
     else { //sketchType == ITEMS_SKETCH
       final KllItemsSketch<?> itmSk = (KllItemsSketch<?>) sketch;
       myCurItemsArr = itmSk.getTotalItemsArray();
@@ -655,6 +669,11 @@ final class KllHelper {
       // copy and shift the current items data into the new array
       System.arraycopy(myCurFloatItemsArr, 0, myNewFloatItemsArr, deltaItemsCap, myCurTotalItemsCapacity);
     }
+    else if (sketchType == LONGS_SKETCH) {
+      myNewLongItemsArr = new long[myNewTotalItemsCapacity];
+      // copy and shift the current items data into the new array
+      System.arraycopy(myCurLongItemsArr, 0, myNewLongItemsArr, deltaItemsCap, myCurTotalItemsCapacity);
+    }
     else { //sketchType == ITEMS_SKETCH
       myNewItemsArr = new Object[myNewTotalItemsCapacity];
       // copy and shift the current items data into the new array
@@ -682,6 +701,12 @@ final class KllHelper {
       fltSk.setMaxItem(maxFloat);
       fltSk.setFloatItemsArray(myNewFloatItemsArr);
     }
+    else if (sketchType == LONGS_SKETCH) {
+      final KllLongsSketch lngSk = (KllLongsSketch) sketch;
+      lngSk.setMinItem(minLong);
+      lngSk.setMaxItem(maxLong);
+      lngSk.setLongItemsArray(myNewLongItemsArr);
+    }
     else { //sketchType == ITEMS_SKETCH
       final KllItemsSketch<?> itmSk = (KllItemsSketch<?>) sketch;
       itmSk.setMinItem(minItem);
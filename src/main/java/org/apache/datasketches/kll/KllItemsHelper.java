@@ -29,6 +29,7 @@ import static org.apache.datasketches.kll.KllSketch.DEFAULT_M;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.datasketches.common.Util;
@@ -242,6 +243,159 @@ final class KllItemsHelper {
     assert KllHelper.sumTheSampleWeights(mySketch.getNumLevels(), mySketch.levelsArr) == mySketch.getN();
   }
 
+  //assumes readOnly = false and UPDATABLE, called from KllItemsSketch::mergeAll
+  //others must be non-empty and must not include mySketch
+  static <T> void mergeAllItemImpl(final KllItemsSketch<T> mySketch,
+      final List<KllItemsSketch<T>> others, final Comparator<? super T> comp) {
+    if (others.isEmpty()) { return; }
+
+    //capture my key mutable fields before doing any merging
+    final boolean myEmpty = mySketch.isEmpty();
+    Object minItem = myEmpty ? null : mySketch.getMinItem();
+    Object maxItem = myEmpty ? null : mySketch.getMaxItem();
+    int minK = mySketch.getMinK();
+    long finalN = mySketch.getN();
+
+    //gather the levels and items of all sketches, starting with mine
+    final int numSketches = others.size() + 1;
+    final int[] numLevelsArr = new int[numSketches];
+    final int[][] levelsArrs = new int[numSketches][];
+    final Object[][] itemsArrs = new Object[numSketches][];
+    numLevelsArr[0] = mySketch.getNumLevels();
+    levelsArrs[0] = mySketch.levelsArr;
+    itemsArrs[0] = mySketch.getTotalItemsArray();
+    int provisionalNumLevels = numLevelsArr[0];
+    int tmpSpaceNeeded = mySketch.getNumRetained();
+    for (int s = 1; s < numSketches; s++) {
+      final KllItemsSketch<T> otherItmSk = others.get(s - 1);
+      finalN = Math.addExact(finalN, otherItmSk.getN());
+      if (otherItmSk.isEstimationMode()) { //otherwise the merge brings over exact items.
+        minK = min(minK, otherItmSk.getMinK());
+      }
+      final Object otherMin = otherItmSk.getMinItem();
+      final Object otherMax = otherItmSk.getMaxItem();
+      minItem = (minItem == null) ? otherMin : Util.minT(minItem, otherMin, comp);
+      maxItem = (maxItem == null) ? otherMax : Util.maxT(maxItem, otherMax, comp);
+      if (otherItmSk.isCompactSingleItem()) {
+        numLevelsArr[s] = 1;
+        levelsArrs[s] = new int[] {0, 1};
+        itemsArrs[s] = new Object[] {otherItmSk.getSingleItem()};
+      } else {
+        numLevelsArr[s] = otherItmSk.getNumLevels();
+        levelsArrs[s] = otherItmSk.levelsArr;
+        itemsArrs[s] = otherItmSk.getTotalItemsArray(); //from Memory this deserializes only the items
+      }
+      provisionalNumLevels = max(provisionalNumLevels, numLevelsArr[s]);
+      tmpSpaceNeeded += levelsArrs[s][numLevelsArr[s]] - levelsArrs[s][0];
+    }
+
+    final Object[] workbuf = new Object[tmpSpaceNeeded];
+    final int ub = max(KllHelper.ubOnNumLevels(finalN), provisionalNumLevels);
+    final int[] worklevels = new int[ub + 2]; // ub+1 does not work
+    final int[] outlevels  = new int[ub + 2];
+
+    //Concatenate each level across all sketches. Level zero is left unsorted, as it will be
+    //sorted by the compression if it needs to be compacted. Each higher level is the
+    //concatenation of sorted runs, which are merged once per level.
+    final int[] runs = new int[numSketches + 1];
+    Object[] scratch = null;
+    worklevels[0] = 0;
+    for (int lvl = 0; lvl < provisionalNumLevels; lvl++) {
+      int pos = worklevels[lvl];
+      int numRuns = 0;
+      for (int s = 0; s < numSketches; s++) {
+        final int pop = KllHelper.currentLevelSizeItems(lvl, numLevelsArr[s], levelsArrs[s]);
+        if (pop == 0) { continue; }
+        System.arraycopy(itemsArrs[s], levelsArrs[s][lvl], workbuf, pos, pop);
+        runs[numRuns++] = pos;
+        pos += pop;
+      }
+      worklevels[lvl + 1] = pos;
+      if ((lvl > 0) && (numRuns > 1)) {
+        runs[numRuns] = pos;
+        if (scratch == null) { scratch = new Object[tmpSpaceNeeded]; }
+        mergeSortedItemRuns(workbuf, runs, numRuns, scratch, comp);
+      }
+    }
+
+    // notice that workbuf is being used as both the input and output
+    final int[] result = generalItemsCompress(mySketch.getK(), mySketch.getM(), provisionalNumLevels,
+        workbuf, worklevels, workbuf, outlevels, false, KllSketch.random, comp);
+    final int targetItemCount = result[1]; //was finalCapacity. Max size given k, m, numLevels
+    final int curItemCount = result[2]; //was finalPop
+
+    //THE NEW NUM LEVELS
+    final int myNewNumLevels = result[0];
+    assert myNewNumLevels <= ub; // ub may be much bigger
+
+    // THE NEW ITEMS ARRAY
+    final Object[] myNewItemsArr = new Object[targetItemCount];
+    final int freeSpaceAtBottom = targetItemCount - curItemCount;
+
+    //shift the new items array create space at bottom
+    System.arraycopy(workbuf, outlevels[0], myNewItemsArr, freeSpaceAtBottom, curItemCount);
+    final int theShift = freeSpaceAtBottom - outlevels[0];
+
+    //THE NEW LEVELS ARRAY
+    final int[] myNewLevelsArr = new int[max(levelsArrs[0].length, myNewNumLevels + 1)];
+    for (int lvl = 0; lvl < myNewNumLevels + 1; lvl++) { // includes the "extra" index
+      myNewLevelsArr[lvl] = outlevels[lvl] + theShift;
+    }
+
+    //Update Preamble:
+    mySketch.setN(finalN);
+    mySketch.setMinK(minK);
+    mySketch.setLevelZeroSorted(false);
+
+    //Update numLevels, levelsArray, items
+    mySketch.setNumLevels(myNewNumLevels);
+    mySketch.setLevelsArray(myNewLevelsArr);
+    mySketch.setItemsArray(myNewItemsArr);
+
+    //Update min, max items
+    mySketch.setMinItem(minItem);
+    mySketch.setMaxItem(maxItem);
+    assert KllHelper.sumTheSampleWeights(mySketch.getNumLevels(), mySketch.levelsArr) == mySketch.getN();
+  }
+
+  /**
+   * Merges adjacent sorted runs of the given buffer pairwise until a single sorted run remains.
+   * This takes O(n log(numRuns)) comparisons.
+   * @param buf the buffer that holds the runs. On return the region of the runs is sorted.
+   * @param runs the start of each run, followed by the end of the last run.
+   * This array is modified.
+   * @param numRuns the number of runs
+   * @param scratch a buffer at least as long as the end of the last run
+   * @param comp the comparator for T
+   */
+  private static <T> void mergeSortedItemRuns(final Object[] buf, final int[] runs, int numRuns,
+      final Object[] scratch, final Comparator<? super T> comp) {
+    final int beg = runs[0];
+    final int end = runs[numRuns];
+    Object[] src = buf;
+    Object[] dst = scratch;
+    while (numRuns > 1) {
+      int outRuns = 0;
+      for (int r = 0; r < numRuns; r += 2) {
+        if ((r + 1) < numRuns) {
+          mergeSortedItemsArrays(
+              src, runs[r], runs[r + 1] - runs[r],
+              src, runs[r + 1], runs[r + 2] - runs[r + 1],
+              dst, runs[r], comp);
+        } else {
+          System.arraycopy(src, runs[r], dst, runs[r], runs[r + 1] - runs[r]);
+        }
+        runs[outRuns++] = runs[r];
+      }
+      runs[outRuns] = end;
+      numRuns = outRuns;
+      final Object[] tmp = src;
+      src = dst;
+      dst = tmp;
+    }
+    if (src != buf) { System.arraycopy(src, beg, buf, beg, end - beg); }
+  }
+
   private static <T> void mergeSortedItemsArrays( //only bufC is modified
       final Object[] bufA, final int startA, final int lenA,
       final Object[] bufB, final int startB, final int lenB,
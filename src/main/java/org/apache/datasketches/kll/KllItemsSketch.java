@@ -25,8 +25,11 @@ import static org.apache.datasketches.kll.KllSketch.SketchStructure.UPDATABLE;
 import static org.apache.datasketches.kll.KllSketch.SketchType.ITEMS_SKETCH;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 
 import org.apache.datasketches.common.ArrayOfItemsSerDe;
@@ -198,9 +201,7 @@ public abstract class KllItemsSketch<T> extends KllSketch implements QuantilesGe
     refreshSortedView();
     final int len = ranks.length;
     final T[] quantiles = (T[]) Array.newInstance(getMinItem().getClass(), len);
-    for (int i = 0; i < len; i++) {
-      quantiles[i] = itemsSV.getQuantile(ranks[i], searchCrit);
-    }
+    itemsSV.getQuantiles(ranks, searchCrit, quantiles);
     return quantiles;
   }
 
@@ -247,9 +248,7 @@ public abstract class KllItemsSketch<T> extends KllSketch implements QuantilesGe
     refreshSortedView();
     final int len = quantiles.length;
     final double[] ranks = new double[len];
-    for (int i = 0; i < len; i++) {
-      ranks[i] = itemsSV.getRank(quantiles[i], searchCrit);
-    }
+    itemsSV.getRanks(quantiles, searchCrit, ranks);
     return ranks;
   }
 
@@ -275,6 +274,21 @@ public abstract class KllItemsSketch<T> extends KllSketch implements QuantilesGe
     itemsSV = null;
   }
 
+  @Override
+  public final void mergeAll(final Collection<? extends KllSketch> others) {
+    if (readOnly || sketchStructure != UPDATABLE) { throw new SketchesArgumentException(TGT_IS_READ_ONLY_MSG); }
+    final List<KllItemsSketch<T>> othItmSks = new ArrayList<>(others.size());
+    for (final KllSketch other : others) {
+      if (this == other) { throw new SketchesArgumentException(SELF_MERGE_MSG); }
+      final KllItemsSketch<T> othItmSk = (KllItemsSketch<T>)other;
+      if ((othItmSk == null) || othItmSk.isEmpty()) { continue; }
+      othItmSks.add(othItmSk);
+    }
+    if (othItmSks.isEmpty()) { return; }
+    KllItemsHelper.mergeAllItemImpl(this, othItmSks, comparator);
+    itemsSV = null;
+  }
+
   @Override
   public void reset() {
     if (readOnly) { throw new SketchesArgumentException(TGT_IS_READ_ONLY_MSG); }
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import org.apache.datasketches.quantilescommon.QuantilesLongsSketchIterator;
+
+/**
+ * Iterator over KllLongsSketch. The order is not defined.
+ */
+public final class KllLongsSketchIterator extends KllSketchIterator implements QuantilesLongsSketchIterator {
+  private final long[] quantiles;
+
+  KllLongsSketchIterator(final long[] quantiles, final int[] levelsArr, final int numLevels) {
+    super(levelsArr, numLevels);
+    this.quantiles = quantiles;
+  }
+
+  @Override
+  public long getQuantile() {
+    return quantiles[index];
+  }
+
+}
@@ -35,6 +35,7 @@ import static org.apache.datasketches.kll.KllPreambleUtil.getMemorySerVer;
 import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
 import static org.apache.datasketches.kll.KllSketch.SketchType.FLOATS_SKETCH;
 import static org.apache.datasketches.kll.KllSketch.SketchType.ITEMS_SKETCH;
+import static org.apache.datasketches.kll.KllSketch.SketchType.LONGS_SKETCH;
 
 import org.apache.datasketches.common.ArrayOfBooleansSerDe;
 import org.apache.datasketches.common.ArrayOfItemsSerDe;
@@ -106,6 +107,7 @@ final class KllMemoryValidate {
     level0SortedFlag  = getMemoryLevelZeroSortedFlag(srcMem);
     if (sketchType == DOUBLES_SKETCH) { typeBytes = Double.BYTES; }
     else if (sketchType == FLOATS_SKETCH) { typeBytes = Float.BYTES; }
+    else if (sketchType == LONGS_SKETCH) { typeBytes = Long.BYTES; }
     else { typeBytes = 0; }
     validate();
   }
@@ -34,8 +34,10 @@ import static org.apache.datasketches.kll.KllSketch.SketchStructure.UPDATABLE;
 import static org.apache.datasketches.kll.KllSketch.SketchType.DOUBLES_SKETCH;
 import static org.apache.datasketches.kll.KllSketch.SketchType.FLOATS_SKETCH;
 import static org.apache.datasketches.kll.KllSketch.SketchType.ITEMS_SKETCH;
+import static org.apache.datasketches.kll.KllSketch.SketchType.LONGS_SKETCH;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Random;
 
 import org.apache.datasketches.common.ArrayOfItemsSerDe;
@@ -120,7 +122,7 @@ public abstract class KllSketch implements QuantilesAPI {
    * If both wmem and memReqSvr are null, this is a heap constructor.
    * If wmem != null and wmem is not readOnly, then memReqSvr must not be null.
    * If wmem was derived from an original Memory instance via a cast, it will be readOnly.
-   * @param sketchType either DOUBLES_SKETCH, FLOATS_SKETCH or ITEMS_SKETCH
+   * @param sketchType either DOUBLES_SKETCH, FLOATS_SKETCH, LONGS_SKETCH or ITEMS_SKETCH
    * @param wmem  the current WritableMemory or null
    */
   KllSketch(
@@ -154,7 +156,7 @@ public abstract class KllSketch implements QuantilesAPI {
    * Returns upper bound on the serialized size of a KllSketch given the following parameters.
    * @param k parameter that controls size of the sketch and accuracy of estimates
    * @param n stream length
-   * @param sketchType Only DOUBLES_SKETCH and FLOATS_SKETCH is supported for this operation.
+   * @param sketchType Only DOUBLES_SKETCH, FLOATS_SKETCH and LONGS_SKETCH are supported for this operation.
    * @param updatableMemFormat true if updatable Memory format, otherwise the standard compact format.
    * @return upper bound on the serialized size of a KllSketch.
    */
@@ -275,6 +277,20 @@ public abstract class KllSketch implements QuantilesAPI {
    */
   public abstract void merge(KllSketch other);
 
+  /**
+   * Merges all of the given sketches into this one in a single pass.
+   *
+   * <p>This is equivalent to, but much faster than, calling {@link #merge(KllSketch)} with each
+   * of the given sketches in turn. Each level is concatenated across all sketches and merged once,
+   * and the result is compacted once, rather than once per sketch. The given sketches may be heap
+   * sketches or sketches that wrap Memory; the latter are read in place and are not heapified.
+   * Null and empty sketches are ignored.</p>
+   *
+   * <p>Attempting to merge a sketch of the wrong type will throw an exception.</p>
+   * @param others the sketches to merge into this one. They must not include this sketch.
+   */
+  public abstract void mergeAll(Collection<? extends KllSketch> others);
+
   @Override
   public final String toString() {
     return toString(false, false);
@@ -452,6 +468,8 @@ public abstract class KllSketch implements QuantilesAPI {
 
   boolean isItemsSketch() { return sketchType == ITEMS_SKETCH; }
 
+  boolean isLongsSketch() { return sketchType == LONGS_SKETCH; }
+
   abstract boolean isLevelZeroSorted();
 
   /**
@@ -503,7 +521,11 @@ public abstract class KllSketch implements QuantilesAPI {
     /**
      * KllItemsSketch
      */
-    ITEMS_SKETCH(0, "KllItemsSketch");
+    ITEMS_SKETCH(0, "KllItemsSketch"),
+    /**
+     * KllLongsSketch
+     */
+    LONGS_SKETCH(Long.BYTES, "KllLongsSketch");
 
     private int typeBytes;
     private String name;
@@ -36,8 +36,17 @@ import static org.apache.datasketches.quantilescommon.QuantilesAPI.EMPTY_MSG;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesStateException;
 import org.apache.datasketches.quantilescommon.GenericPartitionBoundaries;
 import org.apache.datasketches.quantilescommon.PartitioningFeature;
 import org.apache.datasketches.quantilescommon.QuantileSearchCriteria;
@@ -52,6 +61,12 @@ import org.apache.datasketches.quantilescommon.QuantilesGenericAPI;
  * a data set of 1 billion items into 324 partitions of size 3M items completed in under 3 minutes, which was
  * performed on a single CPU. For much larger partitioning tasks, it is recommended that this code be leveraged into a
  * parallelized systems environment.</p>
+ *
+ * <p>The {@link #partition(QuantilesGenericAPI, Executor, int)} method does this within a single process.
+ * All the fill requests of a level of the partitioning hierarchy are independent of each other, so they are
+ * issued concurrently on a given Executor, with a bound on the number of passes in flight. The resulting list is
+ * identical in content and order to the list of the sequential {@link #partition(QuantilesGenericAPI)} method,
+ * given the same sketches from the fill requests.</p>
  * @param <T> the data type
  * @param <S> the quantiles sketch that implements both QuantilesGenericAPI and PartitioningFeature.
  */
@@ -111,6 +126,56 @@ public class Partitioner<T, S extends QuantilesGenericAPI<T> & PartitioningFeatu
    * @return the final partitioning list
    */
   public List<PartitionBoundsRow<T>> partition(final S sk) {
+    final StackElement<T> se = initialize(sk);
+    stack.push(se);
+    partitionSearch(stack);
+    return unmodifiableList(finalPartitionList);
+  }
+
+  /**
+   * This initiates the partitioning process, where the fill requests of each level of the partitioning hierarchy
+   * are run concurrently on the given executor. The SketchFillRequest must be safe to call from multiple threads.
+   *
+   * <p>The levels are processed one at a time. At most <i>maxInFlight</i> fill requests are submitted to the
+   * executor and not yet completed at any time, which bounds the number of concurrent passes over the source data.
+   * The order of the final partitioning list is the same as that of {@link #partition(QuantilesGenericAPI)}.</p>
+   *
+   * <p>If a fill request throws an exception, the partitioning is aborted and the exception is rethrown
+   * after all submitted requests have completed.</p>
+   *
+   * @param sk A sketch of the entire data set.
+   * @param executor the executor that runs the fill requests.
+   * @param maxInFlight the maximum number of fill requests in flight. It must be at least 1.
+   * @return the final partitioning list
+   */
+  public List<PartitionBoundsRow<T>> partition(final S sk, final Executor executor, final int maxInFlight) {
+    Objects.requireNonNull(executor, "executor must not be null");
+    if (maxInFlight < 1) {
+      throw new SketchesArgumentException("maxInFlight must be at least 1: " + maxInFlight);
+    }
+    List<StackElement<T>> levelElements = new ArrayList<>();
+    levelElements.add(initialize(sk));
+    for (int level = 2; level <= numLevels; level++) {
+      final List<PartitionBoundsRow<T>> rows = new ArrayList<>();
+      for (final StackElement<T> se : levelElements) {
+        final int numParts = se.gpb.getNumPartitions();
+        while (++se.part <= numParts) { rows.add(new PartitionBoundsRow<>(se)); }
+      }
+      final List<GenericPartitionBoundaries<T>> gpbs = fillAll(rows, executor, maxInFlight);
+      levelElements = new ArrayList<>(rows.size());
+      for (int i = 0; i < rows.size(); i++) {
+        final String partId = rows.get(i).levelPartId + "," + level;
+        levelElements.add(new StackElement<>(gpbs.get(i), 0, partId));
+      }
+    }
+    for (final StackElement<T> se : levelElements) { //at max level
+      final int numParts = se.gpb.getNumPartitions();
+      while (++se.part <= numParts) { finalPartitionList.add(new PartitionBoundsRow<>(se)); }
+    }
+    return unmodifiableList(finalPartitionList);
+  }
+
+  private StackElement<T> initialize(final S sk) {
     if (sk.isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
     final long inputN = sk.getN();
     final double guessNumParts = max(1.0, ceil((double)inputN / tgtPartitionSize));
@@ -118,10 +183,73 @@ public class Partitioner<T, S extends QuantilesGenericAPI<T> & PartitioningFeatu
     final int partsPerSk = (int)round(pow(guessNumParts, 1.0 / numLevels));
     this.partitionsPerSk = min(partsPerSk, maxPartsPerSk);
     final GenericPartitionBoundaries<T> gpb = sk.getPartitionBoundariesFromNumParts(partitionsPerSk, criteria);
-    final StackElement<T> se = new StackElement<>(gpb, 0, "1");
-    stack.push(se);
-    partitionSearch(stack);
-    return unmodifiableList(finalPartitionList);
+    return new StackElement<>(gpb, 0, "1");
+  }
+
+  /**
+   * Runs the fill requests of the given rows on the executor, with at most maxInFlight requests in flight.
+   * If a request fails, the executor rejects a request or the calling thread is interrupted, no further
+   * requests are submitted, and the failure is reported once the requests already submitted are done.
+   * @return the partition boundaries of the filled sketches, in the order of the given rows.
+   */
+  private List<GenericPartitionBoundaries<T>> fillAll(final List<PartitionBoundsRow<T>> rows,
+      final Executor executor, final int maxInFlight) {
+    final Semaphore permits = new Semaphore(maxInFlight);
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    final List<CompletableFuture<GenericPartitionBoundaries<T>>> futures = new ArrayList<>(rows.size());
+    try {
+      for (final PartitionBoundsRow<T> row : rows) {
+        permits.acquire();
+        if (failed.get()) { permits.release(); break; } //stop submitting, the failure is reported below
+        final CompletableFuture<GenericPartitionBoundaries<T>> future;
+        try {
+          future = CompletableFuture.supplyAsync(() -> {
+            try {
+              if (failed.get()) { return null; } //another request failed, this result is never used
+              final S sk = fillReq.getRange(row.lowerBound, row.upperBound, row.rule);
+              return sk.getPartitionBoundariesFromNumParts(partitionsPerSk, criteria);
+            } catch (final RuntimeException | Error e) {
+              failed.set(true);
+              throw e;
+            } finally {
+              permits.release();
+            }
+          }, executor);
+        } catch (final RejectedExecutionException e) {
+          permits.release();
+          failed.set(true);
+          awaitQuietly(futures);
+          throw e;
+        }
+        futures.add(future);
+      }
+    } catch (final InterruptedException e) {
+      failed.set(true);
+      awaitQuietly(futures);
+      Thread.currentThread().interrupt();
+      throw new SketchesStateException("Interrupted while waiting for a fill request to complete.");
+    }
+    final List<GenericPartitionBoundaries<T>> gpbs = new ArrayList<>(rows.size());
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+      for (final CompletableFuture<GenericPartitionBoundaries<T>> future : futures) { gpbs.add(future.join()); }
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) { throw (RuntimeException) cause; }
+      if (cause instanceof Error) { throw (Error) cause; }
+      throw e;
+    }
+    return gpbs;
+  }
+
+  /**
+   * Waits for the given futures to complete, ignoring their failures, so that no fill request is still
+   * running against the fill request object when the caller reports its own failure.
+   */
+  private static void awaitQuietly(final List<? extends CompletableFuture<?>> futures) {
+    for (final CompletableFuture<?> future : futures) {
+      try { future.join(); } catch (final CompletionException | CancellationException e) { } //superseded
+    }
   }
 
   private void partitionSearch(final ArrayDeque<StackElement<T>> stack) {
@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.quantiles;
 
+import static org.apache.datasketches.common.Util.checkBounds;
 import static org.apache.datasketches.quantiles.ClassicUtil.DOUBLES_SER_VER;
 import static org.apache.datasketches.quantiles.ClassicUtil.checkFamilyID;
 import static org.apache.datasketches.quantiles.ClassicUtil.checkK;
@@ -164,38 +165,88 @@ final class DirectUpdateDoublesSketch extends DirectUpdateDoublesSketchR {
     mem_.putByte(FLAGS_BYTE, (byte) 0); //not compact, not ordered, not empty
 
     if (newBBCount == (2 * k_)) { //Propagate
-      // make sure there will be enough levels for the propagation
-      final int curMemItemCap = getCombinedBufferItemCapacity();
-      final int itemSpaceNeeded = DoublesUpdateImpl.getRequiredItemCapacity(k_, newN);
-
-      //check mem has capacity to accommodate new level
-      if (itemSpaceNeeded > curMemItemCap) {
-        // copies base buffer plus old levels, adds space for new level
-        mem_ = growCombinedMemBuffer(itemSpaceNeeded);
+      propagateBaseBuffer(newN);
+    }
+    putN(newN);
+    doublesSV = null;
+  }
+
+  @Override
+  public void update(final double[] items, final int offset, final int length) {
+    checkBounds(offset, length, items.length);
+    final int bbCap = 2 * k_;
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      final int curBBCount = getBaseBufferCount();
+      //must check memory capacity before we put anything in it
+      if (getCombinedBufferItemCapacity() < Math.min(curBBCount + (end - i), bbCap)) {
+        //only changes combinedBuffer when it is only a base buffer
+        mem_ = growCombinedMemBuffer(bbCap);
       }
 
-      // sort base buffer via accessor which modifies the underlying base buffer,
-      // then use as one of the inputs to propagate-carry
-      final DoublesSketchAccessor bbAccessor = DoublesSketchAccessor.wrap(this, true);
-      bbAccessor.sort();
-
-      final long newBitPattern = DoublesUpdateImpl.inPlacePropagateCarry(
-              0, // starting level
-              null,
-              bbAccessor,
-              true,
-              k_,
-              DoublesSketchAccessor.wrap(this, true),
-              getBitPattern()
-      );
-
-      assert newBitPattern == computeBitPattern(k_, newN); // internal consistency check
-      //bit pattern on direct is always derived, no need to save it.
+      //fill the base buffer, skipping NaNs
+      int bbCount = curBBCount;
+      final boolean empty = getN() == 0;
+      double minItem = empty ? Double.NaN : mem_.getDouble(MIN_DOUBLE);
+      double maxItem = empty ? Double.NaN : mem_.getDouble(MAX_DOUBLE);
+      while ((i < end) && (bbCount < bbCap)) {
+        final double item = items[i++];
+        if (Double.isNaN(item)) { continue; }
+        mem_.putDouble(COMBINED_BUFFER + ((long) bbCount++ * Double.BYTES), item);
+        if (Double.isNaN(minItem) || (item < minItem)) { minItem = item; }
+        if (Double.isNaN(maxItem) || (item > maxItem)) { maxItem = item; }
+      }
+      if (bbCount == curBBCount) { continue; } //only NaNs
+      putMinItem(minItem);
+      putMaxItem(maxItem);
+      mem_.putByte(FLAGS_BYTE, (byte) 0); //not compact, not ordered, not empty
+
+      //n is updated last, the bit pattern and base buffer count are derived from it
+      final long newN = getN() + (bbCount - curBBCount);
+      if (bbCount == bbCap) { //Propagate
+        propagateBaseBuffer(newN);
+      }
+      putN(newN);
     }
-    putN(newN);
     doublesSV = null;
   }
 
+  /**
+   * Sorts the full base buffer and propagates it into the levels. The given newN must include
+   * the items of the full base buffer, but N in the Memory must not have been updated yet.
+   * @param newN the new value of N, after the base buffer is propagated
+   */
+  private void propagateBaseBuffer(final long newN) {
+    // make sure there will be enough levels for the propagation
+    final int curMemItemCap = getCombinedBufferItemCapacity();
+    final int itemSpaceNeeded = DoublesUpdateImpl.getRequiredItemCapacity(k_, newN);
+
+    //check mem has capacity to accommodate new level
+    if (itemSpaceNeeded > curMemItemCap) {
+      // copies base buffer plus old levels, adds space for new level
+      mem_ = growCombinedMemBuffer(itemSpaceNeeded);
+    }
+
+    // sort base buffer via accessor which modifies the underlying base buffer,
+    // then use as one of the inputs to propagate-carry
+    final DoublesSketchAccessor bbAccessor = DoublesSketchAccessor.wrap(this, true);
+    bbAccessor.sort();
+
+    final long newBitPattern = DoublesUpdateImpl.inPlacePropagateCarry(
+            0, // starting level
+            null,
+            bbAccessor,
+            true,
+            k_,
+            DoublesSketchAccessor.wrap(this, true),
+            getBitPattern()
+    );
+
+    assert newBitPattern == computeBitPattern(k_, newN); // internal consistency check
+    //bit pattern on direct is always derived, no need to save it.
+  }
+
   @Override
   public void reset() {
     if (mem_.getCapacity() >= COMBINED_BUFFER) {
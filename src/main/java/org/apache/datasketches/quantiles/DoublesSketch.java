@@ -193,9 +193,7 @@ public abstract class DoublesSketch implements QuantilesDoublesAPI {
     refreshSortedView();
     final int len = ranks.length;
     final double[] quantiles = new double[len];
-    for (int i = 0; i < len; i++) {
-      quantiles[i] = doublesSV.getQuantile(ranks[i], searchCrit);
-    }
+    doublesSV.getQuantiles(ranks, searchCrit, quantiles);
     return quantiles;
   }
 
@@ -252,9 +250,7 @@ public abstract class DoublesSketch implements QuantilesDoublesAPI {
     refreshSortedView();
     final int len = quantiles.length;
     final double[] ranks = new double[len];
-    for (int i = 0; i < len; i++) {
-      ranks[i] = doublesSV.getRank(quantiles[i], searchCrit);
-    }
+    doublesSV.getRanks(quantiles, searchCrit, ranks);
     return ranks;
   }
 
@@ -19,6 +19,7 @@
 
 package org.apache.datasketches.quantiles;
 
+import static org.apache.datasketches.common.Util.checkBounds;
 import static org.apache.datasketches.quantiles.ClassicUtil.MIN_K;
 import static org.apache.datasketches.quantiles.ClassicUtil.checkFamilyID;
 import static org.apache.datasketches.quantiles.ClassicUtil.checkHeapFlags;
@@ -236,35 +237,7 @@ final class HeapUpdateDoublesSketch extends UpdateDoublesSketch {
     combinedBuffer_[curBBCount] = dataItem;
 
     if (newBBCount == (k_ << 1)) { //Propagate
-
-      // make sure there will be enough space (levels) for the propagation
-      final int spaceNeeded = DoublesUpdateImpl.getRequiredItemCapacity(k_, newN);
-
-      if (spaceNeeded > combBufItemCap) {
-        // copies base buffer plus old levels, adds space for new level
-        growCombinedBuffer(combBufItemCap, spaceNeeded);
-      }
-
-      // sort only the (full) base buffer via accessor which modifies the underlying base buffer,
-      // then use as one of the inputs to propagate-carry
-      final DoublesSketchAccessor bbAccessor = DoublesSketchAccessor.wrap(this, true);
-      bbAccessor.sort();
-
-      final long newBitPattern = DoublesUpdateImpl.inPlacePropagateCarry(
-              0, // starting level
-              null,
-              bbAccessor,
-              true,
-              k_,
-              DoublesSketchAccessor.wrap(this, true),
-              bitPattern_
-      );
-
-      assert newBitPattern == computeBitPattern(k_, newN); // internal consistency check
-      assert newBitPattern == (bitPattern_ + 1);
-
-      bitPattern_ = newBitPattern;
-      baseBufferCount_ = 0;
+      propagateBaseBuffer(combBufItemCap, newN);
     } else {
       //bitPattern unchanged
       baseBufferCount_ = newBBCount;
@@ -273,6 +246,80 @@ final class HeapUpdateDoublesSketch extends UpdateDoublesSketch {
     doublesSV = null;
   }
 
+  @Override
+  public void update(final double[] items, final int offset, final int length) {
+    checkBounds(offset, length, items.length);
+    final int bbCap = k_ << 1;
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      //grow the base buffer, if it is the only buffer, just enough for the remaining items
+      final int combBufItemCap = combinedBuffer_.length;
+      final int bbSpaceNeeded = Math.min(baseBufferCount_ + (end - i), bbCap);
+      while (combinedBuffer_.length < bbSpaceNeeded) { growBaseBuffer(); }
+
+      //fill the base buffer, skipping NaNs
+      int bbCount = baseBufferCount_;
+      double minItem = minItem_;
+      double maxItem = maxItem_;
+      while ((i < end) && (bbCount < bbCap)) {
+        final double item = items[i++];
+        if (Double.isNaN(item)) { continue; }
+        combinedBuffer_[bbCount++] = item;
+        if (Double.isNaN(minItem) || (item < minItem)) { minItem = item; }
+        if (Double.isNaN(maxItem) || (item > maxItem)) { maxItem = item; }
+      }
+      final long newN = n_ + (bbCount - baseBufferCount_);
+      minItem_ = minItem;
+      maxItem_ = maxItem;
+
+      if (bbCount == bbCap) { //Propagate
+        propagateBaseBuffer(combBufItemCap, newN);
+      } else {
+        baseBufferCount_ = bbCount;
+      }
+      n_ = newN;
+    }
+    doublesSV = null;
+  }
+
+  /**
+   * Sorts the full base buffer and propagates it into the levels. The given newN must include
+   * the items of the full base buffer, but n_ must not have been updated yet.
+   * @param combBufItemCap the capacity of the combined buffer before the base buffer was filled
+   * @param newN the new value of n, after the base buffer is propagated
+   */
+  private void propagateBaseBuffer(final int combBufItemCap, final long newN) {
+    // make sure there will be enough space (levels) for the propagation
+    final int spaceNeeded = DoublesUpdateImpl.getRequiredItemCapacity(k_, newN);
+
+    if (spaceNeeded > combBufItemCap) {
+      // copies base buffer plus old levels, adds space for new level
+      growCombinedBuffer(combBufItemCap, spaceNeeded);
+    }
+
+    // sort only the (full) base buffer via accessor which modifies the underlying base buffer,
+    // then use as one of the inputs to propagate-carry
+    final DoublesSketchAccessor bbAccessor = DoublesSketchAccessor.wrap(this, true);
+    bbAccessor.sort();
+
+    final long newBitPattern = DoublesUpdateImpl.inPlacePropagateCarry(
+            0, // starting level
+            null,
+            bbAccessor,
+            true,
+            k_,
+            DoublesSketchAccessor.wrap(this, true),
+            bitPattern_
+    );
+
+    assert newBitPattern == computeBitPattern(k_, newN); // internal consistency check
+    assert newBitPattern == (bitPattern_ + 1);
+
+    bitPattern_ = newBitPattern;
+    baseBufferCount_ = 0;
+  }
+
   /**
    * Loads the Combined Buffer, min and max from the given source Memory.
    * The resulting Combined Buffer is always in non-compact form and must be pre-allocated.
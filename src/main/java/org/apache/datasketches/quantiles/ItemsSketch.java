@@ -355,9 +355,7 @@ public final class ItemsSketch<T> implements QuantilesGenericAPI<T> {
     refreshSortedView();
     final int len = quantiles.length;
     final double[] ranks = new double[len];
-    for (int i = 0; i < len; i++) {
-      ranks[i] = classicQisSV.getRank(quantiles[i], searchCrit);
-    }
+    classicQisSV.getRanks(quantiles, searchCrit, ranks);
     return ranks;
   }
 
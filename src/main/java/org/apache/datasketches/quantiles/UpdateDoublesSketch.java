@@ -49,6 +49,18 @@ public abstract class UpdateDoublesSketch extends DoublesSketch {
   @Override
   public abstract void update(double item);
 
+  /**
+   * Updates this sketch with the items of the given array in the range
+   * <i>[offset, offset + length)</i>. The items are copied into the base buffer in bulk, and the
+   * base buffer is sorted and propagated only each time it becomes full.
+   * The result is the same as updating the items one at a time.
+   *
+   * @param items the given array of items. NaNs are ignored.
+   * @param offset the index of the first item to use
+   * @param length the number of items to use
+   */
+  public abstract void update(double[] items, int offset, int length);
+
   public static UpdateDoublesSketch heapify(final Memory srcMem) {
     return HeapUpdateDoublesSketch.heapifyInstance(srcMem);
   }
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantilescommon;
+
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantilesAPI.EMPTY_MSG;
+import static org.apache.datasketches.quantilescommon.QuantilesUtil.getNaturalRank;
+import static org.apache.datasketches.quantilescommon.SortedViewFormat.DATA_START;
+import static org.apache.datasketches.quantilescommon.SortedViewFormat.DOUBLES_TYPE;
+import static org.apache.datasketches.quantilescommon.SortedViewFormat.N_LONG;
+
+import java.util.Objects;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A DoublesSortedView that is searched in place in a Memory holding a serialized sorted view,
+ * as produced by {@link DoublesSketchSortedView#toByteArray()}.
+ *
+ * <p>Wrapping requires no heap other than this small object, so a query process can serve the
+ * ranks and quantiles of precomputed sorted views directly from, e.g., memory-mapped files,
+ * without loading the sketches and rebuilding their sorted views. See {@link SortedViewFormat}
+ * for the binary format.</p>
+ */
+public final class DirectDoublesSortedView implements DoublesSortedView {
+  private final Memory mem;
+  private final int numRetained;
+  private final long totalN;
+  private final long quantilesOffset;
+
+  private DirectDoublesSortedView(final Memory mem, final int numRetained) {
+    this.mem = mem;
+    this.numRetained = numRetained;
+    this.totalN = mem.getLong(N_LONG);
+    this.quantilesOffset = DATA_START + ((long) numRetained << 3);
+  }
+
+  /**
+   * Wraps the given Memory, which must hold a serialized DoublesSortedView.
+   * @param mem the given Memory, which is not modified. Its byte order does not matter.
+   * @return a read-only sorted view backed by the given Memory
+   */
+  public static DirectDoublesSortedView wrap(final Memory mem) {
+    Objects.requireNonNull(mem, "Source Memory must not be null");
+    final Memory leMem = SortedViewFormat.asLittleEndian(mem);
+    final int numRetained = SortedViewFormat.checkPreamble(leMem, DOUBLES_TYPE, Double.BYTES);
+    return new DirectDoublesSortedView(leMem, numRetained);
+  }
+
+  /**
+   * Serializes the given arrays of a sorted view.
+   * @param quantiles the sorted quantiles
+   * @param cumWeights the cumulative weights
+   * @param n the total number of items represented by the view
+   * @return the serialized sorted view
+   */
+  static byte[] toByteArray(final double[] quantiles, final long[] cumWeights, final long n) {
+    final int numRetained = quantiles.length;
+    final byte[] bytes = new byte[(int) SortedViewFormat.getSerializedSizeBytes(numRetained, Double.BYTES)];
+    final WritableMemory wmem = SortedViewFormat.writableWrap(bytes);
+    SortedViewFormat.putPreambleAndCumWeights(wmem, DOUBLES_TYPE, cumWeights, n);
+    wmem.putDoubleArray(DATA_START + ((long) numRetained << 3), quantiles, 0, numRetained);
+    return bytes;
+  }
+
+  /**
+   * Returns a copy of the serialized form of this sorted view.
+   * @return a copy of the serialized form of this sorted view.
+   */
+  public byte[] toByteArray() {
+    final byte[] bytes = new byte[(int) SortedViewFormat.getSerializedSizeBytes(numRetained, Double.BYTES)];
+    mem.getByteArray(0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  @Override
+  public long[] getCumulativeWeights() {
+    final long[] cumWeights = new long[numRetained];
+    mem.getLongArray(DATA_START, cumWeights, 0, numRetained);
+    return cumWeights;
+  }
+
+  @Override
+  public double getMaxItem() {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    return quantile(numRetained - 1);
+  }
+
+  @Override
+  public double getMinItem() {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    return quantile(0);
+  }
+
+  @Override
+  public long getN() {
+    return totalN;
+  }
+
+  @Override
+  public int getNumRetained() {
+    return numRetained;
+  }
+
+  @Override
+  public double getQuantile(final double rank, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    QuantilesUtil.checkNormalizedRankBounds(rank);
+    final double naturalRank = getNaturalRank(rank, totalN, searchCrit);
+    final int index = SortedViewFormat.searchCumWeights(mem, numRetained, naturalRank, searchCrit == INCLUSIVE);
+    return quantile(Math.min(index, numRetained - 1)); //EXCLUSIVE (GT) case: normRank == 1.0
+  }
+
+  @Override
+  public double[] getQuantiles() {
+    final double[] quantiles = new double[numRetained];
+    mem.getDoubleArray(quantilesOffset, quantiles, 0, numRetained);
+    return quantiles;
+  }
+
+  @Override
+  public double getRank(final double quantile, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    if (Double.isNaN(quantile)) { throw new SketchesArgumentException("Input v must not be NaN."); }
+    final boolean inclusive = searchCrit == INCLUSIVE;
+    //find the first quantile that does not qualify, the answer is the one before it
+    int lo = 0;
+    int hi = numRetained;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      final double q = quantile(mid);
+      if (inclusive ? q <= quantile : q < quantile) { lo = mid + 1; }
+      else { hi = mid; }
+    }
+    if (lo == 0) {
+      return 0; //EXCLUSIVE (LT) case: quantile <= minQuantile; INCLUSIVE (LE) case: quantile < minQuantile
+    }
+    return (double) mem.getLong(DATA_START + ((long) (lo - 1) << 3)) / totalN;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return totalN == 0;
+  }
+
+  @Override
+  public DoublesSortedViewIterator iterator() {
+    return new DoublesSortedViewIterator(getQuantiles(), getCumulativeWeights());
+  }
+
+  private double quantile(final int index) {
+    return mem.getDouble(quantilesOffset + ((long) index << 3));
+  }
+}
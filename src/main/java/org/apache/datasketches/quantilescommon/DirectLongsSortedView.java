@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantilescommon;
+
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantilesAPI.EMPTY_MSG;
+import static org.apache.datasketches.quantilescommon.QuantilesUtil.getNaturalRank;
+import static org.apache.datasketches.quantilescommon.SortedViewFormat.DATA_START;
+import static org.apache.datasketches.quantilescommon.SortedViewFormat.LONGS_TYPE;
+import static org.apache.datasketches.quantilescommon.SortedViewFormat.N_LONG;
+
+import java.util.Objects;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A LongsSortedView that is searched in place in a Memory holding a serialized sorted view,
+ * as produced by {@link LongsSketchSortedView#toByteArray()}.
+ *
+ * <p>Wrapping requires no heap other than this small object, so a query process can serve the
+ * ranks and quantiles of precomputed sorted views directly from, e.g., memory-mapped files,
+ * without loading the sketches and rebuilding their sorted views. See {@link SortedViewFormat}
+ * for the binary format.</p>
+ */
+public final class DirectLongsSortedView implements LongsSortedView {
+  private final Memory mem;
+  private final int numRetained;
+  private final long totalN;
+  private final long quantilesOffset;
+
+  private DirectLongsSortedView(final Memory mem, final int numRetained) {
+    this.mem = mem;
+    this.numRetained = numRetained;
+    this.totalN = mem.getLong(N_LONG);
+    this.quantilesOffset = DATA_START + ((long) numRetained << 3);
+  }
+
+  /**
+   * Wraps the given Memory, which must hold a serialized LongsSortedView.
+   * @param mem the given Memory, which is not modified. Its byte order does not matter.
+   * @return a read-only sorted view backed by the given Memory
+   */
+  public static DirectLongsSortedView wrap(final Memory mem) {
+    Objects.requireNonNull(mem, "Source Memory must not be null");
+    final Memory leMem = SortedViewFormat.asLittleEndian(mem);
+    final int numRetained = SortedViewFormat.checkPreamble(leMem, LONGS_TYPE, Long.BYTES);
+    return new DirectLongsSortedView(leMem, numRetained);
+  }
+
+  /**
+   * Serializes the given arrays of a sorted view.
+   * @param quantiles the sorted quantiles
+   * @param cumWeights the cumulative weights
+   * @param n the total number of items represented by the view
+   * @return the serialized sorted view
+   */
+  static byte[] toByteArray(final long[] quantiles, final long[] cumWeights, final long n) {
+    final int numRetained = quantiles.length;
+    final byte[] bytes = new byte[(int) SortedViewFormat.getSerializedSizeBytes(numRetained, Long.BYTES)];
+    final WritableMemory wmem = SortedViewFormat.writableWrap(bytes);
+    SortedViewFormat.putPreambleAndCumWeights(wmem, LONGS_TYPE, cumWeights, n);
+    wmem.putLongArray(DATA_START + ((long) numRetained << 3), quantiles, 0, numRetained);
+    return bytes;
+  }
+
+  /**
+   * Returns a copy of the serialized form of this sorted view.
+   * @return a copy of the serialized form of this sorted view.
+   */
+  public byte[] toByteArray() {
+    final byte[] bytes = new byte[(int) SortedViewFormat.getSerializedSizeBytes(numRetained, Long.BYTES)];
+    mem.getByteArray(0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  @Override
+  public long[] getCumulativeWeights() {
+    final long[] cumWeights = new long[numRetained];
+    mem.getLongArray(DATA_START, cumWeights, 0, numRetained);
+    return cumWeights;
+  }
+
+  @Override
+  public long getMaxItem() {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    return quantile(numRetained - 1);
+  }
+
+  @Override
+  public long getMinItem() {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    return quantile(0);
+  }
+
+  @Override
+  public long getN() {
+    return totalN;
+  }
+
+  @Override
+  public int getNumRetained() {
+    return numRetained;
+  }
+
+  @Override
+  public long getQuantile(final double rank, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    QuantilesUtil.checkNormalizedRankBounds(rank);
+    final double naturalRank = getNaturalRank(rank, totalN, searchCrit);
+    final int index = SortedViewFormat.searchCumWeights(mem, numRetained, naturalRank, searchCrit == INCLUSIVE);
+    return quantile(Math.min(index, numRetained - 1)); //EXCLUSIVE (GT) case: normRank == 1.0
+  }
+
+  @Override
+  public long[] getQuantiles() {
+    final long[] quantiles = new long[numRetained];
+    mem.getLongArray(quantilesOffset, quantiles, 0, numRetained);
+    return quantiles;
+  }
+
+  @Override
+  public double getRank(final long quantile, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    final boolean inclusive = searchCrit == INCLUSIVE;
+    //find the first quantile that does not qualify, the answer is the one before it
+    int lo = 0;
+    int hi = numRetained;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      final long q = quantile(mid);
+      if (inclusive ? q <= quantile : q < quantile) { lo = mid + 1; }
+      else { hi = mid; }
+    }
+    if (lo == 0) {
+      return 0; //EXCLUSIVE (LT) case: quantile <= minQuantile; INCLUSIVE (LE) case: quantile < minQuantile
+    }
+    return (double) mem.getLong(DATA_START + ((long) (lo - 1) << 3)) / totalN;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return totalN == 0;
+  }
+
+  @Override
+  public LongsSortedViewIterator iterator() {
+    return new LongsSortedViewIterator(getQuantiles(), getCumulativeWeights());
+  }
+
+  private long quantile(final int index) {
+    return mem.getLong(quantilesOffset + ((long) index << 3));
+  }
+}
@@ -35,6 +35,8 @@ public final class DoublesSketchSortedView implements DoublesSortedView {
   private final double[] quantiles;
   private final long[] cumWeights; //cumulative natural weights
   private final long totalN;
+  private EytzingerIndex searchIndex; //built lazily, null until then or if the view is small
+  private int numPointQueries;
 
   /**
    * Construct from elements, also used in testing.
@@ -99,14 +101,41 @@ public final class DoublesSketchSortedView implements DoublesSortedView {
     QuantilesUtil.checkNormalizedRankBounds(rank);
     final int len = cumWeights.length;
     final double naturalRank = getNaturalRank(rank, totalN, searchCrit);
-    final InequalitySearch crit = (searchCrit == INCLUSIVE) ? InequalitySearch.GE : InequalitySearch.GT;
-    final int index = InequalitySearch.find(cumWeights, 0, len - 1, naturalRank, crit);
+    final EytzingerIndex eIndex = getSearchIndex();
+    final int index;
+    if (eIndex != null) {
+      index = eIndex.findCumWeight(naturalRank, searchCrit == INCLUSIVE);
+    } else {
+      final InequalitySearch crit = (searchCrit == INCLUSIVE) ? InequalitySearch.GE : InequalitySearch.GT;
+      index = InequalitySearch.find(cumWeights, 0, len - 1, naturalRank, crit);
+    }
     if (index == -1) {
       return quantiles[len - 1]; //EXCLUSIVE (GT) case: normRank == 1.0;
     }
     return quantiles[index];
   }
 
+  @Override
+  public void getQuantiles(final double[] ranks, final QuantileSearchCriteria searchCrit, final double[] quantiles) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    final int numRanks = ranks.length;
+    QuantilesUtil.checkDestinationLength(quantiles.length, numRanks);
+    if (!QuantilesUtil.isSorted(ranks)) {
+      for (int i = 0; i < numRanks; i++) { quantiles[i] = getQuantile(ranks[i], searchCrit); }
+      return;
+    }
+    //the ranks are sorted, so each search can start where the previous one ended
+    final int len = cumWeights.length;
+    final boolean inclusive = searchCrit == INCLUSIVE;
+    int index = 0;
+    for (int i = 0; i < numRanks; i++) {
+      QuantilesUtil.checkNormalizedRankBounds(ranks[i]);
+      final double naturalRank = getNaturalRank(ranks[i], totalN, searchCrit);
+      index = QuantilesUtil.gallopCumWeights(cumWeights, naturalRank, inclusive, index);
+      quantiles[i] = (index == len) ? this.quantiles[len - 1] : this.quantiles[index];
+    }
+  }
+
   @Override
   public double[] getQuantiles() {
     return quantiles.clone();
@@ -116,22 +145,98 @@ public final class DoublesSketchSortedView implements DoublesSortedView {
   public double getRank(final double quantile, final QuantileSearchCriteria searchCrit) {
     if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
     final int len = quantiles.length;
-    final InequalitySearch crit = (searchCrit == INCLUSIVE) ? InequalitySearch.LE : InequalitySearch.LT;
-    final int index = InequalitySearch.find(quantiles,  0, len - 1, quantile, crit);
+    final EytzingerIndex eIndex = Double.isNaN(quantile) ? null : getSearchIndex();
+    final int index;
+    if (eIndex != null) {
+      index = eIndex.findQuantile(quantile, searchCrit == INCLUSIVE);
+    } else {
+      final InequalitySearch crit = (searchCrit == INCLUSIVE) ? InequalitySearch.LE : InequalitySearch.LT;
+      index = InequalitySearch.find(quantiles,  0, len - 1, quantile, crit);
+    }
     if (index == -1) {
       return 0; //EXCLUSIVE (LT) case: quantile <= minQuantile; INCLUSIVE (LE) case: quantile < minQuantile
     }
     return (double)cumWeights[index] / totalN;
   }
 
+  @Override
+  public void getRanks(final double[] quantiles, final QuantileSearchCriteria searchCrit, final double[] ranks) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    final int numQuantiles = quantiles.length;
+    QuantilesUtil.checkDestinationLength(ranks.length, numQuantiles);
+    if (!QuantilesUtil.isSorted(quantiles)) {
+      for (int i = 0; i < numQuantiles; i++) { ranks[i] = getRank(quantiles[i], searchCrit); }
+      return;
+    }
+    //the quantiles are sorted, so each search can start where the previous one ended
+    final boolean inclusive = searchCrit == INCLUSIVE;
+    int index = -1;
+    for (int i = 0; i < numQuantiles; i++) {
+      index = gallopQuantiles(quantiles[i], inclusive, index);
+      ranks[i] = (index == -1) ? 0 : (double)cumWeights[index] / totalN;
+    }
+  }
+
   @Override
   public boolean isEmpty() {
     return totalN == 0;
   }
 
+  /**
+   * Serializes this sorted view into a compact binary form, which can be stored next to the sketch and
+   * later be queried in place with {@link DirectDoublesSortedView#wrap(org.apache.datasketches.memory.Memory)}.
+   * @return this sorted view serialized into a byte array.
+   */
+  public byte[] toByteArray() {
+    return DirectDoublesSortedView.toByteArray(quantiles, cumWeights, totalN);
+  }
+
   @Override
   public DoublesSortedViewIterator iterator() {
     return new DoublesSortedViewIterator(quantiles, cumWeights);
   }
 
+  /**
+   * Returns the search index of this view, which is built on the first repeated point query if this view
+   * retains at least {@link EytzingerIndex#MIN_INDEX_LENGTH} quantiles. A single query is cheaper with the
+   * classic binary search than with building the index first.
+   * @return the search index, or null if there is none (yet).
+   */
+  private EytzingerIndex getSearchIndex() {
+    EytzingerIndex eIndex = searchIndex;
+    if ((eIndex == null) && (quantiles.length >= EytzingerIndex.MIN_INDEX_LENGTH) && (numPointQueries++ > 0)) {
+      eIndex = EytzingerIndex.build(quantiles, cumWeights);
+      searchIndex = eIndex; //racy but benign, the index is immutable
+    }
+    return eIndex;
+  }
+
+  /**
+   * Returns the index of the last retained quantile at or after the given start index that is &le; the given
+   * quantile if <i>inclusive</i>, or &lt; the given quantile otherwise. The search gallops forward from the start
+   * index, which must be -1 or the index of a qualifying quantile.
+   * @param quantile the given quantile
+   * @param inclusive true for the INCLUSIVE (LE) criterion, false for the EXCLUSIVE (LT) criterion.
+   * @param start the index to start the search from
+   * @return the index of the last qualifying retained quantile, or -1 if none.
+   */
+  private int gallopQuantiles(final double quantile, final boolean inclusive, final int start) {
+    final int len = quantiles.length;
+    int lo = start; //the last index known to qualify
+    int step = 1;
+    int hi = lo + step;
+    while ((hi < len) && (inclusive ? quantiles[hi] <= quantile : quantiles[hi] < quantile)) {
+      lo = hi;
+      step <<= 1;
+      hi = lo + step;
+    }
+    if (hi > len) { hi = len; }
+    while ((hi - lo) > 1) {
+      final int mid = (lo + hi) >>> 1;
+      if (inclusive ? quantiles[mid] <= quantile : quantiles[mid] < quantile) { lo = mid; }
+      else { hi = mid; }
+    }
+    return lo;
+  }
+
 }
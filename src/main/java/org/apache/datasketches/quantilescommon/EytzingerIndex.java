@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantilescommon;
+
+/**
+ * A search index over the sorted quantiles and cumulative weights of a DoublesSketchSortedView,
+ * FloatsSketchSortedView or LongsSketchSortedView, which holds copies of both arrays in the Eytzinger (breadth-first) order.
+ *
+ * <p>In the Eytzinger order the root of the implicit binary search tree is at position 1 and the
+ * children of position <i>k</i> are at positions <i>2k</i> and <i>2k + 1</i>. A search descends
+ * from the root with one comparison per level, which the JIT compiles into a conditional move
+ * instead of a branch, and the first few levels of the tree, which every search touches, share
+ * a small number of cache lines. For large sorted views this is considerably faster than a
+ * classic binary search, which suffers from both branch mispredictions and cache misses.</p>
+ *
+ * <p>The results are identical to those of {@link InequalitySearch} with the GE and GT criteria
+ * for the cumulative weights and the LE and LT criteria for the quantiles. The index is immutable
+ * and therefore safe to publish to other threads without synchronization.</p>
+ */
+final class EytzingerIndex {
+
+  /**
+   * The minimum number of retained quantiles of a sorted view for which an index is built.
+   * Below this size the arrays fit into a few cache lines and the classic search is as fast.
+   */
+  static final int MIN_INDEX_LENGTH = 256;
+
+  private final int[] sortedIndex; //position to index in sorted order, position 0 unused
+  private final long[] cumWeights;
+  private final double[] dQuantiles; //only one of the three quantiles arrays is not null
+  private final float[] fQuantiles;
+  private final long[] lQuantiles;
+
+  private EytzingerIndex(final int[] sortedIndex, final long[] cumWeights,
+      final double[] dQuantiles, final float[] fQuantiles, final long[] lQuantiles) {
+    this.sortedIndex = sortedIndex;
+    this.cumWeights = cumWeights;
+    this.dQuantiles = dQuantiles;
+    this.fQuantiles = fQuantiles;
+    this.lQuantiles = lQuantiles;
+  }
+
+  /**
+   * Builds the index for the given sorted arrays of a double sorted view.
+   * @param quantiles the sorted quantiles
+   * @param cumWeights the cumulative weights, parallel to the quantiles
+   * @return the index
+   */
+  static EytzingerIndex build(final double[] quantiles, final long[] cumWeights) {
+    final int n = quantiles.length;
+    final int[] sortedIndex = new int[n + 1];
+    layout(sortedIndex, 0, 1);
+    final long[] eCumWeights = new long[n + 1];
+    final double[] eQuantiles = new double[n + 1];
+    for (int k = 1; k <= n; k++) {
+      eCumWeights[k] = cumWeights[sortedIndex[k]];
+      eQuantiles[k] = quantiles[sortedIndex[k]];
+    }
+    return new EytzingerIndex(sortedIndex, eCumWeights, eQuantiles, null, null);
+  }
+
+  /**
+   * Builds the index for the given sorted arrays of a float sorted view.
+   * @param quantiles the sorted quantiles
+   * @param cumWeights the cumulative weights, parallel to the quantiles
+   * @return the index
+   */
+  static EytzingerIndex build(final float[] quantiles, final long[] cumWeights) {
+    final int n = quantiles.length;
+    final int[] sortedIndex = new int[n + 1];
+    layout(sortedIndex, 0, 1);
+    final long[] eCumWeights = new long[n + 1];
+    final float[] eQuantiles = new float[n + 1];
+    for (int k = 1; k <= n; k++) {
+      eCumWeights[k] = cumWeights[sortedIndex[k]];
+      eQuantiles[k] = quantiles[sortedIndex[k]];
+    }
+    return new EytzingerIndex(sortedIndex, eCumWeights, null, eQuantiles, null);
+  }
+
+  /**
+   * Builds the index for the given sorted arrays of a long sorted view.
+   * @param quantiles the sorted quantiles
+   * @param cumWeights the cumulative weights, parallel to the quantiles
+   * @return the index
+   */
+  static EytzingerIndex build(final long[] quantiles, final long[] cumWeights) {
+    final int n = quantiles.length;
+    final int[] sortedIndex = new int[n + 1];
+    layout(sortedIndex, 0, 1);
+    final long[] eCumWeights = new long[n + 1];
+    final long[] eQuantiles = new long[n + 1];
+    for (int k = 1; k <= n; k++) {
+      eCumWeights[k] = cumWeights[sortedIndex[k]];
+      eQuantiles[k] = quantiles[sortedIndex[k]];
+    }
+    return new EytzingerIndex(sortedIndex, eCumWeights, null, null, eQuantiles);
+  }
+
+  /**
+   * Returns the sorted index of the first cumulative weight that is &ge; the given natural rank if
+   * <i>inclusive</i> (GE), or &gt; the given natural rank otherwise (GT).
+   * @param naturalRank the given natural rank
+   * @param inclusive true for the GE criterion, false for the GT criterion
+   * @return the sorted index of the first qualifying cumulative weight, or -1 if none.
+   */
+  int findCumWeight(final double naturalRank, final boolean inclusive) {
+    final long[] arr = cumWeights;
+    final int n = arr.length - 1;
+    int k = 1;
+    if (inclusive) {
+      while (k <= n) { k = (k << 1) + (arr[k] < naturalRank ? 1 : 0); }
+    } else {
+      while (k <= n) { k = (k << 1) + (arr[k] <= naturalRank ? 1 : 0); }
+    }
+    k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+    return (k == 0) ? -1 : sortedIndex[k];
+  }
+
+  /**
+   * Returns the sorted index of the last double quantile that is &le; the given quantile if
+   * <i>inclusive</i> (LE), or &lt; the given quantile otherwise (LT).
+   * @param quantile the given quantile, which must not be NaN
+   * @param inclusive true for the LE criterion, false for the LT criterion
+   * @return the sorted index of the last qualifying quantile, or -1 if none.
+   */
+  int findQuantile(final double quantile, final boolean inclusive) {
+    final double[] arr = dQuantiles;
+    final int n = arr.length - 1;
+    int k = 1;
+    if (inclusive) {
+      while (k <= n) { k = (k << 1) + (arr[k] <= quantile ? 1 : 0); }
+    } else {
+      while (k <= n) { k = (k << 1) + (arr[k] < quantile ? 1 : 0); }
+    }
+    k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+    //k is the position of the first non-qualifying quantile, the answer is the one before it
+    return ((k == 0) ? n : sortedIndex[k]) - 1;
+  }
+
+  /**
+   * Returns the sorted index of the last float quantile that is &le; the given quantile if
+   * <i>inclusive</i> (LE), or &lt; the given quantile otherwise (LT).
+   * @param quantile the given quantile, which must not be NaN
+   * @param inclusive true for the LE criterion, false for the LT criterion
+   * @return the sorted index of the last qualifying quantile, or -1 if none.
+   */
+  int findQuantile(final float quantile, final boolean inclusive) {
+    final float[] arr = fQuantiles;
+    final int n = arr.length - 1;
+    int k = 1;
+    if (inclusive) {
+      while (k <= n) { k = (k << 1) + (arr[k] <= quantile ? 1 : 0); }
+    } else {
+      while (k <= n) { k = (k << 1) + (arr[k] < quantile ? 1 : 0); }
+    }
+    k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+    return ((k == 0) ? n : sortedIndex[k]) - 1;
+  }
+
+  /**
+   * Returns the sorted index of the last long quantile that is &le; the given quantile if
+   * <i>inclusive</i> (LE), or &lt; the given quantile otherwise (LT).
+   * @param quantile the given quantile, which must not be NaN
+   * @param inclusive true for the LE criterion, false for the LT criterion
+   * @return the sorted index of the last qualifying quantile, or -1 if none.
+   */
+  int findQuantile(final long quantile, final boolean inclusive) {
+    final long[] arr = lQuantiles;
+    final int n = arr.length - 1;
+    int k = 1;
+    if (inclusive) {
+      while (k <= n) { k = (k << 1) + (arr[k] <= quantile ? 1 : 0); }
+    } else {
+      while (k <= n) { k = (k << 1) + (arr[k] < quantile ? 1 : 0); }
+    }
+    k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+    return ((k == 0) ? n : sortedIndex[k]) - 1;
+  }
+
+  /**
+   * Fills the positions of the subtree rooted at position <i>k</i> with consecutive sorted
+   * indices by an in-order traversal, starting at sorted index <i>i</i>.
+   * @param sortedIndex the array to fill, where position 0 is unused
+   * @param i the next sorted index to assign
+   * @param k the root position of the subtree
+   * @return the next sorted index to assign after the subtree
+   */
+  private static int layout(final int[] sortedIndex, final int i, final int k) {
+    if (k >= sortedIndex.length) { return i; }
+    final int next = layout(sortedIndex, i, k << 1);
+    sortedIndex[k] = next;
+    return layout(sortedIndex, next + 1, (k << 1) + 1);
+  }
+}
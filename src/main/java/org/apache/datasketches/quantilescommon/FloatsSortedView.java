@@ -61,14 +61,26 @@ public interface FloatsSortedView extends SortedView {
    * @throws IllegalArgumentException if sketch is empty.
    */
   default double[] getCDF(float[] splitPoints, QuantileSearchCriteria searchCrit) {
+    final double[] buckets = new double[splitPoints.length + 1];
+    getCDF(splitPoints, searchCrit, buckets);
+    return buckets;
+  }
+
+  /**
+   * Computes the same CDF as {@link #getCDF(float[], QuantileSearchCriteria)}, but writes it into the
+   * given array instead of allocating a new one.
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing items.
+   * @param searchCrit the desired search criteria.
+   * @param cdf the destination array, which must have a length of at least <i>m+1</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getCDF(float[] splitPoints, QuantileSearchCriteria searchCrit, double[] cdf) {
     QuantilesUtil.checkFloatsSplitPointsOrder(splitPoints);
     final int len = splitPoints.length + 1;
-    final double[] buckets = new double[len];
-    for (int i = 0; i < len - 1; i++) {
-      buckets[i] = getRank(splitPoints[i], searchCrit);
-    }
-    buckets[len - 1] = 1.0;
-    return buckets;
+    QuantilesUtil.checkDestinationLength(cdf.length, len);
+    getRanks(splitPoints, searchCrit, cdf);
+    cdf[len - 1] = 1.0;
   }
 
   /**
@@ -130,14 +142,27 @@ public interface FloatsSortedView extends SortedView {
    * @throws IllegalArgumentException if sketch is empty.
    */
   default double[] getPMF(float[] splitPoints,  QuantileSearchCriteria searchCrit) {
-    final double[] buckets = getCDF(splitPoints, searchCrit);
-    final int len = buckets.length;
-    for (int i = len; i-- > 1; ) {
-      buckets[i] -= buckets[i - 1];
-    }
+    final double[] buckets = new double[splitPoints.length + 1];
+    getPMF(splitPoints, searchCrit, buckets);
     return buckets;
   }
 
+  /**
+   * Computes the same PMF as {@link #getPMF(float[], QuantileSearchCriteria)}, but writes it into the
+   * given array instead of allocating a new one.
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing items.
+   * @param searchCrit the desired search criteria.
+   * @param pmf the destination array, which must have a length of at least <i>m+1</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getPMF(float[] splitPoints,  QuantileSearchCriteria searchCrit, double[] pmf) {
+    getCDF(splitPoints, searchCrit, pmf);
+    for (int i = splitPoints.length + 1; i-- > 1; ) {
+      pmf[i] -= pmf[i - 1];
+    }
+  }
+
   /**
    * Gets the approximate quantile of the given normalized rank and the given search criterion.
    *
@@ -152,6 +177,26 @@ public interface FloatsSortedView extends SortedView {
    */
   float getQuantile(double rank, QuantileSearchCriteria searchCrit);
 
+  /**
+   * Gets the approximate quantiles of the given normalized ranks and writes them into the given array.
+   *
+   * <p>This is equivalent to calling {@link #getQuantile(double, QuantileSearchCriteria)} for each rank, but
+   * implementations may answer monotonically increasing ranks with a single forward search over the sorted view,
+   * and nothing is allocated.</p>
+   *
+   * @param ranks the given normalized ranks, each a double in the range [0.0, 1.0].
+   * @param searchCrit the desired search criteria.
+   * @param quantiles the destination array, which must be at least as long as <i>ranks</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getQuantiles(double[] ranks, QuantileSearchCriteria searchCrit, float[] quantiles) {
+    final int len = ranks.length;
+    QuantilesUtil.checkDestinationLength(quantiles.length, len);
+    for (int i = 0; i < len; i++) {
+      quantiles[i] = getQuantile(ranks[i], searchCrit);
+    }
+  }
+
   /**
    * Returns an array of all retained quantiles by the sketch.
    * @return an array of all retained quantiles by the sketch.
@@ -169,6 +214,26 @@ public interface FloatsSortedView extends SortedView {
    */
   double getRank(float quantile, QuantileSearchCriteria searchCrit);
 
+  /**
+   * Gets the normalized ranks of the given quantiles and writes them into the given array.
+   *
+   * <p>This is equivalent to calling {@link #getRank(float, QuantileSearchCriteria)} for each quantile, but
+   * implementations may answer monotonically increasing quantiles with a single forward search over the sorted view,
+   * and nothing is allocated.</p>
+   *
+   * @param quantiles the given quantiles
+   * @param searchCrit if INCLUSIVE the given quantiles are included into the ranks.
+   * @param ranks the destination array, which must be at least as long as <i>quantiles</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getRanks(float[] quantiles, QuantileSearchCriteria searchCrit, double[] ranks) {
+    final int len = quantiles.length;
+    QuantilesUtil.checkDestinationLength(ranks.length, len);
+    for (int i = 0; i < len; i++) {
+      ranks[i] = getRank(quantiles[i], searchCrit);
+    }
+  }
+
   @Override
   FloatsSortedViewIterator iterator();
 
@@ -70,15 +70,27 @@ public interface GenericSortedView<T>  extends PartitioningFeature<T>, SketchPar
    * @throws IllegalArgumentException if sketch is empty.
    */
   default double[] getCDF(final T[] splitPoints, final QuantileSearchCriteria searchCrit) {
+    final double[] buckets = new double[splitPoints.length + 1];
+    getCDF(splitPoints, searchCrit, buckets);
+    return buckets;
+  }
+
+  /**
+   * Computes the same CDF as {@link #getCDF(Object[], QuantileSearchCriteria)}, but writes it into the
+   * given array instead of allocating a new one.
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing items.
+   * @param searchCrit the desired search criteria.
+   * @param cdf the destination array, which must have a length of at least <i>m+1</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getCDF(final T[] splitPoints, final QuantileSearchCriteria searchCrit, final double[] cdf) {
     if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
     GenericSortedView.validateItems(splitPoints, getComparator());
     final int len = splitPoints.length + 1;
-    final double[] buckets = new double[len];
-    for (int i = 0; i < len - 1; i++) {
-      buckets[i] = getRank(splitPoints[i], searchCrit);
-    }
-    buckets[len - 1] = 1.0;
-    return buckets;
+    QuantilesUtil.checkDestinationLength(cdf.length, len);
+    getRanks(splitPoints, searchCrit, cdf);
+    cdf[len - 1] = 1.0;
   }
 
   /**
@@ -146,15 +158,27 @@ public interface GenericSortedView<T>  extends PartitioningFeature<T>, SketchPar
    * @throws IllegalArgumentException if sketch is empty.
    */
   default double[] getPMF(final T[] splitPoints, final QuantileSearchCriteria searchCrit) {
-    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
-    GenericSortedView.validateItems(splitPoints, getComparator());
-    final double[] buckets = getCDF(splitPoints, searchCrit);
-    for (int i = buckets.length; i-- > 1; ) {
-      buckets[i] -= buckets[i - 1];
-    }
+    final double[] buckets = new double[splitPoints.length + 1];
+    getPMF(splitPoints, searchCrit, buckets);
     return buckets;
   }
 
+  /**
+   * Computes the same PMF as {@link #getPMF(Object[], QuantileSearchCriteria)}, but writes it into the
+   * given array instead of allocating a new one.
+   *
+   * @param splitPoints an array of <i>m</i> unique, monotonically increasing items.
+   * @param searchCrit the desired search criteria.
+   * @param pmf the destination array, which must have a length of at least <i>m+1</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getPMF(final T[] splitPoints, final QuantileSearchCriteria searchCrit, final double[] pmf) {
+    getCDF(splitPoints, searchCrit, pmf);
+    for (int i = splitPoints.length + 1; i-- > 1; ) {
+      pmf[i] -= pmf[i - 1];
+    }
+  }
+
   /**
    * Gets the approximate quantile of the given normalized rank and the given search criterion.
    *
@@ -169,6 +193,26 @@ public interface GenericSortedView<T>  extends PartitioningFeature<T>, SketchPar
    */
   T getQuantile(double rank, QuantileSearchCriteria searchCrit);
 
+  /**
+   * Gets the approximate quantiles of the given normalized ranks and writes them into the given array.
+   *
+   * <p>This is equivalent to calling {@link #getQuantile(double, QuantileSearchCriteria)} for each rank, but
+   * implementations may answer monotonically increasing ranks with a single forward search over the sorted view,
+   * and nothing is allocated.</p>
+   *
+   * @param ranks the given normalized ranks, each a double in the range [0.0, 1.0].
+   * @param searchCrit the desired search criteria.
+   * @param quantiles the destination array, which must be at least as long as <i>ranks</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getQuantiles(final double[] ranks, final QuantileSearchCriteria searchCrit, final T[] quantiles) {
+    final int len = ranks.length;
+    QuantilesUtil.checkDestinationLength(quantiles.length, len);
+    for (int i = 0; i < len; i++) {
+      quantiles[i] = getQuantile(ranks[i], searchCrit);
+    }
+  }
+
   /**
    * Returns the full array of quantiles.
    * @return the full array of quantiles.
@@ -186,6 +230,26 @@ public interface GenericSortedView<T>  extends PartitioningFeature<T>, SketchPar
    */
   double getRank(T quantile, QuantileSearchCriteria searchCrit);
 
+  /**
+   * Gets the normalized ranks of the given quantiles and writes them into the given array.
+   *
+   * <p>This is equivalent to calling {@link #getRank(Object, QuantileSearchCriteria)} for each quantile, but
+   * implementations may answer monotonically increasing quantiles with a single forward search over the sorted view,
+   * and nothing is allocated.</p>
+   *
+   * @param quantiles the given quantiles
+   * @param searchCrit if INCLUSIVE the given quantiles are included into the ranks.
+   * @param ranks the destination array, which must be at least as long as <i>quantiles</i>.
+   * @throws IllegalArgumentException if sketch is empty or the destination array is too short.
+   */
+  default void getRanks(final T[] quantiles, final QuantileSearchCriteria searchCrit, final double[] ranks) {
+    final int len = quantiles.length;
+    QuantilesUtil.checkDestinationLength(ranks.length, len);
+    for (int i = 0; i < len; i++) {
+      ranks[i] = getRank(quantiles[i], searchCrit);
+    }
+  }
+
   @Override
   GenericSortedViewIterator<T> iterator();
 
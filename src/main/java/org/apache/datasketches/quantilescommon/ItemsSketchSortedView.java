@@ -210,12 +210,31 @@ public class ItemsSketchSortedView<T> implements GenericSortedView<T> {
     if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
     final int len = ranks.length;
     final T[] quants = (T[]) Array.newInstance(clazz, len);
-    for (int i = 0; i < len; i++) {
-      quants[i] = getQuantile(ranks[i], searchCrit);
-    }
+    getQuantiles(ranks, searchCrit, quants);
     return quants;
   }
 
+  @Override
+  public void getQuantiles(final double[] ranks, final QuantileSearchCriteria searchCrit, final T[] quantiles) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    final int numRanks = ranks.length;
+    QuantilesUtil.checkDestinationLength(quantiles.length, numRanks);
+    if (!QuantilesUtil.isSorted(ranks)) {
+      for (int i = 0; i < numRanks; i++) { quantiles[i] = getQuantile(ranks[i], searchCrit); }
+      return;
+    }
+    //the ranks are sorted, so each search can start where the previous one ended
+    final int len = cumWeights.length;
+    final boolean inclusive = searchCrit == INCLUSIVE;
+    int index = 0;
+    for (int i = 0; i < numRanks; i++) {
+      QuantilesUtil.checkNormalizedRankBounds(ranks[i]);
+      final double naturalRank = getNaturalRank(ranks[i], totalN, searchCrit);
+      index = QuantilesUtil.gallopCumWeights(cumWeights, naturalRank, inclusive, index);
+      quantiles[i] = (index == len) ? this.quantiles[len - 1] : this.quantiles[index];
+    }
+  }
+
   @Override
   public T[] getQuantiles() {
     return quantiles.clone();
@@ -233,6 +252,24 @@ public class ItemsSketchSortedView<T> implements GenericSortedView<T> {
     return (double)cumWeights[index] / totalN;
   }
 
+  @Override
+  public void getRanks(final T[] quantiles, final QuantileSearchCriteria searchCrit, final double[] ranks) {
+    if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+    final int numQuantiles = quantiles.length;
+    QuantilesUtil.checkDestinationLength(ranks.length, numQuantiles);
+    if (!isSorted(quantiles)) {
+      for (int i = 0; i < numQuantiles; i++) { ranks[i] = getRank(quantiles[i], searchCrit); }
+      return;
+    }
+    //the quantiles are sorted, so each search can start where the previous one ended
+    final boolean inclusive = searchCrit == INCLUSIVE;
+    int index = -1;
+    for (int i = 0; i < numQuantiles; i++) {
+      index = gallopQuantiles(quantiles[i], inclusive, index);
+      ranks[i] = (index == -1) ? 0 : (double)cumWeights[index] / totalN;
+    }
+  }
+
   @Override
   public boolean isEmpty() {
     return totalN == 0;
@@ -243,4 +280,53 @@ public class ItemsSketchSortedView<T> implements GenericSortedView<T> {
     return new GenericSortedViewIterator<>(quantiles, cumWeights);
   }
 
+  /**
+   * Returns true if the given items are in non-decreasing order and none of them is null.
+   * @param items the given items
+   * @return true if the given items are sorted.
+   */
+  private boolean isSorted(final T[] items) {
+    final int len = items.length;
+    if ((len == 1) && (items[0] == null)) { return false; }
+    for (int j = 0; j < (len - 1); j++) {
+      if ((items[j] == null) || (items[j + 1] == null) || (comparator.compare(items[j], items[j + 1]) > 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the index of the last retained quantile at or after the given start index that is &le; the given
+   * quantile if <i>inclusive</i>, or &lt; the given quantile otherwise. The search gallops forward from the start
+   * index, which must be -1 or the index of a qualifying quantile.
+   * @param quantile the given quantile
+   * @param inclusive true for the INCLUSIVE (LE) criterion, false for the EXCLUSIVE (LT) criterion.
+   * @param start the index to start the search from
+   * @return the index of the last qualifying retained quantile, or -1 if none.
+   */
+  private int gallopQuantiles(final T quantile, final boolean inclusive, final int start) {
+    final int len = quantiles.length;
+    int lo = start; //the last index known to qualify
+    int step = 1;
+    int hi = lo + step;
+    while ((hi < len) && qualifies(quantiles[hi], quantile, inclusive)) {
+      lo = hi;
+      step <<= 1;
+      hi = lo + step;
+    }
+    if (hi > len) { hi = len; }
+    while ((hi - lo) > 1) {
+      final int mid = (lo + hi) >>> 1;
+      if (qualifies(quantiles[mid], quantile, inclusive)) { lo = mid; }
+      else { hi = mid; }
+    }
+    return lo;
+  }
+
+  private boolean qualifies(final T item, final T quantile, final boolean inclusive) {
+    final int cmp = comparator.compare(item, quantile);
+    return inclusive ? cmp <= 0 : cmp < 0;
+  }
+
 }
@@ -48,6 +48,90 @@ public final class QuantilesUtil {
     }
   }
 
+  /**
+   * Checks that a destination array is long enough to receive the requested number of results.
+   * @param dstLength the length of the destination array
+   * @param reqLength the required number of results
+   */
+  public static final void checkDestinationLength(final int dstLength, final int reqLength) {
+    if (dstLength < reqLength) {
+      throw new SketchesArgumentException(
+          "The destination array length must be >= " + reqLength + ": " + dstLength);
+    }
+  }
+
+  /**
+   * Returns true if the given array of double values is monotonically non-decreasing and contains no NaN.
+   * @param values the given array of double values
+   * @return true if the given array is sorted.
+   */
+  static boolean isSorted(final double[] values) {
+    final int len = values.length;
+    if ((len == 1) && Double.isNaN(values[0])) { return false; }
+    for (int j = 0; j < (len - 1); j++) {
+      if (!(values[j] <= values[j + 1])) { return false; }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the given array of float values is monotonically non-decreasing and contains no NaN.
+   * @param values the given array of float values
+   * @return true if the given array is sorted.
+   */
+  static boolean isSorted(final float[] values) {
+    final int len = values.length;
+    if ((len == 1) && Float.isNaN(values[0])) { return false; }
+    for (int j = 0; j < (len - 1); j++) {
+      if (!(values[j] <= values[j + 1])) { return false; }
+    }
+    return true;
+  }
+
+  /**
+   * Returns true if the given array of long values is monotonically non-decreasing.
+   * @param values the given array of long values
+   * @return true if the given array is sorted.
+   */
+  static boolean isSorted(final long[] values) {
+    final int len = values.length;
+    for (int j = 0; j < (len - 1); j++) {
+      if (values[j] > values[j + 1]) { return false; }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the index of the first cumulative weight at or after the given start index that is &ge; the given
+   * natural rank if <i>inclusive</i>, or &gt; the given natural rank otherwise. The search gallops forward from
+   * the start index, so a monotonically increasing sequence of natural ranks can be resolved in a single pass
+   * by starting each search at the index returned by the previous one.
+   * @param cumWeights the sorted cumulative weights
+   * @param naturalRank the given natural rank
+   * @param inclusive true for the INCLUSIVE (GE) criterion, false for the EXCLUSIVE (GT) criterion.
+   * @param start the index to start the search from. All cumulative weights before it must not qualify.
+   * @return the index of the first qualifying cumulative weight, or the length of <i>cumWeights</i> if none.
+   */
+  static int gallopCumWeights(final long[] cumWeights, final double naturalRank, final boolean inclusive,
+      final int start) {
+    final int len = cumWeights.length;
+    int lo = start - 1; //the last index known not to qualify
+    int step = 1;
+    int hi = lo + step;
+    while ((hi < len) && (inclusive ? cumWeights[hi] < naturalRank : cumWeights[hi] <= naturalRank)) {
+      lo = hi;
+      step <<= 1;
+      hi = lo + step;
+    }
+    if (hi > len) { hi = len; }
+    while ((hi - lo) > 1) {
+      final int mid = (lo + hi) >>> 1;
+      if (inclusive ? cumWeights[mid] < naturalRank : cumWeights[mid] <= naturalRank) { lo = mid; }
+      else { hi = mid; }
+    }
+    return hi;
+  }
+
   /**
    * Checks the sequential validity of the given array of double values.
    * They must be unique, monotonically increasing and not NaN.
@@ -138,6 +222,21 @@ public final class QuantilesUtil {
     return out;
   }
 
+  /**
+   * Checks the sequential validity of the given array of long values.
+   * They must be unique and monotonically increasing.
+   * @param values the given array of long values
+   */
+  public static final void checkLongsSplitPointsOrder(final long[] values) {
+    Objects.requireNonNull(values);
+    final int len = values.length;
+    for (int j = 0; j < len - 1; j++) {
+      if (values[j] < values[j + 1]) { continue; }
+      throw new SketchesArgumentException(
+          "Values must be unique and monotonically increasing.");
+    }
+  }
+
   /**
    * Returns a float array of evenly spaced values between value1, inclusive, and value2 inclusive.
    * If value2 &gt; value1, the resulting sequence will be increasing.
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantilescommon;
+
+import java.nio.ByteOrder;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * The binary format of the serialized DoublesSortedView, FloatsSortedView and LongsSortedView.
+ *
+ * <p>All values are little-endian, independent of the native byte order of the platform, and are
+ * read as little-endian whatever the byte order of a wrapped Memory. The preamble is two longs, followed by the array of
+ * cumulative weights and the array of quantiles, in the same order as the sorted view.
+ * Both arrays start at 8-byte aligned offsets, so a serialized view can be searched in place
+ * without copying, e.g., from a memory-mapped file.</p>
+ *
+ * <pre>
+ * Long || Start Byte Adr:
+ * Adr:
+ *      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |     0          |
+ *  0   ||------------numRetained--------------| unused |  Type  | SerVer | PreambleLongs  |
+ *
+ *      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |     8          |
+ *  1   ||-----------------------------------N-----------------------------------------|
+ *
+ *      ||   23   |   22   |   21   |   20   |   19   |   18   |   17   |    16          |
+ *  2+  ||--cumWeights[numRetained] (longs), then quantiles[numRetained] (doubles, floats or longs)--|
+ * </pre>
+ */
+final class SortedViewFormat {
+  static final int PREAMBLE_LONGS = 2;
+  static final int SER_VER = 1;
+  static final int DOUBLES_TYPE = 1;
+  static final int FLOATS_TYPE = 2;
+  static final int LONGS_TYPE = 3;
+
+  static final int PREAMBLE_LONGS_BYTE = 0;
+  static final int SER_VER_BYTE = 1;
+  static final int TYPE_BYTE = 2;
+  static final int NUM_RETAINED_INT = 4;
+  static final int N_LONG = 8;
+  static final int DATA_START = PREAMBLE_LONGS << 3;
+
+  private SortedViewFormat() {}
+
+  /**
+   * Returns the serialized size in bytes of a sorted view.
+   * @param numRetained the number of retained quantiles
+   * @param itemBytes the size of a quantile in bytes
+   * @return the serialized size in bytes
+   */
+  static long getSerializedSizeBytes(final int numRetained, final int itemBytes) {
+    return DATA_START + ((long) numRetained * (Long.BYTES + itemBytes));
+  }
+
+  /**
+   * Returns a little-endian WritableMemory over the given array, for writing a sorted view.
+   * @param bytes the given array
+   * @return a little-endian WritableMemory over the given array
+   */
+  static WritableMemory writableWrap(final byte[] bytes) {
+    return WritableMemory.writableWrap(bytes, ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Returns the given Memory, viewed as little-endian if it is not already.
+   * @param mem the given Memory
+   * @return a little-endian view of the given Memory
+   */
+  static Memory asLittleEndian(final Memory mem) {
+    return mem.getTypeByteOrder() == ByteOrder.LITTLE_ENDIAN
+        ? mem : mem.region(0, mem.getCapacity(), ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Writes the preamble and the cumulative weights.
+   * @param wmem the destination
+   * @param type the type of the quantiles
+   * @param cumWeights the cumulative weights
+   * @param n the total number of items represented by the view
+   */
+  static void putPreambleAndCumWeights(final WritableMemory wmem, final int type,
+      final long[] cumWeights, final long n) {
+    wmem.putByte(PREAMBLE_LONGS_BYTE, (byte) PREAMBLE_LONGS);
+    wmem.putByte(SER_VER_BYTE, (byte) SER_VER);
+    wmem.putByte(TYPE_BYTE, (byte) type);
+    wmem.putInt(NUM_RETAINED_INT, cumWeights.length);
+    wmem.putLong(N_LONG, n);
+    wmem.putLongArray(DATA_START, cumWeights, 0, cumWeights.length);
+  }
+
+  /**
+   * Checks the preamble of a serialized sorted view and returns the number of retained quantiles.
+   * @param mem the serialized sorted view
+   * @param type the expected type of the quantiles
+   * @param itemBytes the size of a quantile in bytes
+   * @return the number of retained quantiles
+   */
+  static int checkPreamble(final Memory mem, final int type, final int itemBytes) {
+    final long capBytes = mem.getCapacity();
+    if (capBytes < DATA_START) {
+      throw new SketchesArgumentException("Memory too small for a sorted view: " + capBytes);
+    }
+    final int preLongs = mem.getByte(PREAMBLE_LONGS_BYTE) & 0XFF;
+    final int serVer = mem.getByte(SER_VER_BYTE) & 0XFF;
+    final int memType = mem.getByte(TYPE_BYTE) & 0XFF;
+    if ((preLongs != PREAMBLE_LONGS) || (serVer != SER_VER)) {
+      throw new SketchesArgumentException("Possible Corruption: invalid sorted view preamble, preLongs: "
+          + preLongs + ", serVer: " + serVer);
+    }
+    if (memType != type) {
+      throw new SketchesArgumentException("Possible Corruption: sorted view type " + memType
+          + " does not match the expected type " + type);
+    }
+    final int numRetained = mem.getInt(NUM_RETAINED_INT);
+    final long n = mem.getLong(N_LONG);
+    if ((numRetained < 0) || (n < 0) || ((numRetained == 0) != (n == 0))) {
+      throw new SketchesArgumentException("Possible Corruption: numRetained: " + numRetained + ", N: " + n);
+    }
+    final long reqBytes = getSerializedSizeBytes(numRetained, itemBytes);
+    if (capBytes < reqBytes) {
+      throw new SketchesArgumentException("Possible Corruption: Memory capacity " + capBytes
+          + " is less than the required " + reqBytes + " bytes.");
+    }
+    return numRetained;
+  }
+
+  /**
+   * Returns the index of the first cumulative weight that is &ge; the given natural rank if
+   * <i>inclusive</i> (GE), or &gt; the given natural rank otherwise (GT).
+   * @param mem the serialized sorted view
+   * @param numRetained the number of retained quantiles
+   * @param naturalRank the given natural rank
+   * @param inclusive true for the GE criterion, false for the GT criterion
+   * @return the index of the first qualifying cumulative weight, or <i>numRetained</i> if none.
+   */
+  static int searchCumWeights(final Memory mem, final int numRetained, final double naturalRank,
+      final boolean inclusive) {
+    int lo = 0;
+    int hi = numRetained;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      final long cw = mem.getLong(DATA_START + ((long) mid << 3));
+      if (inclusive ? cw < naturalRank : cw <= naturalRank) { lo = mid + 1; }
+      else { hi = mid; }
+    }
+    return lo;
+  }
+}
@@ -0,0 +1,577 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.apache.datasketches.req.ReqSerDe.COMPACT_COMPACTOR_HEADER_BYTES;
+import static org.apache.datasketches.req.ReqSerDe.C_CAPACITY_INT;
+import static org.apache.datasketches.req.ReqSerDe.C_COUNT_INT;
+import static org.apache.datasketches.req.ReqSerDe.C_NUM_SECTIONS_BYTE;
+import static org.apache.datasketches.req.ReqSerDe.C_SECTION_SIZE_FLOAT;
+import static org.apache.datasketches.req.ReqSerDe.DOUBLES_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.EMPTY_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.ESTIMATION_PREAMBLE_BYTES;
+import static org.apache.datasketches.req.ReqSerDe.FAMILY_ID;
+import static org.apache.datasketches.req.ReqSerDe.FLAGS_BYTE;
+import static org.apache.datasketches.req.ReqSerDe.HRA_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.K_SHORT;
+import static org.apache.datasketches.req.ReqSerDe.L0_SORTED_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.MAX_FLOAT;
+import static org.apache.datasketches.req.ReqSerDe.MIN_FLOAT;
+import static org.apache.datasketches.req.ReqSerDe.NUM_COMPACTORS_BYTE;
+import static org.apache.datasketches.req.ReqSerDe.NUM_RAW_ITEMS_BYTE;
+import static org.apache.datasketches.req.ReqSerDe.N_LONG;
+import static org.apache.datasketches.req.ReqSerDe.RAW_ITEMS_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.SER_VER;
+import static org.apache.datasketches.req.ReqSerDe.UPDATABLE_COMPACTOR_HEADER_BYTES;
+import static org.apache.datasketches.req.ReqSerDe.UPDATABLE_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.getUpdatableItemsOffset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesReadOnlyException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.quantilescommon.FloatsSketchSortedView;
+import org.apache.datasketches.quantilescommon.QuantileSearchCriteria;
+import org.apache.datasketches.quantilescommon.QuantilesAPI;
+import org.apache.datasketches.quantilescommon.QuantilesFloatsSketchIterator;
+
+/**
+ * This is the off-heap version of the {@link ReqSketch}, where the compactors and all the state
+ * of the sketch live in a Memory. It is intended for applications that keep many REQ sketches,
+ * as the sketches hold no items on the heap between operations.
+ *
+ * <p>An updatable instance is obtained from {@link ReqSketchBuilder#build(WritableMemory,
+ * MemoryRequestServer)} or {@link ReqSketch#writableWrap(WritableMemory, MemoryRequestServer)}.
+ * Updates append to the level zero compactor in place. When the sketch must compress, or when
+ * another sketch is merged into it, the compactors are temporarily loaded onto the heap,
+ * processed by the same algorithm as the {@link ReqSketch}, and written back. If the result no
+ * longer fits, a larger WritableMemory is obtained from the MemoryRequestServer.</p>
+ *
+ * <p>A read only instance is obtained from {@link ReqSketch#wrap(Memory)}, which accepts both the
+ * compact image produced by <i>toByteArray()</i> and the updatable image. The queries are
+ * answered from the Memory. The sorted view required by the quantile and rank queries is built
+ * on the first query and cached until the next update of this instance.</p>
+ *
+ * <p>Please refer to the documentation of {@link ReqSketch}.</p>
+ */
+public final class DirectReqSketch extends BaseReqSketch {
+  private Memory mem;
+  private WritableMemory wmem; //null if read only
+  private final MemoryRequestServer memReqSvr;
+  private final boolean updatable; //the Memory holds the updatable format
+  private final int k;
+  private final boolean hra;
+  //layout of the compactors, recomputed after every store of the updatable format
+  private int numLevels;
+  private long[] cOffsets; //updatable: the compactor offsets; compact: the items offsets
+  private int[] cCounts; //compact format only
+  private int retItems;
+  private int maxNomSize;
+  //compact format only, as these are not always stored in the compact format
+  private long totalN;
+  private float minItem;
+  private float maxItem;
+  private FloatsSketchSortedView reqSV = null;
+
+  private DirectReqSketch(final Memory mem, final WritableMemory wmem,
+      final MemoryRequestServer memReqSvr) {
+    this.mem = mem;
+    this.wmem = wmem;
+    this.memReqSvr = memReqSvr;
+    final int flags = mem.getByte(FLAGS_BYTE) & 0xFF;
+    updatable = (flags & UPDATABLE_FLAG) > 0;
+    hra = (flags & HRA_FLAG) > 0;
+    k = mem.getShort(K_SHORT) & 0xFFFF;
+    if (updatable) { layoutUpdatable(); } else { layoutCompact(flags); }
+  }
+
+  /**
+   * Writes an empty updatable image into the given WritableMemory.
+   * @param k the given k
+   * @param hra the high rank accuracy mode
+   * @param dstMem the given destination WritableMemory
+   * @param memReqSvr the given MemoryRequestServer to request a larger WritableMemory
+   * @return a new updatable instance
+   */
+  static DirectReqSketch newInstance(final int k, final boolean hra, final WritableMemory dstMem,
+      final MemoryRequestServer memReqSvr) {
+    final ReqSketch sk = new ReqSketch(k, hra, null);
+    final WritableMemory wmem = ensureCapacity(dstMem, ReqSerDe.getUpdatableBytes(sk), memReqSvr);
+    ReqSerDe.putUpdatable(sk, wmem);
+    return new DirectReqSketch(wmem, wmem, memReqSvr);
+  }
+
+  /**
+   * Wraps the given Memory.
+   * @param srcMem the given Memory
+   * @param srcWmem the given Memory as a WritableMemory, or null if read only
+   * @param memReqSvr the given MemoryRequestServer, or null if read only
+   * @return a direct instance of this sketch
+   */
+  static DirectReqSketch wrapInstance(final Memory srcMem, final WritableMemory srcWmem,
+      final MemoryRequestServer memReqSvr) {
+    if (srcMem.getCapacity() < 8) {
+      throw new SketchesArgumentException("Memory capacity is too small: " + srcMem.getCapacity());
+    }
+    final int serVer = srcMem.getByte(1);
+    final int familyId = srcMem.getByte(2);
+    if ((serVer != SER_VER) || (familyId != FAMILY_ID)) {
+      throw new SketchesArgumentException("Possible Corruption: Not a ReqSketch image, SerVer: "
+          + serVer + ", FamilyID: " + familyId);
+    }
+    final int flags = srcMem.getByte(FLAGS_BYTE) & 0xFF;
+    if ((flags & DOUBLES_FLAG) > 0) {
+      throw new SketchesArgumentException("Memory contains a ReqDoublesSketch image.");
+    }
+    if ((srcWmem != null) && ((flags & UPDATABLE_FLAG) == 0)) {
+      throw new SketchesArgumentException(
+          "Memory does not contain an updatable image. Use ReqSketch.heapify(Memory).");
+    }
+    return new DirectReqSketch(srcMem, srcWmem, memReqSvr);
+  }
+
+  @Override
+  public double[] getCDF(final float[] splitPoints, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    return refreshSortedView().getCDF(splitPoints, searchCrit);
+  }
+
+  @Override
+  public boolean getHighRankAccuracyMode() {
+    return hra;
+  }
+
+  @Override
+  public int getK() {
+    return k;
+  }
+
+  @Override
+  public float getMaxItem() {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    return updatable ? mem.getFloat(MAX_FLOAT) : maxItem;
+  }
+
+  @Override
+  public float getMinItem() {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    return updatable ? mem.getFloat(MIN_FLOAT) : minItem;
+  }
+
+  @Override
+  public long getN() {
+    return updatable ? mem.getLong(N_LONG) : totalN;
+  }
+
+  @Override
+  /**
+   * This is an unsupported operation for this sketch
+   */
+  public double getNormalizedRankError(final boolean pmf) {
+    throw new UnsupportedOperationException(UNSUPPORTED_MSG);
+  }
+
+  @Override
+  public double[] getPMF(final float[] splitPoints, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    return refreshSortedView().getPMF(splitPoints, searchCrit);
+  }
+
+  @Override
+  public float getQuantile(final double normRank, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    if (normRank < 0 || normRank > 1.0) {
+      throw new SketchesArgumentException(
+        "Normalized rank must be in the range [0.0, 1.0]: " + normRank);
+    }
+    return refreshSortedView().getQuantile(normRank, searchCrit);
+  }
+
+  @Override
+  public float[] getQuantiles(final double[] normRanks, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    final float[] qArr = new float[normRanks.length];
+    refreshSortedView().getQuantiles(normRanks, searchCrit, qArr);
+    return qArr;
+  }
+
+  @Override
+  public float getQuantileLowerBound(final double rank) {
+    return getQuantile(getRankLowerBound(rank, 2), INCLUSIVE);
+  }
+
+  @Override
+  public float getQuantileLowerBound(final double rank, final int numStdDev) {
+    return getQuantile(getRankLowerBound(rank, numStdDev), INCLUSIVE);
+  }
+
+  @Override
+  public float getQuantileUpperBound(final double rank) {
+    return getQuantile(getRankUpperBound(rank, 2), INCLUSIVE);
+  }
+
+  @Override
+  public float getQuantileUpperBound(final double rank, final int numStdDev) {
+    return getQuantile(getRankUpperBound(rank, numStdDev), INCLUSIVE);
+  }
+
+  @Override
+  public double getRank(final float quantile, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    return refreshSortedView().getRank(quantile, searchCrit);
+  }
+
+  @Override
+  public double getRankLowerBound(final double rank) {
+    return getRankLB(k, numLevels, rank, 2, hra, getN());
+  }
+
+  @Override
+  public double getRankLowerBound(final double rank, final int numStdDev) {
+    return getRankLB(k, numLevels, rank, numStdDev, hra, getN());
+  }
+
+  @Override
+  public double[] getRanks(final float[] quantiles, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    final double[] retArr = new double[quantiles.length];
+    refreshSortedView().getRanks(quantiles, searchCrit, retArr);
+    return retArr;
+  }
+
+  @Override
+  public double getRankUpperBound(final double rank) {
+    return getRankUB(k, numLevels, rank, 2, hra, getN());
+  }
+
+  @Override
+  public double getRankUpperBound(final double rank, final int numStdDev) {
+    return getRankUB(k, numLevels, rank, numStdDev, hra, getN());
+  }
+
+  @Override
+  public int getNumRetained() {
+    return retItems;
+  }
+
+  /**
+   * Returns the size of the compact image produced by {@link #toByteArray()}.
+   * @return the size of the compact image produced by {@link #toByteArray()}.
+   */
+  @Override
+  public int getSerializedSizeBytes() {
+    final long n = getN();
+    if (n == 0) { return 8; }
+    if (n <= ReqSketch.MIN_K) { return 8 + getCount(0) * Float.BYTES; }
+    if (numLevels == 1) { return 8 + COMPACT_COMPACTOR_HEADER_BYTES + getCount(0) * Float.BYTES; }
+    return ESTIMATION_PREAMBLE_BYTES + numLevels * COMPACT_COMPACTOR_HEADER_BYTES
+        + retItems * Float.BYTES;
+  }
+
+  /**
+   * Returns the Memory that holds this sketch. This may change after an update or merge if the
+   * sketch had to grow into a larger WritableMemory.
+   * @return the Memory that holds this sketch.
+   */
+  public Memory getMemory() {
+    return mem;
+  }
+
+  @Override
+  public FloatsSketchSortedView getSortedView() {
+    return refreshSortedView();
+  }
+
+  @Override
+  public boolean hasMemory() {
+    return true;
+  }
+
+  @Override
+  public boolean isDirect() {
+    return mem.isDirect();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return getN() == 0;
+  }
+
+  @Override
+  public boolean isEstimationMode() {
+    return numLevels > 1;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return wmem == null;
+  }
+
+  @Override
+  public QuantilesFloatsSketchIterator iterator() {
+    return new DirectReqSketchIterator();
+  }
+
+  /**
+   * Merge other sketch into this one. The other sketch is not modified.
+   * @param other sketch to be merged into this one.
+   * @return this
+   */
+  public DirectReqSketch merge(final ReqSketch other) {
+    checkWritable();
+    if (other == null || other.isEmpty()) { return this; }
+    final ReqSketch sk = ReqSerDe.heapify(mem);
+    sk.merge(other);
+    store(sk);
+    return this;
+  }
+
+  /**
+   * Merge other sketch into this one. The other sketch is not modified.
+   * @param other sketch to be merged into this one.
+   * @return this
+   */
+  public DirectReqSketch merge(final DirectReqSketch other) {
+    checkWritable();
+    if (other == null || other.isEmpty()) { return this; }
+    return merge(ReqSerDe.heapify(other.mem));
+  }
+
+  @Override
+  public void reset() {
+    checkWritable();
+    store(new ReqSketch(k, hra, null));
+  }
+
+  @Override
+  public byte[] toByteArray() {
+    if (updatable) { return ReqSerDe.heapify(mem).toByteArray(); }
+    final byte[] arr = new byte[getSerializedSizeBytes()];
+    mem.getByteArray(0, arr, 0, arr.length);
+    return arr;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("**********Relative Error Quantiles Sketch Summary**********").append(LS);
+    sb.append("  Direct, ReadOnly: " + (isReadOnly() ? "ReadOnly" : "Updatable")).append(LS);
+    sb.append("  K               : " + k).append(LS);
+    sb.append("  N               : " + getN()).append(LS);
+    sb.append("  Retained Items  : " + retItems).append(LS);
+    sb.append("  Min Item        : " + (isEmpty() ? Float.NaN : getMinItem())).append(LS);
+    sb.append("  Max Item        : " + (isEmpty() ? Float.NaN : getMaxItem())).append(LS);
+    sb.append("  Estimation Mode : " + isEstimationMode()).append(LS);
+    sb.append("  High Rank Acc   : " + hra).append(LS);
+    sb.append("  Levels          : " + numLevels).append(LS);
+    sb.append("************************End Summary************************").append(LS);
+    return sb.toString();
+  }
+
+  @Override
+  public void update(final float item) {
+    checkWritable();
+    if (Float.isNaN(item)) { return; }
+    final long c0 = cOffsets[0];
+    final int count = wmem.getInt(c0 + C_COUNT_INT);
+    final int cap = wmem.getInt(c0 + C_CAPACITY_INT);
+    if ((count == cap) || ((retItems + 1) >= maxNomSize)) {
+      //level zero must grow or the sketch must compress
+      final ReqSketch sk = ReqSerDe.heapify(mem);
+      sk.update(item);
+      store(sk);
+      return;
+    }
+    final long n = wmem.getLong(N_LONG);
+    if (n == 0) {
+      wmem.putFloat(MIN_FLOAT, item);
+      wmem.putFloat(MAX_FLOAT, item);
+    } else {
+      if (item < wmem.getFloat(MIN_FLOAT)) { wmem.putFloat(MIN_FLOAT, item); }
+      if (item > wmem.getFloat(MAX_FLOAT)) { wmem.putFloat(MAX_FLOAT, item); }
+    }
+    final int index = hra ? cap - count - 1 : count;
+    wmem.putFloat(c0 + UPDATABLE_COMPACTOR_HEADER_BYTES + ((long) index * Float.BYTES), item);
+    wmem.putInt(c0 + C_COUNT_INT, count + 1);
+    wmem.putLong(N_LONG, n + 1);
+    final int flags = wmem.getByte(FLAGS_BYTE) & ~(EMPTY_FLAG | L0_SORTED_FLAG);
+    wmem.putByte(FLAGS_BYTE, (byte) flags);
+    retItems++;
+    reqSV = null;
+  }
+
+  @Override
+  public String viewCompactorDetail(final String fmt, final boolean allData) {
+    return ReqSerDe.heapify(mem).viewCompactorDetail(fmt, allData);
+  }
+
+  private void checkWritable() {
+    if (wmem == null) {
+      throw new SketchesReadOnlyException("This sketch is read only.");
+    }
+  }
+
+  private static WritableMemory ensureCapacity(final WritableMemory wmem, final long required,
+      final MemoryRequestServer memReqSvr) {
+    if (wmem.getCapacity() >= required) { return wmem; }
+    if (memReqSvr == null) {
+      throw new SketchesArgumentException("Memory capacity is too small: "
+          + wmem.getCapacity() + " < " + required);
+    }
+    return memReqSvr.request(wmem, required);
+  }
+
+  /**
+   * Writes the given heap sketch back as the updatable image, growing the Memory if necessary.
+   * @param sk the given heap sketch
+   */
+  private void store(final ReqSketch sk) {
+    wmem = ensureCapacity(wmem, ReqSerDe.getUpdatableBytes(sk), memReqSvr);
+    mem = wmem;
+    ReqSerDe.putUpdatable(sk, wmem);
+    layoutUpdatable();
+  }
+
+  private void layoutUpdatable() {
+    numLevels = mem.getByte(NUM_COMPACTORS_BYTE) & 0xFF;
+    cOffsets = new long[numLevels];
+    retItems = 0;
+    maxNomSize = 0;
+    long offset = ESTIMATION_PREAMBLE_BYTES;
+    for (int i = 0; i < numLevels; i++) {
+      cOffsets[i] = offset;
+      retItems += mem.getInt(offset + C_COUNT_INT);
+      final int sectionSize = ReqCompactor.nearestEven(mem.getFloat(offset + C_SECTION_SIZE_FLOAT));
+      final int numSections = mem.getByte(offset + C_NUM_SECTIONS_BYTE) & 0xFF;
+      maxNomSize += ReqSketch.NOM_CAP_MULT * numSections * sectionSize;
+      offset += UPDATABLE_COMPACTOR_HEADER_BYTES + (long) mem.getInt(offset + C_CAPACITY_INT) * Float.BYTES;
+    }
+    reqSV = null;
+  }
+
+  private void layoutCompact(final int flags) {
+    final boolean empty = (flags & EMPTY_FLAG) > 0;
+    final boolean rawItems = (flags & RAW_ITEMS_FLAG) > 0;
+    final int numCompactors = mem.getByte(NUM_COMPACTORS_BYTE) & 0xFF;
+    if (numCompactors <= 1) {
+      numLevels = 1;
+      cOffsets = new long[1];
+      cCounts = new int[1];
+      if (empty) {
+        totalN = 0;
+      } else if (rawItems) { //raw items
+        cOffsets[0] = 8;
+        cCounts[0] = mem.getByte(NUM_RAW_ITEMS_BYTE) & 0xFF;
+        totalN = cCounts[0];
+      } else { //exact
+        cOffsets[0] = 8 + COMPACT_COMPACTOR_HEADER_BYTES;
+        cCounts[0] = mem.getInt(8 + C_COUNT_INT);
+        totalN = cCounts[0];
+      }
+      minItem = Float.NaN;
+      maxItem = Float.NaN;
+      for (int i = 0; i < cCounts[0]; i++) {
+        final float item = mem.getFloat(cOffsets[0] + ((long) i * Float.BYTES));
+        if (Float.isNaN(minItem) || item < minItem) { minItem = item; }
+        if (Float.isNaN(maxItem) || item > maxItem) { maxItem = item; }
+      }
+    } else { //estimation
+      numLevels = numCompactors;
+      cOffsets = new long[numLevels];
+      cCounts = new int[numLevels];
+      totalN = mem.getLong(N_LONG);
+      minItem = mem.getFloat(MIN_FLOAT);
+      maxItem = mem.getFloat(MAX_FLOAT);
+      long offset = ESTIMATION_PREAMBLE_BYTES;
+      for (int i = 0; i < numLevels; i++) {
+        cCounts[i] = mem.getInt(offset + C_COUNT_INT);
+        cOffsets[i] = offset + COMPACT_COMPACTOR_HEADER_BYTES;
+        offset = cOffsets[i] + ((long) cCounts[i] * Float.BYTES);
+      }
+    }
+    retItems = 0;
+    for (int i = 0; i < numLevels; i++) { retItems += cCounts[i]; }
+  }
+
+  private int getCount(final int level) {
+    return updatable ? mem.getInt(cOffsets[level] + C_COUNT_INT) : cCounts[level];
+  }
+
+  private long getItemsOffset(final int level) {
+    if (!updatable) { return cOffsets[level]; }
+    final long cOffset = cOffsets[level];
+    return getUpdatableItemsOffset(cOffset, mem.getInt(cOffset + C_COUNT_INT),
+        mem.getInt(cOffset + C_CAPACITY_INT), hra);
+  }
+
+  private FloatsSketchSortedView refreshSortedView() {
+    if (reqSV == null) {
+      final boolean lvl0Sorted = (mem.getByte(FLAGS_BYTE) & L0_SORTED_FLAG) > 0;
+      final List<FloatBuffer> buffers = new ArrayList<>(numLevels);
+      for (int i = 0; i < numLevels; i++) {
+        final float[] arr = new float[getCount(i)];
+        mem.getFloatArray(getItemsOffset(i), arr, 0, arr.length);
+        buffers.add(FloatBuffer.wrap(arr, (i > 0) || lvl0Sorted, hra));
+      }
+      reqSV = new ReqSketch.CreateSortedView(this, retItems).getSV(buffers);
+    }
+    return reqSV;
+  }
+
+  /**
+   * Iterator over all retained items of the DirectReqSketch. The order is not defined.
+   */
+  private final class DirectReqSketchIterator implements QuantilesFloatsSketchIterator {
+    private int cIndex = 0;
+    private int bIndex = -1;
+    private long itemsOffset = getItemsOffset(0);
+    private int count = getCount(0);
+
+    @Override
+    public float getQuantile() {
+      return mem.getFloat(itemsOffset + ((long) bIndex * Float.BYTES));
+    }
+
+    @Override
+    public long getWeight() {
+      return 1 << cIndex;
+    }
+
+    @Override
+    public boolean next() {
+      while (bIndex == (count - 1)) {
+        if (cIndex == (numLevels - 1)) { return false; }
+        cIndex++;
+        itemsOffset = getItemsOffset(cIndex);
+        count = getCount(cIndex);
+        bIndex = -1;
+      }
+      bIndex++;
+      return true;
+    }
+  }
+
+}
@@ -152,6 +152,28 @@ class FloatBuffer {
     return this;
   }
 
+  /**
+   * Appends the items of the given array that are not NaN to the active array and increments
+   * the active count. This will expand the array at most once.
+   * @param items the given array of items
+   * @param offset the starting index in the given array
+   * @param length the number of items of the given array to append
+   * @return the number of items appended, which excludes any NaNs.
+   */
+  int append(final float[] items, final int offset, final int length) {
+    ensureSpace(length);
+    final int startCount = count_;
+    final int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      final float item = items[i];
+      if (Float.isNaN(item)) { continue; }
+      arr_[spaceAtBottom_ ? capacity_ - count_ - 1 : count_] = item;
+      count_++;
+    }
+    if (count_ > startCount) { sorted_ = false; }
+    return count_ - startCount;
+  }
+
   /**
    * Ensures that the capacity of this FloatBuffer is at least newCapacity.
    * If newCapacity &lt; capacity(), no action is taken.
@@ -119,7 +119,8 @@ class ReqCompactor {
     final int startNomCap = getNomCapacity();
     // choose a part of the buffer to compact
     final int secsToCompact = Math.min(numberOfTrailingOnes(state) + 1, numSections);
-    final long compactionRange = computeCompactionRange(secsToCompact);
+    final long compactionRange = computeCompactionRange(buf.getCount(), getNomCapacity(),
+        numSections, sectionSize, secsToCompact, hra);
     final int compactionStart = (int) (compactionRange & 0xFFFF_FFFFL); //low 32
     final int compactionEnd = (int) (compactionRange >>> 32); //high 32
     assert compactionEnd - compactionStart >= 2;
@@ -225,30 +226,48 @@ class ReqCompactor {
    * @return true if the SectionSize and NumSections were adjusted.
    */
   private boolean ensureEnoughSections() {
-    final float szf;
-    final int ne;
-    if (state >= 1L << numSections - 1
-        && sectionSize > MIN_K
-        && (ne = nearestEven(szf = (float)(sectionSizeFlt / SQRT2))) >= MIN_K)
-    {
-      sectionSizeFlt = szf;
-      sectionSize = ne;
-      numSections <<= 1;
-      buf.ensureCapacity(2 * getNomCapacity());
-      if (reqDebug != null) { reqDebug.emitAdjSecSizeNumSec(lgWeight); }
-      return true;
+    final float szf = getAdjustedSectionSizeFlt(state, numSections, sectionSize, sectionSizeFlt);
+    if (Float.isNaN(szf)) { return false; }
+    sectionSizeFlt = szf;
+    sectionSize = nearestEven(szf);
+    numSections <<= 1;
+    buf.ensureCapacity(2 * getNomCapacity());
+    if (reqDebug != null) { reqDebug.emitAdjSecSizeNumSec(lgWeight); }
+    return true;
+  }
+
+  /**
+   * Returns the reduced sectionSizeFlt if the state of a compactor requires the number of sections
+   * to be doubled, otherwise NaN. Shared with the ReqDoublesCompactor.
+   * @param state the state of the compaction schedule
+   * @param numSections the current number of sections
+   * @param sectionSize the current section size
+   * @param sectionSizeFlt the current section size as a float
+   * @return the reduced sectionSizeFlt or NaN.
+   */
+  static float getAdjustedSectionSizeFlt(final long state, final int numSections,
+      final int sectionSize, final float sectionSizeFlt) {
+    if (state >= 1L << numSections - 1 && sectionSize > MIN_K) {
+      final float szf = (float)(sectionSizeFlt / SQRT2);
+      if (nearestEven(szf) >= MIN_K) { return szf; }
     }
-    return false;
+    return Float.NaN;
   }
 
   /**
-   * Computes the start and end indices of the compacted region
+   * Computes the start and end indices of the compacted region. Shared with the
+   * ReqDoublesCompactor.
+   * @param bufLen the number of items in the buffer
+   * @param nomCap the nominal capacity of the compactor
+   * @param numSections the current number of sections
+   * @param sectionSize the current section size
    * @param secsToCompact the number of contiguous sections to compact
+   * @param hra High Rank Accuracy
    * @return the  start and end indices of the compacted region
    */
-  private long computeCompactionRange(final int secsToCompact) {
-    final int bufLen = buf.getCount();
-    int nonCompact = getNomCapacity() / 2 + (numSections - secsToCompact) * sectionSize;
+  static long computeCompactionRange(final int bufLen, final int nomCap, final int numSections,
+      final int sectionSize, final int secsToCompact, final boolean hra) {
+    int nonCompact = nomCap / 2 + (numSections - secsToCompact) * sectionSize;
     //make compacted region even:
     nonCompact = (bufLen - nonCompact & 1) == 1 ? nonCompact + 1 : nonCompact;
     final long low =  hra ? 0                   : nonCompact;
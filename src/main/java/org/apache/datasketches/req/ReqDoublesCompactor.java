@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.apache.datasketches.common.Util.numberOfTrailingOnes;
+import static org.apache.datasketches.req.BaseReqSketch.INIT_NUMBER_OF_SECTIONS;
+import static org.apache.datasketches.req.ReqCompactor.computeCompactionRange;
+import static org.apache.datasketches.req.ReqCompactor.getAdjustedSectionSizeFlt;
+import static org.apache.datasketches.req.ReqCompactor.nearestEven;
+import static org.apache.datasketches.req.ReqSketch.NOM_CAP_MULT;
+
+import java.util.Random;
+
+import org.apache.datasketches.memory.WritableBuffer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.req.ReqSketch.CompactorReturn;
+
+/**
+ * The compactor class for the ReqDoublesSketch. The compaction schedule is shared with the
+ * {@link ReqCompactor}, only the buffer holds doubles.
+ */
+class ReqDoublesCompactor {
+  //finals
+  private final byte lgWeight;
+  private final boolean hra;
+  //state variables
+  private long state; //State of the deterministic compaction schedule
+  private float sectionSizeFlt;
+  private int sectionSize; //initialized with k, minimum 4
+  private byte numSections; //# of sections, initial size 3
+  private boolean coin; //true or false at random for each compaction
+  //objects
+  private DoubleBuffer buf;
+
+  /**
+   * Normal Constructor
+   * @param lgWeight the lgWeight of this compactor
+   * @param hra High Rank Accuracy
+   * @param sectionSize initially the size of k
+   */
+  ReqDoublesCompactor(
+      final byte lgWeight,
+      final boolean hra,
+      final int sectionSize) {
+    this.lgWeight = lgWeight;
+    this.hra = hra;
+    this.sectionSize = sectionSize;
+    sectionSizeFlt = sectionSize;
+    state = 0;
+    coin = false;
+    numSections = INIT_NUMBER_OF_SECTIONS;
+    final int nomCap = getNomCapacity();
+    buf = new DoubleBuffer(2 * nomCap, nomCap, hra);
+  }
+
+  /**
+   * Copy Constructor
+   * @param other the compactor to be copied into this one
+   */
+  ReqDoublesCompactor(final ReqDoublesCompactor other) {
+    lgWeight = other.lgWeight;
+    hra = other.hra;
+    sectionSizeFlt = other.sectionSizeFlt;
+    numSections = other.numSections;
+    sectionSize = other.sectionSize;
+    state = other.state;
+    coin = other.coin;
+    buf = new DoubleBuffer(other.buf);
+  }
+
+  /**
+   * Construct from elements. The buffer will need to be constructed first
+   */
+  ReqDoublesCompactor(
+      final byte lgWeight,
+      final boolean hra,
+      final long state,
+      final float sectionSizeFlt,
+      final byte numSections,
+      final DoubleBuffer buf) {
+    this.lgWeight = lgWeight;
+    this.hra = hra;
+    this.buf = buf;
+    this.sectionSizeFlt = sectionSizeFlt;
+    this.numSections = numSections;
+    this.state = state;
+    coin = false;
+    sectionSize = nearestEven(sectionSizeFlt);
+  }
+
+  /**
+   * Perform a compaction operation on this compactor
+   * @return the array of items to be promoted to the next level compactor
+   */
+  DoubleBuffer compact(final CompactorReturn cReturn, final Random rand) {
+    final int startRetItems = buf.getCount();
+    final int startNomCap = getNomCapacity();
+    // choose a part of the buffer to compact
+    final int secsToCompact = Math.min(numberOfTrailingOnes(state) + 1, numSections);
+    final long compactionRange = computeCompactionRange(buf.getCount(), getNomCapacity(),
+        numSections, sectionSize, secsToCompact, hra);
+    final int compactionStart = (int) (compactionRange & 0xFFFF_FFFFL); //low 32
+    final int compactionEnd = (int) (compactionRange >>> 32); //high 32
+    assert compactionEnd - compactionStart >= 2;
+
+    if ((state & 1L) == 1L) { coin = !coin; } //if numCompactions odd, flip coin;
+    else { coin = rand.nextBoolean(); }       //random coin flip
+
+    final DoubleBuffer promote = buf.getEvensOrOdds(compactionStart, compactionEnd, coin);
+    buf.trimCount(buf.getCount() - (compactionEnd - compactionStart));
+    state += 1;
+    ensureEnoughSections();
+    cReturn.deltaRetItems = buf.getCount() - startRetItems + promote.getCount();
+    cReturn.deltaNomSize = getNomCapacity() - startNomCap;
+    return promote;
+  } //End Compact
+
+  /**
+   * Gets a reference to this compactor's internal DoubleBuffer
+   * @return a reference to this compactor's internal DoubleBuffer
+   */
+  DoubleBuffer getBuffer() { return buf; }
+
+  /**
+   * Gets the lgWeight of this buffer
+   * @return the lgWeight of this buffer
+   */
+  byte getLgWeight() {
+    return lgWeight;
+  }
+
+  /**
+   * Gets the current nominal capacity of this compactor.
+   * @return the current nominal capacity of this compactor.
+   */
+  final int getNomCapacity() { //called from constructor
+    return NOM_CAP_MULT * numSections * sectionSize;
+  }
+
+  /**
+   * Serialize state(8) sectionSizeFlt(4), numSections(1), lgWeight(1), pad(2), count(4) + doubleArr
+   * @return required bytes to serialize.
+   */
+  int getSerializationBytes() {
+    final int count = buf.getCount();
+    return 8 + 4 + 1 + 1 + 2 + 4 + count * Double.BYTES; // 20 + array
+  }
+
+  int getNumSections() {
+    return numSections;
+  }
+
+  int getSectionSize() {
+    return sectionSize;
+  }
+
+  long getState() {
+    return state;
+  }
+
+  /**
+   * Merge the other given compactor into this one. They both must have the
+   * same lgWeight
+   * @param other the other given compactor
+   * @return this
+   */
+  ReqDoublesCompactor merge(final ReqDoublesCompactor other) {
+    assert lgWeight == other.lgWeight;
+    state |= other.state;
+    while (ensureEnoughSections()) {}
+    buf.sort();
+    final DoubleBuffer otherBuf = new DoubleBuffer(other.buf);
+    otherBuf.sort();
+    if (otherBuf.getCount() > buf.getCount()) {
+      otherBuf.mergeSortIn(buf);
+      buf = otherBuf;
+    } else {
+      buf.mergeSortIn(otherBuf);
+    }
+    return this;
+  }
+
+  /**
+   * Adjust the sectionSize and numSections if possible.
+   * @return true if the SectionSize and NumSections were adjusted.
+   */
+  private boolean ensureEnoughSections() {
+    final float szf = getAdjustedSectionSizeFlt(state, numSections, sectionSize, sectionSizeFlt);
+    if (Float.isNaN(szf)) { return false; }
+    sectionSizeFlt = szf;
+    sectionSize = nearestEven(szf);
+    numSections <<= 1;
+    buf.ensureCapacity(2 * getNomCapacity());
+    return true;
+  }
+
+  /**
+   * Serializes this compactor in the format of the {@link ReqCompactor}, except that the items
+   * are doubles.
+   * @return the serialized compactor
+   */
+  byte[] toByteArray() {
+    final int bytes = getSerializationBytes();
+    final byte[] arr = new byte[bytes];
+    final WritableBuffer wbuf = WritableMemory.writableWrap(arr).asWritableBuffer();
+    wbuf.putLong(state);
+    wbuf.putFloat(sectionSizeFlt);
+    wbuf.putByte(lgWeight);
+    wbuf.putByte(numSections);
+    wbuf.incrementPosition(2); //pad 2
+    wbuf.putInt(buf.getCount()); //count
+    wbuf.putByteArray(buf.doublesToBytes(), 0, Double.BYTES * buf.getCount());
+    assert wbuf.getPosition() == bytes;
+    return arr;
+  }
+
+  /**
+   * Returns a printable formatted prefix string summarizing the list.
+   * The first number is the compactor height. the second number in brackets is the current count
+   * of the compactor buffer. The third number in brackets is the nominal capacity of the compactor.
+   * @return a printable formatted prefix string summarizing the list.
+   */
+  String toListPrefix() {
+    return String.format(
+      "  C:%d Len:%d NomSz:%d SecSz:%d NumSec:%d State:%d",
+      getLgWeight(), buf.getCount(), getNomCapacity(), getSectionSize(), getNumSections(), getState());
+  }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static java.lang.Math.max;
+import static java.lang.Math.round;
+import static org.apache.datasketches.req.ReqSerDe.DOUBLES_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.EMPTY_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.FAMILY_ID;
+import static org.apache.datasketches.req.ReqSerDe.HRA_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.L0_SORTED_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.RAW_ITEMS_FLAG;
+import static org.apache.datasketches.req.ReqSerDe.SER_VER;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Buffer;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableBuffer;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.req.ReqSerDe.SerDeFormat;
+
+/**
+ * This class handles serialization and deserialization of the ReqDoublesSketch.
+ *
+ * <p>The formats are the EMPTY, RAWITEMS, EXACT and ESTIMATION formats of the {@link ReqSerDe},
+ * with the following differences:</p>
+ * <ul>
+ * <li>Bit 7 of the flags, the Doubles flag, is always set.</li>
+ * <li>The items are 8-byte doubles.</li>
+ * <li>In the ESTIMATION format the MinItem and MaxItem are doubles, so the preamble is 32 bytes,
+ * and the compactors start at byte offset 32.</li>
+ * </ul>
+ */
+final class ReqDoublesSerDe {
+  static final int ESTIMATION_PREAMBLE_BYTES = 32;
+
+  private ReqDoublesSerDe() { }
+
+  static ReqDoublesSketch heapify(final Memory mem) {
+    if (mem.getCapacity() < 8) {
+      throw new SketchesArgumentException("Memory capacity is too small: " + mem.getCapacity());
+    }
+    final Buffer buff = mem.asBuffer();
+    //Extract first 8 bytes
+    final byte preInts = buff.getByte();
+    final byte serVer = buff.getByte();
+    final byte familyId = buff.getByte();
+    if ((serVer != SER_VER) || (familyId != FAMILY_ID)) {
+      throw new SketchesArgumentException("Possible Corruption: Not a ReqSketch image, SerVer: "
+          + serVer + ", FamilyID: " + familyId);
+    }
+    //  Extract flags
+    final int flags = buff.getByte() & 0xFF;
+    if ((flags & DOUBLES_FLAG) == 0) {
+      throw new SketchesArgumentException(
+          "Memory does not contain a ReqDoublesSketch image. Use ReqSketch.heapify(Memory).");
+    }
+    final boolean empty = (flags & EMPTY_FLAG) > 0;
+    final boolean hra = (flags & HRA_FLAG) > 0;
+    final boolean rawItems = (flags & RAW_ITEMS_FLAG) > 0;
+    final boolean lvl0Sorted = (flags & L0_SORTED_FLAG) > 0;
+    //  remainder fields
+    final int k = buff.getShort() & 0xFFFF;
+    final int numCompactors = buff.getByte() & 0xFF;
+    final int numRawItems = buff.getByte() & 0xFF;
+    //  extract different serialization formats
+    final SerDeFormat deserFormat = getDeserFormat(empty, rawItems, numCompactors);
+    switch (deserFormat) {
+      case EMPTY: {
+        assert preInts == 2;
+        return new ReqDoublesSketch(k, hra);
+      }
+      case RAWITEMS: {
+        assert preInts == 2;
+        final ReqDoublesSketch sk = new ReqDoublesSketch(k, hra);
+        for (int i = 0; i < numRawItems; i++) { sk.update(buff.getDouble()); }
+        return sk;
+      }
+      case EXACT: {
+        assert preInts == 2;
+        final ReqDoublesCompactor c0 = extractCompactor(buff, lvl0Sorted, hra);
+        final DoubleBuffer dbuf = c0.getBuffer();
+        double minItem = Double.NaN;
+        double maxItem = Double.NaN;
+        for (int i = 0; i < dbuf.getCount(); i++) {
+          final double item = dbuf.getItem(i);
+          if (Double.isNaN(minItem) || item < minItem) { minItem = item; }
+          if (Double.isNaN(maxItem) || item > maxItem) { maxItem = item; }
+        }
+        final List<ReqDoublesCompactor> compactors = new ArrayList<>();
+        compactors.add(c0);
+        return finish(new ReqDoublesSketch(k, hra, dbuf.getCount(), minItem, maxItem, compactors));
+      }
+      default: { //ESTIMATION
+        assert preInts == 4;
+        final long totalN = buff.getLong();
+        final double minItem = buff.getDouble();
+        final double maxItem = buff.getDouble();
+        final List<ReqDoublesCompactor> compactors = new ArrayList<>();
+        for (int i = 0; i < numCompactors; i++) {
+          final boolean level0sorted = i == 0 ? lvl0Sorted : true;
+          compactors.add(extractCompactor(buff, level0sorted, hra));
+        }
+        return finish(new ReqDoublesSketch(k, hra, totalN, minItem, maxItem, compactors));
+      }
+    }
+  }
+
+  private static ReqDoublesSketch finish(final ReqDoublesSketch sk) {
+    sk.setMaxNomSize(sk.computeMaxNomSize());
+    sk.setRetainedItems(sk.computeTotalRetainedItems());
+    return sk;
+  }
+
+  private static ReqDoublesCompactor extractCompactor(final Buffer buff, final boolean lvl0Sorted,
+      final boolean hra) {
+    final long state = buff.getLong();
+    final float sectionSizeFlt = buff.getFloat();
+    final int sectionSize = round(sectionSizeFlt);
+    final byte lgWt = buff.getByte();
+    final byte numSections = buff.getByte();
+    buff.incrementPosition(2);
+    final int count = buff.getInt();
+    final double[] arr = new double[count];
+    buff.getDoubleArray(arr, 0, count);
+    final int delta = 2 * sectionSize * numSections;
+    final int nomCap = 2 * delta;
+    final int cap = max(count, nomCap);
+    final DoubleBuffer dblBuf = DoubleBuffer.reconstruct(arr, count, cap, delta, lvl0Sorted, hra);
+    return new ReqDoublesCompactor(lgWt, hra, state, sectionSizeFlt, numSections, dblBuf);
+  }
+
+  private static byte getFlags(final ReqDoublesSketch sk) {
+    final boolean rawItems = sk.getN() <= ReqSketch.MIN_K;
+    final boolean level0Sorted = sk.getCompactors().get(0).getBuffer().isSorted();
+    final int flags = (sk.isEmpty() ? EMPTY_FLAG : 0)
+        | (sk.getHighRankAccuracyMode() ? HRA_FLAG : 0)
+        | (rawItems ? RAW_ITEMS_FLAG : 0)
+        | (level0Sorted ? L0_SORTED_FLAG : 0)
+        | DOUBLES_FLAG;
+    return (byte) flags;
+  }
+
+  static SerDeFormat getSerFormat(final ReqDoublesSketch sk) {
+    if (sk.isEmpty()) { return SerDeFormat.EMPTY; }
+    if (sk.getN() <= ReqSketch.MIN_K) { return SerDeFormat.RAWITEMS; }
+    if (sk.getNumLevels() == 1) { return SerDeFormat.EXACT; }
+    return SerDeFormat.ESTIMATION;
+  }
+
+  private static SerDeFormat getDeserFormat(final boolean empty, final boolean rawItems,
+      final int numCompactors) {
+    if (numCompactors <= 1) {
+      if (empty) { return SerDeFormat.EMPTY; }
+      if (rawItems) { return SerDeFormat.RAWITEMS; }
+      return SerDeFormat.EXACT;
+    }
+    return SerDeFormat.ESTIMATION;
+  }
+
+  static byte[] toByteArray(final ReqDoublesSketch sk) {
+    final SerDeFormat serDeFormat = getSerFormat(sk);
+    final int bytes = getSerBytes(sk, serDeFormat);
+    final byte[] arr = new byte[bytes];
+    final WritableBuffer wbuf = WritableMemory.writableWrap(arr).asWritableBuffer();
+    final byte preInts = (byte)(serDeFormat == SerDeFormat.ESTIMATION ? 4 : 2);
+    final byte numCompactors = sk.isEmpty() ? 0 : (byte) sk.getNumLevels();
+    final byte numRawItems = sk.getN() <= ReqSketch.MIN_K ? (byte) sk.getN() : 0;
+    wbuf.putByte(preInts);
+    wbuf.putByte(SER_VER);
+    wbuf.putByte(FAMILY_ID);
+    wbuf.putByte(getFlags(sk));
+    wbuf.putShort((short)sk.getK());
+    wbuf.putByte(numCompactors);
+    wbuf.putByte(numRawItems);
+
+    switch (serDeFormat) {
+      case EMPTY: {
+        break;
+      }
+      case RAWITEMS: {
+        final DoubleBuffer dbuf = sk.getCompactors().get(0).getBuffer();
+        for (int i = 0; i < numRawItems; i++) { wbuf.putDouble(dbuf.getItem(i)); }
+        break;
+      }
+      case EXACT: {
+        final ReqDoublesCompactor c0 = sk.getCompactors().get(0);
+        wbuf.putByteArray(c0.toByteArray(), 0, c0.getSerializationBytes());
+        break;
+      }
+      default: { //Normal Estimation
+        wbuf.putLong(sk.getN());
+        wbuf.putDouble(sk.getMinItem());
+        wbuf.putDouble(sk.getMaxItem());
+        for (int i = 0; i < numCompactors; i++) {
+          final ReqDoublesCompactor c = sk.getCompactors().get(i);
+          wbuf.putByteArray(c.toByteArray(), 0, c.getSerializationBytes());
+        }
+      }
+    }
+    assert wbuf.getPosition() == bytes : wbuf.getPosition() + ", " + bytes;
+    return arr;
+  }
+
+  static int getSerBytes(final ReqDoublesSketch sk, final SerDeFormat serDeFormat) {
+    switch (serDeFormat) {
+      case EMPTY: {
+        return 8;
+      }
+      case RAWITEMS: {
+        return sk.getCompactors().get(0).getBuffer().getCount() * Double.BYTES + 8;
+      }
+      case EXACT: {
+        return sk.getCompactors().get(0).getSerializationBytes() + 8;
+      }
+      default: { //ESTIMATION
+        int cBytes = 0;
+        for (int i = 0; i < sk.getNumLevels(); i++) {
+          cBytes += sk.getCompactors().get(i).getSerializationBytes();
+        }
+        return cBytes + ESTIMATION_PREAMBLE_BYTES;
+      }
+    }
+  }
+
+}
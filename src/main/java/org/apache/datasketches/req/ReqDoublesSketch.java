@@ -0,0 +1,674 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.checkBounds;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.apache.datasketches.req.BaseReqSketch.getRankLB;
+import static org.apache.datasketches.req.BaseReqSketch.getRankUB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.quantilescommon.DoublesSketchSortedView;
+import org.apache.datasketches.quantilescommon.QuantileSearchCriteria;
+import org.apache.datasketches.quantilescommon.QuantilesAPI;
+import org.apache.datasketches.quantilescommon.QuantilesDoublesAPI;
+import org.apache.datasketches.quantilescommon.QuantilesDoublesSketchIterator;
+import org.apache.datasketches.req.ReqSketch.CompactorReturn;
+
+/**
+ * This is the Relative Error Quantiles Sketch for items of type <i>double</i>. It is identical to
+ * the {@link ReqSketch} in all respects except that the items are doubles, which preserves the
+ * resolution of large values, such as nanosecond timestamps, that a float cannot represent.
+ *
+ * <p>The compaction schedule is shared with the {@link ReqSketch}. The serialization format is
+ * the format of the {@link ReqSketch} with 8-byte items, and is marked with the doubles flag.
+ * The ReqDebug facility is not supported by this sketch.</p>
+ *
+ * @see ReqSketch
+ * @see QuantilesAPI
+ */
+public final class ReqDoublesSketch implements QuantilesDoublesAPI {
+  //finals
+  private final int k; //default is 12 (1% @ 95% Confidence)
+  private final boolean hra; //default is true
+  //state variables
+  private long totalN = 0;
+  private double minItem = Double.NaN;
+  private double maxItem = Double.NaN;
+  //computed from compactors
+  private int retItems = 0; //number of retained items in the sketch
+  private int maxNomSize = 0; //sum of nominal capacities of all compactors
+  //Objects
+  private DoublesSketchSortedView reqSV = null;
+  private List<ReqDoublesCompactor> compactors = new ArrayList<>();
+
+  private final CompactorReturn cReturn = new CompactorReturn(); //used in compress()
+
+  private final Random rand;
+
+  /**
+   * Construct from elements. After sketch is constructed, retItems and maxNomSize must be computed.
+   * Used by ReqDoublesSerDe.
+   */
+  ReqDoublesSketch(final int k, final boolean hra, final long totalN, final double minItem,
+      final double maxItem, final List<ReqDoublesCompactor> compactors) {
+    checkK(k);
+    this.k = k;
+    this.hra = hra;
+    this.totalN = totalN;
+    this.minItem = minItem;
+    this.maxItem = maxItem;
+    this.compactors = compactors;
+    this.rand = new Random();
+  }
+
+  /**
+   * Normal Constructor used by ReqSketchBuilder.
+   * @param k Controls the size and error of the sketch. It must be even and in the range
+   * [4, 1024].
+   * The default number 12 roughly corresponds to 1% relative error guarantee at 95% confidence.
+   * @param highRankAccuracy if true, the default, the high ranks are prioritized for better
+   * accuracy. Otherwise the low ranks are prioritized for better accuracy.
+   */
+  ReqDoublesSketch(final int k, final boolean highRankAccuracy) {
+    checkK(k);
+    this.k = k;
+    this.hra = highRankAccuracy;
+    this.rand = new Random();
+    grow();
+  }
+
+  /**
+   * Copy Constructor.  Only used in test.
+   * @param other the other sketch to be deep copied into this one.
+   */
+  ReqDoublesSketch(final ReqDoublesSketch other) {
+    this.k = other.k;
+    this.hra = other.hra;
+    this.totalN = other.totalN;
+    this.retItems = other.retItems;
+    this.maxNomSize = other.maxNomSize;
+    this.minItem = other.minItem;
+    this.maxItem = other.maxItem;
+    this.reqSV = null;
+    this.rand = new Random();
+
+    for (int i = 0; i < other.getNumLevels(); i++) {
+      compactors.add(new ReqDoublesCompactor(other.compactors.get(i)));
+    }
+  }
+
+  /**
+   * Returns an ReqDoublesSketch on the heap from a Memory image of the sketch.
+   * @param mem The Memory object holding a valid image of an ReqDoublesSketch
+   * @return an ReqDoublesSketch on the heap from a Memory image of the sketch.
+   */
+  public static ReqDoublesSketch heapify(final Memory mem) {
+    return ReqDoublesSerDe.heapify(mem);
+  }
+
+  @Override
+  public int getK() {
+    return k;
+  }
+
+  @Override
+  public double[] getCDF(final double[] splitPoints, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    refreshSortedView();
+    return reqSV.getCDF(splitPoints, searchCrit);
+  }
+
+  /**
+   * If true, the high ranks are prioritized for better accuracy. Otherwise
+   * the low ranks are prioritized for better accuracy.  This state is chosen during sketch
+   * construction.
+   * @return the high ranks accuracy state.
+   */
+  public boolean getHighRankAccuracyMode() {
+    return hra;
+  }
+
+  @Override
+  public double getMaxItem() {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    return maxItem;
+  }
+
+  @Override
+  public double getMinItem() {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    return minItem;
+  }
+
+  @Override
+  public long getN() {
+    return totalN;
+  }
+
+  @Override
+  /**
+   * This is an unsupported operation for this sketch
+   */
+  public double getNormalizedRankError(final boolean pmf) {
+    throw new UnsupportedOperationException(QuantilesAPI.UNSUPPORTED_MSG);
+
+  }
+
+  @Override
+  public double[] getPMF(final double[] splitPoints, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    refreshSortedView();
+    return reqSV.getPMF(splitPoints, searchCrit);
+  }
+
+  @Override
+  public double getQuantile(final double normRank, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    if (normRank < 0 || normRank > 1.0) {
+      throw new SketchesArgumentException(
+        "Normalized rank must be in the range [0.0, 1.0]: " + normRank);
+    }
+    refreshSortedView();
+    return reqSV.getQuantile(normRank, searchCrit);
+  }
+
+  @Override
+  public double[] getQuantiles(final double[] normRanks, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    refreshSortedView();
+    final int len = normRanks.length;
+    final double[] qArr = new double[len];
+    reqSV.getQuantiles(normRanks, searchCrit, qArr);
+    return qArr;
+  }
+
+  /**
+   * {@inheritDoc}
+   * The approximate probability that the true quantile is within the confidence interval
+   * specified by the upper and lower quantile bounds for this sketch is 0.95.
+   */
+  @Override
+  public double getQuantileLowerBound(final double rank) {
+    return getQuantile(getRankLowerBound(rank, 2), INCLUSIVE);
+  }
+
+  /**
+   * Gets an approximate lower bound of the quantile associated with the given rank.
+   * @param rank the given normalized rank, a number in the interval [0.0, 1.0].
+   * @param numStdDev the number of standard deviations. Must be 1, 2, or 3.
+   * @return an approximate lower bound quantile, if it exists.
+   */
+  public double getQuantileLowerBound(final double rank, final int numStdDev) {
+    return getQuantile(getRankLowerBound(rank, numStdDev), INCLUSIVE);
+  }
+
+  /**
+   * {@inheritDoc}
+   * The approximate probability that the true quantile is within the confidence interval
+   * specified by the upper and lower quantile bounds for this sketch is 0.95.
+   */
+  @Override
+  public double getQuantileUpperBound(final double rank) {
+    return getQuantile(getRankUpperBound(rank, 2), INCLUSIVE);
+  }
+
+  /**
+   * Gets an approximate upper bound of the quantile associated with the given rank.
+   * @param rank the given normalized rank, a number in the interval [0.0, 1.0].
+   * @param numStdDev the number of standard deviations. Must be 1, 2, or 3.
+   * @return an approximate upper bound quantile, if it exists.
+   */
+  public double getQuantileUpperBound(final double rank, final int numStdDev) {
+    return getQuantile(getRankUpperBound(rank, numStdDev), INCLUSIVE);
+  }
+
+  @Override
+  public double getRank(final double quantile, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    refreshSortedView();
+    return reqSV.getRank(quantile, searchCrit);
+  }
+
+  /**
+   * {@inheritDoc}
+   * The approximate probability that the true rank is within the confidence interval
+   * specified by the upper and lower rank bounds for this sketch is 0.95.
+   */
+  @Override
+  public double getRankLowerBound(final double rank) {
+    return getRankLB(k, getNumLevels(), rank, 2, hra, getN());
+  }
+
+  /**
+   * Gets an approximate lower bound rank of the given normalized rank.
+   * @param rank the given normalized rank, a number in [0,1].
+   * @param numStdDev the number of standard deviations. Must be 1, 2, or 3.
+   * @return an approximate lower bound rank.
+   */
+  public double getRankLowerBound(final double rank, final int numStdDev) {
+    return getRankLB(k, getNumLevels(), rank, numStdDev, hra, getN());
+  }
+
+  @Override
+  public double[] getRanks(final double[] quantiles, final QuantileSearchCriteria searchCrit) {
+    if (isEmpty()) { throw new IllegalArgumentException(QuantilesAPI.EMPTY_MSG); }
+    refreshSortedView();
+    final int numQuantiles = quantiles.length;
+    final double[] retArr = new double[numQuantiles];
+    reqSV.getRanks(quantiles, searchCrit, retArr);
+    return retArr;
+  }
+
+  /**
+   * {@inheritDoc}
+   * The approximate probability that the true rank is within the confidence interval
+   * specified by the upper and lower rank bounds for this sketch is 0.95.
+   */
+  @Override
+  public double getRankUpperBound(final double rank) {
+    return getRankUB(k, getNumLevels(), rank, 2, hra, getN());
+  }
+
+  /**
+   * Gets an approximate upper bound rank of the given rank.
+   * @param rank the given rank, a number in [0,1].
+   * @param numStdDev the number of standard deviations. Must be 1, 2, or 3.
+   * @return an approximate upper bound rank.
+   */
+  public double getRankUpperBound(final double rank, final int numStdDev) {
+    return getRankUB(k, getNumLevels(), rank, numStdDev, hra, getN());
+  }
+
+  @Override
+  public int getNumRetained() { return retItems; }
+
+  @Override
+  public int getSerializedSizeBytes() {
+    final ReqSerDe.SerDeFormat serDeFormat = ReqDoublesSerDe.getSerFormat(this);
+    return ReqDoublesSerDe.getSerBytes(this, serDeFormat);
+  }
+
+  @Override
+  public boolean hasMemory() {
+    return false;
+  }
+
+  @Override
+  public boolean isDirect() {
+    return false;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return totalN == 0;
+  }
+
+  @Override
+  public boolean isEstimationMode() {
+    return getNumLevels() > 1;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return false;
+  }
+
+  @Override
+  public QuantilesDoublesSketchIterator iterator() {
+    return new ReqDoublesSketchIterator(this);
+  }
+
+  /**
+   * Merge other sketch into this one. The other sketch is not modified.
+   * @param other sketch to be merged into this one.
+   * @return this
+   */
+  public ReqDoublesSketch merge(final ReqDoublesSketch other) {
+    if (other == null || other.isEmpty()) { return this; }
+    if (other.hra != hra) {
+      throw new SketchesArgumentException(
+          "Both sketches must have the same HighRankAccuracy setting.");
+    }
+    totalN += other.totalN;
+    //update min, max items, n
+    if (Double.isNaN(minItem) || other.minItem < minItem) { minItem = other.minItem; }
+    if (Double.isNaN(maxItem) || other.maxItem > maxItem) { maxItem = other.maxItem; }
+    //Grow until self has at least as many compactors as other
+    while (getNumLevels() < other.getNumLevels()) { grow(); }
+    //Merge the items in all height compactors
+    for (int i = 0; i < other.getNumLevels(); i++) {
+      compactors.get(i).merge(other.compactors.get(i));
+    }
+    maxNomSize = computeMaxNomSize();
+    retItems = computeTotalRetainedItems();
+    if (retItems >= maxNomSize) {
+      compress();
+    }
+    assert retItems < maxNomSize;
+    reqSV = null;
+    return this;
+  }
+
+  @Override
+  public void reset() {
+    totalN = 0;
+    retItems = 0;
+    maxNomSize = 0;
+    minItem = Double.NaN;
+    maxItem = Double.NaN;
+    reqSV = null;
+    compactors = new ArrayList<>();
+    grow();
+  }
+
+  @Override
+  public byte[] toByteArray() {
+    return ReqDoublesSerDe.toByteArray(this);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("**********Relative Error Quantiles Sketch Summary**********").append(LS);
+    sb.append("  K               : " + k).append(LS);
+    sb.append("  N               : " + totalN).append(LS);
+    sb.append("  Retained Items  : " + retItems).append(LS);
+    sb.append("  Min Item        : " + minItem).append(LS);
+    sb.append("  Max Item        : " + maxItem).append(LS);
+    sb.append("  Estimation Mode : " + isEstimationMode()).append(LS);
+    sb.append("  High Rank Acc   : " + hra).append(LS);
+    sb.append("  Levels          : " + compactors.size()).append(LS);
+    sb.append("************************End Summary************************").append(LS);
+    return sb.toString();
+  }
+
+  @Override
+  public void update(final double item) {
+    if (Double.isNaN(item)) { return; }
+    if (isEmpty()) {
+      minItem = item;
+      maxItem = item;
+    } else {
+      if (item < minItem) { minItem = item; }
+      if (item > maxItem) { maxItem = item; }
+    }
+    final DoubleBuffer buf = compactors.get(0).getBuffer();
+    buf.append(item);
+    retItems++;
+    totalN++;
+    if (retItems >= maxNomSize) {
+      buf.sort();
+      compress();
+    }
+    reqSV = null;
+  }
+
+  /**
+   * Updates this sketch with the items of the given array in the range
+   * <i>[offset, offset + length)</i>. The items are appended to the level zero compactor in bulk,
+   * which is sorted only once a compaction is required. NaNs are ignored.
+   * The result is the same as updating the items one at a time.
+   * @param items the given array of items
+   * @param offset the index of the first item to use
+   * @param length the number of items to use
+   */
+  public void update(final double[] items, final int offset, final int length) {
+    checkBounds(offset, length, items.length);
+    final DoubleBuffer buf = compactors.get(0).getBuffer();
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      final int chunk = Math.min(end - i, maxNomSize - retItems);
+      for (int j = i; j < i + chunk; j++) {
+        final double item = items[j];
+        if (Double.isNaN(item)) { continue; }
+        if (Double.isNaN(minItem) || item < minItem) { minItem = item; }
+        if (Double.isNaN(maxItem) || item > maxItem) { maxItem = item; }
+      }
+      final int appended = buf.append(items, i, chunk);
+      retItems += appended;
+      totalN += appended;
+      i += chunk;
+      if (retItems >= maxNomSize) {
+        buf.sort();
+        compress();
+      }
+    }
+    reqSV = null;
+  }
+
+  /**
+   * A detailed, human readable view of the sketch compactors and their data.
+   * Each compactor string is prepended by the compactor lgWeight, the current number of retained
+   * items of the compactor and the current nominal capacity of the compactor.
+   * @param fmt the format string for the items; example: "%4.0f".
+   * @param allData all the retained items for the sketch will be output by
+   * compactor level.  Otherwise, just a summary will be output.
+   * @return a detailed view of the compactors and their data
+   */
+  public String viewCompactorDetail(final String fmt, final boolean allData) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("*********Relative Error Quantiles Compactor Detail*********").append(LS);
+    sb.append("Compactor Detail: Ret Items: ").append(getNumRetained())
+      .append("  N: ").append(getN());
+    sb.append(LS);
+    for (int i = 0; i < getNumLevels(); i++) {
+      final ReqDoublesCompactor c = compactors.get(i);
+      sb.append(c.toListPrefix()).append(LS);
+      if (allData) { sb.append(c.getBuffer().toHorizList(fmt, 20)).append(LS); }
+    }
+    sb.append("************************End Detail*************************").append(LS);
+    return sb.toString();
+  }
+
+  /**
+   * Computes a new bound for determining when to compress the sketch.
+   */
+  int computeMaxNomSize() {
+    int cap = 0;
+    for (final ReqDoublesCompactor c : compactors) { cap += c.getNomCapacity(); }
+    return cap;
+  }
+
+  /**
+   * Computes the retained Items for the sketch.
+   */
+  int computeTotalRetainedItems() {
+    int count = 0;
+    for (final ReqDoublesCompactor c : compactors) {
+      count += c.getBuffer().getCount();
+    }
+    return count;
+  }
+
+  List<ReqDoublesCompactor> getCompactors() {
+    return compactors;
+  }
+
+  int getMaxNomSize() {
+    return maxNomSize;
+  }
+
+  /**
+   * Gets the number of levels of compactors in the sketch.
+   * @return the number of levels of compactors in the sketch.
+   */
+  int getNumLevels() {
+    return compactors.size();
+  }
+
+  void setMaxNomSize(final int maxNomSize) {
+    this.maxNomSize = maxNomSize;
+  }
+
+  void setRetainedItems(final int retItems) {
+    this.retItems = retItems;
+  }
+
+  private static void checkK(final int k) {
+    if ((k & 1) > 0 || k < 4 || k > 1024) {
+      throw new SketchesArgumentException(
+          "<i>K</i> must be even and in the range [4, 1024]: " + k );
+    }
+  }
+
+  private void compress() {
+    for (int h = 0; h < compactors.size(); h++) {
+      final ReqDoublesCompactor c = compactors.get(h);
+      final int compRetItems = c.getBuffer().getCount();
+      final int compNomCap = c.getNomCapacity();
+
+      if (compRetItems >= compNomCap) {
+        if (h + 1 >= getNumLevels()) { //at the top?
+          grow(); //add a level, increases maxNomSize
+        }
+        final DoubleBuffer promoted = c.compact(cReturn, this.rand);
+        compactors.get(h + 1).getBuffer().mergeSortIn(promoted);
+        retItems += cReturn.deltaRetItems;
+        maxNomSize += cReturn.deltaNomSize;
+        //we specifically decided not to do lazy compression.
+      }
+    }
+    reqSV = null;
+  }
+
+  private void grow() {
+    final byte lgWeight = (byte)getNumLevels();
+    compactors.add(new ReqDoublesCompactor(lgWeight, hra, k));
+    maxNomSize = computeMaxNomSize();
+  }
+
+  // SORTED VIEW
+
+  @Override
+  public DoublesSketchSortedView getSortedView() {
+    refreshSortedView();
+    return reqSV;
+  }
+
+  private final DoublesSketchSortedView refreshSortedView() {
+    if (reqSV == null) {
+      final List<DoubleBuffer> buffers = new ArrayList<>(compactors.size());
+      for (final ReqDoublesCompactor c : compactors) { buffers.add(c.getBuffer()); }
+      reqSV = new CreateSortedView(this, retItems).getSV(buffers);
+    }
+    return reqSV;
+  }
+
+  /**
+   * Creates the sorted view from the buffers of the compactors.
+   */
+  private static final class CreateSortedView {
+    private final ReqDoublesSketch sk;
+    private final long totalN;
+    double[] quantiles;
+    long[] cumWeights;
+
+    /**
+     * @param sk the sketch, which supplies N, the min and max items and the HRA mode.
+     * @param totalQuantiles the total number of items in all the buffers
+     */
+    CreateSortedView(final ReqDoublesSketch sk, final int totalQuantiles) {
+      this.sk = sk;
+      this.totalN = sk.getN();
+      quantiles = new double[totalQuantiles]; //could have zero entries
+      cumWeights = new long[totalQuantiles];
+    }
+
+    /**
+     * Returns the sorted view.
+     * @param buffers the buffers of the compactors, where the buffer at index i has weight 2^i.
+     * A buffer that is not sorted will be sorted here.
+     * @return the sorted view.
+     */
+    DoublesSketchSortedView getSV(final List<DoubleBuffer> buffers) {
+      if (sk.isEmpty()) { throw new SketchesArgumentException(QuantilesAPI.EMPTY_MSG); }
+      //build the SV arrays
+      final int numComp = buffers.size();
+      int count = 0;
+      for (int i = 0; i < numComp; i++) {
+        final DoubleBuffer bufIn = buffers.get(i);
+        final long bufWeight = 1 << i;
+        final int bufInLen = bufIn.getCount();
+        mergeSortIn(bufIn, bufWeight, count, sk.getHighRankAccuracyMode());
+        count += bufInLen;
+      }
+      createCumulativeNativeRanks();
+      return new DoublesSketchSortedView(quantiles, cumWeights, sk);
+    }
+
+    /**
+     * Specially modified version of DoubleBuffer.mergeSortIn(). Here spaceAtBottom is always false and
+     * the ultimate array size has already been set.  However, this must simultaneously deal with
+     * sorting the base DoubleBuffer as well.
+     *
+     * @param bufIn given DoubleBuffer. If not sorted it will be sorted here.
+     * @param bufWeight associated weight of input DoubleBuffer
+     * @param count tracks number of items inserted into the class arrays
+     */
+    private void mergeSortIn(final DoubleBuffer bufIn, final long bufWeight, final int count, final boolean hra) {
+      if (!bufIn.isSorted()) { bufIn.sort(); }
+      final double[] arrIn = bufIn.getArray(); //may be larger than its item count.
+      final int bufInLen = bufIn.getCount();
+      final int totLen = count + bufInLen;
+      int i = count - 1;
+      int j = bufInLen - 1;
+      int h = hra ? bufIn.getCapacity() - 1 : bufInLen - 1;
+      for (int k = totLen; k-- > 0; ) {
+        if (i >= 0 && j >= 0) { //both valid
+          if (quantiles[i] >= arrIn[h]) {
+            quantiles[k] = quantiles[i];
+            cumWeights[k] = cumWeights[i--]; //not yet natRanks, just individual wts
+          } else {
+            quantiles[k] = arrIn[h--]; j--;
+            cumWeights[k] = bufWeight;
+          }
+        } else if (i >= 0) { //i is valid
+          quantiles[k] = quantiles[i];
+          cumWeights[k] = cumWeights[i--];
+        } else if (j >= 0) { //j is valid
+          quantiles[k] = arrIn[h--]; j--;
+          cumWeights[k] = bufWeight;
+        } else {
+          break;
+        }
+      }
+    }
+
+    private void createCumulativeNativeRanks() {
+      final int len = quantiles.length;
+      for (int i = 1; i < len; i++) {
+        cumWeights[i] +=  cumWeights[i - 1];
+      }
+      if (totalN > 0) {
+        assert cumWeights[len - 1] == totalN;
+      }
+    }
+
+  } //End CreateSortedView
+
+}
@@ -26,6 +26,7 @@ import static java.lang.Math.round;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.Buffer;
 import org.apache.datasketches.memory.Memory;
 import org.apache.datasketches.memory.WritableBuffer;
@@ -108,6 +109,33 @@ import org.apache.datasketches.memory.WritableMemory;
    *      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |     0              |
    *  0   || (empty)|    0   |        K        | Flags  |FamID=17| SerVer |     PreInts = 2    |
    * </pre>
+   * <p>The UPDATABLE binary format is used by the {@link DirectReqSketch} and is never produced by
+   * <i>toByteArray()</i>. It has the preamble of the ESTIMATION format, even if the sketch is
+   * empty, where the MinItem and MaxItem are NaN if the sketch is empty. Each compactor is
+   * followed by its full capacity of floats, so that items can be appended in place.
+   * The active items of a compactor are at the bottom of its capacity if HRA is set, otherwise
+   * they are at the top:</p>
+   *
+   * <pre>
+   * PreInts=4
+   * Updatable=true
+   * RawItems=false
+   * # Constructors &ge; 1
+   *
+   * +Long Adr / +Byte Offset of each compactor, starting at byte offset 24
+   *      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |    0   |
+   *  0   ||-----------------------------state-------------------------------------|
+   *
+   *      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |    8   |
+   *  1   ||----(empty)------|-#Sects-|--lgWt--|------------sectionSizeFlt---------|
+   *
+   *      ||   23   |   22   |   21   |   20   |   19   |   18   |   17   |   16   |
+   *  2   ||-------------capacity--------------|---------------count---------------|
+   *
+   *      ||        |        |        |        |        |        |        |   24   |
+   *  3   ||----------------------------floats[capacity]---------------------------|
+   * </pre>
+   *
    * <pre>
    * <p>Flags:</p>
    * Bit 0 : Endianness, reserved
@@ -116,8 +144,8 @@ import org.apache.datasketches.memory.WritableMemory;
    * Bit 3 : HRA
    * Bit 4 : Raw Items
    * Bit 5 : L0 Sorted
-   * Bit 6 : reserved
-   * Bit 7 : reserved
+   * Bit 6 : Updatable
+   * Bit 7 : Doubles, the items are doubles. See ReqDoublesSerDe.
    * </pre>
  *
  * @author Lee Rhodes
@@ -125,8 +153,33 @@ import org.apache.datasketches.memory.WritableMemory;
 class ReqSerDe {
   enum SerDeFormat { EMPTY, RAWITEMS, EXACT, ESTIMATION }
 
-  private static final byte SER_VER = 1;
-  private static final byte FAMILY_ID = 17;
+  static final byte SER_VER = 1;
+  static final byte FAMILY_ID = 17;
+  //flag bits
+  static final int EMPTY_FLAG = 4;
+  static final int HRA_FLAG = 8;
+  static final int RAW_ITEMS_FLAG = 16;
+  static final int L0_SORTED_FLAG = 32;
+  static final int UPDATABLE_FLAG = 64;
+  static final int DOUBLES_FLAG = 128;
+  //byte offsets of the preamble
+  static final int FLAGS_BYTE = 3;
+  static final int K_SHORT = 4;
+  static final int NUM_COMPACTORS_BYTE = 6;
+  static final int NUM_RAW_ITEMS_BYTE = 7;
+  static final int N_LONG = 8;
+  static final int MIN_FLOAT = 16;
+  static final int MAX_FLOAT = 20;
+  static final int ESTIMATION_PREAMBLE_BYTES = 24;
+  //byte offsets within a compactor
+  static final int C_STATE_LONG = 0;
+  static final int C_SECTION_SIZE_FLOAT = 8;
+  static final int C_LG_WEIGHT_BYTE = 12;
+  static final int C_NUM_SECTIONS_BYTE = 13;
+  static final int C_COUNT_INT = 16;
+  static final int C_CAPACITY_INT = 20;
+  static final int COMPACT_COMPACTOR_HEADER_BYTES = 20;
+  static final int UPDATABLE_COMPACTOR_HEADER_BYTES = 24;
 
   static ReqSketch heapify(final Memory mem) {
     final Buffer buff = mem.asBuffer();
@@ -142,6 +195,11 @@ class ReqSerDe {
     final boolean hra = (flags & 8) > 0;
     final boolean rawItems = (flags & 16) > 0;
     final boolean lvl0Sorted = (flags & 32) > 0;
+    if ((flags & DOUBLES_FLAG) > 0) {
+      throw new SketchesArgumentException(
+          "Memory contains a ReqDoublesSketch image. Use ReqDoublesSketch.heapify(Memory).");
+    }
+    if ((flags & UPDATABLE_FLAG) > 0) { return heapifyUpdatable(mem); }
     //  remainder fields
     final int k = buff.getShort() & 0xFFFF;
     final int numCompactors = buff.getByte() & 0xFF;
@@ -193,6 +251,53 @@ class ReqSerDe {
     }
   }
 
+  private static ReqSketch heapifyUpdatable(final Memory mem) {
+    final int flags = mem.getByte(FLAGS_BYTE) & 0xFF;
+    final boolean hra = (flags & HRA_FLAG) > 0;
+    final boolean lvl0Sorted = (flags & L0_SORTED_FLAG) > 0;
+    final int k = mem.getShort(K_SHORT) & 0xFFFF;
+    final int numCompactors = mem.getByte(NUM_COMPACTORS_BYTE) & 0xFF;
+    final long totalN = mem.getLong(N_LONG);
+    final float minItem = mem.getFloat(MIN_FLOAT);
+    final float maxItem = mem.getFloat(MAX_FLOAT);
+    final List<ReqCompactor> compactors = new ArrayList<>();
+    long offset = ESTIMATION_PREAMBLE_BYTES;
+    for (int i = 0; i < numCompactors; i++) {
+      final long state = mem.getLong(offset + C_STATE_LONG);
+      final float sectionSizeFlt = mem.getFloat(offset + C_SECTION_SIZE_FLOAT);
+      final byte lgWt = mem.getByte(offset + C_LG_WEIGHT_BYTE);
+      final byte numSections = mem.getByte(offset + C_NUM_SECTIONS_BYTE);
+      final int count = mem.getInt(offset + C_COUNT_INT);
+      final int cap = mem.getInt(offset + C_CAPACITY_INT);
+      final long itemsOffset = getUpdatableItemsOffset(offset, count, cap, hra);
+      final float[] arr = new float[count];
+      mem.getFloatArray(itemsOffset, arr, 0, count);
+      final int delta = 2 * round(sectionSizeFlt) * numSections;
+      final boolean sorted = i == 0 ? lvl0Sorted : true;
+      final FloatBuffer fltBuf = FloatBuffer.reconstruct(arr, count, cap, delta, sorted, hra);
+      compactors.add(new ReqCompactor(lgWt, hra, state, sectionSizeFlt, numSections, fltBuf));
+      offset += UPDATABLE_COMPACTOR_HEADER_BYTES + (long) cap * Float.BYTES;
+    }
+    final ReqSketch sk = new ReqSketch(k, hra, totalN, minItem, maxItem, compactors);
+    sk.setMaxNomSize(sk.computeMaxNomSize());
+    sk.setRetainedItems(sk.computeTotalRetainedItems());
+    return sk;
+  }
+
+  /**
+   * Returns the byte offset of the first active item of a compactor in the UPDATABLE format.
+   * @param cOffset the byte offset of the compactor
+   * @param count the number of active items of the compactor
+   * @param cap the capacity of the compactor in items
+   * @param hra if true the active items are at the bottom of the capacity
+   * @return the byte offset of the first active item of a compactor in the UPDATABLE format.
+   */
+  static long getUpdatableItemsOffset(final long cOffset, final int count, final int cap,
+      final boolean hra) {
+    final int start = hra ? cap - count : 0;
+    return cOffset + UPDATABLE_COMPACTOR_HEADER_BYTES + (long) start * Float.BYTES;
+  }
+
   static final Compactor extractCompactor(final Buffer buff, final boolean lvl0Sorted,
       final boolean hra) {
     final long state = buff.getLong();
@@ -310,6 +415,60 @@ class ReqSerDe {
     }
   }
 
+  /**
+   * Returns the number of bytes required by the UPDATABLE format of the given sketch.
+   * @param sk the given sketch
+   * @return the number of bytes required by the UPDATABLE format of the given sketch.
+   */
+  static long getUpdatableBytes(final ReqSketch sk) {
+    long bytes = ESTIMATION_PREAMBLE_BYTES;
+    for (final ReqCompactor c : sk.getCompactors()) {
+      bytes += UPDATABLE_COMPACTOR_HEADER_BYTES + (long) c.getBuffer().getCapacity() * Float.BYTES;
+    }
+    return bytes;
+  }
+
+  /**
+   * Writes the UPDATABLE format of the given sketch into the given WritableMemory, which must have
+   * a capacity of at least {@link #getUpdatableBytes(ReqSketch)}.
+   * @param sk the given sketch
+   * @param wmem the given WritableMemory
+   */
+  static void putUpdatable(final ReqSketch sk, final WritableMemory wmem) {
+    final List<ReqCompactor> compactors = sk.getCompactors();
+    final boolean hra = sk.getHighRankAccuracyMode();
+    final int flags = (sk.isEmpty() ? EMPTY_FLAG : 0)
+        | (hra ? HRA_FLAG : 0)
+        | (compactors.get(0).getBuffer().isSorted() ? L0_SORTED_FLAG : 0)
+        | UPDATABLE_FLAG;
+    wmem.putByte(0, (byte) 4);
+    wmem.putByte(1, SER_VER);
+    wmem.putByte(2, FAMILY_ID);
+    wmem.putByte(FLAGS_BYTE, (byte) flags);
+    wmem.putShort(K_SHORT, (short) sk.getK());
+    wmem.putByte(NUM_COMPACTORS_BYTE, (byte) compactors.size());
+    wmem.putByte(NUM_RAW_ITEMS_BYTE, (byte) 0);
+    wmem.putLong(N_LONG, sk.getN());
+    wmem.putFloat(MIN_FLOAT, sk.isEmpty() ? Float.NaN : sk.getMinItem());
+    wmem.putFloat(MAX_FLOAT, sk.isEmpty() ? Float.NaN : sk.getMaxItem());
+    long offset = ESTIMATION_PREAMBLE_BYTES;
+    for (final ReqCompactor c : compactors) {
+      final FloatBuffer buf = c.getBuffer();
+      final int count = buf.getCount();
+      final int cap = buf.getCapacity();
+      wmem.putLong(offset + C_STATE_LONG, c.getState());
+      wmem.putFloat(offset + C_SECTION_SIZE_FLOAT, c.getSectionSizeFlt());
+      wmem.putByte(offset + C_LG_WEIGHT_BYTE, c.getLgWeight());
+      wmem.putByte(offset + C_NUM_SECTIONS_BYTE, (byte) c.getNumSections());
+      wmem.putShort(offset + C_NUM_SECTIONS_BYTE + 1, (short) 0);
+      wmem.putInt(offset + C_COUNT_INT, count);
+      wmem.putInt(offset + C_CAPACITY_INT, cap);
+      final int start = hra ? cap - count : 0;
+      wmem.putFloatArray(getUpdatableItemsOffset(offset, count, cap, hra), buf.getArray(), start, count);
+      offset += UPDATABLE_COMPACTOR_HEADER_BYTES + (long) cap * Float.BYTES;
+    }
+  }
+
   static int getSerBytes(final ReqSketch sk, final SerDeFormat serDeFormat) {
     switch (serDeFormat) {
       case EMPTY: {
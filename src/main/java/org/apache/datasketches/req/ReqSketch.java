@@ -20,14 +20,18 @@
 package org.apache.datasketches.req;
 
 import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.checkBounds;
 import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
 import org.apache.datasketches.quantilescommon.FloatsSketchSortedView;
 import org.apache.datasketches.quantilescommon.QuantileSearchCriteria;
 import org.apache.datasketches.quantilescommon.QuantilesAPI;
@@ -182,6 +186,30 @@ public final class ReqSketch extends BaseReqSketch {
     return ReqSerDe.heapify(mem);
   }
 
+  /**
+   * Wraps the given read only Memory image of a sketch without copying it to the heap.
+   * The image may be either the compact image produced by {@link #toByteArray()} or the
+   * updatable image of a {@link DirectReqSketch}.
+   * @param srcMem the given read only Memory image of a sketch
+   * @return a read only DirectReqSketch that wraps the given Memory.
+   */
+  public static DirectReqSketch wrap(final Memory srcMem) {
+    return DirectReqSketch.wrapInstance(srcMem, null, null);
+  }
+
+  /**
+   * Wraps the given WritableMemory, which must contain the updatable image of a
+   * {@link DirectReqSketch}, for updating in place.
+   * @param srcMem the given WritableMemory
+   * @param memReqSvr the given MemoryRequestServer to request a larger WritableMemory
+   * @return an updatable DirectReqSketch that wraps the given WritableMemory.
+   */
+  public static DirectReqSketch writableWrap(final WritableMemory srcMem,
+      final MemoryRequestServer memReqSvr) {
+    Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
+    return DirectReqSketch.wrapInstance(srcMem, srcMem, memReqSvr);
+  }
+
   @Override
   public int getK() {
     return k;
@@ -268,9 +296,7 @@ public final class ReqSketch extends BaseReqSketch {
     refreshSortedView();
     final int len = normRanks.length;
     final float[] qArr = new float[len];
-    for (int i = 0; i < len; i++) {
-      qArr[i] = reqSV.getQuantile(normRanks[i], searchCrit);
-    }
+    reqSV.getQuantiles(normRanks, searchCrit, qArr);
     return qArr;
   }
 
@@ -332,9 +358,7 @@ public final class ReqSketch extends BaseReqSketch {
     refreshSortedView();
     final int numQuantiles = quantiles.length;
     final double[] retArr = new double[numQuantiles];
-    for (int i = 0; i < numQuantiles; i++) {
-      retArr[i] = reqSV.getRank(quantiles[i], searchCrit); //already normalized
-    }
+    reqSV.getRanks(quantiles, searchCrit, retArr);
     return retArr;
   }
 
@@ -377,7 +401,11 @@ public final class ReqSketch extends BaseReqSketch {
     return new ReqSketchIterator(this);
   }
 
-  @Override
+  /**
+   * Merge other sketch into this one. The other sketch is not modified.
+   * @param other sketch to be merged into this one.
+   * @return this
+   */
   public ReqSketch merge(final ReqSketch other) {
     if (other == null || other.isEmpty()) { return this; }
     if (other.hra != hra) {
@@ -458,6 +486,40 @@ public final class ReqSketch extends BaseReqSketch {
     reqSV = null;
   }
 
+  /**
+   * Updates this sketch with the items of the given array in the range
+   * <i>[offset, offset + length)</i>. The items are appended to the level zero compactor in bulk,
+   * which is sorted only once a compaction is required. NaNs are ignored.
+   * The result is the same as updating the items one at a time.
+   * @param items the given array of items
+   * @param offset the index of the first item to use
+   * @param length the number of items to use
+   */
+  public void update(final float[] items, final int offset, final int length) {
+    checkBounds(offset, length, items.length);
+    final FloatBuffer buf = compactors.get(0).getBuffer();
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      final int chunk = Math.min(end - i, maxNomSize - retItems);
+      for (int j = i; j < i + chunk; j++) {
+        final float item = items[j];
+        if (Float.isNaN(item)) { continue; }
+        if (Float.isNaN(minItem) || item < minItem) { minItem = item; }
+        if (Float.isNaN(maxItem) || item > maxItem) { maxItem = item; }
+      }
+      final int appended = buf.append(items, i, chunk);
+      retItems += appended;
+      totalN += appended;
+      i += chunk;
+      if (retItems >= maxNomSize) {
+        buf.sort();
+        compress();
+      }
+    }
+    reqSV = null;
+  }
+
   @Override
   public String viewCompactorDetail(final String fmt, final boolean allData) {
     final StringBuilder sb = new StringBuilder();
@@ -566,35 +628,53 @@ public final class ReqSketch extends BaseReqSketch {
 
   private final FloatsSketchSortedView refreshSortedView() {
     if (reqSV == null) {
-      final CreateSortedView csv = new CreateSortedView();
-      reqSV = csv.getSV();
+      final List<FloatBuffer> buffers = new ArrayList<>(compactors.size());
+      for (final ReqCompactor c : compactors) { buffers.add(c.getBuffer()); }
+      reqSV = new CreateSortedView(this, retItems).getSV(buffers);
     }
     return reqSV;
   }
 
-  private final class CreateSortedView {
+  /**
+   * Creates the sorted view from the buffers of the compactors. Also used by the DirectReqSketch.
+   */
+  static final class CreateSortedView {
+    private final BaseReqSketch sk;
+    private final long totalN;
     float[] quantiles;
     long[] cumWeights;
 
-    FloatsSketchSortedView getSV() {
-      if (isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
-      //build the SV arrays
-      final List<ReqCompactor> compactors = getCompactors();
-      final int numComp = compactors.size();
-      final int totalQuantiles = getNumRetained();
+    /**
+     * @param sk the sketch, which supplies N, the min and max items and the HRA mode.
+     * @param totalQuantiles the total number of items in all the buffers
+     */
+    CreateSortedView(final BaseReqSketch sk, final int totalQuantiles) {
+      this.sk = sk;
+      this.totalN = sk.getN();
       quantiles = new float[totalQuantiles]; //could have zero entries
       cumWeights = new long[totalQuantiles];
+    }
+
+    /**
+     * Returns the sorted view.
+     * @param buffers the buffers of the compactors, where the buffer at index i has weight 2^i.
+     * A buffer that is not sorted will be sorted here.
+     * @return the sorted view.
+     */
+    FloatsSketchSortedView getSV(final List<FloatBuffer> buffers) {
+      if (sk.isEmpty()) { throw new SketchesArgumentException(EMPTY_MSG); }
+      //build the SV arrays
+      final int numComp = buffers.size();
       int count = 0;
       for (int i = 0; i < numComp; i++) {
-        final ReqCompactor c = compactors.get(i);
-        final FloatBuffer bufIn = c.getBuffer();
-        final long bufWeight = 1 << c.getLgWeight();
+        final FloatBuffer bufIn = buffers.get(i);
+        final long bufWeight = 1 << i;
         final int bufInLen = bufIn.getCount();
-        mergeSortIn(bufIn, bufWeight, count, getHighRankAccuracyMode());
+        mergeSortIn(bufIn, bufWeight, count, sk.getHighRankAccuracyMode());
         count += bufInLen;
       }
       createCumulativeNativeRanks();
-      return new FloatsSketchSortedView(quantiles, cumWeights, ReqSketch.this);
+      return new FloatsSketchSortedView(quantiles, cumWeights, sk);
     }
 
     /**
@@ -22,6 +22,11 @@ package org.apache.datasketches.req;
 import static org.apache.datasketches.common.Util.LS;
 import static org.apache.datasketches.common.Util.TAB;
 
+import java.util.Objects;
+
+import org.apache.datasketches.memory.MemoryRequestServer;
+import org.apache.datasketches.memory.WritableMemory;
+
 /**
  * For building a new ReqSketch
  *
@@ -51,6 +56,30 @@ public class ReqSketchBuilder {
     return sk;
   }
 
+  /**
+   * Returns a new ReqDoublesSketch with the current configuration of the builder.
+   * The ReqDebug configuration is ignored.
+   * @return a new ReqDoublesSketch
+   */
+  public ReqDoublesSketch buildDoubles() {
+    return new ReqDoublesSketch(bK, bHRA);
+  }
+
+  /**
+   * Returns a new DirectReqSketch with the current configuration of the builder, which is written
+   * into the given WritableMemory. The ReqDebug is not supported by the DirectReqSketch and is
+   * ignored.
+   * @param dstMem the given destination WritableMemory. If it is too small it will be replaced
+   * by a larger one obtained from the given MemoryRequestServer.
+   * @param memReqSvr the given MemoryRequestServer to request a larger WritableMemory
+   * @return a new DirectReqSketch
+   */
+  public DirectReqSketch build(final WritableMemory dstMem, final MemoryRequestServer memReqSvr) {
+    Objects.requireNonNull(dstMem, "Parameter 'dstMem' must not be null");
+    Objects.requireNonNull(memReqSvr, "Parameter 'memReqSvr' must not be null");
+    return DirectReqSketch.newInstance(bK, bHRA, dstMem, memReqSvr);
+  }
+
   /**
    * Gets the builder configured High Rank Accuracy.
    * @return the builder configured High Rank Accuracy.
@@ -0,0 +1,1052 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.datasketches.sampling;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.sampling.PreambleUtil.EMPTY_FLAG_MASK;
+import static org.apache.datasketches.sampling.PreambleUtil.GADGET_FLAG_MASK;
+import static org.apache.datasketches.sampling.PreambleUtil.TOTAL_WEIGHT_R_DOUBLE;
+import static org.apache.datasketches.sampling.PreambleUtil.VAROPT_SER_VER;
+import static org.apache.datasketches.sampling.PreambleUtil.VO_PRELONGS_EMPTY;
+import static org.apache.datasketches.sampling.PreambleUtil.VO_PRELONGS_FULL;
+import static org.apache.datasketches.sampling.PreambleUtil.VO_PRELONGS_WARMUP;
+import static org.apache.datasketches.sampling.PreambleUtil.extractFamilyID;
+import static org.apache.datasketches.sampling.PreambleUtil.extractFlags;
+import static org.apache.datasketches.sampling.PreambleUtil.extractHRegionItemCount;
+import static org.apache.datasketches.sampling.PreambleUtil.extractK;
+import static org.apache.datasketches.sampling.PreambleUtil.extractN;
+import static org.apache.datasketches.sampling.PreambleUtil.extractRRegionItemCount;
+import static org.apache.datasketches.sampling.PreambleUtil.extractResizeFactor;
+import static org.apache.datasketches.sampling.PreambleUtil.extractSerVer;
+import static org.apache.datasketches.sampling.PreambleUtil.extractTotalRWeight;
+import static org.apache.datasketches.sampling.PreambleUtil.getAndCheckPreLongs;
+import static org.apache.datasketches.sampling.SamplingUtil.pseudoHypergeometricLBonP;
+import static org.apache.datasketches.sampling.SamplingUtil.pseudoHypergeometricUBonP;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+import org.apache.datasketches.common.ArrayOfBooleansSerDe;
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesStateException;
+import org.apache.datasketches.common.Util;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * The common base of the varopt sketches of primitive items, {@link VarOptLongsSketch} and
+ * {@link VarOptDoublesSketch}. It holds the weights, the marks and the bookkeeping of the H, M and
+ * R regions, and runs the sampling algorithm of {@link VarOptItemsSketch} on them. The subclasses
+ * own the array of items and move items between slots as directed.
+ *
+ * <p>Every update first stores the new item in the slot at index h_, which is either the next
+ * free slot during warmup or the gap between the H and R regions, and then calls
+ * {@link #insertAtGap(double, boolean)}.</p>
+ */
+abstract class BaseVarOptSketch {
+  /**
+   * The smallest sampling array allocated: 16
+   */
+  static final int MIN_LG_ARR_ITEMS = 4;
+
+  /**
+   * Default sampling size multiple when reallocating storage: 8
+   */
+  static final ResizeFactor DEFAULT_RESIZE_FACTOR = ResizeFactor.X8;
+
+  /**
+   * Both long and double items take 8 bytes in the serialized image.
+   */
+  static final int ITEM_BYTES = 8;
+
+  int k_;                                // max size of sketch, in items
+  int currItemsAlloc_;                   // currently allocated array size
+  final ResizeFactor rf_;                // resize factor
+  double[] weights_;                     // weights for sampled items
+
+  long n_;                               // total number of items processed by the sketch
+  int h_;                                // number of items in heap
+  int m_;                                // number of items in middle region
+  int r_;                                // number of items in reservoir-like area
+  double totalWtR_;                      // total weight of items in reservoir-like area
+
+  // Count of marked items in H region if part of a unioning algo's gadget, otherwise zero.
+  // See VarOptItemsSketch for why this and the marks belong to the union.
+  int numMarksInH_;
+
+  // Absent in a varopt sketch, present in a union gadget
+  BitSet marks_;
+
+  // Offset of the items in the image a heapified sketch was read from, otherwise negative
+  private long itemsOffsetBytes_ = -1;
+
+  BaseVarOptSketch(final int k, final ResizeFactor rf) {
+    // required due to a theorem about lightness during merging
+    if ((k < 1) || (k > (Integer.MAX_VALUE - 1))) {
+      throw new SketchesArgumentException("k must be at least 1 and less than " + Integer.MAX_VALUE
+        + ". Found: " + k);
+    }
+
+    k_ = k;
+    n_ = 0;
+    rf_ = rf;
+
+    h_ = 0;
+    m_ = 0;
+    r_ = 0;
+    totalWtR_ = 0;
+    numMarksInH_ = 0;
+
+    currItemsAlloc_ = getInitialAllocation(k_, rf_);
+    weights_ = new double[currItemsAlloc_];
+    marks_ = null;
+  }
+
+  BaseVarOptSketch(final double[] weights,
+                   final int k,
+                   final long n,
+                   final ResizeFactor rf,
+                   final int hCount,
+                   final int rCount,
+                   final double totalWtR) {
+    assert weights != null;
+    assert k >= 2;
+    assert n >= 0;
+    assert hCount >= 0;
+    assert rCount >= 0;
+    assert ((rCount == 0) && (weights.length >= hCount)) || ((rCount > 0) && (weights.length >= (k + 1)));
+
+    k_ = k;
+    n_ = n;
+    h_ = hCount;
+    r_ = rCount;
+    m_ = 0;
+    totalWtR_ = totalWtR;
+    currItemsAlloc_ = weights.length;
+    rf_ = rf;
+    weights_ = weights;
+
+    numMarksInH_ = 0;
+    marks_ = null;
+  }
+
+  /**
+   * Reads the preamble, weights and marks of a serialized varopt sketch, checking them for
+   * corruption. The subclass then allocates its array of items and calls
+   * {@link #readItems(Memory)}.
+   *
+   * @param srcMem a Memory representation of a varopt sketch of primitive items
+   */
+  BaseVarOptSketch(final Memory srcMem) {
+    final int numPreLongs = getAndCheckPreLongs(srcMem);
+    final ResizeFactor rf = ResizeFactor.getRF(extractResizeFactor(srcMem));
+    final int serVer = extractSerVer(srcMem);
+    final int familyId = extractFamilyID(srcMem);
+    final int flags = extractFlags(srcMem);
+    final boolean isEmpty = (flags & EMPTY_FLAG_MASK) != 0;
+    final boolean isGadget = (flags & GADGET_FLAG_MASK) != 0;
+
+    // Check values
+    if (isEmpty) {
+      if (numPreLongs != VO_PRELONGS_EMPTY) {
+        throw new SketchesArgumentException("Possible corruption: Must be " + VO_PRELONGS_EMPTY
+                + " for an empty sketch. Found: " + numPreLongs);
+      }
+    } else {
+      if ((numPreLongs != VO_PRELONGS_WARMUP)
+          && (numPreLongs != VO_PRELONGS_FULL)) {
+        throw new SketchesArgumentException("Possible corruption: Must be " + VO_PRELONGS_WARMUP
+                + " or " + VO_PRELONGS_FULL + " for a non-empty sketch. Found: " + numPreLongs);
+      }
+    }
+    if (serVer != VAROPT_SER_VER) {
+        throw new SketchesArgumentException(
+                "Possible Corruption: Ser Ver must be " + VAROPT_SER_VER + ": " + serVer);
+    }
+    final int reqFamilyId = Family.VAROPT.getID();
+    if (familyId != reqFamilyId) {
+      throw new SketchesArgumentException(
+              "Possible Corruption: FamilyID must be " + reqFamilyId + ": " + familyId);
+    }
+
+    final int k = extractK(srcMem);
+    if (k < 1) {
+      throw new SketchesArgumentException("Possible Corruption: k must be at least 1: " + k);
+    }
+
+    if (isEmpty) {
+      if (k > (Integer.MAX_VALUE - 1)) {
+        throw new SketchesArgumentException("k must be at least 1 and less than "
+          + Integer.MAX_VALUE + ". Found: " + k);
+      }
+      k_ = k;
+      rf_ = rf;
+      currItemsAlloc_ = getInitialAllocation(k_, rf_);
+      weights_ = new double[currItemsAlloc_];
+      return;
+    }
+
+    final long n = extractN(srcMem);
+    if (n < 0) {
+      throw new SketchesArgumentException("Possible Corruption: n cannot be negative: " + n);
+    }
+
+    // get rest of preamble
+    final int hCount = extractHRegionItemCount(srcMem);
+    final int rCount = extractRRegionItemCount(srcMem);
+
+    if (hCount < 0) {
+      throw new SketchesArgumentException("Possible Corruption: H region count cannot be "
+              + "negative: " + hCount);
+    }
+    if (rCount < 0) {
+      throw new SketchesArgumentException("Possible Corruption: R region count cannot be "
+              + "negative: " + rCount);
+    }
+
+    double totalRWeight = 0.0;
+    if (numPreLongs == Family.VAROPT.getMaxPreLongs()) {
+      if (rCount > 0) {
+        totalRWeight = extractTotalRWeight(srcMem);
+      } else {
+        throw new SketchesArgumentException(
+                "Possible Corruption: "
+                        + Family.VAROPT.getMaxPreLongs() + " preLongs but no items in R region");
+      }
+    }
+
+    final int preLongBytes = numPreLongs << 3;
+
+    int allocatedItems = k + 1; // default to full
+    if (rCount == 0) {
+      // Not in sampling mode, so determine size to allocate, using ceilingLog2(hCount) as minimum
+      final int ceilingLgK = Util.exactLog2OfInt(Util.ceilingPowerOf2(k), "heapify");
+      final int minLgSize = Util.exactLog2OfInt(Util.ceilingPowerOf2(hCount), "heapify");
+      final int initialLgSize = SamplingUtil.startingSubMultiple(ceilingLgK, rf.lg(),
+              Math.max(minLgSize, MIN_LG_ARR_ITEMS));
+
+      allocatedItems = SamplingUtil.getAdjustedSize(k, 1 << initialLgSize);
+      if (allocatedItems == k) {
+        ++allocatedItems;
+      }
+    }
+
+    // allocate full-sized arrays, but we store only hCount weights at any moment
+    final long weightOffsetBytes = TOTAL_WEIGHT_R_DOUBLE + (rCount > 0 ? Double.BYTES : 0);
+    final double[] weights = new double[allocatedItems];
+    srcMem.getDoubleArray(weightOffsetBytes, weights, 0, hCount);
+    for (int i = 0; i < hCount; ++i) {
+      if (weights[i] <= 0.0) {
+        throw new SketchesArgumentException("Possible Corruption: "
+                + "Non-positive weight in heapify(): " + weights[i]);
+      }
+    }
+    if (rCount > 0) {
+      Arrays.fill(weights, hCount, hCount + 1 + rCount, -1.0);
+    }
+
+    // marks, if we have a gadget
+    long markBytes = 0;
+    if (isGadget) {
+      final long markOffsetBytes = preLongBytes + ((long) hCount * Double.BYTES);
+      markBytes = ArrayOfBooleansSerDe.computeBytesNeeded(hCount);
+      final byte[] markArr = new byte[(int) markBytes];
+      srcMem.getByteArray(markOffsetBytes, markArr, 0, markArr.length);
+      marks_ = BitSet.valueOf(markArr);
+      marks_.clear(hCount, markArr.length << 3); // ignore any padding bits
+      numMarksInH_ = marks_.cardinality();
+    }
+
+    k_ = k;
+    n_ = n;
+    h_ = hCount;
+    r_ = rCount;
+    totalWtR_ = totalRWeight;
+    currItemsAlloc_ = allocatedItems;
+    rf_ = rf;
+    weights_ = weights;
+
+    // items follow the marks; the gap (if any) sits between the H and R regions
+    itemsOffsetBytes_ = preLongBytes + ((long) hCount * Double.BYTES) + markBytes;
+  }
+
+  // item operations of the subclasses
+
+  /* swaps the items at the src and dst indices */
+  abstract void swapItems(int src, int dst);
+
+  /* copies the item at the src index to the dst index */
+  abstract void copyItem(int src, int dst);
+
+  /* resizes the array of items, keeping the items held */
+  abstract void resizeItems(int newAlloc);
+
+  /* replaces the array of items with an empty one */
+  abstract void clearItems(int newAlloc);
+
+  /* writes count items starting at the given index, as 8 bytes each */
+  abstract void putItems(WritableMemory mem, long offsetBytes, int index, int count);
+
+  /* reads count items of 8 bytes each into the slots starting at the given index */
+  abstract void getItems(Memory mem, long offsetBytes, int index, int count);
+
+  /**
+   * Reads the items of the serialized sketch this sketch was constructed from, skipping the gap.
+   *
+   * @param srcMem the Memory given to {@link #BaseVarOptSketch(Memory)}
+   */
+  void readItems(final Memory srcMem) {
+    if (itemsOffsetBytes_ < 0) {
+      return; // empty
+    }
+    getItems(srcMem, itemsOffsetBytes_, 0, h_);
+    if (r_ > 0) {
+      getItems(srcMem, itemsOffsetBytes_ + ((long) h_ * ITEM_BYTES), h_ + 1, r_);
+    }
+  }
+
+  /**
+   * Returns the sketch's value of <i>k</i>, the maximum number of samples stored in the
+   * sketch. The current number of items in the sketch may be lower.
+   *
+   * @return k, the maximum number of samples in the sketch
+   */
+  public int getK() {
+    return k_;
+  }
+
+  /**
+   * Returns the number of items processed from the input stream
+   *
+   * @return n, the number of stream items the sketch has seen
+   */
+  public long getN() {
+    return n_;
+  }
+
+  /**
+   * Returns the current number of items in the sketch, which may be smaller than the
+   * sketch capacity.
+   *
+   * @return the number of items currently in the sketch
+   */
+  public int getNumSamples() {
+    return Math.min(k_, h_ + r_);
+  }
+
+  /**
+   * Returns the weights of the samples, in the same order as the samples, or null if empty.
+   * Items in the R region all carry the sketch's current threshold weight.
+   *
+   * @return A copy of the sample weights
+   */
+  public double[] getWeights() {
+    if ((h_ + r_) == 0) {
+      return null;
+    }
+
+    final double[] wts = new double[h_ + r_];
+    System.arraycopy(weights_, 0, wts, 0, h_);
+    if (r_ > 0) {
+      Arrays.fill(wts, h_, h_ + r_, getTau());
+    }
+    return wts;
+  }
+
+  /**
+   * Resets this sketch to the empty state, but retains the original value of k.
+   */
+  public void reset() {
+    currItemsAlloc_ = getInitialAllocation(k_, rf_);
+    clearItems(currItemsAlloc_);
+    weights_ = new double[currItemsAlloc_];
+    if (marks_ != null) {
+      marks_ = new BitSet(currItemsAlloc_);
+    }
+
+    n_ = 0;
+    h_ = 0;
+    m_ = 0;
+    r_ = 0;
+    numMarksInH_ = 0;
+    totalWtR_ = 0.0;
+  }
+
+  /**
+   * Returns a human-readable summary of the sketch.
+   *
+   * @return A string version of the sketch summary
+   */
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+
+    final String thisSimpleName = this.getClass().getSimpleName();
+
+    sb.append(LS);
+    sb.append("### ").append(thisSimpleName).append(" SUMMARY: ").append(LS);
+    sb.append("   k            : ").append(k_).append(LS);
+    sb.append("   h            : ").append(h_).append(LS);
+    sb.append("   r            : ").append(r_).append(LS);
+    sb.append("   weight_r     : ").append(totalWtR_).append(LS);
+    sb.append("   Current size : ").append(currItemsAlloc_).append(LS);
+    sb.append("   Resize factor: ").append(rf_).append(LS);
+    sb.append("### END SKETCH SUMMARY").append(LS);
+
+    return sb.toString();
+  }
+
+  /**
+   * Returns a byte array representation of this sketch.
+   *
+   * @return a byte array representation of this sketch
+   */
+  public byte[] toByteArray() {
+    final int preLongs, numMarkBytes, outBytes;
+    final boolean empty = (r_ == 0) && (h_ == 0);
+    int flags = marks_ == null ? 0 : GADGET_FLAG_MASK;
+
+    if (empty) {
+      preLongs = Family.VAROPT.getMinPreLongs();
+      numMarkBytes = 0;
+      outBytes = Family.VAROPT.getMinPreLongs() << 3; // only contains the minimum header info
+      flags |= EMPTY_FLAG_MASK;
+    } else {
+      preLongs = (r_ == 0 ? PreambleUtil.VO_PRELONGS_WARMUP : Family.VAROPT.getMaxPreLongs());
+      numMarkBytes = marks_ == null ? 0 : ArrayOfBooleansSerDe.computeBytesNeeded(h_);
+      outBytes = (preLongs << 3) + (h_ * Double.BYTES) + numMarkBytes + ((h_ + r_) * ITEM_BYTES);
+    }
+    final byte[] outArr = new byte[outBytes];
+    final WritableMemory mem = WritableMemory.writableWrap(outArr);
+
+    // build first preLong
+    PreambleUtil.insertPreLongs(mem, preLongs);               // Byte 0
+    PreambleUtil.insertLgResizeFactor(mem, rf_.lg());
+    PreambleUtil.insertSerVer(mem, VAROPT_SER_VER);           // Byte 1
+    PreambleUtil.insertFamilyID(mem, Family.VAROPT.getID());  // Byte 2
+    PreambleUtil.insertFlags(mem, flags);                     // Byte 3
+    PreambleUtil.insertK(mem, k_);                            // Bytes 4-7
+
+    if (!empty) {
+      PreambleUtil.insertN(mem, n_);                          // Bytes 8-15
+      PreambleUtil.insertHRegionItemCount(mem, h_);           // Bytes 16-19
+      PreambleUtil.insertRRegionItemCount(mem, r_);           // Bytes 20-23
+      if (r_ > 0) {
+        PreambleUtil.insertTotalRWeight(mem, totalWtR_);      // Bytes 24-31
+      }
+
+      // write the first h_ weights
+      long offset = preLongs << 3;
+      mem.putDoubleArray(offset, weights_, 0, h_);
+      offset += (long) h_ * Double.BYTES;
+
+      // write the first h_ marks, iff we have a gadget, in the bit order of ArrayOfBooleansSerDe
+      if (marks_ != null) {
+        final byte[] markBytes = marks_.get(0, h_).toByteArray();
+        mem.putByteArray(offset, markBytes, 0, markBytes.length);
+        offset += numMarkBytes;
+      }
+
+      // write the sample items, skipping the gap
+      putItems(mem, offset, 0, h_);
+      offset += (long) h_ * ITEM_BYTES;
+      if (r_ > 0) {
+        putItems(mem, offset, h_ + 1, r_);
+      }
+    }
+
+    return outArr;
+  }
+
+  /**
+   * Computes an estimated subset sum from the entire stream for the items in the slots matching
+   * the given predicate on slot indices.
+   *
+   * @param slotPredicate A predicate on the slot index of an item
+   * @return A summary object containing the estimate, upper and lower bounds, and the total
+   * sketch weight.
+   */
+  SampleSubsetSummary estimateSubsetSumOfSlots(final IntPredicate slotPredicate) {
+    if (n_ == 0) {
+      return new SampleSubsetSummary(0.0, 0.0, 0.0, 0.0);
+    }
+
+    double totalWtH = 0.0;
+    double hTrueWeight = 0.0;
+    for (int idx = 0; idx < h_; ++idx) {
+      final double wt = weights_[idx];
+      totalWtH += wt;
+      if (slotPredicate.test(idx)) {
+        hTrueWeight += wt;
+      }
+    }
+
+    // if only heavy items, we have an exact answer
+    if (r_ == 0) {
+      return new SampleSubsetSummary(hTrueWeight, hTrueWeight, hTrueWeight, hTrueWeight);
+    }
+
+    final long numSampled = n_ - h_;
+    assert numSampled > 0;
+    final double effectiveSamplingRate = r_ / (double) numSampled;
+    assert effectiveSamplingRate >= 0.0;
+    assert effectiveSamplingRate <= 1.0;
+
+    int rTrueCount = 0;
+    for (int idx = h_ + 1; idx < (k_ + 1); ++idx) { // skip the gap
+      if (slotPredicate.test(idx)) {
+        ++rTrueCount;
+      }
+    }
+
+    final double lbTrueFraction = pseudoHypergeometricLBonP(r_, rTrueCount, effectiveSamplingRate);
+    final double estimatedTrueFraction = (1.0 * rTrueCount) / r_;
+    final double ubTrueFraction = pseudoHypergeometricUBonP(r_, rTrueCount, effectiveSamplingRate);
+    return new SampleSubsetSummary(
+            hTrueWeight + (totalWtR_ * lbTrueFraction),
+            hTrueWeight + (totalWtR_ * estimatedTrueFraction),
+            hTrueWeight + (totalWtR_ * ubTrueFraction),
+            totalWtH + totalWtR_);
+  }
+
+  /**
+   * Copies the marks of this sketch, if any, and sets n of the given copy of this sketch.
+   *
+   * @param sketch a copy of this sketch
+   * @param asSketch If true, copies as a sketch; if false, copies as a union gadget
+   * @param adjustedN Target value of n for the resulting sketch. Ignored if negative.
+   */
+  void copyMarksAndSetN(final BaseVarOptSketch sketch, final boolean asSketch, final long adjustedN) {
+    if (!asSketch) {
+      sketch.marks_ = (marks_ == null ? null : (BitSet) marks_.clone());
+      sketch.numMarksInH_ = numMarksInH_;
+    }
+
+    if (adjustedN >= 0) {
+      sketch.n_ = adjustedN;
+    }
+  }
+
+  /**
+   * Strips the mark array from the object, making what had been a gadget indistinguishable form
+   * a sketch. Avoids an extra copy.
+   */
+  void stripMarks() {
+    assert marks_ != null;
+    numMarksInH_ = 0;
+    marks_ = null;
+  }
+
+  // package-private getters
+
+  // package-private: Bounds checks against the in-use slots and assumes caller knows how to handle
+  // a negative value (whether from the gap in the middle or an R-region item)
+  double getWeight(final int idx) {
+    checkSlotIndex(idx);
+    return weights_[idx];
+  }
+
+  // package-private: Bounds checks against the in-use slots and assumes caller knows how to
+  // handle a false from the gap in the middle.
+  boolean getMark(final int idx) {
+    checkSlotIndex(idx);
+    return marks_.get(idx);
+  }
+
+  int getHRegionCount() {
+    return h_;
+  }
+
+  int getRRegionCount() { return r_; }
+
+  int getNumMarksInH() { return numMarksInH_; }
+
+  // Needed for unioning
+  double getTau() {
+    return r_ == 0 ? Double.NaN : (totalWtR_ / r_);
+  }
+
+  double getTotalWtR() {
+    return totalWtR_;
+  }
+
+  // package-private setter, used to resolve gadget into sketch during union
+  void forceSetK(final int k) {
+    assert k > 0;
+    k_ = k;
+  }
+
+  /**
+   * Makes sure the slot at index h_ exists, so that an update can store its item there.
+   */
+  void ensureGapSlot() {
+    if (h_ >= currItemsAlloc_) {
+      // only possible during warmup
+      assert r_ == 0;
+      growDataArrays();
+    }
+  }
+
+  /**
+   * Continues an update whose item has already been stored in the slot at index h_. The marks
+   * are used only in merging.
+   *
+   * @param weight a strictly positive weight associated with the item
+   * @param mark true if an item comes from a sketch's reservoir region
+   */
+  void insertAtGap(final double weight, final boolean mark) {
+    ++n_;
+
+    if (r_ == 0) {
+      // exact mode
+      updateWarmupPhase(weight, mark);
+    } else {
+      // sketch is in estimation mode, so we can make the following check
+      assert (h_ == 0) || (peekMin() >= getTau());
+
+      // what tau would be if deletion candidates turn out to be R plus the new item
+      // note: (r_ + 1) - 1 is intentional
+      final double hypotheticalTau = (weight + totalWtR_) / ((r_ + 1) - 1);
+
+      // is new item's turn to be considered for reservoir?
+      final boolean condition1 = (h_ == 0) || (weight <= peekMin());
+
+      // is new item light enough for reservoir?
+      final boolean condition2 = weight < hypotheticalTau;
+
+      if (condition1 && condition2) {
+        updateLight(weight, mark);
+      } else if (r_ == 1) {
+        updateHeavyREq1(weight, mark);
+      } else {
+        updateHeavyGeneral(weight, mark);
+      }
+    }
+  }
+
+  /**
+   * Decreases sketch's value of k by 1, updating stored values as needed.
+   *
+   * <p>Subject to certain pre-conditions, decreasing k causes tau to increase. This fact is used by
+   * the unioning algorithm to force "marked" items out of H and into the reservoir region.</p>
+   */
+  void decreaseKBy1() {
+    if (k_ <= 1) {
+      throw new SketchesStateException("Cannot decrease k below 1 in union");
+    }
+
+    if ((h_ == 0) && (r_ == 0)) {
+      // exact mode, but no data yet; this reduction is somewhat gratuitous
+      --k_;
+    } else if ((h_ > 0) && (r_ == 0)) {
+      // exact mode, but we have some data
+      --k_;
+      if (h_ > k_) {
+        transitionFromWarmup();
+      }
+    } else if ((h_ > 0) && (r_ > 0)) {
+      // reservoir mode, but we have some exact samples.
+      // Our strategy will be to pull an item out of H (which we are allowed to do since it's
+      // still just data), reduce k, and then re-insert the item
+
+      // first, slide the R zone to the left by 1, temporarily filling the gap
+      final int oldGapIdx = h_;
+      final int oldFinalRIdx = (h_ + 1 + r_) - 1;
+
+      assert oldFinalRIdx == k_;
+      swapValues(oldFinalRIdx, oldGapIdx);
+
+      // now we pull an item out of H; any item is ok, but if we grab the rightmost and then
+      // reduce h_, the heap invariant will be preserved (and the gap will be restored), plus
+      // the push() of the item that will probably happen later will be cheap.
+
+      final int pulledIdx = h_ - 1;
+      final double pulledWeight = weights_[pulledIdx];
+      final boolean pulledMark = marks_.get(pulledIdx);
+
+      if (pulledMark) { --numMarksInH_; }
+      weights_[pulledIdx] = -1.0; // to make bugs easier to spot
+
+      --h_;
+      --k_;
+      --n_; // will be re-incremented with the update
+
+      // the pulled item now sits in the slot at index h_
+      insertAtGap(pulledWeight, pulledMark);
+    } else if ((h_ == 0) && (r_ > 0)) {
+      // pure reservoir mode, so can simply eject a randomly chosen sample from the reservoir
+      assert r_ >= 2;
+
+      final int rIdxToDelete = 1 + SamplingUtil.rand().nextInt(r_); // 1 for the gap
+      final int rightmostRIdx = (1 + r_) - 1;
+      swapValues(rIdxToDelete, rightmostRIdx);
+      weights_[rightmostRIdx] = -1.0;
+
+      --k_;
+      --r_;
+    }
+  }
+
+  /* In the "light" case the new item has weight <= old_tau, so
+     would appear to the right of the R items in a hypothetical reverse-sorted
+     list. It is easy to prove that it is light enough to be part of this
+     round's downsampling */
+  private void updateLight(final double weight, final boolean mark) {
+    assert r_ >= 1;
+    assert (r_ + h_) == k_;
+
+    final int mSlot = h_; // index of the gap, which becomes the M region
+    weights_[mSlot] = weight;
+    if (marks_ != null) { marks_.set(mSlot, mark); }
+    ++m_;
+
+    growCandidateSet(totalWtR_ + weight, r_ + 1);
+  }
+
+  /* In the "heavy" case the new item has weight > old_tau, so would
+     appear to the left of items in R in a hypothetical reverse-sorted list and
+     might or might not be light enough be part of this round's downsampling.
+     See VarOptItemsSketch for the full explanation. */
+  private void updateHeavyGeneral(final double weight, final boolean mark) {
+    assert m_ == 0;
+    assert r_ >= 2;
+    assert (r_ + h_) == k_;
+
+    // put into H, although may come back out momentarily
+    push(weight, mark);
+
+    growCandidateSet(totalWtR_, r_);
+  }
+
+  /* Since R < 2, we must grab an M item to have a valid starting point for
+     growCandidateSet() */
+  private void updateHeavyREq1(final double weight, final boolean mark) {
+    assert m_ == 0;
+    assert r_ == 1;
+    assert (r_ + h_) == k_;
+
+    push(weight, mark);  // new item into H
+    popMinToMRegion();   // pop lightest back into M
+
+    // Any set of two items is downsample-able to one item,
+    // so the two lightest items are a valid starting point for the following
+    final int mSlot = k_ - 1; // array is k+1, 1 in R, so slot before is M
+    growCandidateSet(weights_[mSlot] + totalWtR_, 2);
+  }
+
+  private void updateWarmupPhase(final double wt, final boolean mark) {
+    assert r_ == 0;
+    assert m_ == 0;
+    assert h_ <= k_;
+    assert h_ < currItemsAlloc_;
+
+    // store items as they come in, until full
+    weights_[h_] = wt;
+    if (marks_ != null) { marks_.set(h_, mark); }
+    ++h_;
+    numMarksInH_ += mark ? 1 : 0;
+
+    // check if need to heapify
+    if (h_ > k_) {
+      transitionFromWarmup();
+    }
+  }
+
+  private void transitionFromWarmup() {
+    // Move 2 lightest items from H to M
+    // But the lighter really belongs in R, so update counts to reflect that
+    convertToHeap();
+    popMinToMRegion();
+    popMinToMRegion();
+    --m_;
+    ++r_;
+
+    assert h_ == (k_ - 1);
+    assert m_ == 1;
+    assert r_ == 1;
+
+    // Update total weight in R then, having grabbed the value, overwrite in
+    // weight_ array to help make bugs more obvious
+    totalWtR_ = weights_[k_]; // only one item, known location
+    weights_[k_] = -1.0;
+
+    // The two lightest items are necessarily downsample-able to one item, and are therefore a
+    // valid initial candidate set.
+    growCandidateSet(weights_[k_ - 1] + totalWtR_, 2);
+  }
+
+  /* Converts the items and weights_ arrays to heaps. */
+  void convertToHeap() {
+    if (h_ < 2) {
+      return; // nothing to do
+    }
+
+    final int lastSlot = h_ - 1;
+    final int lastNonLeaf = ((lastSlot + 1) / 2) - 1;
+
+    for (int j = lastNonLeaf; j >= 0; --j) {
+      restoreTowardsLeaves(j);
+    }
+  }
+
+  private void restoreTowardsLeaves(final int slotIn) {
+    assert h_ > 0;
+    final int lastSlot = h_ - 1;
+    assert slotIn <= lastSlot;
+
+    int slot = slotIn;
+    int child = (2 * slotIn) + 1; // might be invalid, need to check
+
+    while (child <= lastSlot) {
+      final int child2 = child + 1; // might also be invalid
+      if ((child2 <= lastSlot) && (weights_[child2] < weights_[child])) {
+        // switch to other child if it's both valid and smaller
+        child = child2;
+      }
+
+      if (weights_[slot] <= weights_[child]) {
+        // invariant holds so we're done
+        break;
+      }
+
+      // swap and continue
+      swapValues(slot, child);
+
+      slot = child;
+      child = (2 * slot) + 1; // might be invalid, checked on next loop
+    }
+  }
+
+  private void restoreTowardsRoot(final int slotIn) {
+    int slot = slotIn;
+    int p = (((slot + 1) / 2) - 1); // valid if slot >= 1
+    while ((slot > 0) && (weights_[slot] < weights_[p])) {
+      swapValues(slot, p);
+      slot = p;
+      p = (((slot + 1) / 2) - 1); // valid if slot >= 1
+    }
+  }
+
+  private void push(final double wt, final boolean mark) {
+    weights_[h_] = wt;
+    if (marks_ != null) {
+      marks_.set(h_, mark);
+      numMarksInH_ += (mark ? 1 : 0);
+    }
+    ++h_;
+
+    restoreTowardsRoot(h_ - 1); // need use old h_, but want accurate h_
+  }
+
+  private double peekMin() {
+    assert h_ > 0;
+    return weights_[0];
+  }
+
+  private void popMinToMRegion() {
+    assert h_ > 0;
+    assert (h_ + m_ + r_) == (k_ + 1);
+
+    if (h_ == 1) {
+      // just update bookkeeping
+      ++m_;
+      --h_;
+    } else {
+      // main case
+      final int tgt = h_ - 1; // last slot, will swap with root
+      swapValues(0, tgt);
+      ++m_;
+      --h_;
+
+      restoreTowardsLeaves(0);
+    }
+
+    if (isMarked(h_)) {
+      --numMarksInH_;
+    }
+  }
+
+  /* The candidate set is grown exactly as in VarOptItemsSketch.growCandidateSet(). */
+  private void growCandidateSet(double wtCands, int numCands) {
+    assert (h_ + m_ + r_) == (k_ + 1);
+    assert numCands >= 2;       // essential
+    assert numCands == (m_ + r_); // essential
+    assert (m_ == 0) || (m_ == 1);
+
+    while (h_ > 0) {
+      final double nextWt = peekMin();
+      final double nextTotWt = wtCands + nextWt;
+
+      // test for strict lightness of next prospect (denominator multiplied through)
+      if ((nextWt * numCands) < nextTotWt) {
+        wtCands = nextTotWt;
+        ++numCands;
+        popMinToMRegion(); // adjusts h_ and m_
+      } else {
+        break;
+      }
+    }
+
+    downsampleCandidateSet(wtCands, numCands);
+  }
+
+  private int pickRandomSlotInR() {
+    assert r_ > 0;
+    final int offset = h_ + m_;
+    if (r_ == 1) {
+      return offset;
+    } else {
+      return offset + SamplingUtil.rand().nextInt(r_);
+    }
+  }
+
+  private int chooseDeleteSlot(final double wtCand, final int numCand) {
+    assert r_ > 0;
+
+    if (m_ == 0) {
+      // this happens if we insert a really heavy item
+      return pickRandomSlotInR();
+    } else if (m_ == 1) {
+      // check if we keep the item in M or pick one from R
+      // p(keep) = (numCand - 1) * wt_M / wt_cand
+      final double wtMCand = weights_[h_]; // slot of item in M is h_
+      if ((wtCand * SamplingUtil.nextDoubleExcludeZero()) < ((numCand - 1) * wtMCand)) {
+        return pickRandomSlotInR(); // keep item in M
+      } else {
+        return h_; // index of item in M
+      }
+    } else {
+      // general case
+      final int deleteSlot = chooseWeightedDeleteSlot(wtCand, numCand);
+      final int firstRSlot = h_ + m_;
+      if (deleteSlot == firstRSlot) {
+        return pickRandomSlotInR();
+      } else {
+        return deleteSlot;
+      }
+    }
+  }
+
+  private int chooseWeightedDeleteSlot(final double wtCand, final int numCand) {
+    assert m_ >= 1;
+
+    final int offset = h_;
+    final int finalM = (offset + m_) - 1;
+    final int numToKeep = numCand - 1;
+
+    double leftSubtotal = 0.0;
+    double rightSubtotal = -1.0 * wtCand * SamplingUtil.nextDoubleExcludeZero();
+
+    for (int i = offset; i <= finalM; ++i) {
+      leftSubtotal += numToKeep * weights_[i];
+      rightSubtotal += wtCand;
+
+      if (leftSubtotal < rightSubtotal) {
+        return i;
+      }
+    }
+
+    // this slot tells caller that we need to delete out of R
+    return finalM + 1;
+  }
+
+  private void downsampleCandidateSet(final double wtCands, final int numCands) {
+    assert numCands >= 2;
+    assert (h_ + numCands) == (k_ + 1);
+
+    // need this before overwriting anything
+    final int deleteSlot = chooseDeleteSlot(wtCands, numCands);
+    final int leftmostCandSlot = h_;
+    assert deleteSlot >= leftmostCandSlot;
+    assert deleteSlot <= k_;
+
+    // overwrite weights for items from M moving into R, to make bugs more obvious
+    final int stopIdx = leftmostCandSlot + m_;
+    for (int j = leftmostCandSlot; j < stopIdx; ++j) {
+      weights_[j] = -1.0;
+    }
+
+    // The next line works even when deleteSlot == leftmostCandSlot. The leftmost candidate slot
+    // becomes the gap, which is tracked by position rather than by a null item.
+    copyItem(leftmostCandSlot, deleteSlot);
+
+    m_ = 0;
+    r_ = numCands - 1;
+    totalWtR_ = wtCands;
+  }
+
+  /* swap values of items, weights_, and marks between src and dst indices */
+  private void swapValues(final int src, final int dst) {
+    swapItems(src, dst);
+
+    final double wt = weights_[src];
+    weights_[src] = weights_[dst];
+    weights_[dst] = wt;
+
+    if (marks_ != null) {
+      final boolean mark = marks_.get(src);
+      marks_.set(src, marks_.get(dst));
+      marks_.set(dst, mark);
+    }
+  }
+
+  private boolean isMarked(final int idx) {
+    return marks_ != null ? marks_.get(idx) : false;
+  }
+
+  // the arrays are allocated ahead of use, so bound indices by the slots actually in use
+  void checkSlotIndex(final int idx) {
+    final int numSlots = (r_ == 0 ? h_ : k_ + 1);
+    if ((idx < 0) || (idx >= numSlots)) {
+      throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + numSlots);
+    }
+  }
+
+  static int getInitialAllocation(final int k, final ResizeFactor rf) {
+    final int ceilingLgK = Util.exactLog2OfInt(Util.ceilingPowerOf2(k), "VarOptSketch");
+    final int initialLgSize =
+            SamplingUtil.startingSubMultiple(ceilingLgK, rf.lg(), MIN_LG_ARR_ITEMS);
+
+    int allocItems = SamplingUtil.getAdjustedSize(k, 1 << initialLgSize);
+    if (allocItems == k) {
+      ++allocItems;
+    }
+    return allocItems;
+  }
+
+  /**
+   * Increases allocated sampling size by (adjusted) ResizeFactor and copies items from old
+   * sampling. Only happens when buffer is not full, so don't need to worry about blindly copying
+   * the array items. The BitSet of marks, if any, grows on demand.
+   */
+  private void growDataArrays() {
+    currItemsAlloc_ = SamplingUtil.getAdjustedSize(k_, currItemsAlloc_ << rf_.lg());
+    if (currItemsAlloc_ == k_) {
+      ++currItemsAlloc_;
+    }
+
+    resizeItems(currItemsAlloc_);
+    weights_ = Arrays.copyOf(weights_, currItemsAlloc_);
+  }
+}
@@ -0,0 +1,462 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.datasketches.sampling;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.sampling.PreambleUtil.EMPTY_FLAG_MASK;
+import static org.apache.datasketches.sampling.PreambleUtil.FAMILY_BYTE;
+import static org.apache.datasketches.sampling.PreambleUtil.VAROPT_SER_VER;
+import static org.apache.datasketches.sampling.PreambleUtil.extractFlags;
+import static org.apache.datasketches.sampling.PreambleUtil.extractMaxK;
+import static org.apache.datasketches.sampling.PreambleUtil.extractN;
+import static org.apache.datasketches.sampling.PreambleUtil.extractOuterTauDenominator;
+import static org.apache.datasketches.sampling.PreambleUtil.extractOuterTauNumerator;
+import static org.apache.datasketches.sampling.PreambleUtil.extractPreLongs;
+import static org.apache.datasketches.sampling.PreambleUtil.extractSerVer;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * The common base of the unions of varopt sketches of primitive items, {@link VarOptLongsUnion}
+ * and {@link VarOptDoublesUnion}. It holds the gadget and the outer tau bookkeeping, and runs the
+ * unioning algorithm of {@link VarOptItemsUnion}. The subclasses move items between sketches of
+ * their own item type.
+ *
+ * @param <S> the type of varopt sketch
+ */
+abstract class BaseVarOptUnion<S extends BaseVarOptSketch> {
+  S gadget_;
+  final int maxK_;
+  long n_; // cumulative over all input sketches
+
+  // outer tau is the largest tau of any input sketch
+  double outerTauNumer; // total weight of all input R-zones where tau = outerTau
+
+  // total cardinality of the same R-zones, or zero if no input sketch was in estimation mode
+  long outerTauDenom;
+
+  /**
+   * Empty constructor
+   *
+   * @param maxK Maximum allowed reservoir capacity for this union
+   * @param gadget an empty gadget with maximum size maxK
+   */
+  BaseVarOptUnion(final int maxK, final S gadget) {
+    maxK_ = maxK;
+    n_ = 0;
+    outerTauNumer = 0.0;
+    outerTauDenom = 0;
+    gadget_ = gadget;
+  }
+
+  // item operations of the subclasses
+
+  /* heapifies a sketch of the item type of this union */
+  abstract S heapifySketch(Memory mem);
+
+  /* copies the gadget, see VarOptLongsSketch.copyAndSetN() */
+  abstract S copyGadget(boolean asSketch, long adjustedN);
+
+  /* updates the gadget with the item in the given slot of the given sketch */
+  abstract void updateGadget(S sketch, int idx, double weight, boolean mark);
+
+  /* builds a result sketch holding the gadget items at the given slots, where a negative slot
+     is the gap */
+  abstract S newResultFromGadgetSlots(int[] gadgetSlots, double[] weights, int k, long n,
+                                      int hCount, int rCount, double totalWtR);
+
+  /**
+   * Instantiates a union from Memory
+   *
+   * @param <U> the type of union
+   * @param srcMem Memory object containing a serialized union
+   * @param newUnion creates an empty union of the given maximum capacity
+   * @return A union created from the provided Memory
+   */
+  static <U extends BaseVarOptUnion<?>> U heapifyUnion(final Memory srcMem,
+                                                        final IntFunction<U> newUnion) {
+    Family.VAROPT_UNION.checkFamilyID(srcMem.getByte(FAMILY_BYTE));
+
+    long n = 0;
+    double outerTauNum = 0.0;
+    long outerTauDenom = 0;
+
+    final int numPreLongs = extractPreLongs(srcMem);
+    final int serVer = extractSerVer(srcMem);
+    final boolean isEmpty = (extractFlags(srcMem) & EMPTY_FLAG_MASK) != 0;
+    final int maxK = extractMaxK(srcMem);
+    if (!isEmpty) {
+      n = extractN(srcMem);
+      outerTauNum = extractOuterTauNumerator(srcMem);
+      outerTauDenom = extractOuterTauDenominator(srcMem);
+    }
+
+    if (serVer != VAROPT_SER_VER) {
+      throw new SketchesArgumentException(
+              "Possible Corruption: Ser Ver must be " + VAROPT_SER_VER + ": " + serVer);
+    }
+
+    final boolean preLongsEqMin = (numPreLongs == Family.VAROPT_UNION.getMinPreLongs());
+    final boolean preLongsEqMax = (numPreLongs == Family.VAROPT_UNION.getMaxPreLongs());
+
+    if (!preLongsEqMin && !preLongsEqMax) {
+      throw new SketchesArgumentException("Possible corruption: Non-empty union with only "
+              + Family.VAROPT_UNION.getMinPreLongs() + "preLongs");
+    }
+
+    final U union = newUnion.apply(maxK);
+
+    if (!isEmpty) {
+      union.n_ = n;
+      union.outerTauNumer = outerTauNum;
+      union.outerTauDenom = outerTauDenom;
+
+      final int preLongBytes = numPreLongs << 3;
+      union.heapifyGadget(srcMem.region(preLongBytes, srcMem.getCapacity() - preLongBytes));
+    }
+
+    return union;
+  }
+
+  /**
+   * Union the given Memory image of the sketch.
+   *
+   *<p>This method can be repeatedly called.</p>
+   *
+   * @param mem Memory image of sketch to be merged
+   */
+  public void update(final Memory mem) {
+    if (mem != null) {
+      mergeInto(heapifySketch(mem));
+    }
+  }
+
+  /**
+   * Computes the varopt sketch resulting from the union of any input sketches.
+   *
+   * @return A varopt sketch
+   */
+  S computeResult() {
+    // If no marked items in H, gadget is already valid mathematically. We can return what is
+    // basically just a copy of the gadget.
+    if (gadget_.getNumMarksInH() == 0) {
+      return copyGadget(true, n_);
+    } else {
+      // At this point, we know that marked items are present in H. So:
+      //   1. Result will necessarily be in estimation mode
+      //   2. Marked items currently in H need to be absorbed into reservoir (R)
+      final S tmp = detectAndHandleSubcaseOfPseudoExact();
+      if (tmp != null) {
+        // sub-case detected and handled, so return the result
+        return tmp;
+      } else {
+        // continue with main logic
+        return migrateMarkedItemsByDecreasingK();
+      }
+    }
+  }
+
+  /**
+   * Resets this sketch to the empty state, but retains the original value of max k.
+   */
+  public void reset() {
+    gadget_.reset();
+    n_ = 0;
+    outerTauNumer = 0.0;
+    outerTauDenom = 0;
+  }
+
+  /**
+   * Returns a human-readable summary of the sketch, without items.
+   *
+   * @return A string version of the sketch summary
+   */
+  @Override
+  public String toString() {
+    assert gadget_ != null;
+    final StringBuilder sb = new StringBuilder();
+
+    final String thisSimpleName = this.getClass().getSimpleName();
+
+    sb.append(LS)
+            .append("### ").append(thisSimpleName).append(" SUMMARY: ").append(LS)
+            .append("   Max k: ").append(maxK_).append(LS)
+            .append("   Gadget summary: ").append(gadget_.toString())
+            .append("### END UNION SUMMARY").append(LS);
+
+    return sb.toString();
+  }
+
+  /**
+   * Returns a byte array representation of this union
+   *
+   * @return a byte array representation of this union
+   */
+  public byte[] toByteArray() {
+    final int preLongs, outBytes;
+    final boolean empty = gadget_.getNumSamples() == 0;
+    final byte[] gadgetBytes = (empty ? null : gadget_.toByteArray());
+
+    if (empty) {
+      preLongs = Family.VAROPT_UNION.getMinPreLongs();
+      outBytes = 8;
+    } else {
+      preLongs = Family.VAROPT_UNION.getMaxPreLongs();
+      outBytes = (preLongs << 3) + gadgetBytes.length;
+    }
+    final byte[] outArr = new byte[outBytes];
+    final WritableMemory mem = WritableMemory.writableWrap(outArr);
+
+    // build preLong
+    PreambleUtil.insertPreLongs(mem, preLongs);                    // Byte 0
+    PreambleUtil.insertSerVer(mem, VAROPT_SER_VER);                // Byte 1
+    PreambleUtil.insertFamilyID(mem, Family.VAROPT_UNION.getID()); // Byte 2
+    if (empty) {
+      PreambleUtil.insertFlags(mem, EMPTY_FLAG_MASK);
+    } else {
+      PreambleUtil.insertFlags(mem, 0);                            // Byte 3
+    }
+    PreambleUtil.insertMaxK(mem, maxK_);                           // Bytes 4-7
+
+    if (!empty) {
+      PreambleUtil.insertN(mem, n_);                               // Bytes 8-15
+      PreambleUtil.insertOuterTauNumerator(mem, outerTauNumer);    // Bytes 16-23
+      PreambleUtil.insertOuterTauDenominator(mem, outerTauDenom);  // Bytes 24-31
+
+      final int preBytes = preLongs << 3;
+      mem.putByteArray(preBytes, gadgetBytes, 0, gadgetBytes.length);
+    }
+
+    return outArr;
+  }
+
+  // package-private for testing
+  double getOuterTau() {
+    if (outerTauDenom == 0) {
+      return 0.0;
+    } else {
+      return outerTauNumer / outerTauDenom;
+    }
+  }
+
+  void heapifyGadget(final Memory sketchMem) {
+    gadget_ = heapifySketch(sketchMem);
+  }
+
+  void mergeInto(final S sketch) {
+    final long sketchN = sketch.getN();
+    if (sketchN == 0) {
+      return;
+    }
+
+    n_ += sketchN;
+
+    // insert H region items
+    final int h = sketch.getHRegionCount();
+    for (int i = 0; i < h; ++i) {
+      updateGadget(sketch, i, sketch.getWeight(i), false);
+    }
+
+    // insert R region items, correcting the weight of the last one for any numerical discrepancy
+    final int r = sketch.getRRegionCount();
+    if (r > 0) {
+      final double rWeight = sketch.getTau();
+      double cumWeight = 0.0;
+      final int finalIdx = h + r; // skip the gap at index h
+      for (int i = h + 1; i < finalIdx; ++i) {
+        updateGadget(sketch, i, rWeight, true);
+        cumWeight += rWeight;
+      }
+      updateGadget(sketch, finalIdx, sketch.getTotalWtR() - cumWeight, true);
+
+      resolveOuterTau(sketch.getTau(), sketch.getTotalWtR(), r);
+    }
+  }
+
+  /**
+   * Updates the outer tau with the reservoir of an input sketch in estimation mode.
+   *
+   * @param sketchTau the tau of the input sketch
+   * @param totalWtR the total weight of the reservoir of the input sketch
+   * @param rCount the number of items in the reservoir of the input sketch
+   */
+  void resolveOuterTau(final double sketchTau, final double totalWtR, final long rCount) {
+    final double outerTau = getOuterTau();
+
+    if (outerTauDenom == 0) {
+      // detect first estimation mode sketch and grab its tau
+      outerTauNumer = totalWtR;
+      outerTauDenom = rCount;
+    } else if (sketchTau > outerTau) {
+      // switch to a bigger value of outerTau
+      outerTauNumer = totalWtR;
+      outerTauDenom = rCount;
+    } else if (sketchTau == outerTau) {
+      // Without conceptually changing outerTau, update number and denominator. In particular,
+      // add the total weight of the incoming reservoir to the running total.
+      outerTauNumer += totalWtR;
+      outerTauDenom += rCount;
+    }
+
+    // do nothing if sketch's tau is smaller than outerTau
+  }
+
+  /**
+   * This coercer directly transfers marked items from the gadget's H into the result's R.
+   * Deciding whether that is a valid thing to do is the responsibility of the caller. Currently,
+   * this is only used for a subcase of pseudo-exact.
+   *
+   * @return A sketch derived from the gadget, with marked items moved to the reservoir
+   */
+  private S markMovingGadgetCoercer() {
+    final int resultK = gadget_.getHRegionCount() + gadget_.getRRegionCount();
+
+    int resultH = 0;
+    int resultR = 0;
+    int nextRPos = resultK; // = (resultK+1)-1, to fill R region from back to front
+
+    final int[] gadgetSlots = new int[resultK + 1];
+    Arrays.fill(gadgetSlots, -1);
+    final double[] weights = new double[resultK + 1];
+
+    // insert R region items, ignoring weights. As in VarOptItemsUnion, the gadget has no
+    // native R items in the pseudo-exact case, so this loop is currently not exercised.
+    final int gadgetH = gadget_.getHRegionCount();
+    final int gadgetR = gadget_.getRRegionCount();
+    for (int i = gadgetH + 1; i <= (gadgetH + gadgetR); ++i) {
+      gadgetSlots[nextRPos] = i;
+      weights[nextRPos] = -1.0;
+      ++resultR;
+      --nextRPos;
+    }
+
+    double transferredWeight = 0;
+
+    // insert H region items
+    for (int i = 0; i < gadgetH; ++i) {
+      if (gadget_.getMark(i)) {
+        gadgetSlots[nextRPos] = i;
+        weights[nextRPos] = -1.0;
+        transferredWeight += gadget_.getWeight(i);
+        ++resultR;
+        --nextRPos;
+      } else {
+        gadgetSlots[resultH] = i;
+        weights[resultH] = gadget_.getWeight(i);
+        ++resultH;
+      }
+    }
+
+    assert (resultH + resultR) == resultK;
+    assert Math.abs(transferredWeight - outerTauNumer) < 1e-10;
+
+    final double resultRWeight = gadget_.getTotalWtR() + transferredWeight;
+    final long resultN = n_;
+
+    // explicitly set the weight for the gap
+    weights[resultH] = -1.0;
+
+    // create sketch with the new values
+    return newResultFromGadgetSlots(gadgetSlots, weights, resultK, resultN, resultH, resultR,
+            resultRWeight);
+  }
+
+  private S detectAndHandleSubcaseOfPseudoExact() {
+    // gadget is seemingly exact
+    final boolean condition1 = gadget_.getRRegionCount() == 0;
+
+    // but there are marked items in H, so only _pseudo_ exact
+    final boolean condition2 = gadget_.getNumMarksInH() > 0;
+
+    // if gadget is pseudo-exact and the number of marks equals outerTauDenom, then we can deduce
+    // from the bookkeeping logic of mergeInto() that all estimation mode input sketches must
+    // have had the same tau, so we can throw all of the marked items into a common reservoir.
+    final boolean condition3 = gadget_.getNumMarksInH() == outerTauDenom;
+
+    if (!(condition1 && condition2 && condition3)) {
+      return null;
+    } else {
+
+      // explicitly enforce rule that items in H should not be lighter than the sketch's tau
+      final boolean antiCondition4 = thereExistUnmarkedHItemsLighterThanTarget(gadget_.getTau());
+      if (antiCondition4) {
+        return null;
+      } else {
+        // conditions 1 through 4 hold
+        return markMovingGadgetCoercer();
+      }
+    }
+  }
+
+  // this is a condition checked in detectAndHandleSubcaseOfPseudoExact()
+  private boolean thereExistUnmarkedHItemsLighterThanTarget(final double threshold) {
+    for (int i = 0; i < gadget_.getHRegionCount(); ++i) {
+      if ((gadget_.getWeight(i) < threshold) && !gadget_.getMark(i)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  // this is basically a continuation of computeResult()
+  private S migrateMarkedItemsByDecreasingK() {
+    final S gcopy = copyGadget(false, n_);
+
+    final int rCount = gcopy.getRRegionCount();
+    final int hCount = gcopy.getHRegionCount();
+    final int k = gcopy.getK();
+
+    assert gcopy.getNumMarksInH() > 0; // ensured by caller
+    // either full (of samples), or in pseudo-exact mode, or both
+    assert (rCount == 0) || (k == (hCount + rCount));
+
+    // if non-full and pseudo-exact, change k so that gcopy is full
+    if ((rCount == 0) && (hCount < k)) {
+      gcopy.forceSetK(hCount);
+    }
+
+    // Now k equals the number of samples, so reducing k will increase tau.
+    // Also, we know that there are at least 2 samples because 0 or 1 would have been handled
+    // by the earlier logic in computeResult()
+    assert gcopy.getK() >= 2;
+    gcopy.decreaseKBy1();
+
+    // gcopy is now in estimation mode, just like the final result must be (due to marked items)
+    assert gcopy.getRRegionCount() > 0;
+    assert gcopy.getTau() > 0.0;
+
+    // keep reducing k until all marked items have been absorbed into the reservoir
+    while (gcopy.getNumMarksInH() > 0) {
+      assert gcopy.getK() >= 2; // because h_ and r_ are both at least 1
+      gcopy.decreaseKBy1();
+    }
+
+    gcopy.stripMarks();
+    return gcopy;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.sampling;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Tree reduction of a list of union inputs on a fork-join pool.
+ *
+ * <p>Runs of at most {@link #LEAF_SIZE} consecutive inputs are merged sequentially into a fresh
+ * union, and sibling unions are then combined pairwise up the tree. The shape of the tree depends
+ * only on the number of inputs, and every node draws its randomness from a <code>Random</code>
+ * seeded from the caller's seed and the node's position, so the result is reproducible for a given
+ * seed no matter how the pool schedules the work.</p>
+ *
+ * @param <S> the type of a single input, a sketch or a Memory image
+ * @param <U> the type of the union
+ */
+final class ParallelUnionTask<S, U> extends RecursiveTask<U> {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Maximum number of inputs merged sequentially by a single leaf task.
+   */
+  static final int LEAF_SIZE = 16;
+
+  private final transient List<S> inputs_;
+  private final int lo_;
+  private final int hi_;
+  private final long seed_;
+  private final transient Supplier<U> newUnion_;
+  private final transient BiConsumer<U, S> update_;
+  private final transient BiConsumer<U, U> combine_;
+
+  private ParallelUnionTask(final List<S> inputs, final int lo, final int hi, final long seed,
+                            final Supplier<U> newUnion, final BiConsumer<U, S> update,
+                            final BiConsumer<U, U> combine) {
+    inputs_ = inputs;
+    lo_ = lo;
+    hi_ = hi;
+    seed_ = seed;
+    newUnion_ = newUnion;
+    update_ = update;
+    combine_ = combine;
+  }
+
+  /**
+   * Reduces the inputs to a single union.
+   *
+   * @param inputs the inputs; null entries are passed to <code>update</code> like any other
+   * @param pool the pool to run on, or null to use the common pool
+   * @param seed the seed from which all randomness is derived
+   * @param newUnion creates an empty union
+   * @param update merges one input into a union
+   * @param combine merges the second union into the first; the second is discarded afterwards and
+   * may be consumed
+   * @param <S> the type of a single input
+   * @param <U> the type of the union
+   * @return a union of all inputs
+   */
+  static <S, U> U reduce(final List<S> inputs, final ForkJoinPool pool, final long seed,
+                         final Supplier<U> newUnion, final BiConsumer<U, S> update,
+                         final BiConsumer<U, U> combine) {
+    final ParallelUnionTask<S, U> task =
+        new ParallelUnionTask<>(inputs, 0, inputs.size(), seed, newUnion, update, combine);
+    if (inputs.size() <= LEAF_SIZE) {
+      return task.compute(); // nothing to fork
+    }
+    return (pool != null ? pool : ForkJoinPool.commonPool()).invoke(task);
+  }
+
+  /**
+   * Returns the seed used to combine the reduced inputs into an existing union, distinct from the
+   * seed of every node of the tree.
+   *
+   * @param seed the caller's seed
+   * @return the seed for the final merge
+   */
+  static long finalMergeSeed(final long seed) {
+    return nodeSeed(seed, -1, -1);
+  }
+
+  @Override
+  protected U compute() {
+    final U result;
+    if ((hi_ - lo_) <= LEAF_SIZE) {
+      final U union = newUnion_.get();
+      SamplingUtil.runSeeded(nodeSeed(seed_, lo_, hi_), () -> {
+        for (int i = lo_; i < hi_; ++i) {
+          update_.accept(union, inputs_.get(i));
+        }
+      });
+      result = union;
+    } else {
+      final int mid = (lo_ + hi_) >>> 1;
+      final ParallelUnionTask<S, U> left =
+          new ParallelUnionTask<>(inputs_, lo_, mid, seed_, newUnion_, update_, combine_);
+      final ParallelUnionTask<S, U> right =
+          new ParallelUnionTask<>(inputs_, mid, hi_, seed_, newUnion_, update_, combine_);
+      right.fork();
+      final U leftUnion = left.compute();
+      final U rightUnion = right.join();
+      // install the node's random source only after joining, so work stolen by this thread while
+      // waiting never runs under it
+      SamplingUtil.runSeeded(nodeSeed(seed_, lo_, hi_),
+          () -> combine_.accept(leftUnion, rightUnion));
+      result = leftUnion;
+    }
+    return result;
+  }
+
+  // SplitMix64 finalizer over the seed and the node's range
+  private static long nodeSeed(final long seed, final int lo, final int hi) {
+    long z = seed + (((long) lo << 32) | (hi & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -20,6 +20,7 @@
 package org.apache.datasketches.sampling;
 
 import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.checkBounds;
 import static org.apache.datasketches.sampling.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.sampling.PreambleUtil.FAMILY_BYTE;
 import static org.apache.datasketches.sampling.PreambleUtil.RESERVOIR_SER_VER;
@@ -80,6 +81,11 @@ public final class ReservoirItemsSketch<T> {
   private final ResizeFactor rf_;        // resize factor
   private ArrayList<T> data_;            // stored sampled items
 
+  // Algorithm L skip state: the value of itemsSeen_ at which the next item is accepted, or 0 if
+  // it must be drawn afresh, and the current acceptance threshold
+  private long nextAcceptIdx_;
+  private double skipThreshold_;
+
   private ReservoirItemsSketch(final int k, final ResizeFactor rf) {
     // required due to a theorem about lightness during merging
     if (k < 2) {
@@ -320,12 +326,47 @@ public final class ReservoirItemsSketch<T> {
       data_.add(item);
       ++itemsSeen_;
     } else { // code for steady state where we sample randomly
+      // rather than testing each item, draw how many items to skip before the next one kept
+      final long nextAcceptIdx = getNextAcceptIdx();
       ++itemsSeen_;
-      // prob(keep_item) < k / n = reservoirSize_ / itemsSeen_
-      // so multiply to get: keep if rand * itemsSeen_ < reservoirSize_
-      if ((SamplingUtil.rand().nextDouble() * itemsSeen_) < reservoirSize_) {
-        final int newSlot = SamplingUtil.rand().nextInt(reservoirSize_);
-        data_.set(newSlot, item);
+      if (itemsSeen_ == nextAcceptIdx) {
+        acceptItem(item);
+      }
+    }
+  }
+
+  /**
+   * Presents a range of items to the sketch, with the same result as calling
+   * {@link #update(Object)} on each in turn; null items are ignored. Once the reservoir is full,
+   * random numbers are drawn only for items that are accepted.
+   *
+   * @param items an array of unit-weight items
+   * @param offset the index of the first item to present
+   * @param length the number of items to present
+   */
+  public void update(final T[] items, final int offset, final int length) {
+    checkBounds(offset, length, items.length);
+    if (length > (MAX_ITEMS_SEEN - itemsSeen_)) {
+      throw new SketchesStateException("Sketch has exceeded capacity for total items seen: "
+              + MAX_ITEMS_SEEN);
+    }
+
+    int i = offset;
+    final int end = offset + length;
+    while ((i < end) && (itemsSeen_ < reservoirSize_)) {
+      update(items[i++]);
+    }
+
+    while (i < end) {
+      // nulls do not count as items seen, so each skipped item must still be inspected
+      final long nextAcceptIdx = getNextAcceptIdx();
+      while ((i < end) && (itemsSeen_ < nextAcceptIdx)) {
+        if (items[i++] != null) {
+          ++itemsSeen_;
+        }
+      }
+      if (itemsSeen_ == nextAcceptIdx) {
+        acceptItem(items[i - 1]);
       }
     }
   }
@@ -341,6 +382,7 @@ public final class ReservoirItemsSketch<T> {
     currItemsAlloc_ = SamplingUtil.getAdjustedSize(reservoirSize_, 1 << initialLgSize);
     data_ = new ArrayList<>(currItemsAlloc_);
     itemsSeen_ = 0;
+    nextAcceptIdx_ = 0;
   }
 
   /**
@@ -594,6 +636,7 @@ public final class ReservoirItemsSketch<T> {
    */
   void forceIncrementItemsSeen(final long inc) {
     itemsSeen_ += inc;
+    nextAcceptIdx_ = 0; // the skip was drawn for the old count
 
     if (itemsSeen_ > MAX_ITEMS_SEEN) {
       throw new SketchesStateException("Sketch has exceeded capacity for total items seen. "
@@ -636,6 +679,23 @@ public final class ReservoirItemsSketch<T> {
     return ris;
   }
 
+  // Returns the value of itemsSeen_ at which the next item will be kept, drawing a fresh
+  // threshold if needed. Only valid once the reservoir is full.
+  private long getNextAcceptIdx() {
+    if (nextAcceptIdx_ <= itemsSeen_) {
+      skipThreshold_ = SamplingUtil.initialSkipThreshold(reservoirSize_, itemsSeen_);
+      nextAcceptIdx_ = itemsSeen_ + SamplingUtil.nextSkipCount(skipThreshold_) + 1;
+    }
+    return nextAcceptIdx_;
+  }
+
+  // Replaces a random slot with the item, then draws the position of the next item to keep
+  private void acceptItem(final T item) {
+    data_.set(SamplingUtil.rand().nextInt(reservoirSize_), item);
+    skipThreshold_ = SamplingUtil.nextSkipThreshold(skipThreshold_, reservoirSize_);
+    nextAcceptIdx_ = itemsSeen_ + SamplingUtil.nextSkipCount(skipThreshold_) + 1;
+  }
+
   /**
    * Increases allocated sampling size by (adjusted) ResizeFactor and copies items from old
    * sampling.
@@ -30,6 +30,8 @@ import static org.apache.datasketches.sampling.PreambleUtil.extractPreLongs;
 import static org.apache.datasketches.sampling.PreambleUtil.extractSerVer;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.common.ArrayOfItemsSerDe;
 import org.apache.datasketches.common.Family;
@@ -186,6 +188,48 @@ public final class ReservoirItemsUnion<T> {
     }
   }
 
+  /**
+   * Union all of the given sketches using a parallel tree reduction on a fork-join pool.
+   *
+   * <p>The result is statistically equivalent to calling {@link #update(ReservoirItemsSketch)} on
+   * each sketch in turn, and for a given seed and input list it does not depend on the pool or on
+   * how the work is scheduled. Null entries are interpreted as empty sketches and none of the input
+   * sketches are modified.</p>
+   *
+   * @param sketches The sketches to be merged
+   * @param pool The pool on which to run the reduction, or null to use the common pool
+   * @param seed Seed for all random choices made by the merge
+   */
+  public void updateAll(final List<ReservoirItemsSketch<T>> sketches, final ForkJoinPool pool,
+                        final long seed) {
+    if (sketches == null || sketches.isEmpty()) {
+      return;
+    }
+    mergeReduced(ParallelUnionTask.reduce(sketches, pool, seed,
+        () -> new ReservoirItemsUnion<T>(maxK_), ReservoirItemsUnion::update,
+        ReservoirItemsUnion::mergeUnion), seed);
+  }
+
+  /**
+   * Union all of the given Memory images of sketches using a parallel tree reduction on a
+   * fork-join pool. The images are deserialized by the worker threads.
+   *
+   * @param images Memory images of the sketches to be merged
+   * @param serDe An instance of ArrayOfItemsSerDe
+   * @param pool The pool on which to run the reduction, or null to use the common pool
+   * @param seed Seed for all random choices made by the merge
+   * @see #updateAll(List, ForkJoinPool, long)
+   */
+  public void updateAllImages(final List<Memory> images, final ArrayOfItemsSerDe<T> serDe,
+                              final ForkJoinPool pool, final long seed) {
+    if (images == null || images.isEmpty()) {
+      return;
+    }
+    mergeReduced(ParallelUnionTask.reduce(images, pool, seed,
+        () -> new ReservoirItemsUnion<T>(maxK_), (union, mem) -> union.update(mem, serDe),
+        ReservoirItemsUnion::mergeUnion), seed);
+  }
+
   /**
    * Present this union with a single item to be added to the union.
    *
@@ -321,6 +365,26 @@ public final class ReservoirItemsUnion<T> {
     return outArr;
   }
 
+  private void mergeReduced(final ReservoirItemsUnion<T> reduced, final long seed) {
+    if (gadget_ == null) {
+      gadget_ = reduced.gadget_; // no randomness needed
+    } else {
+      SamplingUtil.runSeeded(ParallelUnionTask.finalMergeSeed(seed), () -> mergeUnion(reduced));
+    }
+  }
+
+  // merges the gadget of another union with the same maxK, which is discarded afterwards
+  private void mergeUnion(final ReservoirItemsUnion<T> other) {
+    if (other.gadget_ == null) {
+      return;
+    }
+    if (gadget_ == null) {
+      createNewGadget(other.gadget_, true);
+    } else {
+      twoWayMergeInternal(other.gadget_, true);
+    }
+  }
+
   private void createNewGadget(final ReservoirItemsSketch<T> sketchIn,
                                final boolean isModifiable) {
     if ((sketchIn.getK() < maxK_) && (sketchIn.getN() <= sketchIn.getK())) {
@@ -20,6 +20,7 @@
 package org.apache.datasketches.sampling;
 
 import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.checkBounds;
 import static org.apache.datasketches.sampling.PreambleUtil.EMPTY_FLAG_MASK;
 import static org.apache.datasketches.sampling.PreambleUtil.FAMILY_BYTE;
 import static org.apache.datasketches.sampling.PreambleUtil.RESERVOIR_SER_VER;
@@ -75,6 +76,11 @@ public final class ReservoirLongsSketch {
   private final ResizeFactor rf_;      // resize factor
   private long[] data_;                // stored sampling items
 
+  // Algorithm L skip state: the value of itemsSeen_ at which the next item is accepted, or 0 if
+  // it must be drawn afresh, and the current acceptance threshold
+  private long nextAcceptIdx_;
+  private double skipThreshold_;
+
   /**
    * The basic constructor for building an empty sketch.
    *
@@ -320,16 +326,50 @@ public final class ReservoirLongsSketch {
       data_[(int) itemsSeen_] = item; // since less than reservoir size, cast is safe
       ++itemsSeen_;
     } else { // code for steady state where we sample randomly
+      // rather than testing each item, draw how many items to skip before the next one kept
+      final long nextAcceptIdx = getNextAcceptIdx();
       ++itemsSeen_;
-      // prob(keep_item) < k / n = reservoirSize_ / itemsSeen_
-      // so multiply to get: keep if rand * itemsSeen_ < reservoirSize_
-      if ((SamplingUtil.rand().nextDouble() * itemsSeen_) < reservoirSize_) {
-        final int newSlot = SamplingUtil.rand().nextInt(reservoirSize_);
-        data_[newSlot] = item;
+      if (itemsSeen_ == nextAcceptIdx) {
+        acceptItem(item);
       }
     }
   }
 
+  /**
+   * Presents a range of items to the sketch, with the same result as calling
+   * {@link #update(long)} on each in turn. Once the reservoir is full, the sketch jumps directly
+   * to the next item it will keep, so random numbers are drawn only for items that are accepted.
+   *
+   * @param items an array of unit-weight items
+   * @param offset the index of the first item to present
+   * @param length the number of items to present
+   */
+  public void update(final long[] items, final int offset, final int length) {
+    checkBounds(offset, length, items.length);
+    if (length > (MAX_ITEMS_SEEN - itemsSeen_)) {
+      throw new SketchesStateException(
+          "Sketch has exceeded capacity for total items seen: " + MAX_ITEMS_SEEN);
+    }
+
+    int i = offset;
+    final int end = offset + length;
+    while ((i < end) && (itemsSeen_ < reservoirSize_)) {
+      update(items[i++]);
+    }
+
+    while (i < end) {
+      final long toNextAccept = getNextAcceptIdx() - itemsSeen_; // at least 1
+      final int remaining = end - i;
+      if (toNextAccept > remaining) {
+        itemsSeen_ += remaining;
+        break;
+      }
+      i += (int) toNextAccept;
+      itemsSeen_ += toNextAccept;
+      acceptItem(items[i - 1]);
+    }
+  }
+
   /**
    * Resets this sketch to the empty state, but retains the original value of k.
    */
@@ -342,6 +382,7 @@ public final class ReservoirLongsSketch {
     currItemsAlloc_ = SamplingUtil.getAdjustedSize(reservoirSize_, 1 << initialLgSize);
     data_ = new long[currItemsAlloc_];
     itemsSeen_ = 0;
+    nextAcceptIdx_ = 0;
   }
 
   /**
@@ -522,6 +563,7 @@ public final class ReservoirLongsSketch {
    */
   void forceIncrementItemsSeen(final long inc) {
     itemsSeen_ += inc;
+    nextAcceptIdx_ = 0; // the skip was drawn for the old count
 
     if (itemsSeen_ > MAX_ITEMS_SEEN) {
       throw new SketchesStateException("Sketch has exceeded capacity for total items seen. "
@@ -557,6 +599,23 @@ public final class ReservoirLongsSketch {
     return rls;
   }
 
+  // Returns the value of itemsSeen_ at which the next item will be kept, drawing a fresh
+  // threshold if needed. Only valid once the reservoir is full.
+  private long getNextAcceptIdx() {
+    if (nextAcceptIdx_ <= itemsSeen_) {
+      skipThreshold_ = SamplingUtil.initialSkipThreshold(reservoirSize_, itemsSeen_);
+      nextAcceptIdx_ = itemsSeen_ + SamplingUtil.nextSkipCount(skipThreshold_) + 1;
+    }
+    return nextAcceptIdx_;
+  }
+
+  // Replaces a random slot with the item, then draws the position of the next item to keep
+  private void acceptItem(final long item) {
+    data_[SamplingUtil.rand().nextInt(reservoirSize_)] = item;
+    skipThreshold_ = SamplingUtil.nextSkipThreshold(skipThreshold_, reservoirSize_);
+    nextAcceptIdx_ = itemsSeen_ + SamplingUtil.nextSkipCount(skipThreshold_) + 1;
+  }
+
   /**
    * Increases allocated sampling size by (adjusted) ResizeFactor and copies items from old sampling.
    */
@@ -29,6 +29,9 @@ import static org.apache.datasketches.sampling.PreambleUtil.extractMaxK;
 import static org.apache.datasketches.sampling.PreambleUtil.extractPreLongs;
 import static org.apache.datasketches.sampling.PreambleUtil.extractSerVer;
 
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.datasketches.common.Family;
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
@@ -182,6 +185,44 @@ public final class ReservoirLongsUnion {
     }
   }
 
+  /**
+   * Union all of the given sketches using a parallel tree reduction on a fork-join pool.
+   *
+   * <p>The result is statistically equivalent to calling {@link #update(ReservoirLongsSketch)} on
+   * each sketch in turn, and for a given seed and input list it does not depend on the pool or on
+   * how the work is scheduled. Null entries are interpreted as empty sketches and none of the input
+   * sketches are modified.</p>
+   *
+   * @param sketches The sketches to be merged
+   * @param pool The pool on which to run the reduction, or null to use the common pool
+   * @param seed Seed for all random choices made by the merge
+   */
+  public void updateAll(final List<ReservoirLongsSketch> sketches, final ForkJoinPool pool,
+                        final long seed) {
+    if (sketches == null || sketches.isEmpty()) {
+      return;
+    }
+    mergeReduced(ParallelUnionTask.reduce(sketches, pool, seed, () -> new ReservoirLongsUnion(maxK_),
+        ReservoirLongsUnion::update, ReservoirLongsUnion::mergeUnion), seed);
+  }
+
+  /**
+   * Union all of the given Memory images of sketches using a parallel tree reduction on a
+   * fork-join pool. The images are deserialized by the worker threads.
+   *
+   * @param images Memory images of the sketches to be merged
+   * @param pool The pool on which to run the reduction, or null to use the common pool
+   * @param seed Seed for all random choices made by the merge
+   * @see #updateAll(List, ForkJoinPool, long)
+   */
+  public void updateAllImages(final List<Memory> images, final ForkJoinPool pool, final long seed) {
+    if (images == null || images.isEmpty()) {
+      return;
+    }
+    mergeReduced(ParallelUnionTask.reduce(images, pool, seed, () -> new ReservoirLongsUnion(maxK_),
+        ReservoirLongsUnion::update, ReservoirLongsUnion::mergeUnion), seed);
+  }
+
   /**
    * Present this union with a long.
    *
@@ -274,6 +315,26 @@ public final class ReservoirLongsUnion {
     return outArr;
   }
 
+  private void mergeReduced(final ReservoirLongsUnion reduced, final long seed) {
+    if (gadget_ == null) {
+      gadget_ = reduced.gadget_; // no randomness needed
+    } else {
+      SamplingUtil.runSeeded(ParallelUnionTask.finalMergeSeed(seed), () -> mergeUnion(reduced));
+    }
+  }
+
+  // merges the gadget of another union with the same maxK, which is discarded afterwards
+  private void mergeUnion(final ReservoirLongsUnion other) {
+    if (other.gadget_ == null) {
+      return;
+    }
+    if (gadget_ == null) {
+      createNewGadget(other.gadget_, true);
+    } else {
+      twoWayMergeInternal(other.gadget_, true);
+    }
+  }
+
   private void createNewGadget(final ReservoirLongsSketch sketchIn,
                                final boolean isModifiable) {
     if ((sketchIn.getK() < maxK_) && (sketchIn.getN() <= sketchIn.getK())) {
@@ -37,6 +37,12 @@ final class SamplingUtil {
    */
   private static final double DEFAULT_KAPPA = 2.0;
 
+  /**
+   * Per-thread override of the random source, installed by {@link #runSeeded(long, Runnable)} so
+   * that a parallel union produces the same result for a given seed regardless of scheduling.
+   */
+  private static final ThreadLocal<Random> seededRand = new ThreadLocal<>();
+
   private SamplingUtil() {}
 
   /**
@@ -62,6 +68,68 @@ final class SamplingUtil {
     return r;
   }
 
+  /**
+   * Draws the Algorithm L acceptance threshold for a full reservoir of size k that has seen n
+   * items. If every item were given a uniform random key and the reservoir held the k smallest
+   * keys, this would be the largest retained key, which is distributed as Beta(k, n-k+1). When
+   * n == k this reduces to the usual initialization, exp(log(u)/k).
+   *
+   * @param k the reservoir size, at least 1
+   * @param n the number of items seen, at least k
+   * @return the acceptance threshold W, in (0, 1)
+   */
+  static double initialSkipThreshold(final int k, final long n) {
+    assert n >= k;
+    if (n == k) {
+      return Math.exp(Math.log(nextDoubleExcludeZero()) / k);
+    }
+    final double x = nextGamma(k);
+    final double y = nextGamma((n - k) + 1.0);
+    return x / (x + y);
+  }
+
+  /**
+   * Advances the Algorithm L acceptance threshold after an item has been accepted.
+   *
+   * @param w the current threshold
+   * @param k the reservoir size
+   * @return the next, smaller, threshold
+   */
+  static double nextSkipThreshold(final double w, final int k) {
+    return w * Math.exp(Math.log(nextDoubleExcludeZero()) / k);
+  }
+
+  /**
+   * Draws the number of items to pass over before the next accepted item, which is geometric
+   * with success probability w.
+   *
+   * @param w the current acceptance threshold
+   * @return the number of items to skip, capped at 2<sup>62</sup> to leave room for adding to n
+   */
+  static long nextSkipCount(final double w) {
+    final double skip = Math.floor(Math.log(nextDoubleExcludeZero()) / Math.log1p(-w));
+    return skip < 0x1p62 ? (long) skip : 1L << 62;
+  }
+
+  // Marsaglia and Tsang's method, valid for shape >= 1
+  private static double nextGamma(final double shape) {
+    assert shape >= 1.0;
+    final double d = shape - (1.0 / 3.0);
+    final double c = 1.0 / Math.sqrt(9.0 * d);
+    while (true) {
+      final double x = rand().nextGaussian();
+      double v = 1.0 + (c * x);
+      if (v <= 0.0) { continue; }
+      v = v * v * v;
+      final double u = nextDoubleExcludeZero();
+      final double x2 = x * x;
+      if ((u < (1.0 - (0.0331 * x2 * x2)))
+          || (Math.log(u) < ((0.5 * x2) + (d * ((1.0 - v) + Math.log(v)))))) {
+        return d * v;
+      }
+    }
+  }
+
   static int startingSubMultiple(final int lgTarget, final int lgRf, final int lgMin) {
     return (lgTarget <= lgMin)
             ? lgMin : (lgRf == 0) ? lgTarget
@@ -79,6 +147,28 @@ final class SamplingUtil {
   }
 
   public static Random rand() {
-    return ThreadLocalRandom.current();
+    final Random seeded = seededRand.get();
+    return seeded != null ? seeded : ThreadLocalRandom.current();
+  }
+
+  /**
+   * Runs the given task on the current thread with {@link #rand()} backed by a new
+   * <code>Random</code> created from the given seed, restoring the previous source afterwards.
+   *
+   * @param seed the seed for the random source used by the task
+   * @param task the task to run
+   */
+  static void runSeeded(final long seed, final Runnable task) {
+    final Random previous = seededRand.get();
+    seededRand.set(new Random(seed));
+    try {
+      task.run();
+    } finally {
+      if (previous == null) {
+        seededRand.remove();
+      } else {
+        seededRand.set(previous);
+      }
+    }
   }
 }
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.sampling;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.DoublePredicate;
+
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * This sketch provides a variance optimal sample over an input stream of weighted
+ * <code>double</code>s. It is the primitive counterpart of {@link VarOptItemsSketch}: the sampling
+ * algorithm is identical, but items are held in a <code>double[]</code> so that no item is boxed.
+ *
+ * <p>The serialized image is the same as that of a <code>VarOptItemsSketch&lt;Double&gt;</code>
+ * serialized with {@link org.apache.datasketches.common.ArrayOfDoublesSerDe ArrayOfDoublesSerDe}, so
+ * either class can read an image written by the other.</p>
+ */
+public final class VarOptDoublesSketch extends BaseVarOptSketch {
+  private double[] data_;                // stored sampled items
+
+  private VarOptDoublesSketch(final int k, final ResizeFactor rf) {
+    super(k, rf);
+    data_ = new double[currItemsAlloc_];
+  }
+
+  private VarOptDoublesSketch(final double[] data,
+                            final double[] weights,
+                            final int k,
+                            final long n,
+                            final ResizeFactor rf,
+                            final int hCount,
+                            final int rCount,
+                            final double totalWtR) {
+    super(weights, k, n, rf, hCount, rCount, totalWtR);
+    assert data != null;
+    assert data.length == weights.length;
+    data_ = data;
+  }
+
+  private VarOptDoublesSketch(final Memory srcMem) {
+    super(srcMem);
+    data_ = new double[currItemsAlloc_];
+    readItems(srcMem);
+  }
+
+  /**
+   * Construct a varopt sampling sketch with up to k samples using the default resize factor (8).
+   *
+   * @param k   Maximum size of sampling. Allocated size may be smaller until sketch fills.
+   *            Unlike many sketches in this package, this value does <em>not</em> need to be a
+   *            power of 2.
+   * @return A VarOptDoublesSketch initialized with maximum size k and the default resize factor.
+   */
+  public static VarOptDoublesSketch newInstance(final int k) {
+    return new VarOptDoublesSketch(k, DEFAULT_RESIZE_FACTOR);
+  }
+
+  /**
+   * Construct a varopt sampling sketch with up to k samples using the specified resize factor.
+   *
+   * @param k   Maximum size of sampling. Allocated size may be smaller until sketch fills.
+   *            Unlike many sketches in this package, this value does <em>not</em> need to be a
+   *            power of 2. The maximum size is Integer.MAX_VALUE-1.
+   * @param rf  <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
+   * @return A VarOptDoublesSketch initialized with maximum size k and resize factor rf.
+   */
+  public static VarOptDoublesSketch newInstance(final int k, final ResizeFactor rf) {
+    return new VarOptDoublesSketch(k, rf);
+  }
+
+  /**
+   * Construct a varopt sketch for use as a unioning gadget, meaning the set of marked elements
+   * is also initialized.
+   *
+   * @param k Maximum size of sampling.
+   * @return A VarOptDoublesSketch initialized with maximum size k and a valid set of marks.
+   */
+  static VarOptDoublesSketch newInstanceAsGadget(final int k) {
+    final VarOptDoublesSketch sketch = new VarOptDoublesSketch(k, DEFAULT_RESIZE_FACTOR);
+    sketch.marks_ = new BitSet(sketch.currItemsAlloc_);
+    return sketch;
+  }
+
+  /**
+   * Construct a varopt sketch as the output of a union's getResult() method. Because this method
+   * is package-private, we do not perform checks on the input values.
+   *
+   * @param data an array of items, with the H region, the gap and then the R region
+   * @param weights an array of weights, the same length as data
+   * @param k Maximum size of sampling.
+   * @param n The current count of items seen by the sketch
+   * @param hCount the count of heavy items
+   * @param rCount the reservoir count of (non-heavy) items
+   * @param totalWtR the sum of the reservoir weights.
+   * @return A VarOptDoublesSketch holding the given samples
+   */
+  static VarOptDoublesSketch newInstanceFromUnionResult(final double[] data,
+                                                      final double[] weights,
+                                                      final int k,
+                                                      final long n,
+                                                      final int hCount,
+                                                      final int rCount,
+                                                      final double totalWtR) {
+    final VarOptDoublesSketch sketch = new VarOptDoublesSketch(data, weights, k, n,
+            DEFAULT_RESIZE_FACTOR, hCount, rCount, totalWtR);
+    sketch.convertToHeap();
+    return sketch;
+  }
+
+  /**
+   * Returns a sketch instance of this class from the given srcMem, which must be a Memory
+   * representation of a varopt sketch of <code>double</code> items.
+   *
+   * @param srcMem a Memory representation of a sketch of this class.
+   *               <a href="{@docRoot}/resources/dictionary.html#mem">See Memory</a>
+   * @return a sketch instance of this class
+   */
+  public static VarOptDoublesSketch heapify(final Memory srcMem) {
+    return new VarOptDoublesSketch(srcMem);
+  }
+
+
+  /**
+   * Returns a copy of the items in the sketch, or null if empty. Items from the H region come
+   * first, followed by those from the R region. The returned array length may be smaller than the
+   * sketch capacity.
+   *
+   * @return A copy of the sample array
+   */
+  public double[] getSamples() {
+    if ((h_ + r_) == 0) {
+      return null;
+    }
+
+    final double[] samples = new double[h_ + r_];
+    System.arraycopy(data_, 0, samples, 0, h_);
+    if (r_ > 0) {
+      System.arraycopy(data_, h_ + 1, samples, h_, r_);
+    }
+    return samples;
+  }
+
+  /**
+   * Randomly decide whether or not to include an item in the sample set.
+   *
+   * @param item an item of the set being sampled from
+   * @param weight a strictly positive weight associated with the item
+   */
+  public void update(final double item, final double weight) {
+    update(item, weight, false);
+  }
+
+  /**
+   * Returns a human readable string of the preamble of a byte array image of a VarOptDoublesSketch.
+   * @param byteArr the given byte array
+   * @return a human readable string of the preamble of a byte array image of a VarOptDoublesSketch.
+   */
+  public static String toString(final byte[] byteArr) {
+    return PreambleUtil.preambleToString(byteArr);
+  }
+
+  /**
+   * Returns a human readable string of the preamble of a Memory image of a VarOptDoublesSketch.
+   * @param mem the given Memory
+   * @return a human readable string of the preamble of a Memory image of a VarOptDoublesSketch.
+   */
+  public static String toString(final Memory mem) {
+    return PreambleUtil.preambleToString(mem);
+  }
+
+  /**
+   * Computes an estimated subset sum from the entire stream for items matching a given
+   * predicate. Provides a lower bound, estimate, and upper bound using a target of 2 standard
+   * deviations.
+   *
+   * <p>This is technically a heuristic method, and tries to err on the conservative side.</p>
+   *
+   * @param predicate A predicate to use when identifying items.
+   * @return A summary object containing the estimate, upper and lower bounds, and the total
+   * sketch weight.
+   */
+  public SampleSubsetSummary estimateSubsetSum(final DoublePredicate predicate) {
+    return estimateSubsetSumOfSlots(idx -> predicate.test(data_[idx]));
+  }
+
+  /**
+   * Creates a copy of the sketch, optionally discarding any information about marks that would
+   * indicate the class's use as a union gadget as opposed to a valid sketch.
+   *
+   * @param asSketch If true, copies as a sketch; if false, copies as a union gadget
+   * @param adjustedN Target value of n for the resulting sketch. Ignored if negative.
+   * @return A copy of the sketch.
+   */
+  VarOptDoublesSketch copyAndSetN(final boolean asSketch, final long adjustedN) {
+    final VarOptDoublesSketch sketch = new VarOptDoublesSketch(data_.clone(), weights_.clone(), k_, n_,
+            rf_, h_, r_, totalWtR_);
+    copyMarksAndSetN(sketch, asSketch, adjustedN);
+    return sketch;
+  }
+
+  // package-private: Bounds checks against the in-use slots and assumes caller knows how to handle
+  // the meaningless value in the gap
+  double getItem(final int idx) {
+    checkSlotIndex(idx);
+    return data_[idx];
+  }
+
+  /**
+   * Internal implementation of update() which requires the user to know if an item is
+   * marked as coming from the reservoir region of a sketch. The marks are used only in
+   * merging.
+   *
+   * @param item an item of the set being sampled from
+   * @param weight a strictly positive weight associated with the item
+   * @param mark true if an item comes from a sketch's reservoir region
+   */
+  void update(final double item, final double weight, final boolean mark) {
+    if (weight <= 0.0) {
+      throw new SketchesArgumentException("Item weights must be strictly positive: "
+              + weight + ", for item " + item);
+    }
+    ensureGapSlot();
+    data_[h_] = item;
+    insertAtGap(weight, mark);
+  }
+
+  @Override
+  void swapItems(final int src, final int dst) {
+    final double item = data_[src];
+    data_[src] = data_[dst];
+    data_[dst] = item;
+  }
+
+  @Override
+  void copyItem(final int src, final int dst) {
+    data_[dst] = data_[src];
+  }
+
+  @Override
+  void resizeItems(final int newAlloc) {
+    data_ = Arrays.copyOf(data_, newAlloc);
+  }
+
+  @Override
+  void clearItems(final int newAlloc) {
+    data_ = new double[newAlloc];
+  }
+
+  @Override
+  void getItems(final Memory mem, final long offsetBytes, final int index, final int count) {
+    mem.getDoubleArray(offsetBytes, data_, index, count);
+  }
+
+  @Override
+  void putItems(final WritableMemory mem, final long offsetBytes, final int index, final int count) {
+    mem.putDoubleArray(offsetBytes, data_, index, count);
+  }
+}
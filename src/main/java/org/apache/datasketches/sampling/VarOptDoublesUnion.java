@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.sampling;
+
+import static org.apache.datasketches.sampling.VarOptDoublesSketch.newInstanceFromUnionResult;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Provides a unioning operation over {@link VarOptDoublesSketch}es. This union allows the sample
+ * size k to float, possibly increasing or decreasing as warranted by the available data.
+ *
+ * <p>The unioning algorithm, including the treatment of marked items in the gadget, is that of
+ * {@link VarOptItemsUnion}, and the serialized image is the same as that of a
+ * <code>VarOptItemsUnion&lt;Double&gt;</code> serialized with
+ * {@link org.apache.datasketches.common.ArrayOfDoublesSerDe ArrayOfDoublesSerDe}.</p>
+ */
+public final class VarOptDoublesUnion extends BaseVarOptUnion<VarOptDoublesSketch> {
+
+  /**
+   * Empty constructor
+   *
+   * @param maxK Maximum allowed reservoir capacity for this union
+   */
+  private VarOptDoublesUnion(final int maxK) {
+    super(maxK, VarOptDoublesSketch.newInstanceAsGadget(maxK));
+  }
+
+  /**
+   * Creates an empty Union with a maximum capacity of size k.
+   *
+   * @param maxK The maximum allowed capacity of the unioned result
+   * @return A new VarOptDoublesUnion
+   */
+  public static VarOptDoublesUnion newInstance(final int maxK) {
+    return new VarOptDoublesUnion(maxK);
+  }
+
+  /**
+   * Instantiates a Union from Memory
+   *
+   * @param srcMem Memory object containing a serialized union
+   * @return A VarOptDoublesUnion created from the provided Memory
+   */
+  public static VarOptDoublesUnion heapify(final Memory srcMem) {
+    return heapifyUnion(srcMem, VarOptDoublesUnion::new);
+  }
+
+  /**
+   * Union the given sketch.
+   *
+   *<p>This method can be repeatedly called.</p>
+   *
+   * @param sketchIn The sketch to be merged
+   */
+  public void update(final VarOptDoublesSketch sketchIn) {
+    if (sketchIn != null) {
+      mergeInto(sketchIn);
+    }
+  }
+
+  /**
+   * Gets the varopt sketch resulting from the union of any input sketches.
+   *
+   * @return A varopt sketch
+   */
+  public VarOptDoublesSketch getResult() {
+    return computeResult();
+  }
+
+  @Override
+  VarOptDoublesSketch heapifySketch(final Memory mem) {
+    return VarOptDoublesSketch.heapify(mem);
+  }
+
+  @Override
+  VarOptDoublesSketch copyGadget(final boolean asSketch, final long adjustedN) {
+    return gadget_.copyAndSetN(asSketch, adjustedN);
+  }
+
+  @Override
+  void updateGadget(final VarOptDoublesSketch sketch, final int idx, final double weight, final boolean mark) {
+    gadget_.update(sketch.getItem(idx), weight, mark);
+  }
+
+  @Override
+  VarOptDoublesSketch newResultFromGadgetSlots(final int[] gadgetSlots, final double[] weights, final int k,
+      final long n, final int hCount, final int rCount, final double totalWtR) {
+    final double[] data = new double[gadgetSlots.length];
+    for (int i = 0; i < gadgetSlots.length; ++i) {
+      if (gadgetSlots[i] >= 0) {
+        data[i] = gadget_.getItem(gadgetSlots[i]);
+      }
+    }
+    return newInstanceFromUnionResult(data, weights, k, n, hCount, rCount, totalWtR);
+  }
+}
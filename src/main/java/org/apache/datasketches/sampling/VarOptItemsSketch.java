@@ -43,6 +43,7 @@ import static org.apache.datasketches.sampling.SamplingUtil.pseudoHypergeometric
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -80,13 +81,11 @@ public final class VarOptItemsSketch<T> {
    */
   private static final ResizeFactor DEFAULT_RESIZE_FACTOR = ResizeFactor.X8;
 
-  private static final ArrayOfBooleansSerDe MARK_SERDE = new ArrayOfBooleansSerDe();
-
   private int k_;                        // max size of sketch, in items
   private int currItemsAlloc_;           // currently allocated array size
   private final ResizeFactor rf_;        // resize factor
   private ArrayList<T> data_;            // stored sampled items
-  private ArrayList<Double> weights_;    // weights for sampled items
+  private double[] weights_;             // weights for sampled items
 
   private long n_;                       // total number of items processed by the sketch
   private int h_;                        // number of items in heap
@@ -110,7 +109,7 @@ public final class VarOptItemsSketch<T> {
   // [although it really belongs in the unioning object]. If the array were to be made explicit,
   // some additional coding would need to be done to ensure that all of the necessary data motion
   // occurs and is properly tracked.
-  private ArrayList<Boolean> marks_;
+  private BitSet marks_;
 
   // used to return a shallow copy of the sketch's samples to a VarOptItemsSamples, as arrays
   // with any null value stripped and the R region weight computed
@@ -146,12 +145,12 @@ public final class VarOptItemsSketch<T> {
     }
 
     data_ = new ArrayList<>(currItemsAlloc_);
-    weights_ = new ArrayList<>(currItemsAlloc_);
+    weights_ = new double[currItemsAlloc_];
     marks_ = null;
   }
 
   private VarOptItemsSketch(final ArrayList<T> dataList,
-                            final ArrayList<Double> weightList,
+                            final double[] weightList,
                             final int k,
                             final long n,
                             final int currItemsAlloc,
@@ -161,8 +160,8 @@ public final class VarOptItemsSketch<T> {
                             final double totalWtR) {
     assert dataList != null;
     assert weightList != null;
-    assert dataList.size() == weightList.size();
-    assert currItemsAlloc >= dataList.size();
+    assert weightList.length >= dataList.size();
+    assert currItemsAlloc == weightList.length;
     assert k >= 2;
     assert n >= 0;
     assert hCount >= 0;
@@ -223,7 +222,7 @@ public final class VarOptItemsSketch<T> {
    */
   static <T> VarOptItemsSketch<T> newInstanceAsGadget(final int k) {
     final VarOptItemsSketch<T> sketch = new VarOptItemsSketch<>(k, DEFAULT_RESIZE_FACTOR);
-    sketch.marks_ = new ArrayList<>(sketch.currItemsAlloc_);
+    sketch.marks_ = new BitSet(sketch.currItemsAlloc_);
     return sketch;
   }
 
@@ -231,11 +230,11 @@ public final class VarOptItemsSketch<T> {
    * Construct a varopt sketch as the output of a union's getResult() method. Because this method
    * is package-private, we do not perform checks on the input values.
    *
-   * <p>Assumes dataList.size() is the correct allocated size but does not check.</p>
+   * <p>Assumes weightList.length is the correct allocated size but does not check.</p>
    *
    * @param <T> The type of object held in the sketch.
    * @param dataList an ArrayList of data
-   * @param weightList an ArrayList of weights
+   * @param weightList an array of weights, with at least dataList.size() entries
    * @param k   Maximum size of sampling. Allocated size may be smaller until sketch fills.
    *            Unlike many sketches in this package, this value does <em>not</em> need to be a
    *            power of 2.
@@ -246,14 +245,14 @@ public final class VarOptItemsSketch<T> {
    * @return A VarOptItemsSketch initialized with maximum size k and a valid array of marks.
    */
   static <T> VarOptItemsSketch<T> newInstanceFromUnionResult(final ArrayList<T> dataList,
-                                                             final ArrayList<Double> weightList,
+                                                             final double[] weightList,
                                                              final int k,
                                                              final long n,
                                                              final int hCount,
                                                              final int rCount,
                                                              final double totalWtR) {
     final VarOptItemsSketch<T> sketch =  new VarOptItemsSketch<>(dataList, weightList, k, n,
-            dataList.size(), DEFAULT_RESIZE_FACTOR, hCount, rCount, totalWtR);
+            weightList.length, DEFAULT_RESIZE_FACTOR, hCount, rCount, totalWtR);
     sketch.convertToHeap();
     return sketch;
   }
@@ -358,37 +357,36 @@ public final class VarOptItemsSketch<T> {
       }
     }
 
-    // allocate full-sized ArrayLists, but we store only hCount weights at any moment
+    // allocate full-sized arrays, but we store only hCount weights at any moment
     final long weightOffsetBytes = TOTAL_WEIGHT_R_DOUBLE + (rCount > 0 ? Double.BYTES : 0);
-    final ArrayList<Double> weightList = new ArrayList<>(allocatedItems);
     final double[] wts = new double[allocatedItems];
     srcMem.getDoubleArray(weightOffsetBytes, wts, 0, hCount);
-    // can't use Arrays.asList(wts) since double[] rather than Double[]
     for (int i = 0; i < hCount; ++ i) {
       if (wts[i] <= 0.0) {
       throw new SketchesArgumentException("Possible Corruption: "
               + "Non-positive weight in heapify(): " + wts[i]);
       }
-      weightList.add(wts[i]);
     }
 
     // marks, if we have a gadget
     long markBytes = 0;
     int markCount = 0;
-    ArrayList<Boolean> markList = null;
+    BitSet markBits = null;
     if (isGadget) {
       final long markOffsetBytes = preLongBytes + ((long) hCount * Double.BYTES);
       markBytes = ArrayOfBooleansSerDe.computeBytesNeeded(hCount);
-      markList = new ArrayList<>(allocatedItems);
+      markBits = new BitSet(allocatedItems);
 
       final ArrayOfBooleansSerDe booleansSerDe = new ArrayOfBooleansSerDe();
       final Boolean[] markArray = booleansSerDe.deserializeFromMemory(
               srcMem.region(markOffsetBytes, (hCount >>> 3) + 1), 0, hCount);
 
-      for (Boolean mark : markArray) {
-        if (mark) { ++markCount; }
+      for (int i = 0; i < hCount; ++i) {
+        if (markArray[i]) {
+          markBits.set(i);
+          ++markCount;
+        }
       }
-      markList.addAll(Arrays.asList(markArray));
     }
 
     final long offsetBytes = preLongBytes + ((long) hCount * Double.BYTES) + markBytes;
@@ -400,23 +398,19 @@ public final class VarOptItemsSketch<T> {
 
     // Load items in R as needed
     if (rCount > 0) {
-      weightList.add(-1.0); // the gap
-      if (isGadget) { markList.add(false); } // the gap
-      for (int i = 0; i < rCount; ++i) {
-        weightList.add(-1.0);
-        if (isGadget) { markList.add(false); }
-      }
+      // the gap and the R region carry no weights; marks are already clear
+      Arrays.fill(wts, hCount, hCount + 1 + rCount, -1.0);
 
       dataList.add(null); // the gap
       dataList.addAll(wrappedData.subList(hCount, totalItems));
     }
 
     final VarOptItemsSketch<T> sketch =
-            new VarOptItemsSketch<>(dataList, weightList, k, n,
+            new VarOptItemsSketch<>(dataList, wts, k, n,
                     allocatedItems, rf, hCount, rCount, totalRWeight);
 
     if (isGadget) {
-      sketch.marks_ = markList;
+      sketch.marks_ = markBits;
       sketch.numMarksInH_ = markCount;
     }
 
@@ -484,9 +478,9 @@ public final class VarOptItemsSketch<T> {
     }
 
     data_    = new ArrayList<>(currItemsAlloc_);
-    weights_ = new ArrayList<>(currItemsAlloc_);
+    weights_ = new double[currItemsAlloc_];
     if (marks_ != null) {
-      marks_ = new ArrayList<>(currItemsAlloc_);
+      marks_ = new BitSet(currItemsAlloc_);
     }
 
     n_ = 0;
@@ -603,16 +597,17 @@ public final class VarOptItemsSketch<T> {
       // write the first h_ weights
       int offset = preLongs << 3;
       for (int i = 0; i < h_; ++i) {
-        mem.putDouble(offset, weights_.get(i));
+        mem.putDouble(offset, weights_[i]);
         offset += Double.BYTES;
       }
 
       // write the first h_ marks, iff we have a gadget
       if (marks_ != null) {
-        final byte[] markBytes;
-        markBytes = MARK_SERDE.serializeToByteArray(marks_.subList(0, h_).toArray(new Boolean[0]));
+        // BitSet uses the same little-endian bit order as ArrayOfBooleansSerDe, but drops
+        // trailing zero bytes, so the remainder of the region is left as zeros
+        final byte[] markBytes = marks_.get(0, h_).toByteArray();
         mem.putByteArray(offset, markBytes, 0, markBytes.length);
-        offset += markBytes.length;
+        offset += ArrayOfBooleansSerDe.computeBytesNeeded(h_);
       }
 
       // write the sample items, using offset from earlier
@@ -643,7 +638,7 @@ public final class VarOptItemsSketch<T> {
     double hTrueWeight = 0.0;
     int idx = 0;
     for (; idx < h_; ++idx) {
-      final double wt = weights_.get(idx);
+      final double wt = weights_[idx];
       totalWtH += wt;
       if (predicate.test(data_.get(idx))) {
         hTrueWeight += wt;
@@ -705,11 +700,11 @@ public final class VarOptItemsSketch<T> {
    */
   VarOptItemsSketch<T> copyAndSetN(final boolean asSketch, final long adjustedN) {
     final VarOptItemsSketch<T> sketch;
-    sketch = new VarOptItemsSketch<>(data_, weights_, k_,n_,
+    sketch = new VarOptItemsSketch<>(new ArrayList<>(data_), weights_.clone(), k_, n_,
             currItemsAlloc_, rf_, h_, r_, totalWtR_);
 
     if (!asSketch) {
-      sketch.marks_ = this.marks_;
+      sketch.marks_ = (this.marks_ == null ? null : (BitSet) this.marks_.clone());
       sketch.numMarksInH_ = this.numMarksInH_;
     }
 
@@ -757,7 +752,7 @@ public final class VarOptItemsSketch<T> {
       final T item = data_.get(i);
       if (item != null) {
         prunedItems[j] = item;
-        prunedWeights[j] = (weights_.get(i) > 0 ? weights_.get(i) : rWeight);
+        prunedWeights[j] = (weights_[i] > 0 ? weights_[i] : rWeight);
         ++j;
       }
     }
@@ -777,15 +772,26 @@ public final class VarOptItemsSketch<T> {
     return data_.get(idx);
   }
 
-  // package-private: Relies on ArrayList for bounds checking and assumes caller knows how to handle
-  // a negative value (whether from the null in the middle or an R-region item)
+  // package-private: Bounds checks against the in-use slots, as for getItem(), and assumes caller
+  // knows how to handle a negative value (whether from the null in the middle or an R-region item)
   double getWeight(final int idx) {
-    return weights_.get(idx);
+    checkSlotIndex(idx);
+    return weights_[idx];
   }
 
-  // package-private: Relies on ArrayList for bounds checking and assumes caller knows how to
-  // handle a null from the middle of the list.
-  boolean getMark(final int idx) { return marks_.get(idx); }
+  // package-private: Bounds checks against the in-use slots, as for getItem(), and assumes caller
+  // knows how to handle a false from the middle of the list.
+  boolean getMark(final int idx) {
+    checkSlotIndex(idx);
+    return marks_.get(idx);
+  }
+
+  // the primitive arrays are allocated ahead of use, so data_ tracks how many slots are in use
+  private void checkSlotIndex(final int idx) {
+    if ((idx < 0) || (idx >= data_.size())) {
+      throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + data_.size());
+    }
+  }
 
   int getHRegionCount() {
     return h_;
@@ -894,11 +900,11 @@ public final class VarOptItemsSketch<T> {
 
       final int pulledIdx = h_ - 1;
       final T pulledItem = data_.get(pulledIdx);
-      final double pulledWeight = weights_.get(pulledIdx);
+      final double pulledWeight = weights_[pulledIdx];
       final boolean pulledMark = marks_.get(pulledIdx);
 
       if (pulledMark) { --numMarksInH_; }
-      weights_.set(pulledIdx, -1.0); // to make bugs easier to spot
+      weights_[pulledIdx] = -1.0; // to make bugs easier to spot
 
       --h_;
       --k_;
@@ -912,7 +918,7 @@ public final class VarOptItemsSketch<T> {
       final int rIdxToDelete = 1 + SamplingUtil.rand().nextInt(r_); // 1 for the gap
       final int rightmostRIdx = (1 + r_) - 1;
       swapValues(rIdxToDelete, rightmostRIdx);
-      weights_.set(rightmostRIdx, -1.0);
+      weights_[rightmostRIdx] = -1.0;
 
       --k_;
       --r_;
@@ -929,7 +935,7 @@ public final class VarOptItemsSketch<T> {
 
     final int mSlot = h_; // index of the gap, which becomes the M region
     data_.set(mSlot, item);
-    weights_.set(mSlot, weight);
+    weights_[mSlot] = weight;
     if (marks_ != null) { marks_.set(mSlot, mark); }
     ++m_;
 
@@ -969,7 +975,7 @@ public final class VarOptItemsSketch<T> {
     // Any set of two items is downsample-able to one item,
     // so the two lightest items are a valid starting point for the following
     final int mSlot = k_ - 1; // array is k+1, 1 in R, so slot before is M
-    growCandidateSet(weights_.get(mSlot) + totalWtR_, 2);
+    growCandidateSet(weights_[mSlot] + totalWtR_, 2);
   }
 
   private void updateWarmupPhase(final T item, final double wt, final boolean mark) {
@@ -983,8 +989,8 @@ public final class VarOptItemsSketch<T> {
 
     // store items as they come in, until full
     data_.add(h_, item);
-    weights_.add(h_, wt);
-    if (marks_ != null) { marks_.add(h_, mark); }
+    weights_[h_] = wt;
+    if (marks_ != null) { marks_.set(h_, mark); }
     ++h_;
     numMarksInH_ += mark ? 1 : 0;
 
@@ -1009,12 +1015,12 @@ public final class VarOptItemsSketch<T> {
 
     // Update total weight in R then, having grabbed the value, overwrite in
     // weight_ array to help make bugs more obvious
-    totalWtR_ = weights_.get(k_); // only one item, known location
-    weights_.set(k_, -1.0);
+    totalWtR_ = weights_[k_]; // only one item, known location
+    weights_[k_] = -1.0;
 
     // The two lightest items are necessarily downsample-able to one item, and are therefore a
     // valid initial candidate set.
-    growCandidateSet(weights_.get(k_ - 1) + totalWtR_, 2);
+    growCandidateSet(weights_[k_ - 1] + totalWtR_, 2);
   }
 
   /* Validates the heap condition for the weight array */
@@ -1022,7 +1028,7 @@ public final class VarOptItemsSketch<T> {
   private void validateHeap() {
     for (int j = h_ - 1; j >= 1; --j) {
       final int p = ((j + 1) / 2) - 1;
-      assert weights_.get(p) <= weights_.get(j);
+      assert weights_[p] <= weights_[j];
     }
   }
   */
@@ -1056,12 +1062,12 @@ public final class VarOptItemsSketch<T> {
 
     while (child <= lastSlot) {
       final int child2 = child + 1; // might also be invalid
-      if ((child2 <= lastSlot) && (weights_.get(child2) < weights_.get(child))) {
+      if ((child2 <= lastSlot) && (weights_[child2] < weights_[child])) {
         // switch to other child if it's both valid and smaller
         child = child2;
       }
 
-      if (weights_.get(slot) <= weights_.get(child)) {
+      if (weights_[slot] <= weights_[child]) {
         // invariant holds so we're done
         break;
       }
@@ -1077,7 +1083,7 @@ public final class VarOptItemsSketch<T> {
   private void restoreTowardsRoot(final int slotIn) {
     int slot = slotIn;
     int p = (((slot + 1) / 2) - 1); // valid if slot >= 1
-    while ((slot > 0) && (weights_.get(slot) < weights_.get(p))) {
+    while ((slot > 0) && (weights_[slot] < weights_[p])) {
       swapValues(slot, p);
       slot = p;
       p = (((slot + 1) / 2) - 1); // valid if slot >= 1
@@ -1086,7 +1092,7 @@ public final class VarOptItemsSketch<T> {
 
   private void push(final T item, final double wt, final boolean mark) {
     data_.set(h_, item);
-    weights_.set(h_, wt);
+    weights_[h_] = wt;
     if (marks_ != null) {
       marks_.set(h_, mark);
       numMarksInH_ += (mark ? 1 : 0);
@@ -1098,7 +1104,7 @@ public final class VarOptItemsSketch<T> {
 
   private double peekMin() {
     assert h_ > 0;
-    return weights_.get(0);
+    return weights_[0];
   }
 
   private void popMinToMRegion() {
@@ -1176,7 +1182,7 @@ public final class VarOptItemsSketch<T> {
     } else if (m_ == 1) {
       // check if we keep the item in M or pick one from R
       // p(keep) = (numCand - 1) * wt_M / wt_cand
-      final double wtMCand = weights_.get(h_); // slot of item in M is h_
+      final double wtMCand = weights_[h_]; // slot of item in M is h_
       if ((wtCand * SamplingUtil.nextDoubleExcludeZero()) < ((numCand - 1) * wtMCand)) {
         return pickRandomSlotInR(); // keep item in M
       } else {
@@ -1205,7 +1211,7 @@ public final class VarOptItemsSketch<T> {
     double rightSubtotal = -1.0 * wtCand * SamplingUtil.nextDoubleExcludeZero();
 
     for (int i = offset; i <= finalM; ++i) {
-      leftSubtotal += numToKeep * weights_.get(i);
+      leftSubtotal += numToKeep * weights_[i];
       rightSubtotal += wtCand;
 
       if (leftSubtotal < rightSubtotal) {
@@ -1230,7 +1236,7 @@ public final class VarOptItemsSketch<T> {
     // overwrite weights for items from M moving into R, to make bugs more obvious
     final int stopIdx = leftmostCandSlot + m_;
     for (int j = leftmostCandSlot; j < stopIdx; ++j) {
-      weights_.set(j, -1.0);
+      weights_[j] = -1.0;
     }
 
     // The next two lines work even when deleteSlot == leftmostCandSlot
@@ -1248,12 +1254,12 @@ public final class VarOptItemsSketch<T> {
     data_.set(src, data_.get(dst));
     data_.set(dst, item);
 
-    final Double wt = weights_.get(src);
-    weights_.set(src, weights_.get(dst));
-    weights_.set(dst, wt);
+    final double wt = weights_[src];
+    weights_[src] = weights_[dst];
+    weights_[dst] = wt;
 
     if (marks_ != null) {
-      final Boolean mark = marks_.get(src);
+      final boolean mark = marks_.get(src);
       marks_.set(src, marks_.get(dst));
       marks_.set(dst, mark);
     }
@@ -1292,7 +1298,7 @@ public final class VarOptItemsSketch<T> {
   /**
    * Increases allocated sampling size by (adjusted) ResizeFactor and copies items from old
    * sampling. Only happens when buffer is not full, so don't need to worry about blindly copying
-   * the array items.
+   * the array items. The BitSet of marks, if any, grows on demand.
    */
   private void growDataArrays() {
     currItemsAlloc_ = SamplingUtil.getAdjustedSize(k_, currItemsAlloc_ << rf_.lg());
@@ -1301,9 +1307,6 @@ public final class VarOptItemsSketch<T> {
     }
 
     data_.ensureCapacity(currItemsAlloc_);
-    weights_.ensureCapacity(currItemsAlloc_);
-    if (marks_ != null) {
-      marks_.ensureCapacity(currItemsAlloc_);
-    }
+    weights_ = Arrays.copyOf(weights_, currItemsAlloc_);
   }
 }
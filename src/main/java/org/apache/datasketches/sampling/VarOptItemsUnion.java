@@ -34,6 +34,8 @@ import static org.apache.datasketches.sampling.VarOptItemsSketch.newInstanceFrom
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.datasketches.common.ArrayOfItemsSerDe;
 import org.apache.datasketches.common.Family;
@@ -223,6 +225,49 @@ public final class VarOptItemsUnion<T> {
     }
   }
 
+  /**
+   * Union all of the given sketches using a parallel tree reduction on a fork-join pool.
+   *
+   * <p>Runs of consecutive sketches are merged into partial unions, and the results of those are
+   * merged pairwise, so the outcome is statistically equivalent to calling
+   * {@link #update(VarOptItemsSketch)} on each sketch in turn. For a given seed and input list it
+   * does not depend on the pool or on how the work is scheduled. Null entries are ignored and none
+   * of the input sketches are modified.</p>
+   *
+   * @param sketches The sketches to be merged
+   * @param pool The pool on which to run the reduction, or null to use the common pool
+   * @param seed Seed for all random choices made by the merge
+   */
+  public void updateAll(final List<VarOptItemsSketch<T>> sketches, final ForkJoinPool pool,
+                        final long seed) {
+    if (sketches == null || sketches.isEmpty()) {
+      return;
+    }
+    mergeReduced(ParallelUnionTask.reduce(sketches, pool, seed,
+        () -> new VarOptItemsUnion<T>(maxK_), VarOptItemsUnion::update,
+        (union, other) -> union.mergeInto(other.getResult())), seed);
+  }
+
+  /**
+   * Union all of the given Memory images of sketches using a parallel tree reduction on a
+   * fork-join pool. The images are deserialized by the worker threads.
+   *
+   * @param images Memory images of the sketches to be merged
+   * @param serDe An instance of ArrayOfItemsSerDe
+   * @param pool The pool on which to run the reduction, or null to use the common pool
+   * @param seed Seed for all random choices made by the merge
+   * @see #updateAll(List, ForkJoinPool, long)
+   */
+  public void updateAllImages(final List<Memory> images, final ArrayOfItemsSerDe<T> serDe,
+                              final ForkJoinPool pool, final long seed) {
+    if (images == null || images.isEmpty()) {
+      return;
+    }
+    mergeReduced(ParallelUnionTask.reduce(images, pool, seed,
+        () -> new VarOptItemsUnion<T>(maxK_), (union, mem) -> union.update(mem, serDe),
+        (union, other) -> union.mergeInto(other.getResult())), seed);
+  }
+
   /**
    * Union a reservoir sketch. The reservoir sample is treated as if all items were added with a
    * weight of 1.0.
@@ -362,6 +407,11 @@ public final class VarOptItemsUnion<T> {
     }
   }
 
+  private void mergeReduced(final VarOptItemsUnion<T> reduced, final long seed) {
+    SamplingUtil.runSeeded(ParallelUnionTask.finalMergeSeed(seed),
+        () -> mergeInto(reduced.getResult()));
+  }
+
   private void mergeInto(final VarOptItemsSketch<T> sketch) {
     final long sketchN = sketch.getN();
     if (sketchN == 0) {
@@ -494,14 +544,13 @@ public final class VarOptItemsUnion<T> {
     int resultR = 0;
     int nextRPos = resultK; // = (resultK+1)-1, to fill R region from back to front
 
-    final ArrayList<T> data         = new ArrayList<>(resultK + 1);
-    final ArrayList<Double> weights = new ArrayList<>(resultK + 1);
+    final ArrayList<T> data = new ArrayList<>(resultK + 1);
+    final double[] weights = new double[resultK + 1];
 
-    // Need arrays filled to use set() and be able to fill from end forward.
-    // Ideally would create as arrays but trying to avoid forcing user to pass a Class<?>
+    // Need list filled to use set() and be able to fill from end forward.
+    // Ideally would create as an array but trying to avoid forcing user to pass a Class<?>
     for (int i = 0; i < (resultK + 1); ++i) {
       data.add(null);
-      weights.add(null);
     }
 
     final VarOptItemsSamples<T> sketchSamples = gadget_.getSketchSamples();
@@ -514,7 +563,7 @@ public final class VarOptItemsUnion<T> {
     while (sketchIterator.hasNext()) {
       final VarOptItemsSamples<T>.WeightedSample ws = sketchIterator.next();
       data.set(nextRPos, ws.getItem());
-      weights.set(nextRPos, -1.0);
+      weights[nextRPos] = -1.0;
       ++resultR;
       --nextRPos;
     }
@@ -526,13 +575,13 @@ public final class VarOptItemsUnion<T> {
       final VarOptItemsSamples<T>.WeightedSample ws = sketchIterator.next();
       if (ws.getMark()) {
         data.set(nextRPos, ws.getItem());
-        weights.set(nextRPos, -1.0);
+        weights[nextRPos] = -1.0;
         transferredWeight += ws.getWeight();
         ++resultR;
         --nextRPos;
       } else {
         data.set(resultH, ws.getItem());
-        weights.set(resultH, ws.getWeight());
+        weights[resultH] = ws.getWeight();
         ++resultH;
       }
     }
@@ -545,7 +594,7 @@ public final class VarOptItemsUnion<T> {
 
     // explicitly set values for the gap
     data.set(resultH, null);
-    weights.set(resultH, -1.0);
+    weights[resultH] = -1.0;
 
     // create sketch with the new values
     return newInstanceFromUnionResult(data, weights, resultK, resultN, resultH, resultR, resultRWeight);
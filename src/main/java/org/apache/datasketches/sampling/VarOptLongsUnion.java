@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.sampling;
+
+import static org.apache.datasketches.sampling.VarOptLongsSketch.newInstanceFromUnionResult;
+
+import org.apache.datasketches.memory.Memory;
+
+/**
+ * Provides a unioning operation over {@link VarOptLongsSketch}es. This union allows the sample
+ * size k to float, possibly increasing or decreasing as warranted by the available data.
+ *
+ * <p>The unioning algorithm, including the treatment of marked items in the gadget, is that of
+ * {@link VarOptItemsUnion}, and the serialized image is the same as that of a
+ * <code>VarOptItemsUnion&lt;Long&gt;</code> serialized with
+ * {@link org.apache.datasketches.common.ArrayOfLongsSerDe ArrayOfLongsSerDe}.</p>
+ */
+public final class VarOptLongsUnion extends BaseVarOptUnion<VarOptLongsSketch> {
+
+  /**
+   * Empty constructor
+   *
+   * @param maxK Maximum allowed reservoir capacity for this union
+   */
+  private VarOptLongsUnion(final int maxK) {
+    super(maxK, VarOptLongsSketch.newInstanceAsGadget(maxK));
+  }
+
+  /**
+   * Creates an empty Union with a maximum capacity of size k.
+   *
+   * @param maxK The maximum allowed capacity of the unioned result
+   * @return A new VarOptLongsUnion
+   */
+  public static VarOptLongsUnion newInstance(final int maxK) {
+    return new VarOptLongsUnion(maxK);
+  }
+
+  /**
+   * Instantiates a Union from Memory
+   *
+   * @param srcMem Memory object containing a serialized union
+   * @return A VarOptLongsUnion created from the provided Memory
+   */
+  public static VarOptLongsUnion heapify(final Memory srcMem) {
+    return heapifyUnion(srcMem, VarOptLongsUnion::new);
+  }
+
+  /**
+   * Union the given sketch.
+   *
+   *<p>This method can be repeatedly called.</p>
+   *
+   * @param sketchIn The sketch to be merged
+   */
+  public void update(final VarOptLongsSketch sketchIn) {
+    if (sketchIn != null) {
+      mergeInto(sketchIn);
+    }
+  }
+
+  /**
+   * Gets the varopt sketch resulting from the union of any input sketches.
+   *
+   * @return A varopt sketch
+   */
+  public VarOptLongsSketch getResult() {
+    return computeResult();
+  }
+
+  /**
+   * Union a reservoir sketch. The reservoir sample is treated as if all items were added with a
+   * weight of 1.0.
+   *
+   * @param reservoirIn The reservoir sketch to be merged
+   */
+  public void update(final ReservoirLongsSketch reservoirIn) {
+    if (reservoirIn != null) {
+      mergeReservoirInto(reservoirIn);
+    }
+  }
+
+  @Override
+  VarOptLongsSketch heapifySketch(final Memory mem) {
+    return VarOptLongsSketch.heapify(mem);
+  }
+
+  @Override
+  VarOptLongsSketch copyGadget(final boolean asSketch, final long adjustedN) {
+    return gadget_.copyAndSetN(asSketch, adjustedN);
+  }
+
+  @Override
+  void updateGadget(final VarOptLongsSketch sketch, final int idx, final double weight, final boolean mark) {
+    gadget_.update(sketch.getItem(idx), weight, mark);
+  }
+
+  @Override
+  VarOptLongsSketch newResultFromGadgetSlots(final int[] gadgetSlots, final double[] weights, final int k,
+      final long n, final int hCount, final int rCount, final double totalWtR) {
+    final long[] data = new long[gadgetSlots.length];
+    for (int i = 0; i < gadgetSlots.length; ++i) {
+      if (gadgetSlots[i] >= 0) {
+        data[i] = gadget_.getItem(gadgetSlots[i]);
+      }
+    }
+    return newInstanceFromUnionResult(data, weights, k, n, hCount, rCount, totalWtR);
+  }
+
+  /**
+   * Used to merge a reservoir sample into varopt, assuming the reservoir was built with items
+   * of weight 1.0. Logic is very similar to mergeInto() for a sketch with no heavy items.
+   * @param reservoir Reservoir sketch to merge into this union
+   */
+  private void mergeReservoirInto(final ReservoirLongsSketch reservoir) {
+    final long reservoirN = reservoir.getN();
+    if (reservoirN == 0) {
+      return;
+    }
+
+    n_ += reservoirN;
+
+    final int reservoirK = reservoir.getK();
+    final long[] samples = reservoir.getSamples();
+    if (reservoirN <= reservoirK) {
+      // exact mode, so just insert and be done
+      for (final long item : samples) {
+        gadget_.update(item, 1.0, false);
+      }
+    } else {
+      // sampling mode. We'll replicate a weight-correcting iterator
+      final double reservoirTau = reservoir.getImplicitSampleWeight();
+
+      double cumWeight = 0.0;
+      for (int i = 0; i < (reservoirK - 1); ++i) {
+        gadget_.update(samples[i], reservoirTau, true);
+        cumWeight += reservoirTau;
+      }
+      // correct for any numerical discrepancies with the last item
+      gadget_.update(samples[reservoirK - 1], reservoirN - cumWeight, true);
+
+      resolveOuterTau(reservoirTau, reservoirN, reservoirK);
+    }
+  }
+}
@@ -26,5 +26,7 @@
  * @see org.apache.datasketches.sampling.ReservoirItemsSketch
  * @see org.apache.datasketches.sampling.ReservoirLongsSketch
  * @see org.apache.datasketches.sampling.VarOptItemsSketch
+ * @see org.apache.datasketches.sampling.VarOptLongsSketch
+ * @see org.apache.datasketches.sampling.VarOptDoublesSketch
  */
 package org.apache.datasketches.sampling;
@@ -0,0 +1,391 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.min;
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+
+import java.util.Objects;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.thetacommon.HashOperations;
+
+/**
+ * Computes an intersection of two or more tuple sketches with fixed-width summaries, keeping its
+ * whole state in a given WritableMemory.
+ * This is the equivalent of an {@link Intersection} with the set operations given by a
+ * {@link SummaryLayout}, except that the number of entries it can hold is fixed at construction.
+ * A new instance represents the Universal Set. Because the Universal Set
+ * cannot be realized a <i>getResult()</i> on a new instance will produce an error.
+ * Every update() computes an intersection with the internal state, which will never
+ * grow larger and may be reduced to zero.
+ *
+ * @param <U> type of the value used to update a summary
+ */
+public class DirectIntersection<U> {
+
+  static final byte serialVersionUID = 1;
+
+  // Layout of first 24 bytes:
+  // Long || Start Byte Adr:
+  // Adr:
+  //      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |     0              |
+  //  0   ||-----unused-----|LgArrLongs|  Flags | SkType | FamID  | SerVer |  Preamble_Longs    |
+  //      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |     8              |
+  //  1   ||------------------------------Theta long-------------------------------------------|
+  //      ||   23   |   22   |   21   |   20   |   19   |   18   |   17   |    16              |
+  //  2   ||---------Summary Size Bytes int----|------------Retained Entries int---------------|
+
+  static final int PREAMBLE_LONGS_BYTE = 0;
+  static final int SERIAL_VERSION_BYTE = 1;
+  static final int FAMILY_ID_BYTE = 2;
+  static final int SKETCH_TYPE_BYTE = 3;
+  static final int FLAGS_BYTE = 4;
+  static final int LG_ARR_LONGS_BYTE = 5;
+  static final int THETA_LONG = 8;
+  static final int RETAINED_ENTRIES_INT = 16;
+  static final int SUMMARY_SIZE_INT = 20;
+  static final int ENTRIES_START = 24;
+
+  static final int IS_EMPTY_FLAG = 1;
+  static final int IS_FIRST_CALL_FLAG = 1 << 1;
+
+  private final WritableMemory mem_;
+  private final SummaryLayout<U> layout_;
+  private final int summarySizeBytes_;
+  private final int lgArrLongs_;
+  private final long summariesOffset_;
+
+  /**
+   * Creates new Intersection instance in the given WritableMemory.
+   * @param nomEntries nominal entries (K) of the sketches to intersect. The first sketch may
+   * retain up to twice this many entries, which covers any update sketch or union result with
+   * this or smaller K.
+   * @param layout the layout of the summaries, which also gives the intersection function
+   * @param dstMem the destination WritableMemory, at least {@link #getMaxBytes(int, int)} long
+   */
+  public DirectIntersection(final int nomEntries, final SummaryLayout<U> layout,
+      final WritableMemory dstMem) {
+    this(checkMemory(nomEntries, layout, dstMem),
+    //SpotBugs CT_CONSTRUCTOR_THROW is false positive.
+    //this construction scheme is compliant with SEI CERT Oracle Coding Standard for Java / OBJ11-J
+        nomEntries, layout, dstMem);
+  }
+
+  private DirectIntersection(
+      final boolean secure, //required part of Finalizer Attack prevention
+      final int nomEntries,
+      final SummaryLayout<U> layout,
+      final WritableMemory dstMem) {
+    mem_ = dstMem;
+    layout_ = layout;
+    summarySizeBytes_ = layout.getSizeBytes();
+    lgArrLongs_ = getLgArrLongs(nomEntries);
+    summariesOffset_ = ENTRIES_START + ((long) Long.BYTES << lgArrLongs_);
+    mem_.clear(0, ENTRIES_START);
+    mem_.putByte(PREAMBLE_LONGS_BYTE, (byte) 1);
+    mem_.putByte(SERIAL_VERSION_BYTE, serialVersionUID);
+    mem_.putByte(FAMILY_ID_BYTE, (byte) Family.TUPLE.getID());
+    mem_.putByte(SKETCH_TYPE_BYTE, (byte) SerializerDeserializer.SketchType.FixedWidthIntersection.ordinal());
+    mem_.putByte(LG_ARR_LONGS_BYTE, (byte) lgArrLongs_);
+    mem_.putInt(SUMMARY_SIZE_INT, summarySizeBytes_);
+    reset();
+  }
+
+  private DirectIntersection(
+      final boolean secure, //required part of Finalizer Attack prevention
+      final WritableMemory mem,
+      final SummaryLayout<U> layout) {
+    mem_ = mem;
+    layout_ = layout;
+    summarySizeBytes_ = layout.getSizeBytes();
+    lgArrLongs_ = mem.getByte(LG_ARR_LONGS_BYTE);
+    summariesOffset_ = ENTRIES_START + ((long) Long.BYTES << lgArrLongs_);
+  }
+
+  /**
+   * Wraps an intersection previously constructed in the given WritableMemory.
+   * @param mem the WritableMemory holding the intersection
+   * @param layout the layout of the summaries, which must have the size used to construct the
+   * intersection
+   * @param <U> type of the value used to update a summary
+   * @return the wrapped intersection
+   */
+  public static <U> DirectIntersection<U> writableWrap(final WritableMemory mem,
+      final SummaryLayout<U> layout) {
+    return new DirectIntersection<>(checkImage(mem, layout), mem, layout);
+  }
+
+  /**
+   * Returns the number of bytes the intersection needs with the given parameters
+   * @param nomEntries nominal entries (K) of the sketches to intersect
+   * @param summarySizeBytes the size of each summary in bytes
+   * @return the number of bytes
+   */
+  public static int getMaxBytes(final int nomEntries, final int summarySizeBytes) {
+    return getSizeBytes(getLgArrLongs(nomEntries), summarySizeBytes);
+  }
+
+  /**
+   * Performs a stateful intersection of the internal set with the given sketch.
+   * @param sketch input sketch to intersect with the internal state.
+   */
+  public void intersect(final DirectUpdatableSketch<U> sketch) {
+    if (sketch == null) { throw new SketchesArgumentException("Sketch must not be null"); }
+    if (sketch.getSummaryLayout().getSizeBytes() != summarySizeBytes_) {
+      throw new SketchesArgumentException("Summary size mismatch. Expected " + summarySizeBytes_
+          + " bytes, got " + sketch.getSummaryLayout().getSizeBytes());
+    }
+    intersect(sketch.getImage());
+  }
+
+  /**
+   * Performs a stateful intersection of the internal set with the given generic tuple sketch,
+   * whose summaries must serialize to the layout of this intersection.
+   * @param sketch input sketch to intersect with the internal state.
+   */
+  public void intersect(final Sketch<?> sketch) {
+    if (sketch == null) { throw new SketchesArgumentException("Sketch must not be null"); }
+    intersect(FixedWidthImage.wrap(sketch, summarySizeBytes_));
+  }
+
+  /**
+   * Performs a stateful intersection of the internal set with the given serialized sketch,
+   * either a compact image as produced by {@link CompactSketch#toByteArray()} and
+   * {@link DirectUpdatableSketch#toByteArray()}, or the Memory of a DirectUpdatableSketch.
+   * The summaries are read in place.
+   * @param mem the Memory image of the sketch to intersect with the internal state.
+   */
+  public void intersect(final Memory mem) {
+    intersect(FixedWidthImage.wrap(mem, summarySizeBytes_));
+  }
+
+  private void intersect(final FixedWidthImage image) {
+    final boolean firstCall = (mem_.getByte(FLAGS_BYTE) & IS_FIRST_CALL_FLAG) != 0;
+    if (firstCall && !image.isEmpty() && image.getRetainedEntries() > getMaxEntries()) {
+      throw new SketchesArgumentException("Sketch has too many entries for this intersection: "
+          + image.getRetainedEntries() + " > " + getMaxEntries());
+    }
+    mem_.clearBits(FLAGS_BYTE, (byte) IS_FIRST_CALL_FLAG);
+
+    if (isEmpty() || image.isEmpty()) { //empty rule
+      //Whatever the current internal state, we make our local empty.
+      mem_.setBits(FLAGS_BYTE, (byte) IS_EMPTY_FLAG);
+      mem_.putLong(THETA_LONG, Long.MAX_VALUE);
+      clear();
+      return;
+    }
+
+    final long thetaLong = min(mem_.getLong(THETA_LONG), image.getThetaLong()); //Theta rule
+    mem_.putLong(THETA_LONG, thetaLong);
+
+    if (image.getRetainedEntries() == 0) {
+      clear();
+      return;
+    }
+
+    final Memory src = image.getMemory();
+    if (firstCall) {
+      //Copy the first sketch into the local hash table
+      clear();
+      int count = 0;
+      for (int i = 0; i < image.getSlots(); i++) {
+        final long hash = image.getKey(i);
+        if (hash == 0 || hash >= thetaLong) { continue; }
+        final int index = HashOperations.hashInsertOnlyMemory(mem_, lgArrLongs_, hash, ENTRIES_START);
+        src.copyTo(image.getSummaryOffset(i), mem_, getSummaryOffset(index), summarySizeBytes_);
+        count++;
+      }
+      mem_.putInt(RETAINED_ENTRIES_INT, count);
+    } else {
+      final int numKeys = getRetainedEntries();
+      if (numKeys == 0) { return; }
+      //intersect the incoming sketch with the current hash table
+      final int maxMatchSize = min(numKeys, image.getRetainedEntries());
+      final long[] matchHashes = new long[maxMatchSize];
+      final byte[] matchSummaries = new byte[maxMatchSize * summarySizeBytes_];
+      final WritableMemory matchMem = WritableMemory.writableWrap(matchSummaries);
+      int matchCount = 0;
+      for (int i = 0; i < image.getSlots(); i++) {
+        final long hash = image.getKey(i);
+        if (hash == 0 || hash >= thetaLong) { continue; }
+        final int index = HashOperations.hashSearchMemory(mem_, lgArrLongs_, hash, ENTRIES_START);
+        if (index < 0) { continue; }
+        final long matchOffset = (long) matchCount * summarySizeBytes_;
+        mem_.copyTo(getSummaryOffset(index), matchMem, matchOffset, summarySizeBytes_);
+        layout_.intersection(matchMem, matchOffset, src, image.getSummaryOffset(i));
+        matchHashes[matchCount++] = hash;
+      }
+      clear();
+      for (int i = 0; i < matchCount; i++) {
+        final int index = HashOperations.hashInsertOnlyMemory(mem_, lgArrLongs_, matchHashes[i], ENTRIES_START);
+        mem_.putByteArray(getSummaryOffset(index), matchSummaries, i * summarySizeBytes_, summarySizeBytes_);
+      }
+      mem_.putInt(RETAINED_ENTRIES_INT, matchCount);
+    }
+  }
+
+  /**
+   * Gets the internal set as an unordered CompactSketch on the Java heap
+   * @param deserializer the deserializer of the Summary equivalent to the layout of this
+   * intersection
+   * @param <S> type of Summary
+   * @return result of the intersections so far
+   */
+  public <S extends Summary> CompactSketch<S> getResult(final SummaryDeserializer<S> deserializer) {
+    return new CompactSketch<>(Memory.wrap(toByteArray()), deserializer);
+  }
+
+  /**
+   * Writes the internal set into the given WritableMemory as a compact image in the same format
+   * as {@link CompactSketch#toByteArray()}.
+   * @param dstMem the destination WritableMemory, which must be large enough for the result
+   * @return the region of the given WritableMemory holding the result
+   */
+  public Memory getResult(final WritableMemory dstMem) {
+    return writeResult(dstMem);
+  }
+
+  /**
+   * Returns the internal set as a compact image in the same format as
+   * {@link CompactSketch#toByteArray()}.
+   * @return serialized result of the intersections so far
+   */
+  public byte[] toByteArray() {
+    final Memory result = writeResult(null);
+    final byte[] bytes = new byte[(int) result.getCapacity()];
+    result.getByteArray(0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  /**
+   * Returns true if there is a valid intersection result available
+   * @return true if there is a valid intersection result available
+   */
+  public boolean hasResult() {
+    return (mem_.getByte(FLAGS_BYTE) & IS_FIRST_CALL_FLAG) == 0;
+  }
+
+  /**
+   * Resets the internal set to the initial state, which represents the Universal Set
+   */
+  public void reset() {
+    mem_.putByte(FLAGS_BYTE, (byte) IS_FIRST_CALL_FLAG);
+    mem_.putLong(THETA_LONG, Long.MAX_VALUE);
+    clear();
+  }
+
+  // writes the result into the given memory, or into a new byte array if it is null
+  private Memory writeResult(final WritableMemory dstMem) {
+    if (!hasResult()) {
+      throw new SketchesStateException(
+        "getResult() with no intervening intersections is not a legal result.");
+    }
+    final boolean empty = isEmpty();
+    final long thetaLong = mem_.getLong(THETA_LONG);
+    final int count = getRetainedEntries();
+    final long sizeBytes = FixedWidthImage.getCompactSizeBytes(count, thetaLong, empty, summarySizeBytes_);
+    final WritableMemory result = dstMem == null
+        ? WritableMemory.writableWrap(new byte[(int) sizeBytes])
+        : dstMem.writableRegion(0, sizeBytes);
+    final FixedWidthImage table = new FixedWidthImage(mem_, ENTRIES_START, Long.BYTES, summariesOffset_,
+        summarySizeBytes_, 1 << lgArrLongs_, thetaLong, empty, count);
+    table.writeCompact(result, count, thetaLong, empty, Long.MAX_VALUE, summarySizeBytes_);
+    return result;
+  }
+
+  private boolean isEmpty() {
+    return (mem_.getByte(FLAGS_BYTE) & IS_EMPTY_FLAG) != 0;
+  }
+
+  private int getRetainedEntries() {
+    return mem_.getInt(RETAINED_ENTRIES_INT);
+  }
+
+  private int getMaxEntries() {
+    return (int) ((1 << lgArrLongs_) * 0.75);
+  }
+
+  private long getSummaryOffset(final int index) {
+    return summariesOffset_ + ((long) summarySizeBytes_ * index);
+  }
+
+  private void clear() {
+    mem_.clear(ENTRIES_START, (long) Long.BYTES << lgArrLongs_); // clear keys only
+    mem_.putInt(RETAINED_ENTRIES_INT, 0);
+  }
+
+  // the table holds twice the nominal entries at the load factor of the heap Intersection
+  private static int getLgArrLongs(final int nomEntries) {
+    final int tableSize = ceilingPowerOf2((int) ceil(ceilingPowerOf2(nomEntries) * 2 / 0.75));
+    return Integer.numberOfTrailingZeros(tableSize);
+  }
+
+  private static int getSizeBytes(final int lgArrLongs, final int summarySizeBytes) {
+    return ENTRIES_START + ((Long.BYTES + summarySizeBytes) << lgArrLongs);
+  }
+
+  private static boolean checkMemory(final int nomEntries, final SummaryLayout<?> layout,
+      final WritableMemory dstMem) {
+    Objects.requireNonNull(layout, "SummaryLayout must not be null.");
+    Objects.requireNonNull(dstMem, "Destination Memory must not be null.");
+    if (layout.getSizeBytes() <= 0) {
+      throw new SketchesArgumentException("Summary size must be positive: " + layout.getSizeBytes());
+    }
+    checkIfEnoughMemory(dstMem, getLgArrLongs(nomEntries), layout.getSizeBytes());
+    return true;
+  }
+
+  private static boolean checkImage(final WritableMemory mem, final SummaryLayout<?> layout) {
+    Objects.requireNonNull(mem, "SourceMemory must not be null.");
+    if (mem.getCapacity() < ENTRIES_START) {
+      throw new SketchesArgumentException("Not enough memory: need "
+          + ENTRIES_START + " bytes, got " + mem.getCapacity() + " bytes");
+    }
+    SerializerDeserializer.validateFamily(mem.getByte(FAMILY_ID_BYTE), mem.getByte(PREAMBLE_LONGS_BYTE));
+    SerializerDeserializer.validateType(mem.getByte(SKETCH_TYPE_BYTE),
+        SerializerDeserializer.SketchType.FixedWidthIntersection);
+    final byte version = mem.getByte(SERIAL_VERSION_BYTE);
+    if (version != serialVersionUID) {
+      throw new SketchesArgumentException("Serial version mismatch. Expected: " + serialVersionUID
+          + ", actual: " + version);
+    }
+    final int sizeBytes = mem.getInt(SUMMARY_SIZE_INT);
+    if (sizeBytes != layout.getSizeBytes()) {
+      throw new SketchesArgumentException("Summary size mismatch. Expected " + layout.getSizeBytes()
+          + " bytes, got " + sizeBytes);
+    }
+    checkIfEnoughMemory(mem, mem.getByte(LG_ARR_LONGS_BYTE), sizeBytes);
+    return true;
+  }
+
+  private static void checkIfEnoughMemory(final Memory mem, final int lgArrLongs, final int summarySizeBytes) {
+    final int sizeNeeded = getSizeBytes(lgArrLongs, summarySizeBytes);
+    if (sizeNeeded > mem.getCapacity()) {
+      throw new SketchesArgumentException("Not enough memory: need "
+          + sizeNeeded + " bytes, got " + mem.getCapacity() + " bytes");
+    }
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple;
+
+import static java.lang.Math.min;
+
+import java.util.Objects;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.thetacommon.QuickSelect;
+
+/**
+ * Computes a union of two or more tuple sketches with fixed-width summaries, keeping its whole
+ * state in a given WritableMemory.
+ * This is the equivalent of a {@link Union} with the set operations given by a
+ * {@link SummaryLayout}. A new instance represents an empty set.
+ * Every update() computes a union with the internal state, which is initially empty.
+ *
+ * <p>The inputs can be {@link DirectUpdatableSketch DirectUpdatableSketches}, generic sketches
+ * whose summaries serialize to the layout, or Memory images of either.</p>
+ *
+ * @param <U> type of the value used to update a summary
+ */
+public class DirectUnion<U> {
+
+  static final byte serialVersionUID = 1;
+
+  // Layout of first 16 bytes:
+  // Long || Start Byte Adr:
+  // Adr:
+  //      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |     0              |
+  //  0   ||--------unused-----------|  Flags | SkType | FamID  | SerVer |  Preamble_Longs    |
+  //      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |     8              |
+  //  1   ||---------------------------Union Theta long----------------------------------------|
+
+  static final int PREAMBLE_LONGS_BYTE = 0;
+  static final int SERIAL_VERSION_BYTE = 1;
+  static final int FAMILY_ID_BYTE = 2;
+  static final int SKETCH_TYPE_BYTE = 3;
+  static final int FLAGS_BYTE = 4;
+  static final int THETA_LONG = 8;
+  static final int PREAMBLE_SIZE_BYTES = 16;
+
+  static final int IS_EMPTY_FLAG = 1;
+
+  private final WritableMemory mem_;
+  private final DirectUpdatableSketch<U> qsk_;
+  private final int summarySizeBytes_;
+
+  /**
+   * Creates new Union instance in the given WritableMemory.
+   * @param nomEntries nominal entries (K). Forced to the nearest power of 2 greater than
+   * given value.
+   * @param layout the layout of the summaries, which also gives the union function
+   * @param dstMem the destination WritableMemory, at least {@link #getMaxBytes(int, int)} long
+   */
+  public DirectUnion(final int nomEntries, final SummaryLayout<U> layout, final WritableMemory dstMem) {
+    this(checkMemory(dstMem),
+    //SpotBugs CT_CONSTRUCTOR_THROW is false positive.
+    //this construction scheme is compliant with SEI CERT Oracle Coding Standard for Java / OBJ11-J
+        nomEntries, layout, dstMem);
+  }
+
+  private DirectUnion(
+      final boolean secure, //required part of Finalizer Attack prevention
+      final int nomEntries,
+      final SummaryLayout<U> layout,
+      final WritableMemory dstMem) {
+    mem_ = dstMem;
+    qsk_ = new DirectUpdatableSketch<>(nomEntries, ResizeFactor.X8.lg(), 1f, layout,
+        dstMem.writableRegion(PREAMBLE_SIZE_BYTES, dstMem.getCapacity() - PREAMBLE_SIZE_BYTES));
+    summarySizeBytes_ = layout.getSizeBytes();
+    mem_.clear(0, PREAMBLE_SIZE_BYTES);
+    mem_.putByte(PREAMBLE_LONGS_BYTE, (byte) 1);
+    mem_.putByte(SERIAL_VERSION_BYTE, serialVersionUID);
+    mem_.putByte(FAMILY_ID_BYTE, (byte) Family.TUPLE.getID());
+    mem_.putByte(SKETCH_TYPE_BYTE, (byte) SerializerDeserializer.SketchType.FixedWidthUnion.ordinal());
+    mem_.putByte(FLAGS_BYTE, (byte) IS_EMPTY_FLAG);
+    mem_.putLong(THETA_LONG, qsk_.getThetaLong());
+  }
+
+  private DirectUnion(
+      final boolean secure, //required part of Finalizer Attack prevention
+      final WritableMemory mem,
+      final SummaryLayout<U> layout) {
+    mem_ = mem;
+    qsk_ = DirectUpdatableSketch.writableWrap(
+        mem.writableRegion(PREAMBLE_SIZE_BYTES, mem.getCapacity() - PREAMBLE_SIZE_BYTES), layout);
+    summarySizeBytes_ = layout.getSizeBytes();
+  }
+
+  /**
+   * Wraps a union previously constructed in the given WritableMemory.
+   * @param mem the WritableMemory holding the union
+   * @param layout the layout of the summaries, which must have the size used to construct the union
+   * @param <U> type of the value used to update a summary
+   * @return the wrapped union
+   */
+  public static <U> DirectUnion<U> writableWrap(final WritableMemory mem, final SummaryLayout<U> layout) {
+    return new DirectUnion<>(checkImage(mem), mem, layout);
+  }
+
+  /**
+   * Returns the number of bytes the union may need with the given parameters
+   * @param nomEntries nominal entries (K). Forced to the nearest power of 2 greater than
+   * given value.
+   * @param summarySizeBytes the size of each summary in bytes
+   * @return the maximum number of bytes
+   */
+  public static int getMaxBytes(final int nomEntries, final int summarySizeBytes) {
+    return PREAMBLE_SIZE_BYTES + DirectUpdatableSketch.getMaxBytes(nomEntries, summarySizeBytes);
+  }
+
+  /**
+   * Performs a stateful union of the internal set with the given sketch.
+   * @param sketch input sketch to add to the internal set.
+   * If the sketch is null or empty it is ignored.
+   */
+  public void union(final DirectUpdatableSketch<U> sketch) {
+    if (sketch == null) { return; }
+    if (sketch.getSummaryLayout().getSizeBytes() != summarySizeBytes_) {
+      throw new SketchesArgumentException("Summary size mismatch. Expected " + summarySizeBytes_
+          + " bytes, got " + sketch.getSummaryLayout().getSizeBytes());
+    }
+    union(sketch.getImage());
+  }
+
+  /**
+   * Performs a stateful union of the internal set with the given generic tuple sketch, whose
+   * summaries must serialize to the layout of this union.
+   * @param sketch input sketch to add to the internal set.
+   * If the sketch is null or empty it is ignored.
+   */
+  public void union(final Sketch<?> sketch) {
+    if (sketch == null || sketch.isEmpty()) { return; }
+    union(FixedWidthImage.wrap(sketch, summarySizeBytes_));
+  }
+
+  /**
+   * Performs a stateful union of the internal set with the given serialized sketch, either a
+   * compact image as produced by {@link CompactSketch#toByteArray()} and
+   * {@link DirectUpdatableSketch#toByteArray()}, or the Memory of a DirectUpdatableSketch.
+   * The summaries are read in place.
+   * @param mem the Memory image of the sketch to add to the internal set.
+   */
+  public void union(final Memory mem) {
+    union(FixedWidthImage.wrap(mem, summarySizeBytes_));
+  }
+
+  private void union(final FixedWidthImage image) {
+    if (image.isEmpty()) { return; }
+    setNotEmpty();
+    long unionThetaLong = min(image.getThetaLong(), mem_.getLong(THETA_LONG));
+    final Memory src = image.getMemory();
+    for (int i = 0; i < image.getSlots(); i++) {
+      final long hash = image.getKey(i);
+      if (hash != 0) {
+        qsk_.merge(hash, src, image.getSummaryOffset(i));
+      }
+    }
+    unionThetaLong = min(unionThetaLong, qsk_.getThetaLong());
+    mem_.putLong(THETA_LONG, unionThetaLong);
+  }
+
+  /**
+   * Gets the result of a sequence of stateful <i>union</i> operations as an unordered
+   * CompactSketch on the Java heap
+   * @param deserializer the deserializer of the Summary equivalent to the layout of this union
+   * @param <S> type of Summary
+   * @return result of the stateful unions so far. The state of this operation is not reset after
+   * getting the result.
+   */
+  public <S extends Summary> CompactSketch<S> getResult(final SummaryDeserializer<S> deserializer) {
+    return getResult(deserializer, false);
+  }
+
+  /**
+   * Gets the result of a sequence of stateful <i>union</i> operations as an unordered
+   * CompactSketch on the Java heap
+   * @param deserializer the deserializer of the Summary equivalent to the layout of this union
+   * @param reset If <i>true</i>, clears this operator to the empty state after this result is
+   * returned. Set this to <i>false</i> if you wish to obtain an intermediate result.
+   * @param <S> type of Summary
+   * @return result of the stateful union
+   */
+  public <S extends Summary> CompactSketch<S> getResult(final SummaryDeserializer<S> deserializer,
+      final boolean reset) {
+    final CompactSketch<S> result = new CompactSketch<>(Memory.wrap(toByteArray()), deserializer);
+    if (reset) { reset(); }
+    return result;
+  }
+
+  /**
+   * Writes the result of a sequence of stateful <i>union</i> operations into the given
+   * WritableMemory as a compact image in the same format as {@link CompactSketch#toByteArray()}.
+   * The state of this operation is not reset.
+   * @param dstMem the destination WritableMemory, which must be large enough for the result
+   * @return the region of the given WritableMemory holding the result
+   */
+  public Memory getResult(final WritableMemory dstMem) {
+    return writeResult(dstMem);
+  }
+
+  /**
+   * Returns the result of a sequence of stateful <i>union</i> operations as a compact image in
+   * the same format as {@link CompactSketch#toByteArray()}.
+   * The state of this operation is not reset.
+   * @return serialized result of the stateful unions so far
+   */
+  public byte[] toByteArray() {
+    final Memory result = writeResult(null);
+    final byte[] bytes = new byte[(int) result.getCapacity()];
+    result.getByteArray(0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  /**
+   * Resets the internal set to the initial state, which represents an empty set.
+   */
+  public void reset() {
+    qsk_.reset();
+    mem_.setBits(FLAGS_BYTE, (byte) IS_EMPTY_FLAG);
+    mem_.putLong(THETA_LONG, qsk_.getThetaLong());
+  }
+
+  // writes the result into the given memory, or into a new byte array if it is null
+  private Memory writeResult(final WritableMemory dstMem) {
+    final boolean empty = (mem_.getByte(FLAGS_BYTE) & IS_EMPTY_FLAG) != 0;
+    final long unionThetaLong = mem_.getLong(THETA_LONG);
+    final FixedWidthImage gadget = qsk_.getImage();
+    final int numHashesOut;
+    final long thetaLongOut;
+    if (empty) {
+      numHashesOut = qsk_.getRetainedEntries();
+      thetaLongOut = qsk_.getThetaLong();
+    } else if (unionThetaLong >= qsk_.getThetaLong()
+        && qsk_.getRetainedEntries() <= qsk_.getNominalEntries()) {
+      //unionThetaLong >= the gadget theta means we can ignore unionThetaLong. We don't need to rebuild.
+      numHashesOut = qsk_.getRetainedEntries();
+      thetaLongOut = qsk_.getThetaLong();
+    } else {
+      final long tmpThetaLong = min(unionThetaLong, qsk_.getThetaLong());
+      //count the number of valid hashes in because Alpha can have dirty values
+      int numHashesIn = 0;
+      for (int i = 0; i < gadget.getSlots(); i++) {
+        final long hash = gadget.getKey(i);
+        if (hash != 0 && hash < tmpThetaLong) { numHashesIn++; }
+      }
+      if (numHashesIn > qsk_.getNominalEntries()) {
+        //we need to trim hashes and need a new thetaLong
+        final long[] tmpHashArr = new long[numHashesIn];
+        int j = 0;
+        for (int i = 0; i < gadget.getSlots(); i++) {
+          final long hash = gadget.getKey(i);
+          if (hash != 0 && hash < tmpThetaLong) { tmpHashArr[j++] = hash; }
+        }
+        numHashesOut = qsk_.getNominalEntries();
+        thetaLongOut = QuickSelect.select(tmpHashArr, 0, numHashesIn - 1, numHashesOut);
+      } else {
+        //numHashesIn == 0 is a degenerate sketch: theta < 1.0, count = 0, empty = false
+        numHashesOut = numHashesIn;
+        thetaLongOut = tmpThetaLong;
+      }
+    }
+    final long sizeBytes = FixedWidthImage.getCompactSizeBytes(numHashesOut, thetaLongOut, empty,
+        summarySizeBytes_);
+    final WritableMemory result = dstMem == null
+        ? WritableMemory.writableWrap(new byte[(int) sizeBytes])
+        : dstMem.writableRegion(0, sizeBytes);
+    gadget.writeCompact(result, numHashesOut, thetaLongOut, empty, thetaLongOut, summarySizeBytes_);
+    return result;
+  }
+
+  private void setNotEmpty() {
+    mem_.clearBits(FLAGS_BYTE, (byte) IS_EMPTY_FLAG);
+  }
+
+  private static boolean checkMemory(final WritableMemory dstMem) {
+    Objects.requireNonNull(dstMem, "Destination Memory must not be null.");
+    if (dstMem.getCapacity() < PREAMBLE_SIZE_BYTES) {
+      throw new SketchesArgumentException("Not enough memory: need "
+          + PREAMBLE_SIZE_BYTES + " bytes, got " + dstMem.getCapacity() + " bytes");
+    }
+    return true;
+  }
+
+  private static boolean checkImage(final WritableMemory mem) {
+    checkMemory(mem);
+    SerializerDeserializer.validateFamily(mem.getByte(FAMILY_ID_BYTE), mem.getByte(PREAMBLE_LONGS_BYTE));
+    SerializerDeserializer.validateType(mem.getByte(SKETCH_TYPE_BYTE),
+        SerializerDeserializer.SketchType.FixedWidthUnion);
+    final byte version = mem.getByte(SERIAL_VERSION_BYTE);
+    if (version != serialVersionUID) {
+      throw new SketchesArgumentException("Serial version mismatch. Expected: " + serialVersionUID
+          + ", actual: " + version);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,653 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple;
+
+import static org.apache.datasketches.common.Util.LS;
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.thetacommon.BinomialBoundsN;
+import org.apache.datasketches.thetacommon.HashOperations;
+import org.apache.datasketches.thetacommon.QuickSelect;
+import org.apache.datasketches.thetacommon.ThetaUtil;
+
+/**
+ * An updatable tuple sketch that keeps its hash table and its fixed-width summaries in a given
+ * WritableMemory, using the QuickSelect algorithm.
+ * This is the equivalent of an {@link UpdatableSketch} whose summaries are described by a
+ * {@link SummaryLayout} instead of being objects on the heap, so the whole sketch can live in
+ * off-heap memory and be wrapped again later.
+ *
+ * <p>The result of {@link #toByteArray()} is a compact image in the same format as
+ * {@link CompactSketch#toByteArray()}, which can be heapified with the deserializer of the
+ * equivalent Summary if the layout matches its serialized form.</p>
+ *
+ * @param <U> type of the value used to update a summary
+ */
+public class DirectUpdatableSketch<U> {
+
+  static final byte serialVersionUID = 1;
+
+  // Layout of first 32 bytes:
+  // Long || Start Byte Adr:
+  // Adr:
+  //      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |     0              |
+  //  0   ||  LgRF  |LgCurCap|  LgNom |  Flags | SkType | FamID  | SerVer |  Preamble_Longs    |
+  //      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |     8              |
+  //  1   ||------------------------------Theta long-------------------------------------------|
+  //      ||   23   |   22   |   21   |   20   |   19   |   18   |   17   |    16              |
+  //  2   ||---------Retained Entries int------|------------Sampling P float-------------------|
+  //      ||   31   |   30   |   29   |   28   |   27   |   26   |   25   |    24              |
+  //  3   ||-------------unused----------------|-----------Summary Size Bytes int--------------|
+
+  static final int PREAMBLE_LONGS_BYTE = 0;
+  static final int SERIAL_VERSION_BYTE = 1;
+  static final int FAMILY_ID_BYTE = 2;
+  static final int SKETCH_TYPE_BYTE = 3;
+  static final int FLAGS_BYTE = 4;
+  static final int LG_NOM_ENTRIES_BYTE = 5;
+  static final int LG_CUR_CAPACITY_BYTE = 6;
+  static final int LG_RESIZE_FACTOR_BYTE = 7;
+  static final int THETA_LONG = 8;
+  static final int SAMPLING_P_FLOAT = 16;
+  static final int RETAINED_ENTRIES_INT = 20;
+  static final int SUMMARY_SIZE_INT = 24;
+  static final int ENTRIES_START = 32;
+
+  enum Flags { IS_BIG_ENDIAN, IS_IN_SAMPLING_MODE, IS_EMPTY, HAS_ENTRIES }
+
+  private final WritableMemory mem_;
+  private final SummaryLayout<U> layout_;
+  private final int summarySizeBytes_;
+  // these can be derived from the mem_ contents, but are kept here for performance
+  private long thetaLong_;
+  private int lgCurrentCapacity_;
+  private long summariesOffset_;
+  private int rebuildThreshold_;
+
+  /**
+   * Constructs a new sketch in the given WritableMemory with default resize factor and
+   * sampling probability.
+   * @param nomEntries Nominal number of entries. Forced to the nearest power of 2 greater than
+   * given value.
+   * @param layout the layout of the summaries
+   * @param dstMem the destination WritableMemory, at least {@link #getMaxBytes(int, int)} long
+   * unless the sketch is expected to stay small
+   */
+  public DirectUpdatableSketch(final int nomEntries, final SummaryLayout<U> layout,
+      final WritableMemory dstMem) {
+    this(nomEntries, ResizeFactor.X8.lg(), 1f, layout, dstMem);
+  }
+
+  /**
+   * Constructs a new sketch in the given WritableMemory.
+   * @param nomEntries Nominal number of entries. Forced to the nearest power of 2 greater than
+   * given value.
+   * @param lgResizeFactor log2(resize factor) - value from 0 to 3:
+   * 0 - no resizing (max size allocated),
+   * 1 - double internal hash table each time it reaches a threshold
+   * 2 - grow four times
+   * 3 - grow eight times (default)
+   * @param samplingProbability
+   * <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability</a>
+   * @param layout the layout of the summaries
+   * @param dstMem the destination WritableMemory
+   */
+  public DirectUpdatableSketch(final int nomEntries, final int lgResizeFactor,
+      final float samplingProbability, final SummaryLayout<U> layout, final WritableMemory dstMem) {
+    this(checkMemory(nomEntries, lgResizeFactor, layout, dstMem),
+    //SpotBugs CT_CONSTRUCTOR_THROW is false positive.
+    //this construction scheme is compliant with SEI CERT Oracle Coding Standard for Java / OBJ11-J
+        nomEntries, lgResizeFactor, samplingProbability, layout, dstMem);
+  }
+
+  private DirectUpdatableSketch(
+      final boolean secure, //required part of Finalizer Attack prevention
+      final int nomEntries,
+      final int lgResizeFactor,
+      final float samplingProbability,
+      final SummaryLayout<U> layout,
+      final WritableMemory dstMem) {
+    mem_ = dstMem;
+    layout_ = layout;
+    summarySizeBytes_ = layout.getSizeBytes();
+    final int startingCapacity = Util.getStartingCapacity(nomEntries, lgResizeFactor);
+    mem_.clear(0, ENTRIES_START);
+    mem_.putByte(PREAMBLE_LONGS_BYTE, (byte) 1);
+    mem_.putByte(SERIAL_VERSION_BYTE, serialVersionUID);
+    mem_.putByte(FAMILY_ID_BYTE, (byte) Family.TUPLE.getID());
+    mem_.putByte(SKETCH_TYPE_BYTE, (byte)
+        SerializerDeserializer.SketchType.FixedWidthQuickSelectSketch.ordinal());
+    final boolean isBigEndian = ByteOrder.nativeOrder().equals(ByteOrder.BIG_ENDIAN);
+    mem_.putByte(FLAGS_BYTE, (byte) (
+      (isBigEndian ? 1 << Flags.IS_BIG_ENDIAN.ordinal() : 0)
+      | (samplingProbability < 1f ? 1 << Flags.IS_IN_SAMPLING_MODE.ordinal() : 0)
+      | (1 << Flags.IS_EMPTY.ordinal())
+    ));
+    mem_.putByte(LG_NOM_ENTRIES_BYTE, (byte) Integer.numberOfTrailingZeros(ceilingPowerOf2(nomEntries)));
+    mem_.putByte(LG_RESIZE_FACTOR_BYTE, (byte) lgResizeFactor);
+    mem_.putFloat(SAMPLING_P_FLOAT, samplingProbability);
+    mem_.putInt(SUMMARY_SIZE_INT, summarySizeBytes_);
+    setThetaLong((long) (Long.MAX_VALUE * (double) samplingProbability));
+    setCapacity(startingCapacity);
+    mem_.putInt(RETAINED_ENTRIES_INT, 0);
+  }
+
+  private DirectUpdatableSketch(
+      final boolean secure, //required part of Finalizer Attack prevention
+      final WritableMemory mem,
+      final SummaryLayout<U> layout) {
+    mem_ = mem;
+    layout_ = layout;
+    summarySizeBytes_ = layout.getSizeBytes();
+    thetaLong_ = mem_.getLong(THETA_LONG);
+    lgCurrentCapacity_ = mem_.getByte(LG_CUR_CAPACITY_BYTE);
+    summariesOffset_ = ENTRIES_START + ((long) Long.BYTES << lgCurrentCapacity_);
+    rebuildThreshold_ = getRebuildThreshold(1 << lgCurrentCapacity_, getNominalEntries());
+  }
+
+  /**
+   * Wraps a sketch previously constructed in the given WritableMemory.
+   * @param mem the WritableMemory holding the sketch
+   * @param layout the layout of the summaries, which must have the size used to construct the sketch
+   * @param <U> type of the value used to update a summary
+   * @return the wrapped sketch
+   */
+  public static <U> DirectUpdatableSketch<U> writableWrap(final WritableMemory mem,
+      final SummaryLayout<U> layout) {
+    return new DirectUpdatableSketch<>(checkImage(mem, layout.getSizeBytes()), mem, layout);
+  }
+
+  /**
+   * Returns the number of bytes the sketch may need with the given parameters,
+   * regardless of the resize factor
+   * @param nomEntries Nominal number of entries. Forced to the nearest power of 2 greater than
+   * given value.
+   * @param summarySizeBytes the size of each summary in bytes
+   * @return the maximum number of bytes
+   */
+  public static int getMaxBytes(final int nomEntries, final int summarySizeBytes) {
+    return getSizeBytes(ceilingPowerOf2(nomEntries) * 2, summarySizeBytes);
+  }
+
+  /**
+   * Updates this sketch with a long key and U value.
+   * The value is passed to the update method of the summary layout.
+   *
+   * @param key The given long key
+   * @param value The given U value
+   */
+  public void update(final long key, final U value) {
+    update(new long[] {key}, value);
+  }
+
+  /**
+   * Updates this sketch with a double key and U value.
+   * The value is passed to the update method of the summary layout.
+   *
+   * @param key The given double key
+   * @param value The given U value
+   */
+  public void update(final double key, final U value) {
+    update(Util.doubleToLongArray(key), value);
+  }
+
+  /**
+   * Updates this sketch with a String key and U value.
+   * The value is passed to the update method of the summary layout.
+   * Note that the empty string is ignored.
+   *
+   * @param key The given String key
+   * @param value The given U value
+   */
+  public void update(final String key, final U value) {
+    update(Util.stringToByteArray(key), value);
+  }
+
+  /**
+   * Updates this sketch with a byte[] key and U value.
+   * The value is passed to the update method of the summary layout.
+   * The empty array is ignored.
+   *
+   * @param key The given byte[] key
+   * @param value The given U value
+   */
+  public void update(final byte[] key, final U value) {
+    if ((key == null) || (key.length == 0)) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  /**
+   * Updates this sketch with a ByteBuffer and U value.
+   * The value is passed to the update method of the summary layout.
+   * The empty buffer is ignored.
+   *
+   * @param buffer The given ByteBuffer key
+   * @param value The given U value
+   */
+  public void update(final ByteBuffer buffer, final U value) {
+    if (buffer == null || buffer.hasRemaining() == false) { return; }
+    insertOrIgnore(MurmurHash3.hash(buffer, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  /**
+   * Updates this sketch with an int[] key and U value.
+   * The value is passed to the update method of the summary layout.
+   * The empty array is ignored.
+   *
+   * @param key The given int[] key
+   * @param value The given U value
+   */
+  public void update(final int[] key, final U value) {
+    if ((key == null) || (key.length == 0)) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  /**
+   * Updates this sketch with a long[] key and U value.
+   * The value is passed to the update method of the summary layout.
+   * The empty array is ignored.
+   *
+   * @param key The given long[] key
+   * @param value The given U value
+   */
+  public void update(final long[] key, final U value) {
+    if ((key == null) || (key.length == 0)) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  /**
+   * Estimates the cardinality of the set (number of unique values presented to the sketch)
+   * @return best estimate of the number of unique values
+   */
+  public double getEstimate() {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return getRetainedEntries() / getTheta();
+  }
+
+  /**
+   * Gets the approximate upper error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the upper bound.
+   */
+  public double getUpperBound(final int numStdDev) {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return BinomialBoundsN.getUpperBound(getRetainedEntries(), getTheta(), numStdDev, isEmpty());
+  }
+
+  /**
+   * Gets the approximate lower error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the lower bound.
+   */
+  public double getLowerBound(final int numStdDev) {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return BinomialBoundsN.getLowerBound(getRetainedEntries(), getTheta(), numStdDev, isEmpty());
+  }
+
+  /**
+   * <a href="{@docRoot}/resources/dictionary.html#empty">See Empty</a>
+   * @return true if empty.
+   */
+  public boolean isEmpty() {
+    return (mem_.getByte(FLAGS_BYTE) & (1 << Flags.IS_EMPTY.ordinal())) != 0;
+  }
+
+  /**
+   * Returns true if the sketch is Estimation Mode (as opposed to Exact Mode).
+   * This is true if theta &lt; 1.0 AND isEmpty() is false.
+   * @return true if the sketch is in estimation mode.
+   */
+  public boolean isEstimationMode() {
+    return thetaLong_ < Long.MAX_VALUE && !isEmpty();
+  }
+
+  /**
+   * Gets the value of theta as a double between zero and one
+   * @return the value of theta as a double
+   */
+  public double getTheta() {
+    return getThetaLong() / (double) Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns Theta as a long
+   * @return Theta as a long
+   */
+  public long getThetaLong() {
+    return isEmpty() ? Long.MAX_VALUE : thetaLong_;
+  }
+
+  /**
+   * @return number of retained entries
+   */
+  public int getRetainedEntries() {
+    return mem_.getInt(RETAINED_ENTRIES_INT);
+  }
+
+  /**
+   * Get configured nominal number of entries
+   * @return nominal number of entries
+   */
+  public int getNominalEntries() {
+    return 1 << mem_.getByte(LG_NOM_ENTRIES_BYTE);
+  }
+
+  /**
+   * Get log_base2 of Nominal Entries
+   * @return log_base2 of Nominal Entries
+   */
+  public int getLgK() {
+    return mem_.getByte(LG_NOM_ENTRIES_BYTE);
+  }
+
+  /**
+   * Get configured sampling probability
+   * @return sampling probability
+   */
+  public float getSamplingProbability() {
+    return mem_.getFloat(SAMPLING_P_FLOAT);
+  }
+
+  /**
+   * Get current capacity
+   * @return current capacity
+   */
+  public int getCurrentCapacity() {
+    return 1 << lgCurrentCapacity_;
+  }
+
+  /**
+   * Gets the layout of the summaries
+   * @return the layout of the summaries
+   */
+  public SummaryLayout<U> getSummaryLayout() {
+    return layout_;
+  }
+
+  /**
+   * Gets the WritableMemory backing this sketch
+   * @return the WritableMemory backing this sketch
+   */
+  public WritableMemory getMemory() {
+    return mem_;
+  }
+
+  /**
+   * Rebuilds reducing the actual number of entries to the nominal number of entries if needed
+   */
+  public void trim() {
+    if (getRetainedEntries() > getNominalEntries()) {
+      updateTheta();
+      rebuild(getCurrentCapacity());
+    }
+  }
+
+  /**
+   * Resets this sketch an empty state.
+   */
+  public void reset() {
+    mem_.setBits(FLAGS_BYTE, (byte) (1 << Flags.IS_EMPTY.ordinal()));
+    mem_.clearBits(FLAGS_BYTE, (byte) (1 << Flags.HAS_ENTRIES.ordinal()));
+    setThetaLong((long) (Long.MAX_VALUE * (double) getSamplingProbability()));
+    setCapacity(Util.getStartingCapacity(getNominalEntries(), mem_.getByte(LG_RESIZE_FACTOR_BYTE)));
+    mem_.putInt(RETAINED_ENTRIES_INT, 0);
+  }
+
+  /**
+   * Serializes this sketch as a compact image in the same format as
+   * {@link CompactSketch#toByteArray()}.
+   * @return serialized representation of this sketch
+   */
+  public byte[] toByteArray() {
+    final boolean empty = isEmpty();
+    final long thetaLong = getThetaLong();
+    final int count = getRetainedEntries();
+    final byte[] bytes = new byte[(int) FixedWidthImage.getCompactSizeBytes(count, thetaLong, empty,
+        summarySizeBytes_)];
+    getImage().writeCompact(WritableMemory.writableWrap(bytes), count, thetaLong, empty,
+        Long.MAX_VALUE, summarySizeBytes_);
+    return bytes;
+  }
+
+  /**
+   * Converts this sketch to a CompactSketch on the Java heap.
+   * @param deserializer the deserializer of the Summary equivalent to the layout of this sketch
+   * @param <S> type of Summary
+   * @return this sketch as a CompactSketch on the Java heap
+   */
+  public <S extends Summary> CompactSketch<S> compact(final SummaryDeserializer<S> deserializer) {
+    return new CompactSketch<>(Memory.wrap(toByteArray()), deserializer);
+  }
+
+  @Override
+  public String toString() {
+    return "### DirectUpdatableSketch SUMMARY: " + LS
+        + "   Estimate                : " + getEstimate() + LS
+        + "   Upper Bound, 95% conf   : " + getUpperBound(2) + LS
+        + "   Lower Bound, 95% conf   : " + getLowerBound(2) + LS
+        + "   Theta (double)          : " + getTheta() + LS
+        + "   Theta (long)            : " + getThetaLong() + LS
+        + "   EstMode?                : " + isEstimationMode() + LS
+        + "   Empty?                  : " + isEmpty() + LS
+        + "   Retained Entries        : " + getRetainedEntries() + LS
+        + "   Summary Size Bytes      : " + summarySizeBytes_ + LS
+        + "### END SKETCH SUMMARY" + LS;
+  }
+
+  // non-public methods below
+
+  // a view of the hash table as the input of a set operation
+  FixedWidthImage getImage() {
+    return new FixedWidthImage(mem_, ENTRIES_START, Long.BYTES, summariesOffset_, summarySizeBytes_,
+        getCurrentCapacity(), getThetaLong(), isEmpty(), getRetainedEntries());
+  }
+
+  // a view of a serialized sketch as the input of a set operation
+  static FixedWidthImage image(final Memory mem, final int summarySizeBytes) {
+    checkImage(mem, summarySizeBytes);
+    final int lgCurrentCapacity = mem.getByte(LG_CUR_CAPACITY_BYTE);
+    final boolean empty = (mem.getByte(FLAGS_BYTE) & (1 << Flags.IS_EMPTY.ordinal())) != 0;
+    return new FixedWidthImage(mem, ENTRIES_START, Long.BYTES,
+        ENTRIES_START + ((long) Long.BYTES << lgCurrentCapacity), summarySizeBytes,
+        1 << lgCurrentCapacity, empty ? Long.MAX_VALUE : mem.getLong(THETA_LONG), empty,
+        mem.getInt(RETAINED_ENTRIES_INT));
+  }
+
+  void setThetaLong(final long thetaLong) {
+    thetaLong_ = thetaLong;
+    mem_.putLong(THETA_LONG, thetaLong_);
+  }
+
+  void setNotEmpty() {
+    mem_.clearBits(FLAGS_BYTE, (byte) (1 << Flags.IS_EMPTY.ordinal()));
+  }
+
+  void insertOrIgnore(final long hash, final U value) {
+    setNotEmpty();
+    if (hash == 0 || hash >= thetaLong_) { return; }
+    final int index = HashOperations.hashSearchOrInsertMemory(mem_, lgCurrentCapacity_, hash, ENTRIES_START);
+    if (index < 0) {
+      final long offset = getSummaryOffset(~index);
+      layout_.initialize(mem_, offset);
+      layout_.update(mem_, offset, value);
+      incrementCount();
+      rebuildIfNeeded();
+    } else {
+      layout_.update(mem_, getSummaryOffset(index), value);
+    }
+  }
+
+  // this is a special back door insert for merging, the equivalent of QuickSelectSketch.merge(),
+  // where a new hash keeps a copy of the incoming summary and a retained one is combined with it
+  // using the union function of the layout
+  void merge(final long hash, final Memory src, final long srcOffset) {
+    setNotEmpty();
+    if (hash > 0 && hash < thetaLong_) {
+      final int index = HashOperations.hashSearchOrInsertMemory(mem_, lgCurrentCapacity_, hash, ENTRIES_START);
+      if (index < 0) {
+        src.copyTo(srcOffset, mem_, getSummaryOffset(~index), summarySizeBytes_);
+        incrementCount();
+        rebuildIfNeeded();
+      } else {
+        layout_.union(mem_, getSummaryOffset(index), src, srcOffset);
+      }
+    }
+  }
+
+  private long getSummaryOffset(final int index) {
+    return summariesOffset_ + ((long) summarySizeBytes_ * index);
+  }
+
+  private void incrementCount() {
+    final int count = mem_.getInt(RETAINED_ENTRIES_INT);
+    if (count == 0) {
+      mem_.setBits(FLAGS_BYTE, (byte) (1 << Flags.HAS_ENTRIES.ordinal()));
+    }
+    mem_.putInt(RETAINED_ENTRIES_INT, count + 1);
+  }
+
+  private void rebuildIfNeeded() {
+    if (getRetainedEntries() <= rebuildThreshold_) {
+      return;
+    }
+    if (getCurrentCapacity() > getNominalEntries()) {
+      updateTheta();
+      rebuild(getCurrentCapacity());
+    } else {
+      rebuild(getCurrentCapacity() * (1 << mem_.getByte(LG_RESIZE_FACTOR_BYTE)));
+    }
+  }
+
+  private void updateTheta() {
+    final int count = getRetainedEntries();
+    final long[] hashArr = new long[count];
+    int i = 0;
+    for (int j = 0; j < getCurrentCapacity(); j++) {
+      final long hash = mem_.getLong(ENTRIES_START + ((long) Long.BYTES * j));
+      if (hash != 0) {
+        hashArr[i++] = hash;
+      }
+    }
+    setThetaLong(QuickSelect.select(hashArr, 0, count - 1, getNominalEntries()));
+  }
+
+  // rebuild in the same memory
+  private void rebuild(final int newCapacity) {
+    checkIfEnoughMemory(mem_, newCapacity, summarySizeBytes_);
+    final int currCapacity = getCurrentCapacity();
+    final long[] keys = new long[currCapacity];
+    final byte[] summaries = new byte[currCapacity * summarySizeBytes_];
+    mem_.getLongArray(ENTRIES_START, keys, 0, currCapacity);
+    mem_.getByteArray(summariesOffset_, summaries, 0, summaries.length);
+    setCapacity(newCapacity);
+    int count = 0;
+    for (int i = 0; i < keys.length; i++) {
+      if ((keys[i] != 0) && (keys[i] < thetaLong_)) {
+        final int index = HashOperations.hashInsertOnlyMemory(mem_, lgCurrentCapacity_, keys[i], ENTRIES_START);
+        mem_.putByteArray(getSummaryOffset(index), summaries, i * summarySizeBytes_, summarySizeBytes_);
+        count++;
+      }
+    }
+    mem_.putInt(RETAINED_ENTRIES_INT, count);
+  }
+
+  // clears the keys and points the summaries region past them
+  private void setCapacity(final int capacity) {
+    mem_.putByte(LG_CUR_CAPACITY_BYTE, (byte) Integer.numberOfTrailingZeros(capacity));
+    lgCurrentCapacity_ = Integer.numberOfTrailingZeros(capacity);
+    summariesOffset_ = ENTRIES_START + ((long) Long.BYTES * capacity);
+    mem_.clear(ENTRIES_START, (long) Long.BYTES * capacity); // clear keys only
+    rebuildThreshold_ = getRebuildThreshold(capacity, getNominalEntries());
+  }
+
+  private static int getRebuildThreshold(final int capacity, final int nomEntries) {
+    if (capacity > nomEntries) {
+      return (int) (capacity * ThetaUtil.REBUILD_THRESHOLD);
+    } else {
+      return (int) (capacity * ThetaUtil.RESIZE_THRESHOLD);
+    }
+  }
+
+  private static int getSizeBytes(final int capacity, final int summarySizeBytes) {
+    return ENTRIES_START + ((Long.BYTES + summarySizeBytes) * capacity);
+  }
+
+  private static boolean checkMemory(final int nomEntries, final int lgResizeFactor,
+      final SummaryLayout<?> layout, final WritableMemory dstMem) {
+    Objects.requireNonNull(layout, "SummaryLayout must not be null.");
+    Objects.requireNonNull(dstMem, "Destination Memory must not be null.");
+    if (layout.getSizeBytes() <= 0) {
+      throw new SketchesArgumentException("Summary size must be positive: " + layout.getSizeBytes());
+    }
+    checkIfEnoughMemory(dstMem, Util.getStartingCapacity(nomEntries, lgResizeFactor), layout.getSizeBytes());
+    return true;
+  }
+
+  private static boolean checkImage(final Memory mem, final int summarySizeBytes) {
+    Objects.requireNonNull(mem, "SourceMemory must not be null.");
+    if (mem.getCapacity() < ENTRIES_START) {
+      throw new SketchesArgumentException("Not enough memory: need "
+          + ENTRIES_START + " bytes, got " + mem.getCapacity() + " bytes");
+    }
+    SerializerDeserializer.validateFamily(mem.getByte(FAMILY_ID_BYTE), mem.getByte(PREAMBLE_LONGS_BYTE));
+    SerializerDeserializer.validateType(mem.getByte(SKETCH_TYPE_BYTE),
+        SerializerDeserializer.SketchType.FixedWidthQuickSelectSketch);
+    final byte version = mem.getByte(SERIAL_VERSION_BYTE);
+    if (version != serialVersionUID) {
+      throw new SketchesArgumentException("Serial version mismatch. Expected: " + serialVersionUID
+          + ", actual: " + version);
+    }
+    final boolean isBigEndian = (mem.getByte(FLAGS_BYTE) & (1 << Flags.IS_BIG_ENDIAN.ordinal())) != 0;
+    if (isBigEndian ^ ByteOrder.nativeOrder().equals(ByteOrder.BIG_ENDIAN)) {
+      throw new SketchesArgumentException("Byte order mismatch");
+    }
+    final int sizeBytes = mem.getInt(SUMMARY_SIZE_INT);
+    if (sizeBytes != summarySizeBytes) {
+      throw new SketchesArgumentException("Summary size mismatch. Expected " + summarySizeBytes
+          + " bytes, got " + sizeBytes);
+    }
+    checkIfEnoughMemory(mem, 1 << mem.getByte(LG_CUR_CAPACITY_BYTE), summarySizeBytes);
+    return true;
+  }
+
+  private static void checkIfEnoughMemory(final Memory mem, final int capacity, final int summarySizeBytes) {
+    final int sizeNeeded = getSizeBytes(capacity, summarySizeBytes);
+    if (sizeNeeded > mem.getCapacity()) {
+      throw new SketchesArgumentException("Not enough memory: need "
+          + sizeNeeded + " bytes, got " + mem.getCapacity() + " bytes");
+    }
+  }
+}
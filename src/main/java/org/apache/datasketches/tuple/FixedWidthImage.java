@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple;
+
+import static org.apache.datasketches.common.Util.checkBounds;
+
+import java.util.Objects;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * A read-only view of the keys and fixed-width summaries of a sketch held in Memory, either in a
+ * hash table with the keys and the summaries in separate regions, or in a compact image with each
+ * key followed by its summary. Empty slots hold a zero key.
+ * This is the common input of {@link DirectUnion} and {@link DirectIntersection}.
+ */
+final class FixedWidthImage {
+  // current (serial version 3) compact sketch format
+  static final byte COMPACT_SERIAL_VERSION = 3;
+  static final short DEFAULT_SEED_HASH = (short) 37836;
+  static final int COMPACT_FLAGS_BYTE = 5;
+  static final int COMPACT_SEED_HASH_SHORT = 6;
+  static final int COMPACT_COUNT_INT = 8;
+  static final int COMPACT_THETA_LONG = 16;
+  static final int IS_READ_ONLY_FLAG = 1 << 1;
+  static final int IS_EMPTY_FLAG = 1 << 2;
+  static final int IS_COMPACT_FLAG = 1 << 3;
+
+  private final Memory mem_;
+  private final long keysOffset_;
+  private final long keyStride_;
+  private final long summariesOffset_;
+  private final long summaryStride_;
+  private final int slots_;
+  private final long thetaLong_;
+  private final boolean empty_;
+  private final int retainedEntries_;
+
+  FixedWidthImage(final Memory mem, final long keysOffset, final long keyStride,
+      final long summariesOffset, final long summaryStride, final int slots, final long thetaLong,
+      final boolean empty, final int retainedEntries) {
+    mem_ = mem;
+    keysOffset_ = keysOffset;
+    keyStride_ = keyStride;
+    summariesOffset_ = summariesOffset;
+    summaryStride_ = summaryStride;
+    slots_ = slots;
+    thetaLong_ = thetaLong;
+    empty_ = empty;
+    retainedEntries_ = retainedEntries;
+  }
+
+  /**
+   * Wraps a compact (serial version 3) image or a {@link DirectUpdatableSketch} image.
+   * @param mem the image
+   * @param summarySizeBytes the expected size of each summary in bytes
+   * @return a view of the image
+   */
+  static FixedWidthImage wrap(final Memory mem, final int summarySizeBytes) {
+    Objects.requireNonNull(mem, "SourceMemory must not be null.");
+    checkBounds(0, Long.BYTES, mem.getCapacity());
+    final byte preambleLongs = mem.getByte(0);
+    final byte version = mem.getByte(1);
+    SerializerDeserializer.validateFamily(mem.getByte(2), preambleLongs);
+    final SerializerDeserializer.SketchType type = SerializerDeserializer.getSketchType(mem);
+    if (type == SerializerDeserializer.SketchType.FixedWidthQuickSelectSketch) {
+      return DirectUpdatableSketch.image(mem, summarySizeBytes);
+    }
+    if (type != SerializerDeserializer.SketchType.CompactSketch || version != COMPACT_SERIAL_VERSION) {
+      throw new SketchesArgumentException("Unsupported image: " + type + " serial version " + version
+          + ". Heapify it and pass the Sketch instead.");
+    }
+    final boolean empty = (mem.getByte(COMPACT_FLAGS_BYTE) & IS_EMPTY_FLAG) != 0;
+    long thetaLong = Long.MAX_VALUE;
+    int count = 0;
+    if (!empty) {
+      if (preambleLongs == 1) {
+        count = 1;
+      } else {
+        checkBounds(0, Long.BYTES * (long) preambleLongs, mem.getCapacity());
+        count = mem.getInt(COMPACT_COUNT_INT);
+        if (preambleLongs > 2) {
+          thetaLong = mem.getLong(COMPACT_THETA_LONG);
+        }
+      }
+    }
+    final long offset = Long.BYTES * (long) preambleLongs;
+    final long entrySizeBytes = Long.BYTES + (long) summarySizeBytes;
+    checkBounds(offset, entrySizeBytes * count, mem.getCapacity());
+    return new FixedWidthImage(mem, offset, entrySizeBytes, offset + Long.BYTES, entrySizeBytes,
+        count, thetaLong, empty, count);
+  }
+
+  /**
+   * Serializes a generic sketch and wraps the result. The summaries must serialize to
+   * exactly the given number of bytes.
+   * @param sketch the generic sketch
+   * @param summarySizeBytes the expected size of each summary in bytes
+   * @return a view of the serialized sketch
+   */
+  static FixedWidthImage wrap(final Sketch<?> sketch, final int summarySizeBytes) {
+    Objects.requireNonNull(sketch, "Sketch must not be null.");
+    final TupleSketchIterator<?> it = sketch.iterator();
+    if (it.next() && it.getSummary().toByteArray().length != summarySizeBytes) {
+      throw new SketchesArgumentException("Summary size mismatch. Expected " + summarySizeBytes
+          + " bytes, got " + it.getSummary().toByteArray().length);
+    }
+    return wrap(Memory.wrap(sketch.compact().toByteArray()), summarySizeBytes);
+  }
+
+  int getSlots() {
+    return slots_;
+  }
+
+  long getKey(final int slot) {
+    return mem_.getLong(keysOffset_ + (keyStride_ * slot));
+  }
+
+  long getSummaryOffset(final int slot) {
+    return summariesOffset_ + (summaryStride_ * slot);
+  }
+
+  Memory getMemory() {
+    return mem_;
+  }
+
+  long getThetaLong() {
+    return thetaLong_;
+  }
+
+  boolean isEmpty() {
+    return empty_;
+  }
+
+  int getRetainedEntries() {
+    return retainedEntries_;
+  }
+
+  /**
+   * Computes the size of a compact (serial version 3) image.
+   * @param count the number of entries
+   * @param thetaLong the theta of the image
+   * @param empty the empty state of the image
+   * @param summarySizeBytes the size of each summary in bytes
+   * @return the size in bytes
+   */
+  static long getCompactSizeBytes(final int count, final long thetaLong, final boolean empty,
+      final int summarySizeBytes) {
+    return Long.BYTES * (long) getCompactPreambleLongs(count, thetaLong, empty)
+        + (Long.BYTES + (long) summarySizeBytes) * count;
+  }
+
+  /**
+   * Writes a compact (serial version 3) image of the entries of this view with keys less than
+   * the given limit, in the same format as {@link CompactSketch#toByteArray()}.
+   * @param dstMem the destination, at least {@link #getCompactSizeBytes} long
+   * @param count the number of entries below the limit
+   * @param thetaLong the theta of the image
+   * @param empty the empty state of the image
+   * @param thetaLimit entries with this key or higher are left out
+   * @param summarySizeBytes the size of each summary in bytes
+   */
+  void writeCompact(final WritableMemory dstMem, final int count, final long thetaLong,
+      final boolean empty, final long thetaLimit, final int summarySizeBytes) {
+    final int preambleLongs = getCompactPreambleLongs(count, thetaLong, empty);
+    final long entrySizeBytes = Long.BYTES + (long) summarySizeBytes;
+    checkBounds(0, getCompactSizeBytes(count, thetaLong, empty, summarySizeBytes), dstMem.getCapacity());
+    dstMem.clear(0, Long.BYTES * (long) preambleLongs);
+    dstMem.putByte(0, (byte) preambleLongs);
+    dstMem.putByte(1, COMPACT_SERIAL_VERSION);
+    dstMem.putByte(2, (byte) Family.TUPLE.getID());
+    dstMem.putByte(3, (byte) SerializerDeserializer.SketchType.CompactSketch.ordinal());
+    dstMem.putByte(COMPACT_FLAGS_BYTE,
+        (byte) (IS_COMPACT_FLAG | IS_READ_ONLY_FLAG | (empty ? IS_EMPTY_FLAG : 0)));
+    dstMem.putShort(COMPACT_SEED_HASH_SHORT, DEFAULT_SEED_HASH);
+    if (preambleLongs > 1) {
+      dstMem.putInt(COMPACT_COUNT_INT, count);
+      if (preambleLongs > 2) {
+        dstMem.putLong(COMPACT_THETA_LONG, thetaLong);
+      }
+    }
+    long offset = Long.BYTES * (long) preambleLongs;
+    int written = 0;
+    for (int i = 0; i < slots_; i++) {
+      final long key = getKey(i);
+      if (key == 0 || key >= thetaLimit) { continue; }
+      dstMem.putLong(offset, key);
+      mem_.copyTo(getSummaryOffset(i), dstMem, offset + Long.BYTES, summarySizeBytes);
+      offset += entrySizeBytes;
+      written++;
+    }
+    assert written == count;
+  }
+
+  private static int getCompactPreambleLongs(final int count, final long thetaLong, final boolean empty) {
+    final boolean isEstimationMode = thetaLong < Long.MAX_VALUE && !empty;
+    final boolean isSingleItem = count == 1 && !isEstimationMode;
+    return empty || isSingleItem ? 1 : isEstimationMode ? 3 : 2;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+/**
+ * Describes a fixed-width Summary that lives in Memory rather than on the heap, so that
+ * {@link DirectUpdatableSketch}, {@link DirectUnion} and {@link DirectIntersection} can keep
+ * their summaries in a caller-owned, possibly off-heap, WritableMemory.
+ *
+ * <p>Every summary occupies exactly {@link #getSizeBytes()} bytes. If those bytes are the same as
+ * what {@link Summary#toByteArray()} produces for the equivalent heap summary, the compact images
+ * written by the direct sketches can be heapified with the usual {@link SummaryDeserializer}, and
+ * serialized generic compact sketches can be fed to the direct set operations.</p>
+ *
+ * @param <U> type of the value used to update a summary
+ */
+public interface SummaryLayout<U> {
+
+  /**
+   * Returns the number of bytes occupied by each summary
+   * @return the size of a summary in bytes
+   */
+  int getSizeBytes();
+
+  /**
+   * Writes a new summary, the equivalent of {@link SummaryFactory#newSummary()}.
+   * @param mem the memory holding the summary
+   * @param offset the offset of the summary in bytes
+   */
+  void initialize(WritableMemory mem, long offset);
+
+  /**
+   * Updates the summary in place, the equivalent of {@link UpdatableSummary#update(Object)}.
+   * @param mem the memory holding the summary
+   * @param offset the offset of the summary in bytes
+   * @param value the update value
+   */
+  void update(WritableMemory mem, long offset, U value);
+
+  /**
+   * Combines another summary into this one in place when a union finds the same key in both,
+   * the equivalent of {@link SummarySetOperations#union(Summary, Summary)}.
+   * @param mem the memory holding the retained summary, which receives the result
+   * @param offset the offset of the retained summary in bytes
+   * @param src the memory holding the incoming summary
+   * @param srcOffset the offset of the incoming summary in bytes
+   */
+  void union(WritableMemory mem, long offset, Memory src, long srcOffset);
+
+  /**
+   * Combines another summary into this one in place when an intersection finds the same key in
+   * both, the equivalent of {@link SummarySetOperations#intersection(Summary, Summary)}.
+   * @param mem the memory holding the retained summary, which receives the result
+   * @param offset the offset of the retained summary in bytes
+   * @param src the memory holding the incoming summary
+   * @param srcOffset the offset of the incoming summary in bytes
+   */
+  void intersection(WritableMemory mem, long offset, Memory src, long srcOffset);
+}
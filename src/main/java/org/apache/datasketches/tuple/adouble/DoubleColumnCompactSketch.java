@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.adouble;
+
+import static org.apache.datasketches.common.Util.checkBounds;
+
+import java.util.Objects;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.tuple.SerializerDeserializer;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.Sketches;
+import org.apache.datasketches.tuple.TupleSketchIterator;
+import org.apache.datasketches.tuple.adouble.DoubleSummary.Mode;
+
+/**
+ * A read-only DoubleColumnSketch holding a compact list of hashes and the corresponding values.
+ * It is created by compacting a {@link DoubleColumnUpdatableSketch}, as the result of a
+ * {@link DoubleColumnUnion} or {@link DoubleColumnIntersection}, by heapifying a serialized tuple
+ * sketch, or by converting a generic tuple sketch with {@link #fromSketch(Sketch, Mode)}.
+ */
+public final class DoubleColumnCompactSketch extends DoubleColumnSketch {
+  private final long[] hashArr_;
+  private final double[] valueArr_;
+
+  DoubleColumnCompactSketch(final long[] hashArr, final double[] valueArr, final long thetaLong,
+      final boolean empty, final Mode mode) {
+    super(mode, thetaLong, empty);
+    hashArr_ = hashArr;
+    valueArr_ = valueArr;
+  }
+
+  /**
+   * Heapify the given Memory image of a tuple sketch with DoubleSummary values.
+   * Both compact and (deprecated) updatable images of any serial version are accepted.
+   * The mode of the result is taken from the first serialized summary, or is Sum if there are
+   * no entries.
+   * @param mem the given Memory
+   * @return a DoubleColumnCompactSketch
+   */
+  public static DoubleColumnCompactSketch heapify(final Memory mem) {
+    Objects.requireNonNull(mem, "SourceMemory must not be null.");
+    checkBounds(0, 8, mem.getCapacity());
+    final byte preambleLongs = mem.getByte(0);
+    final byte version = mem.getByte(1);
+    SerializerDeserializer.validateFamily(mem.getByte(2), preambleLongs);
+    if ((version != SERIAL_VERSION)
+        || (SerializerDeserializer.getSketchType(mem) != SerializerDeserializer.SketchType.CompactSketch)) {
+      // older or updatable images are rare, let the generic code handle them
+      final Sketch<DoubleSummary> sketch = Sketches.heapifySketch(mem, new DoubleSummaryDeserializer());
+      return fromSketch(sketch, modeOf(sketch));
+    }
+
+    final boolean empty = (mem.getByte(FLAGS_BYTE) & IS_EMPTY_FLAG) != 0;
+    long thetaLong = Long.MAX_VALUE;
+    int count = 0;
+    if (!empty) {
+      if (preambleLongs == 1) {
+        count = 1;
+      } else {
+        checkBounds(0, Long.BYTES * (long) preambleLongs, mem.getCapacity());
+        count = mem.getInt(COUNT_INT);
+        if (preambleLongs > 2) {
+          thetaLong = mem.getLong(THETA_LONG);
+        }
+      }
+    }
+    final long offset = Long.BYTES * (long) preambleLongs;
+    checkBounds(offset, ENTRY_SIZE_BYTES * (long) count, mem.getCapacity());
+    final long[] hashArr = new long[count];
+    final double[] valueArr = new double[count];
+    for (int i = 0; i < count; i++) {
+      final long entryOffset = offset + (ENTRY_SIZE_BYTES * (long) i);
+      hashArr[i] = mem.getLong(entryOffset);
+      valueArr[i] = mem.getDouble(entryOffset + Long.BYTES);
+    }
+    final Mode mode = count > 0
+        ? Mode.values()[mem.getByte(offset + Long.BYTES + Double.BYTES)] : Mode.Sum;
+    return new DoubleColumnCompactSketch(hashArr, valueArr, thetaLong, empty, mode);
+  }
+
+  /**
+   * Converts a generic tuple sketch with DoubleSummary values.
+   * @param sketch the given tuple sketch
+   * @param mode the mode to record for the values of the result
+   * @return a DoubleColumnCompactSketch with the same hashes, values and theta
+   */
+  public static DoubleColumnCompactSketch fromSketch(final Sketch<DoubleSummary> sketch,
+      final Mode mode) {
+    final int count = sketch.getRetainedEntries();
+    final long[] hashArr = new long[count];
+    final double[] valueArr = new double[count];
+    final TupleSketchIterator<DoubleSummary> it = sketch.iterator();
+    int i = 0;
+    while (it.next()) {
+      hashArr[i] = it.getHash();
+      valueArr[i] = it.getSummary().getValue();
+      i++;
+    }
+    return new DoubleColumnCompactSketch(hashArr, valueArr, sketch.getThetaLong(),
+        sketch.isEmpty(), mode);
+  }
+
+  @Override
+  public int getRetainedEntries() {
+    return hashArr_.length;
+  }
+
+  @Override
+  public DoubleColumnSketchIterator iterator() {
+    return new DoubleColumnSketchIterator(hashArr_, valueArr_);
+  }
+
+  @Override
+  public DoubleColumnCompactSketch compact() {
+    return this;
+  }
+
+  long[] getHashArr() {
+    return hashArr_;
+  }
+
+  double[] getValueArr() {
+    return valueArr_;
+  }
+
+  private static Mode modeOf(final Sketch<DoubleSummary> sketch) {
+    final TupleSketchIterator<DoubleSummary> it = sketch.iterator();
+    return it.next() ? Mode.values()[it.getSummary().toByteArray()[Double.BYTES]] : Mode.Sum;
+  }
+}
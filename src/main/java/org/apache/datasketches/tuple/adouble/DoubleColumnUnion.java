@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.adouble;
+
+import static java.lang.Math.min;
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.thetacommon.QuickSelect;
+import org.apache.datasketches.thetacommon.ThetaUtil;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.TupleSketchIterator;
+import org.apache.datasketches.tuple.adouble.DoubleSummary.Mode;
+
+/**
+ * Compute the union of two or more tuple sketches with double values.
+ * This is the equivalent of a {@link org.apache.datasketches.tuple.Union Union}&lt;DoubleSummary&gt;
+ * with {@link DoubleSummarySetOperations}, except that values of matching hashes are combined
+ * directly in a <i>double[]</i> instead of through new summary objects.
+ * A new instance represents an empty set.
+ * Every update() computes a union with the internal state, which is initially empty.
+ */
+public class DoubleColumnUnion {
+  private final Mode mode_;
+  private final DoubleColumnUpdatableSketch qsk_;
+  private long unionThetaLong_; // need to maintain outside of the sketch
+  private boolean empty_;
+
+  /**
+   * Creates new Union instance with instructions on how to process two values of the same hash.
+   * @param mode the DoubleSummary mode used to combine values of the same hash
+   */
+  public DoubleColumnUnion(final Mode mode) {
+    this(ThetaUtil.DEFAULT_NOMINAL_ENTRIES, mode);
+  }
+
+  /**
+   * Creates new Union instance.
+   * @param nomEntries nominal entries (K). Forced to the nearest power of 2 greater than
+   * given value.
+   * @param mode the DoubleSummary mode used to combine values of the same hash
+   */
+  public DoubleColumnUnion(final int nomEntries, final Mode mode) {
+    mode_ = mode;
+    qsk_ = new DoubleColumnUpdatableSketch(Integer.numberOfTrailingZeros(ceilingPowerOf2(nomEntries)),
+        ResizeFactor.X8.lg(), 1f, mode);
+    unionThetaLong_ = qsk_.getThetaLong();
+    empty_ = true;
+  }
+
+  /**
+   * Performs a stateful union of the internal set with the given sketch.
+   * @param sketch input sketch to add to the internal set.
+   * If the sketch is null or empty it is ignored.
+   */
+  public void union(final DoubleColumnSketch sketch) {
+    if (sketch == null || sketch.isEmpty()) { return; }
+    empty_ = false;
+    unionThetaLong_ = min(sketch.thetaLong_, unionThetaLong_);
+    final DoubleColumnSketchIterator it = sketch.iterator();
+    while (it.next()) {
+      qsk_.merge(it.getHash(), it.getValue(), mode_);
+    }
+    unionThetaLong_ = min(unionThetaLong_, qsk_.thetaLong_);
+  }
+
+  /**
+   * Performs a stateful union of the internal set with the given generic tuple sketch, reading
+   * the values out of its summaries.
+   * @param sketch input sketch to add to the internal set.
+   * If the sketch is null or empty it is ignored.
+   */
+  public void union(final Sketch<DoubleSummary> sketch) {
+    if (sketch == null || sketch.isEmpty()) { return; }
+    empty_ = false;
+    unionThetaLong_ = min(sketch.getThetaLong(), unionThetaLong_);
+    final TupleSketchIterator<DoubleSummary> it = sketch.iterator();
+    while (it.next()) {
+      qsk_.merge(it.getHash(), it.getSummary().getValue(), mode_);
+    }
+    unionThetaLong_ = min(unionThetaLong_, qsk_.thetaLong_);
+  }
+
+  /**
+   * Performs a stateful union of the internal set with the given serialized tuple sketch with
+   * DoubleSummary values, without materializing any summary objects for the usual compact images.
+   * @param mem the Memory image of the sketch to add to the internal set.
+   */
+  public void union(final Memory mem) {
+    union(DoubleColumnCompactSketch.heapify(mem));
+  }
+
+  /**
+   * Gets the result of a sequence of stateful <i>union</i> operations as an unordered
+   * DoubleColumnCompactSketch
+   * @return result of the stateful unions so far. The state of this operation is not reset after
+   * getting the result.
+   */
+  public DoubleColumnCompactSketch getResult() {
+    return getResult(false);
+  }
+
+  /**
+   * Gets the result of a sequence of stateful <i>union</i> operations as an unordered
+   * DoubleColumnCompactSketch.
+   * @param reset If <i>true</i>, clears this operator to the empty state after this result is
+   * returned. Set this to <i>false</i> if you wish to obtain an intermediate result.
+   * @return result of the stateful union
+   */
+  public DoubleColumnCompactSketch getResult(final boolean reset) {
+    final DoubleColumnCompactSketch result;
+    if (empty_) {
+      result = qsk_.compact();
+    } else if (unionThetaLong_ >= qsk_.thetaLong_
+        && qsk_.getRetainedEntries() <= qsk_.getNominalEntries()) {
+      result = qsk_.compact();
+    } else {
+      final long tmpThetaLong = min(unionThetaLong_, qsk_.thetaLong_);
+      final long[] hashTable = qsk_.getHashTable();
+      final double[] valueTable = qsk_.getValueTable();
+
+      //count the number of valid hashes in because Alpha can have dirty values
+      int numHashesIn = 0;
+      for (int j = 0; j < hashTable.length; j++) {
+        if (hashTable[j] > 0 && hashTable[j] < tmpThetaLong) { numHashesIn++; }
+      }
+
+      if (numHashesIn == 0) {
+        //degenerate sketch: theta < 1.0, count = 0, empty = false
+        result = new DoubleColumnCompactSketch(new long[0], new double[0], tmpThetaLong, empty_, mode_);
+      } else {
+        final int numHashesOut;
+        final long thetaLongOut;
+        if (numHashesIn > qsk_.getNominalEntries()) {
+          //we need to trim hashes and need a new thetaLong
+          final long[] tmpHashArr = new long[numHashesIn];
+          int i = 0;
+          for (int j = 0; j < hashTable.length; j++) {
+            if (hashTable[j] > 0 && hashTable[j] < tmpThetaLong) { tmpHashArr[i++] = hashTable[j]; }
+          }
+          numHashesOut = qsk_.getNominalEntries();
+          thetaLongOut = QuickSelect.select(tmpHashArr, 0, numHashesIn - 1, numHashesOut);
+        } else {
+          numHashesOut = numHashesIn;
+          thetaLongOut = tmpThetaLong;
+        }
+        final long[] hashArr = new long[numHashesOut];
+        final double[] valueArr = new double[numHashesOut];
+        int i = 0;
+        for (int j = 0; j < hashTable.length; j++) {
+          if (hashTable[j] > 0 && hashTable[j] < thetaLongOut) {
+            hashArr[i] = hashTable[j];
+            valueArr[i] = valueTable[j];
+            i++;
+          }
+        }
+        result = new DoubleColumnCompactSketch(hashArr, valueArr, thetaLongOut, empty_, mode_);
+      }
+    }
+    if (reset) { reset(); }
+    return result;
+  }
+
+  /**
+   * Resets the internal set to the initial state, which represents an empty set.
+   */
+  public void reset() {
+    qsk_.reset();
+    unionThetaLong_ = qsk_.getThetaLong();
+    empty_ = true;
+  }
+}
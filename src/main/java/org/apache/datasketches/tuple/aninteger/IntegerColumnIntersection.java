@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.aninteger;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesStateException;
+import org.apache.datasketches.thetacommon.HashOperations;
+import org.apache.datasketches.thetacommon.ThetaUtil;
+import org.apache.datasketches.tuple.aninteger.IntegerSummary.Mode;
+
+/**
+ * Computes an intersection of two or more tuple sketches with int values.
+ * This is the equivalent of an
+ * {@link org.apache.datasketches.tuple.Intersection Intersection}&lt;IntegerSummary&gt;
+ * with {@link IntegerSummarySetOperations}, except that values of matching hashes are combined
+ * directly in an <i>int[]</i> instead of through new summary objects.
+ * A new instance represents the Universal Set. Because the Universal Set
+ * cannot be realized a <i>getResult()</i> on a new instance will produce an error.
+ * Every update() computes an intersection with the internal state, which will never
+ * grow larger and may be reduced to zero.
+ */
+public class IntegerColumnIntersection {
+  private final Mode mode_;
+  private boolean empty_;
+  private long thetaLong_;
+  private long[] hashTable_;
+  private int[] valueTable_;
+  private int lgTableSize_;
+  private int numKeys_;
+  private boolean firstCall_;
+
+  /**
+   * Creates new Intersection instance with instructions on how to process two values of the
+   * same hash.
+   * @param mode the IntegerSummary mode used to combine values of the same hash
+   */
+  public IntegerColumnIntersection(final Mode mode) {
+    mode_ = mode;
+    reset();
+  }
+
+  /**
+   * Performs a stateful intersection of the internal set with the given sketch.
+   * @param sketch input sketch to intersect with the internal state.
+   */
+  public void intersect(final IntegerColumnSketch sketch) {
+    if (sketch == null) { throw new SketchesArgumentException("Sketch must not be null"); }
+
+    final boolean firstCall = firstCall_;
+    firstCall_ = false;
+
+    if (empty_ || sketch.isEmpty()) { //empty rule
+      //Whatever the current internal state, we make our local empty.
+      resetToEmpty();
+      return;
+    }
+
+    thetaLong_ = min(thetaLong_, sketch.getThetaLong()); //Theta rule
+
+    if (sketch.getRetainedEntries() == 0) {
+      clear();
+      return;
+    }
+
+    if (firstCall) {
+      //Copy the first sketch into the local hash table
+      final int count = sketch.getRetainedEntries();
+      lgTableSize_ = getLgTableSize(count);
+      hashTable_ = new long[1 << lgTableSize_];
+      valueTable_ = new int[1 << lgTableSize_];
+      numKeys_ = 0;
+      final IntegerColumnSketchIterator it = sketch.iterator();
+      while (it.next()) {
+        final long hash = it.getHash();
+        if (hash < thetaLong_) {
+          final int index = HashOperations.hashInsertOnly(hashTable_, lgTableSize_, hash);
+          valueTable_[index] = it.getValue();
+          numKeys_++;
+        }
+      }
+    } else {
+      if (numKeys_ == 0) { return; }
+      //intersect the incoming sketch with the current hash table
+      final int maxMatchSize = min(numKeys_, sketch.getRetainedEntries());
+      final long[] matchHashes = new long[maxMatchSize];
+      final int[] matchValues = new int[maxMatchSize];
+      int matchCount = 0;
+      final IntegerColumnSketchIterator it = sketch.iterator();
+      while (it.next()) {
+        final long hash = it.getHash();
+        if (hash >= thetaLong_) { continue; }
+        final int index = HashOperations.hashSearch(hashTable_, lgTableSize_, hash);
+        if (index < 0) { continue; }
+        matchHashes[matchCount] = hash;
+        matchValues[matchCount] =
+            IntegerColumnSketch.combine(mode_, valueTable_[index], it.getValue());
+        matchCount++;
+      }
+      lgTableSize_ = getLgTableSize(matchCount);
+      hashTable_ = new long[1 << lgTableSize_];
+      valueTable_ = new int[1 << lgTableSize_];
+      for (int i = 0; i < matchCount; i++) {
+        final int index = HashOperations.hashInsertOnly(hashTable_, lgTableSize_, matchHashes[i]);
+        valueTable_[index] = matchValues[i];
+      }
+      numKeys_ = matchCount;
+    }
+  }
+
+  /**
+   * Gets the internal set as an unordered IntegerColumnCompactSketch
+   * @return result of the intersections so far
+   */
+  public IntegerColumnCompactSketch getResult() {
+    if (firstCall_) {
+      throw new SketchesStateException(
+        "getResult() with no intervening intersections is not a legal result.");
+    }
+    final long[] hashArr = new long[numKeys_];
+    final int[] valueArr = new int[numKeys_];
+    int cnt = 0;
+    if (numKeys_ > 0) {
+      for (int i = 0; i < hashTable_.length; i++) {
+        final long hash = hashTable_[i];
+        if (hash == 0 || hash > thetaLong_) { continue; }
+        hashArr[cnt] = hash;
+        valueArr[cnt] = valueTable_[i];
+        cnt++;
+      }
+    }
+    assert cnt == numKeys_;
+    return new IntegerColumnCompactSketch(hashArr, valueArr, thetaLong_, empty_, mode_);
+  }
+
+  /**
+   * Returns true if there is a valid intersection result available
+   * @return true if there is a valid intersection result available
+   */
+  public boolean hasResult() {
+    return !firstCall_;
+  }
+
+  /**
+   * Resets the internal set to the initial state, which represents the Universal Set
+   */
+  public void reset() {
+    empty_ = false;
+    thetaLong_ = Long.MAX_VALUE;
+    clear();
+    firstCall_ = true;
+  }
+
+  private void resetToEmpty() {
+    empty_ = true;
+    thetaLong_ = Long.MAX_VALUE;
+    clear();
+    firstCall_ = false;
+  }
+
+  private void clear() {
+    hashTable_ = null;
+    valueTable_ = null;
+    lgTableSize_ = 0;
+    numKeys_ = 0;
+  }
+
+  private static int getLgTableSize(final int count) {
+    final int tableSize = max(ceilingPowerOf2((int) ceil(count / 0.75)), 1 << ThetaUtil.MIN_LG_NOM_LONGS);
+    return Integer.numberOfTrailingZeros(tableSize);
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.aninteger;
+
+import static org.apache.datasketches.common.Util.LS;
+
+import org.apache.datasketches.common.ByteArrayUtil;
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.thetacommon.BinomialBoundsN;
+import org.apache.datasketches.tuple.SerializerDeserializer;
+import org.apache.datasketches.tuple.aninteger.IntegerSummary.Mode;
+
+/**
+ * The top level for tuple sketches with a single int value per key, where the values are held
+ * in a primitive <i>int[]</i> column parallel to the hash array instead of one
+ * {@link IntegerSummary} object per retained key.
+ *
+ * <p>These sketches serialize to, and heapify from, the same binary format as a
+ * {@link org.apache.datasketches.tuple.CompactSketch CompactSketch}&lt;IntegerSummary&gt;, so
+ * images can be freely exchanged with the generic tuple sketch and with other languages.</p>
+ */
+public abstract class IntegerColumnSketch {
+
+  // Compact serialization constants, see org.apache.datasketches.tuple.CompactSketch
+  static final byte SERIAL_VERSION = 3;
+  static final short DEFAULT_SEED_HASH = (short) 37836;
+  static final int FLAGS_BYTE = 5;
+  static final int COUNT_INT = 8;
+  static final int THETA_LONG = 16;
+  static final int IS_READ_ONLY_FLAG = 1 << 1;
+  static final int IS_EMPTY_FLAG = 1 << 2;
+  static final int IS_COMPACT_FLAG = 1 << 3;
+
+  // Serialized IntegerSummary: value followed by mode byte
+  static final int SUMMARY_SIZE_BYTES = Integer.BYTES + 1;
+  static final int ENTRY_SIZE_BYTES = Long.BYTES + SUMMARY_SIZE_BYTES;
+
+  final Mode mode_;
+  long thetaLong_;
+  boolean empty_;
+
+  IntegerColumnSketch(final Mode mode, final long thetaLong, final boolean empty) {
+    mode_ = mode;
+    thetaLong_ = thetaLong;
+    empty_ = empty;
+  }
+
+  /**
+   * Heapify the given Memory image of a tuple sketch with IntegerSummary values as a compact sketch.
+   * Both compact and (deprecated) updatable images of any serial version are accepted.
+   * @param mem the given Memory
+   * @return a IntegerColumnCompactSketch
+   */
+  public static IntegerColumnCompactSketch heapify(final Memory mem) {
+    return IntegerColumnCompactSketch.heapify(mem);
+  }
+
+  /**
+   * Estimates the cardinality of the set (number of unique values presented to the sketch)
+   * @return best estimate of the number of unique values
+   */
+  public double getEstimate() {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return getRetainedEntries() / getTheta();
+  }
+
+  /**
+   * Gets the approximate upper error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the upper bound.
+   */
+  public double getUpperBound(final int numStdDev) {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return BinomialBoundsN.getUpperBound(getRetainedEntries(), getTheta(), numStdDev, empty_);
+  }
+
+  /**
+   * Gets the approximate lower error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the lower bound.
+   */
+  public double getLowerBound(final int numStdDev) {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return BinomialBoundsN.getLowerBound(getRetainedEntries(), getTheta(), numStdDev, empty_);
+  }
+
+  /**
+   * <a href="{@docRoot}/resources/dictionary.html#empty">See Empty</a>
+   * @return true if empty.
+   */
+  public boolean isEmpty() {
+    return empty_;
+  }
+
+  /**
+   * Returns true if the sketch is Estimation Mode (as opposed to Exact Mode).
+   * This is true if theta &lt; 1.0 AND isEmpty() is false.
+   * @return true if the sketch is in estimation mode.
+   */
+  public boolean isEstimationMode() {
+    return thetaLong_ < Long.MAX_VALUE && !isEmpty();
+  }
+
+  /**
+   * Gets the value of theta as a double between zero and one
+   * @return the value of theta as a double
+   */
+  public double getTheta() {
+    return getThetaLong() / (double) Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns Theta as a long
+   * @return Theta as a long
+   */
+  public long getThetaLong() {
+    return isEmpty() ? Long.MAX_VALUE : thetaLong_;
+  }
+
+  /**
+   * Returns the IntegerSummary mode of the values in this sketch
+   * @return the IntegerSummary mode
+   */
+  public Mode getMode() {
+    return mode_;
+  }
+
+  /**
+   * Returns number of retained entries
+   * @return number of retained entries
+   */
+  public abstract int getRetainedEntries();
+
+  /**
+   * Returns an iterator over the retained hashes and their values
+   * @return an iterator over the retained entries
+   */
+  public abstract IntegerColumnSketchIterator iterator();
+
+  /**
+   * Converts the current state of the sketch into a compact sketch
+   * @return compact sketch
+   */
+  public abstract IntegerColumnCompactSketch compact();
+
+  /**
+   * Serializes this sketch in the compact format of
+   * {@link org.apache.datasketches.tuple.CompactSketch CompactSketch}&lt;IntegerSummary&gt;.
+   * The result can be heapified with
+   * {@link org.apache.datasketches.tuple.Sketches#heapifySketch(Memory,
+   * org.apache.datasketches.tuple.SummaryDeserializer) Sketches.heapifySketch} and a
+   * {@link IntegerSummaryDeserializer}.
+   * @return serialized representation of this sketch as a compact sketch
+   */
+  public byte[] toByteArray() {
+    final int count = getRetainedEntries();
+    final boolean isSingleItem = count == 1 && !isEstimationMode();
+    final int preambleLongs = isEmpty() || isSingleItem ? 1 : isEstimationMode() ? 3 : 2;
+    final byte[] bytes = new byte[(Long.BYTES * preambleLongs) + (ENTRY_SIZE_BYTES * count)];
+    bytes[0] = (byte) preambleLongs;
+    bytes[1] = SERIAL_VERSION;
+    bytes[2] = (byte) Family.TUPLE.getID();
+    bytes[3] = (byte) SerializerDeserializer.SketchType.CompactSketch.ordinal();
+    bytes[FLAGS_BYTE] = (byte) (IS_COMPACT_FLAG | IS_READ_ONLY_FLAG | (isEmpty() ? IS_EMPTY_FLAG : 0));
+    ByteArrayUtil.putShortLE(bytes, 6, DEFAULT_SEED_HASH);
+    if (preambleLongs > 1) {
+      ByteArrayUtil.putIntLE(bytes, COUNT_INT, count);
+      if (preambleLongs > 2) {
+        ByteArrayUtil.putLongLE(bytes, THETA_LONG, thetaLong_);
+      }
+    }
+    final byte modeByte = (byte) mode_.ordinal();
+    int offset = Long.BYTES * preambleLongs;
+    final IntegerColumnSketchIterator it = iterator();
+    while (it.next()) {
+      ByteArrayUtil.putLongLE(bytes, offset, it.getHash());
+      ByteArrayUtil.putIntLE(bytes, offset + Long.BYTES, it.getValue());
+      bytes[offset + Long.BYTES + Integer.BYTES] = modeByte;
+      offset += ENTRY_SIZE_BYTES;
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("### ").append(this.getClass().getSimpleName()).append(" SUMMARY: ").append(LS);
+    sb.append("   Estimate                : ").append(getEstimate()).append(LS);
+    sb.append("   Upper Bound, 95% conf   : ").append(getUpperBound(2)).append(LS);
+    sb.append("   Lower Bound, 95% conf   : ").append(getLowerBound(2)).append(LS);
+    sb.append("   Theta (double)          : ").append(getTheta()).append(LS);
+    sb.append("   Theta (long)            : ").append(getThetaLong()).append(LS);
+    sb.append("   EstMode?                : ").append(isEstimationMode()).append(LS);
+    sb.append("   Empty?                  : ").append(isEmpty()).append(LS);
+    sb.append("   Retained Entries        : ").append(getRetainedEntries()).append(LS);
+    sb.append("   Mode                    : ").append(mode_).append(LS);
+    sb.append("### END SKETCH SUMMARY").append(LS);
+    return sb.toString();
+  }
+
+  /**
+   * Returns the starting value of a new entry for the given mode, matching the initial value of
+   * a new IntegerSummary.
+   * @param mode the IntegerSummary mode
+   * @return the starting value
+   */
+  static int initialValue(final Mode mode) {
+    switch (mode) {
+      case Min: return Integer.MAX_VALUE;
+      case Max: return Integer.MIN_VALUE;
+      case AlwaysOne: return 1;
+      default: return 0;
+    }
+  }
+
+  /**
+   * Combines a retained value with an incoming value the way IntegerSummary.update() does.
+   * Merging two retained values with the same function reproduces IntegerSummarySetOperations.
+   * @param mode the IntegerSummary mode
+   * @param current the retained value
+   * @param value the incoming value
+   * @return the new retained value
+   */
+  static int combine(final Mode mode, final int current, final int value) {
+    switch (mode) {
+      case Sum: return current + value;
+      case Min: return value < current ? value : current;
+      case Max: return value > current ? value : current;
+      default: return 1;
+    }
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.aninteger;
+
+import java.nio.ByteBuffer;
+
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.thetacommon.HashOperations;
+import org.apache.datasketches.thetacommon.QuickSelect;
+import org.apache.datasketches.thetacommon.ThetaUtil;
+import org.apache.datasketches.tuple.Util;
+import org.apache.datasketches.tuple.aninteger.IntegerSummary.Mode;
+
+/**
+ * An updatable tuple sketch with a single int value per key, using the QuickSelect algorithm.
+ * This is the equivalent of {@link IntegerSketch}, but the values are kept in an <i>int[]</i>
+ * parallel to the hash table instead of in IntegerSummary objects.
+ */
+public final class IntegerColumnUpdatableSketch extends IntegerColumnSketch {
+  private final int nomEntries_;
+  private final int lgResizeFactor_;
+  private final float samplingProbability_;
+  private int lgCurrentCapacity_;
+  private int retEntries_;
+  private int rebuildThreshold_;
+  private long[] hashTable_;
+  private int[] valueTable_;
+
+  /**
+   * Constructs this sketch with given <i>lgK</i>.
+   * @param lgK Log_base2 of <i>Nominal Entries</i>.
+   * <a href="{@docRoot}/resources/dictionary.html#nomEntries">See Nominal Entries</a>
+   * @param mode The IntegerSummary mode to be used
+   */
+  public IntegerColumnUpdatableSketch(final int lgK, final Mode mode) {
+    this(lgK, ResizeFactor.X8.ordinal(), 1.0F, mode);
+  }
+
+  /**
+   * Creates this sketch with the following parameters:
+   * @param lgK Log_base2 of <i>Nominal Entries</i>.
+   * @param lgResizeFactor log2(resizeFactor) - value from 0 to 3:
+   * <pre>
+   * 0 - no resizing (max size allocated),
+   * 1 - double internal hash table each time it reaches a threshold
+   * 2 - grow four times
+   * 3 - grow eight times (default)
+   * </pre>
+   * @param samplingProbability
+   * <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability</a>
+   * @param mode The IntegerSummary mode to be used
+   */
+  public IntegerColumnUpdatableSketch(final int lgK, final int lgResizeFactor,
+      final float samplingProbability, final Mode mode) {
+    super(mode, (long) (Long.MAX_VALUE * (double) samplingProbability), true);
+    nomEntries_ = 1 << lgK;
+    lgResizeFactor_ = lgResizeFactor;
+    samplingProbability_ = samplingProbability;
+    final int startingCapacity = Util.getStartingCapacity(nomEntries_, lgResizeFactor_);
+    lgCurrentCapacity_ = Integer.numberOfTrailingZeros(startingCapacity);
+    hashTable_ = new long[startingCapacity];
+    valueTable_ = new int[startingCapacity];
+    rebuildThreshold_ = setRebuildThreshold(hashTable_, nomEntries_);
+  }
+
+  private IntegerColumnUpdatableSketch(final IntegerColumnUpdatableSketch sketch) {
+    super(sketch.mode_, sketch.thetaLong_, sketch.empty_);
+    nomEntries_ = sketch.nomEntries_;
+    lgResizeFactor_ = sketch.lgResizeFactor_;
+    samplingProbability_ = sketch.samplingProbability_;
+    lgCurrentCapacity_ = sketch.lgCurrentCapacity_;
+    retEntries_ = sketch.retEntries_;
+    rebuildThreshold_ = sketch.rebuildThreshold_;
+    hashTable_ = sketch.hashTable_.clone();
+    valueTable_ = sketch.valueTable_.clone();
+  }
+
+  /**
+   * @return a deep copy of this sketch
+   */
+  public IntegerColumnUpdatableSketch copy() {
+    return new IntegerColumnUpdatableSketch(this);
+  }
+
+  /**
+   * Updates this sketch with a long key and int value.
+   * The value will be combined with the value already retained for the key, if any, according
+   * to the mode of this sketch.
+   *
+   * @param key The given long key
+   * @param value The given int value
+   */
+  public void update(final long key, final int value) {
+    update(new long[] {key}, value);
+  }
+
+  /**
+   * Updates this sketch with a double key and int value.
+   *
+   * @param key The given double key
+   * @param value The given int value
+   */
+  public void update(final double key, final int value) {
+    update(Util.doubleToLongArray(key), value);
+  }
+
+  /**
+   * Updates this sketch with a String key and int value.
+   * Note that the empty string is ignored.
+   *
+   * @param key The given String key
+   * @param value The given int value
+   */
+  public void update(final String key, final int value) {
+    update(Util.stringToByteArray(key), value);
+  }
+
+  /**
+   * Updates this sketch with a byte[] key and int value.
+   * The empty array is ignored.
+   *
+   * @param key The given byte[] key
+   * @param value The given int value
+   */
+  public void update(final byte[] key, final int value) {
+    if ((key == null) || (key.length == 0)) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  /**
+   * Updates this sketch with a ByteBuffer and double value.
+   * The empty buffer is ignored.
+   *
+   * @param buffer The given ByteBuffer key
+   * @param value The given int value
+   */
+  public void update(final ByteBuffer buffer, final int value) {
+    if (buffer == null || buffer.hasRemaining() == false) { return; }
+    insertOrIgnore(MurmurHash3.hash(buffer, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  /**
+   * Updates this sketch with an int[] key and int value.
+   * The empty array is ignored.
+   *
+   * @param key The given int[] key
+   * @param value The given int value
+   */
+  public void update(final int[] key, final int value) {
+    if ((key == null) || (key.length == 0)) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  /**
+   * Updates this sketch with a long[] key and int value.
+   * The empty array is ignored.
+   *
+   * @param key The given long[] key
+   * @param value The given int value
+   */
+  public void update(final long[] key, final int value) {
+    if ((key == null) || (key.length == 0)) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, value);
+  }
+
+  @Override
+  public int getRetainedEntries() {
+    return retEntries_;
+  }
+
+  /**
+   * Get configured nominal number of entries
+   * @return nominal number of entries
+   */
+  public int getNominalEntries() {
+    return nomEntries_;
+  }
+
+  /**
+   * Get log_base2 of Nominal Entries
+   * @return log_base2 of Nominal Entries
+   */
+  public int getLgK() {
+    return Integer.numberOfTrailingZeros(nomEntries_);
+  }
+
+  /**
+   * Get configured sampling probability
+   * @return sampling probability
+   */
+  public float getSamplingProbability() {
+    return samplingProbability_;
+  }
+
+  /**
+   * Get current capacity
+   * @return current capacity
+   */
+  public int getCurrentCapacity() {
+    return 1 << lgCurrentCapacity_;
+  }
+
+  /**
+   * Rebuilds reducing the actual number of entries to the nominal number of entries if needed
+   */
+  public void trim() {
+    if (retEntries_ > nomEntries_) {
+      updateTheta();
+      resize(hashTable_.length);
+    }
+  }
+
+  /**
+   * Resets this sketch an empty state.
+   */
+  public void reset() {
+    empty_ = true;
+    retEntries_ = 0;
+    thetaLong_ = (long) (Long.MAX_VALUE * (double) samplingProbability_);
+    final int startingCapacity = Util.getStartingCapacity(nomEntries_, lgResizeFactor_);
+    lgCurrentCapacity_ = Integer.numberOfTrailingZeros(startingCapacity);
+    hashTable_ = new long[startingCapacity];
+    valueTable_ = new int[startingCapacity];
+    rebuildThreshold_ = setRebuildThreshold(hashTable_, nomEntries_);
+  }
+
+  @Override
+  public IntegerColumnCompactSketch compact() {
+    final long[] hashArr = new long[retEntries_];
+    final int[] valueArr = new int[retEntries_];
+    int i = 0;
+    for (int j = 0; j < hashTable_.length; j++) {
+      if (hashTable_[j] != 0) {
+        hashArr[i] = hashTable_[j];
+        valueArr[i] = valueTable_[j];
+        i++;
+      }
+    }
+    return new IntegerColumnCompactSketch(hashArr, valueArr, empty_ ? Long.MAX_VALUE : thetaLong_,
+        empty_, mode_);
+  }
+
+  @Override
+  public IntegerColumnSketchIterator iterator() {
+    return new IntegerColumnSketchIterator(hashTable_, valueTable_);
+  }
+
+  // non-public methods below
+
+  long[] getHashTable() {
+    return hashTable_;
+  }
+
+  int[] getValueTable() {
+    return valueTable_;
+  }
+
+  void setThetaLong(final long thetaLong) {
+    thetaLong_ = thetaLong;
+  }
+
+  void insertOrIgnore(final long hash, final int value) {
+    empty_ = false;
+    if (hash == 0 || hash >= thetaLong_) { return; }
+    final int index = HashOperations.hashSearchOrInsert(hashTable_, lgCurrentCapacity_, hash);
+    if (index < 0) {
+      retEntries_++;
+      valueTable_[~index] = combine(mode_, initialValue(mode_), value);
+      rebuildIfNeeded();
+    } else {
+      valueTable_[index] = combine(mode_, valueTable_[index], value);
+    }
+  }
+
+  // this is a special back door insert for merging, the equivalent of QuickSelectSketch.merge(),
+  // where a new hash keeps the incoming value and a retained one is combined using the given mode
+  void merge(final long hash, final int value, final Mode mode) {
+    empty_ = false;
+    if (hash > 0 && hash < thetaLong_) {
+      final int index = HashOperations.hashSearchOrInsert(hashTable_, lgCurrentCapacity_, hash);
+      if (index < 0) {
+        retEntries_++;
+        valueTable_[~index] = value;
+        rebuildIfNeeded();
+      } else {
+        valueTable_[index] = combine(mode, valueTable_[index], value);
+      }
+    }
+  }
+
+  private void rebuildIfNeeded() {
+    if (retEntries_ <= rebuildThreshold_) {
+      return;
+    }
+    if (hashTable_.length > nomEntries_) {
+      updateTheta();
+      resize(hashTable_.length);
+    } else {
+      resize(hashTable_.length * (1 << lgResizeFactor_));
+    }
+  }
+
+  private void updateTheta() {
+    final long[] hashArr = new long[retEntries_];
+    int i = 0;
+    for (int j = 0; j < hashTable_.length; j++) {
+      if (hashTable_[j] != 0) {
+        hashArr[i++] = hashTable_[j];
+      }
+    }
+    thetaLong_ = QuickSelect.select(hashArr, 0, retEntries_ - 1, nomEntries_);
+  }
+
+  private void resize(final int newSize) {
+    final long[] oldHashTable = hashTable_;
+    final int[] oldValueTable = valueTable_;
+    hashTable_ = new long[newSize];
+    valueTable_ = new int[newSize];
+    lgCurrentCapacity_ = Integer.numberOfTrailingZeros(newSize);
+    retEntries_ = 0;
+    for (int i = 0; i < oldHashTable.length; i++) {
+      if (oldHashTable[i] != 0 && oldHashTable[i] < thetaLong_) {
+        final int index = HashOperations.hashInsertOnly(hashTable_, lgCurrentCapacity_, oldHashTable[i]);
+        valueTable_[index] = oldValueTable[i];
+        retEntries_++;
+      }
+    }
+    rebuildThreshold_ = setRebuildThreshold(hashTable_, nomEntries_);
+  }
+
+  private static int setRebuildThreshold(final long[] hashTable, final int nomEntries) {
+    if (hashTable.length > nomEntries) {
+      return (int) (hashTable.length * ThetaUtil.REBUILD_THRESHOLD);
+    } else {
+      return (int) (hashTable.length * ThetaUtil.RESIZE_THRESHOLD);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.aninteger;
+
+import static org.apache.datasketches.tuple.aninteger.IntegerColumnSketch.combine;
+import static org.apache.datasketches.tuple.aninteger.IntegerColumnSketch.initialValue;
+
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.tuple.SummaryLayout;
+import org.apache.datasketches.tuple.aninteger.IntegerSummary.Mode;
+
+/**
+ * The layout of a IntegerSummary in Memory: the int value followed by the mode byte, the same
+ * as its serialized form, so images written with this layout can be heapified with
+ * {@link IntegerSummaryDeserializer}.
+ * Updates use the given mode, and unions and intersections follow
+ * {@link IntegerSummarySetOperations} with the given modes.
+ */
+public final class IntegerSummaryLayout implements SummaryLayout<Integer> {
+  private static final int VALUE_INDEX = 0;
+  private static final int MODE_BYTE_INDEX = Integer.BYTES;
+
+  private final Mode mode_;
+  private final Mode unionSummaryMode_;
+  private final Mode intersectionSummaryMode_;
+
+  /**
+   * Creates an instance given a IntegerSummary update mode, which is also used for both union
+   * and intersection.
+   * @param mode IntegerSummary update mode.
+   */
+  public IntegerSummaryLayout(final Mode mode) {
+    this(mode, mode, mode);
+  }
+
+  /**
+   * Creates an instance with three modes.
+   * @param mode IntegerSummary update mode
+   * @param unionSummaryMode for unions
+   * @param intersectionSummaryMode for intersections
+   */
+  public IntegerSummaryLayout(final Mode mode, final Mode unionSummaryMode, final Mode intersectionSummaryMode) {
+    mode_ = mode;
+    unionSummaryMode_ = unionSummaryMode;
+    intersectionSummaryMode_ = intersectionSummaryMode;
+  }
+
+  @Override
+  public int getSizeBytes() {
+    return IntegerColumnSketch.SUMMARY_SIZE_BYTES;
+  }
+
+  @Override
+  public void initialize(final WritableMemory mem, final long offset) {
+    mem.putInt(offset + VALUE_INDEX, initialValue(mode_));
+    mem.putByte(offset + MODE_BYTE_INDEX, (byte) mode_.ordinal());
+  }
+
+  @Override
+  public void update(final WritableMemory mem, final long offset, final Integer value) {
+    mem.putInt(offset + VALUE_INDEX, combine(mode_, mem.getInt(offset + VALUE_INDEX), value));
+  }
+
+  @Override
+  public void union(final WritableMemory mem, final long offset, final Memory src, final long srcOffset) {
+    combineInto(unionSummaryMode_, mem, offset, src, srcOffset);
+  }
+
+  @Override
+  public void intersection(final WritableMemory mem, final long offset, final Memory src,
+      final long srcOffset) {
+    combineInto(intersectionSummaryMode_, mem, offset, src, srcOffset);
+  }
+
+  // same as updating a new IntegerSummary of the given mode with both values
+  private static void combineInto(final Mode mode, final WritableMemory mem, final long offset,
+      final Memory src, final long srcOffset) {
+    final int value = combine(mode, initialValue(mode), mem.getInt(offset + VALUE_INDEX));
+    mem.putInt(offset + VALUE_INDEX, combine(mode, value, src.getInt(srcOffset + VALUE_INDEX)));
+    mem.putByte(offset + MODE_BYTE_INDEX, (byte) mode.ordinal());
+  }
+}
@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.tuple.arrayofdoubles;
 
+import java.util.Arrays;
+
 /**
  * Combines two arrays of double values for use with ArrayOfDoubles tuple sketches
  */
@@ -32,4 +34,21 @@ public interface ArrayOfDoublesCombiner {
    */
   public double[] combine(double[] a, double[] b);
 
+  /**
+   * Combines a block of values into another block of values in place. This is used by the
+   * unions on contiguous value storage, where it avoids an array per entry.
+   * The default implementation copies both blocks and calls {@link #combine(double[], double[])}.
+   * @param dst the array holding block A, which receives the result
+   * @param dstOffset the offset of block A in <i>dst</i>
+   * @param src the array holding block B
+   * @param srcOffset the offset of block B in <i>src</i>
+   * @param numValues the number of values in each block
+   */
+  default void combine(final double[] dst, final int dstOffset, final double[] src, final int srcOffset,
+      final int numValues) {
+    final double[] result = combine(Arrays.copyOfRange(dst, dstOffset, dstOffset + numValues),
+        Arrays.copyOfRange(src, srcOffset, srcOffset + numValues));
+    System.arraycopy(result, 0, dst, dstOffset, numValues);
+  }
+
 }
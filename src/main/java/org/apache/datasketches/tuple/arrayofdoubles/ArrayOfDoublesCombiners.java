@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.arrayofdoubles;
+
+/**
+ * Built-in element-wise combiners. These combine blocks of values in place with a simple loop
+ * over contiguous storage, which the JIT can unroll and vectorize.
+ */
+public enum ArrayOfDoublesCombiners implements ArrayOfDoublesCombiner {
+
+  /**
+   * Element-wise sum, the same as the default combination of the union
+   */
+  SUM {
+    @Override
+    public void combine(final double[] dst, final int dstOffset, final double[] src, final int srcOffset,
+        final int numValues) {
+      for (int i = 0; i < numValues; i++) {
+        dst[dstOffset + i] += src[srcOffset + i];
+      }
+    }
+  },
+
+  /**
+   * Element-wise minimum
+   */
+  MIN {
+    @Override
+    public void combine(final double[] dst, final int dstOffset, final double[] src, final int srcOffset,
+        final int numValues) {
+      for (int i = 0; i < numValues; i++) {
+        dst[dstOffset + i] = Math.min(dst[dstOffset + i], src[srcOffset + i]);
+      }
+    }
+  },
+
+  /**
+   * Element-wise maximum
+   */
+  MAX {
+    @Override
+    public void combine(final double[] dst, final int dstOffset, final double[] src, final int srcOffset,
+        final int numValues) {
+      for (int i = 0; i < numValues; i++) {
+        dst[dstOffset + i] = Math.max(dst[dstOffset + i], src[srcOffset + i]);
+      }
+    }
+  };
+
+  @Override
+  public double[] combine(final double[] a, final double[] b) {
+    final double[] result = a.clone();
+    combine(result, 0, b, 0, result.length);
+    return result;
+  }
+
+}
@@ -73,6 +73,10 @@ abstract class ArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesUpdatableSk
 
   abstract void setValues(int index, double[] values);
 
+  abstract void setValues(int index, double[] values, int offset);
+
+  abstract void combineValues(int index, double[] values, int offset, ArrayOfDoublesCombiner combiner);
+
   abstract void incrementCount();
 
   abstract void setThetaLong(long thetaLong);
@@ -136,6 +140,22 @@ abstract class ArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesUpdatableSk
     }
   }
 
+  // the columnar counterpart of merge(long, double[]), reading the values from a block of a larger
+  // array and combining them with the values of a retained key using the given combiner
+  void merge(final long key, final double[] values, final int offset, final ArrayOfDoublesCombiner combiner) {
+    setNotEmpty();
+    if (key < thetaLong_) {
+      final int index = findOrInsertKey(key);
+      if (index < 0) {
+        incrementCount();
+        setValues(~index, values, offset);
+      } else {
+        combineValues(index, values, offset, combiner);
+      }
+      rebuildIfNeeded();
+    }
+  }
+
   void rebuildIfNeeded() {
     if (getRetainedEntries() <= rebuildThreshold_) { return; }
     if (getCurrentCapacity() > getNominalEntries()) {
@@ -21,6 +21,11 @@ package org.apache.datasketches.tuple.arrayofdoubles;
 
 import static java.lang.Math.min;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.datasketches.common.Family;
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
@@ -118,18 +123,30 @@ public abstract class ArrayOfDoublesUnion {
   /**
    * Updates the union by adding a set of entries from a given sketch, which can be on-heap or off-heap.
    * Both the given tupleSketch and the internal state of the Union must have the same <i>numValues</i>.
+   * The values of keys already retained by the union are summed.
    *
    * <p>Nulls and empty sketches are ignored.</p>
    *
    * @param tupleSketch sketch to add to the union
    */
   public void union(final ArrayOfDoublesSketch tupleSketch) {
+    union(tupleSketch, ArrayOfDoublesCombiners.SUM);
+  }
+
+  /**
+   * Updates the union by adding a set of entries from a given sketch, which can be on-heap or off-heap.
+   * Both the given tupleSketch and the internal state of the Union must have the same <i>numValues</i>.
+   * The values of keys already retained by the union are combined with the given combiner, block by
+   * block, so the built-in {@link ArrayOfDoublesCombiners} never allocate an array per entry.
+   *
+   * <p>Nulls and empty sketches are ignored.</p>
+   *
+   * @param tupleSketch sketch to add to the union
+   * @param combiner method of combining the values of the same key
+   */
+  public void union(final ArrayOfDoublesSketch tupleSketch, final ArrayOfDoublesCombiner combiner) {
     if (tupleSketch == null) { return; }
-    Util.checkSeedHashes(gadget_.getSeedHash(), tupleSketch.getSeedHash());
-    if (gadget_.getNumValues() != tupleSketch.getNumValues()) {
-      throw new SketchesArgumentException("Incompatible sketches: number of values mismatch "
-          + gadget_.getNumValues() + " and " + tupleSketch.getNumValues());
-    }
+    checkCompatible(tupleSketch);
 
     if (tupleSketch.isEmpty()) { return; }
     else { gadget_.setNotEmpty(); }
@@ -137,11 +154,127 @@ public abstract class ArrayOfDoublesUnion {
     setUnionThetaLong(min(min(unionThetaLong_, tupleSketch.getThetaLong()), gadget_.getThetaLong()));
 
     if (tupleSketch.getRetainedEntries() == 0) { return; }
-    final ArrayOfDoublesSketchIterator it = tupleSketch.iterator();
-    while (it.next()) {
-      if (it.getKey() < unionThetaLong_) {
-        gadget_.merge(it.getKey(), it.getValues());
+    final long[] keys = tupleSketch.getKeys();
+    final double[] values = tupleSketch.getValuesAsOneDimension();
+    final int numValues = gadget_.getNumValues();
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] < unionThetaLong_) {
+        gadget_.merge(keys[i], values, i * numValues, combiner);
+      }
+    }
+    // keep the union theta as low as possible for performance
+    if (gadget_.getThetaLong() < unionThetaLong_) {
+      setUnionThetaLong(gadget_.getThetaLong());
+    }
+  }
+
+  /**
+   * Updates the union by adding the entries of all the given sketches, summing the values of the
+   * same key. This has the same result as adding the sketches one at a time in iteration order.
+   *
+   * <p>Nulls and empty sketches are ignored.</p>
+   *
+   * @param tupleSketches sketches to add to the union
+   * @see #union(Collection, ArrayOfDoublesCombiner)
+   */
+  public void union(final Collection<? extends ArrayOfDoublesSketch> tupleSketches) {
+    union(tupleSketches, ArrayOfDoublesCombiners.SUM);
+  }
+
+  /**
+   * Updates the union by adding the entries of all the given sketches, combining the values of the
+   * same key with the given combiner. This has the same result as adding the sketches one at a time
+   * in iteration order.
+   *
+   * <p>The entries of each sketch are ordered by key and the ordered runs are merged with a k-way
+   * merge, so each distinct key is looked up in the union only once, and the merge stops as soon as
+   * the remaining keys cannot be part of the result.</p>
+   *
+   * <p>Nulls and empty sketches are ignored.</p>
+   *
+   * @param tupleSketches sketches to add to the union
+   * @param combiner method of combining the values of the same key
+   */
+  public void union(final Collection<? extends ArrayOfDoublesSketch> tupleSketches,
+      final ArrayOfDoublesCombiner combiner) {
+    if (tupleSketches == null) { return; }
+    final List<ArrayOfDoublesSketch> inputs = new ArrayList<>(tupleSketches.size());
+    for (final ArrayOfDoublesSketch tupleSketch : tupleSketches) {
+      if (tupleSketch == null) { continue; }
+      checkCompatible(tupleSketch);
+      if (!tupleSketch.isEmpty()) { inputs.add(tupleSketch); }
+    }
+    if (inputs.isEmpty()) { return; }
+    gadget_.setNotEmpty();
+
+    long thetaLong = min(unionThetaLong_, gadget_.getThetaLong());
+    for (final ArrayOfDoublesSketch tupleSketch : inputs) {
+      thetaLong = min(thetaLong, tupleSketch.getThetaLong());
+    }
+    setUnionThetaLong(thetaLong);
+
+    // order the entries of each input by key
+    final int numRuns = inputs.size();
+    final long[][] runKeys = new long[numRuns][];
+    final int[][] runRows = new int[numRuns][];
+    final double[][] runValues = new double[numRuns][];
+    final int[] runPos = new int[numRuns];
+    final int[] heap = new int[numRuns];
+    int heapSize = 0;
+    for (int r = 0; r < numRuns; r++) {
+      final ArrayOfDoublesSketch tupleSketch = inputs.get(r);
+      if (tupleSketch.getRetainedEntries() == 0) { continue; }
+      runKeys[r] = tupleSketch.getKeys();
+      runValues[r] = tupleSketch.getValuesAsOneDimension();
+      runRows[r] = new int[runKeys[r].length];
+      for (int i = 0; i < runRows[r].length; i++) { runRows[r][i] = i; }
+      sortByKey(runKeys[r], runRows[r], 0, runKeys[r].length - 1);
+      heap[heapSize] = r;
+      siftUp(heap, heapSize++, runKeys, runPos);
+    }
+
+    // k-way merge
+    final int numValues = gadget_.getNumValues();
+    final int maxKeys = gadget_.getNominalEntries();
+    final int[] matches = new int[numRuns];
+    int numKeys = 0;
+    while (heapSize > 0) {
+      final long key = runKeys[heap[0]][runPos[heap[0]]];
+      if (key >= unionThetaLong_ || key >= gadget_.getThetaLong()) { break; }
+      if (numKeys == maxKeys) {
+        // this and all the remaining keys are beyond the nominal entries of the merged inputs
+        setUnionThetaLong(key);
+        break;
+      }
+      int numMatches = 0;
+      while (heapSize > 0 && runKeys[heap[0]][runPos[heap[0]]] == key) {
+        matches[numMatches++] = heap[0];
+        heap[0] = heap[--heapSize];
+        siftDown(heap, heapSize, runKeys, runPos);
+      }
+      // combine in input order, the same as a sequence of single unions
+      Arrays.sort(matches, 0, numMatches);
+      int index = gadget_.findOrInsertKey(key);
+      final boolean isNew = index < 0;
+      if (isNew) {
+        index = ~index;
+        gadget_.incrementCount();
+      }
+      for (int m = 0; m < numMatches; m++) {
+        final int r = matches[m];
+        final int offset = runRows[r][runPos[r]] * numValues;
+        if (isNew && m == 0) {
+          gadget_.setValues(index, runValues[r], offset);
+        } else {
+          gadget_.combineValues(index, runValues[r], offset, combiner);
+        }
+        if (++runPos[r] < runKeys[r].length) {
+          heap[heapSize] = r;
+          siftUp(heap, heapSize++, runKeys, runPos);
+        }
       }
+      gadget_.rebuildIfNeeded();
+      numKeys++;
     }
     // keep the union theta as low as possible for performance
     if (gadget_.getThetaLong() < unionThetaLong_) {
@@ -219,4 +352,83 @@ public abstract class ArrayOfDoublesUnion {
     unionThetaLong_ = thetaLong;
   }
 
+  private void checkCompatible(final ArrayOfDoublesSketch tupleSketch) {
+    Util.checkSeedHashes(gadget_.getSeedHash(), tupleSketch.getSeedHash());
+    if (gadget_.getNumValues() != tupleSketch.getNumValues()) {
+      throw new SketchesArgumentException("Incompatible sketches: number of values mismatch "
+          + gadget_.getNumValues() + " and " + tupleSketch.getNumValues());
+    }
+  }
+
+  // sorts the keys in ascending order, moving the row numbers along with them
+  private static void sortByKey(final long[] keys, final int[] rows, final int lo, final int hi) {
+    if (hi - lo < 16) {
+      for (int i = lo + 1; i <= hi; i++) {
+        final long key = keys[i];
+        final int row = rows[i];
+        int j = i - 1;
+        while (j >= lo && keys[j] > key) {
+          keys[j + 1] = keys[j];
+          rows[j + 1] = rows[j];
+          j--;
+        }
+        keys[j + 1] = key;
+        rows[j + 1] = row;
+      }
+      return;
+    }
+    final long pivot = keys[(lo + hi) >>> 1];
+    int i = lo;
+    int j = hi;
+    while (i <= j) {
+      while (keys[i] < pivot) { i++; }
+      while (keys[j] > pivot) { j--; }
+      if (i <= j) {
+        final long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        final int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+        i++;
+        j--;
+      }
+    }
+    if (lo < j) { sortByKey(keys, rows, lo, j); }
+    if (i < hi) { sortByKey(keys, rows, i, hi); }
+  }
+
+  // min-heap of runs ordered by their current key
+  private static void siftUp(final int[] heap, final int index, final long[][] runKeys, final int[] runPos) {
+    final int run = heap[index];
+    final long key = runKeys[run][runPos[run]];
+    int i = index;
+    while (i > 0) {
+      final int parent = (i - 1) >>> 1;
+      if (runKeys[heap[parent]][runPos[heap[parent]]] <= key) { break; }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = run;
+  }
+
+  private static void siftDown(final int[] heap, final int size, final long[][] runKeys, final int[] runPos) {
+    if (size == 0) { return; }
+    final int run = heap[0];
+    final long key = runKeys[run][runPos[run]];
+    int i = 0;
+    while (true) {
+      int child = (2 * i) + 1;
+      if (child >= size) { break; }
+      if (child + 1 < size
+          && runKeys[heap[child + 1]][runPos[heap[child + 1]]] < runKeys[heap[child]][runPos[heap[child]]]) {
+        child++;
+      }
+      if (runKeys[heap[child]][runPos[heap[child]]] >= key) { break; }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = run;
+  }
+
 }
@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.tuple.arrayofdoubles;
 
+import java.util.concurrent.Executor;
+
 import org.apache.datasketches.common.ResizeFactor;
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.WritableMemory;
@@ -127,4 +129,25 @@ public class ArrayOfDoublesUpdatableSketchBuilder {
         samplingProbability_, numValues_, seed_, dstMem);
   }
 
+  /**
+   * Returns a ConcurrentArrayOfDoublesSketch with the current configuration of this Builder,
+   * the default buffer size and the default background propagation thread.
+   * @return a ConcurrentArrayOfDoublesSketch
+   */
+  public ConcurrentArrayOfDoublesSketch buildConcurrent() {
+    return buildConcurrent(ConcurrentArrayOfDoublesSketch.DEFAULT_BUFFER_SIZE, null);
+  }
+
+  /**
+   * Returns a ConcurrentArrayOfDoublesSketch with the current configuration of this Builder.
+   * @param bufferSize the maximum number of entries of a buffer before it is propagated
+   * @param executor the executor that runs the propagations, or null to use a default background
+   * thread
+   * @return a ConcurrentArrayOfDoublesSketch
+   */
+  public ConcurrentArrayOfDoublesSketch buildConcurrent(final int bufferSize, final Executor executor) {
+    return new ConcurrentArrayOfDoublesSketch(nomEntries_, resizeFactor_.lg(), samplingProbability_,
+        numValues_, seed_, bufferSize, executor);
+  }
+
 }
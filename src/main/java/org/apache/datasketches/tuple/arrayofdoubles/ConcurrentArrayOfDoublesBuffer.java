@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.arrayofdoubles;
+
+import static org.apache.datasketches.common.Util.ceilingPowerOf2;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.tuple.Util;
+
+/**
+ * A bounded buffer through which a single thread updates a {@link ConcurrentArrayOfDoublesSketch}.
+ *
+ * <p>Keys are hashed the same way as by {@link ArrayOfDoublesUpdatableSketch}, hashes that are not
+ * below the last theta seen from the shared sketch are dropped, and the values of the same hash are
+ * summed in the buffer. When the buffer holds the configured number of entries, its rows are handed
+ * to the shared sketch to be propagated asynchronously, and the buffer starts over with the current
+ * theta of the shared sketch. At most one propagation per buffer is in progress at any time, so
+ * a thread that fills its buffer again before the previous propagation is done waits for it.</p>
+ *
+ * <p>This is not thread-safe: every writing thread must use its own buffer, and must call
+ * {@link #flush()} when it is done for its remaining updates to be reflected by the shared sketch.</p>
+ */
+public final class ConcurrentArrayOfDoublesBuffer {
+  private final ConcurrentArrayOfDoublesSketch shared_;
+  private final int numValues_;
+  private final long seed_;
+  private final int maxEntries_;
+  private final int mask_;
+  private final long[] keys_;
+  private final double[] values_;
+  private int count_;
+  private long thetaLong_; // the theta of the shared sketch as of the last propagation
+  private boolean updated_; // whether there were updates since the last propagation
+  private CompletableFuture<Void> propagation_;
+
+  ConcurrentArrayOfDoublesBuffer(final ConcurrentArrayOfDoublesSketch shared, final int maxEntries) {
+    shared_ = shared;
+    numValues_ = shared.getNumValues();
+    seed_ = shared.getSeed();
+    maxEntries_ = maxEntries;
+    final int capacity = ceilingPowerOf2(2 * maxEntries);
+    mask_ = capacity - 1;
+    keys_ = new long[capacity];
+    values_ = new double[capacity * numValues_];
+    thetaLong_ = shared.getVolatileThetaLong();
+  }
+
+  /**
+   * Updates the shared sketch with a long key and double values.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given long key
+   * @param values The given values
+   */
+  public void update(final long key, final double[] values) {
+    update(new long[] {key}, values);
+  }
+
+  /**
+   * Updates the shared sketch with a double key and double values.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given double key
+   * @param values The given values
+   */
+  public void update(final double key, final double[] values) {
+    update(Util.doubleToLongArray(key), values);
+  }
+
+  /**
+   * Updates the shared sketch with a String key and double values.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given String key
+   * @param values The given values
+   */
+  public void update(final String key, final double[] values) {
+    update(Util.stringToByteArray(key), values);
+  }
+
+  /**
+   * Updates the shared sketch with a byte[] key and double values.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given byte[] key
+   * @param values The given values
+   */
+  public void update(final byte[] key, final double[] values) {
+    if (key == null || key.length == 0) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, seed_)[0] >>> 1, values);
+  }
+
+  /**
+   * Updates the shared sketch with a ByteBuffer key and double values.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given ByteBuffer key
+   * @param values The given values
+   */
+  public void update(final ByteBuffer key, final double[] values) {
+    if (key == null || key.hasRemaining() == false) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, seed_)[0] >>> 1, values);
+  }
+
+  /**
+   * Updates the shared sketch with a int[] key and double values.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given int[] key
+   * @param values The given values
+   */
+  public void update(final int[] key, final double[] values) {
+    if (key == null || key.length == 0) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, seed_)[0] >>> 1, values);
+  }
+
+  /**
+   * Updates the shared sketch with a long[] key and double values.
+   * The values will be stored or added to the ones associated with the key
+   *
+   * @param key The given long[] key
+   * @param values The given values
+   */
+  public void update(final long[] key, final double[] values) {
+    if (key == null || key.length == 0) { return; }
+    insertOrIgnore(MurmurHash3.hash(key, seed_)[0] >>> 1, values);
+  }
+
+  /**
+   * Propagates the content of this buffer to the shared sketch and waits until the shared sketch
+   * reflects it.
+   */
+  public void flush() {
+    propagate();
+    awaitPropagation();
+  }
+
+  /**
+   * Returns the number of entries currently held by this buffer
+   * @return the number of entries currently held by this buffer
+   */
+  public int getRetainedEntries() {
+    return count_;
+  }
+
+  /**
+   * Returns the shared sketch this buffer updates
+   * @return the shared sketch
+   */
+  public ConcurrentArrayOfDoublesSketch getSharedSketch() {
+    return shared_;
+  }
+
+  // non-public methods below
+
+  void insertOrIgnore(final long hash, final double[] values) {
+    if (values.length != numValues_) {
+      throw new SketchesArgumentException("input array of values must have " + numValues_
+        + " elements, but has " + values.length);
+    }
+    updated_ = true;
+    if ((hash == 0) || (hash >= thetaLong_)) { return; }
+    int slot = (int) hash & mask_;
+    while (keys_[slot] != 0) {
+      if (keys_[slot] == hash) {
+        ArrayOfDoublesCombiners.SUM.combine(values_, slot * numValues_, values, 0, numValues_);
+        return;
+      }
+      slot = (slot + 1) & mask_;
+    }
+    keys_[slot] = hash;
+    System.arraycopy(values, 0, values_, slot * numValues_, numValues_);
+    if (++count_ == maxEntries_) { propagate(); }
+  }
+
+  private void propagate() {
+    awaitPropagation();
+    if (!updated_) { return; }
+    final long[] keys = new long[count_];
+    final double[] values = new double[count_ * numValues_];
+    int i = 0;
+    for (int slot = 0; slot < keys_.length; slot++) {
+      if (keys_[slot] != 0) {
+        keys[i] = keys_[slot];
+        System.arraycopy(values_, slot * numValues_, values, i * numValues_, numValues_);
+        i++;
+      }
+    }
+    Arrays.fill(keys_, 0L);
+    count_ = 0;
+    updated_ = false;
+    propagation_ = shared_.propagate(keys, values);
+    thetaLong_ = shared_.getVolatileThetaLong();
+  }
+
+  private void awaitPropagation() {
+    if (propagation_ != null) {
+      propagation_.join();
+      propagation_ = null;
+    }
+  }
+}
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.arrayofdoubles;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.thetacommon.BinomialBoundsN;
+
+/**
+ * A tuple sketch with an array of double values per key that can be updated by many threads at
+ * once. It is the concurrent counterpart of {@link ArrayOfDoublesUpdatableSketch}, modeled after the
+ * concurrent theta sketch.
+ *
+ * <p>Each writing thread updates its own {@link ConcurrentArrayOfDoublesBuffer}, obtained from
+ * {@link #newBuffer()}. A buffer hashes the keys, drops the hashes that are not below the theta of
+ * this sketch, and sums the values of the same hash locally. When it is full, its rows are
+ * propagated into this sketch by a task on the executor given at construction, while the writing
+ * thread goes on filling the buffer. Rows of the same key are summed, the same as
+ * {@link ArrayOfDoublesUpdatableSketch#update(long, double[])}.</p>
+ *
+ * <p>Queries can be made from any thread at any time. The estimate and bounds are computed from a
+ * snapshot of the retained entries and theta that is published atomically after each propagation,
+ * so they always reflect a consistent state, which lags behind the updates still held in the
+ * buffers. After every buffer is flushed the result is the same as that of a single
+ * ArrayOfDoublesUpdatableSketch updated with all the data, except for the order of the
+ * floating-point additions.</p>
+ */
+public final class ConcurrentArrayOfDoublesSketch {
+
+  /**
+   * Default maximum number of entries of a buffer
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 256;
+
+  private final HeapArrayOfDoublesQuickSelectSketch gadget_;
+  private final int bufferSize_;
+  private final Executor executor_;
+  private volatile long volatileThetaLong_;
+  private volatile Snapshot snapshot_;
+
+  ConcurrentArrayOfDoublesSketch(final int nomEntries, final int lgResizeFactor,
+      final float samplingProbability, final int numValues, final long seed, final int bufferSize,
+      final Executor executor) {
+    this(checkBufferSize(bufferSize), new HeapArrayOfDoublesQuickSelectSketch(nomEntries, lgResizeFactor,
+        samplingProbability, numValues, seed), executor);
+  }
+
+  private ConcurrentArrayOfDoublesSketch(final int bufferSize,
+      final HeapArrayOfDoublesQuickSelectSketch gadget, final Executor executor) {
+    gadget_ = gadget;
+    bufferSize_ = bufferSize;
+    executor_ = executor != null ? executor : DefaultExecutor.INSTANCE;
+    publish();
+  }
+
+  /**
+   * Creates a new buffer through which a single thread updates this sketch.
+   * A buffer must not be shared between threads, and must be flushed when its thread is done.
+   * @return a new buffer for this sketch
+   */
+  public ConcurrentArrayOfDoublesBuffer newBuffer() {
+    return new ConcurrentArrayOfDoublesBuffer(this, bufferSize_);
+  }
+
+  /**
+   * Estimates the cardinality of the set (number of unique values presented to the sketch)
+   * @return best estimate of the number of unique values
+   */
+  public double getEstimate() {
+    final Snapshot s = snapshot_;
+    if (!s.isEstimationMode()) { return s.retainedEntries; }
+    return s.retainedEntries / s.getTheta();
+  }
+
+  /**
+   * Gets the approximate upper error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the upper bound.
+   */
+  public double getUpperBound(final int numStdDev) {
+    final Snapshot s = snapshot_;
+    if (!s.isEstimationMode()) { return s.retainedEntries; }
+    return BinomialBoundsN.getUpperBound(s.retainedEntries, s.getTheta(), numStdDev, s.empty);
+  }
+
+  /**
+   * Gets the approximate lower error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the lower bound.
+   */
+  public double getLowerBound(final int numStdDev) {
+    final Snapshot s = snapshot_;
+    if (!s.isEstimationMode()) { return s.retainedEntries; }
+    return BinomialBoundsN.getLowerBound(s.retainedEntries, s.getTheta(), numStdDev, s.empty);
+  }
+
+  /**
+   * <a href="{@docRoot}/resources/dictionary.html#empty">See Empty</a>
+   * @return true if empty.
+   */
+  public boolean isEmpty() {
+    return snapshot_.empty;
+  }
+
+  /**
+   * Returns true if the sketch is Estimation Mode (as opposed to Exact Mode).
+   * This is true if theta &lt; 1.0 AND isEmpty() is false.
+   * @return true if the sketch is in estimation mode.
+   */
+  public boolean isEstimationMode() {
+    return snapshot_.isEstimationMode();
+  }
+
+  /**
+   * Gets the value of theta as a double between zero and one
+   * @return the value of theta as a double
+   */
+  public double getTheta() {
+    return snapshot_.getTheta();
+  }
+
+  long getThetaLong() {
+    return snapshot_.getThetaLong();
+  }
+
+  /**
+   * Returns number of retained entries
+   * @return number of retained entries
+   */
+  public int getRetainedEntries() {
+    return snapshot_.retainedEntries;
+  }
+
+  /**
+   * Returns number of double values per key
+   * @return number of double values per key
+   */
+  public int getNumValues() {
+    return gadget_.getNumValues();
+  }
+
+  /**
+   * Gets the configured nominal number of entries
+   * @return nominal number of entries
+   */
+  public int getNominalEntries() {
+    return gadget_.getNominalEntries();
+  }
+
+  /**
+   * Gets the maximum number of entries of a buffer before it is propagated
+   * @return maximum number of entries of a buffer
+   */
+  public int getBufferSize() {
+    return bufferSize_;
+  }
+
+  /**
+   * Gets an on-heap compact representation of the propagated state of the sketch
+   * @return compact sketch
+   */
+  public ArrayOfDoublesCompactSketch compact() {
+    synchronized (gadget_) {
+      return gadget_.compact();
+    }
+  }
+
+  /**
+   * Serializes the propagated state of the sketch as an ArrayOfDoublesUpdatableSketch
+   * @return serialized representation of the sketch
+   */
+  public byte[] toByteArray() {
+    synchronized (gadget_) {
+      return gadget_.toByteArray();
+    }
+  }
+
+  /**
+   * Resets this sketch to the empty state. Rows propagated later by buffers that were filled
+   * before the reset are still added to the sketch.
+   */
+  public void reset() {
+    synchronized (gadget_) {
+      gadget_.reset();
+      publish();
+    }
+  }
+
+  @Override
+  public String toString() {
+    synchronized (gadget_) {
+      return gadget_.toString();
+    }
+  }
+
+  // non-public methods below
+
+  long getSeed() {
+    return gadget_.seed_;
+  }
+
+  long getVolatileThetaLong() {
+    return volatileThetaLong_;
+  }
+
+  /**
+   * Starts the propagation of the given rows into this sketch.
+   * @param keys the hashed keys
+   * @param values the values, <i>numValues</i> per key, in the order of the keys
+   * @return the propagation in progress
+   */
+  CompletableFuture<Void> propagate(final long[] keys, final double[] values) {
+    return CompletableFuture.runAsync(() -> merge(keys, values), executor_);
+  }
+
+  private void merge(final long[] keys, final double[] values) {
+    final int numValues = gadget_.getNumValues();
+    synchronized (gadget_) {
+      gadget_.setNotEmpty();
+      for (int i = 0; i < keys.length; i++) {
+        gadget_.merge(keys[i], values, i * numValues, ArrayOfDoublesCombiners.SUM);
+      }
+      publish();
+    }
+  }
+
+  // called with the lock held or on construction
+  private void publish() {
+    snapshot_ = new Snapshot(gadget_.getRetainedEntries(), gadget_.thetaLong_, gadget_.isEmpty());
+    volatileThetaLong_ = gadget_.thetaLong_;
+  }
+
+  private static int checkBufferSize(final int bufferSize) {
+    if (bufferSize < 1) {
+      throw new SketchesArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    return bufferSize;
+  }
+
+  /**
+   * The state of the sketch after a propagation, from which the estimate and bounds are computed.
+   */
+  private static final class Snapshot {
+    final int retainedEntries;
+    final long thetaLong;
+    final boolean empty;
+
+    Snapshot(final int retainedEntries, final long thetaLong, final boolean empty) {
+      this.retainedEntries = retainedEntries;
+      this.thetaLong = thetaLong;
+      this.empty = empty;
+    }
+
+    boolean isEstimationMode() {
+      return thetaLong < Long.MAX_VALUE && !empty;
+    }
+
+    long getThetaLong() {
+      return empty ? Long.MAX_VALUE : thetaLong;
+    }
+
+    double getTheta() {
+      return getThetaLong() / (double) Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * Background propagation thread used when no executor is given.
+   */
+  private static final class DefaultExecutor {
+    static final ExecutorService INSTANCE = Executors.newSingleThreadExecutor(r -> {
+      final Thread thread = new Thread(r, "ArrayOfDoublesPropagation");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
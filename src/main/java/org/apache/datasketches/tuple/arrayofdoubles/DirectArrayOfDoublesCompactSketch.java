@@ -237,9 +237,7 @@ final class DirectArrayOfDoublesCompactSketch extends ArrayOfDoublesCompactSketc
     final int count = getRetainedEntries();
     final long[] keys = new long[count];
     if (count > 0) {
-      for (int i = 0; i < count; i++) {
-        mem_.getLongArray(ENTRIES_START, keys, 0, count);
-      }
+      mem_.getLongArray(ENTRIES_START, keys, 0, count);
     }
     return keys;
   }
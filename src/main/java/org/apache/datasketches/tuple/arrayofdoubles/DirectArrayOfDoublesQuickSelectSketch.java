@@ -44,6 +44,8 @@ class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSelectSke
   // these can be derived from the mem_ contents, but are kept here for performance
   private int keysOffset_;
   private int valuesOffset_;
+  // reused to combine values
+  private double[] scratch_;
 
   /**
    * Construct a new sketch using the given Memory as its backing store.
@@ -338,20 +340,29 @@ class DirectArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSelectSke
 
   @Override
   protected void setValues(final int index, final double[] values) {
-    long offset = valuesOffset_ + ((long) SIZE_OF_VALUE_BYTES * numValues_ * index);
-    for (int i = 0; i < numValues_; i++) {
-      mem_.putDouble(offset, values[i]);
-      offset += SIZE_OF_VALUE_BYTES;
-    }
+    setValues(index, values, 0);
+  }
+
+  @Override
+  protected void setValues(final int index, final double[] values, final int offset) {
+    mem_.putDoubleArray(valuesOffset_ + ((long) SIZE_OF_VALUE_BYTES * numValues_ * index),
+        values, offset, numValues_);
   }
 
   @Override
   protected void updateValues(final int index, final double[] values) {
-    long offset = valuesOffset_ + ((long) SIZE_OF_VALUE_BYTES * numValues_ * index);
-    for (int i = 0; i < numValues_; i++) {
-      mem_.putDouble(offset, mem_.getDouble(offset) + values[i]);
-      offset += SIZE_OF_VALUE_BYTES;
-    }
+    combineValues(index, values, 0, ArrayOfDoublesCombiners.SUM);
+  }
+
+  // reads the block once, combines it on the heap and writes it back
+  @Override
+  protected void combineValues(final int index, final double[] values, final int offset,
+      final ArrayOfDoublesCombiner combiner) {
+    final long memOffset = valuesOffset_ + ((long) SIZE_OF_VALUE_BYTES * numValues_ * index);
+    if (scratch_ == null) { scratch_ = new double[numValues_]; }
+    mem_.getDoubleArray(memOffset, scratch_, 0, numValues_);
+    combiner.combine(scratch_, 0, values, offset, numValues_);
+    mem_.putDoubleArray(memOffset, scratch_, 0, numValues_);
   }
 
   @Override
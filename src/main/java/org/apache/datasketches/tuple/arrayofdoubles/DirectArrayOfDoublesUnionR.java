@@ -19,6 +19,8 @@
 
 package org.apache.datasketches.tuple.arrayofdoubles;
 
+import java.util.Collection;
+
 import org.apache.datasketches.common.SketchesReadOnlyException;
 import org.apache.datasketches.memory.WritableMemory;
 
@@ -38,6 +40,17 @@ final class DirectArrayOfDoublesUnionR extends DirectArrayOfDoublesUnion {
     throw new SketchesReadOnlyException();
   }
 
+  @Override
+  public void union(final ArrayOfDoublesSketch tupleSketch, final ArrayOfDoublesCombiner combiner) {
+    throw new SketchesReadOnlyException();
+  }
+
+  @Override
+  public void union(final Collection<? extends ArrayOfDoublesSketch> tupleSketches,
+      final ArrayOfDoublesCombiner combiner) {
+    throw new SketchesReadOnlyException();
+  }
+
   @Override
   public void reset() {
     throw new SketchesReadOnlyException();
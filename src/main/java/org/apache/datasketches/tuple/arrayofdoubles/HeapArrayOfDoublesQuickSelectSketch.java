@@ -288,6 +288,17 @@ final class HeapArrayOfDoublesQuickSelectSketch extends ArrayOfDoublesQuickSelec
     }
   }
 
+  @Override
+  protected void setValues(final int index, final double[] values, final int offset) {
+    System.arraycopy(values, offset, values_, index * numValues_, numValues_);
+  }
+
+  @Override
+  protected void combineValues(final int index, final double[] values, final int offset,
+      final ArrayOfDoublesCombiner combiner) {
+    combiner.combine(values_, index * numValues_, values, offset, numValues_);
+  }
+
   @Override
   protected void updateValues(final int index, final double[] values) {
     if (numValues_ == 1) {
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.datasketches.common.Util.checkBounds;
+
+import java.util.Objects;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.thetacommon.ThetaUtil;
+import org.apache.datasketches.tuple.SerializerDeserializer;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.TupleSketchIterator;
+import org.apache.datasketches.tuple.Util;
+
+/**
+ * A read-only EncodedArrayOfStringsSketch holding a compact list of hashes and the corresponding
+ * codes. It is created by compacting an {@link EncodedArrayOfStringsUpdatableSketch}, as the result
+ * of an {@link EncodedArrayOfStringsUnion}, by heapifying a serialized sketch, or by converting a
+ * generic tuple sketch with {@link #fromSketch(Sketch)}.
+ */
+public final class EncodedArrayOfStringsCompactSketch extends EncodedArrayOfStringsSketch {
+  private final long[] hashArr_;
+  private final int[][] codesArr_;
+  private final StringDictionary dictionary_;
+
+  EncodedArrayOfStringsCompactSketch(final long[] hashArr, final int[][] codesArr,
+      final StringDictionary dictionary, final long thetaLong, final boolean empty) {
+    super(thetaLong, empty);
+    hashArr_ = hashArr;
+    codesArr_ = codesArr;
+    dictionary_ = dictionary;
+  }
+
+  /**
+   * Heapify the given Memory image of an EncodedArrayOfStringsSketch.
+   * @param mem the given Memory
+   * @return an EncodedArrayOfStringsCompactSketch
+   */
+  public static EncodedArrayOfStringsCompactSketch heapify(final Memory mem) {
+    Objects.requireNonNull(mem, "SourceMemory must not be null.");
+    checkBounds(0, Long.BYTES * PREAMBLE_LONGS, mem.getCapacity());
+    final byte preambleLongs = mem.getByte(0);
+    SerializerDeserializer.validateFamily(mem.getByte(2), preambleLongs);
+    SerializerDeserializer.validateType(mem.getByte(3),
+        SerializerDeserializer.SketchType.EncodedArrayOfStringsCompactSketch);
+    final byte version = mem.getByte(1);
+    if (version != SERIAL_VERSION) {
+      throw new SketchesArgumentException("serial version mismatch: expected " + SERIAL_VERSION
+          + ", actual " + version);
+    }
+    Util.checkSeedHashes(mem.getShort(SEED_HASH_SHORT),
+        ThetaUtil.computeSeedHash(ThetaUtil.DEFAULT_UPDATE_SEED));
+    final int codeSize = mem.getByte(CODE_SIZE_BYTE);
+    if (codeSize != Byte.BYTES && codeSize != Short.BYTES && codeSize != Integer.BYTES) {
+      throw new SketchesArgumentException("Possible corruption: invalid code size " + codeSize);
+    }
+    final boolean empty = (mem.getByte(FLAGS_BYTE) & IS_EMPTY_FLAG) != 0;
+    final int count = mem.getInt(COUNT_INT);
+    final int dictionarySize = mem.getInt(DICTIONARY_SIZE_INT);
+    final long thetaLong = mem.getLong(THETA_LONG);
+
+    long offset = Long.BYTES * (long) preambleLongs;
+    final StringDictionary dictionary = new StringDictionary(dictionarySize);
+    for (int i = 0; i < dictionarySize; i++) {
+      checkBounds(offset, Integer.BYTES, mem.getCapacity());
+      final int length = mem.getInt(offset);
+      checkBounds(offset + Integer.BYTES, length, mem.getCapacity());
+      final byte[] bytes = new byte[length];
+      mem.getByteArray(offset + Integer.BYTES, bytes, 0, length);
+      if (dictionary.encode(new String(bytes, UTF_8)) != i) {
+        throw new SketchesArgumentException("Possible corruption: duplicate dictionary string");
+      }
+      offset += Integer.BYTES + length;
+    }
+    final long[] hashArr = new long[count];
+    final int[][] codesArr = new int[count][];
+    for (int i = 0; i < count; i++) {
+      checkBounds(offset, Long.BYTES + 1, mem.getCapacity());
+      hashArr[i] = mem.getLong(offset);
+      final int numNodes = mem.getByte(offset + Long.BYTES);
+      offset += Long.BYTES + 1;
+      checkBounds(offset, (long) codeSize * numNodes, mem.getCapacity());
+      final int[] codes = new int[numNodes];
+      for (int j = 0; j < numNodes; j++) {
+        codes[j] = getCode(mem, offset, codeSize);
+        if (codes[j] < 0 || codes[j] >= dictionarySize) {
+          throw new SketchesArgumentException("Possible corruption: code out of range " + codes[j]);
+        }
+        offset += codeSize;
+      }
+      codesArr[i] = codes;
+    }
+    return new EncodedArrayOfStringsCompactSketch(hashArr, codesArr, dictionary, thetaLong, empty);
+  }
+
+  /**
+   * Converts a generic tuple sketch with ArrayOfStringsSummary values, encoding the strings.
+   * @param sketch the given tuple sketch
+   * @return an EncodedArrayOfStringsCompactSketch with the same hashes, values and theta
+   */
+  public static EncodedArrayOfStringsCompactSketch fromSketch(final Sketch<ArrayOfStringsSummary> sketch) {
+    final int count = sketch.getRetainedEntries();
+    final long[] hashArr = new long[count];
+    final int[][] codesArr = new int[count][];
+    final StringDictionary dictionary = new StringDictionary();
+    final TupleSketchIterator<ArrayOfStringsSummary> it = sketch.iterator();
+    int i = 0;
+    while (it.next()) {
+      hashArr[i] = it.getHash();
+      codesArr[i] = dictionary.encode(it.getSummary().getValue());
+      i++;
+    }
+    return new EncodedArrayOfStringsCompactSketch(hashArr, codesArr, dictionary,
+        sketch.getThetaLong(), sketch.isEmpty());
+  }
+
+  @Override
+  public int getRetainedEntries() {
+    return hashArr_.length;
+  }
+
+  @Override
+  public EncodedArrayOfStringsSketchIterator iterator() {
+    return new EncodedArrayOfStringsSketchIterator(hashArr_, codesArr_, dictionary_);
+  }
+
+  @Override
+  public EncodedArrayOfStringsCompactSketch compact() {
+    return this;
+  }
+
+  @Override
+  StringDictionary getDictionary() {
+    return dictionary_;
+  }
+}
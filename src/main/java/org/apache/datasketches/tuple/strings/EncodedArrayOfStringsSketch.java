@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.datasketches.common.Util.LS;
+
+import java.util.Arrays;
+
+import org.apache.datasketches.common.Family;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.thetacommon.BinomialBoundsN;
+import org.apache.datasketches.thetacommon.ThetaUtil;
+import org.apache.datasketches.tuple.SerializerDeserializer;
+
+/**
+ * The top level for tuple sketches with an array of strings per key, where the strings are
+ * dictionary-encoded: each retained entry holds an <i>int[]</i> of codes into a string dictionary
+ * shared by all entries of the sketch, instead of an {@link ArrayOfStringsSummary} with its own
+ * <i>String[]</i>. Repeated dimension values are therefore held, and serialized, only once.
+ *
+ * <p>The values follow the semantics of {@link ArrayOfStringsSketch}: the first value presented
+ * for a key is retained, and unions keep the value already retained.</p>
+ *
+ * <p>The serialized form has its own layout:</p>
+ * <pre>
+ * Long || Start Byte Adr:
+ * Adr:
+ *      ||    7   |    6   |    5   |    4   |    3   |    2   |    1   |     0          |
+ *  0   ||    Seed Hash    | Flags  | CodeSz | SkType | FamID  | SerVer |  Preamble_Longs |
+ *      ||   15   |   14   |   13   |   12   |   11   |   10   |    9   |     8          |
+ *  1   ||         Dictionary Size           |           Retained Entries                |
+ *      ||   23   |   22   |   21   |   20   |   19   |   18   |   17   |    16          |
+ *  2   ||------------------------------Theta Long---------------------------------------|
+ * </pre>
+ * followed by the used strings of the dictionary, each as an int UTF-8 length and the UTF-8
+ * bytes, and then the entries, each as the long hash, a byte number of nodes and that many codes
+ * of CodeSz bytes, where CodeSz is the smallest of 1, 2 or 4 that fits the dictionary size.
+ */
+public abstract class EncodedArrayOfStringsSketch {
+
+  static final byte PREAMBLE_LONGS = 3;
+  static final byte SERIAL_VERSION = 1;
+  static final int CODE_SIZE_BYTE = 4;
+  static final int FLAGS_BYTE = 5;
+  static final int SEED_HASH_SHORT = 6;
+  static final int COUNT_INT = 8;
+  static final int DICTIONARY_SIZE_INT = 12;
+  static final int THETA_LONG = 16;
+  static final int IS_READ_ONLY_FLAG = 1 << 1;
+  static final int IS_EMPTY_FLAG = 1 << 2;
+  static final int IS_COMPACT_FLAG = 1 << 3;
+
+  long thetaLong_;
+  boolean empty_;
+
+  EncodedArrayOfStringsSketch(final long thetaLong, final boolean empty) {
+    thetaLong_ = thetaLong;
+    empty_ = empty;
+  }
+
+  /**
+   * Heapify the given Memory image of an EncodedArrayOfStringsSketch as a compact sketch.
+   * @param mem the given Memory
+   * @return an EncodedArrayOfStringsCompactSketch
+   */
+  public static EncodedArrayOfStringsCompactSketch heapify(final Memory mem) {
+    return EncodedArrayOfStringsCompactSketch.heapify(mem);
+  }
+
+  /**
+   * Estimates the cardinality of the set (number of unique values presented to the sketch)
+   * @return best estimate of the number of unique values
+   */
+  public double getEstimate() {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return getRetainedEntries() / getTheta();
+  }
+
+  /**
+   * Gets the approximate upper error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the upper bound.
+   */
+  public double getUpperBound(final int numStdDev) {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return BinomialBoundsN.getUpperBound(getRetainedEntries(), getTheta(), numStdDev, empty_);
+  }
+
+  /**
+   * Gets the approximate lower error bound given the specified number of Standard Deviations.
+   * This will return getEstimate() if isEmpty() is true.
+   *
+   * @param numStdDev
+   * <a href="{@docRoot}/resources/dictionary.html#numStdDev">See Number of Standard Deviations</a>
+   * @return the lower bound.
+   */
+  public double getLowerBound(final int numStdDev) {
+    if (!isEstimationMode()) { return getRetainedEntries(); }
+    return BinomialBoundsN.getLowerBound(getRetainedEntries(), getTheta(), numStdDev, empty_);
+  }
+
+  /**
+   * <a href="{@docRoot}/resources/dictionary.html#empty">See Empty</a>
+   * @return true if empty.
+   */
+  public boolean isEmpty() {
+    return empty_;
+  }
+
+  /**
+   * Returns true if the sketch is Estimation Mode (as opposed to Exact Mode).
+   * This is true if theta &lt; 1.0 AND isEmpty() is false.
+   * @return true if the sketch is in estimation mode.
+   */
+  public boolean isEstimationMode() {
+    return thetaLong_ < Long.MAX_VALUE && !isEmpty();
+  }
+
+  /**
+   * Gets the value of theta as a double between zero and one
+   * @return the value of theta as a double
+   */
+  public double getTheta() {
+    return getThetaLong() / (double) Long.MAX_VALUE;
+  }
+
+  /**
+   * Returns Theta as a long
+   * @return Theta as a long
+   */
+  public long getThetaLong() {
+    return isEmpty() ? Long.MAX_VALUE : thetaLong_;
+  }
+
+  /**
+   * Returns number of retained entries
+   * @return number of retained entries
+   */
+  public abstract int getRetainedEntries();
+
+  /**
+   * Returns an iterator over the retained hashes and their values
+   * @return an iterator over the retained entries
+   */
+  public abstract EncodedArrayOfStringsSketchIterator iterator();
+
+  /**
+   * Converts the current state of the sketch into a compact sketch
+   * @return compact sketch
+   */
+  public abstract EncodedArrayOfStringsCompactSketch compact();
+
+  abstract StringDictionary getDictionary();
+
+  /**
+   * Serializes this sketch as a compact sketch. Only the strings used by the retained entries are
+   * written, each once, renumbered in order of first use.
+   * @return serialized representation of this sketch as a compact sketch
+   */
+  public byte[] toByteArray() {
+    final int count = getRetainedEntries();
+    final StringDictionary dictionary = getDictionary();
+    final int[] remap = new int[dictionary.size()];
+    Arrays.fill(remap, -1);
+    final int[] used = new int[dictionary.size()];
+    int numUsed = 0;
+    long numCodes = 0;
+    EncodedArrayOfStringsSketchIterator it = iterator();
+    while (it.next()) {
+      final int[] codes = it.getCodes();
+      for (final int code : codes) {
+        if (remap[code] < 0) {
+          remap[code] = numUsed;
+          used[numUsed++] = code;
+        }
+      }
+      numCodes += codes.length;
+    }
+    final int codeSize = codeSize(numUsed);
+    final byte[][] stringBytes = new byte[numUsed][];
+    long dictionaryBytes = 0;
+    for (int i = 0; i < numUsed; i++) {
+      stringBytes[i] = dictionary.decode(used[i]).getBytes(UTF_8);
+      dictionaryBytes += Integer.BYTES + stringBytes[i].length;
+    }
+    final long totalBytes = (Long.BYTES * PREAMBLE_LONGS) + dictionaryBytes
+        + ((long) (Long.BYTES + 1) * count) + (codeSize * numCodes);
+    final byte[] bytes = new byte[Math.toIntExact(totalBytes)];
+    final WritableMemory mem = WritableMemory.writableWrap(bytes);
+    mem.putByte(0, PREAMBLE_LONGS);
+    mem.putByte(1, SERIAL_VERSION);
+    mem.putByte(2, (byte) Family.TUPLE.getID());
+    mem.putByte(3, (byte) SerializerDeserializer.SketchType.EncodedArrayOfStringsCompactSketch.ordinal());
+    mem.putByte(CODE_SIZE_BYTE, (byte) codeSize);
+    mem.putByte(FLAGS_BYTE, (byte) (IS_COMPACT_FLAG | IS_READ_ONLY_FLAG | (isEmpty() ? IS_EMPTY_FLAG : 0)));
+    mem.putShort(SEED_HASH_SHORT, ThetaUtil.computeSeedHash(ThetaUtil.DEFAULT_UPDATE_SEED));
+    mem.putInt(COUNT_INT, count);
+    mem.putInt(DICTIONARY_SIZE_INT, numUsed);
+    mem.putLong(THETA_LONG, getThetaLong());
+    long offset = Long.BYTES * PREAMBLE_LONGS;
+    for (int i = 0; i < numUsed; i++) {
+      mem.putInt(offset, stringBytes[i].length);
+      mem.putByteArray(offset + Integer.BYTES, stringBytes[i], 0, stringBytes[i].length);
+      offset += Integer.BYTES + stringBytes[i].length;
+    }
+    it = iterator();
+    while (it.next()) {
+      final int[] codes = it.getCodes();
+      mem.putLong(offset, it.getHash());
+      mem.putByte(offset + Long.BYTES, (byte) codes.length);
+      offset += Long.BYTES + 1;
+      for (final int code : codes) {
+        putCode(mem, offset, codeSize, remap[code]);
+        offset += codeSize;
+      }
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("### ").append(this.getClass().getSimpleName()).append(" SUMMARY: ").append(LS);
+    sb.append("   Estimate                : ").append(getEstimate()).append(LS);
+    sb.append("   Upper Bound, 95% conf   : ").append(getUpperBound(2)).append(LS);
+    sb.append("   Lower Bound, 95% conf   : ").append(getLowerBound(2)).append(LS);
+    sb.append("   Theta (double)          : ").append(getTheta()).append(LS);
+    sb.append("   Theta (long)            : ").append(getThetaLong()).append(LS);
+    sb.append("   EstMode?                : ").append(isEstimationMode()).append(LS);
+    sb.append("   Empty?                  : ").append(isEmpty()).append(LS);
+    sb.append("   Retained Entries        : ").append(getRetainedEntries()).append(LS);
+    sb.append("   Dictionary Size         : ").append(getDictionary().size()).append(LS);
+    sb.append("### END SKETCH SUMMARY").append(LS);
+    return sb.toString();
+  }
+
+  static int codeSize(final int dictionarySize) {
+    if (dictionarySize <= (1 << Byte.SIZE)) { return Byte.BYTES; }
+    if (dictionarySize <= (1 << Short.SIZE)) { return Short.BYTES; }
+    return Integer.BYTES;
+  }
+
+  static void putCode(final WritableMemory mem, final long offset, final int codeSize, final int code) {
+    switch (codeSize) {
+      case Byte.BYTES: mem.putByte(offset, (byte) code); break;
+      case Short.BYTES: mem.putShort(offset, (short) code); break;
+      default: mem.putInt(offset, code);
+    }
+  }
+
+  static int getCode(final Memory mem, final long offset, final int codeSize) {
+    switch (codeSize) {
+      case Byte.BYTES: return mem.getByte(offset) & 0xFF;
+      case Short.BYTES: return mem.getShort(offset) & 0xFFFF;
+      default: return mem.getInt(offset);
+    }
+  }
+}
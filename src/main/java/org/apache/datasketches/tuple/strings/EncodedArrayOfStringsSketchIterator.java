@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+/**
+ * Iterator over an EncodedArrayOfStringsSketch
+ */
+public final class EncodedArrayOfStringsSketchIterator {
+  private final long[] hashArr_;
+  private final int[][] codesArr_;
+  private final StringDictionary dictionary_;
+  private int i_;
+
+  EncodedArrayOfStringsSketchIterator(final long[] hashes, final int[][] codes,
+      final StringDictionary dictionary) {
+    hashArr_ = hashes;
+    codesArr_ = codes;
+    dictionary_ = dictionary;
+    i_ = -1;
+  }
+
+  /**
+   * Advancing the iterator and checking existence of the next entry
+   * is combined here for efficiency. This results in an undefined
+   * state of the iterator before the first call of this method.
+   * @return true if the next element exists
+   */
+  public boolean next() {
+    if (hashArr_ == null) { return false; }
+    i_++;
+    while (i_ < hashArr_.length) {
+      if (hashArr_[i_] > 0) { return true; }
+      i_++;
+    }
+    return false;
+  }
+
+  /**
+   * Gets the hash from the current entry in the sketch, which is a hash
+   * of the original key passed to update(). The original keys are not
+   * retained. Don't call this before calling next() for the first time
+   * or after getting false from next().
+   * @return hash from the current entry
+   */
+  public long getHash() {
+    return hashArr_[i_];
+  }
+
+  /**
+   * Gets the decoded array of strings from the current entry in the sketch.
+   * Don't call this before calling next() for the first time
+   * or after getting false from next().
+   * @return a new array with the strings of the current entry
+   */
+  public String[] getValue() {
+    return dictionary_.decode(codesArr_[i_]);
+  }
+
+  /**
+   * Gets the string of the given node of the current entry without decoding the other nodes.
+   * Don't call this before calling next() for the first time
+   * or after getting false from next().
+   * @param node the index of the node
+   * @return the string of the node
+   */
+  public String getValue(final int node) {
+    return dictionary_.decode(codesArr_[i_][node]);
+  }
+
+  /**
+   * Gets the number of nodes of the current entry.
+   * @return the number of nodes of the current entry
+   */
+  public int getNumNodes() {
+    return codesArr_[i_].length;
+  }
+
+  // not a copy
+  int[] getCodes() {
+    return codesArr_[i_];
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import static org.apache.datasketches.tuple.Util.stringArrHash;
+import static org.apache.datasketches.tuple.strings.ArrayOfStringsSummary.checkNumNodes;
+
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.hash.MurmurHash3;
+import org.apache.datasketches.thetacommon.HashOperations;
+import org.apache.datasketches.thetacommon.QuickSelect;
+import org.apache.datasketches.thetacommon.ThetaUtil;
+import org.apache.datasketches.tuple.Util;
+
+/**
+ * An updatable dictionary-encoded tuple sketch with an array of strings per key, using the
+ * QuickSelect algorithm. This is the equivalent of {@link ArrayOfStringsSketch}, and produces the
+ * same hashes for the same keys, but each retained entry holds an <i>int[]</i> of codes into a
+ * string dictionary shared by all entries.
+ *
+ * <p>Strings of entries that are dropped as theta decreases stay in the dictionary until they
+ * make up more than half of it, at which point the dictionary is rebuilt from the retained
+ * entries.</p>
+ */
+public final class EncodedArrayOfStringsUpdatableSketch extends EncodedArrayOfStringsSketch {
+  private static final int MIN_PRUNE_SIZE = 1024;
+
+  private final int nomEntries_;
+  private final int lgResizeFactor_;
+  private final float samplingProbability_;
+  private int lgCurrentCapacity_;
+  private int retEntries_;
+  private int rebuildThreshold_;
+  private long[] hashTable_;
+  private int[][] codesTable_; // code arrays are never modified once stored, so they can be shared
+  private StringDictionary dictionary_;
+  private long numCodes_; // total number of codes held by the retained entries
+
+  /**
+   * Constructs new sketch with default <i>K</i> = 4096 (<i>lgK</i> = 12), default ResizeFactor=X8,
+   * and default <i>p</i> = 1.0.
+   */
+  public EncodedArrayOfStringsUpdatableSketch() {
+    this(12);
+  }
+
+  /**
+   * Constructs new sketch with default ResizeFactor=X8, default <i>p</i> = 1.0 and given <i>lgK</i>.
+   * @param lgK Log_base2 of <i>Nominal Entries</i>.
+   * <a href="{@docRoot}/resources/dictionary.html#nomEntries">See Nominal Entries</a>
+   */
+  public EncodedArrayOfStringsUpdatableSketch(final int lgK) {
+    this(lgK, ResizeFactor.X8, 1.0F);
+  }
+
+  /**
+   * Constructs new sketch with given ResizeFactor, <i>p</i> and <i>lgK</i>.
+   * @param lgK Log_base2 of <i>Nominal Entries</i>.
+   * <a href="{@docRoot}/resources/dictionary.html#nomEntries">See Nominal Entries</a>
+   * @param rf ResizeFactor
+   * <a href="{@docRoot}/resources/dictionary.html#resizeFactor">See Resize Factor</a>
+   * @param p sampling probability
+   * <a href="{@docRoot}/resources/dictionary.html#p">See Sampling Probability</a>
+   */
+  public EncodedArrayOfStringsUpdatableSketch(final int lgK, final ResizeFactor rf, final float p) {
+    super((long) (Long.MAX_VALUE * (double) p), true);
+    nomEntries_ = 1 << lgK;
+    lgResizeFactor_ = rf.lg();
+    samplingProbability_ = p;
+    final int startingCapacity = Util.getStartingCapacity(nomEntries_, lgResizeFactor_);
+    lgCurrentCapacity_ = Integer.numberOfTrailingZeros(startingCapacity);
+    hashTable_ = new long[startingCapacity];
+    codesTable_ = new int[startingCapacity][];
+    dictionary_ = new StringDictionary();
+    rebuildThreshold_ = setRebuildThreshold(hashTable_, nomEntries_);
+  }
+
+  private EncodedArrayOfStringsUpdatableSketch(final EncodedArrayOfStringsUpdatableSketch sketch) {
+    super(sketch.thetaLong_, sketch.empty_);
+    nomEntries_ = sketch.nomEntries_;
+    lgResizeFactor_ = sketch.lgResizeFactor_;
+    samplingProbability_ = sketch.samplingProbability_;
+    lgCurrentCapacity_ = sketch.lgCurrentCapacity_;
+    retEntries_ = sketch.retEntries_;
+    rebuildThreshold_ = sketch.rebuildThreshold_;
+    hashTable_ = sketch.hashTable_.clone();
+    codesTable_ = sketch.codesTable_.clone();
+    dictionary_ = sketch.dictionary_.copy();
+    numCodes_ = sketch.numCodes_;
+  }
+
+  /**
+   * @return a deep copy of this sketch
+   */
+  public EncodedArrayOfStringsUpdatableSketch copy() {
+    return new EncodedArrayOfStringsUpdatableSketch(this);
+  }
+
+  /**
+   * Updates the sketch with String arrays for both key and value.
+   * The value is only retained if the key is new to the sketch.
+   * @param strArrKey the given String array key
+   * @param strArr the given String array value
+   */
+  public void update(final String[] strArrKey, final String[] strArr) {
+    checkNumNodes(strArr.length);
+    final long key = stringArrHash(strArrKey);
+    insertOrIgnore(MurmurHash3.hash(new long[] {key}, ThetaUtil.DEFAULT_UPDATE_SEED)[0] >>> 1, strArr);
+    pruneDictionaryIfNeeded();
+  }
+
+  @Override
+  public int getRetainedEntries() {
+    return retEntries_;
+  }
+
+  /**
+   * Get configured nominal number of entries
+   * @return nominal number of entries
+   */
+  public int getNominalEntries() {
+    return nomEntries_;
+  }
+
+  /**
+   * Get log_base2 of Nominal Entries
+   * @return log_base2 of Nominal Entries
+   */
+  public int getLgK() {
+    return Integer.numberOfTrailingZeros(nomEntries_);
+  }
+
+  /**
+   * Get configured sampling probability
+   * @return sampling probability
+   */
+  public float getSamplingProbability() {
+    return samplingProbability_;
+  }
+
+  /**
+   * Get current capacity
+   * @return current capacity
+   */
+  public int getCurrentCapacity() {
+    return 1 << lgCurrentCapacity_;
+  }
+
+  /**
+   * Rebuilds reducing the actual number of entries to the nominal number of entries if needed
+   */
+  public void trim() {
+    if (retEntries_ > nomEntries_) {
+      updateTheta();
+      resize(hashTable_.length);
+      pruneDictionaryIfNeeded();
+    }
+  }
+
+  /**
+   * Resets this sketch an empty state.
+   */
+  public void reset() {
+    empty_ = true;
+    retEntries_ = 0;
+    thetaLong_ = (long) (Long.MAX_VALUE * (double) samplingProbability_);
+    final int startingCapacity = Util.getStartingCapacity(nomEntries_, lgResizeFactor_);
+    lgCurrentCapacity_ = Integer.numberOfTrailingZeros(startingCapacity);
+    hashTable_ = new long[startingCapacity];
+    codesTable_ = new int[startingCapacity][];
+    dictionary_ = new StringDictionary();
+    numCodes_ = 0;
+    rebuildThreshold_ = setRebuildThreshold(hashTable_, nomEntries_);
+  }
+
+  /**
+   * Converts the current state of the sketch into a compact sketch, which shares the dictionary
+   * of this sketch. The dictionary only ever grows, or is replaced, so the result is not affected by
+   * later updates of this sketch.
+   * @return compact sketch
+   */
+  @Override
+  public EncodedArrayOfStringsCompactSketch compact() {
+    final long[] hashArr = new long[retEntries_];
+    final int[][] codesArr = new int[retEntries_][];
+    int i = 0;
+    for (int j = 0; j < hashTable_.length; j++) {
+      if (hashTable_[j] != 0) {
+        hashArr[i] = hashTable_[j];
+        codesArr[i] = codesTable_[j];
+        i++;
+      }
+    }
+    return new EncodedArrayOfStringsCompactSketch(hashArr, codesArr, dictionary_,
+        empty_ ? Long.MAX_VALUE : thetaLong_, empty_);
+  }
+
+  @Override
+  public EncodedArrayOfStringsSketchIterator iterator() {
+    return new EncodedArrayOfStringsSketchIterator(hashTable_, codesTable_, dictionary_);
+  }
+
+  // non-public methods below
+
+  @Override
+  StringDictionary getDictionary() {
+    return dictionary_;
+  }
+
+  long[] getHashTable() {
+    return hashTable_;
+  }
+
+  int[][] getCodesTable() {
+    return codesTable_;
+  }
+
+  void insertOrIgnore(final long hash, final String[] value) {
+    empty_ = false;
+    if (hash == 0 || hash >= thetaLong_) { return; }
+    final int index = HashOperations.hashSearchOrInsert(hashTable_, lgCurrentCapacity_, hash);
+    if (index < 0) {
+      retEntries_++;
+      codesTable_[~index] = dictionary_.encode(value);
+      numCodes_ += value.length;
+      rebuildIfNeeded();
+    }
+  }
+
+  // this is a special back door insert for merging, the equivalent of QuickSelectSketch.merge(),
+  // where a new hash keeps the incoming value and a retained one is kept as is.
+  // The codes are translated from the given dictionary only if the hash is new, caching the
+  // translation in remap as the code in this dictionary + 1.
+  // The dictionary is not pruned here, so that remap stays valid until pruneDictionaryIfNeeded().
+  void merge(final long hash, final int[] codes, final StringDictionary dictionary, final int[] remap) {
+    empty_ = false;
+    if (hash > 0 && hash < thetaLong_) {
+      final int index = HashOperations.hashSearchOrInsert(hashTable_, lgCurrentCapacity_, hash);
+      if (index < 0) {
+        retEntries_++;
+        codesTable_[~index] = dictionary == dictionary_ ? codes : translate(codes, dictionary, remap);
+        numCodes_ += codes.length;
+        rebuildIfNeeded();
+      }
+    }
+  }
+
+  void merge(final long hash, final String[] value) {
+    empty_ = false;
+    if (hash > 0 && hash < thetaLong_) {
+      final int index = HashOperations.hashSearchOrInsert(hashTable_, lgCurrentCapacity_, hash);
+      if (index < 0) {
+        retEntries_++;
+        codesTable_[~index] = dictionary_.encode(value);
+        numCodes_ += value.length;
+        rebuildIfNeeded();
+      }
+    }
+  }
+
+  // rebuilds the dictionary from the retained entries once most of its strings are unused
+  void pruneDictionaryIfNeeded() {
+    if (dictionary_.size() <= Math.max(MIN_PRUNE_SIZE, 2 * numCodes_)) { return; }
+    final StringDictionary dictionary = new StringDictionary();
+    final int[] remap = new int[dictionary_.size()];
+    for (int j = 0; j < hashTable_.length; j++) {
+      if (hashTable_[j] != 0) {
+        codesTable_[j] = translate(codesTable_[j], dictionary_, remap, dictionary);
+      }
+    }
+    dictionary_ = dictionary;
+  }
+
+  private int[] translate(final int[] codes, final StringDictionary dictionary, final int[] remap) {
+    return translate(codes, dictionary, remap, dictionary_);
+  }
+
+  private static int[] translate(final int[] codes, final StringDictionary src, final int[] remap,
+      final StringDictionary dst) {
+    final int[] result = new int[codes.length];
+    for (int i = 0; i < codes.length; i++) {
+      int code = remap[codes[i]] - 1;
+      if (code < 0) {
+        code = dst.encode(src.decode(codes[i]));
+        remap[codes[i]] = code + 1;
+      }
+      result[i] = code;
+    }
+    return result;
+  }
+
+  private void rebuildIfNeeded() {
+    if (retEntries_ <= rebuildThreshold_) {
+      return;
+    }
+    if (hashTable_.length > nomEntries_) {
+      updateTheta();
+      resize(hashTable_.length);
+    } else {
+      resize(hashTable_.length * (1 << lgResizeFactor_));
+    }
+  }
+
+  private void updateTheta() {
+    final long[] hashArr = new long[retEntries_];
+    int i = 0;
+    for (int j = 0; j < hashTable_.length; j++) {
+      if (hashTable_[j] != 0) {
+        hashArr[i++] = hashTable_[j];
+      }
+    }
+    thetaLong_ = QuickSelect.select(hashArr, 0, retEntries_ - 1, nomEntries_);
+  }
+
+  private void resize(final int newSize) {
+    final long[] oldHashTable = hashTable_;
+    final int[][] oldCodesTable = codesTable_;
+    hashTable_ = new long[newSize];
+    codesTable_ = new int[newSize][];
+    lgCurrentCapacity_ = Integer.numberOfTrailingZeros(newSize);
+    retEntries_ = 0;
+    numCodes_ = 0;
+    for (int i = 0; i < oldHashTable.length; i++) {
+      if (oldHashTable[i] != 0 && oldHashTable[i] < thetaLong_) {
+        final int index = HashOperations.hashInsertOnly(hashTable_, lgCurrentCapacity_, oldHashTable[i]);
+        codesTable_[index] = oldCodesTable[i];
+        numCodes_ += oldCodesTable[i].length;
+        retEntries_++;
+      }
+    }
+    rebuildThreshold_ = setRebuildThreshold(hashTable_, nomEntries_);
+  }
+
+  private static int setRebuildThreshold(final long[] hashTable, final int nomEntries) {
+    if (hashTable.length > nomEntries) {
+      return (int) (hashTable.length * ThetaUtil.REBUILD_THRESHOLD);
+    } else {
+      return (int) (hashTable.length * ThetaUtil.RESIZE_THRESHOLD);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An append-only dictionary of strings shared by all entries of an encoded sketch.
+ * Codes are assigned in order of first use starting from zero, and a code never changes its
+ * string, so sketches holding codes of an older state of the dictionary remain valid as it grows.
+ */
+final class StringDictionary {
+  private final Map<String, Integer> codes_;
+  private String[] values_;
+  private int size_;
+
+  StringDictionary() {
+    this(16);
+  }
+
+  StringDictionary(final int capacity) {
+    codes_ = new HashMap<>();
+    values_ = new String[Math.max(capacity, 1)];
+    size_ = 0;
+  }
+
+  private StringDictionary(final StringDictionary that) {
+    codes_ = new HashMap<>(that.codes_);
+    values_ = that.values_.clone();
+    size_ = that.size_;
+  }
+
+  StringDictionary copy() {
+    return new StringDictionary(this);
+  }
+
+  /**
+   * Returns the code of the given string, adding the string if it is not in the dictionary yet.
+   * @param value the given string
+   * @return the code of the string
+   */
+  int encode(final String value) {
+    final Integer code = codes_.get(value);
+    if (code != null) { return code; }
+    if (size_ == values_.length) {
+      values_ = Arrays.copyOf(values_, 2 * size_);
+    }
+    values_[size_] = value;
+    codes_.put(value, size_);
+    return size_++;
+  }
+
+  int[] encode(final String[] values) {
+    final int[] codes = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      codes[i] = encode(values[i]);
+    }
+    return codes;
+  }
+
+  String decode(final int code) {
+    return values_[code];
+  }
+
+  String[] decode(final int[] codes) {
+    final String[] values = new String[codes.length];
+    for (int i = 0; i < codes.length; i++) {
+      values[i] = values_[codes[i]];
+    }
+    return values;
+  }
+
+  int size() {
+    return size_;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.fdt;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.testng.annotations.Test;
+
+public class ParallelPostProcessorTest {
+  private static final char sep = '|';
+
+  @Test
+  public void checkSameGroupsAsPostProcessor() {
+    final FdtSketch sk = new FdtSketch(14);
+    for (int i = 0; i < 100_000; i++) {
+      sk.update(new String[] {"ip" + (i % 97), "os" + (i % 5), "id" + i});
+    }
+    assertTrue(sk.isEstimationMode());
+    assertTrue(sk.getRetainedEntries() > ParallelPostProcessor.SEGMENT_SIZE);
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    final ForkJoinPool singlePool = new ForkJoinPool(1);
+    try {
+      final ParallelPostProcessor proc = sk.getParallelPostProcessor(sep, pool);
+      for (final int[] priKeyIndices : new int[][] {{0}, {1, 0}, {1}}) {
+        final List<Group> expected = sk.getPostProcessor().getGroupList(priKeyIndices, 2, 0);
+        final List<Group> all = proc.getGroupList(priKeyIndices, 2, 0);
+        assertEquals(proc.getGroupCount(), expected.size());
+        assertEquals(toMap(all), toMap(expected));
+        for (int i = 1; i < all.size(); i++) {
+          assertTrue(all.get(i - 1).getCount() >= all.get(i).getCount());
+        }
+        checkStats(all, expected);
+
+        // the top groups are a prefix of the full list
+        final List<Group> top = proc.getGroupList(priKeyIndices, 2, 3);
+        assertEquals(top.size(), 3);
+        for (int i = 0; i < top.size(); i++) {
+          assertEquals(top.get(i).getPrimaryKey(), all.get(i).getPrimaryKey());
+        }
+      }
+
+      // independent of the degree of parallelism
+      final List<Group> sequential =
+          sk.getParallelPostProcessor(sep, singlePool).getGroupList(new int[] {1, 0}, 2, 0);
+      final List<Group> parallel = proc.getGroupList(new int[] {1, 0}, 2, 0);
+      for (int i = 0; i < parallel.size(); i++) {
+        assertEquals(parallel.get(i).getPrimaryKey(), sequential.get(i).getPrimaryKey());
+      }
+    } finally {
+      pool.shutdown();
+      singlePool.shutdown();
+    }
+  }
+
+  @Test
+  public void checkExactModeAndEmpty() {
+    final FdtSketch sk = new FdtSketch(10);
+    assertEquals(new ParallelPostProcessor(sk, sep, null).getGroupList(new int[] {0}, 1, 0).size(), 0);
+
+    sk.update(new String[] {"a", "x"});
+    sk.update(new String[] {"a", "y"});
+    sk.update(new String[] {"b", "x"});
+    final ParallelPostProcessor proc = new ParallelPostProcessor(sk, sep, null);
+    final List<Group> list = proc.getGroupList(new int[] {0}, 1, 0);
+    assertEquals(list.size(), 2);
+    assertEquals(list.get(0).getPrimaryKey(), "a");
+    assertEquals(list.get(0).getCount(), 2);
+    assertEquals(list.get(0).getEstimate(), 2.0);
+    checkStats(list, sk.getPostProcessor().getGroupList(new int[] {0}, 1, 0));
+
+    try {
+      proc.getGroupList(new int[] {2}, 1, 0);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkSnapshot() {
+    final FdtSketch sk = new FdtSketch(10);
+    sk.update(new String[] {"a", "x"});
+    final ParallelPostProcessor proc = new ParallelPostProcessor(sk, sep, null);
+    sk.update(new String[] {"b", "x"});
+    assertEquals(proc.getGroupList(new int[] {1, 0}, 1, 0).get(0).getPrimaryKey(), "x|a");
+    assertEquals(proc.getGroupCount(), 1);
+  }
+
+  private static Map<String, Integer> toMap(final List<Group> list) {
+    final Map<String, Integer> map = new HashMap<>();
+    for (final Group gp : list) { map.put(gp.getPrimaryKey(), gp.getCount()); }
+    return map;
+  }
+
+  private static void checkStats(final List<Group> list, final List<Group> expected) {
+    final Map<String, Group> byKey = new HashMap<>();
+    for (final Group gp : expected) { byKey.put(gp.getPrimaryKey(), gp); }
+    for (final Group gp : list) {
+      final Group other = byKey.get(gp.getPrimaryKey());
+      assertEquals(gp.toString(), other.toString());
+    }
+  }
+}
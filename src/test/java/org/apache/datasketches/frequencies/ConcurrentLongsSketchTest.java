@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.frequencies.LongsSketch.Row;
+import org.apache.datasketches.memory.Memory;
+
+public class ConcurrentLongsSketchTest {
+
+  @Test
+  public void checkSingleThreadExact() {
+    final ConcurrentLongsSketch sk = new ConcurrentLongsSketch(1024, 4, 16);
+    assertTrue(sk.isEmpty());
+    for (int i = 1; i <= 100; i++) {
+      sk.update(i, i);
+    }
+    sk.flush();
+    assertFalse(sk.isEmpty());
+    assertEquals(sk.getMaximumError(), 0);
+    assertEquals(sk.getStreamLength(), 5050);
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(sk.getEstimate(i), i);
+      assertEquals(sk.getLowerBound(i), i);
+      assertEquals(sk.getUpperBound(i), i);
+    }
+    final Row[] rows = sk.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(rows.length, 100);
+    assertEquals(rows[0].getItem(), 100);
+    assertEquals(sk.getFrequentItems(91, ErrorType.NO_FALSE_NEGATIVES).length, 10);
+    println(sk.toString());
+  }
+
+  @Test
+  public void checkSnapshotReuseAndLag() {
+    final ConcurrentLongsSketch sk = new ConcurrentLongsSketch(64, 1, 8);
+    sk.update(1);
+    sk.update(1, 0);
+    //not yet folded
+    assertTrue(sk.isEmpty());
+    sk.flush();
+    final LongsSketch snap1 = sk.getSnapshot();
+    assertSame(sk.getSnapshot(), snap1);
+    assertEquals(snap1.getEstimate(1), 1);
+    //fills the local buffer capacity of 6, then the 7th distinct item forces a fold
+    for (int i = 2; i <= 8; i++) { sk.update(i); }
+    final LongsSketch snap2 = sk.getSnapshot();
+    assertTrue(snap2 != snap1);
+    assertEquals(snap2.getStreamLength(), 7);
+    assertEquals(snap1.getStreamLength(), 1);
+  }
+
+  @Test
+  public void checkMatchesSequentialBoundsMultiThreaded() throws InterruptedException {
+    final int maxMapSize = 64;
+    final int numThreads = 4;
+    final int n = 20_000;
+    final ConcurrentLongsSketch sk = new ConcurrentLongsSketch(maxMapSize, 4, 16);
+    final Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int seed = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < n; i++) {
+          //a skewed stream: item 0 is heavy, the rest is a long tail
+          sk.update(((i + seed) % 3) == 0 ? 0 : (i * 31L) + seed);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) { thread.join(); }
+    sk.flush();
+    final long w = (long) numThreads * n;
+    assertEquals(sk.getStreamLength(), w);
+    final long maxError = sk.getMaximumError();
+    assertTrue(maxError <= (long) (LongsSketch.getEpsilon(maxMapSize) * w));
+    final long trueCount0 = w / 3;
+    assertTrue(sk.getLowerBound(0) <= trueCount0 + numThreads);
+    assertTrue(sk.getUpperBound(0) >= trueCount0 - numThreads);
+    final Row[] rows = sk.getFrequentItems(ErrorType.NO_FALSE_NEGATIVES);
+    assertEquals(rows[0].getItem(), 0);
+  }
+
+  @Test
+  public void checkSerializeAndReset() {
+    final ConcurrentLongsSketch sk = new ConcurrentLongsSketch(128);
+    for (int i = 0; i < 1000; i++) { sk.update(i % 50); }
+    final LongsSketch copy = LongsSketch.getInstance(Memory.wrap(sk.toByteArray()));
+    assertEquals(copy.getStreamLength(), 1000);
+    assertEquals(copy.getEstimate(7), 20);
+    sk.reset();
+    assertTrue(sk.isEmpty());
+    sk.flush();
+    assertTrue(sk.isEmpty());
+  }
+
+  @Test
+  public void checkBadArgs() {
+    try {
+      new ConcurrentLongsSketch(64, 3, 8);
+      throw new AssertionError();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      new ConcurrentLongsSketch(64, 4, 128);
+      throw new AssertionError();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      new ConcurrentLongsSketch(64).update(1, -1);
+      throw new AssertionError();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkCopy() {
+    final LongsSketch sk = new LongsSketch(32);
+    for (int i = 0; i < 100; i++) { sk.update(i % 40); }
+    final LongsSketch copy = sk.copy();
+    assertEquals(copy.serializeToString(), sk.serializeToString());
+    copy.update(1000);
+    assertEquals(sk.getEstimate(1000), 0);
+  }
+
+  static void println(final String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesReadOnlyException;
+import org.apache.datasketches.frequencies.LongsSketch.Row;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+
+public class DirectLongsSketchTest {
+
+  @Test
+  public void checkExactModeMatchesHeap() {
+    final int maxMapSize = 64;
+    final WritableMemory wmem =
+        WritableMemory.allocate((int) LongsSketch.getRequiredDirectBytes(maxMapSize));
+    final LongsSketch dsk = LongsSketch.newDirectInstance(maxMapSize, wmem);
+    final LongsSketch hsk = new LongsSketch(maxMapSize);
+    assertTrue(dsk.isDirect());
+    assertFalse(dsk.isReadOnly());
+    assertFalse(hsk.isDirect());
+    assertTrue(dsk.isEmpty());
+    for (int i = 1; i <= 40; i++) {
+      dsk.update(i, i);
+      hsk.update(i, i);
+    }
+    dsk.update(5);
+    hsk.update(5);
+    assertEquals(dsk.getNumActiveItems(), 40);
+    assertEquals(dsk.getStreamLength(), hsk.getStreamLength());
+    assertEquals(dsk.getMaximumError(), 0);
+    assertEquals(dsk.getMaximumMapCapacity(), hsk.getMaximumMapCapacity());
+    for (int i = 1; i <= 41; i++) {
+      assertEquals(dsk.getEstimate(i), hsk.getEstimate(i));
+      assertEquals(dsk.getLowerBound(i), hsk.getLowerBound(i));
+      assertEquals(dsk.getUpperBound(i), hsk.getUpperBound(i));
+    }
+    final Row[] dRows = dsk.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    final Row[] hRows = hsk.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(dRows.length, hRows.length);
+    for (int i = 0; i < dRows.length; i++) {
+      assertEquals(dRows[i].getEstimate(), hRows[i].getEstimate());
+    }
+    //the compact form is identical to that of the heap sketch, except for LgCur
+    final LongsSketch hsk2 = LongsSketch.getInstance(Memory.wrap(dsk.toByteArray()));
+    assertEquals(hsk2.getStreamLength(), dsk.getStreamLength());
+    assertEquals(hsk2.getEstimate(5), 6);
+    assertEquals(LongsSketch.getInstance(dsk.serializeToString()).getEstimate(5), 6);
+    println(dsk.toString());
+    println(LongsSketch.toString(wmem));
+  }
+
+  @Test
+  public void checkPurgeAndBounds() {
+    final int maxMapSize = 32;
+    final WritableMemory wmem =
+        WritableMemory.allocate((int) LongsSketch.getRequiredDirectBytes(maxMapSize));
+    final LongsSketch dsk = LongsSketch.newDirectInstance(maxMapSize, wmem);
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      dsk.update(((i % 3) == 0) ? 0 : i);
+    }
+    assertTrue(dsk.getMaximumError() > 0);
+    assertTrue(dsk.getMaximumError() <= (long) (LongsSketch.getEpsilon(maxMapSize) * n));
+    assertTrue(dsk.getNumActiveItems() <= dsk.getMaximumMapCapacity());
+    assertTrue(dsk.getLowerBound(0) <= 3334);
+    assertTrue(dsk.getUpperBound(0) >= 3334);
+    assertEquals(dsk.getFrequentItems(ErrorType.NO_FALSE_NEGATIVES)[0].getItem(), 0);
+  }
+
+  @Test
+  public void checkWrapAndMerge() {
+    final int maxMapSize = 128;
+    final WritableMemory wmem =
+        WritableMemory.allocate((int) LongsSketch.getRequiredDirectBytes(maxMapSize));
+    final LongsSketch dsk1 = LongsSketch.newDirectInstance(maxMapSize, wmem);
+    for (int i = 0; i < 20; i++) { dsk1.update(i, 2); }
+
+    //re-wrap the same memory as a new sketch and keep updating in place
+    final LongsSketch dsk2 = LongsSketch.writableWrap(wmem);
+    final LongsSketch hsk = new LongsSketch(64);
+    for (int i = 10; i < 30; i++) { hsk.update(i, 3); }
+    dsk2.merge(hsk);
+    assertEquals(dsk1.getStreamLength(), 100);
+    assertEquals(dsk1.getEstimate(15), 5);
+    assertEquals(dsk1.getEstimate(25), 3);
+    dsk2.merge(dsk2);
+    assertEquals(dsk1.getEstimate(15), 10);
+
+    //a heap sketch can merge a direct sketch
+    final LongsSketch hsk2 = new LongsSketch(256).merge(dsk1);
+    assertEquals(hsk2.getStreamLength(), 200);
+    assertEquals(hsk2.getEstimate(15), 10);
+
+    //heapify the updatable image
+    final LongsSketch hsk3 = LongsSketch.getInstance(wmem);
+    assertFalse(hsk3.isDirect());
+    assertEquals(hsk3.getStreamLength(), 200);
+    assertEquals(hsk3.getEstimate(25), 6);
+
+    //read only wrap
+    final LongsSketch rsk = LongsSketch.wrap(wmem);
+    assertTrue(rsk.isReadOnly());
+    assertEquals(rsk.getEstimate(0), 4);
+    try {
+      rsk.update(1);
+      fail();
+    } catch (final SketchesReadOnlyException e) { }
+    try {
+      rsk.reset();
+      fail();
+    } catch (final SketchesReadOnlyException e) { }
+
+    dsk1.reset();
+    assertTrue(dsk2.isEmpty());
+    assertEquals(dsk2.getStreamLength(), 0);
+    assertEquals(dsk2.toByteArray().length, 8);
+  }
+
+  @Test
+  public void checkBadMemory() {
+    try {
+      LongsSketch.newDirectInstance(64, WritableMemory.allocate(100));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    final LongsSketch hsk = new LongsSketch(8);
+    hsk.update(1);
+    try {
+      LongsSketch.wrap(Memory.wrap(hsk.toByteArray()));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    final WritableMemory wmem = WritableMemory.allocate((int) LongsSketch.getRequiredDirectBytes(8));
+    LongsSketch.newDirectInstance(8, wmem);
+    try {
+      LongsSketch.wrap(wmem.region(0, 100));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  static void println(final String s) {
+    //System.out.println(s); //disable here
+  }
+}
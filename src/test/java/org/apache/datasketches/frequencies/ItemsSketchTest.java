@@ -414,6 +414,31 @@ public class ItemsSketchTest {
   }
 
 
+  @Test
+  public void checkBatchUpdate() {
+    final String[] items = new String[100];
+    final long[] counts = new long[100];
+    for (int i = 0; i < 100; i++) {
+      items[i] = (i == 50) ? null : "item" + (i % 7);
+      counts[i] = i % 4;
+    }
+    final ItemsSketch<String> sk1 = new ItemsSketch<>(64);
+    final ItemsSketch<String> sk2 = new ItemsSketch<>(64);
+    sk1.update(items, counts, 0, 100);
+    for (int i = 0; i < 100; i++) { sk2.update(items[i], counts[i]); }
+    assertEquals(sk1.getStreamLength(), sk2.getStreamLength());
+    assertEquals(sk1.getNumActiveItems(), 7);
+    for (int i = 0; i < 7; i++) {
+      assertEquals(sk1.getEstimate("item" + i), sk2.getEstimate("item" + i));
+    }
+    try {
+      sk1.update(items, new long[] {-1}, 0, 1);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
   /**
    * @param s value to print
    */
@@ -599,6 +599,55 @@ public class LongsSketchTest {
     }
   }
 
+  @Test
+  public void checkBatchUpdate() {
+    final long[] items = new long[1000];
+    final long[] counts = new long[1000];
+    for (int i = 0; i < 1000; i++) {
+      items[i] = i % 10;
+      counts[i] = (i % 3 == 0) ? 0 : 2;
+    }
+    final LongsSketch sk1 = new LongsSketch(64);
+    final LongsSketch sk2 = new LongsSketch(64);
+    sk1.update(items, counts, 1, 998);
+    for (int i = 1; i < 999; i++) { sk2.update(items[i], counts[i]); }
+    assertEquals(sk1.getStreamLength(), sk2.getStreamLength());
+    assertEquals(sk1.getNumActiveItems(), 10);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(sk1.getEstimate(i), sk2.getEstimate(i));
+    }
+    sk1.update(new long[] {42}, new long[] {5}, 0, 1);
+    assertEquals(sk1.getEstimate(42), 5);
+
+    //many distinct items in one batch still purge correctly
+    final int n = 10_000;
+    final long[] items2 = new long[n];
+    final long[] counts2 = new long[n];
+    for (int i = 0; i < n; i++) {
+      items2[i] = ((i % 3) == 0) ? -1 : i;
+      counts2[i] = 1;
+    }
+    final LongsSketch sk3 = new LongsSketch(32);
+    sk3.update(items2, counts2, 0, n);
+    assertEquals(sk3.getStreamLength(), n);
+    assertTrue(sk3.getMaximumError() > 0);
+    assertTrue(sk3.getLowerBound(-1) <= 3334);
+    assertTrue(sk3.getUpperBound(-1) >= 3334);
+
+    try {
+      sk1.update(items, new long[] {1, -1}, 0, 2);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+    try {
+      sk1.update(items, counts, 999, 2);
+      fail();
+    } catch (SketchesArgumentException e) {
+      //expected
+    }
+  }
+
   /**
    * @param s value to print
    */
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.frequencies.LongsSketch.Row;
+
+public class SlidingWindowLongsSketchTest {
+
+  @Test
+  public void checkWindowMatchesMergedPanes() {
+    final int numPanes = 5;
+    final int numRounds = 23;
+    final SlidingWindowLongsSketch sw = new SlidingWindowLongsSketch(256, numPanes);
+    final LongsSketch[] panes = new LongsSketch[numRounds];
+    for (int r = 0; r < numRounds; r++) {
+      panes[r] = new LongsSketch(256);
+      for (int i = 0; i < 50; i++) {
+        final long item = (i % 10) + r; //items drift with the pane number
+        sw.update(item, i % 3);
+        panes[r].update(item, i % 3);
+      }
+      //merge the panes of the window by brute force
+      final LongsSketch expected = new LongsSketch(256);
+      for (int p = Math.max(0, (r - numPanes) + 1); p <= r; p++) { expected.merge(panes[p]); }
+      assertEquals(sw.getNumActivePanes(), Math.min(r + 1, numPanes));
+      assertEquals(sw.getStreamLength(), expected.getStreamLength());
+      assertEquals(sw.getMaximumError(), 0);
+      for (long item = 0; item < (numRounds + 10); item++) {
+        assertEquals(sw.getEstimate(item), expected.getEstimate(item));
+        assertEquals(sw.getLowerBound(item), expected.getLowerBound(item));
+        assertEquals(sw.getUpperBound(item), expected.getUpperBound(item));
+      }
+      final Row[] rows = sw.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+      assertEquals(rows.length, expected.getFrequentItems(ErrorType.NO_FALSE_POSITIVES).length);
+      assertEquals(sw.getFrequentItems(0, ErrorType.NO_FALSE_NEGATIVES).length,
+          expected.getNumActiveItems());
+      sw.advance();
+    }
+    assertEquals(sw.getWindowSketch().getStreamLength(), sw.getStreamLength());
+    println(sw.toString());
+  }
+
+  @Test
+  public void checkEvictionAndBounds() {
+    final SlidingWindowLongsSketch sw = new SlidingWindowLongsSketch(16, 3);
+    for (int r = 0; r < 10; r++) {
+      for (int i = 0; i < 1000; i++) {
+        sw.update(((i % 4) == 0) ? r : 1000 + i);
+      }
+      assertTrue(sw.getLowerBound(r) <= 250);
+      assertTrue(sw.getUpperBound(r) >= 250);
+      if (r >= 3) { assertEquals(sw.getUpperBound(r - 3), sw.getMaximumError()); }
+      sw.advance();
+    }
+    assertEquals(sw.getStreamLength(), 2000);
+    sw.reset();
+    assertTrue(sw.isEmpty());
+    assertEquals(sw.getNumActivePanes(), 1);
+  }
+
+  @Test
+  public void checkSinglePane() {
+    final SlidingWindowLongsSketch sw = new SlidingWindowLongsSketch(8, 1);
+    sw.update(new long[] {1, 2, 1}, new long[] {1, 1, 1}, 0, 3);
+    assertEquals(sw.getEstimate(1), 2);
+    sw.advance();
+    assertTrue(sw.isEmpty());
+    assertEquals(sw.getNumPanes(), 1);
+    try {
+      new SlidingWindowLongsSketch(8, 0);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  static void println(final String s) {
+    //System.out.println(s); //disable here
+  }
+}
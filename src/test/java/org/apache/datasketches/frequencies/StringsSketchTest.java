@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.frequencies;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.common.ArrayOfStringsSerDe;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.frequencies.ItemsSketch.Row;
+import org.apache.datasketches.memory.Memory;
+
+public class StringsSketchTest {
+
+  @Test
+  public void checkEmpty() {
+    final StringsSketch sk = new StringsSketch(8);
+    assertTrue(sk.isEmpty());
+    assertEquals(sk.getNumActiveItems(), 0);
+    assertEquals(sk.getStreamLength(), 0);
+    assertEquals(sk.getFrequentItems(ErrorType.NO_FALSE_NEGATIVES).length, 0);
+    assertEquals(sk.getEstimate("a"), 0);
+    final byte[] bytes = sk.toByteArray();
+    assertEquals(bytes.length, 8);
+    final StringsSketch sk2 = StringsSketch.getInstance(Memory.wrap(bytes));
+    assertTrue(sk2.isEmpty());
+    assertEquals(sk2.getMaximumMapCapacity(), sk.getMaximumMapCapacity());
+  }
+
+  @Test
+  public void checkExactMode() {
+    final StringsSketch sk = new StringsSketch(64);
+    sk.update("alpha");
+    sk.update("beta", 3);
+    sk.update("alpha".getBytes(UTF_8));
+    final byte[] buf = "xxgammaxx".getBytes(UTF_8);
+    sk.update(buf, 2, 5, 10);
+    sk.update((String) null);
+    sk.update("delta", 0);
+    assertEquals(sk.getNumActiveItems(), 3);
+    assertEquals(sk.getStreamLength(), 15);
+    assertEquals(sk.getEstimate("alpha"), 2);
+    assertEquals(sk.getEstimate("beta"), 3);
+    assertEquals(sk.getEstimate("gamma"), 10);
+    assertEquals(sk.getLowerBound("gamma".getBytes(UTF_8)), 10);
+    assertEquals(sk.getUpperBound("gamma"), 10);
+    assertEquals(sk.getEstimate("delta"), 0);
+    final Row<String>[] rows = sk.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(rows.length, 3);
+    assertEquals(rows[0].getItem(), "gamma");
+    assertEquals(rows[2].getItem(), "alpha");
+    println(sk.toString());
+  }
+
+  @Test
+  public void checkMatchesItemsSketch() {
+    final int maxMapSize = 32;
+    final StringsSketch sk1 = new StringsSketch(maxMapSize);
+    final ItemsSketch<String> sk2 = new ItemsSketch<>(maxMapSize);
+    for (int i = 0; i < 10_000; i++) {
+      //skewed stream with a long tail of unique items to force purges and slab compaction
+      final String item = (i % 4) == 0 ? "heavy" : ((i % 7) == 0 ? "mediumé" : "tail" + i);
+      sk1.update(item);
+      sk2.update(item);
+    }
+    assertEquals(sk1.getStreamLength(), sk2.getStreamLength());
+    assertTrue(sk1.getMaximumError() > 0);
+    assertTrue(sk1.getMaximumError() <= (long) (StringsSketch.getEpsilon(maxMapSize) * 10_000));
+    assertTrue(sk1.getLowerBound("heavy") <= 2500);
+    assertTrue(sk1.getUpperBound("heavy") >= 2500);
+    final Row<String>[] rows = sk1.getFrequentItems(ErrorType.NO_FALSE_POSITIVES);
+    assertEquals(rows[0].getItem(), "heavy");
+    assertEquals(rows[1].getItem(), "mediumé");
+  }
+
+  @Test
+  public void checkSerDeCompatibleWithItemsSketch() {
+    final StringsSketch sk1 = new StringsSketch(16);
+    for (int i = 0; i < 100; i++) {
+      sk1.update("item" + (i % 20), i + 1);
+    }
+    final byte[] bytes1 = sk1.toByteArray();
+    assertEquals(bytes1.length, sk1.getStorageBytes());
+    final ItemsSketch<String> sk2 =
+        ItemsSketch.getInstance(Memory.wrap(bytes1), new ArrayOfStringsSerDe());
+    assertEquals(sk2.getNumActiveItems(), sk1.getNumActiveItems());
+    assertEquals(sk2.getStreamLength(), sk1.getStreamLength());
+    assertEquals(sk2.getMaximumError(), sk1.getMaximumError());
+    for (int i = 0; i < 20; i++) {
+      assertEquals(sk2.getEstimate("item" + i), sk1.getEstimate("item" + i));
+    }
+
+    final byte[] bytes2 = sk2.toByteArray(new ArrayOfStringsSerDe());
+    final StringsSketch sk3 = StringsSketch.getInstance(Memory.wrap(bytes2));
+    assertEquals(sk3.getNumActiveItems(), sk1.getNumActiveItems());
+    assertEquals(sk3.getStreamLength(), sk1.getStreamLength());
+    assertEquals(sk3.getMaximumError(), sk1.getMaximumError());
+    for (int i = 0; i < 20; i++) {
+      assertEquals(sk3.getEstimate("item" + i), sk1.getEstimate("item" + i));
+    }
+  }
+
+  @Test
+  public void checkMerge() {
+    final StringsSketch sk1 = new StringsSketch(256);
+    final StringsSketch sk2 = new StringsSketch(256);
+    for (int i = 0; i < 50; i++) {
+      sk1.update("a" + i);
+      sk2.update("a" + i, 2);
+      sk2.update("b" + i);
+    }
+    sk1.merge(sk2).merge(null).merge(new StringsSketch(8));
+    assertEquals(sk1.getStreamLength(), 200);
+    assertEquals(sk1.getEstimate("a7"), 3);
+    assertEquals(sk1.getEstimate("b7"), 1);
+    sk1.reset();
+    assertTrue(sk1.isEmpty());
+    assertEquals(sk1.getStreamLength(), 0);
+  }
+
+  @Test
+  public void checkNegativeCount() {
+    final StringsSketch sk = new StringsSketch(8);
+    try {
+      sk.update("a", -1);
+      throw new AssertionError();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkMapResizeAndSlabGrowth() {
+    final ReversePurgeUtf8HashMap map = new ReversePurgeUtf8HashMap(8);
+    final byte[] longKey = new byte[1000];
+    for (int i = 0; i < 6; i++) {
+      longKey[0] = (byte) i;
+      map.adjustOrPutValue(longKey, 0, longKey.length,
+          ReversePurgeUtf8HashMap.hash(longKey, 0, longKey.length), i + 1);
+    }
+    map.resize(16);
+    assertEquals(map.getNumActive(), 6);
+    assertEquals(map.getActiveKeyBytes(), 6000);
+    for (int i = 0; i < 6; i++) {
+      longKey[0] = (byte) i;
+      assertEquals(map.get(longKey, 0, longKey.length,
+          ReversePurgeUtf8HashMap.hash(longKey, 0, longKey.length)), i + 1);
+    }
+    map.adjustAllValuesBy(-3);
+    map.keepOnlyPositiveCounts();
+    assertEquals(map.getNumActive(), 3);
+    assertEquals(map.getActiveKeyBytes(), 3000);
+  }
+
+  static void println(final String s) {
+    //System.out.println(s); //disable here
+  }
+}
@@ -0,0 +1,445 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.apache.datasketches.kll;
+
+import static org.apache.datasketches.kll.KllSketch.SketchType.LONGS_SKETCH;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.kll.KllSketch.SketchStructure;
+import org.apache.datasketches.memory.DefaultMemoryRequestServer;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.testng.annotations.Test;
+
+public class KllDirectLongsSketchTest {
+
+  private static final double PMF_EPS_FOR_K_128 = 0.025; // PMF rank error (epsilon) for k=128
+  private static final double PMF_EPS_FOR_K_256 = 0.013; // PMF rank error (epsilon) for k=256
+  private static final DefaultMemoryRequestServer memReqSvr = new DefaultMemoryRequestServer();
+
+  @Test
+  public void empty() {
+    final KllLongsSketch sketch = getUpdatableDirectLongsSketch(200, 0);
+    assertTrue(sketch.isEmpty());
+    assertTrue(sketch.isMemoryUpdatableFormat());
+    assertEquals(sketch.getN(), 0);
+    assertEquals(sketch.getNumRetained(), 0);
+    try { sketch.getRank(0); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getMinItem(); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getMaxItem(); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getQuantile(0.5); fail(); } catch (SketchesArgumentException e) {}
+    //the empty sentinels are held in the image
+    assertEquals(sketch.getMinItemInternal(), Long.MAX_VALUE);
+    assertEquals(sketch.getMaxItemInternal(), Long.MIN_VALUE);
+  }
+
+  @Test
+  public void oneValue() {
+    final KllLongsSketch sketch = getUpdatableDirectLongsSketch(200, 0);
+    sketch.update(1);
+    assertFalse(sketch.isEmpty());
+    assertEquals(sketch.getN(), 1);
+    assertEquals(sketch.getNumRetained(), 1);
+    assertEquals(sketch.getRank(1, EXCLUSIVE), 0.0);
+    assertEquals(sketch.getRank(2), 1.0);
+    assertEquals(sketch.getMinItem(), 1L);
+    assertEquals(sketch.getMaxItem(), 1L);
+    assertEquals(sketch.getQuantile(0.5), 1L);
+  }
+
+  @Test
+  public void manyValuesEstimationMode() {
+    final KllLongsSketch sketch = getUpdatableDirectLongsSketch(200, 0);
+    final int n = 1_000_000;
+    for (int i = 0; i < n; i++) { sketch.update(i); }
+    assertEquals(sketch.getN(), n);
+    assertTrue(sketch.isEstimationMode());
+    //the sketch outgrew its initial memory
+    assertTrue(sketch.getWritableMemory().getCapacity()
+        > KllSketch.getMaxSerializedSizeBytes(200, 0, LONGS_SKETCH, true));
+    for (int i = 0; i < n; i += n / 20) {
+      assertEquals(sketch.getRank(i), (double) i / n, PMF_EPS_FOR_K_256);
+    }
+    assertEquals(sketch.getMinItem(), 0L);
+    assertEquals(sketch.getMaxItem(), n - 1L);
+  }
+
+  @Test
+  public void growFromMinimalMemory() {
+    final int k = 20;
+    final WritableMemory dstMem =
+        WritableMemory.allocate(KllSketch.getMaxSerializedSizeBytes(k, 0, LONGS_SKETCH, true));
+    final KllLongsSketch sk = KllLongsSketch.newDirectInstance(k, dstMem, memReqSvr);
+    final KllLongsSketch heapSk = KllLongsSketch.newHeapInstance(k);
+    for (long i = 1; i <= 10_000; i++) {
+      sk.update(i * 3);
+      heapSk.update(i * 3);
+    }
+    assertNotSame(sk.getWritableMemory(), dstMem);
+    assertEquals(sk.getN(), heapSk.getN());
+    assertEquals(sk.getNumLevels(), heapSk.getNumLevels());
+    assertEquals(sk.getNumRetained(), heapSk.getNumRetained());
+    assertEquals(sk.getMinItem(), 3L);
+    assertEquals(sk.getMaxItem(), 30_000L);
+    assertEquals(sk.currentSerializedSizeBytes(true), heapSk.currentSerializedSizeBytes(true));
+  }
+
+  @Test
+  public void merge() {
+    final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(200, 0);
+    final KllLongsSketch sketch2 = getUpdatableDirectLongsSketch(200, 0);
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(i);
+      sketch2.update((2 * n) - i - 1);
+    }
+    sketch1.merge(sketch2);
+    assertFalse(sketch1.isEmpty());
+    assertEquals(sketch1.getN(), 2L * n);
+    assertEquals(sketch1.getMinItem(), 0L);
+    assertEquals(sketch1.getMaxItem(), (2L * n) - 1);
+    assertEquals(sketch1.getQuantile(0.5), n, 2 * n * PMF_EPS_FOR_K_256);
+  }
+
+  @Test
+  public void mergeLowerK() {
+    final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(256, 0);
+    final KllLongsSketch sketch2 = getUpdatableDirectLongsSketch(128, 0);
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(i);
+      sketch2.update((2 * n) - i - 1);
+    }
+    assertTrue(sketch1.getNormalizedRankError(false) < sketch2.getNormalizedRankError(false));
+    sketch1.merge(sketch2);
+    // sketch1 must get "contaminated" by the lower K in sketch2
+    assertEquals(sketch1.getNormalizedRankError(false), sketch2.getNormalizedRankError(false));
+    assertEquals(sketch1.getNormalizedRankError(true), sketch2.getNormalizedRankError(true));
+    assertEquals(sketch1.getN(), 2L * n);
+    assertEquals(sketch1.getMinItem(), 0L);
+    assertEquals(sketch1.getMaxItem(), (2L * n) - 1);
+    assertEquals(sketch1.getQuantile(0.5), n, 2 * n * PMF_EPS_FOR_K_128);
+  }
+
+  @Test
+  public void serializeDeserializeEmptyViaCompactHeapify() {
+    final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(200, 0);
+    final byte[] bytes = sketch1.toByteArray(); //compact
+    assertEquals(bytes.length, 8);
+    final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(bytes));
+    assertEquals(bytes.length, sketch1.currentSerializedSizeBytes(false));
+    assertTrue(sketch2.isEmpty());
+    assertEquals(sketch2.getNumRetained(), 0);
+    assertEquals(sketch2.getN(), 0);
+    assertEquals(sketch2.getNormalizedRankError(false), sketch1.getNormalizedRankError(false));
+    try { sketch2.getMinItem(); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch2.getMaxItem(); fail(); } catch (SketchesArgumentException e) {}
+    assertEquals(sketch2.getMinItemInternal(), Long.MAX_VALUE);
+    assertEquals(sketch2.getMaxItemInternal(), Long.MIN_VALUE);
+    final KllLongsSketch sketch3 = KllLongsSketch.wrap(Memory.wrap(bytes));
+    assertTrue(sketch3.isEmpty());
+    assertEquals(sketch3.getMinItemInternal(), Long.MAX_VALUE);
+    assertEquals(sketch3.getMaxItemInternal(), Long.MIN_VALUE);
+  }
+
+  @Test
+  public void serializeDeserializeEmptyViaUpdatableWritableWrap() {
+    final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(200, 0);
+    final byte[] bytes = KllHelper.toByteArray(sketch1, true);
+    final KllLongsSketch sketch2 =
+        KllLongsSketch.writableWrap(WritableMemory.writableWrap(bytes), memReqSvr);
+    assertEquals(bytes.length, sketch1.currentSerializedSizeBytes(true));
+    assertTrue(sketch2.isEmpty());
+    assertEquals(sketch2.getNumRetained(), 0);
+    assertEquals(sketch2.getN(), 0);
+    try { sketch2.getMinItem(); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch2.getMaxItem(); fail(); } catch (SketchesArgumentException e) {}
+    assertEquals(sketch2.currentSerializedSizeBytes(true), sketch1.currentSerializedSizeBytes(true));
+    //the first update replaces the sentinels, also for items equal to them
+    sketch2.update(Long.MAX_VALUE);
+    assertEquals(sketch2.getMinItem(), Long.MAX_VALUE);
+    assertEquals(sketch2.getMaxItem(), Long.MAX_VALUE);
+    sketch2.update(Long.MIN_VALUE);
+    assertEquals(sketch2.getMinItem(), Long.MIN_VALUE);
+    assertEquals(sketch2.getMaxItem(), Long.MAX_VALUE);
+  }
+
+  @Test
+  public void serializeDeserializeOneValueViaCompactHeapify() {
+    for (final long item : new long[] {Long.MIN_VALUE, 1, Long.MAX_VALUE}) {
+      final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(200, 0);
+      sketch1.update(item);
+      final byte[] bytes = sketch1.toByteArray();
+      assertEquals(bytes.length, 8 + Long.BYTES);
+      final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(bytes));
+      final KllLongsSketch sketch3 = KllLongsSketch.wrap(Memory.wrap(bytes));
+      for (final KllLongsSketch sk : new KllLongsSketch[] {sketch2, sketch3}) {
+        assertFalse(sk.isEmpty());
+        assertEquals(sk.getNumRetained(), 1);
+        assertEquals(sk.getN(), 1);
+        assertEquals(sk.getMinItem(), item);
+        assertEquals(sk.getMaxItem(), item);
+        assertEquals(sk.getQuantile(0.5), item);
+        assertEquals(sk.currentSerializedSizeBytes(false), 8 + Long.BYTES);
+      }
+      assertEquals(sketch3.toByteArray(), bytes);
+    }
+  }
+
+  @Test
+  public void serializeDeserializeOneValueViaUpdatableWritableWrap() {
+    final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(200, 0);
+    sketch1.update(Long.MIN_VALUE);
+    final byte[] bytes = KllHelper.toByteArray(sketch1, true);
+    final KllLongsSketch sketch2 =
+        KllLongsSketch.writableWrap(WritableMemory.writableWrap(bytes), memReqSvr);
+    assertEquals(bytes.length, sketch1.currentSerializedSizeBytes(true));
+    assertFalse(sketch2.isEmpty());
+    assertEquals(sketch2.getNumRetained(), 1);
+    assertEquals(sketch2.getN(), 1);
+    assertEquals(sketch2.getMinItem(), Long.MIN_VALUE);
+    assertEquals(sketch2.getMaxItem(), Long.MIN_VALUE);
+    assertEquals(sketch2.currentSerializedSizeBytes(false), 8 + Long.BYTES);
+    assertEquals(sketch2.currentSerializedSizeBytes(true), bytes.length);
+  }
+
+  @Test
+  public void serializeDeserializeFullViaCompactHeapify() {
+    final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(200, 1000);
+    final byte[] bytes = sketch1.toByteArray(); //compact
+    final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(bytes));
+    assertEquals(bytes.length, sketch1.currentSerializedSizeBytes(false));
+    assertFalse(sketch2.isEmpty());
+    assertEquals(sketch2.getNumRetained(), sketch1.getNumRetained());
+    assertEquals(sketch2.getN(), sketch1.getN());
+    assertEquals(sketch2.getMinItem(), sketch1.getMinItem());
+    assertEquals(sketch2.getMaxItem(), sketch1.getMaxItem());
+    assertEquals(sketch2.currentSerializedSizeBytes(false), sketch1.currentSerializedSizeBytes(false));
+    assertEquals(sketch2.toByteArray(), bytes);
+  }
+
+  @Test
+  public void serializeDeserializeFullViaUpdatableWritableWrap() {
+    final KllLongsSketch sketch1 = getUpdatableDirectLongsSketch(200, 1000);
+    final byte[] bytes = KllHelper.toByteArray(sketch1, true); //updatable
+    final KllLongsSketch sketch2 =
+        KllLongsSketch.writableWrap(WritableMemory.writableWrap(bytes), memReqSvr);
+    assertEquals(bytes.length, sketch1.currentSerializedSizeBytes(true));
+    assertEquals(sketch2.getNumRetained(), sketch1.getNumRetained());
+    assertEquals(sketch2.getN(), sketch1.getN());
+    assertEquals(sketch2.getMinItem(), sketch1.getMinItem());
+    assertEquals(sketch2.getMaxItem(), sketch1.getMaxItem());
+    assertEquals(sketch2.currentSerializedSizeBytes(true), sketch1.currentSerializedSizeBytes(true));
+    assertEquals(sketch2.toByteArray(), sketch1.toByteArray());
+  }
+
+  @Test
+  public void checkSketchInitializeDirectLongsUpdatableMem() {
+    final int k = 20; //don't change this
+    final KllLongsSketch sk2 = KllLongsSketch.newHeapInstance(k);
+    for (int i = 1; i <= (k + 1); i++) { sk2.update(i); }
+    final WritableMemory wmem = WritableMemory.writableWrap(KllHelper.toByteArray(sk2, true));
+    final KllLongsSketch sk = KllLongsSketch.writableWrap(wmem, memReqSvr);
+    assertEquals(sk.getK(), k);
+    assertEquals(sk.getN(), k + 1);
+    assertEquals(sk.getNumRetained(), 11);
+    assertTrue(sk.isEstimationMode());
+    assertEquals(sk.getMinK(), k);
+    assertEquals(sk.getLongItemsArray().length, 33);
+    assertEquals(sk.levelsArr.length, 3);
+    assertEquals(sk.getMaxItem(), 21L);
+    assertEquals(sk.getMinItem(), 1L);
+    assertEquals(sk.getNumLevels(), 2);
+    assertFalse(sk.isLevelZeroSorted());
+    assertTrue(sk.isLongsSketch());
+    assertFalse(sk.isDoublesSketch());
+  }
+
+  @Test
+  public void checkGetWritableMemory() {
+    final KllLongsSketch sketch = getUpdatableDirectLongsSketch(200, 200);
+    assertEquals(sketch.getK(), 200);
+    assertEquals(sketch.getN(), 200);
+    assertTrue(sketch.isMemoryUpdatableFormat());
+    assertFalse(sketch.isEstimationMode());
+
+    final WritableMemory wmem = sketch.getWritableMemory();
+    final KllLongsSketch sk = KllHeapLongsSketch.heapifyImpl(wmem);
+    assertEquals(sk.getK(), 200);
+    assertEquals(sk.getN(), 200);
+    assertFalse(sk.isMemoryUpdatableFormat());
+    assertEquals(sk.getMinItem(), 1L);
+    assertEquals(sk.getMaxItem(), 200L);
+  }
+
+  @Test
+  public void checkReset() {
+    final WritableMemory dstMem = WritableMemory.allocate(6000);
+    final KllLongsSketch sk = KllLongsSketch.newDirectInstance(20, dstMem, memReqSvr);
+    for (int i = 1; i <= 100; i++) { sk.update(i); }
+    final long n1 = sk.getN();
+    final long min1 = sk.getMinItem();
+    final long max1 = sk.getMaxItem();
+    sk.reset();
+    assertTrue(sk.isEmpty());
+    assertEquals(sk.getMinItemInternal(), Long.MAX_VALUE);
+    assertEquals(sk.getMaxItemInternal(), Long.MIN_VALUE);
+    for (int i = 1; i <= 100; i++) { sk.update(i); }
+    assertEquals(sk.getN(), n1);
+    assertEquals(sk.getMinItem(), min1);
+    assertEquals(sk.getMaxItem(), max1);
+  }
+
+  @Test
+  public void checkMergeHeapIntoDirect() {
+    final WritableMemory dstMem = WritableMemory.allocate(6000);
+    final KllLongsSketch sk = KllLongsSketch.newDirectInstance(20, dstMem, memReqSvr);
+    for (int i = 1; i <= 21; i++) { sk.update(i); }
+    final KllLongsSketch sk2 = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 21; i++) { sk2.update(i + 100); }
+    sk.merge(sk2);
+    assertEquals(sk.getN(), 42);
+    assertEquals(sk.getMinItem(), 1L);
+    assertEquals(sk.getMaxItem(), 121L);
+  }
+
+  @Test
+  public void checkMergeDirectIntoHeap() {
+    final WritableMemory dstMem = WritableMemory.allocate(6000);
+    final KllLongsSketch sk = KllLongsSketch.newDirectInstance(20, dstMem, memReqSvr);
+    for (int i = 1; i <= 21; i++) { sk.update(i); }
+    final KllLongsSketch sk2 = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 21; i++) { sk2.update(i + 100); }
+    sk2.merge(sk);
+    assertEquals(sk2.getN(), 42);
+    assertEquals(sk2.getMinItem(), 1L);
+    assertEquals(sk2.getMaxItem(), 121L);
+    //and from a wrapped compact image
+    sk2.merge(KllLongsSketch.wrap(Memory.wrap(sk.toByteArray())));
+    assertEquals(sk2.getN(), 63);
+    assertEquals(sk2.getMinItem(), 1L);
+  }
+
+  @Test
+  public void checkWritableWrapOfCompactForm() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 21; i++) { sk.update(i); }
+    final WritableMemory srcMem = WritableMemory.writableWrap(sk.toByteArray());
+    final KllLongsSketch sk2 = KllLongsSketch.writableWrap(srcMem, memReqSvr);
+    assertTrue(sk2.isCompactMemoryFormat());
+    assertTrue(sk2.isReadOnly());
+    assertEquals(sk2.getMinItem(), 1L);
+    assertEquals(sk2.getMaxItem(), 21L);
+    try { sk2.update(1); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkWrapOfUpdatableForm() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 21; i++) { sk.update(i); }
+    final Memory mem = Memory.wrap(KllHelper.toByteArray(sk, true));
+    final KllLongsSketch sk2 = KllLongsSketch.wrap(mem);
+    assertTrue(sk2.isMemoryUpdatableFormat());
+    assertTrue(sk2.isReadOnly());
+    assertEquals(sk2.getN(), 21);
+    assertEquals(sk2.getQuantile(0.5), sk.getQuantile(0.5));
+    try { sk2.update(1); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkReadOnlyExceptions() {
+    final long[] lngArr = new long[0];
+    final long lngV = 1;
+    final int idx = 1;
+    final boolean bool = true;
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    final KllLongsSketch sk2 = KllLongsSketch.wrap(Memory.wrap(sk.toByteArray()));
+    try { sk2.incN(1);                         fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.incNumLevels();                  fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setLongItemsArray(lngArr);       fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setLongItemsArrayAt(idx, lngV);  fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setLevelZeroSorted(bool);        fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setMaxItem(lngV);                fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setMinItem(lngV);                fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setMinK(idx);                    fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setN(idx);                       fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setNumLevels(idx);               fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void checkMergeExceptions() {
+    final KllLongsSketch sk1 = KllLongsSketch.newHeapInstance(20);
+    final WritableMemory srcMem1 = WritableMemory.writableWrap(sk1.toByteArray());
+    final KllLongsSketch sk2 = KllLongsSketch.writableWrap(srcMem1, memReqSvr);
+    sk2.merge(sk1);
+  }
+
+  @Test
+  public void checkMergeExceptionsWrongType() {
+    final KllDoublesSketch sk1 = KllDoublesSketch.newHeapInstance(20);
+    final KllLongsSketch sk2 = KllLongsSketch.newHeapInstance(20);
+    try { sk1.merge(sk2); fail(); } catch (ClassCastException e) { }
+    try { sk2.merge(sk1); fail(); } catch (ClassCastException e) { }
+  }
+
+  @Test
+  public void checkVectorUpdate() {
+    final WritableMemory dstMem = WritableMemory.allocate(6000);
+    final KllLongsSketch sk = KllLongsSketch.newDirectInstance(20, dstMem, memReqSvr);
+    final long[] v = new long[21];
+    for (int i = 0; i < 21; i++) { v[i] = i + 1; }
+    sk.update(v, 0, 21);
+    final int[] levelsArr = sk.getLevelsArray(SketchStructure.UPDATABLE);
+    assertEquals(levelsArr[0], 22);
+    final long[] longsArr = sk.getLongItemsArray();
+    assertEquals(longsArr[22], 21);
+    assertEquals(sk.getN(), 21);
+    assertEquals(sk.getMinItem(), 1L);
+    assertEquals(sk.getMaxItem(), 21L);
+  }
+
+  @Test
+  public void checkWeightedUpdate() {
+    final WritableMemory dstMem = WritableMemory.allocate(6000);
+    final KllLongsSketch sk = KllLongsSketch.newDirectInstance(8, dstMem, memReqSvr);
+    for (int i = 0; i < 16; i++) {
+      sk.update(i + 1, 16);
+    }
+    assertEquals(sk.getN(), 256);
+    assertEquals(sk.getMaxItem(), 16L);
+    assertEquals(sk.getMinItem(), 1L);
+    assertEquals(sk.getRank(8), 0.5, 0.1);
+  }
+
+  private static KllLongsSketch getUpdatableDirectLongsSketch(final int k, final int n) {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(k);
+    for (int i = 1; i <= n; i++) { sk.update(i); }
+    final byte[] byteArr = KllHelper.toByteArray(sk, true);
+    final WritableMemory wmem = WritableMemory.writableWrap(byteArr);
+    return KllLongsSketch.writableWrap(wmem, memReqSvr);
+  }
+}
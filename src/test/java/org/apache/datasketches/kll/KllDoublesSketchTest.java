@@ -29,6 +29,10 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.Memory;
@@ -708,6 +712,112 @@ public class KllDoublesSketchTest {
     printf("  nS / Update : %,12.3f" + LS, updateTime);
   }
 
+  @Test
+  public void mergeAllExactMode() {
+    final List<KllSketch> sketches = new ArrayList<>();
+    final KllDoublesSketch sequential = KllDoublesSketch.newHeapInstance(200);
+    for (int s = 0; s < 10; s++) {
+      final KllDoublesSketch sk = KllDoublesSketch.newHeapInstance(200);
+      for (int i = 0; i < 10; i++) { sk.update((s * 10) + i); }
+      sequential.merge(sk);
+      sketches.add(sk);
+    }
+    sketches.add(null);
+    sketches.add(KllDoublesSketch.newHeapInstance(200));
+    final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance(200);
+    sketch.update(-1);
+    sequential.update(-1);
+    sketch.mergeAll(sketches);
+    assertEquals(sketch.getN(), 101);
+    assertFalse(sketch.isEstimationMode());
+    assertEquals(sketch.getMinItem(), -1.0);
+    assertEquals(sketch.getMaxItem(), 99.0);
+    for (int i = -1; i < 100; i++) {
+      assertEquals(sketch.getRank(i), sequential.getRank(i));
+    }
+  }
+
+  @Test
+  public void mergeAllEstimationModeWithMemoryInputs() {
+    final int numSketches = 100;
+    final int n = 1000;
+    final List<KllSketch> sketches = new ArrayList<>();
+    for (int s = 0; s < numSketches; s++) {
+      final KllDoublesSketch sk = KllDoublesSketch.newHeapInstance(200);
+      for (int i = 0; i < n; i++) { sk.update((i * numSketches) + s); }
+      //mix heap, wrapped compact and wrapped updatable inputs
+      if ((s % 3) == 0) {
+        sketches.add(KllDoublesSketch.wrap(Memory.wrap(sk.toByteArray())));
+      } else if ((s % 3) == 1) {
+        sketches.add(KllDoublesSketch.writableWrap(
+            WritableMemory.writableWrap(KllHelper.toByteArray(sk, true)), memReqSvr));
+      } else {
+        sketches.add(sk);
+      }
+    }
+    final KllDoublesSketch single = KllDoublesSketch.newHeapInstance(200);
+    single.update(-5);
+    sketches.add(KllDoublesSketch.wrap(Memory.wrap(single.toByteArray())));
+
+    final WritableMemory dstMem = WritableMemory.allocate(2000); //must grow
+    final KllDoublesSketch sketch = KllDoublesSketch.newDirectInstance(200, dstMem, memReqSvr);
+    sketch.mergeAll(sketches);
+    final long totalN = ((long) numSketches * n) + 1;
+    assertEquals(sketch.getN(), totalN);
+    assertTrue(sketch.isEstimationMode());
+    assertEquals(sketch.getMinItem(), -5.0);
+    assertEquals(sketch.getMaxItem(), (double) ((numSketches * n) - 1));
+    assertTrue(sketch.getNumRetained() <= KllHelper.computeTotalItemCapacity(200, 8, sketch.getNumLevels()));
+    final double eps = sketch.getNormalizedRankError(false);
+    for (int q = 0; q < (numSketches * n); q += 5000) {
+      assertEquals(sketch.getRank(q), (q + 1.0) / totalN, 2 * eps);
+    }
+    //the result remains usable by the standard merge and update paths
+    sketch.merge(single);
+    sketch.update(1);
+    assertEquals(sketch.getN(), totalN + 2);
+    final KllDoublesSketch sketch2 = KllDoublesSketch.heapify(Memory.wrap(sketch.toByteArray()));
+    assertEquals(sketch2.getN(), totalN + 2);
+  }
+
+  @Test
+  public void incrementalSortedViewRefresh() {
+    final KllDoublesSketch sk = KllDoublesSketch.newHeapInstance(20);
+    final KllDoublesSketch other = KllDoublesSketch.newHeapInstance(20);
+    for (int i = 0; i < 1000; i++) { other.update(i); }
+    int v = 0;
+    for (int round = 0; round < 60; round++) {
+      //interleave a few updates with every query, with or without a compaction in between
+      for (int i = 0; i < 7; i++) { sk.update(((v++ * 31) % 1009)); }
+      if ((round % 10) == 3) { sk.update(v, 100); }
+      if (round == 40) { sk.merge(other); }
+      if (round == 50) { sk.reset(); }
+      if (sk.isEmpty()) { continue; }
+      final DoublesSortedView sv = sk.getSortedView();
+      final DoublesSortedView rebuilt = KllDoublesSketch.heapify(Memory.wrap(sk.toByteArray())).getSortedView();
+      assertEquals(sv.getN(), rebuilt.getN());
+      assertEquals(sv.getQuantiles(), rebuilt.getQuantiles());
+      for (final double q : rebuilt.getQuantiles()) {
+        assertEquals(sv.getRank(q, INCLUSIVE), rebuilt.getRank(q, INCLUSIVE));
+        assertEquals(sv.getRank(q, EXCLUSIVE), rebuilt.getRank(q, EXCLUSIVE));
+      }
+      for (int i = 0; i <= 20; i++) {
+        assertEquals(sv.getQuantile(i / 20.0, INCLUSIVE), rebuilt.getQuantile(i / 20.0, INCLUSIVE));
+      }
+    }
+  }
+
+  @Test
+  public void mergeAllErrors() {
+    final KllDoublesSketch sketch = KllDoublesSketch.newHeapInstance(200);
+    sketch.update(1);
+    try { sketch.mergeAll(Arrays.asList(sketch)); fail(); } catch (SketchesArgumentException e) {}
+    final KllDoublesSketch compact = KllDoublesSketch.wrap(Memory.wrap(sketch.toByteArray()));
+    try { compact.mergeAll(Arrays.asList(sketch)); fail(); } catch (SketchesArgumentException e) {}
+    sketch.mergeAll(new ArrayList<KllSketch>());
+    assertEquals(sketch.getN(), 1);
+  }
+
   private final static boolean enablePrinting = false;
 
   /**
@@ -34,7 +34,10 @@ import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
 import org.apache.datasketches.common.ArrayOfStringsSerDe;
@@ -770,6 +773,40 @@ public class KllItemsSketchTest {
     }
   }
 
+  @Test
+  public void mergeAllWithMemoryInputs() {
+    final int numSketches = 50;
+    final int n = 1000;
+    final List<KllSketch> sketches = new ArrayList<>();
+    final KllItemsSketch<String> sequential = KllItemsSketch.newHeapInstance(200, Comparator.naturalOrder(), serDe);
+    for (int s = 0; s < numSketches; s++) {
+      final KllItemsSketch<String> sk = KllItemsSketch.newHeapInstance(200, Comparator.naturalOrder(), serDe);
+      for (int i = 0; i < n; i++) { sk.update(getString((i * numSketches) + s + 1, 6)); }
+      sequential.merge(sk);
+      //mix heap and wrapped compact inputs
+      sketches.add(((s % 2) == 0) ? sk : KllItemsSketch.wrap(Memory.wrap(sk.toByteArray()), Comparator.naturalOrder(), serDe));
+    }
+    final KllItemsSketch<String> single = KllItemsSketch.newHeapInstance(200, Comparator.naturalOrder(), serDe);
+    single.update(getString(0, 6));
+    sketches.add(KllItemsSketch.wrap(Memory.wrap(single.toByteArray()), Comparator.naturalOrder(), serDe));
+    sketches.add(null);
+
+    final KllItemsSketch<String> sketch = KllItemsSketch.newHeapInstance(200, Comparator.naturalOrder(), serDe);
+    sketch.mergeAll(sketches);
+    final long totalN = ((long) numSketches * n) + 1;
+    assertEquals(sketch.getN(), totalN);
+    assertTrue(sketch.isEstimationMode());
+    assertEquals(sketch.getMinItem(), getString(0, 6));
+    assertEquals(sketch.getMaxItem(), getString(numSketches * n, 6));
+    final double eps = sketch.getNormalizedRankError(false);
+    for (int q = 0; q < (numSketches * n); q += 2500) {
+      assertEquals(sketch.getRank(getString(q, 6)), (q + 1.0) / totalN, 2 * eps);
+    }
+    assertEquals(sequential.getMaxItem(), sketch.getMaxItem());
+
+    try { sketch.mergeAll(Arrays.asList(sketch)); fail(); } catch (SketchesArgumentException e) {}
+  }
+
   private final static boolean enablePrinting = false;
 
   /**
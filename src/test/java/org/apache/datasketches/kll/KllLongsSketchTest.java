@@ -0,0 +1,711 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.kll;
+
+import static org.apache.datasketches.kll.KllSketch.SketchType.LONGS_SKETCH;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.DefaultMemoryRequestServer;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.quantilescommon.LongsSortedView;
+import org.apache.datasketches.quantilescommon.LongsSortedViewIterator;
+import org.apache.datasketches.quantilescommon.QuantileSearchCriteria;
+import org.apache.datasketches.quantilescommon.QuantilesLongsSketchIterator;
+import org.testng.annotations.Test;
+
+public class KllLongsSketchTest {
+  private static final double PMF_EPS_FOR_K_200 = KllSketch.getNormalizedRankError(200, true);
+  private static final long BIG = (1L << 53) + 1; //not representable as a double
+  private static final double PMF_EPS_FOR_K_128 = 0.025; // PMF rank error (epsilon) for k=128
+  private static final double PMF_EPS_FOR_K_256 = 0.013; // PMF rank error (epsilon) for k=256
+  private static final double NUMERIC_NOISE_TOLERANCE = 1E-6;
+  private static final DefaultMemoryRequestServer memReqSvr = new DefaultMemoryRequestServer();
+
+  @Test
+  public void empty() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    assertTrue(sketch.isEmpty());
+    assertEquals(sketch.getN(), 0);
+    assertEquals(sketch.getNumRetained(), 0);
+    try { sketch.getRank(0); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getMinItem(); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getMaxItem(); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getQuantile(0.5); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getPMF(new long[] {0}); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.getCDF(new long[] {0}); fail(); } catch (SketchesArgumentException e) {}
+    assertNotNull(sketch.toString(true, true));
+    final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(sketch.toByteArray()));
+    assertTrue(sketch2.isEmpty());
+  }
+
+  @Test
+  public void exactLargeValues() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    sketch.update(BIG + 2);
+    sketch.update(BIG);
+    sketch.update(BIG + 1);
+    sketch.update(Long.MIN_VALUE);
+    assertEquals(sketch.getMinItem(), Long.MIN_VALUE);
+    assertEquals(sketch.getMaxItem(), BIG + 2);
+    assertEquals(sketch.getQuantile(0.5, INCLUSIVE), BIG);
+    assertEquals(sketch.getQuantile(0.75, INCLUSIVE), BIG + 1);
+    assertEquals(sketch.getRank(BIG, INCLUSIVE), 0.5);
+    assertEquals(sketch.getRank(BIG, EXCLUSIVE), 0.25);
+    final double[] cdf = sketch.getCDF(new long[] {BIG, BIG + 1});
+    assertEquals(cdf.length, 3);
+    assertEquals(cdf[0], 0.5);
+    assertEquals(cdf[1], 0.75);
+    assertEquals(cdf[2], 1.0);
+    try { sketch.getCDF(new long[] {BIG + 1, BIG}); fail(); } catch (SketchesArgumentException e) {}
+  }
+
+  @Test
+  public void manyItemsEstimationMode() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    final int n = 1_000_000;
+    for (int i = 0; i < n; i++) { sketch.update(BIG + i); }
+    assertTrue(sketch.isEstimationMode());
+    assertEquals(sketch.getN(), n);
+    assertEquals(sketch.getMinItem(), BIG);
+    assertEquals(sketch.getMaxItem(), BIG + n - 1);
+    for (int i = 1; i < 10; i++) {
+      final double rank = sketch.getRank(BIG + ((long) i * n / 10));
+      assertEquals(rank, i / 10.0, PMF_EPS_FOR_K_200);
+    }
+    long prev = Long.MIN_VALUE;
+    final LongsSortedView sv = sketch.getSortedView();
+    final LongsSortedViewIterator itr = sv.iterator();
+    while (itr.next()) {
+      assertTrue(itr.getQuantile() >= prev);
+      prev = itr.getQuantile();
+    }
+    long total = 0;
+    final QuantilesLongsSketchIterator sitr = sketch.iterator();
+    while (sitr.next()) { total += sitr.getWeight(); }
+    assertEquals(total, n);
+  }
+
+  @Test
+  public void weightedAndVectorUpdates() {
+    final KllLongsSketch sk1 = KllLongsSketch.newHeapInstance(20);
+    final KllLongsSketch sk2 = KllLongsSketch.newHeapInstance(20);
+    final long[] items = new long[1000];
+    for (int i = 0; i < items.length; i++) { items[i] = BIG + i; }
+    for (int i = 0; i < items.length; i++) { sk1.update(items[i]); }
+    sk2.update(items, 0, items.length);
+    assertEquals(sk2.getN(), sk1.getN());
+    assertEquals(sk2.getMinItem(), sk1.getMinItem());
+    assertEquals(sk2.getMaxItem(), sk1.getMaxItem());
+    sk2.update(-5, 100);
+    assertEquals(sk2.getN(), 1100);
+    assertEquals(sk2.getMinItem(), -5);
+    try { sk2.update(1, 0); fail(); } catch (SketchesArgumentException e) {}
+  }
+
+  @Test
+  public void mergeHeapAndDirect() {
+    final KllLongsSketch sk1 = KllLongsSketch.newHeapInstance();
+    final WritableMemory wmem = WritableMemory.allocate(
+        KllSketch.getMaxSerializedSizeBytes(200, 2000, LONGS_SKETCH, true));
+    final KllLongsSketch sk2 = KllLongsSketch.newDirectInstance(wmem, memReqSvr);
+    for (int i = 0; i < 1000; i++) {
+      sk1.update(BIG + i);
+      sk2.update(BIG + 1000 + i);
+    }
+    assertTrue(sk2.isMemoryUpdatableFormat());
+    sk1.merge(sk2);
+    assertEquals(sk1.getN(), 2000);
+    assertEquals(sk1.getMinItem(), BIG);
+    assertEquals(sk1.getMaxItem(), BIG + 1999);
+    assertEquals(sk1.getQuantile(0.5), BIG + 999, 2000 * PMF_EPS_FOR_K_200);
+    sk2.merge(sk1);
+    assertEquals(sk2.getN(), 3000);
+    assertEquals(sk2.getMinItem(), BIG);
+    sk2.reset();
+    assertTrue(sk2.isEmpty());
+    sk2.update(7);
+    assertEquals(sk2.getMinItem(), 7);
+    assertEquals(sk2.getMaxItem(), 7);
+  }
+
+  @Test
+  public void serDeRoundTrips() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance();
+    for (int i = 0; i < 5000; i++) { sk.update(BIG * (i % 97)); }
+    final byte[] bytes = sk.toByteArray();
+    assertEquals(bytes.length, sk.getSerializedSizeBytes());
+
+    final KllLongsSketch heapSk = KllLongsSketch.heapify(Memory.wrap(bytes));
+    final KllLongsSketch compactSk = KllLongsSketch.wrap(Memory.wrap(bytes));
+    assertTrue(compactSk.isCompactMemoryFormat());
+    assertFalse(heapSk.hasMemory());
+    for (final KllLongsSketch other : new KllLongsSketch[] {heapSk, compactSk}) {
+      assertEquals(other.getN(), sk.getN());
+      assertEquals(other.getNumRetained(), sk.getNumRetained());
+      assertEquals(other.getMinItem(), sk.getMinItem());
+      assertEquals(other.getMaxItem(), sk.getMaxItem());
+      assertEquals(other.getQuantile(0.5), sk.getQuantile(0.5));
+      assertEquals(other.getRank(BIG * 50), sk.getRank(BIG * 50));
+    }
+
+    final WritableMemory wmem = WritableMemory.writableWrap(KllHelper.toByteArray(sk, true));
+    final KllLongsSketch updSk = KllLongsSketch.writableWrap(wmem, memReqSvr);
+    assertFalse(updSk.isCompactMemoryFormat());
+    assertEquals(updSk.getQuantile(0.5), sk.getQuantile(0.5));
+    updSk.update(Long.MAX_VALUE);
+    assertEquals(updSk.getMaxItem(), Long.MAX_VALUE);
+
+    final KllLongsSketch single = KllLongsSketch.newHeapInstance();
+    single.update(BIG);
+    final KllLongsSketch singleSk = KllLongsSketch.wrap(Memory.wrap(single.toByteArray()));
+    assertEquals(singleSk.getMinItem(), BIG);
+    assertEquals(singleSk.getQuantile(1.0), BIG);
+  }
+
+  @Test
+  public void oneValue() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    sketch.update(1);
+    assertFalse(sketch.isEmpty());
+    assertEquals(sketch.getN(), 1);
+    assertEquals(sketch.getNumRetained(), 1);
+    assertEquals(sketch.getRank(0, EXCLUSIVE), 0.0);
+    assertEquals(sketch.getRank(1, EXCLUSIVE), 0.0);
+    assertEquals(sketch.getRank(2, EXCLUSIVE), 1.0);
+    assertEquals(sketch.getRank(0, INCLUSIVE), 0.0);
+    assertEquals(sketch.getRank(1, INCLUSIVE), 1.0);
+    assertEquals(sketch.getRank(2, INCLUSIVE), 1.0);
+    assertEquals(sketch.getMinItem(), 1L);
+    assertEquals(sketch.getMaxItem(), 1L);
+    assertEquals(sketch.getQuantile(0.5, EXCLUSIVE), 1L);
+    assertEquals(sketch.getQuantile(0.5, INCLUSIVE), 1L);
+  }
+
+  @Test
+  public void tenValues() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    for (int i = 1; i <= 10; i++) { sketch.update(i); }
+    assertFalse(sketch.isEmpty());
+    assertEquals(sketch.getN(), 10);
+    assertEquals(sketch.getNumRetained(), 10);
+    for (int i = 1; i <= 10; i++) {
+      assertEquals(sketch.getRank(i, EXCLUSIVE), (i - 1) / 10.0);
+      assertEquals(sketch.getRank(i, INCLUSIVE), i / 10.0);
+    }
+    final long[] qArr = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    double[] rOut = sketch.getRanks(qArr); //inclusive
+    for (int i = 0; i < qArr.length; i++) {
+      assertEquals(rOut[i], (i + 1) / 10.0);
+    }
+    rOut = sketch.getRanks(qArr, EXCLUSIVE);
+    for (int i = 0; i < qArr.length; i++) {
+      assertEquals(rOut[i], i / 10.0);
+    }
+    for (int i = 0; i <= 10; i++) {
+      final double rank = i / 10.0;
+      assertEquals(sketch.getQuantile(rank, EXCLUSIVE), i == 10 ? 10L : i + 1L);
+      assertEquals(sketch.getQuantile(rank, INCLUSIVE), i == 0 ? 1L : (long) i);
+    }
+    final long[] quantiles = sketch.getQuantiles(new double[] {0, 0.5, 1}, EXCLUSIVE);
+    assertEquals(quantiles, new long[] {1, 6, 10});
+    assertEquals(sketch.getQuantileLowerBound(0.5), sketch.getQuantile(0.5 - PMF_EPS_FOR_K_200));
+    assertEquals(sketch.getQuantileUpperBound(0.5), sketch.getQuantile(0.5 + PMF_EPS_FOR_K_200));
+  }
+
+  @Test
+  public void getRankGetCdfGetPmfConsistency() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    final int n = 1000;
+    final long[] values = new long[n];
+    for (int i = 0; i < n; i++) {
+      sketch.update(BIG + i);
+      values[i] = BIG + i;
+    }
+    for (final QuantileSearchCriteria crit : new QuantileSearchCriteria[] {INCLUSIVE, EXCLUSIVE}) {
+      final double[] ranks = sketch.getCDF(values, crit);
+      final double[] pmf = sketch.getPMF(values, crit);
+      double sumPmf = 0;
+      for (int i = 0; i < n; i++) {
+        assertEquals(ranks[i], sketch.getRank(values[i], crit), NUMERIC_NOISE_TOLERANCE);
+        sumPmf += pmf[i];
+        assertEquals(ranks[i], sumPmf, NUMERIC_NOISE_TOLERANCE);
+      }
+      sumPmf += pmf[n];
+      assertEquals(sumPmf, 1.0, NUMERIC_NOISE_TOLERANCE);
+      assertEquals(ranks[n], 1.0, NUMERIC_NOISE_TOLERANCE);
+    }
+  }
+
+  @Test
+  public void merge() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance();
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance();
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(i);
+      sketch2.update((2 * n) - i - 1);
+    }
+    assertEquals(sketch1.getMinItem(), 0L);
+    assertEquals(sketch1.getMaxItem(), n - 1L);
+    assertEquals(sketch2.getMinItem(), (long) n);
+    assertEquals(sketch2.getMaxItem(), (2L * n) - 1);
+    sketch1.merge(sketch2);
+    assertFalse(sketch1.isEmpty());
+    assertEquals(sketch1.getN(), 2L * n);
+    assertEquals(sketch1.getMinItem(), 0L);
+    assertEquals(sketch1.getMaxItem(), (2L * n) - 1);
+    assertEquals(sketch1.getQuantile(0.5), n, 2 * n * PMF_EPS_FOR_K_256);
+  }
+
+  @Test
+  public void mergeLowerK() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance(256);
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance(128);
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) {
+      sketch1.update(i);
+      sketch2.update((2 * n) - i - 1);
+    }
+    assertTrue(sketch1.getNormalizedRankError(false) < sketch2.getNormalizedRankError(false));
+    assertTrue(sketch1.getNormalizedRankError(true) < sketch2.getNormalizedRankError(true));
+    sketch1.merge(sketch2);
+    // sketch1 must get "contaminated" by the lower K in sketch2
+    assertEquals(sketch1.getNormalizedRankError(false), sketch2.getNormalizedRankError(false));
+    assertEquals(sketch1.getNormalizedRankError(true), sketch2.getNormalizedRankError(true));
+    assertEquals(sketch1.getN(), 2L * n);
+    assertEquals(sketch1.getMinItem(), 0L);
+    assertEquals(sketch1.getMaxItem(), (2L * n) - 1);
+    assertEquals(sketch1.getQuantile(0.5), n, 2 * n * PMF_EPS_FOR_K_128);
+  }
+
+  @Test
+  public void mergeEmptyLowerK() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance(256);
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance(128);
+    final int n = 10_000;
+    for (int i = 0; i < n; i++) { sketch1.update(i); }
+    // rank error should not be affected by a merge with an empty sketch with lower K
+    final double rankErrorBeforeMerge = sketch1.getNormalizedRankError(true);
+    sketch1.merge(sketch2);
+    assertEquals(sketch1.getNormalizedRankError(true), rankErrorBeforeMerge);
+    assertEquals(sketch1.getN(), n);
+    assertEquals(sketch1.getMinItem(), 0L);
+    assertEquals(sketch1.getMaxItem(), n - 1L);
+    //merge the other way
+    sketch2.merge(sketch1);
+    assertEquals(sketch2.getN(), n);
+    assertEquals(sketch2.getMinItem(), 0L);
+    assertEquals(sketch2.getMaxItem(), n - 1L);
+    assertEquals(sketch2.getQuantile(0.5), n / 2, n * PMF_EPS_FOR_K_128);
+  }
+
+  @Test
+  public void mergeMinAndMaxFromOther() {
+    final KllLongsSketch sketch1 = KllLongsSketch.newHeapInstance();
+    for (int i = 1; i <= 1_000_000; i++) { sketch1.update(i); }
+    final KllLongsSketch sketch2 = KllLongsSketch.newHeapInstance(10);
+    sketch2.merge(sketch1);
+    assertEquals(sketch2.getMinItem(), 1L);
+    assertEquals(sketch2.getMaxItem(), 1_000_000L);
+    //the sentinels of an empty sketch do not leak into the result
+    final KllLongsSketch sketch3 = KllLongsSketch.newHeapInstance();
+    sketch3.update(Long.MAX_VALUE);
+    sketch3.merge(KllLongsSketch.newHeapInstance());
+    assertEquals(sketch3.getMinItem(), Long.MAX_VALUE);
+    assertEquals(sketch3.getMaxItem(), Long.MAX_VALUE);
+  }
+
+  @Test
+  public void kLimits() {
+    try { KllLongsSketch.newHeapInstance(KllSketch.DEFAULT_M - 1); fail(); } catch (SketchesArgumentException e) {}
+    try { KllLongsSketch.newHeapInstance(KllSketch.MAX_K + 1); fail(); } catch (SketchesArgumentException e) {}
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance(KllSketch.DEFAULT_M);
+    for (int i = 0; i < 1000; i++) { sketch.update(i); }
+    assertEquals(sketch.getK(), KllSketch.DEFAULT_M);
+  }
+
+  @Test(expectedExceptions = SketchesArgumentException.class)
+  public void outOfOrderSplitPoints() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    sketch.update(0);
+    sketch.getPMF(new long[] {1, 0});
+  }
+
+  @Test
+  public void checkReset() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 100; i++) { sk.update(i); }
+    final long n1 = sk.getN();
+    final long min1 = sk.getMinItem();
+    final long max1 = sk.getMaxItem();
+    sk.reset();
+    assertTrue(sk.isEmpty());
+    assertEquals(sk.getMinItemInternal(), Long.MAX_VALUE);
+    assertEquals(sk.getMaxItemInternal(), Long.MIN_VALUE);
+    for (int i = 1; i <= 100; i++) { sk.update(i); }
+    assertEquals(sk.getN(), n1);
+    assertEquals(sk.getMinItem(), min1);
+    assertEquals(sk.getMaxItem(), max1);
+  }
+
+  @Test
+  public void checkNewDirectInstanceAndSize() {
+    final WritableMemory wmem = WritableMemory.allocate(3000);
+    KllLongsSketch.newDirectInstance(wmem, memReqSvr);
+    try { KllLongsSketch.newDirectInstance(null, memReqSvr); fail(); }
+    catch (NullPointerException e) { }
+    try { KllLongsSketch.newDirectInstance(wmem, null); fail(); }
+    catch (NullPointerException e) { }
+    final int updateSize = KllSketch.getMaxSerializedSizeBytes(200, 0, LONGS_SKETCH, true);
+    final int compactSize = KllSketch.getMaxSerializedSizeBytes(200, 0, LONGS_SKETCH, false);
+    assertTrue(compactSize < updateSize);
+  }
+
+  @Test
+  public void checkWrapCompactAndUpdatable() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    for (int i = 1; i <= 21; i++) { sk.update(i); }
+
+    //compact image, read only or writable memory
+    final Memory mem = Memory.wrap(sk.toByteArray());
+    final KllLongsSketch sk1 = KllLongsSketch.wrap(mem);
+    assertTrue(mem.isReadOnly());
+    assertTrue(sk1.isReadOnly());
+    assertTrue(sk1.isCompactMemoryFormat());
+    assertFalse(sk1.isDirect());
+    final WritableMemory wmem = WritableMemory.writableWrap(sk.toByteArray());
+    final KllLongsSketch sk2 = KllLongsSketch.writableWrap(wmem, memReqSvr);
+    assertFalse(wmem.isReadOnly());
+    assertTrue(sk2.isReadOnly());
+
+    //updatable image, writable or read only memory
+    final WritableMemory wmem3 = WritableMemory.writableWrap(KllHelper.toByteArray(sk, true));
+    final KllLongsSketch sk3 = KllLongsSketch.writableWrap(wmem3, memReqSvr);
+    assertFalse(sk3.isReadOnly());
+    assertTrue(sk3.isMemoryUpdatableFormat());
+    final WritableMemory wmem4 = (WritableMemory) Memory.wrap(KllHelper.toByteArray(sk, true));
+    final KllLongsSketch sk4 = KllLongsSketch.writableWrap(wmem4, memReqSvr);
+    assertTrue(wmem4.isReadOnly());
+    assertTrue(sk4.isReadOnly());
+
+    for (final KllLongsSketch other : new KllLongsSketch[] {sk1, sk2, sk3, sk4}) {
+      assertEquals(other.getN(), 21);
+      assertEquals(other.getMinItem(), 1L);
+      assertEquals(other.getMaxItem(), 21L);
+      assertEquals(other.getQuantile(0.5), sk.getQuantile(0.5));
+    }
+    try { sk1.update(1); fail(); } catch (SketchesArgumentException e) { }
+    try { sk4.update(1); fail(); } catch (SketchesArgumentException e) { }
+    sk3.update(22);
+    assertEquals(sk3.getMaxItem(), 22L);
+  }
+
+  @Test
+  public void checkReadOnlyExceptions() {
+    final KllLongsSketch sk1 = KllLongsSketch.newHeapInstance(20);
+    final KllLongsSketch sk2 = KllLongsSketch.wrap(Memory.wrap(sk1.toByteArray()));
+    try { sk2.setLevelsArray(new int[0]);          fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.setLevelsArrayAt(1, 2);              fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.update(new long[] {1}, 0, 1);        fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.update(1, 2);                        fail(); } catch (SketchesArgumentException e) { }
+    try { sk2.reset();                             fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void sortedView() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance();
+    sk.update(3);
+    sk.update(1);
+    sk.update(2);
+    final LongsSortedView view = sk.getSortedView();
+    final LongsSortedViewIterator itr = view.iterator();
+    for (int i = 1; i <= 3; i++) {
+      assertTrue(itr.next());
+      assertEquals(itr.getQuantile(), i);
+      assertEquals(itr.getWeight(), 1);
+      assertEquals(itr.getNaturalRank(EXCLUSIVE), i - 1);
+      assertEquals(itr.getNaturalRank(INCLUSIVE), i);
+    }
+    assertFalse(itr.next());
+  }
+
+  @Test
+  public void sortedViewSearchCriteria() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    //duplicates at a quantile exercise the inclusive and exclusive searches
+    for (int i = 0; i < 5000; i++) { sk.update(BIG + ((i * 7L) % 101)); }
+    final LongsSortedView sv = sk.getSortedView();
+    final long[] quantiles = sv.getQuantiles();
+    final long[] cumWeights = sv.getCumulativeWeights();
+    final double n = sv.getN();
+    for (int j = 0; j < quantiles.length; j++) {
+      //a quantile may be retained at several levels
+      int lo = j;
+      while ((lo > 0) && (quantiles[lo - 1] == quantiles[j])) { lo--; }
+      int hi = j;
+      while ((hi < (quantiles.length - 1)) && (quantiles[hi + 1] == quantiles[j])) { hi++; }
+      final double upTo = cumWeights[hi] / n;
+      final double below = lo == 0 ? 0 : cumWeights[lo - 1] / n;
+      assertEquals(sv.getRank(quantiles[j], INCLUSIVE), upTo);
+      assertEquals(sv.getRank(quantiles[j], EXCLUSIVE), below);
+      assertEquals(sk.getRank(quantiles[j], INCLUSIVE), upTo);
+      assertEquals(sk.getRank(quantiles[j], EXCLUSIVE), below);
+      //the natural rank of each retained quantile maps back to it, or to the first entry with the
+      //same cumulative weight, as the sorted view may hold entries of zero weight
+      int first = hi;
+      while ((first > 0) && (cumWeights[first - 1] == cumWeights[hi])) { first--; }
+      final long belowWeight = lo == 0 ? 0 : cumWeights[lo - 1];
+      int next = lo;
+      while ((next < (quantiles.length - 1)) && (cumWeights[next] <= belowWeight)) { next++; }
+      assertEquals(sv.getQuantile(upTo, INCLUSIVE), quantiles[first]);
+      assertEquals(sv.getQuantile(below, EXCLUSIVE), quantiles[next]);
+    }
+    assertEquals(sv.getRank(BIG - 1, INCLUSIVE), 0.0);
+    assertEquals(sv.getRank(Long.MAX_VALUE, EXCLUSIVE), 1.0);
+    assertEquals(sv.getQuantile(0.0, INCLUSIVE), quantiles[0]);
+    assertEquals(sv.getQuantile(1.0, EXCLUSIVE), quantiles[quantiles.length - 1]);
+
+    //the batched queries match the single queries
+    final double[] ranks = new double[quantiles.length];
+    for (final QuantileSearchCriteria crit : new QuantileSearchCriteria[] {INCLUSIVE, EXCLUSIVE}) {
+      sv.getRanks(quantiles, crit, ranks);
+      for (int j = 0; j < quantiles.length; j++) {
+        assertEquals(ranks[j], sv.getRank(quantiles[j], crit));
+      }
+      final long[] out = new long[ranks.length];
+      sv.getQuantiles(ranks, crit, out);
+      for (int j = 0; j < ranks.length; j++) {
+        assertEquals(out[j], sv.getQuantile(ranks[j], crit));
+      }
+    }
+    try { sv.getQuantile(1.5, INCLUSIVE); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkCDF_PDF() {
+    final double[] cdfI = {.25, .50, .75, 1.0, 1.0 };
+    final double[] cdfE = {0.0, .25, .50, .75, 1.0 };
+    final double[] pmfI = {.25, .25, .25, .25, 0.0 };
+    final double[] pmfE = {0.0, .25, .25, .25, .25 };
+    final double toll = 1E-10;
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance();
+    final long[] longsIn = {10, 20, 30, 40};
+    for (int i = 0; i < longsIn.length; i++) { sketch.update(longsIn[i]); }
+    final long[] sp = new long[] {10, 20, 30, 40};
+    double[] cdf = sketch.getCDF(sp, INCLUSIVE);
+    double[] pmf = sketch.getPMF(sp, INCLUSIVE);
+    for (int i = 0; i < cdf.length; i++) {
+      assertEquals(cdf[i], cdfI[i], toll);
+      assertEquals(pmf[i], pmfI[i], toll);
+    }
+    cdf = sketch.getCDF(sp, EXCLUSIVE);
+    pmf = sketch.getPMF(sp, EXCLUSIVE);
+    for (int i = 0; i < cdf.length; i++) {
+      assertEquals(cdf[i], cdfE[i], toll);
+      assertEquals(pmf[i], pmfE[i], toll);
+    }
+  }
+
+  @Test
+  public void checkSortedViewAfterReset() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    sk.update(1);
+    final LongsSortedView sv = sk.getSortedView();
+    assertEquals(sv.getQuantile(1.0, INCLUSIVE), 1L);
+    sk.reset();
+    try { sk.getSortedView(); fail(); } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkVectorUpdate() {
+    final int k = 20;
+    final int n = 108;
+    final int maxVsz = 40;  //max vector size
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(k);
+    final KllLongsSketch directSk = KllLongsSketch.newDirectInstance(k, WritableMemory.allocate(1000), memReqSvr);
+    int j = 1;
+    int rem;
+    while ((rem = n - j + 1) > 0) {
+      final int vecSz = Math.min(rem, maxVsz);
+      final long[] v = new long[vecSz];
+      for (int i = 0; i < vecSz; i++) { v[i] = BIG - j++; }
+      sk.update(v, 0, vecSz);
+      directSk.update(v, 0, vecSz);
+    }
+    for (final KllLongsSketch s : new KllLongsSketch[] {sk, directSk}) {
+      assertEquals(s.getN(), 108);
+      assertEquals(s.getMaxItem(), BIG - 1);
+      assertEquals(s.getMinItem(), BIG - 108);
+    }
+    sk.update(new long[] {1, 2, 3}, 3, 0); //zero length is a no-op
+    assertEquals(sk.getN(), 108);
+  }
+
+  @Test
+  public void checkWeightedUpdate() {
+    final KllLongsSketch weighted = KllLongsSketch.newHeapInstance(200);
+    final KllLongsSketch repeated = KllLongsSketch.newHeapInstance(200);
+    for (int i = 1; i <= 10; i++) {
+      weighted.update(BIG + i, i);
+      for (int w = 0; w < i; w++) { repeated.update(BIG + i); }
+    }
+    //in exact mode a weighted update is the same as repeated updates
+    assertEquals(weighted.getN(), 55);
+    assertFalse(weighted.isEstimationMode());
+    assertEquals(weighted.getMinItem(), BIG + 1);
+    assertEquals(weighted.getMaxItem(), BIG + 10);
+    for (int i = 0; i <= 11; i++) {
+      assertEquals(weighted.getRank(BIG + i, INCLUSIVE), repeated.getRank(BIG + i, INCLUSIVE));
+      assertEquals(weighted.getRank(BIG + i, EXCLUSIVE), repeated.getRank(BIG + i, EXCLUSIVE));
+    }
+
+    //a large weight spreads over the levels
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(8);
+    sk.update(Long.MIN_VALUE, 1_000_000);
+    sk.update(Long.MAX_VALUE, 1_000_000);
+    assertEquals(sk.getN(), 2_000_000);
+    assertTrue(sk.isEstimationMode());
+    assertEquals(sk.getMinItem(), Long.MIN_VALUE);
+    assertEquals(sk.getMaxItem(), Long.MAX_VALUE);
+    assertEquals(sk.getRank(0), 0.5, 0.1);
+    long total = 0;
+    final QuantilesLongsSketchIterator itr = sk.iterator();
+    while (itr.next()) { total += itr.getWeight(); }
+    assertEquals(total, 2_000_000);
+    try { sk.update(1, -1); fail(); } catch (SketchesArgumentException e) {}
+  }
+
+  @Test
+  public void mergeAllExactMode() {
+    final List<KllSketch> sketches = new ArrayList<>();
+    final KllLongsSketch sequential = KllLongsSketch.newHeapInstance(200);
+    for (int s = 0; s < 10; s++) {
+      final KllLongsSketch sk = KllLongsSketch.newHeapInstance(200);
+      for (int i = 0; i < 10; i++) { sk.update(BIG + (s * 10) + i); }
+      sequential.merge(sk);
+      sketches.add(sk);
+    }
+    sketches.add(null);
+    sketches.add(KllLongsSketch.newHeapInstance(200));
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance(200);
+    sketch.update(-1);
+    sequential.update(-1);
+    sketch.mergeAll(sketches);
+    assertEquals(sketch.getN(), 101);
+    assertFalse(sketch.isEstimationMode());
+    assertEquals(sketch.getMinItem(), -1L);
+    assertEquals(sketch.getMaxItem(), BIG + 99);
+    for (int i = -1; i < 100; i++) {
+      assertEquals(sketch.getRank(BIG + i), sequential.getRank(BIG + i));
+    }
+  }
+
+  @Test
+  public void mergeAllEstimationModeWithMemoryInputs() {
+    final int numSketches = 100;
+    final int n = 1000;
+    final List<KllSketch> sketches = new ArrayList<>();
+    for (int s = 0; s < numSketches; s++) {
+      final KllLongsSketch sk = KllLongsSketch.newHeapInstance(200);
+      for (int i = 0; i < n; i++) { sk.update(BIG + (i * numSketches) + s); }
+      //mix heap, wrapped compact and wrapped updatable inputs
+      if ((s % 3) == 0) {
+        sketches.add(KllLongsSketch.wrap(Memory.wrap(sk.toByteArray())));
+      } else if ((s % 3) == 1) {
+        sketches.add(KllLongsSketch.writableWrap(
+            WritableMemory.writableWrap(KllHelper.toByteArray(sk, true)), memReqSvr));
+      } else {
+        sketches.add(sk);
+      }
+    }
+    final KllLongsSketch single = KllLongsSketch.newHeapInstance(200);
+    single.update(-5);
+    sketches.add(KllLongsSketch.wrap(Memory.wrap(single.toByteArray())));
+
+    final WritableMemory dstMem = WritableMemory.allocate(2000); //must grow
+    final KllLongsSketch sketch = KllLongsSketch.newDirectInstance(200, dstMem, memReqSvr);
+    sketch.mergeAll(sketches);
+    final long totalN = ((long) numSketches * n) + 1;
+    assertEquals(sketch.getN(), totalN);
+    assertTrue(sketch.isEstimationMode());
+    assertEquals(sketch.getMinItem(), -5L);
+    assertEquals(sketch.getMaxItem(), BIG + (numSketches * n) - 1);
+    final double eps = sketch.getNormalizedRankError(false);
+    for (int q = 0; q < (numSketches * n); q += 5000) {
+      assertEquals(sketch.getRank(BIG + q), (q + 2.0) / totalN, 2 * eps);
+    }
+    //the result remains usable by the standard merge and update paths
+    sketch.merge(single);
+    sketch.update(1);
+    assertEquals(sketch.getN(), totalN + 2);
+    final KllLongsSketch sketch2 = KllLongsSketch.heapify(Memory.wrap(sketch.toByteArray()));
+    assertEquals(sketch2.getN(), totalN + 2);
+    assertEquals(sketch2.getMinItem(), -5L);
+  }
+
+  @Test
+  public void mergeAllErrors() {
+    final KllLongsSketch sketch = KllLongsSketch.newHeapInstance(200);
+    sketch.update(1);
+    try { sketch.mergeAll(Arrays.asList(sketch)); fail(); } catch (SketchesArgumentException e) {}
+    final KllLongsSketch compact = KllLongsSketch.wrap(Memory.wrap(sketch.toByteArray()));
+    try { compact.mergeAll(Arrays.asList(sketch)); fail(); } catch (SketchesArgumentException e) {}
+    try { sketch.mergeAll(Arrays.asList(KllDoublesSketch.newHeapInstance())); fail(); }
+    catch (ClassCastException e) {}
+    sketch.mergeAll(new ArrayList<KllSketch>());
+    assertEquals(sketch.getN(), 1);
+  }
+
+  @Test
+  public void incrementalSortedViewRefresh() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    final KllLongsSketch other = KllLongsSketch.newHeapInstance(20);
+    for (int i = 0; i < 1000; i++) { other.update(i); }
+    int v = 0;
+    for (int round = 0; round < 60; round++) {
+      //interleave a few updates with every query, with or without a compaction in between
+      for (int i = 0; i < 7; i++) { sk.update((v++ * 31) % 1009); }
+      if ((round % 10) == 3) { sk.update(v, 100); }
+      if (round == 40) { sk.merge(other); }
+      if (round == 50) { sk.reset(); }
+      if (sk.isEmpty()) { continue; }
+      final LongsSortedView sv = sk.getSortedView();
+      final LongsSortedView rebuilt = KllLongsSketch.heapify(Memory.wrap(sk.toByteArray())).getSortedView();
+      assertEquals(sv.getN(), rebuilt.getN());
+      assertEquals(sv.getQuantiles(), rebuilt.getQuantiles());
+      for (final long q : rebuilt.getQuantiles()) {
+        assertEquals(sv.getRank(q, INCLUSIVE), rebuilt.getRank(q, INCLUSIVE));
+        assertEquals(sv.getRank(q, EXCLUSIVE), rebuilt.getRank(q, EXCLUSIVE));
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.partitions;
+
+import static org.apache.datasketches.partitions.BoundsRule.INCLUDE_BOTH;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.kll.KllItemsSketch;
+import org.apache.datasketches.partitions.Partitioner.PartitionBoundsRow;
+import org.apache.datasketches.quantilescommon.QuantileSearchCriteria;
+import org.testng.annotations.Test;
+
+public class PartitionerTest {
+  private static final int K = 1 << 15; //all sketches are exact, so the results are deterministic
+  private static final long TOTAL_N = 20_000;
+
+  @Test
+  public void checkParallelMatchesSequential() {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (final QuantileSearchCriteria crit : new QuantileSearchCriteria[] {INCLUSIVE, EXCLUSIVE}) {
+        final KllItemsSketchFillRequestLongAsString fillReq = new KllItemsSketchFillRequestLongAsString(K, TOTAL_N);
+        final KllItemsSketch<String> sk = fillReq.getRange(1L, TOTAL_N, INCLUDE_BOTH);
+        //1000 partitions of 20 items, 3 levels of 10 partitions each
+        final List<PartitionBoundsRow<String>> seq = new Partitioner<>(20, 10, fillReq, crit).partition(sk);
+        final List<PartitionBoundsRow<String>> par = new Partitioner<>(20, 10, fillReq, crit).partition(sk, executor, 3);
+        assertEquals(par.size(), seq.size());
+        assertTrue(par.size() >= 900);
+        long total = 0;
+        for (int i = 0; i < seq.size(); i++) {
+          final PartitionBoundsRow<String> s = seq.get(i);
+          final PartitionBoundsRow<String> p = par.get(i);
+          assertEquals(p.levelPartId, s.levelPartId);
+          assertEquals(p.lowerBound, s.lowerBound);
+          assertEquals(p.upperBound, s.upperBound);
+          assertEquals(p.rule, s.rule);
+          assertEquals(p.approxNumDeltaItems, s.approxNumDeltaItems);
+          total += p.approxNumDeltaItems;
+        }
+        assertEquals(total, TOTAL_N);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void checkMaxInFlight() {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxSeen = new AtomicInteger();
+    final KllItemsSketchFillRequestLongAsString base = new KllItemsSketchFillRequestLongAsString(K, TOTAL_N);
+    final SketchFillRequest<String, KllItemsSketch<String>> fillReq = (lo, hi, rule) -> {
+      maxSeen.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try { return base.getRange(lo, hi, rule); }
+      finally { inFlight.decrementAndGet(); }
+    };
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final KllItemsSketch<String> sk = base.getRange(1L, TOTAL_N, INCLUDE_BOTH);
+      new Partitioner<>(20, 10, fillReq).partition(sk, executor, 2);
+      assertTrue(maxSeen.get() <= 2);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void checkFailuresAndArgs() {
+    final KllItemsSketchFillRequestLongAsString base = new KllItemsSketchFillRequestLongAsString(K, TOTAL_N);
+    final KllItemsSketch<String> sk = base.getRange(1L, TOTAL_N, INCLUDE_BOTH);
+    final SketchFillRequest<String, KllItemsSketch<String>> failing = (lo, hi, rule) -> {
+      throw new IllegalStateException("source unavailable");
+    };
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      try { new Partitioner<>(20, 10, failing).partition(sk, executor, 4); fail(); }
+      catch (final IllegalStateException e) { }
+      try { new Partitioner<>(20, 10, base).partition(sk, executor, 0); fail(); }
+      catch (final SketchesArgumentException e) { }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void checkRejectedSubmission() {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger completed = new AtomicInteger();
+    final KllItemsSketchFillRequestLongAsString base = new KllItemsSketchFillRequestLongAsString(K, TOTAL_N);
+    final SketchFillRequest<String, KllItemsSketch<String>> fillReq = (lo, hi, rule) -> {
+      inFlight.incrementAndGet();
+      try {
+        Thread.sleep(20);
+        return base.getRange(lo, hi, rule);
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        inFlight.decrementAndGet();
+        completed.incrementAndGet();
+      }
+    };
+    final ExecutorService pool = Executors.newFixedThreadPool(4);
+    final AtomicInteger accepted = new AtomicInteger();
+    final Executor rejecting = task -> {
+      if (accepted.incrementAndGet() > 3) { throw new RejectedExecutionException("saturated"); }
+      pool.execute(task);
+    };
+    try {
+      final KllItemsSketch<String> sk = base.getRange(1L, TOTAL_N, INCLUDE_BOTH);
+      try { new Partitioner<>(20, 10, fillReq).partition(sk, rejecting, 4); fail(); }
+      catch (final RejectedExecutionException e) { }
+      //no accepted request is still running when the rejection is reported
+      assertEquals(inFlight.get(), 0);
+      assertTrue(completed.get() <= 3);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -27,6 +27,7 @@ import static org.testng.Assert.fail;
 
 import java.nio.ByteOrder;
 
+import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.DefaultMemoryRequestServer;
 import org.apache.datasketches.memory.WritableHandle;
 import org.apache.datasketches.memory.WritableMemory;
@@ -259,6 +260,42 @@ public class DoublesSketchTest {
     println(sk.toString(true, false));
   }
 
+  @Test
+  public void checkBatchUpdateMatchesSingleUpdates() {
+    final int k = 16;
+    final double[] items = new double[1000];
+    for (int i = 0; i < items.length; i++) { items[i] = (i * 7919) % items.length; }
+    items[100] = Double.NaN;
+    final int[][] ranges = {{0, 0}, {3, 5}, {0, 31}, {1, 32}, {7, 993}};
+    for (final int[] r : ranges) {
+      for (final boolean direct : new boolean[] {false, true}) {
+        final UpdateDoublesSketch sk1 = newSketch(k, direct);
+        final UpdateDoublesSketch sk2 = newSketch(k, direct);
+        DoublesSketch.setRandom(1);
+        for (int i = r[0]; i < r[0] + r[1]; i++) { sk1.update(items[i]); }
+        DoublesSketch.setRandom(1);
+        sk2.update(items, r[0], r[1]);
+        assertEquals(sk2.getN(), sk1.getN());
+        assertEquals(sk2.toByteArray(), sk1.toByteArray());
+        //a second batch continues where the first left off
+        DoublesSketch.setRandom(2);
+        for (int i = 0; i < 100; i++) { sk1.update(items[i]); }
+        DoublesSketch.setRandom(2);
+        sk2.update(items, 0, 100);
+        assertEquals(sk2.toByteArray(), sk1.toByteArray());
+      }
+    }
+    final UpdateDoublesSketch sk = newSketch(k, false);
+    try { sk.update(items, 990, 20); fail(); } catch (final SketchesArgumentException e) { }
+  }
+
+  private static UpdateDoublesSketch newSketch(final int k, final boolean direct) {
+    final DoublesSketchBuilder bldr = DoublesSketch.builder().setK(k);
+    return direct
+        ? bldr.build(WritableMemory.allocate(64, ByteOrder.nativeOrder(), new DefaultMemoryRequestServer()))
+        : bldr.build();
+  }
+
   @Test
   public void printlnTest() {
     println("PRINTING: " + this.getClass().getName());
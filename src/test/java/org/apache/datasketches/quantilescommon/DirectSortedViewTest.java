@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantilescommon;
+
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.kll.KllDoublesSketch;
+import org.apache.datasketches.kll.KllLongsSketch;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.quantiles.DoublesSketch;
+import org.apache.datasketches.quantiles.UpdateDoublesSketch;
+import org.apache.datasketches.req.ReqSketch;
+
+public class DirectSortedViewTest {
+  private static final QuantileSearchCriteria[] CRITS = {INCLUSIVE, EXCLUSIVE};
+
+  @Test
+  public void checkKllDoublesSortedView() {
+    final KllDoublesSketch sk = KllDoublesSketch.newHeapInstance(50);
+    final Random rand = new Random(1);
+    for (int i = 0; i < 10_000; i++) { sk.update(rand.nextInt(5000)); }
+    final DoublesSketchSortedView sv = sk.getSortedView();
+    final byte[] bytes = sv.toByteArray();
+    final DirectDoublesSortedView dsv = DirectDoublesSortedView.wrap(Memory.wrap(bytes));
+    checkEquivalent(sv, dsv, rand);
+    assertEquals(dsv.toByteArray(), bytes);
+  }
+
+  @Test
+  public void checkClassicDoublesSortedView() {
+    final UpdateDoublesSketch sk = DoublesSketch.builder().setK(32).build();
+    final Random rand = new Random(2);
+    for (int i = 0; i < 10_000; i++) { sk.update(rand.nextGaussian()); }
+    final DoublesSketchSortedView sv = sk.getSortedView();
+    //serialize into a larger memory at an offset, as in a file holding several views
+    final byte[] bytes = sv.toByteArray();
+    final WritableMemory wmem = WritableMemory.allocate(bytes.length + 64);
+    wmem.putByteArray(24, bytes, 0, bytes.length);
+    final DirectDoublesSortedView dsv = DirectDoublesSortedView.wrap(wmem.region(24, bytes.length + 40));
+    checkEquivalent(sv, dsv, rand);
+  }
+
+  @Test
+  public void checkReqFloatsSortedView() {
+    final ReqSketch sk = ReqSketch.builder().setK(12).build();
+    final Random rand = new Random(3);
+    for (int i = 0; i < 10_000; i++) { sk.update(rand.nextInt(1000)); }
+    final FloatsSketchSortedView sv = sk.getSortedView();
+    final DirectFloatsSortedView dsv = DirectFloatsSortedView.wrap(Memory.wrap(sv.toByteArray()));
+    assertEquals(dsv.getN(), sv.getN());
+    assertEquals(dsv.getNumRetained(), sv.getNumRetained());
+    assertEquals(dsv.getMinItem(), sv.getMinItem());
+    assertEquals(dsv.getMaxItem(), sv.getMaxItem());
+    assertEquals(dsv.getQuantiles(), sv.getQuantiles());
+    assertEquals(dsv.getCumulativeWeights(), sv.getCumulativeWeights());
+    for (QuantileSearchCriteria crit : CRITS) {
+      for (int i = 0; i <= 100; i++) {
+        final double rank = i / 100.0;
+        assertEquals(dsv.getQuantile(rank, crit), sv.getQuantile(rank, crit));
+      }
+      for (int i = 0; i < 200; i++) {
+        final float q = rand.nextInt(1100) - 50;
+        assertEquals(dsv.getRank(q, crit), sv.getRank(q, crit));
+      }
+      final float[] splits = {100, 200, 700};
+      assertEquals(dsv.getCDF(splits, crit), sv.getCDF(splits, crit));
+      assertEquals(dsv.getPMF(splits, crit), sv.getPMF(splits, crit));
+    }
+    final FloatsSortedViewIterator itr = dsv.iterator();
+    int count = 0;
+    while (itr.next()) { count++; }
+    assertEquals(count, sv.getNumRetained());
+  }
+
+  @Test
+  public void checkKllLongsSortedView() {
+    final KllLongsSketch sk = KllLongsSketch.newHeapInstance(20);
+    final Random rand = new Random(4);
+    final long base = 1L << 60;
+    for (int i = 0; i < 10_000; i++) { sk.update(base + rand.nextInt(5000)); }
+    final LongsSketchSortedView sv = sk.getSortedView();
+    final byte[] bytes = sv.toByteArray();
+    final DirectLongsSortedView dsv = DirectLongsSortedView.wrap(Memory.wrap(bytes));
+    assertEquals(dsv.getN(), sv.getN());
+    assertEquals(dsv.getNumRetained(), sv.getNumRetained());
+    assertEquals(dsv.getMinItem(), sv.getMinItem());
+    assertEquals(dsv.getMaxItem(), sv.getMaxItem());
+    assertEquals(dsv.getQuantiles(), sv.getQuantiles());
+    assertEquals(dsv.getCumulativeWeights(), sv.getCumulativeWeights());
+    for (QuantileSearchCriteria crit : CRITS) {
+      for (int i = 0; i <= 100; i++) {
+        final double rank = i / 100.0;
+        assertEquals(dsv.getQuantile(rank, crit), sv.getQuantile(rank, crit));
+      }
+      for (int i = 0; i < 200; i++) {
+        final long q = (base + rand.nextInt(5100)) - 50;
+        assertEquals(dsv.getRank(q, crit), sv.getRank(q, crit));
+      }
+      final long[] splits = {base + 100, base + 2000, base + 4000};
+      assertEquals(dsv.getCDF(splits, crit), sv.getCDF(splits, crit));
+      assertEquals(dsv.getPMF(splits, crit), sv.getPMF(splits, crit));
+    }
+    assertEquals(dsv.toByteArray(), bytes);
+    try { //wrong type
+      DirectDoublesSortedView.wrap(Memory.wrap(bytes));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkLittleEndianFormat() {
+    final double[] quantiles = {1.5, 2.5, 4.0};
+    final long[] cumWeights = {1, 3, 6};
+    final byte[] bytes = DirectDoublesSortedView.toByteArray(quantiles, cumWeights, 6);
+    final ByteBuffer bb = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(bb.getInt(4), 3);
+    assertEquals(bb.getLong(8), 6);
+    assertEquals(bb.getLong(16 + 8), 3);
+    assertEquals(bb.getDouble(16 + 24 + 16), 4.0);
+
+    //a big-endian Memory over the same bytes reads the same view
+    final DirectDoublesSortedView dsv = DirectDoublesSortedView.wrap(Memory.wrap(bytes, ByteOrder.BIG_ENDIAN));
+    assertEquals(dsv.getN(), 6);
+    assertEquals(dsv.getQuantiles(), quantiles);
+    assertEquals(dsv.getCumulativeWeights(), cumWeights);
+    assertEquals(dsv.getQuantile(0.5, INCLUSIVE), 2.5);
+    assertEquals(dsv.toByteArray(), bytes);
+
+    final DirectLongsSortedView dlsv = DirectLongsSortedView.wrap(Memory.wrap(
+        DirectLongsSortedView.toByteArray(new long[] {-1L, 7L}, new long[] {2, 5}, 5), ByteOrder.BIG_ENDIAN));
+    assertEquals(dlsv.getQuantiles(), new long[] {-1L, 7L});
+    final DirectFloatsSortedView dfsv = DirectFloatsSortedView.wrap(Memory.wrap(
+        DirectFloatsSortedView.toByteArray(new float[] {0.25f, 8f}, new long[] {1, 2}, 2), ByteOrder.BIG_ENDIAN));
+    assertEquals(dfsv.getQuantiles(), new float[] {0.25f, 8f});
+  }
+
+  @Test
+  public void checkEmpty() {
+    final byte[] bytes = DirectDoublesSortedView.toByteArray(new double[0], new long[0], 0);
+    assertEquals(bytes.length, 16);
+    final DirectDoublesSortedView dsv = DirectDoublesSortedView.wrap(Memory.wrap(bytes));
+    assertTrue(dsv.isEmpty());
+    assertEquals(dsv.getNumRetained(), 0);
+    try {
+      dsv.getQuantile(0.5, INCLUSIVE);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      dsv.getRank(1.0, INCLUSIVE);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkBadMemory() {
+    final KllDoublesSketch sk = KllDoublesSketch.newHeapInstance(20);
+    for (int i = 0; i < 100; i++) { sk.update(i); }
+    final byte[] bytes = sk.getSortedView().toByteArray();
+    try { //wrong type
+      DirectFloatsSortedView.wrap(Memory.wrap(bytes));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try { //truncated
+      DirectDoublesSortedView.wrap(Memory.wrap(bytes).region(0, bytes.length - 8));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try { //too small for the preamble
+      DirectDoublesSortedView.wrap(Memory.wrap(new byte[8]));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    final WritableMemory wmem = WritableMemory.writableWrap(bytes.clone());
+    wmem.putByte(SortedViewFormat.SER_VER_BYTE, (byte) 9);
+    try { //bad serVer
+      DirectDoublesSortedView.wrap(wmem);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    final DirectDoublesSortedView dsv = DirectDoublesSortedView.wrap(Memory.wrap(bytes));
+    assertFalse(dsv.isEmpty());
+    try {
+      dsv.getRank(Double.NaN, INCLUSIVE);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      dsv.getQuantile(1.5, INCLUSIVE);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  private static void checkEquivalent(final DoublesSortedView sv, final DirectDoublesSortedView dsv,
+      final Random rand) {
+    assertEquals(dsv.getN(), sv.getN());
+    assertEquals(dsv.getNumRetained(), sv.getNumRetained());
+    assertEquals(dsv.getMinItem(), sv.getMinItem());
+    assertEquals(dsv.getMaxItem(), sv.getMaxItem());
+    assertEquals(dsv.getQuantiles(), sv.getQuantiles());
+    assertEquals(dsv.getCumulativeWeights(), sv.getCumulativeWeights());
+    final double[] quantiles = sv.getQuantiles();
+    for (QuantileSearchCriteria crit : CRITS) {
+      for (int i = 0; i <= 1000; i++) {
+        final double rank = i / 1000.0;
+        assertEquals(dsv.getQuantile(rank, crit), sv.getQuantile(rank, crit));
+      }
+      for (double q : quantiles) {
+        assertEquals(dsv.getRank(q, crit), sv.getRank(q, crit));
+      }
+      for (int i = 0; i < 200; i++) {
+        final double q = (rand.nextDouble() * 6000) - 500;
+        assertEquals(dsv.getRank(q, crit), sv.getRank(q, crit));
+      }
+      final double[] splits = {quantiles[0], quantiles[quantiles.length / 2], quantiles[quantiles.length - 1]};
+      assertEquals(dsv.getCDF(splits, crit), sv.getCDF(splits, crit));
+    }
+    final DoublesSortedViewIterator itr1 = sv.iterator();
+    final DoublesSortedViewIterator itr2 = dsv.iterator();
+    while (itr1.next()) {
+      assertTrue(itr2.next());
+      assertEquals(itr2.getQuantile(), itr1.getQuantile());
+      assertEquals(itr2.getNaturalRank(), itr1.getNaturalRank());
+    }
+    assertFalse(itr2.next());
+  }
+}
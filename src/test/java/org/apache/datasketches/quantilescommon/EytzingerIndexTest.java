@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantilescommon;
+
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.kll.KllDoublesSketch;
+import org.apache.datasketches.kll.KllFloatsSketch;
+
+public class EytzingerIndexTest {
+
+  @Test
+  public void checkMatchesInequalitySearch() {
+    final Random rand = new Random(1);
+    for (int n = 1; n <= 70; n++) {
+      final double[] dArr = new double[n];
+      final float[] fArr = new float[n];
+      final long[] cwArr = new long[n];
+      long cw = 0;
+      for (int i = 0; i < n; i++) {
+        dArr[i] = (i == 0) ? 0 : dArr[i - 1] + rand.nextInt(3); //includes duplicates
+        fArr[i] = (float) dArr[i];
+        cw += 1 + rand.nextInt(3);
+        cwArr[i] = cw;
+      }
+      final EytzingerIndex dIndex = EytzingerIndex.build(dArr, cwArr);
+      final EytzingerIndex fIndex = EytzingerIndex.build(fArr, cwArr);
+      for (double v = -1; v <= dArr[n - 1] + 1; v += 0.5) {
+        assertEquals(dIndex.findQuantile(v, true), find(dArr, v, InequalitySearch.LE));
+        assertEquals(dIndex.findQuantile(v, false), find(dArr, v, InequalitySearch.LT));
+        assertEquals(fIndex.findQuantile((float) v, true), find(dArr, v, InequalitySearch.LE));
+        assertEquals(fIndex.findQuantile((float) v, false), find(dArr, v, InequalitySearch.LT));
+      }
+      for (double r = 0; r <= cw + 1; r += 0.5) {
+        assertEquals(dIndex.findCumWeight(r, true),
+            InequalitySearch.find(cwArr, 0, n - 1, r, InequalitySearch.GE));
+        assertEquals(dIndex.findCumWeight(r, false),
+            InequalitySearch.find(cwArr, 0, n - 1, r, InequalitySearch.GT));
+      }
+    }
+  }
+
+  @Test
+  public void checkSortedViewsWithIndex() {
+    final Random rand = new Random(2);
+    final KllDoublesSketch dsk = KllDoublesSketch.newHeapInstance(400);
+    final KllFloatsSketch fsk = KllFloatsSketch.newHeapInstance(400);
+    for (int i = 0; i < 100_000; i++) {
+      dsk.update(rand.nextDouble());
+      fsk.update(rand.nextFloat());
+    }
+    final DoublesSortedView dsv = dsk.getSortedView();
+    final FloatsSortedView fsv = fsk.getSortedView();
+    assertTrue(dsv.getNumRetained() >= EytzingerIndex.MIN_INDEX_LENGTH);
+    assertTrue(fsv.getNumRetained() >= EytzingerIndex.MIN_INDEX_LENGTH);
+    final double[] dQuantiles = dsv.getQuantiles();
+    final float[] fQuantiles = fsv.getQuantiles();
+    final long[] dCumWeights = dsv.getCumulativeWeights();
+    final long[] fCumWeights = fsv.getCumulativeWeights();
+    final double n = dsv.getN();
+    //the first query uses the classic search, the following ones the index
+    for (int rep = 0; rep < 2; rep++) {
+      for (int i = 0; i < dQuantiles.length; i++) {
+        final double q = dQuantiles[i];
+        final double rank = dCumWeights[i] / n;
+        assertEquals(dsv.getRank(q, INCLUSIVE), rank);
+        assertEquals(dsv.getRank(q, EXCLUSIVE), (i == 0) ? 0.0 : dCumWeights[i - 1] / n);
+        assertEquals(dsv.getQuantile(rank, INCLUSIVE), q);
+        assertEquals(dsv.getQuantile(rank, EXCLUSIVE), dQuantiles[Math.min(i + 1, dQuantiles.length - 1)]);
+      }
+      for (int i = 0; i < fQuantiles.length; i++) {
+        final float q = fQuantiles[i];
+        final double rank = fCumWeights[i] / n;
+        assertEquals(fsv.getRank(q, INCLUSIVE), rank);
+        assertEquals(fsv.getRank(q, EXCLUSIVE), (i == 0) ? 0.0 : fCumWeights[i - 1] / n);
+        assertEquals(fsv.getQuantile(rank, INCLUSIVE), q);
+        assertEquals(fsv.getQuantile(rank, EXCLUSIVE), fQuantiles[Math.min(i + 1, fQuantiles.length - 1)]);
+      }
+    }
+    assertEquals(dsv.getQuantile(1.0, EXCLUSIVE), dsv.getMaxItem());
+    assertEquals(dsv.getRank(-1, INCLUSIVE), 0.0);
+    assertEquals(fsv.getRank(Float.MAX_VALUE, EXCLUSIVE), 1.0);
+    try {
+      dsv.getRank(Double.NaN, INCLUSIVE);
+      throw new AssertionError();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  private static int find(final double[] arr, final double v, final InequalitySearch crit) {
+    return InequalitySearch.find(arr, 0, arr.length - 1, v, crit);
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.quantilescommon;
+
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import org.apache.datasketches.common.ArrayOfStringsSerDe;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.kll.KllDoublesSketch;
+import org.apache.datasketches.kll.KllFloatsSketch;
+import org.apache.datasketches.kll.KllItemsSketch;
+
+public class SortedViewBatchQueryTest {
+  private static final QuantileSearchCriteria[] CRITS = {INCLUSIVE, EXCLUSIVE};
+
+  @Test
+  public void checkDoublesBatchMatchesPointQueries() {
+    final Random rand = new Random(1);
+    final KllDoublesSketch sk = KllDoublesSketch.newHeapInstance(20);
+    for (int i = 0; i < 5000; i++) { sk.update(rand.nextInt(1000)); }
+    final DoublesSortedView sv = sk.getSortedView();
+    final double[] ranks = queryRanks(rand);
+    final double[] points = new double[60];
+    for (int i = 0; i < points.length; i++) { points[i] = rand.nextInt(1100) - 50; }
+    final double[] qOut = new double[ranks.length];
+    final double[] rOut = new double[points.length];
+    for (int s = 0; s < 2; s++) {
+      if (s == 1) { Arrays.sort(ranks); Arrays.sort(points); }
+      for (QuantileSearchCriteria crit : CRITS) {
+        sv.getQuantiles(ranks, crit, qOut);
+        for (int i = 0; i < ranks.length; i++) {
+          assertEquals(qOut[i], sv.getQuantile(ranks[i], crit));
+        }
+        sv.getRanks(points, crit, rOut);
+        for (int i = 0; i < points.length; i++) {
+          assertEquals(rOut[i], sv.getRank(points[i], crit));
+        }
+      }
+    }
+    final double[] splits = {100, 500, 900};
+    final double[] cdf = new double[4];
+    final double[] pmf = new double[4];
+    for (QuantileSearchCriteria crit : CRITS) {
+      sv.getCDF(splits, crit, cdf);
+      sv.getPMF(splits, crit, pmf);
+      assertEquals(cdf, sv.getCDF(splits, crit));
+      assertEquals(pmf, sv.getPMF(splits, crit));
+    }
+    try {
+      sv.getCDF(splits, INCLUSIVE, new double[3]);
+      fail();
+    } catch (SketchesArgumentException e) { }
+    try {
+      sv.getQuantiles(ranks, INCLUSIVE, new double[1]);
+      fail();
+    } catch (SketchesArgumentException e) { }
+    try {
+      sv.getQuantiles(new double[] {0.1, 1.5}, INCLUSIVE, new double[2]);
+      fail();
+    } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkFloatsBatchMatchesPointQueries() {
+    final Random rand = new Random(2);
+    final KllFloatsSketch sk = KllFloatsSketch.newHeapInstance(20);
+    for (int i = 0; i < 5000; i++) { sk.update(rand.nextInt(1000)); }
+    final FloatsSortedView sv = sk.getSortedView();
+    final double[] ranks = queryRanks(rand);
+    final float[] points = new float[60];
+    for (int i = 0; i < points.length; i++) { points[i] = rand.nextInt(1100) - 50; }
+    final float[] qOut = new float[ranks.length];
+    final double[] rOut = new double[points.length];
+    for (int s = 0; s < 2; s++) {
+      if (s == 1) { Arrays.sort(ranks); Arrays.sort(points); }
+      for (QuantileSearchCriteria crit : CRITS) {
+        sv.getQuantiles(ranks, crit, qOut);
+        for (int i = 0; i < ranks.length; i++) {
+          assertEquals(qOut[i], sv.getQuantile(ranks[i], crit));
+        }
+        sv.getRanks(points, crit, rOut);
+        for (int i = 0; i < points.length; i++) {
+          assertEquals(rOut[i], sv.getRank(points[i], crit));
+        }
+      }
+    }
+    final float[] splits = {100, 500, 900};
+    final double[] cdf = new double[4];
+    final double[] pmf = new double[4];
+    for (QuantileSearchCriteria crit : CRITS) {
+      sv.getCDF(splits, crit, cdf);
+      sv.getPMF(splits, crit, pmf);
+      assertEquals(cdf, sv.getCDF(splits, crit));
+      assertEquals(pmf, sv.getPMF(splits, crit));
+    }
+    try {
+      sv.getPMF(splits, INCLUSIVE, new double[3]);
+      fail();
+    } catch (SketchesArgumentException e) { }
+    try {
+      sv.getRanks(points, INCLUSIVE, new double[1]);
+      fail();
+    } catch (SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkItemsBatchMatchesPointQueries() {
+    final Random rand = new Random(3);
+    final Comparator<String> comparator = Comparator.naturalOrder();
+    final KllItemsSketch<String> sk =
+        KllItemsSketch.newHeapInstance(20, comparator, new ArrayOfStringsSerDe());
+    for (int i = 0; i < 5000; i++) { sk.update(String.format("%04d", rand.nextInt(1000))); }
+    final GenericSortedView<String> sv = sk.getSortedView();
+    final double[] ranks = queryRanks(rand);
+    final String[] points = new String[60];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = String.format("%04d", rand.nextInt(1100));
+    }
+    final String[] qOut = new String[ranks.length];
+    final double[] rOut = new double[points.length];
+    for (int s = 0; s < 2; s++) {
+      if (s == 1) { Arrays.sort(ranks); Arrays.sort(points); }
+      for (QuantileSearchCriteria crit : CRITS) {
+        sv.getQuantiles(ranks, crit, qOut);
+        for (int i = 0; i < ranks.length; i++) {
+          assertEquals(qOut[i], sv.getQuantile(ranks[i], crit));
+        }
+        sv.getRanks(points, crit, rOut);
+        for (int i = 0; i < points.length; i++) {
+          assertEquals(rOut[i], sv.getRank(points[i], crit));
+        }
+      }
+    }
+    final String[] splits = {"0100", "0500", "0900"};
+    final double[] cdf = new double[4];
+    for (QuantileSearchCriteria crit : CRITS) {
+      sv.getCDF(splits, crit, cdf);
+      assertEquals(cdf, sv.getCDF(splits, crit));
+    }
+  }
+
+  private static double[] queryRanks(final Random rand) {
+    final double[] ranks = new double[50];
+    for (int i = 0; i < ranks.length - 2; i++) { ranks[i] = rand.nextDouble(); }
+    ranks[ranks.length - 2] = 0.0;
+    ranks[ranks.length - 1] = 1.0;
+    return ranks;
+  }
+}
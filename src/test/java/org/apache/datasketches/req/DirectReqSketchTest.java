@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesReadOnlyException;
+import org.apache.datasketches.memory.DefaultMemoryRequestServer;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.quantilescommon.QuantilesFloatsSketchIterator;
+import org.testng.annotations.Test;
+
+public class DirectReqSketchTest {
+  private static final DefaultMemoryRequestServer memReqSvr = new DefaultMemoryRequestServer();
+
+  @Test
+  public void checkExactModeMatchesHeap() {
+    for (final boolean hra : new boolean[] {true, false}) {
+      final ReqSketch hsk = ReqSketch.builder().setHighRankAccuracy(hra).build();
+      final DirectReqSketch dsk = ReqSketch.builder().setHighRankAccuracy(hra)
+          .build(WritableMemory.allocate(1 << 12), memReqSvr);
+      assertTrue(dsk.isEmpty());
+      assertFalse(dsk.isReadOnly());
+      assertTrue(dsk.hasMemory());
+      for (int i = 60; i > 0; i--) {
+        hsk.update(i);
+        dsk.update(i);
+      }
+      dsk.update(Float.NaN);
+      assertFalse(dsk.isEstimationMode());
+      assertEquals(dsk.getN(), 60);
+      assertEquals(dsk.getNumRetained(), 60);
+      assertEquals(dsk.getMinItem(), 1f);
+      assertEquals(dsk.getMaxItem(), 60f);
+      assertEquals(dsk.getSerializedSizeBytes(), hsk.getSerializedSizeBytes());
+      assertEquals(dsk.toByteArray(), hsk.toByteArray());
+      for (int i = 0; i <= 61; i++) {
+        assertEquals(dsk.getRank(i, INCLUSIVE), hsk.getRank(i, INCLUSIVE));
+        assertEquals(dsk.getRank(i, EXCLUSIVE), hsk.getRank(i, EXCLUSIVE));
+      }
+      assertEquals(dsk.getQuantile(0.5), hsk.getQuantile(0.5));
+      assertEquals(dsk.getCDF(new float[] {10, 20}), hsk.getCDF(new float[] {10, 20}));
+    }
+  }
+
+  @Test
+  public void checkEstimationModeAndGrowth() {
+    final WritableMemory wmem = WritableMemory.allocate(64); //much too small, must grow
+    final DirectReqSketch dsk = ReqSketch.builder().setK(12).build(wmem, memReqSvr);
+    final int n = 100_000;
+    for (int i = 1; i <= n; i++) { dsk.update(i); }
+    assertTrue(dsk.isEstimationMode());
+    assertTrue(dsk.getMemory().getCapacity() > 64);
+    assertEquals(dsk.getN(), n);
+    assertEquals(dsk.getMinItem(), 1f);
+    assertEquals(dsk.getMaxItem(), (float) n);
+    assertTrue(dsk.getNumRetained() < n);
+
+    //the image is consistent with its heapified copy
+    final ReqSketch hsk = ReqSketch.heapify(dsk.getMemory());
+    assertEquals(hsk.getN(), dsk.getN());
+    assertEquals(hsk.getNumRetained(), dsk.getNumRetained());
+    assertEquals(dsk.toByteArray(), hsk.toByteArray());
+    assertEquals(dsk.getSerializedSizeBytes(), hsk.getSerializedSizeBytes());
+    for (int i = 1; i < 10; i++) {
+      final double rank = i / 10.0;
+      assertEquals(dsk.getQuantile(rank), hsk.getQuantile(rank));
+      assertEquals(dsk.getRank((float) (rank * n)), rank, 0.01);
+    }
+    //high ranks are exact
+    assertEquals(dsk.getRank(n - 10, INCLUSIVE), (n - 10.0) / n);
+
+    long totalWeight = 0;
+    final QuantilesFloatsSketchIterator itr = dsk.iterator();
+    while (itr.next()) { totalWeight += itr.getWeight(); }
+    assertEquals(totalWeight, n);
+  }
+
+  @Test
+  public void checkWrapCompactImages() {
+    final int[] sizes = {0, 3, 50, 10_000};
+    for (final int n : sizes) {
+      final ReqSketch hsk = ReqSketch.builder().build();
+      for (int i = 0; i < n; i++) { hsk.update((i * 7) % 1000); }
+      final byte[] bytes = hsk.toByteArray();
+      final DirectReqSketch dsk = ReqSketch.wrap(Memory.wrap(bytes));
+      assertTrue(dsk.isReadOnly());
+      assertEquals(dsk.getN(), hsk.getN());
+      assertEquals(dsk.getNumRetained(), hsk.getNumRetained());
+      assertEquals(dsk.isEstimationMode(), hsk.isEstimationMode());
+      assertEquals(dsk.getSerializedSizeBytes(), bytes.length);
+      assertEquals(dsk.toByteArray(), bytes);
+      if (n == 0) {
+        assertTrue(dsk.isEmpty());
+        try { dsk.getQuantile(0.5); fail(); } catch (final IllegalArgumentException e) { }
+        continue;
+      }
+      assertEquals(dsk.getMinItem(), hsk.getMinItem());
+      assertEquals(dsk.getMaxItem(), hsk.getMaxItem());
+      for (int i = 0; i <= 10; i++) {
+        assertEquals(dsk.getQuantile(i / 10.0), hsk.getQuantile(i / 10.0));
+        assertEquals(dsk.getRank(i * 100), hsk.getRank(i * 100));
+      }
+      assertEquals(dsk.getRankUpperBound(0.5), hsk.getRankUpperBound(0.5));
+      assertNotNull(dsk.toString());
+      assertNotNull(dsk.viewCompactorDetail("%4.0f", true));
+      try { dsk.update(1); fail(); } catch (final SketchesReadOnlyException e) { }
+    }
+  }
+
+  @Test
+  public void checkWritableWrapAndMerge() {
+    final DirectReqSketch dsk1 = ReqSketch.builder().build(WritableMemory.allocate(1024), memReqSvr);
+    for (int i = 0; i < 1000; i++) { dsk1.update(i); }
+
+    //rewrap the updatable image and keep updating
+    final DirectReqSketch dsk2 = ReqSketch.writableWrap((WritableMemory) dsk1.getMemory(), memReqSvr);
+    assertEquals(dsk2.getN(), 1000);
+    final ReqSketch hsk = ReqSketch.builder().build();
+    for (int i = 1000; i < 3000; i++) { hsk.update(i); }
+    dsk2.merge(hsk);
+    assertEquals(dsk2.getN(), 3000);
+    assertEquals(dsk2.getMinItem(), 0f);
+    assertEquals(dsk2.getMaxItem(), 2999f);
+    dsk2.merge(ReqSketch.wrap(Memory.wrap(hsk.toByteArray())));
+    assertEquals(dsk2.getN(), 5000);
+    assertEquals(dsk2.getRank(2000), 0.6, 0.02); //1000 + 2 * 1000 of 5000
+
+    //read only wrap of the updatable image
+    final DirectReqSketch rsk = ReqSketch.wrap(dsk2.getMemory());
+    assertTrue(rsk.isReadOnly());
+    assertEquals(rsk.getN(), 5000);
+    assertEquals(rsk.getQuantile(0.5), dsk2.getQuantile(0.5));
+    try { rsk.merge(hsk); fail(); } catch (final SketchesReadOnlyException e) { }
+
+    dsk2.reset();
+    assertTrue(dsk2.isEmpty());
+    assertEquals(dsk2.getNumRetained(), 0);
+    dsk2.update(5);
+    assertEquals(dsk2.getMinItem(), 5f);
+    assertEquals(dsk2.getMaxItem(), 5f);
+
+    final DirectReqSketch lra = ReqSketch.builder().setHighRankAccuracy(false).build(
+        WritableMemory.allocate(1024), memReqSvr);
+    lra.update(1);
+    try { dsk2.merge(ReqSketch.heapify(Memory.wrap(lra.toByteArray()))); fail(); }
+    catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkBadMemory() {
+    final ReqSketch hsk = ReqSketch.builder().build();
+    hsk.update(1);
+    try {
+      ReqSketch.writableWrap(WritableMemory.writableWrap(hsk.toByteArray()), memReqSvr);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try {
+      ReqSketch.wrap(Memory.wrap(new byte[16]));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+}
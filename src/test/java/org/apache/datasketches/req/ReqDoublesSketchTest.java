@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.req;
+
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.EXCLUSIVE;
+import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INCLUSIVE;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.DefaultMemoryRequestServer;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.quantilescommon.QuantilesDoublesSketchIterator;
+import org.testng.annotations.Test;
+
+public class ReqDoublesSketchTest {
+  private static final double BASE = 1.0e15; //distinct integers here collapse as floats
+
+  @Test
+  public void checkEmpty() {
+    final ReqDoublesSketch sk = ReqSketch.builder().buildDoubles();
+    assertTrue(sk.isEmpty());
+    assertFalse(sk.hasMemory());
+    assertFalse(sk.isReadOnly());
+    try { sk.getQuantile(0.5); fail(); } catch (final IllegalArgumentException e) { }
+    try { sk.getMinItem(); fail(); } catch (final IllegalArgumentException e) { }
+    final ReqDoublesSketch sk2 = ReqDoublesSketch.heapify(Memory.wrap(sk.toByteArray()));
+    assertTrue(sk2.isEmpty());
+    assertEquals(sk.getSerializedSizeBytes(), 8);
+  }
+
+  @Test
+  public void checkExactLargeValues() {
+    final ReqDoublesSketch sk = ReqSketch.builder().buildDoubles();
+    for (int i = 0; i < 50; i++) { sk.update(BASE + i); }
+    sk.update(Double.NaN);
+    assertFalse(sk.isEstimationMode());
+    assertEquals(sk.getN(), 50);
+    assertEquals(sk.getMinItem(), BASE);
+    assertEquals(sk.getMaxItem(), BASE + 49);
+    assertEquals(sk.getRank(BASE + 24, INCLUSIVE), 0.5);
+    assertEquals(sk.getRank(BASE + 24, EXCLUSIVE), 0.48);
+    assertEquals(sk.getQuantile(0.5, INCLUSIVE), BASE + 24);
+    final double[] cdf = sk.getCDF(new double[] {BASE + 4, BASE + 9});
+    assertEquals(cdf[0], 0.1);
+    assertEquals(cdf[1], 0.2);
+    assertEquals(cdf[2], 1.0);
+    assertNotNull(sk.toString());
+    assertNotNull(sk.viewCompactorDetail("%4.0f", true));
+  }
+
+  @Test
+  public void checkEstimationModeAndIterator() {
+    for (final boolean hra : new boolean[] {true, false}) {
+      final ReqDoublesSketch sk = ReqSketch.builder().setHighRankAccuracy(hra).buildDoubles();
+      final int n = 100_000;
+      for (int i = 1; i <= n; i++) { sk.update(BASE + i); }
+      assertTrue(sk.isEstimationMode());
+      assertEquals(sk.getN(), n);
+      assertTrue(sk.getNumRetained() < n);
+      for (int i = 1; i < 10; i++) {
+        final double rank = sk.getRank(BASE + (i * n / 10));
+        assertTrue(rank >= sk.getRankLowerBound(i / 10.0, 3));
+        assertTrue(rank <= sk.getRankUpperBound(i / 10.0, 3));
+      }
+      //the prioritized end is exact
+      if (hra) { assertEquals(sk.getRank(BASE + n - 10, INCLUSIVE), (n - 10.0) / n); }
+      else { assertEquals(sk.getRank(BASE + 10, INCLUSIVE), 10.0 / n); }
+      long totalWeight = 0;
+      final QuantilesDoublesSketchIterator itr = sk.iterator();
+      while (itr.next()) { totalWeight += itr.getWeight(); }
+      assertEquals(totalWeight, n);
+    }
+  }
+
+  @Test
+  public void checkBatchUpdate() {
+    final double[] items = new double[5000];
+    for (int i = 0; i < items.length; i++) { items[i] = BASE + ((i * 7919) % items.length); }
+    items[17] = Double.NaN;
+    final ReqDoublesSketch sk1 = ReqSketch.builder().buildDoubles();
+    final ReqDoublesSketch sk2 = ReqSketch.builder().buildDoubles();
+    for (int i = 10; i < 60; i++) { sk1.update(items[i]); }
+    sk2.update(items, 10, 50);
+    assertEquals(sk2.getN(), 49);
+    assertEquals(sk2.toByteArray(), sk1.toByteArray());
+
+    final ReqDoublesSketch sk3 = ReqSketch.builder().buildDoubles();
+    sk3.update(items, 0, items.length);
+    assertEquals(sk3.getN(), items.length - 1);
+    assertEquals(sk3.getMinItem(), BASE);
+    assertEquals(sk3.getMaxItem(), BASE + items.length - 1);
+    assertEquals(sk3.getRank(BASE + 2500), 0.5, 0.01);
+    assertEquals(sk3.getNumRetained(), sk3.computeTotalRetainedItems());
+    assertTrue(sk3.getNumRetained() < sk3.getMaxNomSize());
+
+    sk3.update(items, 0, 0);
+    try { sk3.update(items, 4990, 20); fail(); } catch (final SketchesArgumentException e) { }
+    try { sk3.update(items, -1, 2); fail(); } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkMerge() {
+    final ReqDoublesSketch sk1 = ReqSketch.builder().buildDoubles();
+    final ReqDoublesSketch sk2 = ReqSketch.builder().buildDoubles();
+    for (int i = 0; i < 1000; i++) { sk1.update(BASE + i); }
+    for (int i = 1000; i < 3000; i++) { sk2.update(BASE + i); }
+    sk1.merge(sk2);
+    assertEquals(sk1.getN(), 3000);
+    assertEquals(sk1.getMinItem(), BASE);
+    assertEquals(sk1.getMaxItem(), BASE + 2999);
+    assertEquals(sk1.getRank(BASE + 1500), 0.5, 0.02);
+    final ReqDoublesSketch lra = ReqSketch.builder().setHighRankAccuracy(false).buildDoubles();
+    lra.update(1);
+    try { sk1.merge(lra); fail(); } catch (final SketchesArgumentException e) { }
+    sk1.reset();
+    assertTrue(sk1.isEmpty());
+    sk1.update(5);
+    assertEquals(sk1.getMinItem(), 5.0);
+  }
+
+  @Test
+  public void checkSerDe() {
+    final int[] sizes = {1, 4, 50, 10_000};
+    for (final boolean hra : new boolean[] {true, false}) {
+      for (final int n : sizes) {
+        final ReqDoublesSketch sk = ReqSketch.builder().setHighRankAccuracy(hra).buildDoubles();
+        for (int i = 0; i < n; i++) { sk.update(BASE + ((i * 7) % 1000)); }
+        final byte[] bytes = sk.toByteArray();
+        assertEquals(bytes.length, sk.getSerializedSizeBytes());
+        final ReqDoublesSketch sk2 = ReqDoublesSketch.heapify(Memory.wrap(bytes));
+        assertEquals(sk2.getN(), sk.getN());
+        assertEquals(sk2.getNumRetained(), sk.getNumRetained());
+        assertEquals(sk2.getMinItem(), sk.getMinItem());
+        assertEquals(sk2.getMaxItem(), sk.getMaxItem());
+        assertEquals(sk2.getHighRankAccuracyMode(), hra);
+        if (n > ReqSketch.MIN_K) { assertEquals(sk2.toByteArray(), bytes); } //raw items may reorder
+        for (int i = 0; i <= 10; i++) {
+          assertEquals(sk2.getQuantile(i / 10.0), sk.getQuantile(i / 10.0));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void checkFloatAndDoubleImagesAreNotMixed() {
+    final ReqDoublesSketch dsk = ReqSketch.builder().buildDoubles();
+    dsk.update(1);
+    final ReqSketch fsk = ReqSketch.builder().build();
+    fsk.update(1);
+    try { ReqSketch.heapify(Memory.wrap(dsk.toByteArray())); fail(); }
+    catch (final SketchesArgumentException e) { }
+    try { ReqSketch.wrap(Memory.wrap(dsk.toByteArray())); fail(); }
+    catch (final SketchesArgumentException e) { }
+    try {
+      ReqSketch.writableWrap(WritableMemory.writableWrap(dsk.toByteArray()),
+          new DefaultMemoryRequestServer());
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    try { ReqDoublesSketch.heapify(Memory.wrap(fsk.toByteArray())); fail(); }
+    catch (final SketchesArgumentException e) { }
+  }
+}
@@ -24,6 +24,7 @@ import static org.apache.datasketches.quantilescommon.QuantileSearchCriteria.INC
 import static org.apache.datasketches.quantilescommon.QuantilesUtil.evenlySpacedDoubles;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import org.apache.datasketches.common.SketchesArgumentException;
@@ -313,6 +314,33 @@ public class ReqSketchTest {
     } catch (final SketchesArgumentException e) {}
   }
 
+  @Test
+  public void checkBatchUpdate() {
+    final float[] items = new float[5000];
+    for (int i = 0; i < items.length; i++) { items[i] = (i * 7919) % items.length; }
+    items[17] = Float.NaN;
+    for (final boolean hra : new boolean[] {true, false}) {
+      final ReqSketch sk1 = ReqSketch.builder().setHighRankAccuracy(hra).build();
+      final ReqSketch sk2 = ReqSketch.builder().setHighRankAccuracy(hra).build();
+      for (int i = 10; i < 60; i++) { sk1.update(items[i]); }
+      sk2.update(items, 10, 50);
+      assertEquals(sk2.getN(), 49);
+      assertEquals(sk2.toByteArray(), sk1.toByteArray());
+
+      final ReqSketch sk3 = ReqSketch.builder().setHighRankAccuracy(hra).build();
+      sk3.update(items, 0, items.length);
+      assertEquals(sk3.getN(), items.length - 1);
+      assertEquals(sk3.getMinItem(), 0f);
+      assertEquals(sk3.getMaxItem(), items.length - 1f);
+      final double rank = sk3.getRank(2500);
+      assertTrue(rank >= sk3.getRankLowerBound(0.5, 3));
+      assertTrue(rank <= sk3.getRankUpperBound(0.5, 3));
+      assertEquals(sk3.getNumRetained(), sk3.computeTotalRetainedItems());
+    }
+    try { new ReqSketchBuilder().build().update(items, -1, 2); fail(); }
+    catch (final SketchesArgumentException e) { }
+  }
+
   @Test
   public void tenValues() {
     final ReqSketch sketch = ReqSketch.builder().build();
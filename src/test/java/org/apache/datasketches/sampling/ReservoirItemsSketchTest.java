@@ -525,6 +525,35 @@ public class ReservoirItemsSketchTest {
     }
   }
 
+  @Test
+  public void checkBatchUpdate() {
+    final int k = 10;
+    final int n = 60;
+    final int numTrials = 20_000;
+    final Integer[] items = new Integer[n + (n / 2)];
+    for (int i = 0, j = 0; i < items.length; ++i) {
+      items[i] = (i % 3) == 2 ? null : j++; // nulls are not counted
+    }
+
+    final int[] counts = new int[n];
+    for (int t = 0; t < numTrials; ++t) {
+      final ReservoirItemsSketch<Integer> ris = ReservoirItemsSketch.newInstance(k);
+      ris.update(items, 0, items.length);
+      assertEquals(ris.getN(), n);
+      for (final Integer s : ris.getSamples()) { ++counts[s]; }
+    }
+    for (int i = 0; i < n; ++i) {
+      assertEquals(counts[i] / (double) numTrials, (double) k / n, 0.015);
+    }
+
+    final ReservoirItemsSketch<Integer> ris = ReservoirItemsSketch.newInstance(k);
+    ris.update(items, 0, 4);
+    assertEquals(ris.getN(), 3);
+    assertEquals(ris.getSamples(), new Integer[] {0, 1, 2});
+    try { ris.update(items, 1, items.length); fail(); }
+    catch (final SketchesArgumentException e) { }
+  }
+
   @Test
   public void checkEstimateSubsetSum() {
     final int k = 10;
@@ -32,6 +32,10 @@ import static org.testng.Assert.fail;
 
 import java.util.ArrayList;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
 import org.apache.datasketches.memory.Memory;
@@ -474,6 +478,41 @@ public class ReservoirItemsUnionTest {
     fail();
   }
 
+  @Test
+  public void checkParallelUnionIsReproducible() {
+    final int maxK = 50;
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    final List<ReservoirItemsSketch<Long>> sketches = new ArrayList<>();
+    final List<Memory> images = new ArrayList<>();
+    long n = 0;
+    for (int s = 0; s < 40; ++s) {
+      final ReservoirItemsSketch<Long> ris = getBasicSketch(20 * (s + 1), s % 2 == 0 ? 25 : 100);
+      n += ris.getN();
+      sketches.add(ris);
+      images.add(Memory.wrap(ris.toByteArray(serDe)));
+    }
+
+    final ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      final ReservoirItemsUnion<Long> u1 = ReservoirItemsUnion.newInstance(maxK);
+      u1.updateAll(sketches, pool, 11L);
+      final ReservoirItemsUnion<Long> u2 = ReservoirItemsUnion.newInstance(maxK);
+      u2.updateAll(sketches, null, 11L);
+      assertEquals(u1.getResult().getN(), n);
+      assertTrue(u1.getResult().getNumSamples() <= maxK); // reduced by the smaller-k inputs
+      assertEquals(u2.toByteArray(serDe), u1.toByteArray(serDe));
+
+      final ReservoirItemsUnion<Long> u3 = ReservoirItemsUnion.newInstance(maxK);
+      u3.updateAllImages(images, serDe, pool, 11L);
+      final ReservoirItemsUnion<Long> u4 = ReservoirItemsUnion.newInstance(maxK);
+      u4.updateAllImages(images, serDe, ForkJoinPool.commonPool(), 11L);
+      assertEquals(u3.getResult().getN(), n);
+      assertEquals(u4.toByteArray(serDe), u3.toByteArray(serDe));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   private static ReservoirItemsSketch<Long> getBasicSketch(final int n, final int k) {
     final ReservoirItemsSketch<Long> rls = ReservoirItemsSketch.newInstance(k);
 
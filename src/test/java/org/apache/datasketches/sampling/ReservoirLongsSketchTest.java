@@ -512,6 +512,70 @@ public class ReservoirLongsSketchTest {
     validateReservoirEquality(rls, loadedRls);
   }
 
+  @Test
+  public void checkSkipSamplingIsUniform() {
+    final int k = 10;
+    final int n = 100;
+    final int numTrials = 20_000;
+    final int[] countsSingle = new int[n];
+    final int[] countsBatch = new int[n];
+    final int[] countsResumed = new int[n];
+    final long[] items = new long[n];
+    for (int i = 0; i < n; ++i) { items[i] = i; }
+
+    for (int t = 0; t < numTrials; ++t) {
+      final ReservoirLongsSketch single = ReservoirLongsSketch.newInstance(k);
+      for (long i = 0; i < n; ++i) { single.update(i); }
+      for (final long s : single.getSamples()) { ++countsSingle[(int) s]; }
+
+      final ReservoirLongsSketch batch = ReservoirLongsSketch.newInstance(k);
+      batch.update(items, 0, n);
+      for (final long s : batch.getSamples()) { ++countsBatch[(int) s]; }
+
+      // a heapified sketch must redraw its skip state for the items seen so far
+      final ReservoirLongsSketch first = ReservoirLongsSketch.newInstance(k);
+      first.update(items, 0, 37);
+      final ReservoirLongsSketch resumed =
+          ReservoirLongsSketch.heapify(Memory.wrap(first.toByteArray()));
+      resumed.update(items, 37, n - 37);
+      for (final long s : resumed.getSamples()) { ++countsResumed[(int) s]; }
+    }
+
+    final double expected = (double) k / n;
+    for (int i = 0; i < n; ++i) {
+      assertEquals(countsSingle[i] / (double) numTrials, expected, 0.012);
+      assertEquals(countsBatch[i] / (double) numTrials, expected, 0.012);
+      assertEquals(countsResumed[i] / (double) numTrials, expected, 0.012);
+    }
+  }
+
+  @Test
+  public void checkBatchUpdate() {
+    final int k = 64;
+    final long[] items = new long[100_000];
+    for (int i = 0; i < items.length; ++i) { items[i] = i; }
+
+    final ReservoirLongsSketch rls = ReservoirLongsSketch.newInstance(k);
+    rls.update(items, 0, 10);
+    assertEquals(rls.getN(), 10);
+    assertEquals(rls.getSamples(), new long[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+    rls.update(items, 10, items.length - 10);
+    assertEquals(rls.getN(), items.length);
+    assertEquals(rls.getNumSamples(), k);
+    rls.update(items, 0, 0);
+    rls.update(5L);
+    assertEquals(rls.getN(), items.length + 1);
+
+    try { rls.update(items, 10, items.length); fail(); }
+    catch (final SketchesArgumentException e) { }
+    try { rls.update(items, -1, 1); fail(); }
+    catch (final SketchesArgumentException e) { }
+
+    rls.reset();
+    rls.update(items, 0, k + 1);
+    assertEquals(rls.getN(), k + 1);
+  }
+
   static void validateReservoirEquality(final ReservoirLongsSketch rls1,
                                         final ReservoirLongsSketch rls2) {
     assertEquals(rls1.getNumSamples(), rls2.getNumSamples());
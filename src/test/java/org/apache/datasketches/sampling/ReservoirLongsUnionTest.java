@@ -30,6 +30,10 @@ import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
 import org.apache.datasketches.memory.Memory;
@@ -396,6 +400,86 @@ public class ReservoirLongsUnionTest {
     fail();
   }
 
+  @Test
+  public void checkParallelUnionIsReproducible() {
+    final int maxK = 64;
+    final List<ReservoirLongsSketch> sketches = new ArrayList<>();
+    final List<Memory> images = new ArrayList<>();
+    long n = 0;
+    for (int s = 0; s < 100; ++s) {
+      final ReservoirLongsSketch rls = ReservoirLongsSketch.newInstance(s % 2 == 0 ? 32 : 128);
+      for (int i = 0; i < 50 * (s + 1); ++i) {
+        rls.update(((long) s << 32) | i);
+      }
+      n += rls.getN();
+      sketches.add(rls);
+      images.add(Memory.wrap(rls.toByteArray()));
+    }
+    sketches.add(null);
+    final byte[] firstInput = sketches.get(0).toByteArray();
+
+    final ForkJoinPool pool1 = new ForkJoinPool(1);
+    final ForkJoinPool pool4 = new ForkJoinPool(4);
+    try {
+      final ReservoirLongsUnion u1 = ReservoirLongsUnion.newInstance(maxK);
+      u1.updateAll(sketches, pool1, 42L);
+      final ReservoirLongsUnion u2 = ReservoirLongsUnion.newInstance(maxK);
+      u2.updateAll(sketches, pool4, 42L);
+      assertEquals(u1.getResult().getN(), n);
+      assertTrue(u1.getResult().getNumSamples() <= maxK); // reduced by the smaller-k inputs
+      assertEquals(u2.toByteArray(), u1.toByteArray());
+      assertEquals(sketches.get(0).toByteArray(), firstInput);
+
+      final ReservoirLongsUnion u3 = ReservoirLongsUnion.newInstance(maxK);
+      u3.updateAllImages(images, pool4, 7L);
+      final ReservoirLongsUnion u4 = ReservoirLongsUnion.newInstance(maxK);
+      u4.updateAllImages(images, null, 7L);
+      assertEquals(u3.getResult().getN(), n);
+      assertEquals(u4.toByteArray(), u3.toByteArray());
+
+      // merging into a non-empty union
+      u3.updateAll(sketches.subList(0, 10), pool4, 3L);
+      u4.updateAll(sketches.subList(0, 10), pool1, 3L);
+      assertEquals(u4.toByteArray(), u3.toByteArray());
+    } finally {
+      pool1.shutdown();
+      pool4.shutdown();
+    }
+  }
+
+  @Test
+  public void checkParallelUnionIsUniform() {
+    // 3 classes of sketches with 100, 200 and 300 items each, so class c holds (c+1)/6 of the input
+    final int k = 10;
+    final int numSketches = 48;
+    final int numTrials = 2000;
+    final List<ReservoirLongsSketch> sketches = new ArrayList<>();
+    for (int s = 0; s < numSketches; ++s) {
+      final ReservoirLongsSketch rls = ReservoirLongsSketch.newInstance(k);
+      for (int i = 0; i < 100 * (1 + (s % 3)); ++i) {
+        rls.update(s % 3);
+      }
+      sketches.add(rls);
+    }
+
+    final long[] counts = new long[3];
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int t = 0; t < numTrials; ++t) {
+        final ReservoirLongsUnion union = ReservoirLongsUnion.newInstance(k);
+        union.updateAll(sketches, pool, t);
+        for (final long v : union.getResult().getSamples()) {
+          ++counts[(int) v];
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+    for (int c = 0; c < 3; ++c) {
+      assertEquals(counts[c] / (double) (k * numTrials), (c + 1) / 6.0, 0.02);
+    }
+  }
+
   private static void validateUnionEquality(final ReservoirLongsUnion rlu1,
                                             final ReservoirLongsUnion rlu2) {
     assertEquals(rlu1.getMaxK(), rlu2.getMaxK());
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.sampling;
+
+import static org.apache.datasketches.sampling.VarOptItemsSketchTest.EPS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.apache.datasketches.common.ArrayOfDoublesSerDe;
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+public class VarOptDoublesSketchTest {
+
+  @Test
+  public void checkExactAndEstimationModes() {
+    final int k = 64;
+    final VarOptDoublesSketch sketch = VarOptDoublesSketch.newInstance(k);
+    assertNull(sketch.getSamples());
+    for (int i = 1; i <= 10; ++i) {
+      sketch.update(i * 0.5, 2.0);
+    }
+    assertEquals(sketch.estimateSubsetSum(x -> x <= 2.5).getEstimate(), 10.0);
+
+    final int n = 5000;
+    for (int i = 0; i < n; ++i) {
+      sketch.update(-i - 0.25, 1.0);
+    }
+    assertEquals(sketch.getN(), n + 10);
+    assertEquals(sketch.getNumSamples(), k);
+    final SampleSubsetSummary ss = sketch.estimateSubsetSum(x -> x < 0.0);
+    assertTrue(ss.getLowerBound() <= ss.getEstimate());
+    assertTrue(ss.getEstimate() <= ss.getUpperBound());
+    assertEquals(ss.getTotalSketchWeight(), n + 20.0, EPS * n);
+  }
+
+  @Test
+  public void checkSerializationMatchesItemsSketch() {
+    final ArrayOfDoublesSerDe serDe = new ArrayOfDoublesSerDe();
+    for (final int n : new int[] {5, 300}) {
+      final VarOptDoublesSketch sketch = VarOptDoublesSketch.newInstance(40);
+      for (int i = 1; i <= n; ++i) {
+        sketch.update(i / 3.0, (i % 11) == 0 ? 500.0 : 1.0);
+      }
+      final byte[] bytes = sketch.toByteArray();
+      final VarOptItemsSketch<Double> vis = VarOptItemsSketch.heapify(Memory.wrap(bytes), serDe);
+      assertEquals(vis.toByteArray(serDe), bytes);
+      final VarOptDoublesSketch rebuilt =
+          VarOptDoublesSketch.heapify(Memory.wrap(vis.toByteArray(serDe)));
+      assertEquals(rebuilt.getSamples(), sketch.getSamples());
+      assertEquals(rebuilt.getWeights(), sketch.getWeights());
+    }
+  }
+
+  @Test
+  public void checkWarmupAtAllocationBoundaries() {
+    final ArrayOfDoublesSerDe serDe = new ArrayOfDoublesSerDe();
+    for (final ResizeFactor rf : new ResizeFactor[] {ResizeFactor.X2, ResizeFactor.X8}) {
+      final VarOptDoublesSketch sketch = VarOptDoublesSketch.newInstance(1000, rf);
+      for (int i = 1; i <= 1000; ++i) {
+        sketch.update(i * 0.5, 1.0);
+        // the H region may exactly fill the current allocation
+        final double[] samples = sketch.getSamples();
+        assertEquals(samples.length, i);
+        assertEquals(samples[i - 1], i * 0.5);
+        final byte[] bytes = sketch.toByteArray();
+        assertEquals(VarOptItemsSketch.heapify(Memory.wrap(bytes), serDe).toByteArray(serDe), bytes);
+        assertEquals(VarOptDoublesSketch.heapify(Memory.wrap(bytes)).getSamples(), samples);
+      }
+      assertEquals(sketch.getRRegionCount(), 0);
+    }
+  }
+
+  @Test
+  public void checkUnionOfWarmupSketchesIntoLargeK() {
+    final VarOptDoublesUnion union = VarOptDoublesUnion.newInstance(1000);
+    for (int s = 0; s < 2; ++s) {
+      final VarOptDoublesSketch sketch = VarOptDoublesSketch.newInstance(8);
+      for (int i = 0; i < 8; ++i) {
+        sketch.update(s + (i / 10.0), 1.0);
+      }
+      union.update(sketch);
+    }
+    final byte[] bytes = union.toByteArray();
+    assertEquals(VarOptDoublesUnion.heapify(Memory.wrap(bytes)).toByteArray(), bytes);
+    final VarOptDoublesSketch result = union.getResult();
+    assertEquals(result.getN(), 16);
+    assertEquals(result.getSamples().length, 16);
+  }
+
+  @Test
+  public void checkUnion() {
+    final ArrayOfDoublesSerDe serDe = new ArrayOfDoublesSerDe();
+    final VarOptDoublesUnion union = VarOptDoublesUnion.newInstance(32);
+    for (int s = 0; s < 4; ++s) {
+      final VarOptDoublesSketch sketch = VarOptDoublesSketch.newInstance(16);
+      for (int i = 0; i < 100; ++i) {
+        sketch.update(s + (i / 100.0), 1.0);
+      }
+      union.update(sketch);
+    }
+    union.update(Memory.wrap(VarOptDoublesSketch.newInstance(8).toByteArray()));
+
+    final VarOptDoublesSketch result = union.getResult();
+    assertEquals(result.getN(), 400);
+    assertEquals(result.estimateSubsetSum(x -> true).getEstimate(), 400.0, EPS);
+
+    final byte[] bytes = union.toByteArray();
+    assertEquals(VarOptItemsUnion.heapify(Memory.wrap(bytes), serDe).toByteArray(serDe, Double.class),
+        bytes);
+    assertEquals(VarOptDoublesUnion.heapify(Memory.wrap(bytes)).toByteArray(), bytes);
+  }
+}
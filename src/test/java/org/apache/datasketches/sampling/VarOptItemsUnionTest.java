@@ -27,6 +27,10 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.testng.annotations.Test;
 
 import org.apache.datasketches.memory.Memory;
@@ -200,6 +204,30 @@ public class VarOptItemsUnionTest {
     assertEquals(result.getTotalWtR(), 96.0, EPS); // n1+n2 light items, ignore the heavy one
   }
 
+  @Test
+  public void getResultLeavesGadgetUnchanged() {
+    final int kSmall = 16;
+    final int kMax = 128;
+
+    VarOptItemsSketch<Long> sketch = getUnweightedLongsVIS(kSmall, 32);
+    sketch.update(-1L, 1024.0);
+    final VarOptItemsUnion<Long> union = VarOptItemsUnion.newInstance(kMax);
+    union.update(sketch);
+    sketch = getUnweightedLongsVIS(kSmall, 64);
+    union.update(sketch);
+
+    // the marked gadget round-trips, and migrating marked items works on a copy of it
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    final byte[] before = union.toByteArray(serDe);
+    assertEquals(VarOptItemsUnion.heapify(Memory.wrap(before), serDe).toByteArray(serDe), before);
+    final VarOptItemsSketch<Long> result1 = union.getResult();
+    assertEquals(union.toByteArray(serDe), before);
+    final VarOptItemsSketch<Long> result2 = union.getResult();
+    assertEquals(result2.getN(), result1.getN());
+    assertEquals(result2.getTotalWtR(), result1.getTotalWtR(), EPS);
+    assertEquals(result2.getHRegionCount(), result1.getHRegionCount());
+  }
+
   @Test
   public void unionExactReservoirSketch() {
     // build a varopt union which contains both heavy and light items, then copy it and
@@ -403,6 +431,50 @@ public class VarOptItemsUnionTest {
     assertEquals(rebuilt.toString(), union.toString());
   }
 
+  @Test
+  public void checkParallelUnion() {
+    final int maxK = 64;
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    final List<VarOptItemsSketch<Long>> sketches = new ArrayList<>();
+    final List<Memory> images = new ArrayList<>();
+    long n = 0;
+    double totalWeight = 0.0;
+    for (int s = 0; s < 60; ++s) {
+      final VarOptItemsSketch<Long> sketch = VarOptItemsSketch.newInstance(s % 2 == 0 ? 32 : 128);
+      for (long i = 0; i < 40 * (s + 1); ++i) {
+        final double wt = (i % 97) == 0 ? 200.0 : 1.0;
+        sketch.update(((long) s << 32) | i, wt);
+        totalWeight += wt;
+      }
+      n += sketch.getN();
+      sketches.add(sketch);
+      images.add(Memory.wrap(sketch.toByteArray(serDe)));
+    }
+    final byte[] firstInput = sketches.get(0).toByteArray(serDe);
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      final VarOptItemsUnion<Long> u1 = VarOptItemsUnion.newInstance(maxK);
+      u1.updateAll(sketches, pool, 5L);
+      final VarOptItemsUnion<Long> u2 = VarOptItemsUnion.newInstance(maxK);
+      u2.updateAll(sketches, null, 5L);
+      compareUnionsExact(u1, u2);
+      assertEquals(sketches.get(0).toByteArray(serDe), firstInput);
+
+      final VarOptItemsSketch<Long> result = u1.getResult();
+      assertEquals(result.getN(), n);
+      assertEquals(result.getNumSamples(), maxK);
+      assertEquals(result.estimateSubsetSum(x -> true).getTotalSketchWeight(), totalWeight,
+          EPS * totalWeight);
+
+      final VarOptItemsUnion<Long> u3 = VarOptItemsUnion.newInstance(maxK);
+      u3.updateAllImages(images, serDe, pool, 5L);
+      compareUnionsExact(u3, u1);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   private static <T> void compareUnionsExact(final VarOptItemsUnion<T> u1,
                                              final VarOptItemsUnion<T> u2) {
     assertEquals(u1.getOuterTau(), u2.getOuterTau());
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.sampling;
+
+import static org.apache.datasketches.sampling.VarOptItemsSketchTest.EPS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import org.apache.datasketches.common.ArrayOfLongsSerDe;
+import org.apache.datasketches.common.ResizeFactor;
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+public class VarOptLongsSketchTest {
+
+  @Test
+  public void checkInvalidArguments() {
+    try { VarOptLongsSketch.newInstance(0); fail(); } catch (final SketchesArgumentException e) { }
+    final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(8);
+    try { sketch.update(1L, 0.0); fail(); } catch (final SketchesArgumentException e) { }
+    try { sketch.update(1L, -1.0); fail(); } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkEmpty() {
+    final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(16);
+    assertEquals(sketch.getN(), 0);
+    assertEquals(sketch.getNumSamples(), 0);
+    assertNull(sketch.getSamples());
+    assertNull(sketch.getWeights());
+    assertEquals(sketch.estimateSubsetSum(x -> true).getTotalSketchWeight(), 0.0);
+
+    final byte[] bytes = sketch.toByteArray();
+    assertEquals(bytes.length, 8);
+    final VarOptLongsSketch rebuilt = VarOptLongsSketch.heapify(Memory.wrap(bytes));
+    assertEquals(rebuilt.getK(), 16);
+    assertEquals(rebuilt.getN(), 0);
+  }
+
+  @Test
+  public void checkExactMode() {
+    final int k = 32;
+    final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(k, ResizeFactor.X2);
+    for (long i = 1; i <= 20; ++i) {
+      sketch.update(i, i);
+    }
+    assertEquals(sketch.getN(), 20);
+    assertEquals(sketch.getNumSamples(), 20);
+    assertEquals(sketch.getRRegionCount(), 0);
+
+    final long[] samples = sketch.getSamples();
+    final double[] weights = sketch.getWeights();
+    for (int i = 0; i < samples.length; ++i) {
+      assertEquals(weights[i], (double) samples[i]);
+    }
+
+    final SampleSubsetSummary ss = sketch.estimateSubsetSum(x -> (x % 2) == 0);
+    assertEquals(ss.getEstimate(), 110.0); // 2 + 4 + ... + 20
+    assertEquals(ss.getLowerBound(), 110.0);
+    assertEquals(ss.getUpperBound(), 110.0);
+
+    try { sketch.getItem(20); fail(); } catch (final IndexOutOfBoundsException e) { }
+    assertNotNull(sketch.toString());
+
+    sketch.reset();
+    assertEquals(sketch.getN(), 0);
+    assertNull(sketch.getSamples());
+  }
+
+  @Test
+  public void checkEstimationMode() {
+    final int k = 64;
+    final int n = 10_000;
+    final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(k);
+    for (long i = 0; i < n; ++i) {
+      sketch.update(i, 1.0);
+    }
+    // a few heavy items must be kept exactly
+    sketch.update(-1L, 1.0e5);
+    sketch.update(-2L, 2.0e5);
+
+    assertEquals(sketch.getN(), n + 2);
+    assertEquals(sketch.getNumSamples(), k);
+    assertEquals(sketch.getHRegionCount(), 2);
+
+    double totalWeight = 0.0;
+    for (final double w : sketch.getWeights()) {
+      totalWeight += w;
+    }
+    assertEquals(totalWeight, n + 3.0e5, EPS * n);
+
+    final SampleSubsetSummary heavy = sketch.estimateSubsetSum(x -> x < 0);
+    assertEquals(heavy.getEstimate(), 3.0e5);
+    final SampleSubsetSummary all = sketch.estimateSubsetSum(x -> true);
+    assertEquals(all.getEstimate(), n + 3.0e5, EPS * n);
+    assertEquals(all.getTotalSketchWeight(), n + 3.0e5, EPS * n);
+    final SampleSubsetSummary half = sketch.estimateSubsetSum(x -> (x >= 0) && (x < (n / 2)));
+    assertTrue(half.getLowerBound() <= half.getEstimate());
+    assertTrue(half.getEstimate() <= half.getUpperBound());
+  }
+
+  @Test
+  public void checkSerializationMatchesItemsSketch() {
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    for (final int n : new int[] {5, 200}) {
+      final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(50);
+      for (long i = 1; i <= n; ++i) {
+        sketch.update(i, (i % 7) == 0 ? 1000.0 : 1.0);
+      }
+      final byte[] bytes = sketch.toByteArray();
+
+      // the items sketch reads the image and writes it back unchanged
+      final VarOptItemsSketch<Long> vis = VarOptItemsSketch.heapify(Memory.wrap(bytes), serDe);
+      assertEquals(vis.getN(), sketch.getN());
+      assertEquals(vis.getHRegionCount(), sketch.getHRegionCount());
+      assertEquals(vis.toByteArray(serDe), bytes);
+
+      // and the reverse direction
+      final VarOptLongsSketch rebuilt = VarOptLongsSketch.heapify(Memory.wrap(vis.toByteArray(serDe)));
+      assertEquals(rebuilt.toByteArray(), bytes);
+      assertEquals(rebuilt.getSamples(), sketch.getSamples());
+      assertEquals(rebuilt.getWeights(), sketch.getWeights());
+    }
+  }
+
+  @Test
+  public void checkWarmupAtAllocationBoundaries() {
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    for (final ResizeFactor rf : new ResizeFactor[] {ResizeFactor.X2, ResizeFactor.X8}) {
+      final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(1000, rf);
+      for (long i = 1; i <= 1000; ++i) {
+        sketch.update(i, 1.0);
+        // the H region may exactly fill the current allocation
+        final long[] samples = sketch.getSamples();
+        assertEquals(samples.length, i);
+        assertEquals(samples[(int) i - 1], i);
+        final byte[] bytes = sketch.toByteArray();
+        assertEquals(VarOptItemsSketch.heapify(Memory.wrap(bytes), serDe).toByteArray(serDe), bytes);
+        assertEquals(VarOptLongsSketch.heapify(Memory.wrap(bytes)).getSamples(), samples);
+      }
+      assertEquals(sketch.getRRegionCount(), 0);
+    }
+  }
+
+  @Test
+  public void checkBadSerVer() {
+    final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(16);
+    sketch.update(1L, 1.0);
+    final byte[] bytes = sketch.toByteArray();
+    bytes[PreambleUtil.SER_VER_BYTE] = 0;
+    try { VarOptLongsSketch.heapify(Memory.wrap(bytes)); fail(); }
+    catch (final SketchesArgumentException e) { }
+  }
+}
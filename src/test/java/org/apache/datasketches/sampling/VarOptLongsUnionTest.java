@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.sampling;
+
+import static org.apache.datasketches.sampling.VarOptItemsSketchTest.EPS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+import org.apache.datasketches.common.ArrayOfLongsSerDe;
+import org.apache.datasketches.memory.Memory;
+import org.testng.annotations.Test;
+
+public class VarOptLongsUnionTest {
+
+  @Test
+  public void unionTwoExactSketches() {
+    final int k = 20;
+    final VarOptLongsSketch sk1 = VarOptLongsSketch.newInstance(k);
+    final VarOptLongsSketch sk2 = VarOptLongsSketch.newInstance(k);
+    for (long i = 1; i <= 5; ++i) {
+      sk1.update(i, i);
+      sk2.update(-i, i);
+    }
+
+    final VarOptLongsUnion union = VarOptLongsUnion.newInstance(k);
+    union.update(sk1);
+    union.update(Memory.wrap(sk2.toByteArray()));
+    final VarOptLongsSketch result = union.getResult();
+    assertEquals(result.getN(), 10);
+    assertEquals(result.getNumSamples(), 10);
+    assertEquals(result.estimateSubsetSum(x -> x > 0).getEstimate(), 15.0);
+    assertNotNull(union.toString());
+  }
+
+  @Test
+  public void unionSmallSamplingSketches() {
+    final int kSmall = 16;
+    final int n1 = 32;
+    final int n2 = 64;
+    final int kMax = 128;
+
+    VarOptLongsSketch sketch = getUnweightedSketch(kSmall, n1);
+    sketch.update(-1L, n1 ^ 2); // add a heavy item
+    final VarOptLongsUnion union = VarOptLongsUnion.newInstance(kMax);
+    union.update(sketch);
+    sketch = getUnweightedSketch(kSmall, n2);
+    union.update(sketch);
+
+    // should trigger migrateMarkedItemsByDecreasingK(), without changing the gadget
+    final byte[] before = union.toByteArray();
+    final VarOptLongsSketch result = union.getResult();
+    assertEquals(union.toByteArray(), before);
+    assertEquals(result.getN(), n1 + n2 + 1);
+    assertEquals(result.getTotalWtR(), 96.0, EPS); // n1+n2 light items, ignore the heavy one
+  }
+
+  @Test
+  public void unionIdenticalSamplingSketches() {
+    final int k = 20;
+    final int n = 50;
+    final VarOptLongsSketch sketch = getUnweightedSketch(k, n);
+
+    final VarOptLongsUnion union = VarOptLongsUnion.newInstance(k);
+    union.update(sketch);
+    union.update(sketch);
+
+    // pseudo-exact case, all marks move into the reservoir
+    final VarOptLongsSketch result = union.getResult();
+    assertEquals(result.getN(), 2 * n);
+    assertEquals(result.getTotalWtR(), 2.0 * n, EPS);
+    assertEquals(result.getHRegionCount(), 0);
+
+    union.reset();
+    assertEquals(union.getOuterTau(), 0.0);
+    assertEquals(union.getResult().getN(), 0);
+  }
+
+  @Test
+  public void unionReservoirSketch() {
+    final int k = 32;
+    final ReservoirLongsSketch rls = ReservoirLongsSketch.newInstance(k);
+    for (long i = 0; i < 1000; ++i) {
+      rls.update(i);
+    }
+    final VarOptLongsUnion union = VarOptLongsUnion.newInstance(k);
+    union.update(rls);
+    final VarOptLongsSketch result = union.getResult();
+    assertEquals(result.getN(), 1000);
+    assertEquals(result.estimateSubsetSum(x -> true).getEstimate(), 1000.0, EPS);
+  }
+
+  @Test
+  public void unionWarmupSketchesIntoLargeK() {
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    final VarOptLongsUnion union = VarOptLongsUnion.newInstance(1000);
+    union.update(getUnweightedSketch(8, 8));
+    union.update(getUnweightedSketch(8, 8));
+
+    // 16 items exactly fill the initial allocation of the gadget
+    final byte[] bytes = union.toByteArray();
+    assertEquals(VarOptItemsUnion.heapify(Memory.wrap(bytes), serDe).toByteArray(serDe), bytes);
+    final VarOptLongsSketch result = union.getResult();
+    assertEquals(result.getN(), 16);
+    assertEquals(result.getSamples().length, 16);
+    assertEquals(result.estimateSubsetSum(x -> true).getEstimate(), 16.0, EPS);
+  }
+
+  @Test
+  public void checkSerializationMatchesItemsUnion() {
+    final ArrayOfLongsSerDe serDe = new ArrayOfLongsSerDe();
+    final VarOptLongsUnion union = VarOptLongsUnion.newInstance(64);
+    assertEquals(VarOptItemsUnion.heapify(Memory.wrap(union.toByteArray()), serDe)
+        .toByteArray(serDe), union.toByteArray());
+
+    union.update(getUnweightedSketch(32, 100));
+    final VarOptLongsSketch heavy = VarOptLongsSketch.newInstance(16);
+    for (long i = 0; i < 8; ++i) {
+      heavy.update(1000 + i, 50.0);
+    }
+    union.update(heavy);
+
+    final byte[] bytes = union.toByteArray();
+    final VarOptItemsUnion<Long> viu = VarOptItemsUnion.heapify(Memory.wrap(bytes), serDe);
+    assertEquals(viu.toByteArray(serDe), bytes);
+
+    final VarOptLongsUnion rebuilt = VarOptLongsUnion.heapify(Memory.wrap(viu.toByteArray(serDe)));
+    assertEquals(rebuilt.toByteArray(), bytes);
+    assertEquals(rebuilt.getOuterTau(), union.getOuterTau());
+    assertEquals(rebuilt.getResult().getN(), union.getResult().getN());
+  }
+
+  static VarOptLongsSketch getUnweightedSketch(final int k, final int n) {
+    final VarOptLongsSketch sketch = VarOptLongsSketch.newInstance(k);
+    for (long i = 0; i < n; ++i) {
+      sketch.update(i, 1.0);
+    }
+    return sketch;
+  }
+}
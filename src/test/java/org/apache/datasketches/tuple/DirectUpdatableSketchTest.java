@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.common.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.tuple.adouble.DoubleSketch;
+import org.apache.datasketches.tuple.adouble.DoubleSummary;
+import org.apache.datasketches.tuple.adouble.DoubleSummary.Mode;
+import org.apache.datasketches.tuple.adouble.DoubleSummaryDeserializer;
+import org.apache.datasketches.tuple.adouble.DoubleSummaryLayout;
+import org.apache.datasketches.tuple.adouble.DoubleSummarySetOperations;
+import org.apache.datasketches.tuple.aninteger.IntegerSketch;
+import org.apache.datasketches.tuple.aninteger.IntegerSummary;
+import org.apache.datasketches.tuple.aninteger.IntegerSummaryDeserializer;
+import org.apache.datasketches.tuple.aninteger.IntegerSummaryLayout;
+import org.apache.datasketches.tuple.aninteger.IntegerSummarySetOperations;
+import org.testng.annotations.Test;
+
+public class DirectUpdatableSketchTest {
+  private static final int SIZE = 9; // DoubleSummary
+
+  @Test
+  public void checkEmpty() {
+    final WritableMemory mem = WritableMemory.allocate(DirectUpdatableSketch.getMaxBytes(4096, SIZE));
+    final DirectUpdatableSketch<Double> sketch =
+        new DirectUpdatableSketch<>(4096, new DoubleSummaryLayout(Mode.Sum), mem);
+    assertTrue(sketch.isEmpty());
+    assertFalse(sketch.isEstimationMode());
+    assertEquals(sketch.getEstimate(), 0.0);
+    assertEquals(sketch.getNominalEntries(), 4096);
+    assertEquals(sketch.toByteArray(), new DoubleSketch(12, Mode.Sum).compact().toByteArray());
+    assertTrue(sketch.compact(new DoubleSummaryDeserializer()).isEmpty());
+    assertTrue(sketch.toString().contains("DirectUpdatableSketch"));
+  }
+
+  @Test
+  public void checkMatchesDoubleSketch() {
+    for (final Mode mode : Mode.values()) {
+      for (final int n : new int[] {1, 100, 20000}) {
+        final WritableMemory mem = WritableMemory.allocate(DirectUpdatableSketch.getMaxBytes(1024, SIZE));
+        final DirectUpdatableSketch<Double> sketch =
+            new DirectUpdatableSketch<>(1024, new DoubleSummaryLayout(mode), mem);
+        final DoubleSketch generic = new DoubleSketch(10, mode);
+        for (int i = 0; i < n; i++) {
+          sketch.update(i % 5000, (double) i);
+          generic.update(i % 5000, (double) i);
+        }
+        assertEquals(sketch.getRetainedEntries(), generic.getRetainedEntries());
+        assertEquals(sketch.getThetaLong(), generic.getThetaLong());
+        assertEquals(sketch.getEstimate(), generic.getEstimate());
+        assertEquals(sketch.getLowerBound(2), generic.getLowerBound(2));
+        assertEquals(sketch.getUpperBound(2), generic.getUpperBound(2));
+        assertEquals(sketch.toByteArray(), generic.compact().toByteArray());
+        assertEquals(toMap(sketch.compact(new DoubleSummaryDeserializer())), toMap(generic));
+
+        sketch.trim();
+        generic.trim();
+        assertEquals(sketch.getRetainedEntries(), generic.getRetainedEntries());
+        assertEquals(sketch.getThetaLong(), generic.getThetaLong());
+      }
+    }
+  }
+
+  @Test
+  public void checkWrapAndReset() {
+    final WritableMemory mem = WritableMemory.allocate(DirectUpdatableSketch.getMaxBytes(512, SIZE));
+    final DirectUpdatableSketch<Double> sketch =
+        new DirectUpdatableSketch<>(512, 3, 0.5f, new DoubleSummaryLayout(Mode.Max), mem);
+    final DoubleSketch generic = new DoubleSketch(9, 3, 0.5f, Mode.Max);
+    for (int i = 0; i < 3000; i++) {
+      sketch.update(i, (double) i);
+      generic.update(i, (double) i);
+    }
+    final DirectUpdatableSketch<Double> wrapped =
+        DirectUpdatableSketch.writableWrap(mem, new DoubleSummaryLayout(Mode.Max));
+    assertEquals(wrapped.getSamplingProbability(), 0.5f);
+    for (int i = 2000; i < 6000; i++) {
+      wrapped.update(i, (double) -i);
+      generic.update(i, (double) -i);
+    }
+    assertEquals(wrapped.getThetaLong(), generic.getThetaLong());
+    assertEquals(wrapped.toByteArray(), generic.compact().toByteArray());
+
+    try {
+      DirectUpdatableSketch.writableWrap(mem, new IntegerSummaryLayout(IntegerSummary.Mode.Sum));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+
+    wrapped.reset();
+    assertTrue(wrapped.isEmpty());
+    assertEquals(wrapped.getRetainedEntries(), 0);
+    assertEquals(wrapped.getThetaLong(), Long.MAX_VALUE);
+    wrapped.update("a", 1.0);
+    assertFalse(wrapped.isEmpty());
+    assertEquals(wrapped.getThetaLong(), (long) (Long.MAX_VALUE * 0.5));
+  }
+
+  @Test
+  public void checkNotEnoughMemory() {
+    try {
+      new DirectUpdatableSketch<>(1024, new DoubleSummaryLayout(Mode.Sum), WritableMemory.allocate(100));
+      fail();
+    } catch (final SketchesArgumentException e) { }
+
+    // enough for the starting table only
+    final WritableMemory mem = WritableMemory.allocate(DirectUpdatableSketch.getMaxBytes(1024, SIZE) / 8);
+    final DirectUpdatableSketch<Double> sketch =
+        new DirectUpdatableSketch<>(1024, new DoubleSummaryLayout(Mode.Sum), mem);
+    try {
+      for (int i = 0; i < 1000; i++) { sketch.update(i, 1.0); }
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  @Test
+  public void checkUnionMatchesGenericUnion() {
+    for (final Mode mode : Mode.values()) {
+      final DoubleSummaryLayout layout = new DoubleSummaryLayout(mode);
+      final DirectUnion<Double> union =
+          new DirectUnion<>(512, layout, WritableMemory.allocate(DirectUnion.getMaxBytes(512, SIZE)));
+      final Union<DoubleSummary> generic = new Union<>(512, new DoubleSummarySetOperations(mode));
+      for (int s = 0; s < 5; s++) {
+        final int nomEntries = s % 2 == 0 ? 256 : 1024;
+        final DirectUpdatableSketch<Double> sketch = new DirectUpdatableSketch<>(nomEntries, layout,
+            WritableMemory.allocate(DirectUpdatableSketch.getMaxBytes(nomEntries, SIZE)));
+        final DoubleSketch genericSketch = new DoubleSketch(Integer.numberOfTrailingZeros(nomEntries), mode);
+        for (int i = 0; i < 300 * (s + 1); i++) {
+          sketch.update(i, s + 1.0);
+          genericSketch.update(i, s + 1.0);
+        }
+        if (s == 1) {
+          union.union(Memory.wrap(genericSketch.compact().toByteArray()));
+        } else if (s == 2) {
+          union.union(genericSketch);
+        } else if (s == 3) {
+          union.union(sketch.getMemory());
+        } else {
+          union.union(sketch);
+        }
+        generic.union(genericSketch);
+      }
+      final CompactSketch<DoubleSummary> expected = generic.getResult();
+      final CompactSketch<DoubleSummary> result = union.getResult(new DoubleSummaryDeserializer());
+      assertEquals(result.getThetaLong(), expected.getThetaLong());
+      assertEquals(result.getEstimate(), expected.getEstimate());
+      assertEquals(toMap(result), toMap(expected));
+
+      // the result can also be written off-heap and the union reopened from its memory
+      final WritableMemory dst = WritableMemory.allocate(DirectUnion.getMaxBytes(512, SIZE));
+      final Memory image = union.getResult(dst);
+      assertEquals(image.getCapacity(), union.toByteArray().length);
+      assertEquals(toMap(new CompactSketch<>(image, new DoubleSummaryDeserializer())), toMap(expected));
+
+      union.reset();
+      assertTrue(union.getResult(new DoubleSummaryDeserializer()).isEmpty());
+    }
+  }
+
+  @Test
+  public void checkUnionWrap() {
+    final IntegerSummaryLayout layout = new IntegerSummaryLayout(IntegerSummary.Mode.Sum);
+    final WritableMemory mem = WritableMemory.allocate(DirectUnion.getMaxBytes(256, 5));
+    final Union<IntegerSummary> generic = new Union<>(256,
+        new IntegerSummarySetOperations(IntegerSummary.Mode.Sum, IntegerSummary.Mode.Sum));
+    for (int s = 0; s < 4; s++) {
+      final IntegerSketch sketch = new IntegerSketch(8, IntegerSummary.Mode.Sum);
+      for (int i = 0; i < 1000; i++) {
+        sketch.update(i * (s + 1), s + 1);
+      }
+      final DirectUnion<Integer> union = s == 0
+          ? new DirectUnion<>(256, layout, mem)
+          : DirectUnion.writableWrap(mem, layout);
+      union.union(sketch);
+      generic.union(sketch);
+    }
+    final DirectUnion<Integer> union = DirectUnion.writableWrap(mem, layout);
+    final CompactSketch<IntegerSummary> result = union.getResult(new IntegerSummaryDeserializer(), true);
+    final CompactSketch<IntegerSummary> expected = generic.getResult();
+    assertEquals(result.getThetaLong(), expected.getThetaLong());
+    assertEquals(result.getRetainedEntries(), expected.getRetainedEntries());
+    final TupleSketchIterator<IntegerSummary> it = result.iterator();
+    final Map<Long, Integer> expectedValues = new HashMap<>();
+    final TupleSketchIterator<IntegerSummary> expectedIt = expected.iterator();
+    while (expectedIt.next()) { expectedValues.put(expectedIt.getHash(), expectedIt.getSummary().getValue()); }
+    while (it.next()) {
+      assertEquals(it.getSummary().getValue(), (int) expectedValues.get(it.getHash()));
+    }
+    assertTrue(DirectUnion.writableWrap(mem, layout).getResult(new IntegerSummaryDeserializer()).isEmpty());
+  }
+
+  @Test
+  public void checkIntersectionMatchesGenericIntersection() {
+    for (final Mode mode : Mode.values()) {
+      final DoubleSummaryLayout layout = new DoubleSummaryLayout(mode);
+      final WritableMemory mem = WritableMemory.allocate(DirectIntersection.getMaxBytes(1024, SIZE));
+      final DirectIntersection<Double> intersection = new DirectIntersection<>(1024, layout, mem);
+      final Intersection<DoubleSummary> generic = new Intersection<>(new DoubleSummarySetOperations(mode));
+      try { intersection.getResult(new DoubleSummaryDeserializer()); fail(); }
+      catch (final SketchesStateException e) { }
+      for (int s = 0; s < 3; s++) {
+        final DirectUpdatableSketch<Double> sketch = new DirectUpdatableSketch<>(1024, layout,
+            WritableMemory.allocate(DirectUpdatableSketch.getMaxBytes(1024, SIZE)));
+        final DoubleSketch genericSketch = new DoubleSketch(10, mode);
+        for (int i = 100 * s; i < 2000; i++) {
+          sketch.update(i, s + 2.0);
+          genericSketch.update(i, s + 2.0);
+        }
+        if (s == 1) {
+          DirectIntersection.writableWrap(mem, layout).intersect(Memory.wrap(sketch.toByteArray()));
+        } else if (s == 2) {
+          intersection.intersect(genericSketch);
+        } else {
+          intersection.intersect(sketch);
+        }
+        generic.intersect(genericSketch);
+      }
+      assertTrue(intersection.hasResult());
+      final CompactSketch<DoubleSummary> result = intersection.getResult(new DoubleSummaryDeserializer());
+      final CompactSketch<DoubleSummary> expected = generic.getResult();
+      assertEquals(result.getThetaLong(), expected.getThetaLong());
+      assertEquals(result.getRetainedEntries(), expected.getRetainedEntries());
+      assertEquals(toMap(result), toMap(expected));
+
+      intersection.intersect(new DoubleSketch(10, mode));
+      assertTrue(intersection.getResult(new DoubleSummaryDeserializer()).isEmpty());
+      intersection.reset();
+      assertFalse(intersection.hasResult());
+    }
+  }
+
+  @Test
+  public void checkIntersectionCapacity() {
+    final DoubleSummaryLayout layout = new DoubleSummaryLayout(Mode.Sum);
+    final DirectIntersection<Double> intersection = new DirectIntersection<>(16, layout,
+        WritableMemory.allocate(DirectIntersection.getMaxBytes(16, SIZE)));
+    final DoubleSketch sketch = new DoubleSketch(10, Mode.Sum);
+    for (int i = 0; i < 1000; i++) { sketch.update(i, 1.0); }
+    try { intersection.intersect(sketch); fail(); } catch (final SketchesArgumentException e) { }
+    assertFalse(intersection.hasResult());
+  }
+
+  private static Map<Long, Double> toMap(final Sketch<DoubleSummary> sketch) {
+    final Map<Long, Double> map = new HashMap<>();
+    final TupleSketchIterator<DoubleSummary> it = sketch.iterator();
+    while (it.next()) {
+      map.put(it.getHash(), it.getSummary().getValue());
+    }
+    return map;
+  }
+}
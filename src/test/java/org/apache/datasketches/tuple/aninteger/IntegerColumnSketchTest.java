@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.aninteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.datasketches.common.SketchesStateException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.tuple.CompactSketch;
+import org.apache.datasketches.tuple.Intersection;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.Sketches;
+import org.apache.datasketches.tuple.TupleSketchIterator;
+import org.apache.datasketches.tuple.Union;
+import org.apache.datasketches.tuple.aninteger.IntegerSummary.Mode;
+import org.testng.annotations.Test;
+
+public class IntegerColumnSketchTest {
+
+  @Test
+  public void checkEmpty() {
+    final IntegerColumnUpdatableSketch sketch = new IntegerColumnUpdatableSketch(12, Mode.Sum);
+    assertTrue(sketch.isEmpty());
+    assertFalse(sketch.isEstimationMode());
+    assertEquals(sketch.getEstimate(), 0.0);
+    assertFalse(sketch.iterator().next());
+
+    final byte[] bytes = sketch.toByteArray();
+    assertEquals(bytes, new IntegerSketch(12, Mode.Sum).compact().toByteArray());
+    final IntegerColumnCompactSketch rebuilt = IntegerColumnSketch.heapify(Memory.wrap(bytes));
+    assertTrue(rebuilt.isEmpty());
+    assertEquals(rebuilt.getRetainedEntries(), 0);
+  }
+
+  @Test
+  public void checkMatchesIntegerSketch() {
+    for (final Mode mode : Mode.values()) {
+      for (final int n : new int[] {1, 100, 20000}) {
+        final IntegerColumnUpdatableSketch sketch = new IntegerColumnUpdatableSketch(10, mode);
+        final IntegerSketch generic = new IntegerSketch(10, mode);
+        for (int i = 0; i < n; i++) {
+          sketch.update(i % 5000, i);
+          generic.update(i % 5000, i);
+        }
+        assertEquals(sketch.getRetainedEntries(), generic.getRetainedEntries());
+        assertEquals(sketch.getThetaLong(), generic.getThetaLong());
+        assertEquals(sketch.getEstimate(), generic.getEstimate());
+        assertEquals(sketch.getLowerBound(2), generic.getLowerBound(2));
+        assertEquals(sketch.getUpperBound(2), generic.getUpperBound(2));
+        assertEquals(toMap(sketch), toMap(generic));
+
+        // serialized images are interchangeable in both directions
+        final Sketch<IntegerSummary> heapified =
+            Sketches.heapifySketch(Memory.wrap(sketch.toByteArray()), new IntegerSummaryDeserializer());
+        assertEquals(toMap(heapified), toMap(generic));
+        final IntegerColumnCompactSketch fromGeneric =
+            IntegerColumnSketch.heapify(Memory.wrap(generic.compact().toByteArray()));
+        assertEquals(fromGeneric.getMode(), mode);
+        assertEquals(fromGeneric.getThetaLong(), generic.getThetaLong());
+        assertEquals(toMap(fromGeneric), toMap(generic));
+        assertEquals(toMap(sketch.compact()), toMap(generic));
+      }
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  @Test
+  public void checkHeapifyUpdatableImage() {
+    final IntegerSketch generic = new IntegerSketch(8, Mode.Max);
+    for (int i = 0; i < 1000; i++) {
+      generic.update(i, i);
+    }
+    final IntegerColumnCompactSketch sketch = IntegerColumnSketch.heapify(Memory.wrap(generic.toByteArray()));
+    assertEquals(sketch.getMode(), Mode.Max);
+    assertEquals(sketch.getThetaLong(), generic.getThetaLong());
+    assertEquals(toMap(sketch), toMap(generic));
+  }
+
+  @Test
+  public void checkUnionMatchesGenericUnion() {
+    for (final Mode mode : Mode.values()) {
+      final IntegerColumnUnion union = new IntegerColumnUnion(1 << 9, mode);
+      final Union<IntegerSummary> generic = new Union<>(1 << 9, new IntegerSummarySetOperations(mode, mode));
+      for (int s = 0; s < 5; s++) {
+        final IntegerColumnUpdatableSketch sketch = new IntegerColumnUpdatableSketch(s % 2 == 0 ? 8 : 10, mode);
+        final IntegerSketch genericSketch = new IntegerSketch(s % 2 == 0 ? 8 : 10, mode);
+        for (int i = 0; i < 300 * (s + 1); i++) {
+          sketch.update(i, s + 1);
+          genericSketch.update(i, s + 1);
+        }
+        if (s == 3) {
+          union.union(Memory.wrap(sketch.toByteArray()));
+        } else if (s == 4) {
+          union.union(genericSketch);
+        } else {
+          union.union(sketch);
+        }
+        generic.union(genericSketch);
+      }
+      final IntegerColumnCompactSketch result = union.getResult();
+      final CompactSketch<IntegerSummary> expected = generic.getResult();
+      assertEquals(result.getThetaLong(), expected.getThetaLong());
+      assertEquals(result.getEstimate(), expected.getEstimate());
+      assertEquals(toMap(result), toMap(expected));
+
+      union.reset();
+      assertTrue(union.getResult().isEmpty());
+    }
+  }
+
+  @Test
+  public void checkIntersectionMatchesGenericIntersection() {
+    for (final Mode mode : Mode.values()) {
+      final IntegerColumnIntersection intersection = new IntegerColumnIntersection(mode);
+      final Intersection<IntegerSummary> generic = new Intersection<>(new IntegerSummarySetOperations(mode, mode));
+      try { intersection.getResult(); fail(); } catch (final SketchesStateException e) { }
+      for (int s = 0; s < 3; s++) {
+        final IntegerColumnUpdatableSketch sketch = new IntegerColumnUpdatableSketch(10, mode);
+        final IntegerSketch genericSketch = new IntegerSketch(10, mode);
+        for (int i = 100 * s; i < 2000; i++) {
+          sketch.update(i, s + 2);
+          genericSketch.update(i, s + 2);
+        }
+        intersection.intersect(sketch.compact());
+        generic.intersect(genericSketch);
+      }
+      assertTrue(intersection.hasResult());
+      final IntegerColumnCompactSketch result = intersection.getResult();
+      final CompactSketch<IntegerSummary> expected = generic.getResult();
+      assertEquals(result.getThetaLong(), expected.getThetaLong());
+      assertEquals(result.getRetainedEntries(), expected.getRetainedEntries());
+      assertEquals(toMap(result), toMap(expected));
+
+      intersection.intersect(new IntegerColumnUpdatableSketch(10, mode));
+      assertTrue(intersection.getResult().isEmpty());
+    }
+  }
+
+  private static Map<Long, Integer> toMap(final IntegerColumnSketch sketch) {
+    final Map<Long, Integer> map = new HashMap<>();
+    final IntegerColumnSketchIterator it = sketch.iterator();
+    while (it.next()) {
+      map.put(it.getHash(), it.getValue());
+    }
+    return map;
+  }
+
+  private static Map<Long, Integer> toMap(final Sketch<IntegerSummary> sketch) {
+    final Map<Long, Integer> map = new HashMap<>();
+    final TupleSketchIterator<IntegerSummary> it = sketch.iterator();
+    while (it.next()) {
+      map.put(it.getHash(), it.getSummary().getValue());
+    }
+    return map;
+  }
+}
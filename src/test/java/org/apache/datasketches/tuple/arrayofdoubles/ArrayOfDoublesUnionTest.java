@@ -19,7 +19,11 @@
 
 package org.apache.datasketches.tuple.arrayofdoubles;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.datasketches.common.SketchesArgumentException;
 import org.apache.datasketches.memory.Memory;
@@ -511,4 +515,92 @@ public class ArrayOfDoublesUnionTest {
     Assert.assertEquals(result.getNumValues(), expected.getNumValues());
   }
 
+  @Test
+  public void bulkUnionSameAsSequential() {
+    for (final ArrayOfDoublesCombiners combiner : ArrayOfDoublesCombiners.values()) {
+      checkBulkUnion(combiner, 1000, false); // exact mode
+      checkBulkUnion(combiner, 20000, false); // estimation mode
+      checkBulkUnion(combiner, 20000, true);
+    }
+  }
+
+  private static void checkBulkUnion(final ArrayOfDoublesCombiner combiner, final int n, final boolean direct) {
+    final int nomEntries = 1024;
+    final List<ArrayOfDoublesSketch> sketches = new ArrayList<>();
+    for (int s = 0; s < 5; s++) {
+      final ArrayOfDoublesUpdatableSketch sketch =
+          new ArrayOfDoublesUpdatableSketchBuilder().setNominalEntries(nomEntries).setNumberOfValues(2).build();
+      for (int i = 0; i < n; i++) {
+        sketch.update(i + (s * n / 4), new double[] {s + 1, -i});
+      }
+      sketches.add(s % 2 == 0 ? sketch.compact() : sketch);
+    }
+    sketches.add(null);
+    sketches.add(new ArrayOfDoublesUpdatableSketchBuilder().setNumberOfValues(2).build());
+
+    final ArrayOfDoublesSetOperationBuilder builder =
+        new ArrayOfDoublesSetOperationBuilder().setNominalEntries(nomEntries).setNumberOfValues(2);
+    final int maxBytes = ArrayOfDoublesUnion.getMaxBytes(nomEntries, 2);
+    final ArrayOfDoublesUnion sequential = direct
+        ? builder.buildUnion(WritableMemory.writableWrap(new byte[maxBytes])) : builder.buildUnion();
+    final ArrayOfDoublesUnion bulk = direct
+        ? builder.buildUnion(WritableMemory.writableWrap(new byte[maxBytes])) : builder.buildUnion();
+    for (final ArrayOfDoublesSketch sketch : sketches) {
+      sequential.union(sketch, combiner);
+    }
+    bulk.union(sketches, combiner);
+
+    final ArrayOfDoublesCompactSketch expected = sequential.getResult();
+    final ArrayOfDoublesCompactSketch result = bulk.getResult();
+    Assert.assertEquals(result.getThetaLong(), expected.getThetaLong());
+    Assert.assertEquals(result.getRetainedEntries(), expected.getRetainedEntries());
+    Assert.assertEquals(result.getEstimate(), expected.getEstimate());
+    Assert.assertEquals(sortedEntries(result), sortedEntries(expected));
+  }
+
+  private static Map<Long, List<Double>> sortedEntries(final ArrayOfDoublesSketch sketch) {
+    final Map<Long, List<Double>> entries = new TreeMap<>();
+    final ArrayOfDoublesSketchIterator it = sketch.iterator();
+    while (it.next()) {
+      final List<Double> values = new ArrayList<>();
+      for (final double value : it.getValues()) { values.add(value); }
+      entries.put(it.getKey(), values);
+    }
+    return entries;
+  }
+
+  @Test
+  public void unionWithCombiner() {
+    final ArrayOfDoublesUpdatableSketch sketch1 = new ArrayOfDoublesUpdatableSketchBuilder().build();
+    sketch1.update(1, new double[] {1.0});
+    sketch1.update(2, new double[] {5.0});
+    final ArrayOfDoublesUpdatableSketch sketch2 = new ArrayOfDoublesUpdatableSketchBuilder().build();
+    sketch2.update(1, new double[] {3.0});
+    sketch2.update(2, new double[] {2.0});
+
+    final ArrayOfDoublesUnion union = new ArrayOfDoublesSetOperationBuilder().buildUnion();
+    union.union(Arrays.asList(sketch1, sketch2), ArrayOfDoublesCombiners.MAX);
+    final double[][] values = union.getResult().getValues();
+    Arrays.sort(values, (a, b) -> Double.compare(a[0], b[0]));
+    Assert.assertEquals(values[0][0], 3.0);
+    Assert.assertEquals(values[1][0], 5.0);
+  }
+
+  @Test
+  public void builtInCombiners() {
+    final double[] dst = {0, 1, 5, 2, 0};
+    final double[] src = {9, 4, 3, 9};
+    ArrayOfDoublesCombiners.SUM.combine(dst, 1, src, 1, 3);
+    Assert.assertEquals(dst, new double[] {0, 5, 8, 11, 0});
+    ArrayOfDoublesCombiners.MIN.combine(dst, 1, src, 1, 3);
+    Assert.assertEquals(dst, new double[] {0, 4, 3, 9, 0});
+    Assert.assertEquals(ArrayOfDoublesCombiners.MAX.combine(new double[] {1, 7}, new double[] {2, 6}),
+        new double[] {2, 7});
+
+    // the default block combine of a custom combiner
+    final ArrayOfDoublesCombiner product = (a, b) -> new double[] {a[0] * b[0], a[1] * b[1]};
+    product.combine(dst, 1, src, 0, 2);
+    Assert.assertEquals(dst, new double[] {0, 36, 12, 9, 0});
+  }
+
 }
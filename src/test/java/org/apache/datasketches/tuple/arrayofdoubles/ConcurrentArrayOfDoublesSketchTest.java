@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.arrayofdoubles;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.testng.annotations.Test;
+
+public class ConcurrentArrayOfDoublesSketchTest {
+
+  @Test
+  public void exactModeManyThreads() throws Exception {
+    final ConcurrentArrayOfDoublesSketch shared =
+        new ArrayOfDoublesUpdatableSketchBuilder().setNumberOfValues(2).buildConcurrent(16, null);
+    runThreads(shared, 4, 1000);
+
+    final ArrayOfDoublesUpdatableSketch expected =
+        new ArrayOfDoublesUpdatableSketchBuilder().setNumberOfValues(2).build();
+    for (int t = 0; t < 4; t++) {
+      for (int i = 0; i < 1000; i++) {
+        expected.update(i + (t * 100), new double[] {1, t});
+      }
+    }
+    assertFalse(shared.isEstimationMode());
+    assertEquals(shared.getRetainedEntries(), expected.getRetainedEntries());
+    assertEquals(shared.getEstimate(), expected.getEstimate());
+    assertEquals(toMap(shared.compact()), toMap(expected));
+  }
+
+  @Test
+  public void estimationModeManyThreads() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final ConcurrentArrayOfDoublesSketch shared = new ArrayOfDoublesUpdatableSketchBuilder()
+          .setNominalEntries(1024).setNumberOfValues(2).buildConcurrent(64, executor);
+      runThreads(shared, 6, 20000);
+
+      // a large enough sketch retains every key with the exact sums
+      final ArrayOfDoublesUpdatableSketch exact =
+          new ArrayOfDoublesUpdatableSketchBuilder().setNominalEntries(1 << 17).setNumberOfValues(2).build();
+      for (int t = 0; t < 6; t++) {
+        for (int i = 0; i < 20000; i++) {
+          exact.update(i + (t * 100), new double[] {1, t});
+        }
+      }
+      final int n = exact.getRetainedEntries();
+      final Map<Long, String> exactValues = toMap(exact);
+
+      assertTrue(shared.isEstimationMode());
+      assertTrue(shared.getLowerBound(3) <= n && n <= shared.getUpperBound(3));
+      final ArrayOfDoublesCompactSketch result = shared.compact();
+      assertEquals(result.getRetainedEntries(), shared.getRetainedEntries());
+      final ArrayOfDoublesSketchIterator it = result.iterator();
+      while (it.next()) {
+        assertTrue(it.getKey() < shared.getThetaLong());
+        assertEquals(Arrays.toString(it.getValues()), exactValues.get(it.getKey()));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void sameAsSequentialWithSynchronousPropagation() {
+    final ArrayOfDoublesUpdatableSketchBuilder builder =
+        new ArrayOfDoublesUpdatableSketchBuilder().setNominalEntries(512);
+    final ConcurrentArrayOfDoublesSketch shared = builder.buildConcurrent(1, Runnable::run);
+    final ArrayOfDoublesUpdatableSketch expected = builder.build();
+    final ConcurrentArrayOfDoublesBuffer buffer = shared.newBuffer();
+    for (int i = 0; i < 10000; i++) {
+      buffer.update(i % 3000, new double[] {i});
+      expected.update(i % 3000, new double[] {i});
+    }
+    buffer.flush();
+    assertEquals(shared.toByteArray(), expected.toByteArray());
+    assertEquals(shared.getEstimate(), expected.getEstimate());
+    assertEquals(shared.getLowerBound(2), expected.getLowerBound(2));
+    assertEquals(shared.getUpperBound(2), expected.getUpperBound(2));
+    assertEquals(shared.getTheta(), expected.getTheta());
+  }
+
+  @Test
+  public void estimatesReflectPropagatedState() {
+    final ConcurrentArrayOfDoublesSketch shared =
+        new ArrayOfDoublesUpdatableSketchBuilder().buildConcurrent(100, Runnable::run);
+    final ConcurrentArrayOfDoublesBuffer buffer = shared.newBuffer();
+    assertSame(buffer.getSharedSketch(), shared);
+    for (int i = 0; i < 150; i++) {
+      buffer.update("key" + i, new double[] {1});
+    }
+    assertEquals(buffer.getRetainedEntries(), 50);
+    assertEquals(shared.getEstimate(), 100.0);
+    assertFalse(shared.isEmpty());
+    buffer.flush();
+    assertEquals(buffer.getRetainedEntries(), 0);
+    assertEquals(shared.getEstimate(), 150.0);
+
+    shared.reset();
+    assertTrue(shared.isEmpty());
+    assertEquals(shared.getEstimate(), 0.0);
+  }
+
+  @Test
+  public void emptyWithSampling() {
+    final ConcurrentArrayOfDoublesSketch shared = new ArrayOfDoublesUpdatableSketchBuilder()
+        .setSamplingProbability(0.0001f).buildConcurrent(8, Runnable::run);
+    final ConcurrentArrayOfDoublesBuffer buffer = shared.newBuffer();
+    buffer.update(1L, new double[] {1});
+    assertTrue(shared.isEmpty());
+    buffer.flush();
+    assertFalse(shared.isEmpty());
+    assertTrue(shared.isEstimationMode());
+    assertEquals(shared.getTheta(), 0.0001, 1e-6);
+  }
+
+  @Test
+  public void checkArguments() {
+    try {
+      new ArrayOfDoublesUpdatableSketchBuilder().buildConcurrent(0, null);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    final ConcurrentArrayOfDoublesBuffer buffer =
+        new ArrayOfDoublesUpdatableSketchBuilder().buildConcurrent().newBuffer();
+    try {
+      buffer.update(1L, new double[] {1, 2});
+      fail();
+    } catch (final SketchesArgumentException e) { }
+    buffer.update((byte[]) null, new double[] {1});
+    buffer.update(new int[0], new double[] {1});
+    buffer.flush();
+    assertTrue(buffer.getSharedSketch().isEmpty());
+  }
+
+  private static void runThreads(final ConcurrentArrayOfDoublesSketch shared, final int numThreads,
+      final int n) throws InterruptedException {
+    final Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int thread = t;
+      threads[t] = new Thread(() -> {
+        final ConcurrentArrayOfDoublesBuffer buffer = shared.newBuffer();
+        for (int i = 0; i < n; i++) {
+          buffer.update(i + (thread * 100), new double[] {1, thread});
+        }
+        buffer.flush();
+      });
+      threads[t].start();
+    }
+    for (final Thread thread : threads) { thread.join(); }
+  }
+
+  private static Map<Long, String> toMap(final ArrayOfDoublesSketch sketch) {
+    final Map<Long, String> map = new HashMap<>();
+    final ArrayOfDoublesSketchIterator it = sketch.iterator();
+    while (it.next()) {
+      map.put(it.getKey(), Arrays.toString(it.getValues()));
+    }
+    return map;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.datasketches.tuple.strings;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.datasketches.common.SketchesArgumentException;
+import org.apache.datasketches.memory.Memory;
+import org.apache.datasketches.memory.WritableMemory;
+import org.apache.datasketches.tuple.CompactSketch;
+import org.apache.datasketches.tuple.Sketch;
+import org.apache.datasketches.tuple.TupleSketchIterator;
+import org.apache.datasketches.tuple.Union;
+import org.testng.annotations.Test;
+
+public class EncodedArrayOfStringsSketchTest {
+
+  private static String[] tuple(final int i) {
+    return new String[] {"ip" + (i % 31), "os" + (i % 3), "id" + i};
+  }
+
+  @Test
+  public void sameAsArrayOfStringsSketch() {
+    for (final int n : new int[] {100, 20000}) {
+      final ArrayOfStringsSketch expected = new ArrayOfStringsSketch(10);
+      final EncodedArrayOfStringsUpdatableSketch sketch = new EncodedArrayOfStringsUpdatableSketch(10);
+      for (int i = 0; i < n; i++) {
+        final String[] key = {"k" + (i % (n / 2))};
+        expected.update(key, tuple(i));
+        sketch.update(key, tuple(i));
+      }
+      checkSame(sketch, expected);
+      checkSame(sketch.compact(), expected);
+      checkSame(EncodedArrayOfStringsSketch.heapify(Memory.wrap(sketch.toByteArray())), expected);
+      assertEquals(sketch.getLowerBound(2), expected.getLowerBound(2));
+      assertEquals(sketch.getUpperBound(2), expected.getUpperBound(2));
+
+      sketch.trim();
+      expected.trim();
+      checkSame(sketch, expected);
+    }
+  }
+
+  @Test
+  public void unionSameAsGenericUnion() {
+    final Union<ArrayOfStringsSummary> expected = new Union<>(1024, new ArrayOfStringsSummarySetOperations());
+    final EncodedArrayOfStringsUnion union = new EncodedArrayOfStringsUnion(1024);
+    for (int s = 0; s < 4; s++) {
+      final ArrayOfStringsSketch generic = new ArrayOfStringsSketch(10);
+      final EncodedArrayOfStringsUpdatableSketch sketch = new EncodedArrayOfStringsUpdatableSketch(10);
+      for (int i = 0; i < 5000; i++) {
+        final String[] key = {Integer.toString(i + (s * 2000))};
+        final String[] value = {"s" + s, "v" + (i % 7)};
+        generic.update(key, value);
+        sketch.update(key, value);
+      }
+      expected.union(generic);
+      if (s == 0) {
+        union.union(generic); // generic input
+      } else if (s == 1) {
+        union.union(Memory.wrap(sketch.toByteArray()));
+      } else {
+        union.union(sketch);
+      }
+    }
+    final CompactSketch<ArrayOfStringsSummary> expectedResult = expected.getResult();
+    final EncodedArrayOfStringsCompactSketch result = union.getResult();
+    checkSame(result, expectedResult);
+    checkSame(EncodedArrayOfStringsSketch.heapify(Memory.wrap(result.toByteArray())), expectedResult);
+
+    union.reset();
+    assertTrue(union.getResult().isEmpty());
+    // the result does not change with the union
+    checkSame(result, expectedResult);
+  }
+
+  @Test
+  public void dictionaryIsShared() {
+    final EncodedArrayOfStringsUpdatableSketch sketch = new EncodedArrayOfStringsUpdatableSketch(12);
+    final ArrayOfStringsSketch generic = new ArrayOfStringsSketch(12);
+    for (int i = 0; i < 1000; i++) {
+      final String[] key = {Integer.toString(i)};
+      final String[] value = {"dimension-a-" + (i % 4), "dimension-b-" + (i % 5)};
+      sketch.update(key, value);
+      generic.update(key, value);
+    }
+    assertEquals(sketch.getDictionary().size(), 9);
+    final byte[] bytes = sketch.toByteArray();
+    assertTrue(bytes.length < generic.compact().toByteArray().length / 3);
+    // one byte codes: preamble, 9 strings of 13 bytes with lengths, 1000 entries of 8 + 1 + 2 bytes
+    assertEquals(bytes.length, 24 + (9 * (4 + 13)) + (1000 * 11));
+
+    final EncodedArrayOfStringsSketchIterator it = sketch.iterator();
+    assertTrue(it.next());
+    assertEquals(it.getNumNodes(), 2);
+    assertEquals(it.getValue(1), it.getValue()[1]);
+  }
+
+  @Test
+  public void dictionaryIsPruned() {
+    final EncodedArrayOfStringsUpdatableSketch sketch = new EncodedArrayOfStringsUpdatableSketch(6);
+    final ArrayOfStringsSketch expected = new ArrayOfStringsSketch(6);
+    for (int i = 0; i < 100000; i++) {
+      final String[] key = {Integer.toString(i)};
+      sketch.update(key, tuple(i));
+      expected.update(key, tuple(i));
+    }
+    final EncodedArrayOfStringsCompactSketch before = sketch.compact();
+    assertTrue(sketch.getDictionary().size() <= 2048);
+    checkSame(sketch, expected);
+    for (int i = 100000; i < 200000; i++) {
+      sketch.update(new String[] {Integer.toString(i)}, tuple(i));
+    }
+    // a compact sketch is not affected by pruning of the dictionary it was created with
+    checkSame(before, expected);
+  }
+
+  @Test
+  public void emptyAndCopy() {
+    final EncodedArrayOfStringsUpdatableSketch sketch = new EncodedArrayOfStringsUpdatableSketch();
+    assertTrue(sketch.isEmpty());
+    final EncodedArrayOfStringsCompactSketch heapified =
+        EncodedArrayOfStringsSketch.heapify(Memory.wrap(sketch.toByteArray()));
+    assertTrue(heapified.isEmpty());
+    assertEquals(heapified.getEstimate(), 0.0);
+
+    sketch.update(new String[] {"a"}, new String[] {"x"});
+    final EncodedArrayOfStringsUpdatableSketch copy = sketch.copy();
+    copy.update(new String[] {"b"}, new String[] {"y"});
+    assertEquals(sketch.getRetainedEntries(), 1);
+    assertEquals(copy.getRetainedEntries(), 2);
+    assertEquals(sketch.getDictionary().size(), 1);
+    assertNotNull(sketch.toString());
+
+    sketch.reset();
+    assertTrue(sketch.isEmpty());
+    assertEquals(sketch.getRetainedEntries(), 0);
+  }
+
+  @Test
+  public void fromSketch() {
+    final ArrayOfStringsSketch generic = new ArrayOfStringsSketch(10);
+    for (int i = 0; i < 3000; i++) {
+      generic.update(new String[] {Integer.toString(i)}, tuple(i));
+    }
+    checkSame(EncodedArrayOfStringsCompactSketch.fromSketch(generic), generic);
+  }
+
+  @Test
+  public void checkCorruptImages() {
+    final EncodedArrayOfStringsUpdatableSketch sketch = new EncodedArrayOfStringsUpdatableSketch();
+    sketch.update(new String[] {"a"}, new String[] {"x", "y"});
+    final byte[] bytes = sketch.toByteArray();
+
+    final WritableMemory badVersion = WritableMemory.writableWrap(bytes.clone());
+    badVersion.putByte(1, (byte) 2);
+    checkRejected(badVersion);
+
+    final WritableMemory badCode = WritableMemory.writableWrap(bytes.clone());
+    badCode.putByte(bytes.length - 1, (byte) 5);
+    checkRejected(badCode);
+
+    final WritableMemory badType = WritableMemory.writableWrap(bytes.clone());
+    badType.putByte(3, (byte) 1);
+    checkRejected(badType);
+
+    checkRejected(Memory.wrap(new byte[bytes.length - 1]));
+  }
+
+  private static void checkRejected(final Memory mem) {
+    try {
+      EncodedArrayOfStringsSketch.heapify(mem);
+      fail();
+    } catch (final SketchesArgumentException e) { }
+  }
+
+  private static void checkSame(final EncodedArrayOfStringsSketch sketch,
+      final Sketch<ArrayOfStringsSummary> expected) {
+    assertEquals(sketch.isEmpty(), expected.isEmpty());
+    assertEquals(sketch.getThetaLong(), expected.getThetaLong());
+    assertEquals(sketch.getRetainedEntries(), expected.getRetainedEntries());
+    assertEquals(sketch.getEstimate(), expected.getEstimate());
+    final Map<Long, String> entries = new HashMap<>();
+    final TupleSketchIterator<ArrayOfStringsSummary> expectedIt = expected.iterator();
+    while (expectedIt.next()) {
+      entries.put(expectedIt.getHash(), String.join("|", expectedIt.getSummary().getValue()));
+    }
+    final EncodedArrayOfStringsSketchIterator it = sketch.iterator();
+    int count = 0;
+    while (it.next()) {
+      assertEquals(String.join("|", it.getValue()), entries.get(it.getHash()));
+      count++;
+    }
+    assertEquals(count, entries.size());
+  }
+}